@@ -0,0 +1,160 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neotropic.kuwaiba.core.apis.persistence.ConnectionManager;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.ConnectionException;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.ConnectionManagerImpl;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * A throw-away Neo4j database opened through the same connection manager the server uses.
+ * It lives in a temporary directory that is deleted when the database is closed.
+ * @author agent {@literal <agent@local>}
+ */
+public class EmbeddedDatabase implements AutoCloseable {
+    /**
+     * The name of the database directory inside the archives in /dbs.
+     */
+    private static final String ARCHIVED_DB_NAME = "kuwaiba.db"; //NOI18N
+    /**
+     * The temporary directory with the database files.
+     */
+    private final Path directory;
+    /**
+     * The connection manager that opened the database.
+     */
+    private final ConnectionManagerImpl connectionManager;
+
+    private EmbeddedDatabase(Path directory, Path dbPath) throws IOException, ConnectionException {
+        this.directory = directory;
+        Properties configuration = new Properties();
+        configuration.put("dbPath", dbPath.toString()); //NOI18N
+        // The Bolt connector can't be disabled through the connection manager, so let it listen on any free port
+        try (ServerSocket socket = new ServerSocket(0)) {
+            configuration.put("dbPort", socket.getLocalPort()); //NOI18N
+        }
+        this.connectionManager = new ConnectionManagerImpl();
+        connectionManager.setConfiguration(configuration);
+        connectionManager.openConnection();
+    }
+
+    /**
+     * Creates an empty database.
+     * @return The database.
+     * @throws IOException If the temporary directory could not be created.
+     * @throws ConnectionException If the database could not be opened.
+     */
+    public static EmbeddedDatabase create() throws IOException, ConnectionException {
+        Path directory = Files.createTempDirectory("kuwaiba-benchmark"); //NOI18N
+        return new EmbeddedDatabase(directory, directory);
+    }
+
+    /**
+     * Opens a copy of one of the databases distributed in /dbs (packaged as resources of this module),
+     * so the benchmarks can run against the real data model.
+     * @param archiveName The name of the zip file, e.g. 01_empty_kuwaiba.db.zip.
+     * @return The database.
+     * @throws IOException If the archive could not be found or extracted.
+     * @throws ConnectionException If the database could not be opened.
+     */
+    public static EmbeddedDatabase fromArchive(String archiveName) throws IOException, ConnectionException {
+        Path directory = Files.createTempDirectory("kuwaiba-benchmark"); //NOI18N
+        try (InputStream archive = EmbeddedDatabase.class.getResourceAsStream("/" + archiveName)) {
+            if (archive == null)
+                throw new IOException(String.format("Database archive %s not found", archiveName));
+            try (ZipInputStream zip = new ZipInputStream(archive)) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    Path target = directory.resolve(entry.getName()).normalize();
+                    if (!target.startsWith(directory))
+                        throw new IOException(String.format("Invalid entry %s in %s", entry.getName(), archiveName));
+                    if (entry.isDirectory())
+                        Files.createDirectories(target);
+                    else {
+                        Files.createDirectories(target.getParent());
+                        Files.copy(zip, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+            }
+        }
+        return new EmbeddedDatabase(directory, directory.resolve(ARCHIVED_DB_NAME));
+    }
+
+    public ConnectionManager<GraphDatabaseService> getConnectionManager() {
+        return connectionManager;
+    }
+
+    public GraphDatabaseService getGraphDb() {
+        return connectionManager.getConnectionHandler();
+    }
+
+    /**
+     * Creates a schema index and waits until it is online.
+     * @param label The label of the indexed nodes.
+     * @param propertyKey The indexed property.
+     */
+    public void createIndex(Label label, String propertyKey) {
+        try (Transaction tx = getGraphDb().beginTx()) {
+            getGraphDb().schema().indexFor(label).on(propertyKey).create();
+            tx.success();
+        }
+        try (Transaction tx = getGraphDb().beginTx()) {
+            getGraphDb().schema().awaitIndexesOnline(10, TimeUnit.MINUTES);
+            tx.success();
+        }
+    }
+
+    /**
+     * Sets a field of a Spring bean that would otherwise be injected by the container.
+     * The benchmarks wire only the collaborators the benchmarked methods use.
+     * @param target The bean.
+     * @param fieldName The name of the field.
+     * @param value The value to be injected.
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null)
+            throw new IllegalArgumentException(String.format("Field %s not found in %s", fieldName, target.getClass().getName()));
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        connectionManager.closeConnection();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010-2023 Neotropic SAS <contact@neotropic.co>
+ *
+ * Licensed under the EPL License, Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.neotropic.kuwaiba.benchmarks.ipam;
+
+import com.neotropic.kuwaiba.modules.commercial.ipam.engine.IpamEngine;
+import com.neotropic.kuwaiba.modules.commercial.ipam.engine.SubnetDetail;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the IPv4 calculations of {@link IpamEngine}: splitting a /16, calculating subnets, walking the addresses of
+ * a /24 and checking if an address belongs to a subnet.
+ * @author agent {@literal <agent@local>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IpamEngineBenchmark {
+    /**
+     * How many different subnets are used by the benchmarks that take a single subnet.
+     */
+    private static final int SAMPLE_SIZE = 1024;
+    private static final String SPLIT_NETWORK = "10.20.0.0"; //NOI18N
+    private static final String SPLIT_BROADCAST = "10.20.255.255"; //NOI18N
+    private static final int SPLIT_MASK_BITS = 16;
+
+    /**
+     * The mask bits of the subnets a /16 is split into.
+     */
+    @Param({"24", "30"})
+    public int bitsToSplit;
+
+    private String[] cidrs;
+    private SubnetDetail[] subnets;
+    private String[] addresses;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InvalidArgumentException {
+        Random random = new Random(SAMPLE_SIZE);
+        cidrs = new String[SAMPLE_SIZE];
+        subnets = new SubnetDetail[SAMPLE_SIZE];
+        addresses = new String[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            int address = random.nextInt();
+            cidrs[i] = String.format("%s.%s.%s.0/24", address >>> 24, (address >>> 16) & 0xff, (address >>> 8) & 0xff); //NOI18N
+            subnets[i] = new SubnetDetail(cidrs[i]);
+            IpamEngine.ipv4SubnetCalculation(subnets[i]);
+            addresses[i] = String.format("%s.%s.%s.%s", address >>> 24, (address >>> 16) & 0xff, //NOI18N
+                    random.nextBoolean() ? (address >>> 8) & 0xff : random.nextInt(256), address & 0xff);
+        }
+    }
+
+    @Benchmark
+    public List<SubnetDetail> split() throws InvalidArgumentException {
+        return IpamEngine.ipv4Split(SPLIT_NETWORK, SPLIT_MASK_BITS, SPLIT_BROADCAST, bitsToSplit);
+    }
+
+    @Benchmark
+    public SubnetDetail subnetCalculation() throws InvalidArgumentException {
+        SubnetDetail subnet = new SubnetDetail(cidrs[nextSample()]);
+        IpamEngine.ipv4SubnetCalculation(subnet);
+        return subnet;
+    }
+
+    @Benchmark
+    public String nextAddresses() {
+        SubnetDetail subnet = subnets[nextSample()];
+        String address = subnet.getNetworkIpAddr();
+        while (!address.equals(subnet.getBroadCastIpAddr()))
+            address = IpamEngine.ipv4nextAddr(subnet.getNetworkIpAddr(), subnet.getBroadCastIpAddr(), address, subnet.getMaskBits());
+        return address;
+    }
+
+    @Benchmark
+    public boolean belongsToSubnet() {
+        int sample = nextSample();
+        return IpamEngine.ipv4addrBelongsToSubnet(subnets[sample].getNetworkIpAddr(), addresses[sample], subnets[sample].getMaskBits());
+    }
+
+    private int nextSample() {
+        next = (next + 1) % SAMPLE_SIZE;
+        return next;
+    }
+}
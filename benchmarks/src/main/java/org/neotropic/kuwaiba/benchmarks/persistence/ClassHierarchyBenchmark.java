@@ -0,0 +1,148 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.benchmarks.persistence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.helpers.collection.Iterators;
+import org.neotropic.kuwaiba.benchmarks.EmbeddedDatabase;
+import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadata;
+import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadataLight;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.ClassHierarchyIndex;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the subclass and the is-subclass-of lookups answered by the {@link ClassHierarchyIndex} with the variable length
+ * EXTENDS query and the walk up the cached parent class names they replaced, using the data model of the empty database
+ * distributed in /dbs. The classes go from the root of the hierarchy to a leaf.
+ * @author agent {@literal <agent@local>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClassHierarchyBenchmark {
+    @Param({"InventoryObject", "GenericPort", "OpticalPort"})
+    public String className;
+
+    private EmbeddedDatabase database;
+    private ClassHierarchyIndex hierarchy;
+    /**
+     * The classes by name, as kept by the class cache.
+     */
+    private Map<String, ClassMetadata> classes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = EmbeddedDatabase.fromArchive("01_empty_kuwaiba.db.zip"); //NOI18N
+        classes = new HashMap<>();
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            ResourceIterator<Node> classNodes = database.getGraphDb().findNodes(Label.label(Constants.LABEL_CLASS));
+            while (classNodes.hasNext()) {
+                ClassMetadata aClass = Util.createClassMetadataFromNode(classNodes.next());
+                classes.put(aClass.getName(), aClass);
+            }
+            tx.success();
+        }
+        if (!classes.containsKey(className))
+            throw new IllegalStateException(String.format("Class %s not found in the database", className));
+        hierarchy = ClassHierarchyIndex.build(classes.values());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public List<ClassMetadataLight> indexedSubclasses() {
+        return hierarchy.getSubclasses(className);
+    }
+
+    @Benchmark
+    public List<ClassMetadataLight> querySubclasses() {
+        List<ClassMetadataLight> subclasses = new ArrayList<>();
+        String cypherQuery = "MATCH (inventory:classes)<-[:EXTENDS*]-(classmetadata) "
+                           + "WHERE inventory.name IN ['" + className + "'] "
+                           + "RETURN classmetadata "
+                           + "ORDER BY classmetadata.name ASC;";
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            Result result = database.getGraphDb().execute(cypherQuery);
+            Iterator<Node> classNodes = result.columnAs("classmetadata"); //NOI18N
+            for (Node classNode : Iterators.asIterable(classNodes))
+                subclasses.add(Util.createClassMetadataLightFromNode(classNode));
+            tx.success();
+        }
+        return subclasses;
+    }
+
+    @Benchmark
+    public List<ClassMetadataLight> indexedDirectSubclasses() {
+        return hierarchy.getDirectSubclasses(className);
+    }
+
+    @Benchmark
+    public boolean indexedIsSubclassOf() {
+        return hierarchy.isSubclassOf(Constants.CLASS_GENERICPORT, className);
+    }
+
+    @Benchmark
+    public boolean cachedIsSubclassOf() {
+        return isSubclassOf(Constants.CLASS_GENERICPORT, className);
+    }
+
+    /**
+     * The walk up the parent class names of the cached classes used before the index was available.
+     */
+    private boolean isSubclassOf(String allegedParent, String classToBeEvaluated) {
+        if (classToBeEvaluated == null)
+            return false;
+        if (allegedParent.equals(classToBeEvaluated))
+            return true;
+        ClassMetadata currentClass = classes.get(classToBeEvaluated);
+        if (currentClass.getParentClassName() == null)
+            return false;
+        if (currentClass.getParentClassName().equals(allegedParent))
+            return true;
+        else
+            return isSubclassOf(allegedParent, currentClass.getParentClassName());
+    }
+}
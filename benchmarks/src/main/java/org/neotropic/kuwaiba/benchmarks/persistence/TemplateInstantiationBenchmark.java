@@ -0,0 +1,219 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.benchmarks.persistence;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neotropic.kuwaiba.benchmarks.EmbeddedDatabase;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InventoryException;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
+import org.neotropic.kuwaiba.core.apis.persistence.metadata.AttributeMetadata;
+import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadata;
+import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadataLight;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.TemplateInstantiationPlan;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.BusinessEntityManagerImpl;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.MetadataEntityManagerImpl;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the bulk creation of objects from a template using a cached {@link TemplateInstantiationPlan}
+ * ({@link BusinessEntityManagerImpl#createBulkObjects(java.lang.String, java.lang.String, java.lang.String, java.lang.String, java.lang.String)})
+ * with the lookup of the template and the recursive copy of its elements for every object it replaced, using the data model
+ * of the empty database distributed in /dbs. The templates have a root element, some children and four special children per child.
+ * @author agent {@literal <agent@local>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TemplateInstantiationBenchmark {
+    /**
+     * How many objects are created from the template in every invocation.
+     */
+    private static final int OBJECTS_PER_INVOCATION = 10;
+    /**
+     * How many special children every child of the template root has.
+     */
+    private static final int SPECIAL_CHILDREN_PER_CHILD = 4;
+
+    /**
+     * How many children the template root has. Every child adds five elements to the template.
+     */
+    @Param({"2", "20", "200"})
+    public int children;
+
+    private EmbeddedDatabase database;
+    private BusinessEntityManagerImpl bem;
+    private Label inventoryObjectLabel;
+    /**
+     * The class of the objects created from the template.
+     */
+    private String className;
+    /**
+     * The string attributes of the class, other than the name, set in every template element.
+     */
+    private List<String> attributes;
+    private String templateId;
+    private Node dummyRoot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = EmbeddedDatabase.fromArchive("01_empty_kuwaiba.db.zip"); //NOI18N
+        inventoryObjectLabel = Label.label(Constants.LABEL_INVENTORY_OBJECTS);
+
+        MetadataEntityManagerImpl mem = new MetadataEntityManagerImpl();
+        EmbeddedDatabase.inject(mem, "connectionManager", database.getConnectionManager()); //NOI18N
+        mem.initCache();
+        for (ClassMetadataLight aClass : mem.getPossibleChildren(Constants.DUMMY_ROOT, true)) {
+            if (!aClass.isInDesign() && mem.isSubclassOf(Constants.CLASS_INVENTORYOBJECT, aClass.getName())) {
+                className = aClass.getName();
+                break;
+            }
+        }
+        if (className == null)
+            throw new IllegalStateException("No class can be instantiated under the navigation tree root");
+        attributes = new ArrayList<>();
+        for (AttributeMetadata attribute : mem.getClass(className).getAttributes()) {
+            if (Constants.DATA_TYPE_STRING.equals(attribute.getType()) && !Constants.PROPERTY_NAME.equals(attribute.getName()))
+                attributes.add(attribute.getName());
+        }
+
+        templateId = UUID.randomUUID().toString();
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            Node classNode = database.getGraphDb().findNode(Label.label(Constants.LABEL_CLASS), Constants.PROPERTY_NAME, className);
+            // The containment rules are not checked when a template is instantiated, so all its elements use the same class
+            Node template = createTemplateElement(classNode, templateId, "template"); //NOI18N
+            template.addLabel(Label.label(Constants.LABEL_TEMPLATES));
+            classNode.createRelationshipTo(template, RelTypes.HAS_TEMPLATE);
+            for (int i = 0; i < children; i++) {
+                Node child = createTemplateElement(classNode, UUID.randomUUID().toString(), "child-" + i); //NOI18N
+                child.createRelationshipTo(template, RelTypes.CHILD_OF);
+                for (int j = 0; j < SPECIAL_CHILDREN_PER_CHILD; j++)
+                    createTemplateElement(classNode, UUID.randomUUID().toString(), "special-child-" + j) //NOI18N
+                            .createRelationshipTo(child, RelTypes.CHILD_OF_SPECIAL);
+            }
+            dummyRoot = database.getGraphDb().findNode(Label.label(Constants.LABEL_SPECIAL_NODE), Constants.PROPERTY_NAME, Constants.NODE_DUMMYROOT);
+            tx.success();
+        }
+
+        bem = new BusinessEntityManagerImpl();
+        EmbeddedDatabase.inject(bem, "connectionManager", database.getConnectionManager()); //NOI18N
+        EmbeddedDatabase.inject(bem, "mem", mem); //NOI18N
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OBJECTS_PER_INVOCATION)
+    public String[] plannedInstantiation() throws InventoryException {
+        return bem.createBulkObjects(className, Constants.DUMMY_ROOT, "-1", //NOI18N
+                String.format("[sequence(1,%s)]", OBJECTS_PER_INVOCATION), templateId); //NOI18N
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OBJECTS_PER_INVOCATION)
+    public String[] recursiveCopy() throws InventoryException {
+        String[] res = new String[OBJECTS_PER_INVOCATION];
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            for (int i = 0; i < OBJECTS_PER_INVOCATION; i++) {
+                // The template used to be looked up and checked again for every object
+                Node templateNode = database.getGraphDb().findNode(Label.label(Constants.LABEL_TEMPLATES), Constants.PROPERTY_UUID, templateId);
+                if (!className.equals(templateNode.getSingleRelationship(RelTypes.HAS_TEMPLATE, Direction.INCOMING)
+                        .getStartNode().getProperty(Constants.PROPERTY_NAME)))
+                    throw new InvalidArgumentException(String.format("The template with id %s is not applicable to instances of class %s", templateId, className));
+                Node classNode = templateNode.getSingleRelationship(RelTypes.INSTANCE_OF_SPECIAL, Direction.OUTGOING).getEndNode();
+                Node newObject = copyTemplateElement(templateNode, Util.createClassMetadataFromNode(classNode));
+                res[i] = (String) newObject.getProperty(Constants.PROPERTY_UUID);
+                newObject.setProperty(Constants.PROPERTY_NAME, String.valueOf(i + 1));
+                newObject.createRelationshipTo(dummyRoot, RelTypes.CHILD_OF);
+            }
+            tx.success();
+        }
+        return res;
+    }
+
+    private Node createTemplateElement(Node classNode, String uuid, String name) {
+        Node element = database.getGraphDb().createNode(Label.label(Constants.LABEL_TEMPLATE_ELEMENTS));
+        element.setProperty(Constants.PROPERTY_UUID, uuid);
+        element.setProperty(Constants.PROPERTY_NAME, name);
+        for (String attribute : attributes)
+            element.setProperty(attribute, attribute + "-value"); //NOI18N
+        element.createRelationshipTo(classNode, RelTypes.INSTANCE_OF_SPECIAL);
+        return element;
+    }
+
+    /**
+     * The recursive copy of the template elements used before the templates were compiled into instantiation plans.
+     */
+    private Node copyTemplateElement(Node templateObject, ClassMetadata classToMap) throws InvalidArgumentException {
+        Node newInstance = database.getGraphDb().createNode(inventoryObjectLabel);
+
+        for (String property : templateObject.getPropertyKeys()) {
+            if (!property.equals(Constants.PROPERTY_UUID)) {
+                if (classToMap.isMandatory(property) && ((String) templateObject.getProperty(property)).isEmpty())
+                    throw new InvalidArgumentException(String.format("The attribute %s is mandatory, can not be set null or empty", property));
+                newInstance.setProperty(property, templateObject.getProperty(property));
+            }
+        }
+
+        for (Relationship rel : templateObject.getRelationships(RelTypes.RELATED_TO, Direction.OUTGOING))
+            newInstance.createRelationshipTo(rel.getEndNode(), RelTypes.RELATED_TO).setProperty(Constants.PROPERTY_NAME, rel.getProperty(Constants.PROPERTY_NAME));
+
+        newInstance.setProperty(Constants.PROPERTY_CREATION_DATE, Calendar.getInstance().getTimeInMillis());
+        newInstance.createRelationshipTo(templateObject.getRelationships(RelTypes.INSTANCE_OF_SPECIAL).iterator().next().getEndNode(),
+                RelTypes.INSTANCE_OF);
+
+        List<Relationship> childRelationships = new ArrayList<>();
+        templateObject.getRelationships(Direction.INCOMING, RelTypes.CHILD_OF, RelTypes.CHILD_OF_SPECIAL).forEach(childRelationships::add);
+        for (Relationship rel : childRelationships) {
+            Node classNode = rel.getStartNode().getSingleRelationship(RelTypes.INSTANCE_OF_SPECIAL, Direction.OUTGOING).getEndNode();
+            Node newChild = copyTemplateElement(rel.getStartNode(), Util.createClassMetadataFromNode(classNode));
+            newChild.createRelationshipTo(newInstance, rel.isType(RelTypes.CHILD_OF) ? RelTypes.CHILD_OF : RelTypes.CHILD_OF_SPECIAL);
+        }
+
+        newInstance.setProperty(Constants.PROPERTY_UUID, UUID.randomUUID().toString());
+        return newInstance;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.benchmarks.persistence;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neotropic.kuwaiba.benchmarks.EmbeddedDatabase;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.BusinessObjectNotFoundException;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.BusinessEntityManagerImpl;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the lookup of an object by class and uuid through the schema index on inventoryObjects(_uuid)
+ * ({@link BusinessEntityManagerImpl#getInstanceOfClass(org.neo4j.graphdb.Node, java.lang.String)}) with the scan
+ * of the INSTANCE_OF relationships of the class it replaced, for classes with 10k, 100k and 1M instances.
+ * @author agent {@literal <agent@local>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UuidLookupBenchmark {
+    /**
+     * How many objects are created in a single transaction while populating the database.
+     */
+    private static final int POPULATION_BATCH_SIZE = 20000;
+    /**
+     * How many different uuids are looked up.
+     */
+    private static final int SAMPLE_SIZE = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    public int instances;
+
+    private EmbeddedDatabase database;
+    private BusinessEntityManagerImpl bem;
+    private Node classNode;
+    private String[] sample;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = EmbeddedDatabase.create();
+        Label inventoryObjectLabel = Label.label(Constants.LABEL_INVENTORY_OBJECTS);
+        database.createIndex(inventoryObjectLabel, Constants.PROPERTY_UUID);
+
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            classNode = database.getGraphDb().createNode(Label.label(Constants.LABEL_CLASS));
+            classNode.setProperty(Constants.PROPERTY_NAME, "OpticalPort"); //NOI18N
+            tx.success();
+        }
+
+        Random random = new Random(instances);
+        sample = new String[SAMPLE_SIZE];
+        for (int created = 0; created < instances; ) {
+            try (Transaction tx = database.getGraphDb().beginTx()) {
+                for (int i = 0; i < POPULATION_BATCH_SIZE && created < instances; i++, created++) {
+                    Node instance = database.getGraphDb().createNode(inventoryObjectLabel);
+                    String uuid = UUID.randomUUID().toString();
+                    instance.setProperty(Constants.PROPERTY_UUID, uuid);
+                    instance.setProperty(Constants.PROPERTY_NAME, "port-" + created); //NOI18N
+                    instance.createRelationshipTo(classNode, RelTypes.INSTANCE_OF);
+                    // Reservoir sampling, so the looked up objects are spread over the whole class
+                    if (created < SAMPLE_SIZE)
+                        sample[created] = uuid;
+                    else {
+                        int slot = random.nextInt(created + 1);
+                        if (slot < SAMPLE_SIZE)
+                            sample[slot] = uuid;
+                    }
+                }
+                tx.success();
+            }
+        }
+
+        bem = new BusinessEntityManagerImpl();
+        EmbeddedDatabase.inject(bem, "connectionManager", database.getConnectionManager()); //NOI18N
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public Node indexedLookup() throws BusinessObjectNotFoundException {
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            Node instance = bem.getInstanceOfClass(classNode, nextUuid());
+            tx.success();
+            return instance;
+        }
+    }
+
+    @Benchmark
+    public Node instanceOfScan() throws BusinessObjectNotFoundException {
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            Node instance = scanInstances(classNode, nextUuid());
+            tx.success();
+            return instance;
+        }
+    }
+
+    private String nextUuid() {
+        next = (next + 1) % SAMPLE_SIZE;
+        return sample[next];
+    }
+
+    /**
+     * The lookup used before the uuid index was available.
+     */
+    private static Node scanInstances(Node classNode, String oid) throws BusinessObjectNotFoundException {
+        for (Relationship instanceOf : classNode.getRelationships(RelTypes.INSTANCE_OF)) {
+            Node otherSide = instanceOf.getStartNode();
+            String otherSideUuid = otherSide.hasProperty(Constants.PROPERTY_UUID) ? (String) otherSide.getProperty(Constants.PROPERTY_UUID) : null;
+            if (otherSideUuid != null && otherSideUuid.equals(oid))
+                return otherSide;
+        }
+        throw new BusinessObjectNotFoundException((String) classNode.getProperty(Constants.PROPERTY_NAME), oid);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.benchmarks.physcon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neotropic.kuwaiba.benchmarks.EmbeddedDatabase;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
+import org.neotropic.kuwaiba.modules.optional.physcon.PhysicalConnectionsService;
+import org.neotropic.kuwaiba.modules.optional.physcon.PhysicalPathTraversal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link PhysicalPathTraversal} used by {@link PhysicalConnectionsService#getPhysicalPath} and 
+ * {@link PhysicalConnectionsService#getPhysicalTree} with the variable-length Cypher match it replaced, on synthetic 
+ * FTTH splitter trees with 10^3 to 10^6 ports. Every level of the tree is a link (endpointA/endpointB) to a splitter 
+ * input port, mirrored (mirrorMultiple) to as many output ports as the fan-out, each of them connected to the next level. 
+ * Every splitter input also has a relationship the traces must not follow. Before measuring, the setup checks that both 
+ * approaches find a path of the same length and that the traversal reaches every port.
+ * @author agent {@literal <agent@local>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PhysicalPathTraversalBenchmark {
+    /**
+     * How many objects are created in a single transaction while populating the database.
+     */
+    private static final int POPULATION_BATCH_SIZE = 20000;
+    /**
+     * The query used by getPhysicalPath before the traversal. getPhysicalTree used the same match, without the limit.
+     */
+    private static final String LEGACY_QUERY = "MATCH paths = (o)-[r:" + RelTypes.RELATED_TO_SPECIAL + "*]-(c) " + //NOI18N
+            "WHERE o._uuid = $uuid AND all(rel in r where rel.name IN ['mirror','mirrorMultiple'] or rel.name = 'endpointA' or rel.name = 'endpointB') " + //NOI18N
+            "WITH nodes(paths) as path " + //NOI18N
+            "RETURN path ORDER BY length(path) DESC LIMIT 1"; //NOI18N
+    /**
+     * The uuid of the port the traces start from.
+     */
+    private static final String ROOT_UUID = "root-port"; //NOI18N
+
+    /**
+     * Approximate number of ports (and links) in the tree.
+     */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int ports;
+    /**
+     * The number of outputs of every splitter.
+     */
+    @Param({"8"})
+    public int fanOut;
+
+    private EmbeddedDatabase database;
+    private Node root;
+    private int objects;
+    private int depth;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = EmbeddedDatabase.create();
+        Label inventoryObjectLabel = Label.label(Constants.LABEL_INVENTORY_OBJECTS);
+        database.createIndex(inventoryObjectLabel, Constants.PROPERTY_UUID);
+        
+        // The tree is built level by level, a few thousand objects per transaction
+        List<Long> frontier = new ArrayList<>();
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            root = database.getGraphDb().createNode(inventoryObjectLabel);
+            root.setProperty(Constants.PROPERTY_UUID, ROOT_UUID);
+            frontier.add(root.getId());
+            tx.success();
+        }
+        objects = 1;
+        while (objects < ports) {
+            List<Long> nextFrontier = new ArrayList<>();
+            Transaction tx = database.getGraphDb().beginTx();
+            try {
+                int created = 0;
+                for (long portId : frontier) {
+                    Node port = database.getGraphDb().getNodeById(portId);
+                    Node link = createObject(inventoryObjectLabel), splitterInput = createObject(inventoryObjectLabel);
+                    connect(link, port, PhysicalConnectionsService.RELATIONSHIP_ENDPOINTA);
+                    connect(link, splitterInput, PhysicalConnectionsService.RELATIONSHIP_ENDPOINTB);
+                    connect(splitterInput, createObject(inventoryObjectLabel), "uplink"); //NOI18N
+                    for (int i = 0; i < fanOut; i++) {
+                        Node splitterOutput = createObject(inventoryObjectLabel);
+                        connect(splitterInput, splitterOutput, "mirrorMultiple"); //NOI18N
+                        nextFrontier.add(splitterOutput.getId());
+                    }
+                    objects += 3 + fanOut;
+                    created += 3 + fanOut;
+                    if (created >= POPULATION_BATCH_SIZE) {
+                        tx.success();
+                        tx.close();
+                        tx = database.getGraphDb().beginTx();
+                        created = 0;
+                    }
+                }
+                tx.success();
+            } finally {
+                tx.close();
+            }
+            frontier = nextFrontier;
+            depth += 3;
+        }
+        
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            PhysicalPathTraversal traversal = new PhysicalPathTraversal(Integer.MAX_VALUE, Integer.MAX_VALUE);
+            traversal.traverse(root, null);
+            // Every object but the uplink ports are reached
+            int expected = objects - (objects - 1) / (3 + fanOut);
+            if (traversal.getVisitedNodes() != expected || traversal.isTruncated())
+                throw new IllegalStateException(String.format("The traversal visited %s objects, %s expected", traversal.getVisitedNodes(), expected));
+            if (traversal.getLongestPath().size() != depth + 1)
+                throw new IllegalStateException(String.format("The longest path has %s objects, %s expected", traversal.getLongestPath().size(), depth + 1));
+            if (ports <= 10000 && legacyQuery().size() != depth + 1)
+                throw new IllegalStateException("The traversal and the Cypher match disagree on the longest path");
+            tx.success();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Node> traversalLongestPath() {
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            PhysicalPathTraversal traversal = new PhysicalPathTraversal(PhysicalConnectionsService.DEFAULT_PHYSICAL_PATH_MAX_DEPTH, Integer.MAX_VALUE);
+            traversal.traverse(root, null);
+            tx.success();
+            return traversal.getLongestPath();
+        }
+    }
+
+    @Benchmark
+    public int traversalTree() {
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            int[] edges = new int[1];
+            PhysicalPathTraversal traversal = new PhysicalPathTraversal(PhysicalConnectionsService.DEFAULT_PHYSICAL_PATH_MAX_DEPTH, Integer.MAX_VALUE);
+            traversal.traverse(root, (parent, node, level) -> {
+                edges[0]++;
+                return true;
+            });
+            tx.success();
+            return edges[0];
+        }
+    }
+
+    /**
+     * The Cypher match enumerates every path from the root, so it gets slow (or runs out of memory) well before 
+     * 10^6 ports. Run it with -p ports=1000,10000,100000.
+     */
+    @Benchmark
+    public List<Node> legacyLongestPath() {
+        try (Transaction tx = database.getGraphDb().beginTx()) {
+            List<Node> path = legacyQuery();
+            tx.success();
+            return path;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Node> legacyQuery() {
+        try (Result result = database.getGraphDb().execute(LEGACY_QUERY, Collections.singletonMap("uuid", ROOT_UUID))) { //NOI18N
+            return result.hasNext() ? (List<Node>) result.next().get("path") : Collections.emptyList(); //NOI18N
+        }
+    }
+
+    private Node createObject(Label label) {
+        return database.getGraphDb().createNode(label);
+    }
+
+    private static void connect(Node from, Node to, String relationshipName) {
+        from.createRelationshipTo(to, RelTypes.RELATED_TO_SPECIAL).setProperty(Constants.PROPERTY_NAME, relationshipName);
+    }
+}
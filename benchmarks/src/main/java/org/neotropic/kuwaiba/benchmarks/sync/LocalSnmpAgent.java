@@ -0,0 +1,146 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.benchmarks.sync;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+/**
+ * A minimal SNMP version 2c agent listening on a free UDP port of the loopback interface. It answers GETNEXT and
+ * GETBULK requests with the rows of a single synthetic table, so the SNMP connectors can be exercised without real
+ * devices. The agent can be told to stop answering, to simulate devices that are unreachable.
+ * @author agent {@literal <agent@local>}
+ */
+public class LocalSnmpAgent implements CommandResponder, AutoCloseable {
+    /**
+     * The oid of the table served by the agent. The column n is TABLE_OID.n and the row m of that column is TABLE_OID.n.m
+     */
+    public static final OID TABLE_OID = new OID("1.3.6.1.4.1.99999.1.1"); //NOI18N
+    /**
+     * The variables served by the agent, sorted by oid so the next variable of any oid can be found.
+     */
+    private final TreeMap<OID, Variable> mib = new TreeMap<>();
+    /**
+     * The community expected in the requests. Requests with other communities are ignored.
+     */
+    private final String community;
+    private final Snmp snmp;
+    private final String address;
+    private volatile boolean responding = true;
+
+    /**
+     * Creates and starts an agent.
+     * @param community The community expected in the requests.
+     * @param columns Number of columns of the table.
+     * @param rows Number of rows of the table.
+     * @throws IOException If the UDP socket could not be opened.
+     */
+    public LocalSnmpAgent(String community, int columns, int rows) throws IOException {
+        this.community = community;
+        for (int column = 1; column <= columns; column++) {
+            for (int row = 1; row <= rows; row++)
+                mib.put(getColumn(column).append(row), new OctetString(String.format("c%sr%s", column, row))); //NOI18N
+        }
+        DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/0")); //NOI18N
+        snmp = new Snmp(transport);
+        snmp.addCommandResponder(this);
+        snmp.listen();
+        address = "udp:" + transport.getListenAddress(); //NOI18N
+    }
+
+    /**
+     * The oid of a column of the table.
+     * @param column The column number, starting from 1.
+     * @return The oid.
+     */
+    public static OID getColumn(int column) {
+        return new OID(TABLE_OID).append(column);
+    }
+
+    /**
+     * The address to poll the agent, e.g. udp:127.0.0.1/50123.
+     * @return The address.
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Makes the agent ignore (or answer again) all the requests.
+     * @param responding False to ignore all the requests.
+     */
+    public void setResponding(boolean responding) {
+        this.responding = responding;
+    }
+
+    @Override
+    public void processPdu(CommandResponderEvent event) {
+        PDU request = event.getPDU();
+        if (!responding || request == null || !community.equals(new String(event.getSecurityName())))
+            return;
+
+        PDU response = new PDU();
+        response.setType(PDU.RESPONSE);
+        response.setRequestID(request.getRequestID());
+        int repetitions = request.getType() == PDU.GETBULK ? Math.max(1, request.getMaxRepetitions()) : 1;
+        List<OID> current = new ArrayList<>();
+        for (VariableBinding variableBinding : request.getVariableBindings())
+            current.add(variableBinding.getOid());
+
+        for (int i = 0; i < repetitions; i++) {
+            for (int j = 0; j < current.size(); j++) {
+                Map.Entry<OID, Variable> next = mib.higherEntry(current.get(j));
+                if (next == null)
+                    response.add(new VariableBinding(current.get(j), Null.endOfMibView));
+                else {
+                    response.add(new VariableBinding(next.getKey(), next.getValue()));
+                    current.set(j, next.getKey());
+                }
+            }
+        }
+        try {
+            event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(), event.getSecurityModel(),
+                    event.getSecurityName(), event.getSecurityLevel(), response, event.getMaxSizeResponsePDU(),
+                    event.getStateReference(), new StatusInformation());
+        } catch (MessageException ex) {
+            Logger.getLogger(LocalSnmpAgent.class.getName()).log(Level.WARNING, ex.getMessage());
+        }
+        event.setProcessed(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        snmp.close();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.benchmarks.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.SnmpManager;
+import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.SnmpTarget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snmp4j.smi.OID;
+
+/**
+ * Polls a table from several {@link LocalSnmpAgent local agents} at once through the shared {@link SnmpManager}
+ * session, and one agent after the other, as the sync providers did when the manager kept the parameters of a
+ * single agent. Every retrieved table is checked, so the benchmark fails if a walk returns incomplete tables.
+ * @author agent {@literal <agent@local>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SnmpManagerBenchmark {
+    private static final String COMMUNITY = "public"; //NOI18N
+    private static final int COLUMNS = 3;
+
+    @Param({"1", "16", "64"})
+    public int agents;
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    private List<LocalSnmpAgent> localAgents;
+    private List<SnmpTarget> targets;
+    private SnmpManager snmpManager;
+    private OID[] columns;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        localAgents = new ArrayList<>();
+        targets = new ArrayList<>();
+        for (int i = 0; i < agents; i++) {
+            LocalSnmpAgent agent = new LocalSnmpAgent(COMMUNITY, COLUMNS, rows);
+            localAgents.add(agent);
+            targets.add(new SnmpTarget(agent.getAddress(), SnmpManager.VERSION_2C, COMMUNITY, null, null, null, null, null, null, null));
+        }
+        columns = new OID[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++)
+            columns[i] = LocalSnmpAgent.getColumn(i + 1);
+
+        snmpManager = new SnmpManager();
+        snmpManager.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        snmpManager.shutdown();
+        for (LocalSnmpAgent agent : localAgents)
+            agent.close();
+    }
+
+    @Benchmark
+    public int concurrentPolling() {
+        List<CompletableFuture<List<List<String>>>> walks = new ArrayList<>();
+        for (SnmpTarget target : targets)
+            walks.add(snmpManager.getTableAsStringAsync(target, columns));
+        int polled = 0;
+        for (CompletableFuture<List<List<String>>> walk : walks)
+            polled += check(walk.join());
+        return polled;
+    }
+
+    @Benchmark
+    public int sequentialPolling() {
+        int polled = 0;
+        for (SnmpTarget target : targets)
+            polled += check(snmpManager.getTableAsString(target, columns));
+        return polled;
+    }
+
+    private int check(List<List<String>> table) {
+        if (table == null || table.size() != rows || table.get(rows - 1).size() != COLUMNS + 1)
+            throw new IllegalStateException("Incomplete table"); //NOI18N
+        return table.size();
+    }
+}
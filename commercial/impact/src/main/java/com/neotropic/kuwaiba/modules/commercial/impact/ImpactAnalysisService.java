@@ -16,8 +16,20 @@
 package com.neotropic.kuwaiba.modules.commercial.impact;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neotropic.kuwaiba.core.apis.persistence.ConnectionManager;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObject;
@@ -27,7 +39,11 @@ import org.neotropic.kuwaiba.core.apis.persistence.exceptions.BusinessObjectNotF
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.MetadataObjectNotFoundException;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.MetadataEntityManager;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.ObjectGraphMappingService;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.Util;
 import org.neotropic.kuwaiba.modules.optional.physcon.PhysicalConnectionsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -63,66 +79,57 @@ public class ImpactAnalysisService {
      */
     @Autowired
     private PhysicalConnectionsService physicalConnectionsService;
+    /**
+     * Reference to the connection manager, used to resolve the affected objects in bulk.
+     */
+    @Autowired
+    private ConnectionManager<GraphDatabaseService> connectionManager;
+    /**
+     * Reference to the service that maps nodes into business objects.
+     */
+    @Autowired
+    private ObjectGraphMappingService ogmService;
+    /**
+     * The special relationship between a service and the resources it uses.
+     */
+    private static final String RELATIONSHIP_USES = "uses"; //NOI18N
     
+    /**
+     * Finds the services affected by an outage of one device, either directly associated to it, to any of its ports, 
+     * or to the links connected to those ports.
+     * @param deviceName The name of the device. If there are many devices with that name, all of them are taken into account.
+     * @return The devices and the affected services, grouped by customer.
+     * @throws MetadataObjectNotFoundException If the classes GenericCommunicationsElement or GenericCustomer could not be found.
+     * @throws InvalidArgumentException If the device name is invalid.
+     * @throws BusinessObjectNotFoundException If no device with that name could be found.
+     * @throws ApplicationObjectNotFoundException Not thrown anymore. Kept for backwards compatibility.
+     */
     public AssetLevelCorrelatedInformation servicesInDevice(String deviceName) 
             throws MetadataObjectNotFoundException, InvalidArgumentException, BusinessObjectNotFoundException, ApplicationObjectNotFoundException {
-        List<BusinessObject> matchedCommunicationsElements = bem.getObjectsWithFilter("GenericCommunicationsElement", "name", deviceName);
-                        
-        if (matchedCommunicationsElements.isEmpty())
-            throw new BusinessObjectNotFoundException(String.format("No resource with name %s could be found", deviceName));
-
-        List<BusinessObjectLight> rawServices = new ArrayList<>();
-        for (BusinessObject matchedCommunicationsElement : matchedCommunicationsElements) {
-
-            //First the directly related
-            List<BusinessObjectLight> directlyAssociatedServices = 
-                    bem.getSpecialAttribute(matchedCommunicationsElement.getClassName(), matchedCommunicationsElement.getId(), "uses");
-
-            rawServices.addAll(directlyAssociatedServices);
-
-            //Now those associated to the ports
-            List<BusinessObjectLight> portsInRouter = 
-                    bem.getChildrenOfClassLightRecursive(matchedCommunicationsElement.getId(), 
-                            matchedCommunicationsElement.getClassName(), "GenericPort", null, -1, -1); //NOI18N
-
-            for (BusinessObjectLight portInRouter : portsInRouter) {
-                List<BusinessObjectLight> rawServicesInPort = bem.getSpecialAttribute(portInRouter.getClassName(), portInRouter.getId(), "uses");
-                
-                rawServicesInPort.forEach(serviceInPort -> {
-                    if (!rawServices.contains(serviceInPort))
-                        rawServices.add(serviceInPort);
-                });
-
-                List<BusinessObjectLight> physicalPath = physicalConnectionsService.getPhysicalPath(portInRouter.getClassName(), portInRouter.getId());
-                if (physicalPath.size() > 1) {
-                    List<BusinessObjectLight> rawServicesInPhysicalConnection = bem.getSpecialAttribute(physicalPath.get(1).getClassName(), physicalPath.get(1).getId(), "uses");
-                    rawServicesInPhysicalConnection.forEach(serviceInPhysicalConnection -> {
-                        if (!rawServices.contains(serviceInPhysicalConnection))
-                            rawServices.add(serviceInPhysicalConnection);
-                    });
-                }
-            }
+        return servicesInDevices(Arrays.asList(deviceName));
+    }
+    
+    /**
+     * Finds the services affected by an outage of several devices at once (say, all the devices in a POP), either 
+     * directly associated to them, to any of their ports, or to the links connected to those ports. The affected objects 
+     * are resolved with a handful of queries regardless of the number of devices and ports.
+     * @param deviceNames The names of the devices. If there are many devices with the same name, all of them are taken into account.
+     * @return The devices and the affected services, grouped by customer.
+     * @throws MetadataObjectNotFoundException If the classes GenericCommunicationsElement or GenericCustomer could not be found.
+     * @throws InvalidArgumentException If any of the device names is invalid.
+     * @throws BusinessObjectNotFoundException If no device with any of the names could be found.
+     */
+    public AssetLevelCorrelatedInformation servicesInDevices(List<String> deviceNames) 
+            throws MetadataObjectNotFoundException, InvalidArgumentException, BusinessObjectNotFoundException {
+        List<BusinessObject> matchedCommunicationsElements = new ArrayList<>();
+        for (String deviceName : deviceNames) {
+            List<BusinessObject> matchedByName = bem.getObjectsWithFilter("GenericCommunicationsElement", "name", deviceName);
+            if (matchedByName.isEmpty())
+                throw new BusinessObjectNotFoundException(String.format("No resource with name %s could be found", deviceName));
+            matchedCommunicationsElements.addAll(matchedByName);
         }
         
-        List<ServiceLevelCorrelatedInformation> serviceLevelCorrelatedInformation = new ArrayList<>();
-        HashMap<BusinessObjectLight, List<BusinessObjectLight>> rawCorrelatedInformation = new HashMap<>();
-
-        //Now we organize the rawServices by customer
-        for (BusinessObjectLight rawService : rawServices) {
-            BusinessObjectLight customer = bem.getFirstParentOfClass(rawService.getClassName(), rawService.getId(), "GenericCustomer");
-            if (customer != null) { //Services without customers will be ignored. This shouldn't happen, though
-                if (!rawCorrelatedInformation.containsKey(customer))
-                    rawCorrelatedInformation.put(customer, new ArrayList());
- 
-                rawCorrelatedInformation.get(customer).add(rawService);
-            }
-        }
-
-        rawCorrelatedInformation.keySet().forEach(customer -> { 
-            serviceLevelCorrelatedInformation.add(new ServiceLevelCorrelatedInformation(customer, rawCorrelatedInformation.get(customer)));
-        });
-
-        return new AssetLevelCorrelatedInformation(matchedCommunicationsElements, serviceLevelCorrelatedInformation);
+        return new AssetLevelCorrelatedInformation(matchedCommunicationsElements, correlateServices(matchedCommunicationsElements, true));
     }
 
     public AssetLevelCorrelatedInformation servicesInSlotOrBoard(String deviceName, String childName) 
@@ -155,43 +162,134 @@ public class ImpactAnalysisService {
         throw new BusinessObjectNotFoundException("No slot or port with name " + childName + " was found in device " + deviceName);
     }
     
+    /**
+     * Finds the services affected by an outage of a set of ports, either directly associated to them or to the links connected to them.
+     * @param ports The ports.
+     * @return The ports and the affected services, grouped by customer.
+     * @throws BusinessObjectNotFoundException Not thrown anymore. Kept for backwards compatibility.
+     * @throws MetadataObjectNotFoundException If the class GenericCustomer could not be found.
+     * @throws ApplicationObjectNotFoundException Not thrown anymore. Kept for backwards compatibility.
+     * @throws InvalidArgumentException Not thrown anymore. Kept for backwards compatibility.
+     */
     public AssetLevelCorrelatedInformation servicesInPorts(List<BusinessObject> ports) 
             throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, ApplicationObjectNotFoundException, InvalidArgumentException {
-        List<BusinessObjectLight> rawServices = new ArrayList<>();
+        return new AssetLevelCorrelatedInformation(ports, correlateServices(ports, false));
+    }
+    
+    /**
+     * Finds the services associated to a set of resources, to the ports inside them (optionally) and to the 
+     * physical links connected to those ports, and groups them by customer. Everything is resolved within a 
+     * single transaction: one query per kind of object (ports, links, services), deduplicated by node, and a walk up 
+     * the containment hierarchy of every service that stops at the first customer, remembering the customer of every 
+     * parent already walked.
+     * @param resources The affected resources.
+     * @param includePorts True if the resources are devices and the ports inside them should be taken into account, 
+     * false if the resources are already the ports.
+     * @return The affected services grouped by customer. Services with no customer are ignored.
+     * @throws MetadataObjectNotFoundException If the class GenericCustomer could not be found.
+     */
+    private List<ServiceLevelCorrelatedInformation> correlateServices(Collection<? extends BusinessObjectLight> resources, boolean includePorts) 
+            throws MetadataObjectNotFoundException {
+        List<String> resourceIds = new ArrayList<>(resources.size());
+        resources.forEach(resource -> resourceIds.add(resource.getId()));
         
-        for (BusinessObject port : ports) {
-            List<BusinessObjectLight> servicesInPort = bem.getSpecialAttribute(port.getClassName(), port.getId(), "uses");
-            rawServices.addAll(servicesInPort);
-
-            List<BusinessObjectLight> physicalPath = physicalConnectionsService.getPhysicalPath(port.getClassName(), port.getId());
-            if (physicalPath.size() > 1) { // The port is connected to something else, we'll check if the cable/fiber connected to it is associated to a service
-                List<BusinessObjectLight> servicesInPhysicalConnection = bem.getSpecialAttribute(physicalPath.
-                        get(1).getClassName(), physicalPath.get(1).getId(), "uses");
-                servicesInPhysicalConnection.forEach( aService -> {
-                    if (!rawServices.contains(aService))
-                        rawServices.add(aService);
-                });
+        LinkedHashMap<BusinessObjectLight, List<BusinessObjectLight>> rawCorrelatedInformation = new LinkedHashMap<>();
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            HashMap<String, Object> parameters = new HashMap<>();
+            parameters.put("resourceIds", resourceIds); //NOI18N
+            LinkedHashSet<Long> affectedObjects = new LinkedHashSet<>(
+                    nodeIds("MATCH (resource:inventoryObjects) WHERE resource._uuid IN $resourceIds RETURN id(resource) AS id", parameters)); //NOI18N
+            
+            //The ports inside the devices
+            List<Long> ports;
+            if (includePorts) {
+                parameters.put("objects", new ArrayList<>(affectedObjects)); //NOI18N
+                parameters.put("portClass", Constants.CLASS_GENERICPORT); //NOI18N
+                ports = nodeIds("MATCH (resource:inventoryObjects)<-[:CHILD_OF*]-(port:inventoryObjects)-[:INSTANCE_OF]->(:classes)-[:EXTENDS*]->(:classes {name:$portClass}) " //NOI18N
+                        + "WHERE id(resource) IN $objects RETURN DISTINCT id(port) AS id", parameters); //NOI18N
+                affectedObjects.addAll(ports);
+            } else
+                ports = new ArrayList<>(affectedObjects);
+            
+            //The cables/fibers connected to the ports
+            parameters.put("objects", ports); //NOI18N
+            parameters.put("connectionRelationships", Arrays.asList(PhysicalConnectionsService.RELATIONSHIP_ENDPOINTA, PhysicalConnectionsService.RELATIONSHIP_ENDPOINTB)); //NOI18N
+            affectedObjects.addAll(nodeIds(String.format("MATCH (port)-[relationship:%s]-(link:inventoryObjects) ", RelTypes.RELATED_TO_SPECIAL) //NOI18N
+                    + "WHERE id(port) IN $objects AND relationship.name IN $connectionRelationships RETURN DISTINCT id(link) AS id", parameters)); //NOI18N
+            
+            //The services using any of the objects above
+            parameters.put("objects", new ArrayList<>(affectedObjects)); //NOI18N
+            parameters.put("serviceRelationship", RELATIONSHIP_USES); //NOI18N
+            Result result = connectionManager.getConnectionHandler().execute(String.format("MATCH (object)-[relationship:%s]-(service:inventoryObjects) ", RelTypes.RELATED_TO_SPECIAL) //NOI18N
+                    + "WHERE id(object) IN $objects AND relationship.name = $serviceRelationship RETURN DISTINCT service", parameters); //NOI18N
+            
+            HashMap<Long, Node> customerOfParent = new HashMap<>();
+            HashMap<Long, BusinessObjectLight> customers = new HashMap<>();
+            while (result.hasNext()) {
+                Node serviceNode = (Node) result.next().get("service"); //NOI18N
+                Node customerNode = findCustomer(serviceNode, customerOfParent);
+                if (customerNode == null) //Services without customers will be ignored. This shouldn't happen, though
+                    continue;
+                BusinessObjectLight customer = customers.computeIfAbsent(customerNode.getId(), id -> ogmService.createObjectLightFromNode(customerNode));
+                rawCorrelatedInformation.computeIfAbsent(customer, aCustomer -> new ArrayList<>()).add(ogmService.createObjectLightFromNode(serviceNode));
             }
+            tx.success();
         }
         
         List<ServiceLevelCorrelatedInformation> serviceLevelCorrelatedInformation = new ArrayList<>();
-        HashMap<BusinessObjectLight, List<BusinessObjectLight>> rawCorrelatedInformation = new HashMap<>();
-
-        //Now we organize the rawServices by customers
-        for (BusinessObjectLight rawService : rawServices) {
-            BusinessObjectLight customer = bem.getFirstParentOfClass(rawService.getClassName(), rawService.getId(), "GenericCustomer");
-            if (customer != null) {//Services without customers will be ignored. This shouldn't happen, though
-                if (!rawCorrelatedInformation.containsKey(customer))
-                    rawCorrelatedInformation.put(customer, new ArrayList<>());
-
-                rawCorrelatedInformation.get(customer).add(rawService);
+        for (Map.Entry<BusinessObjectLight, List<BusinessObjectLight>> entry : rawCorrelatedInformation.entrySet())
+            serviceLevelCorrelatedInformation.add(new ServiceLevelCorrelatedInformation(entry.getKey(), entry.getValue()));
+        return serviceLevelCorrelatedInformation;
+    }
+    
+    /**
+     * Runs a query that returns a column of node ids named "id".
+     */
+    private List<Long> nodeIds(String query, Map<String, Object> parameters) {
+        List<Long> res = new ArrayList<>();
+        Result result = connectionManager.getConnectionHandler().execute(query, parameters);
+        while (result.hasNext())
+            res.add((Long) result.next().get("id")); //NOI18N
+        return res;
+    }
+    
+    /**
+     * Finds the first parent of a service that is a customer, the same way BusinessEntityManager.getFirstParentOfClass does.
+     * @param serviceNode The service node.
+     * @param customerOfParent The customer (or null if there is none) of the parents already walked, to avoid walking the same 
+     * hierarchy again for services under the same parent.
+     * @return The customer node or null if the service has no customer.
+     * @throws MetadataObjectNotFoundException If the class GenericCustomer could not be found.
+     */
+    private Node findCustomer(Node serviceNode, HashMap<Long, Node> customerOfParent) throws MetadataObjectNotFoundException {
+        List<Long> walkedParents = new ArrayList<>();
+        Node customer = null;
+        Node current = serviceNode;
+        while (true) {
+            Relationship parentRelationship = current.getSingleRelationship(RelTypes.CHILD_OF_SPECIAL, Direction.OUTGOING);
+            if (parentRelationship == null)
+                parentRelationship = current.getSingleRelationship(RelTypes.CHILD_OF, Direction.OUTGOING);
+            if (parentRelationship == null) //Orphan object
+                break;
+            
+            Node parent = parentRelationship.getEndNode();
+            if (customerOfParent.containsKey(parent.getId())) {
+                customer = customerOfParent.get(parent.getId());
+                break;
             }
+            walkedParents.add(parent.getId());
+            
+            String parentClass = Util.getClassName(parent);
+            if (parentClass == null) //The Dummy Root or a pool
+                break;
+            if (mem.isSubclassOf(Constants.CLASS_GENERICCUSTOMER, parentClass)) {
+                customer = parent;
+                break;
+            }
+            current = parent;
         }
-
-        rawCorrelatedInformation.keySet().forEach(customer -> { 
-            serviceLevelCorrelatedInformation.add(new ServiceLevelCorrelatedInformation(customer, rawCorrelatedInformation.get(customer)));
-        });
-
-        return new AssetLevelCorrelatedInformation(ports, serviceLevelCorrelatedInformation);
+        for (Long walkedParent : walkedParents)
+            customerOfParent.put(walkedParent, customer);
+        return customer;
     }
 }
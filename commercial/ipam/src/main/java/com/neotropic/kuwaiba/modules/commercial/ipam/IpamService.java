@@ -16,22 +16,30 @@
 
 package com.neotropic.kuwaiba.modules.commercial.ipam;
 
+import com.neotropic.kuwaiba.modules.commercial.ipam.engine.IpAddressArithmetic;
 import com.neotropic.kuwaiba.modules.commercial.ipam.engine.IpamEngine;
 import static com.neotropic.kuwaiba.modules.commercial.ipam.IpamModule.RELATIONSHIP_IPAMBELONGSTOVLAN;
 import static com.neotropic.kuwaiba.modules.commercial.ipam.IpamModule.RELATIONSHIP_IPAMBELONGSTOVRFINSTACE;
 import static com.neotropic.kuwaiba.modules.commercial.ipam.IpamModule.RELATIONSHIP_IPAMHASADDRESS;
 import static com.neotropic.kuwaiba.modules.commercial.ipam.IpamModule.RELATIONSHIP_IPAMPORTRELATEDTOINTERFACE;
-import com.neotropic.kuwaiba.modules.commercial.ipam.engine.SubnetDetail;
+import com.neotropic.kuwaiba.modules.commercial.ipam.engine.SubnetIndex;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.application.InventoryObjectPool;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObject;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectChange;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectChangeListener;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.ApplicationObjectNotFoundException;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.ArraySizeMismatchException;
@@ -56,6 +64,15 @@ public class IpamService {
      * default mask for individual IP addresses created in folders
      */
     public static final String DEFAULT_MASK = "255.255.255.255";
+    /**
+     * Max number of overlapping subnets listed in the error shown when a new subnet overlaps existing ones
+     */
+    private static final int MAX_OVERLAPPING_SUBNETS_REPORTED = 10;
+    /**
+     * The classes whose changes are applied to the subnet indexes: the subnets, the IP addresses and the folders
+     */
+    private static final List<String> INDEXED_CLASSES = Arrays.asList(Constants.CLASS_SUBNET_IPV4
+            , Constants.CLASS_SUBNET_IPV6, Constants.CLASS_IP_ADDRESS, Constants.CLASS_GENERICADDRESS);
     /**
      * Reference to the Translation Service
      */
@@ -84,6 +101,32 @@ public class IpamService {
      *  default ipv6
      */
     private InventoryObjectPool ipv6Root;
+    /**
+     * In-memory indexes of the subnets and addresses, one per IPAM root. The 
+     * key is the id of the root pool. Null until they are built
+     */
+    private HashMap<String, SubnetIndex> subnetIndexes;
+    /**
+     * The IPAM root of every indexed folder, subnet and IP address (and of 
+     * the roots themselves). Null until the indexes are built
+     */
+    private HashMap<String, String> indexedRoots;
+    /**
+     * The changes committed while the indexes are being built. Null if they are not being built
+     */
+    private List<BusinessObjectChange> pendingChanges;
+    /**
+     * Guards the indexes, the roots and the pending changes
+     */
+    private final Object indexLock = new Object();
+    /**
+     * Makes sure the indexes are built by one thread at a time
+     */
+    private final Object buildLock = new Object();
+    /**
+     * Applies the changes of the subnets, IP addresses and folders to the indexes
+     */
+    private final BusinessObjectChangeListener subnetChangeListener = this::subnetsChanged;
     
     /**
      * Get the default pool nodes for IPv4 and IPv6 subnets
@@ -158,7 +201,9 @@ public class IpamService {
     {
         if (aem == null)
            throw new InvalidArgumentException("Can't reach the backend. Contact your administrator");
-        return aem.createPoolInPool(parentId, subnetPoolName, subnetPoolDescription, Constants.CLASS_GENERICADDRESS, 3);
+        String folderId = aem.createPoolInPool(parentId, subnetPoolName, subnetPoolDescription, Constants.CLASS_GENERICADDRESS, 3);
+        folderCreated(folderId, subnetPoolName, parentId);
+        return folderId;
     }
     
     /**
@@ -333,7 +378,7 @@ public class IpamService {
             BusinessObjectNotFoundException, ApplicationObjectNotFoundException
     {
         try { // we creeate a subnet insde a folder
-            getOverlapedSubnets(attributes.get(Constants.PROPERTY_NAME)
+            getOverlapedSubnets(parentId, attributes.get(Constants.PROPERTY_NAME)
                 , className
                 , attributes.get(Constants.PROPERTY_NETWORK_IP)
                 , attributes.get(Constants.PROPERTY_BROADCAST_IP));
@@ -364,15 +409,16 @@ public class IpamService {
             BusinessObjectNotFoundException, ApplicationObjectNotFoundException
     {
         for (HashMap<String, String> attributes : subnetsAttributes){
-            getOverlapedSubnets(attributes.get(Constants.PROPERTY_NAME)
+            getOverlapedSubnets(parentId, attributes.get(Constants.PROPERTY_NAME)
                     , className
                     , attributes.get(Constants.PROPERTY_NETWORK_IP)
                     , attributes.get(Constants.PROPERTY_BROADCAST_IP));
         }
         
         List<String> createdIds = new ArrayList<>();
-        for (HashMap<String, String> subnetAttributes : subnetsAttributes)
+        for (HashMap<String, String> subnetAttributes : subnetsAttributes) {
             createdIds.add(bem.createSpecialObject(className, className, parentId, subnetAttributes, null));
+        }
         
         return createdIds;
     }
@@ -381,16 +427,25 @@ public class IpamService {
     
     /**
      * Checks if a a list of subnet or IP addresses names exist in the whole inventory
-     * it will return a list of all the existing subnet found
+     * it will return a list of all the existing subnet found. The IPv6 names are
+     * looked up in all their spellings (see {@link IpamEngine#getIpv6Spellings(java.lang.String)}),
+     * so the objects named before the IPv6 addresses were written in their canonical form are found too
      * @param ipAddresses subnets name should be in cidr format, or ip addresses
      * @param className class of subnets ipv4 or ipv 6
      * @return a list of found subnets
-     * @throws InvalidArgumentException 
+     * @throws InvalidArgumentException
      */
     public List<BusinessObjectLight> existInInventory(List<String> ipAddresses, String className)
             throws InvalidArgumentException
     {
-        return bem.getObjectsByNameAndClassName(ipAddresses, -1, -1, className);
+        List<String> names = new ArrayList<>();
+        for (String ipAddress : ipAddresses) {
+            for (String spelling : IpamEngine.getIpv6Spellings(ipAddress)) {
+                if(!names.contains(spelling))
+                    names.add(spelling);
+            }
+        }
+        return bem.getObjectsByNameAndClassName(names, -1, -1, className);
     }
    
     /**
@@ -788,7 +843,11 @@ public class IpamService {
     }
    
     /**
-     * Checks if the new subnet exists or overlaps with in other created subnets
+     * Checks if the new subnet exists or overlaps with in other created subnets. 
+     * A subnet overlaps if it contains subnets already created, the new subnet 
+     * can be created inside an existing one. Only the subnets of the same IPAM 
+     * root as the parent are taken into account
+     * @param parentId the folder or subnet where the new subnet will be created
      * @param cidr subnet's cidr format
      * @param className if is subnet ip v4 or ip v6
      * @param newNetworkIpAddress
@@ -796,58 +855,28 @@ public class IpamService {
      * @throws InvalidArgumentException if a subnet with the exact cidr already 
      * exists or if it overlaps with others created subnets
      */
-    public void getOverlapedSubnets(String cidr, String className
+    public void getOverlapedSubnets(String parentId, String cidr, String className
             , String newNetworkIpAddress
             , String newBroadcastIpAddress) throws InvalidArgumentException
     {
-        String address = IpamEngine.getPartialSubnetIpAddr(cidr
-                , className.equals(Constants.CLASS_SUBNET_IPV4) ? 4 : (className.equals(Constants.CLASS_SUBNET_IPV6) ? 6 : 0));
-        List<String> overlapedSubnets = new ArrayList<>();
+        SubnetIndex index = getSubnetIndex(parentId, className);
+        if(index == null)
+            return;
         
-        if(address != null){
-            List<BusinessObjectLight> currentSubnets = 
-                    bem.getSuggestedObjectsWithFilter(address
-                        , -1, -1, className);
-
-            String spliter = "\\.";
-            if(className.equals(Constants.CLASS_SUBNET_IPV4)){
-                long newNetworkIpAddr = Long.valueOf(newNetworkIpAddress.replaceAll(spliter, ""));
-                long newBroadcastIpAddr = Long.valueOf(newBroadcastIpAddress.replaceAll(spliter, ""));
-
-                for (BusinessObjectLight subnet : currentSubnets) {
-                    if(subnet.getName().equals(cidr))
-                        throw new InvalidArgumentException(ts.getTranslatedString("module.ipam.actions.add-subnet.error-subnet-exists"));
-
-                    SubnetDetail subnetDetail = new SubnetDetail(subnet.getName());
-                    IpamEngine.ipv4SubnetCalculation(subnetDetail);
-
-                    long networkIpAddr = Long.valueOf(subnetDetail.getNetworkIpAddr().replaceAll(spliter, ""));
-                    long broadcastIpAddr = Long.valueOf(subnetDetail.getBroadCastIpAddr().replaceAll(spliter, ""));
-
-                    if(Integer.valueOf(cidr.split("/")[1]) <= subnetDetail.getMaskBits() 
-                            && (newNetworkIpAddr >= networkIpAddr || newBroadcastIpAddr <= broadcastIpAddr))
-                        overlapedSubnets.add(subnet.getName());
-                }
-            }
-            else if(className.equals(Constants.CLASS_SUBNET_IPV6)){
-                                
-                for (BusinessObjectLight subnet : currentSubnets) {
-                    if(subnet.getName().equals(cidr))
-                        throw new InvalidArgumentException(ts.getTranslatedString("module.ipam.actions.add-subnet.error-subnet-exists"));
-
-                    SubnetDetail subnetDetail = new SubnetDetail(subnet.getName());
-                    IpamEngine.ipv4SubnetCalculation(subnetDetail);
-                    
-                    if(IpamEngine.ipv6SubnetsOvelaps(cidr, subnetDetail.getNetworkIpAddr(), subnetDetail.getBroadCastIpAddr()))
-                        overlapedSubnets.add(subnet.getName());
-                }
-            }
+        SubnetIndex.Entry sameSubnet = index.getSubnet(cidr);
+        if((sameSubnet != null && isStillInInventory(index, className, sameSubnet)) 
+                || !isFreeInInventory(parentId, className, cidr))
+            throw new InvalidArgumentException(ts.getTranslatedString("module.ipam.actions.add-subnet.error-subnet-exists"));
+        
+        List<String> overlapedSubnets = new ArrayList<>();
+        for (SubnetIndex.Entry subnet : index.getContainedEntries(cidr, false, MAX_OVERLAPPING_SUBNETS_REPORTED)) {
+            if(isStillInInventory(index, className, subnet))
+                overlapedSubnets.add(subnet.getName());
         }
         if(!overlapedSubnets.isEmpty())
             throw new InvalidArgumentException(
                     String.format(ts.getTranslatedString("module.ipam.actions.add-subnet.error-subnet-overlaps")
                     , cidr, String.join(" - ", overlapedSubnets)));
-        
     }
     
     /**
@@ -859,24 +888,12 @@ public class IpamService {
             String ipAddr1 = ipAddrA.getName();
             String ipAddr2 = ipAddrB.getName();
 
-            if(IpamEngine.isIpv4Address(ipAddr1) && IpamEngine.isIpv4Address(ipAddr2)){
-                ipAddr1 = IpamEngine.getIpv4Completed(ipAddr1).replaceAll("\\.", "");
-                ipAddr2 = IpamEngine.getIpv4Completed(ipAddr2).replaceAll("\\.", "");
-                return Double.valueOf(ipAddr1).compareTo(Double.valueOf(ipAddr2));
-            }
+            if(IpamEngine.isIpv4Address(ipAddr1) && IpamEngine.isIpv4Address(ipAddr2))
+                return IpAddressArithmetic.ipv4Compare(IpAddressArithmetic.ipv4ToInt(ipAddr1), IpAddressArithmetic.ipv4ToInt(ipAddr2));
             else if(IpamEngine.isIpv6Address(ipAddr1) && IpamEngine.isIpv6Address(ipAddr2)){
-                String[] aIp = IpamEngine.completeIPv6(ipAddr1);
-                String[] bIp = IpamEngine.completeIPv6(ipAddr2);
-                if(Arrays.equals(aIp, bIp))
-                    return 0;
-
-                for(int k=0; k < 8; k++){
-                    int x = Integer.parseInt(aIp[k],16);
-                    int y = Integer.parseInt(bIp[k],16);
-                    int compare = Integer.compare(x, y);
-                    if(compare != 0)
-                        return compare;
-                }
+                long[] aIp = IpAddressArithmetic.ipv6ToLongs(ipAddr1);
+                long[] bIp = IpAddressArithmetic.ipv6ToLongs(ipAddr2);
+                return IpAddressArithmetic.ipv6Compare(aIp[0], aIp[1], bIp[0], bIp[1]);
             }
             return 0;    
         }
@@ -893,27 +910,14 @@ public class IpamService {
 
             if(IpamEngine.isIpv4Address(IpamEngine.getSubnetIpAddr(cidrSubnet1)) 
                     && IpamEngine.isIpv4Address(IpamEngine.getSubnetIpAddr(cidrSubnet2)))
-            {
-               String subnet1 = IpamEngine.getSubnetIpAddr(cidrSubnet1).replaceAll("\\.", "");
-               String subnet2 = IpamEngine.getSubnetIpAddr(cidrSubnet2).replaceAll("\\.", "");
-
-               return Long.compare(Long.valueOf(subnet1), Long.valueOf(subnet2));
-            }
+                return IpAddressArithmetic.ipv4Compare(IpAddressArithmetic.ipv4ToInt(IpamEngine.getSubnetIpAddr(cidrSubnet1))
+                        , IpAddressArithmetic.ipv4ToInt(IpamEngine.getSubnetIpAddr(cidrSubnet2)));
             else if(IpamEngine.isIpv6Address(IpamEngine.getSubnetIpAddr(cidrSubnet1)) 
                     && IpamEngine.isIpv6Address(IpamEngine.getSubnetIpAddr(cidrSubnet2)))
             {
-                String[] aSubnetSplit = IpamEngine.completeIPv6(IpamEngine.getSubnetIpAddr(cidrSubnet1));
-                String[] bSubnetSplit = IpamEngine.completeIPv6(IpamEngine.getSubnetIpAddr(cidrSubnet2));
-                if(Arrays.equals(aSubnetSplit, bSubnetSplit))
-                    return 0;
-
-                for(int k=0; k<8; k++){
-                    int x = Integer.parseInt(aSubnetSplit[k],16);
-                    int y = Integer.parseInt(bSubnetSplit[k],16);
-                    int compare = Integer.compare(x, y);
-                    if(compare != 0)
-                        return compare;
-                }
+                long[] aSubnet = IpAddressArithmetic.ipv6ToLongs(IpamEngine.getSubnetIpAddr(cidrSubnet1));
+                long[] bSubnet = IpAddressArithmetic.ipv6ToLongs(IpamEngine.getSubnetIpAddr(cidrSubnet2));
+                return IpAddressArithmetic.ipv6Compare(aSubnet[0], aSubnet[1], bSubnet[0], bSubnet[1]);
             }
             return 0;
         }
@@ -973,5 +977,356 @@ public class IpamService {
 
     public void createAllIpAddressInSubnet(){
     }
+    
+    // <editor-fold defaultstate="collapsed" desc="Subnet index">
+    /**
+     * Keeps the subnet indexes up to date with the subnets and IP addresses 
+     * created, renamed, moved or deleted anywhere in the application, not only 
+     * through this service
+     */
+    @PostConstruct
+    public void init() {
+        bem.addChangeListener(subnetChangeListener);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        bem.removeChangeListener(subnetChangeListener);
+    }
+    
+    /**
+     * Applies the changes of the subnets, IP addresses and folders to the 
+     * indexes, or keeps them to be applied once the indexes are built
+     */
+    private void subnetsChanged(List<BusinessObjectChange> changes) {
+        synchronized (indexLock) {
+            for (BusinessObjectChange change : changes) {
+                if(!INDEXED_CLASSES.contains(change.getClassName()) 
+                        && !(change.getType() == BusinessObjectChange.Type.DELETED && change.getClassName() == null))
+                    continue;
+                if(pendingChanges != null)
+                    pendingChanges.add(change);
+                if(subnetIndexes != null && !applyChange(change, subnetIndexes, indexedRoots)) {
+                    subnetIndexes = null;
+                    indexedRoots = null;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Builds the in-memory indexes of subnets and IP addresses used to check 
+     * overlaps and to find free blocks and free IP addresses, one per IPAM root. 
+     * The changes committed while the indexes are being built are applied to 
+     * the new indexes before they replace the current ones (if any)
+     * @throws MetadataObjectNotFoundException If can't find the subnet or IP address classes
+     * @throws InvalidArgumentException If the subnets or IP addresses could not be retrieved
+     * @throws ApplicationObjectNotFoundException If a folder could not be found
+     */
+    public void buildSubnetIndexes() throws MetadataObjectNotFoundException, InvalidArgumentException, 
+            ApplicationObjectNotFoundException 
+    {
+        synchronized (buildLock) {
+            synchronized (indexLock) {
+                pendingChanges = new ArrayList<>();
+            }
+            boolean consistent = false;
+            try {
+                long start = System.currentTimeMillis();
+                HashMap<String, SubnetIndex> newIndexes = new HashMap<>();
+                HashMap<String, String> newRoots = new HashMap<>();
+                int subnetCount = 0, addressCount = 0;
+                for (String className : Arrays.asList(Constants.CLASS_SUBNET_IPV4, Constants.CLASS_SUBNET_IPV6)) {
+                    for (InventoryObjectPool root : bem.getRootPools(className, ApplicationEntityManager.POOL_TYPE_MODULE_ROOT, false)) {
+                        SubnetIndex index = new SubnetIndex(Constants.CLASS_SUBNET_IPV4.equals(className) 
+                                ? IpAddressArithmetic.IPV4_BITS : IpAddressArithmetic.IPV6_BITS);
+                        indexFolder(className, root.getId(), root.getId(), index, newRoots);
+                        newIndexes.put(root.getId(), index);
+                        subnetCount += index.getSubnetCount();
+                        addressCount += index.getAddressCount();
+                    }
+                }
+                
+                synchronized (indexLock) {
+                    consistent = true;
+                    for (BusinessObjectChange change : pendingChanges)
+                        consistent &= applyChange(change, newIndexes, newRoots);
+                    subnetIndexes = consistent ? newIndexes : null;
+                    indexedRoots = consistent ? newRoots : null;
+                }
+                Logger.getLogger(IpamService.class.getName()).log(Level.INFO, 
+                        String.format("[KUWAIBA] [%s] IPAM subnet index built for %s roots with %s subnets and %s IP addresses in %s ms", //NOI18N
+                                Calendar.getInstance().getTime(), newIndexes.size(), subnetCount, addressCount, System.currentTimeMillis() - start));
+            } finally {
+                synchronized (indexLock) {
+                    pendingChanges = null;
+                }
+            }
+            if (!consistent)
+                Logger.getLogger(IpamService.class.getName()).log(Level.WARNING, 
+                        String.format("[KUWAIBA] [%s] The IPAM subnet index changed while it was being built, it will be built again the next time it is used", //NOI18N
+                                Calendar.getInstance().getTime()));
+        }
+    }
+    
+    /**
+     * Discards the current indexes, they will be built again the next time they are needed
+     */
+    public void invalidateSubnetIndexes() {
+        synchronized (indexLock) {
+            subnetIndexes = null;
+            indexedRoots = null;
+        }
+    }
+    
+    /**
+     * Gets the smallest subnet that contains a given subnet or IP address, 
+     * among the subnets of the same IPAM root as a given folder or subnet
+     * @param parentId the id of a folder or subnet of the IPAM root to look into
+     * @param className if is subnet ip v4 or ip v6
+     * @param cidr a subnet in cidr format or an IP address
+     * @return the subnet or null if the given subnet or IP address is not inside any other subnet
+     * @throws InvalidArgumentException if the subnet or IP address has not a valid format
+     */
+    public BusinessObjectLight getContainingSubnet(String parentId, String className, String cidr) throws InvalidArgumentException {
+        SubnetIndex index = getSubnetIndex(parentId, className);
+        if(index == null)
+            return null;
+        List<SubnetIndex.Entry> containingSubnets = index.getContainingSubnets(cidr);
+        for (int i = containingSubnets.size() - 1; i >= 0; i--) { //From the smallest to the largest
+            if(isStillInInventory(index, className, containingSubnets.get(i)))
+                return new BusinessObjectLight(className, containingSubnets.get(i).getId(), containingSubnets.get(i).getName());
+        }
+        return null;
+    }
+    
+    /**
+     * Finds the first subnet of a given size inside a subnet that does not 
+     * overlap the subnets and IP addresses already created inside it
+     * @param subnetId the id of the subnet to search into
+     * @param className if is subnet ip v4 or ip v6
+     * @param cidr the subnet to search into, in cidr format
+     * @param maskBits the mask bits of the subnet to be found
+     * @return the free subnet in cidr format or null if there is no room left 
+     * for a subnet of that size or the subnet index is not available
+     * @throws InvalidArgumentException if the subnet has not a valid format or if the mask bits are out of range
+     */
+    public String getFirstFreeSubnet(String subnetId, String className, String cidr, int maskBits) throws InvalidArgumentException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            SubnetIndex index = getSubnetIndex(subnetId, className);
+            if(index == null)
+                return null;
+            String freeSubnet = index.getFirstFreeBlock(cidr, maskBits, null);
+            if(freeSubnet == null || isFreeInInventory(subnetId, className, freeSubnet))
+                return freeSubnet;
+        }
+        return null;
+    }
+    
+    /**
+     * Finds the next IP address of a subnet that has not been created yet, 
+     * skipping the network and broadcast addresses and the addresses of the 
+     * subnets inside it
+     * @param subnetId the id of the subnet
+     * @param className if is subnet ip v4 or ip v6
+     * @param cidr the subnet in cidr format
+     * @param after the IP address must be greater than this one, null to start at the beginning of the subnet
+     * @return the free IP address or null if the subnet is full or the subnet index is not available
+     * @throws InvalidArgumentException if the subnet or the IP address has not a valid format
+     */
+    public String getNextFreeIpAddress(String subnetId, String className, String cidr, String after) throws InvalidArgumentException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            SubnetIndex index = getSubnetIndex(subnetId, className);
+            if(index == null)
+                return null;
+            String freeIpAddress = index.getNextFreeAddress(cidr, after);
+            if(freeIpAddress == null || isFreeInInventory(subnetId, Constants.CLASS_IP_ADDRESS, freeIpAddress))
+                return freeIpAddress;
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the index of the IPAM root a given folder or subnet belongs to, 
+     * building the indexes if necessary
+     * @param parentId the id of a folder or subnet, or of the root itself
+     * @param className the subnet class of the root
+     * @return the index or null if the class is not a subnet class, if the 
+     * folder or subnet is not inside an IPAM root or if the indexes could not be built
+     */
+    private SubnetIndex getSubnetIndex(String parentId, String className) {
+        if(!Constants.CLASS_SUBNET_IPV4.equals(className) && !Constants.CLASS_SUBNET_IPV6.equals(className))
+            return null;
+        
+        for (int attempt = 0; attempt < 2; attempt++) {
+            synchronized (indexLock) {
+                if(subnetIndexes != null) {
+                    String root = indexedRoots.get(parentId);
+                    if(root != null)
+                        return subnetIndexes.get(root);
+                    if(attempt > 0)
+                        return null;
+                    //The parent was created without being reported (e.g. a folder created outside this module)
+                    subnetIndexes = null;
+                    indexedRoots = null;
+                }
+            }
+            try {
+                buildSubnetIndexes();
+            } catch (MetadataObjectNotFoundException | InvalidArgumentException | ApplicationObjectNotFoundException ex) {
+                Logger.getLogger(IpamService.class.getName()).log(Level.SEVERE, 
+                        String.format("[KUWAIBA] [%s] The IPAM subnet index could not be built: %s", //NOI18N
+                                Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+                return null;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Checks if an entry of the index still exists in the inventory. The 
+     * entries that no longer exist are removed from the index
+     */
+    private boolean isStillInInventory(SubnetIndex index, String className, SubnetIndex.Entry entry) {
+        try {
+            bem.getObjectLight(entry.isAddress() ? Constants.CLASS_IP_ADDRESS : className, entry.getId());
+            return true;
+        } catch (BusinessObjectNotFoundException ex) {
+            index.remove(entry.getId());
+            return false;
+        } catch (MetadataObjectNotFoundException | InvalidArgumentException ex) {
+            return true;
+        }
+    }
+    
+    /**
+     * Checks that a subnet or IP address the index reports as free has not been 
+     * created in the same IPAM root as a given folder or subnet. If it has, the 
+     * index missed it, so it is discarded to be built again
+     * @return true if the subnet or IP address is free
+     */
+    private boolean isFreeInInventory(String parentId, String className, String name) throws InvalidArgumentException {
+        List<BusinessObjectLight> existing = existInInventory(new ArrayList<>(Arrays.asList(name)), className);
+        synchronized (indexLock) {
+            if(indexedRoots == null)
+                return existing.isEmpty();
+            String root = indexedRoots.get(parentId);
+            for (BusinessObjectLight object : existing) {
+                String objectRoot = indexedRoots.get(object.getId());
+                if(objectRoot == null || objectRoot.equals(root)) {
+                    subnetIndexes = null;
+                    indexedRoots = null;
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Adds the subnets and IP addresses of a folder to an index, recursively
+     */
+    private void indexFolder(String className, String rootId, String folderId, SubnetIndex index, HashMap<String, String> roots) 
+            throws ApplicationObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException 
+    {
+        roots.put(folderId, rootId);
+        List<BusinessObjectLight> items = new ArrayList<>();
+        bem.streamPoolItems(folderId, null, -1, items::add);
+        for (BusinessObjectLight item : items) {
+            roots.put(item.getId(), rootId);
+            if(item.getClassName().equals(Constants.CLASS_IP_ADDRESS))
+                indexIpAddress(index, item.getId(), item.getName());
+            else if(item.getClassName().equals(className))
+                indexSubnet(className, rootId, item, index, roots);
+        }
+        for (InventoryObjectPool folder : bem.getPoolsInPool(folderId, Constants.CLASS_GENERICADDRESS))
+            indexFolder(className, rootId, folder.getId(), index, roots);
+    }
+    
+    /**
+     * Adds a subnet and the subnets and IP addresses inside it to an index, recursively
+     */
+    private void indexSubnet(String className, String rootId, BusinessObjectLight subnet, SubnetIndex index, HashMap<String, String> roots) 
+            throws MetadataObjectNotFoundException, InvalidArgumentException 
+    {
+        indexSubnet(index, subnet.getId(), subnet.getName());
+        List<BusinessObjectLight> children;
+        try {
+            children = bem.getObjectSpecialChildrenWithFilters(className, subnet.getId()
+                    , Arrays.asList(className, Constants.CLASS_IP_ADDRESS), -1, -1);
+        } catch (BusinessObjectNotFoundException ex) {
+            return; //Deleted in the meantime, the deletion will be applied once the index is built
+        }
+        for (BusinessObjectLight child : children) {
+            roots.put(child.getId(), rootId);
+            if(child.getClassName().equals(Constants.CLASS_IP_ADDRESS))
+                indexIpAddress(index, child.getId(), child.getName());
+            else
+                indexSubnet(className, rootId, child, index, roots);
+        }
+    }
+    
+    /**
+     * Applies a change of a subnet, an IP address or a folder to the indexes
+     * @return false if the change could not be applied because the parent is 
+     * not known or the object moved to another root, so the indexes must be built again
+     */
+    private boolean applyChange(BusinessObjectChange change, HashMap<String, SubnetIndex> indexes, HashMap<String, String> roots) {
+        String currentRoot = roots.get(change.getId());
+        if(change.getType() == BusinessObjectChange.Type.DELETED) {
+            roots.remove(change.getId());
+            if(currentRoot != null && indexes.containsKey(currentRoot))
+                indexes.get(currentRoot).remove(change.getId());
+            return true;
+        }
+        if(change.getType() == BusinessObjectChange.Type.UPDATED && !change.isMoved() 
+                && !change.getChangedAttributes().contains(Constants.PROPERTY_NAME))
+            return true;
+        
+        String root = change.getParentId() == null ? currentRoot : roots.get(change.getParentId());
+        if(root == null) //Not inside an IPAM root, or inside a folder that has not been reported
+            return change.getType() == BusinessObjectChange.Type.UPDATED && currentRoot == null && !change.isMoved();
+        if(change.isMoved() && !root.equals(currentRoot))
+            return false; //Whatever is inside the object moves along with it
+        
+        roots.put(change.getId(), root);
+        SubnetIndex index = indexes.get(root);
+        if(index == null || Constants.CLASS_GENERICADDRESS.equals(change.getClassName()))
+            return true;
+        if(Constants.CLASS_IP_ADDRESS.equals(change.getClassName()))
+            indexIpAddress(index, change.getId(), change.getName());
+        else
+            indexSubnet(index, change.getId(), change.getName());
+        return true;
+    }
+    
+    /**
+     * Reports a folder created by this module, so the subnets created in it can be indexed
+     */
+    private void folderCreated(String folderId, String folderName, String parentId) {
+        subnetChangeListener.objectsChanged(Arrays.asList(new BusinessObjectChange(BusinessObjectChange.Type.CREATED
+                , folderId, Constants.CLASS_GENERICADDRESS, folderName, parentId, null)));
+    }
+    
+    private void indexSubnet(SubnetIndex index, String subnetId, String cidr) {
+        try {
+            index.putSubnet(subnetId, cidr);
+        } catch (InvalidArgumentException ex) {
+            Logger.getLogger(IpamService.class.getName()).log(Level.WARNING, 
+                    String.format("[KUWAIBA] [%s] Subnet %s (%s) can not be indexed: %s", //NOI18N
+                            Calendar.getInstance().getTime(), cidr, subnetId, ex.getLocalizedMessage()));
+        }
+    }
+    
+    private void indexIpAddress(SubnetIndex index, String ipAddressId, String ipAddress) {
+        try {
+            index.putAddress(ipAddressId, ipAddress);
+        } catch (InvalidArgumentException ex) {
+            Logger.getLogger(IpamService.class.getName()).log(Level.WARNING, 
+                    String.format("[KUWAIBA] [%s] IP address %s (%s) can not be indexed: %s", //NOI18N
+                            Calendar.getInstance().getTime(), ipAddress, ipAddressId, ex.getLocalizedMessage()));
+        }
+    }
+    // </editor-fold>
 
 }
@@ -29,7 +29,9 @@ import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.textfield.TextField;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.neotropic.kuwaiba.core.apis.integration.modules.ModuleActionException;
 import org.neotropic.kuwaiba.core.apis.integration.modules.ModuleActionParameter;
 import org.neotropic.kuwaiba.core.apis.integration.modules.ModuleActionParameterSet;
@@ -88,7 +90,7 @@ public class AddIpAddrToSubnetVisualAction extends AbstractVisualInventoryAction
     /**
      * IP Addreses created in the subnet
      */    
-    private List<BusinessObjectLight> ipAddressesCreatedInSubnet;
+    private Set<String> ipAddressesCreatedInSubnet;
     /**
      *
      */    
@@ -112,7 +114,9 @@ public class AddIpAddrToSubnetVisualAction extends AbstractVisualInventoryAction
         SubnetDetail subnetDetail = new SubnetDetail(subnet.getName());
         
         try {
-            ipAddressesCreatedInSubnet = ipamService.getSubnetIpAddrCreated(subnet.getId(), subnet.getClassName(), -1, -1);
+            ipAddressesCreatedInSubnet = new HashSet<>();
+            for (BusinessObjectLight createdIpAddr : ipamService.getSubnetIpAddrCreated(subnet.getId(), subnet.getClassName(), -1, -1))
+                ipAddressesCreatedInSubnet.add(createdIpAddr.getName());
             if(subnet.getClassName().equals(Constants.CLASS_SUBNET_IPV4))
                 IpamEngine.ipv4SubnetCalculation(subnetDetail);
             if(subnet.getClassName().equals(Constants.CLASS_SUBNET_IPV6))
@@ -138,7 +142,7 @@ public class AddIpAddrToSubnetVisualAction extends AbstractVisualInventoryAction
         Checkbox chkCreateAllIpAddress = new Checkbox(ts.getTranslatedString("module.ipam.actions.add-ip-addr.create-all"));
         chkCreateAllIpAddress.setValue(false);
         
-        calculateFreeIpAddress(subnetDetail);
+        calculateFreeIpAddress(subnet.getId(), subnet.getClassName(), subnetDetail);
                 
         TextField txtDesc = new TextField(ts.getTranslatedString("module.general.labels.description"));
         txtDesc.setWidthFull();
@@ -269,7 +273,17 @@ public class AddIpAddrToSubnetVisualAction extends AbstractVisualInventoryAction
         return false;
     }
 
-    private void calculateFreeIpAddress(SubnetDetail subnetDetail){
+    private void calculateFreeIpAddress(String subnetId, String subnetClassName, SubnetDetail subnetDetail){
+        try {//the next free IP address is suggested when the subnet index is available
+            String nextFreeIpAddr = ipamService.getNextFreeIpAddress(subnetId, subnetClassName, subnetDetail.getCidr(), null);
+            if(nextFreeIpAddr != null){
+                txtIpAddr.setPlaceholder(String.format("e.g. %s", nextFreeIpAddr));
+                return;
+            }
+        } catch (InvalidArgumentException ex) {
+            //the placeholder is built from the subnet segments below
+        }
+        
         if(subnetDetail.getIpAddrV() == 4){//first segment
             if(subnetDetail.getMaskBits() <= 8)
                 txtIpAddr.setPlaceholder(String.format("e.g. %s."
@@ -302,8 +316,8 @@ public class AddIpAddrToSubnetVisualAction extends AbstractVisualInventoryAction
      * Checks if a given IP Address is already created
      */
     private boolean alreadyExists(String ipAddr){
-        for (BusinessObjectLight createdIpAddr : ipAddressesCreatedInSubnet) {
-            if(createdIpAddr.getName().equals(ipAddr))
+        for (String spelling : IpamEngine.getIpv6Spellings(ipAddr)) {
+            if(ipAddressesCreatedInSubnet.contains(spelling))
                 return true;
         }
         return false;
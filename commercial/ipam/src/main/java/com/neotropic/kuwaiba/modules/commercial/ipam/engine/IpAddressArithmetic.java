@@ -0,0 +1,391 @@
+/*
+ * Copyright 2010-2023 Neotropic SAS <contact@neotropic.co>
+ *
+ * Licensed under the EPL License, Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.neotropic.kuwaiba.modules.commercial.ipam.engine;
+
+/**
+ * Address arithmetic on primitive values. An IPv4 address is an <code>int</code> and an IPv6 address is a pair of
+ * <code>long</code>s (the 64 most significant bits and the 64 least significant bits). Apart from the parsing
+ * and formatting methods, no operation creates objects, so they can be used in tight loops (splitting subnets,
+ * creating all the addresses of a subnet, etc). All the comparisons are unsigned.
+ * @author agent {@literal <agent@local>}
+ */
+public final class IpAddressArithmetic {
+    /**
+     * Number of bits of an IPv4 address.
+     */
+    public static final int IPV4_BITS = 32;
+    /**
+     * Number of bits of an IPv6 address.
+     */
+    public static final int IPV6_BITS = 128;
+    /**
+     * Digits used to format the IPv6 groups.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); //NOI18N
+
+    private IpAddressArithmetic() { }
+
+    // <editor-fold defaultstate="collapsed" desc="IPv4">
+    /**
+     * Parses an IPv4 address in dotted decimal notation.
+     * @param ipAddress The address, e.g. 192.168.0.1
+     * @return The address as an int
+     * @throws NumberFormatException If the address is not a valid IPv4 address
+     */
+    public static int ipv4ToInt(String ipAddress) {
+        int address = 0;
+        int octet = 0;
+        int digits = 0;
+        int octets = 0;
+        for (int i = 0; i < ipAddress.length(); i++) {
+            char c = ipAddress.charAt(i);
+            if (c == '.') {
+                if (digits == 0 || ++octets > 3)
+                    throw new NumberFormatException(String.format("Invalid IPv4 address %s", ipAddress)); //NOI18N
+                address = (address << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255)
+                    throw new NumberFormatException(String.format("Invalid IPv4 address %s", ipAddress)); //NOI18N
+            } else
+                throw new NumberFormatException(String.format("Invalid IPv4 address %s", ipAddress)); //NOI18N
+        }
+        if (digits == 0 || octets != 3)
+            throw new NumberFormatException(String.format("Invalid IPv4 address %s", ipAddress)); //NOI18N
+        return (address << 8) | octet;
+    }
+
+    /**
+     * Formats an IPv4 address in dotted decimal notation.
+     * @param address The address
+     * @return The address, e.g. 192.168.0.1
+     */
+    public static String ipv4ToString(int address) {
+        return new StringBuilder(15)
+                .append(address >>> 24).append('.')
+                .append((address >>> 16) & 0xff).append('.')
+                .append((address >>> 8) & 0xff).append('.')
+                .append(address & 0xff).toString();
+    }
+
+    /**
+     * Gets one of the octets of an IPv4 address.
+     * @param address The address
+     * @param octet The octet, from 0 (the most significant) to 3
+     * @return The value of the octet, from 0 to 255
+     */
+    public static int ipv4Octet(int address, int octet) {
+        return (address >>> (24 - 8 * octet)) & 0xff;
+    }
+
+    /**
+     * Creates an IPv4 mask.
+     * @param maskBits The number of bits of the mask, from 0 to 32
+     * @return The mask, e.g. 0xffffff00 for 24 bits
+     */
+    public static int ipv4Mask(int maskBits) {
+        return maskBits <= 0 ? 0 : -1 << (IPV4_BITS - Math.min(maskBits, IPV4_BITS));
+    }
+
+    /**
+     * Calculates the network address of the subnet an address belongs to.
+     * @param address Any address of the subnet
+     * @param maskBits The mask bits of the subnet
+     * @return The network address (all the host bits set to 0)
+     */
+    public static int ipv4Network(int address, int maskBits) {
+        return address & ipv4Mask(maskBits);
+    }
+
+    /**
+     * Calculates the broadcast address of the subnet an address belongs to.
+     * @param address Any address of the subnet
+     * @param maskBits The mask bits of the subnet
+     * @return The broadcast address (all the host bits set to 1)
+     */
+    public static int ipv4Broadcast(int address, int maskBits) {
+        return address | ~ipv4Mask(maskBits);
+    }
+
+    /**
+     * Number of addresses of a subnet, including the network and broadcast addresses.
+     * @param maskBits The mask bits of the subnet
+     * @return The number of addresses
+     */
+    public static long ipv4BlockSize(int maskBits) {
+        return 1L << (IPV4_BITS - maskBits);
+    }
+
+    /**
+     * Checks if an address belongs to a subnet.
+     * @param network Any address of the subnet, usually its network address
+     * @param maskBits The mask bits of the subnet
+     * @param address The address to be checked
+     * @return If the address and the subnet share the first maskBits bits
+     */
+    public static boolean ipv4Contains(int network, int maskBits, int address) {
+        return ((network ^ address) & ipv4Mask(maskBits)) == 0;
+    }
+
+    /**
+     * Checks if two subnets have any address in common. Since subnets are aligned blocks, that only
+     * happens if one of them contains the other.
+     * @param networkA Network address of the first subnet
+     * @param maskBitsA Mask bits of the first subnet
+     * @param networkB Network address of the second subnet
+     * @param maskBitsB Mask bits of the second subnet
+     * @return If the subnets overlap
+     */
+    public static boolean ipv4Overlaps(int networkA, int maskBitsA, int networkB, int maskBitsB) {
+        return ipv4Contains(networkA, Math.min(maskBitsA, maskBitsB), networkB);
+    }
+
+    /**
+     * Calculates the address after a given one.
+     * @param address The address
+     * @return The next address. 0.0.0.0 after 255.255.255.255
+     */
+    public static int ipv4Next(int address) {
+        return address + 1;
+    }
+
+    /**
+     * Compares two addresses as unsigned numbers.
+     * @param addressA The first address
+     * @param addressB The second address
+     * @return A negative number, 0 or a positive number if the first address is lower, equal or greater than the second one
+     */
+    public static int ipv4Compare(int addressA, int addressB) {
+        return Integer.compareUnsigned(addressA, addressB);
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="IPv6">
+    /**
+     * Parses an IPv6 address. The groups can be written with one to four digits and a sequence of groups
+     * set to zero can be compressed using <code>::</code>. Addresses starting or ending with a single <code>:</code>
+     * (as the former versions of {@link IpamEngine#compressIpv6(java.lang.String)} used to write the groups set to zero
+     * at the beginning or at the end of the address) are accepted as well.
+     * @param ipAddress The address, e.g. 2001:db8::1
+     * @return An array with two elements, the high and low 64 bits of the address
+     * @throws NumberFormatException If the address is not a valid IPv6 address
+     */
+    public static long[] ipv6ToLongs(String ipAddress) {
+        String address = ipAddress;
+        if (address.equals(":")) //NOI18N
+            address = "::"; //NOI18N
+        else if (address.length() > 1) {
+            if (address.charAt(0) == ':' && address.charAt(1) != ':')
+                address = "0" + address; //NOI18N
+            if (address.charAt(address.length() - 1) == ':' && address.charAt(address.length() - 2) != ':')
+                address = address + "0"; //NOI18N
+        }
+
+        int[] groups = new int[8];
+        int group = 0;
+        int compressedAt = -1;
+        int value = 0;
+        int digits = 0;
+        int length = address.length();
+        for (int i = 0; i < length; i++) {
+            char c = address.charAt(i);
+            if (c == ':') {
+                if (i + 1 < length && address.charAt(i + 1) == ':') { // "::"
+                    if (compressedAt != -1)
+                        throw new NumberFormatException(String.format("Invalid IPv6 address %s", ipAddress)); //NOI18N
+                    if (digits > 0) {
+                        if (group > 7)
+                            throw new NumberFormatException(String.format("Invalid IPv6 address %s", ipAddress)); //NOI18N
+                        groups[group++] = value;
+                    }
+                    compressedAt = group;
+                    i++;
+                } else {
+                    if (digits == 0 || group > 6)
+                        throw new NumberFormatException(String.format("Invalid IPv6 address %s", ipAddress)); //NOI18N
+                    groups[group++] = value;
+                }
+                value = 0;
+                digits = 0;
+            } else {
+                int digit = Character.digit(c, 16);
+                if (digit == -1 || ++digits > 4)
+                    throw new NumberFormatException(String.format("Invalid IPv6 address %s", ipAddress)); //NOI18N
+                value = (value << 4) | digit;
+            }
+        }
+        if (digits > 0) {
+            if (group > 7)
+                throw new NumberFormatException(String.format("Invalid IPv6 address %s", ipAddress)); //NOI18N
+            groups[group++] = value;
+        } else if (compressedAt != group) // The address can only end with ':' if it ends with "::"
+            throw new NumberFormatException(String.format("Invalid IPv6 address %s", ipAddress)); //NOI18N
+
+        if (compressedAt == -1) {
+            if (group != 8)
+                throw new NumberFormatException(String.format("Invalid IPv6 address %s", ipAddress)); //NOI18N
+        } else { // Move the groups after the "::" to the end
+            int trailing = group - compressedAt;
+            if (group == 8)
+                throw new NumberFormatException(String.format("Invalid IPv6 address %s", ipAddress)); //NOI18N
+            System.arraycopy(groups, compressedAt, groups, 8 - trailing, trailing);
+            for (int i = compressedAt; i < 8 - trailing; i++)
+                groups[i] = 0;
+        }
+
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 4; i++) {
+            high = (high << 16) | groups[i];
+            low = (low << 16) | groups[i + 4];
+        }
+        return new long[] { high, low };
+    }
+
+    /**
+     * Formats an IPv6 address with all its eight groups and four digits per group, e.g.
+     * 2001:0db8:0000:0000:0000:0000:0000:0001.
+     * @param high The 64 most significant bits of the address
+     * @param low The 64 least significant bits of the address
+     * @return The address
+     */
+    public static String ipv6ToFullString(long high, long low) {
+        char[] chars = new char[39];
+        int pos = 0;
+        for (int group = 0; group < 8; group++) {
+            int value = ipv6Group(high, low, group);
+            if (group > 0)
+                chars[pos++] = ':';
+            chars[pos++] = HEX_DIGITS[(value >>> 12) & 0xf];
+            chars[pos++] = HEX_DIGITS[(value >>> 8) & 0xf];
+            chars[pos++] = HEX_DIGITS[(value >>> 4) & 0xf];
+            chars[pos++] = HEX_DIGITS[value & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Formats an IPv6 address in its canonical form (RFC 5952): the leading zeros of every group are removed and the
+     * longest sequence of two or more groups set to zero is replaced by <code>::</code>, e.g. 2001:db8::1.
+     * @param high The 64 most significant bits of the address
+     * @param low The 64 least significant bits of the address
+     * @return The address
+     */
+    public static String ipv6ToString(long high, long low) {
+        int longestRun = -1;
+        int longestRunLength = 1;
+        int run = -1;
+        for (int group = 0; group <= 8; group++) {
+            if (group < 8 && ipv6Group(high, low, group) == 0) {
+                if (run == -1)
+                    run = group;
+            } else if (run != -1) {
+                if (group - run > longestRunLength) {
+                    longestRun = run;
+                    longestRunLength = group - run;
+                }
+                run = -1;
+            }
+        }
+
+        StringBuilder res = new StringBuilder(39);
+        for (int group = 0; group < 8; group++) {
+            if (group == longestRun) {
+                res.append("::"); //NOI18N
+                group += longestRunLength - 1;
+            } else {
+                if (res.length() > 0 && res.charAt(res.length() - 1) != ':')
+                    res.append(':');
+                res.append(Integer.toHexString(ipv6Group(high, low, group)));
+            }
+        }
+        return res.toString();
+    }
+
+    /**
+     * Gets one of the groups of an IPv6 address.
+     * @param high The 64 most significant bits of the address
+     * @param low The 64 least significant bits of the address
+     * @param group The group, from 0 (the most significant) to 7
+     * @return The value of the group, from 0 to 0xffff
+     */
+    public static int ipv6Group(long high, long low, int group) {
+        long half = group < 4 ? high : low;
+        return (int) ((half >>> (48 - 16 * (group % 4))) & 0xffff);
+    }
+
+    /**
+     * The 64 most significant bits of an IPv6 mask.
+     * @param maskBits The number of bits of the mask, from 0 to 128
+     * @return The high part of the mask
+     */
+    public static long ipv6MaskHigh(int maskBits) {
+        if (maskBits <= 0)
+            return 0;
+        return maskBits >= 64 ? -1L : -1L << (64 - maskBits);
+    }
+
+    /**
+     * The 64 least significant bits of an IPv6 mask.
+     * @param maskBits The number of bits of the mask, from 0 to 128
+     * @return The low part of the mask
+     */
+    public static long ipv6MaskLow(int maskBits) {
+        if (maskBits <= 64)
+            return 0;
+        return maskBits >= IPV6_BITS ? -1L : -1L << (IPV6_BITS - maskBits);
+    }
+
+    /**
+     * Checks if an address belongs to a subnet.
+     * @param networkHigh The high part of any address of the subnet, usually its network address
+     * @param networkLow The low part of any address of the subnet, usually its network address
+     * @param maskBits The mask bits of the subnet
+     * @param high The high part of the address to be checked
+     * @param low The low part of the address to be checked
+     * @return If the address and the subnet share the first maskBits bits
+     */
+    public static boolean ipv6Contains(long networkHigh, long networkLow, int maskBits, long high, long low) {
+        return ((networkHigh ^ high) & ipv6MaskHigh(maskBits)) == 0
+                && ((networkLow ^ low) & ipv6MaskLow(maskBits)) == 0;
+    }
+
+    /**
+     * Checks if two subnets have any address in common.
+     * @param highA The high part of the network address of the first subnet
+     * @param lowA The low part of the network address of the first subnet
+     * @param maskBitsA Mask bits of the first subnet
+     * @param highB The high part of the network address of the second subnet
+     * @param lowB The low part of the network address of the second subnet
+     * @param maskBitsB Mask bits of the second subnet
+     * @return If the subnets overlap
+     */
+    public static boolean ipv6Overlaps(long highA, long lowA, int maskBitsA, long highB, long lowB, int maskBitsB) {
+        return ipv6Contains(highA, lowA, Math.min(maskBitsA, maskBitsB), highB, lowB);
+    }
+
+    /**
+     * Compares two addresses as unsigned numbers.
+     * @return A negative number, 0 or a positive number if the first address is lower, equal or greater than the second one
+     */
+    public static int ipv6Compare(long highA, long lowA, long highB, long lowB) {
+        int res = Long.compareUnsigned(highA, highB);
+        return res != 0 ? res : Long.compareUnsigned(lowA, lowB);
+    }
+    // </editor-fold>
+}
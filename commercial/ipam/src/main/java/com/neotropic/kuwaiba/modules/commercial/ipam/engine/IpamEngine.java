@@ -16,16 +16,50 @@
 package com.neotropic.kuwaiba.modules.commercial.ipam.engine;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
 
 /**
- * Make all the validations an calculate the possible subnets for IPv4 and IPv6 Addresses
+ * Make all the validations an calculate the possible subnets for IPv4 and IPv6 Addresses.
+ * The calculations are delegated to {@link IpAddressArithmetic}, this class only 
+ * parses and formats the addresses
  * @author Adrian Martinez Molina {@literal <adrian.martinez@kuwaiba.org>}
  */
 public class IpamEngine {
+    /**
+     * Max number of bits an IPv6 subnet can be split into at once (2^16 subnets)
+     */
+    private static final int IPV6_MAX_SPLIT_BITS = 16;
+    private static final Pattern IPV4_PATTERN = Pattern.compile("^(([0-9]|[1-9][0-9]|1[0-9][0-9]|2[0-4][0-9]|25[0-5])(\\.(?!$)|$)){4}$");
+    private static final Pattern IPV6_PATTERN = Pattern.compile("^s*((([0-9A-Fa-f]{1,4}:){7}([0-9A-Fa-f]{1,4}|:))|(([0-9A-Fa-f]{1,4}:){6}(:[0-9A-Fa-f]{1,4}|((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3})|:))|(([0-9A-Fa-f]{1,4}:){5}(((:[0-9A-Fa-f]{1,4}){1,2})|:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3})|:))|(([0-9A-Fa-f]{1,4}:){4}(((:[0-9A-Fa-f]{1,4}){1,3})|((:[0-9A-Fa-f]{1,4})?:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){3}(((:[0-9A-Fa-f]{1,4}){1,4})|((:[0-9A-Fa-f]{1,4}){0,2}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){2}(((:[0-9A-Fa-f]{1,4}){1,5})|((:[0-9A-Fa-f]{1,4}){0,3}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){1}(((:[0-9A-Fa-f]{1,4}){1,6})|((:[0-9A-Fa-f]{1,4}){0,4}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(:(((:[0-9A-Fa-f]{1,4}){1,7})|((:[0-9A-Fa-f]{1,4}){0,5}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:)))(%.+)?s*");
+    private static final Pattern IPV4_CIDR_PATTERN = Pattern.compile("^(([0-9]|[1-9][0-9]|1[0-9]{2}|2[0-4][0-9]|25[0-5])\\.){3}([0-9]|[1-9][0-9]|1[0-9]{2}|2[0-4][0-9]|25[0-5])(\\/([0-9]|[1-2][0-9]|3[0-2]))$");
+    private static final Pattern IPV6_CIDR_PATTERN = Pattern.compile("^s*((([0-9A-Fa-f]{1,4}:){7}([0-9A-Fa-f]{1,4}|:))|(([0-9A-Fa-f]{1,4}:){6}(:[0-9A-Fa-f]{1,4}|((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3})|:))|(([0-9A-Fa-f]{1,4}:){5}(((:[0-9A-Fa-f]{1,4}){1,2})|:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3})|:))|(([0-9A-Fa-f]{1,4}:){4}(((:[0-9A-Fa-f]{1,4}){1,3})|((:[0-9A-Fa-f]{1,4})?:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){3}(((:[0-9A-Fa-f]{1,4}){1,4})|((:[0-9A-Fa-f]{1,4}){0,2}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){2}(((:[0-9A-Fa-f]{1,4}){1,5})|((:[0-9A-Fa-f]{1,4}){0,3}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){1}(((:[0-9A-Fa-f]{1,4}){1,6})|((:[0-9A-Fa-f]{1,4}){0,4}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(:(((:[0-9A-Fa-f]{1,4}){1,7})|((:[0-9A-Fa-f]{1,4}){0,5}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:)))(%.+)?s*(\\/([0-9]|[1-9][0-9]|1[0-1][0-9]|12[0-8]))?$");
+    private static final Pattern HOSTNAME_PATTERN = Pattern.compile("^(([a-zA-Z]|[a-zA-Z][a-zA-Z0-9-]*[a-zA-Z0-9]).)*([A-Za-z]|[A-Za-z][A-Za-z0-9-]*[A-Za-z0-9])$");
+    /**
+     * The IPv4 masks in binary, the index is the number of mask bits. They are 
+     * immutable, so they can be shared by all the subnets with the same mask
+     */
+    private static final List<List<List<String>>> IPV4_BINARY_MASKS = new ArrayList<>(33);
+    /**
+     * The IPv4 masks in decimal, the index is the number of mask bits
+     */
+    private static final List<List<String>> IPV4_MASKS = new ArrayList<>(33);
+    
+    static {
+        for (int maskBits = 0; maskBits <= 32; maskBits++) {
+            int mask = IpAddressArithmetic.ipv4Mask(maskBits);
+            List<List<String>> binaryMask = new ArrayList<>(4);
+            List<String> decimalMask = new ArrayList<>(4);
+            for (int i = 0; i < 4; i++) {
+                binaryMask.add(Collections.unmodifiableList(toBits(IpAddressArithmetic.ipv4Octet(mask, i))));
+                decimalMask.add(Integer.toString(IpAddressArithmetic.ipv4Octet(mask, i)));
+            }
+            IPV4_BINARY_MASKS.add(Collections.unmodifiableList(binaryMask));
+            IPV4_MASKS.add(Collections.unmodifiableList(decimalMask));
+        }
+    }
 
     public static void ipv4SubnetCalculation(SubnetDetail subnetDetail) throws InvalidArgumentException{
         if(!isCIDRFormat(subnetDetail.getCidr()))
@@ -40,90 +74,43 @@ public class IpamEngine {
         subnetDetail.setMaskBits(Integer.parseInt(ipCIDRsplited[1]));
         subnetDetail.setNumberOfHosts(ipv4NumberOfHosts(subnetDetail.getMaskBits()));
         subnetDetail.setBinaryMask(ipv4CreateBinaryMask(subnetDetail.getMaskBits()));
-        subnetDetail.setMask(ipv4CreateMask(subnetDetail.getBinaryMask()));
+        subnetDetail.setMask(IPV4_MASKS.get(subnetDetail.getMaskBits()));
         
-        List<List<String>> binaryIPSegments = ipv4ParseToBinary(subnetDetail.getIpAddress());
-
-        int segementPos = 0;
-     
-        List<String> decimalSegmentsNetwork = new ArrayList<>();
-        List<String> decimalSegmentsBroadcast = new ArrayList<>();
-        
-        for (List<String> segment : binaryIPSegments) {
-            
-            String subnetSegmentNetwork = "";
-            String subnetSegmentBroadcast = "";
-            
-            for (String bit : segment) {
-                if(segementPos >= subnetDetail.getMaskBits()){
-                    subnetSegmentNetwork += 0;
-                    subnetSegmentBroadcast += 1;
-                }
-                else
-                    subnetSegmentBroadcast = subnetSegmentNetwork += bit;
-                
-                segementPos++;
-            }
-            decimalSegmentsNetwork.add(Integer.toString(Integer.parseInt(subnetSegmentNetwork, 2)));
-            decimalSegmentsBroadcast.add(Integer.toString(Integer.parseInt(subnetSegmentBroadcast, 2)));
-        }
-        
-        subnetDetail.setNetworkIpAddr(String.join(".", decimalSegmentsNetwork));
-        subnetDetail.setBroadCastIpAddr(String.join(".", decimalSegmentsBroadcast));
+        int address = IpAddressArithmetic.ipv4ToInt(subnetDetail.getIpAddress());
+        subnetDetail.setNetworkIpAddr(IpAddressArithmetic.ipv4ToString(
+                IpAddressArithmetic.ipv4Network(address, subnetDetail.getMaskBits())));
+        subnetDetail.setBroadCastIpAddr(IpAddressArithmetic.ipv4ToString(
+                IpAddressArithmetic.ipv4Broadcast(address, subnetDetail.getMaskBits())));
     }
     
     public static List<SubnetDetail> ipv4Split(String networkAddress
             , int currentMaskBits, String broadcastIpAddr, int bitsToSplit) 
             throws InvalidArgumentException
     {
-        List<SubnetDetail> splitedSubnets = new ArrayList<>();
+        if(bitsToSplit < currentMaskBits || bitsToSplit > IpAddressArithmetic.IPV4_BITS)
+            throw new InvalidArgumentException(String.format("A /%s subnet can not be split into /%s subnets", currentMaskBits, bitsToSplit));
         
-        int currentNumberOfHosts = ipv4NumberOfHosts(currentMaskBits);
+        // The subnets are consecutive blocks of the same size, one after the other
+        long numberOfSubnets = 1L << (bitsToSplit - currentMaskBits);
         int splitedNumberOfHosts = ipv4NumberOfHosts(bitsToSplit);
-        int totalNumberOfHosts = 0;
+        List<SubnetDetail> splitedSubnets = new ArrayList<>((int) Math.min(numberOfSubnets, Integer.MAX_VALUE));
         
-        String address = networkAddress;
-        while(totalNumberOfHosts + (splitedSubnets.size() * 2) != currentNumberOfHosts + 2){
-            
-            List<List<String>> binaryIPSegments = ipv4ParseToBinary(address);
-            SubnetDetail subnetDetail = new SubnetDetail(address + "/" + Integer.toString(bitsToSplit));
+        int address = IpAddressArithmetic.ipv4ToInt(networkAddress);
+        for (long i = 0; i < numberOfSubnets; i++) {
+            String ipAddress = IpAddressArithmetic.ipv4ToString(address);
+            int broadcast = IpAddressArithmetic.ipv4Broadcast(address, bitsToSplit);
+            SubnetDetail subnetDetail = new SubnetDetail(ipAddress + "/" + bitsToSplit);
             
-            int segementPos = 0;
-        
-            List<String> decimalSegmentsNetwork = new ArrayList<>();
-            List<String> decimalSegmentsBroadcast = new ArrayList<>();
-        
-            //We iterate over the segments of the given binary ip address
-            for (List<String> segment : binaryIPSegments) {
-                String subnetSegmentNetwork = "";
-                String subnetSegmentBroadcast = "";
-
-                for (String bit : segment) {
-                    if(segementPos >= bitsToSplit){
-                        subnetSegmentNetwork += 0;
-                        subnetSegmentBroadcast += 1;
-                    }
-                    else
-                        subnetSegmentBroadcast = subnetSegmentNetwork += bit;
-
-                    segementPos++;
-                }
-                decimalSegmentsNetwork.add(Integer.toString(Integer.parseInt(subnetSegmentNetwork, 2)));
-                decimalSegmentsBroadcast.add(Integer.toString(Integer.parseInt(subnetSegmentBroadcast, 2)));
-            }//end for
-            
-            subnetDetail.setCidr(address + "/" + bitsToSplit);
-            subnetDetail.setIpAddress(address);
+            subnetDetail.setIpAddress(ipAddress);
             subnetDetail.setMaskBits(bitsToSplit);
-            subnetDetail.setNetworkIpAddr(String.join(".", decimalSegmentsNetwork));
-            subnetDetail.setBroadCastIpAddr(String.join(".", decimalSegmentsBroadcast));
+            subnetDetail.setNetworkIpAddr(IpAddressArithmetic.ipv4ToString(IpAddressArithmetic.ipv4Network(address, bitsToSplit)));
+            subnetDetail.setBroadCastIpAddr(IpAddressArithmetic.ipv4ToString(broadcast));
             subnetDetail.setIpAddrV(4);
-            subnetDetail.setBinaryMask(ipv4CreateBinaryMask(subnetDetail.getMaskBits()));
-            subnetDetail.setMask(ipv4CreateMask(subnetDetail.getBinaryMask()));
+            subnetDetail.setBinaryMask(ipv4CreateBinaryMask(bitsToSplit));
+            subnetDetail.setMask(IPV4_MASKS.get(bitsToSplit));
             subnetDetail.setNumberOfHosts(splitedNumberOfHosts);
             
-            totalNumberOfHosts += splitedNumberOfHosts;
-            address = ipv4nextAddr(subnetDetail.getBroadCastIpAddr(), broadcastIpAddr, subnetDetail.getBroadCastIpAddr(), currentMaskBits);
+            address = IpAddressArithmetic.ipv4Next(broadcast);
             splitedSubnets.add(subnetDetail);
         }
         
@@ -134,98 +121,43 @@ public class IpamEngine {
             , int currentMaskBits, String broadcastIpAddr, int bitsToSplit) 
             throws InvalidArgumentException
     {
-        List<SubnetDetail> splitedSubnets = new ArrayList<>();
+        if(bitsToSplit < currentMaskBits || bitsToSplit > IpAddressArithmetic.IPV6_BITS)
+            throw new InvalidArgumentException(String.format("A /%s subnet can not be split into /%s subnets", currentMaskBits, bitsToSplit));
+        if(bitsToSplit - currentMaskBits > IPV6_MAX_SPLIT_BITS)
+            throw new InvalidArgumentException(String.format("A /%s subnet can not be split into more than %s subnets at once", 
+                    currentMaskBits, 1 << IPV6_MAX_SPLIT_BITS));
         
-        int currentNumberOfHosts = ipv6NumberOfHosts(currentMaskBits);
+        int numberOfSubnets = 1 << (bitsToSplit - currentMaskBits);
         int splitedNumberOfHosts = ipv6NumberOfHosts(bitsToSplit);
-        int totalNumberOfHosts = 0;
+        long maskHigh = IpAddressArithmetic.ipv6MaskHigh(bitsToSplit);
+        long maskLow = IpAddressArithmetic.ipv6MaskLow(bitsToSplit);
+        List<SubnetDetail> splitedSubnets = new ArrayList<>(numberOfSubnets);
         
-        String address = networkAddress;
-        while(totalNumberOfHosts + (splitedSubnets.size() * 2) != currentNumberOfHosts + 2){
+        long[] address = IpAddressArithmetic.ipv6ToLongs(networkAddress);
+        long high = address[0];
+        long low = address[1];
+        String ipAddress = networkAddress;
+        for (int i = 0; i < numberOfSubnets; i++) {
+            long broadcastHigh = high | ~maskHigh;
+            long broadcastLow = low | ~maskLow;
+            SubnetDetail subnetDetail = new SubnetDetail(ipAddress + "/" + bitsToSplit);
             
-            List<List<String>> binaryIPSegments = ipv6ParseToBinary(completeIPv6(networkAddress));
-            SubnetDetail subnetDetail = new SubnetDetail(address + "/" + Integer.toString(bitsToSplit));
-            
-            int segementPos = 0;
-        
-            List<String> decimalSegmentsNetwork = new ArrayList<>();
-            List<String> decimalSegmentsBroadcast = new ArrayList<>();
-        
-            //We iterate over the segments of the given binary ip address
-            for (List<String> segment : binaryIPSegments) {
-                String subnetSegmentNetwork = "";
-                String subnetSegmentBroadcast = "";
-
-                for (String bit : segment) {
-                    if(segementPos >= bitsToSplit){
-                        subnetSegmentNetwork += 0;
-                        subnetSegmentBroadcast += 1;
-                    }
-                    else
-                        subnetSegmentBroadcast = subnetSegmentNetwork += bit;
-
-                    segementPos++;
-                }
-                decimalSegmentsNetwork.add(Integer.toString(Integer.parseInt(subnetSegmentNetwork, 2), 16));
-                decimalSegmentsBroadcast.add(Integer.toString(Integer.parseInt(subnetSegmentBroadcast, 2), 16));
-            }//end for
-            
-            subnetDetail.setCidr(address + "/" + bitsToSplit);
-            subnetDetail.setIpAddress(address);
+            subnetDetail.setIpAddress(ipAddress);
             subnetDetail.setMaskBits(bitsToSplit);
-            subnetDetail.setNetworkIpAddr(compressIpv6(String.join(":", decimalSegmentsNetwork)));
-            subnetDetail.setBroadCastIpAddr(compressIpv6(String.join(":", decimalSegmentsBroadcast)));
+            subnetDetail.setNetworkIpAddr(compressIpv6(IpAddressArithmetic.ipv6ToFullString(high & maskHigh, low & maskLow)));
+            subnetDetail.setBroadCastIpAddr(compressIpv6(IpAddressArithmetic.ipv6ToFullString(broadcastHigh, broadcastLow)));
             subnetDetail.setIpAddrV(6);
             subnetDetail.setNumberOfHosts(splitedNumberOfHosts);
-            
-            totalNumberOfHosts += splitedNumberOfHosts;
-            address = ipv6NextAddr(subnetDetail.getBroadCastIpAddr(), broadcastIpAddr, subnetDetail.getBroadCastIpAddr(), currentMaskBits);
             splitedSubnets.add(subnetDetail);
+            
+            // The next subnet starts right after the broadcast address
+            low = broadcastLow + 1;
+            high = broadcastLow == -1L ? broadcastHigh + 1 : broadcastHigh;
+            ipAddress = compressIpv6(IpAddressArithmetic.ipv6ToFullString(high, low));
         }
         
         return splitedSubnets;
     } 
-
-    
-    private static List<String> segmentCalculation(String subnetSegment){
-        List<String> segments = new ArrayList<>();
-        int bits = subnetSegment.length();
-        int x = Integer.parseInt(subnetSegment, 2);
-        while(true){
-            String segment = "";
-            int diference = 0;
-            if(Integer.toString(x, 2).length() > bits)
-                break;
-            if(Integer.toString(x, 2).length() < bits)
-                diference = bits - Integer.toString(x, 2).length();
-            for (int i = 0; i < diference; i++) 
-                segment += "0";
-           segment += Integer.toString(x, 2);
-           segments.add(segment);
-           x++;
-        }
-        return segments;
-    }
-    
-    /**
-     * For example in the IP 123.35.140.0/22 the 0 in third segment(140) is the 
-     * first bit for subnetig so after calculate the possible subnet values 
-     * we got in binary 00, 01, 10, 11 the complement means 
-     * 14 + 00(0 in decimal) = 140 
-     * 14 + 01(1 in decimal) = 141
-     * 14 + 10(2 in decimal) = 142 
-     * 14 + 11(3 in decimal) = 143
-     * @param segment in this case it is 14
-     * @param complement all the possible values for the subnet.
-     * @return a list of all the possible subnet combinations for every segment
-     */
-    private static List<String> complement(String segment, List<String> complement){
-        List<String> complements = new ArrayList<>();
-        String first = segment;
-        for (String bits : complement) 
-            complements.add(first+bits);
-        return complements;
-    }
     
     /**
      * Parse to binary a given ip v4 address
@@ -233,55 +165,33 @@ public class IpamEngine {
      * @return 
      */
     public static List<List<String>> ipv4ParseToBinary(String ipAddress){
-        List<String> binaryAddress = new ArrayList<>();
-        List<String> singleSegment = new ArrayList<>();
-        List<List<String>> binarySegments = new ArrayList<>();
-        
-        String[] splitedIpAddress = ipAddress.split("\\.");
-        for (String segment : splitedIpAddress) {
-            String segmen = Integer.toString(Integer.parseInt(segment), 2);
-            //We add zeros to the left to complete the 8 positions
-            if(segmen.length() < 8){
-                for (int j = 0; j < 8-segmen.length(); j++) 
-                    binaryAddress.add("0");
-            }
-            //we add the value after the zeros
-            for (int j = 0; j < segmen.length(); j++) 
-                binaryAddress.add("" + segmen.charAt(j));
-        }
-        //We split the binary ip address in a list of segments
-        for(int i=0; i < binaryAddress.size(); i++){
-            if(i % 8 == 0 && i != 0){
-                binarySegments.add(singleSegment);
-                singleSegment = new ArrayList<>();
-            }
-            singleSegment.add(binaryAddress.get(i));
-        }
-        binarySegments.add(singleSegment); //we add the last segment
+        int address = IpAddressArithmetic.ipv4ToInt(ipAddress);
+        List<List<String>> binarySegments = new ArrayList<>(4);
+        for (int i = 0; i < 4; i++) 
+            binarySegments.add(toBits(IpAddressArithmetic.ipv4Octet(address, i)));
         
         return binarySegments;
     }
     
+    /**
+     * Splits an IPv4 segment into its bits
+     * @param octet the segment value from 0 to 255
+     * @return the 8 bits, the most significant first
+     */
+    private static List<String> toBits(int octet){
+        List<String> bits = new ArrayList<>(8);
+        for (int i = 7; i >= 0; i--) 
+            bits.add(((octet >>> i) & 1) == 1 ? "1" : "0");
+        return bits;
+    }
+    
     /**
      * Creates an IPv4 binary mask with the number of bits for the mask
      * @param maskBits number of bits
-     * @return a list fo list with the IP mask
+     * @return a list fo list with the IP mask, it can not be modified
      */
     public static List<List<String>> ipv4CreateBinaryMask(int maskBits){
-        //Create de mask in binary with de CIDR format!
-        List<List<String>> binaryMask = new ArrayList<>();
-        List<String> segment = new ArrayList<>();
-        String bit = "1";
-        for (int i = 1; i <= 32; i++) {
-            if(i > maskBits)
-                bit = "0";
-            segment.add(bit); 
-            if(i % 8 == 0){
-                binaryMask.add(segment);
-                segment = new ArrayList<>();
-            }
-        }
-        return binaryMask;
+        return IPV4_BINARY_MASKS.get(Math.max(0, Math.min(maskBits, IpAddressArithmetic.IPV4_BITS)));
     }
     
     /**
@@ -290,12 +200,12 @@ public class IpamEngine {
      * @return a list fo list with the IP mask
      */
     public static List<String> ipv4CreateMask(List<List<String>> binaryMask){
-        List<String> decMask = new ArrayList<>();
+        List<String> decMask = new ArrayList<>(binaryMask.size());
         for (List<String> binSegment : binaryMask) {
-            String conSegment = "";
+            int value = 0;
             for (String bit : binSegment)
-                conSegment += bit;
-            decMask.add(Integer.toString(Integer.parseInt(conSegment, 2)));
+                value = (value << 1) | Integer.parseInt(bit, 2);
+            decMask.add(Integer.toString(value));
         }
         return decMask;
     }
@@ -335,31 +245,8 @@ public class IpamEngine {
      * @return a complete IPv6
      */
     public static String[] completeIPv6(String ip){
-        String[] shortIPAddress = ip.split(":");
-        String[] ipAddress = {"0000", "0000", "0000", "0000", "0000", "0000", "0000", "0000"};
-        boolean flag = false;
-        for (int g = 0; g<shortIPAddress.length;g++){ 
-            if(shortIPAddress[g].isEmpty()){
-                flag = true;
-                break;
-            }
-            while(shortIPAddress[g].length()<4)
-                shortIPAddress[g] = "0" + shortIPAddress[g];
-            ipAddress[g] = shortIPAddress[g];
-        }
-        
-        if(flag){
-            int l = 7;
-            for (int g = shortIPAddress.length - 1; g > 0 ;g--){ 
-                if(shortIPAddress[g].isEmpty())
-                    break;
-                while(shortIPAddress[g].length()<4)
-                    shortIPAddress[g] = "0" + shortIPAddress[g];
-                ipAddress[l] = shortIPAddress[g];
-                l--;
-            }
-        }
-        return ipAddress;
+        long[] address = IpAddressArithmetic.ipv6ToLongs(ip);
+        return IpAddressArithmetic.ipv6ToFullString(address[0], address[1]).split(":");
     }
 
     /**
@@ -395,67 +282,11 @@ public class IpamEngine {
         subnetDetail.setNumberOfHosts(ipv6NumberOfHosts(subnetDetail.getMaskBits()));
         subnetDetail.setIpAddrV(6);
         
-        List<List<String>> ip = ipv6ParseToBinary(completeIPv6(subnetDetail.getIpAddress()));
-        List<String> segmentos;
-        List<List<String>> temSubnets = new ArrayList<>();
-        int i = 0;
-        boolean flag = false;
-        String netPart = "";
-        String maskPart ="";
-        for (List<String> segments : ip) {
-            segmentos = new ArrayList<>();
-            for (String segment : segments) {
-                maskPart = "";
-                for (int k =0; k < segment.length(); k++) {
-                    if(i == subnetDetail.getMaskBits()){
-                        maskPart = segment.substring(k);
-                        netPart = segment.substring(0, k);
-                        flag = true;
-                        break;
-                    }
-                    i++;
-                }        
-                if(flag)
-                    break;
-                segmentos.add(segment);
-            } 
-            temSubnets.add(segmentos);
-            if(flag)
-                break;
-        }
-        List<String> calculation = segmentCalculation(maskPart);
-        List<String> complement = complement(netPart, calculation);
-        createIPv6(temSubnets, complement, subnetDetail);
-    }
-    
-    private static String ipv6AsString(String[] ip){
-        String ipv6 = "";
-        for (String segment : ip) 
-            ipv6 += segment + ":";
-        return ipv6.substring(0, ipv6.length()-1);
-    }
-    
-    /**
-     * Creates a segment of a given ip address
-     * @param ipAddr
-     * @return a list of integer with all the possible values of the segment 
-     * that it is been calculated
-     */
-    private static List<Integer> segmentAnIP(String ipAddr) {
-        String segments[] = null;
-        List<Integer>  theSegments= new ArrayList<>();
-        if(ipAddr.contains("."))
-            segments = ipAddr.split("\\.");
-        else if(ipAddr.contains(":")){
-            ipAddr = ipv6AsString(completeIPv6(ipAddr));
-            segments = ipAddr.split(":");
-            for (String segment : segments) 
-                theSegments.add(Integer.parseInt(segment,16));
-            return theSegments;
-        }
-        for (String segment : segments) 
-           theSegments.add(Integer.parseInt(segment));
-        return theSegments;
+        long[] address = IpAddressArithmetic.ipv6ToLongs(subnetDetail.getIpAddress());
+        long maskHigh = IpAddressArithmetic.ipv6MaskHigh(subnetDetail.getMaskBits());
+        long maskLow = IpAddressArithmetic.ipv6MaskLow(subnetDetail.getMaskBits());
+        subnetDetail.setNetworkIpAddr(IpAddressArithmetic.ipv6ToFullString(address[0] & maskHigh, address[1] & maskLow));
+        subnetDetail.setBroadCastIpAddr(IpAddressArithmetic.ipv6ToFullString(address[0] | ~maskHigh, address[1] | ~maskLow));
     }
     
     /**
@@ -467,71 +298,31 @@ public class IpamEngine {
      * @return true if it contained, false if not
      */
     public static boolean itContains(String netwrokIp, String broadcastIp, String ipAddr){
-        List<Integer> binaryNetworkIp = segmentAnIP(netwrokIp);
-        List<Integer> binarybroadcastIp = segmentAnIP(broadcastIp);
-        List<Integer> binaryIp = segmentAnIP(ipAddr);
-        boolean contains = false;
-        for (int i = 0; i < binaryIp.size(); i++) {
-            if((binaryIp.get(i) >= binaryNetworkIp.get(i)) && (binaryIp.get(i) <= binarybroadcastIp.get(i)))
-                    contains = true;
-            else{ 
-                contains = false;
-                break;
-            }
-        }
-        return contains;
-    }
-    
-    private static void createIPv6(List<List<String>> segments, List<String> complements, SubnetDetail subnetDetail){
-        String ip = "";
-        String[] nipAddress = {"0000", "0000", "0000", "0000", "0000", "0000", "0000", "0000"};
-        String[] bipAddress = {"ffff", "ffff", "ffff", "ffff", "ffff", "ffff", "ffff", "ffff"};
-        boolean flag = true;
-        List<String> partialSubnets =  new ArrayList<>();
-
-        for (List<String> segment : segments) {
-            if(segment.size()>0){
-                for (String bits : segment) {
-                    ip += Integer.toString(Integer.parseInt(bits, 2), 16);
-                    if(segment.size()<4)
-                        flag = false;
-                }
-                if(flag)
-                    ip += ":";
+        if(ipAddr.contains(".")){
+            int networkIp = IpAddressArithmetic.ipv4ToInt(netwrokIp);
+            int broadcast = IpAddressArithmetic.ipv4ToInt(broadcastIp);
+            int address = IpAddressArithmetic.ipv4ToInt(ipAddr);
+            // Every segment has to be within the range of the same segment
+            for (int i = 0; i < 4; i++) {
+                int segment = IpAddressArithmetic.ipv4Octet(address, i);
+                if(segment < IpAddressArithmetic.ipv4Octet(networkIp, i) || segment > IpAddressArithmetic.ipv4Octet(broadcast, i))
+                    return false;
             }
+            return true;
         }
-        if(ip.length() > 0){
-            if((ip.substring(ip.length() - 2, ip.length()-1)).equals(":"))
-                ip = ip.substring(0, ip.length()-1);
-        }
-        
-        for (String string : complements)
-            partialSubnets.add(ip + Integer.toString(Integer.parseInt(string, 2),16));               
-         
-        String networkip = partialSubnets.get(0);
-        String broadcastip = partialSubnets.get(partialSubnets.size()-1);
-        String[] partialNetworkSplited = networkip.split(":");
-        String[] partialBroadcastSplited = broadcastip.split(":");
-        String n = "";
-        String b = "";
-        for(int i = 0; i < partialNetworkSplited.length; i++){
-            n = partialNetworkSplited[i];
-            b = partialBroadcastSplited[i];
-            while(n.length() < 4){
-                n += "0";
-                b += "f";
+        else if(ipAddr.contains(":")){
+            long[] networkIp = IpAddressArithmetic.ipv6ToLongs(netwrokIp);
+            long[] broadcast = IpAddressArithmetic.ipv6ToLongs(broadcastIp);
+            long[] address = IpAddressArithmetic.ipv6ToLongs(ipAddr);
+            for (int i = 0; i < 8; i++) {
+                int segment = IpAddressArithmetic.ipv6Group(address[0], address[1], i);
+                if(segment < IpAddressArithmetic.ipv6Group(networkIp[0], networkIp[1], i) 
+                        || segment > IpAddressArithmetic.ipv6Group(broadcast[0], broadcast[1], i))
+                    return false;
             }
-            nipAddress[i] = n;
-            bipAddress[i] = b;
+            return true;
         }
-        String subnet = "";
-        for(int i = 0; i < nipAddress.length; i++)
-            subnet += nipAddress[i]+":";
-        subnetDetail.setNetworkIpAddr(subnet.substring(0, subnet.length()-1));
-        subnet = "";
-        for(int i = 0; i<bipAddress.length; i++)
-            subnet += bipAddress[i]+":";
-        subnetDetail.setBroadCastIpAddr(subnet.substring(0, subnet.length()-1));
+        return false;
     }
 
     /**
@@ -540,13 +331,7 @@ public class IpamEngine {
      * @return true if the string is an ip address
      */
     public static boolean isIpAddress(String ipAddress){
-        String ipv4Regex = "^(([0-9]|[1-9][0-9]|1[0-9][0-9]|2[0-4][0-9]|25[0-5])(\\.(?!$)|$)){4}$";
-        String ipv6Regex = "^s*((([0-9A-Fa-f]{1,4}:){7}([0-9A-Fa-f]{1,4}|:))|(([0-9A-Fa-f]{1,4}:){6}(:[0-9A-Fa-f]{1,4}|((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3})|:))|(([0-9A-Fa-f]{1,4}:){5}(((:[0-9A-Fa-f]{1,4}){1,2})|:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3})|:))|(([0-9A-Fa-f]{1,4}:){4}(((:[0-9A-Fa-f]{1,4}){1,3})|((:[0-9A-Fa-f]{1,4})?:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){3}(((:[0-9A-Fa-f]{1,4}){1,4})|((:[0-9A-Fa-f]{1,4}){0,2}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){2}(((:[0-9A-Fa-f]{1,4}){1,5})|((:[0-9A-Fa-f]{1,4}){0,3}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){1}(((:[0-9A-Fa-f]{1,4}){1,6})|((:[0-9A-Fa-f]{1,4}){0,4}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(:(((:[0-9A-Fa-f]{1,4}){1,7})|((:[0-9A-Fa-f]{1,4}){0,5}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:)))(%.+)?s*";
-        Pattern ipv4Pattern = Pattern.compile(ipv4Regex);
-        Pattern ipv6Pattern = Pattern.compile(ipv6Regex);
-        Matcher ipv4 = ipv4Pattern.matcher(ipAddress);
-        Matcher ipv6 = ipv6Pattern.matcher(ipAddress);
-        return ipv4.matches() || ipv6.matches();
+        return IPV4_PATTERN.matcher(ipAddress).matches() || IPV6_PATTERN.matcher(ipAddress).matches();
     }
     
     
@@ -556,10 +341,7 @@ public class IpamEngine {
      * @return true if the string is an ip address
      */
     public static boolean isIpv4Address(String ipAddress){
-        String ipv4Regex = "^(([0-9]|[1-9][0-9]|1[0-9][0-9]|2[0-4][0-9]|25[0-5])(\\.(?!$)|$)){4}$";
-        Pattern ipv4Pattern = Pattern.compile(ipv4Regex);
-        Matcher ipv4 = ipv4Pattern.matcher(ipAddress);
-        return ipv4.matches();
+        return IPV4_PATTERN.matcher(ipAddress).matches();
     }
     
     /**
@@ -568,10 +350,7 @@ public class IpamEngine {
      * @return true if the string is an ip address
      */
     public static boolean isIpv6Address(String ipAddress){
-        String ipv6Regex = "^s*((([0-9A-Fa-f]{1,4}:){7}([0-9A-Fa-f]{1,4}|:))|(([0-9A-Fa-f]{1,4}:){6}(:[0-9A-Fa-f]{1,4}|((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3})|:))|(([0-9A-Fa-f]{1,4}:){5}(((:[0-9A-Fa-f]{1,4}){1,2})|:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3})|:))|(([0-9A-Fa-f]{1,4}:){4}(((:[0-9A-Fa-f]{1,4}){1,3})|((:[0-9A-Fa-f]{1,4})?:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){3}(((:[0-9A-Fa-f]{1,4}){1,4})|((:[0-9A-Fa-f]{1,4}){0,2}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){2}(((:[0-9A-Fa-f]{1,4}){1,5})|((:[0-9A-Fa-f]{1,4}){0,3}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){1}(((:[0-9A-Fa-f]{1,4}){1,6})|((:[0-9A-Fa-f]{1,4}){0,4}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(:(((:[0-9A-Fa-f]{1,4}){1,7})|((:[0-9A-Fa-f]{1,4}){0,5}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:)))(%.+)?s*";
-        Pattern ipv6Pattern = Pattern.compile(ipv6Regex);
-        Matcher ipv6 = ipv6Pattern.matcher(ipAddress);
-        return ipv6.matches();
+        return IPV6_PATTERN.matcher(ipAddress).matches();
     }
     
     /**
@@ -580,20 +359,11 @@ public class IpamEngine {
      * @return true if the string has de CIDR format
      */
     public static boolean isCIDRFormat(String ipAddress){
-        String ipv4Regex = "^(([0-9]|[1-9][0-9]|1[0-9]{2}|2[0-4][0-9]|25[0-5])\\.){3}([0-9]|[1-9][0-9]|1[0-9]{2}|2[0-4][0-9]|25[0-5])(\\/([0-9]|[1-2][0-9]|3[0-2]))$";
-        String ipv6Regex = "^s*((([0-9A-Fa-f]{1,4}:){7}([0-9A-Fa-f]{1,4}|:))|(([0-9A-Fa-f]{1,4}:){6}(:[0-9A-Fa-f]{1,4}|((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3})|:))|(([0-9A-Fa-f]{1,4}:){5}(((:[0-9A-Fa-f]{1,4}){1,2})|:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3})|:))|(([0-9A-Fa-f]{1,4}:){4}(((:[0-9A-Fa-f]{1,4}){1,3})|((:[0-9A-Fa-f]{1,4})?:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){3}(((:[0-9A-Fa-f]{1,4}){1,4})|((:[0-9A-Fa-f]{1,4}){0,2}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){2}(((:[0-9A-Fa-f]{1,4}){1,5})|((:[0-9A-Fa-f]{1,4}){0,3}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(([0-9A-Fa-f]{1,4}:){1}(((:[0-9A-Fa-f]{1,4}){1,6})|((:[0-9A-Fa-f]{1,4}){0,4}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:))|(:(((:[0-9A-Fa-f]{1,4}){1,7})|((:[0-9A-Fa-f]{1,4}){0,5}:((25[0-5]|2[0-4]d|1dd|[1-9]?d)(.(25[0-5]|2[0-4]d|1dd|[1-9]?d)){3}))|:)))(%.+)?s*(\\/([0-9]|[1-9][0-9]|1[0-1][0-9]|12[0-8]))?$";
-        Pattern ipv4Pattern = Pattern.compile(ipv4Regex);
-        Pattern ipv6Pattern = Pattern.compile(ipv6Regex);
-        Matcher ipv4 = ipv4Pattern.matcher(ipAddress);
-        Matcher ipv6 = ipv6Pattern.matcher(ipAddress);
-        return ipv4.matches() || ipv6.matches();
+        return IPV4_CIDR_PATTERN.matcher(ipAddress).matches() || IPV6_CIDR_PATTERN.matcher(ipAddress).matches();
     }
     
     public static boolean isHostname(String hostname){
-        String hostnameRegex = "^(([a-zA-Z]|[a-zA-Z][a-zA-Z0-9-]*[a-zA-Z0-9]).)*([A-Za-z]|[A-Za-z][A-Za-z0-9-]*[A-Za-z0-9])$";
-        Pattern hostnamePattern = Pattern.compile(hostnameRegex);
-        Matcher mhostname = hostnamePattern.matcher(hostname);
-        return mhostname.matches();
+        return HOSTNAME_PATTERN.matcher(hostname).matches();
     }
     
     /**
@@ -603,10 +373,48 @@ public class IpamEngine {
      * @return a compressed IPv6 address
      */
     public static String compressIpv6(String ipAddr){
+        long[] address = IpAddressArithmetic.ipv6ToLongs(ipAddr);
+        return IpAddressArithmetic.ipv6ToString(address[0], address[1]);
+    }
+
+    /**
+     * Lists the ways an IPv6 address or subnet could be spelled in the name of
+     * an object: as given, in its canonical form, and as the former versions of
+     * {@link #compressIpv6(java.lang.String)} used to write it (e.g. 2001:db8:0:0:1:0:0:1
+     * was written 2001:db8::1:00:1 instead of 2001:db8::1:0:0:1, and ::1 as :1),
+     * so the objects created before can still be found by name
+     * @param name an IPv6 address, or an IPv6 subnet in CIDR format
+     * @return the spellings of the name, or only the name if it is not an IPv6 address or subnet
+     */
+    public static List<String> getIpv6Spellings(String name){
+        List<String> spellings = new ArrayList<>();
+        spellings.add(name);
+        if(name == null || !name.contains(":"))
+            return spellings;
+
+        String[] cidrSplit = name.split("/");
+        String suffix = cidrSplit.length == 2 ? "/" + cidrSplit[1] : "";
+        try {
+            long[] address = IpAddressArithmetic.ipv6ToLongs(cidrSplit[0]);
+            String canonical = IpAddressArithmetic.ipv6ToString(address[0], address[1]) + suffix;
+            if(!spellings.contains(canonical))
+                spellings.add(canonical);
+            String legacy = legacyCompressIpv6(IpAddressArithmetic.ipv6ToFullString(address[0], address[1])) + suffix;
+            if(!spellings.contains(legacy))
+                spellings.add(legacy);
+        } catch (NumberFormatException ex) { } // Not an IPv6 address, it can only be spelled as given
+        return spellings;
+    }
+
+    /**
+     * Compress a complete IPv6 Address the way the former versions of
+     * {@link #compressIpv6(java.lang.String)} did, before the canonical
+     * form was used. Only used to look up the objects named that way
+     * @param ipAddr the IP v6 Address with its eight groups
+     * @return the IPv6 address as it used to be compressed
+     */
+    private static String legacyCompressIpv6(String ipAddr){
         List<String> ipSegments = new ArrayList<>();
-        String regex = "[0]*";
-        Pattern pCeros = Pattern.compile(regex);
-                
         String ceros = "";
         for (String segment : ipAddr.split(":")) {
             segment = Integer.toString(Integer.parseInt(segment, 16) , 16);
@@ -622,36 +430,30 @@ public class IpamEngine {
         }
         if(!ceros.isEmpty())
             ipSegments.add(ceros.substring(0, ceros.length()-1));
-        
+
         int amountOfCeros = 0;
         boolean flag = true;
         int pos = 0;
-        
         for (int i = 0; i < ipSegments.size(); i++) {
-            if (pCeros.matcher(ipSegments.get(i)).matches()) {
+            if (ipSegments.get(i).matches("[0]*")) {
                 if(flag){
                     amountOfCeros = ipSegments.get(i).length();
                     flag =false;
                     pos = i;
                 }
-                else{
-                    if(ipSegments.get(i).length() > amountOfCeros)
-                        pos = i;
-                }
+                else if(ipSegments.get(i).length() > amountOfCeros)
+                    pos = i;
             }
         }
         ipSegments.set(pos, "");
-        String compressedIp = "";
-        for (String segement : ipSegments)
-            compressedIp += segement + ":";
-
+        String compressedIp = String.join(":", ipSegments) + ":";
         //if all the last segements are in cero we need double ::
-        if(ipSegments.size() - 1 == pos && ipSegments.get(pos).isEmpty())
+        if(ipSegments.size() - 1 == pos)
             return compressedIp;
-        
+
         return compressedIp.substring(0, compressedIp.length() - 1);
     }
-        
+
     /**
      * Calculate the next available IP Address
      * @param networkIp the subnet's network IP Address
@@ -661,28 +463,10 @@ public class IpamEngine {
      * @return the next available IP Address
      */
     public static String ipv4nextAddr(String networkIp, String broadCastIp, String ipAddr, int maskBits){
-        String[] splitedIp = ipAddr.split("\\.");
-
-        for(int i = splitedIp.length-1; i > 0; i--) {
-            if(ipv4addrBelongsToSubnet(networkIp, ipAddr, maskBits) ||  !broadCastIp.equals(ipAddr)){
-                int bit = Integer.parseInt(splitedIp[i]);
-                if(bit == 255)
-                    splitedIp[i] = "0";
-                else{
-                    bit++;
-                    splitedIp[i] = Integer.toString(bit);
-                    break;
-                }
-            }
-            else
-                return null;
-        }
-        ipAddr="";
-        
-        for (String segment : splitedIp) 
-            ipAddr += segment + ".";
+        if(!ipv4addrBelongsToSubnet(networkIp, ipAddr, maskBits) && broadCastIp.equals(ipAddr))
+            return null;
         
-        return ipAddr.substring(0, ipAddr.length() - 1);
+        return IpAddressArithmetic.ipv4ToString(IpAddressArithmetic.ipv4Next(IpAddressArithmetic.ipv4ToInt(ipAddr)));
     }
    
     /**
@@ -694,27 +478,14 @@ public class IpamEngine {
      * @return the next available IP Address
      */
     public static String ipv6NextAddr(String networkIp, String broadCastIp, String ipAddr, int maskBit){
-        String[] splitedIp = completeIPv6(ipAddr);
+        long[] network = IpAddressArithmetic.ipv6ToLongs(networkIp);
+        long[] address = IpAddressArithmetic.ipv6ToLongs(ipAddr);
+        if(!IpAddressArithmetic.ipv6Contains(network[0], network[1], maskBit, address[0], address[1]))
+            return null;
         
-        String nextIp = "";
-        for(int i = splitedIp.length-1; i>=0; i--) {
-            if(ipv6AddrBelongsToSubnet(networkIp, ipAddr, maskBit)){
-                int bit = Integer.parseInt(splitedIp[i],16);
-                if(bit == 0xffff)
-                    splitedIp[i] = "0000";
-                else{
-                    bit++;
-                    splitedIp[i] = Integer.toString(bit,16);
-                    for (String segment : splitedIp) 
-                        nextIp += Integer.toString(Integer.parseInt(segment,16),16)+":";
-                    nextIp = nextIp.substring(0, nextIp.length()-1);
-                    break;
-                }
-            }
-            else
-                return null;
-        }
-        return compressIpv6(nextIp);
+        long low = address[1] + 1;
+        long high = address[1] == -1L ? address[0] + 1 : address[0];
+        return compressIpv6(IpAddressArithmetic.ipv6ToFullString(high, low));
     }
     
     /**
@@ -726,30 +497,7 @@ public class IpamEngine {
      * @return true if it contained, false if not
      */
     public static boolean ipv4addrBelongsToSubnet(String networkIp, String ipAddr, int maskBits){
-        List<List<String>> binaryIp = ipv4ParseToBinary(ipAddr);
-        List<List<String>> binaryNetworkIp = ipv4ParseToBinary(networkIp);
-        List<List<String>> binaryMask = ipv4CreateBinaryMask(maskBits);
-        int bit = 0;
-        boolean flag = false;
-        for (int i = 0; i < binaryIp.size(); i++) {
-            List<String> ipSegment = binaryIp.get(i);
-            List<String> networkIpSegment = binaryNetworkIp.get(i);
-            List<String> maskIpSegment = binaryMask.get(i);
-            for(int j = 0; j < ipSegment.size();j++){
-                if(bit == maskBits){
-                    flag=true;
-                    break;
-                }
-                int x = Integer.parseInt(maskIpSegment.get(j),2) - Integer.parseInt(ipSegment.get(j),2);
-                int y = Integer.parseInt(maskIpSegment.get(j),2) - Integer.parseInt(networkIpSegment.get(j),2);
-                if (x != y)
-                    return false;
-                bit++;
-            }
-            if(flag)
-                break;
-        }
-        return true;
+        return IpAddressArithmetic.ipv4Contains(IpAddressArithmetic.ipv4ToInt(networkIp), maskBits, IpAddressArithmetic.ipv4ToInt(ipAddr));
     }
     
     /**
@@ -761,36 +509,9 @@ public class IpamEngine {
      * @return true if it contained, false if not
      */
     public static boolean ipv6AddrBelongsToSubnet(String networkIp, String ipAddr, int maskBits){
-        List<List<String>> binaryIp = ipv6ParseToBinary(completeIPv6(ipAddr));
-        List<List<String>> binaryNetworkIp = ipv6ParseToBinary(completeIPv6(networkIp));
-        List<List<String>> binaryMask = createIpv6Mask(maskBits);
-        int bit = 0;
-        boolean flag = false;
-        for (int i = 0; i<binaryIp.size(); i++) {
-            List<String> ipSegment = binaryIp.get(i);
-            List<String> networkIpSegment = binaryNetworkIp.get(i);
-            List<String> maskIpSegment = binaryMask.get(i);
-            for(int j = 0; j<ipSegment.size();j++){
-                if(bit == maskBits){
-                    flag=true;
-                    break;
-                }
-                for (int k = 1; k <= maskIpSegment.get(j).length(); k++) {
-                    int x = Integer.parseInt(maskIpSegment.get(j).substring(k-1,k),2) - Integer.parseInt(ipSegment.get(j).substring(k-1,k),2);
-                    int y = Integer.parseInt(maskIpSegment.get(j).substring(k-1,k),2) - Integer.parseInt(networkIpSegment.get(j).substring(k-1,k),2);
-                    if(bit == maskBits){
-                        flag=true;
-                        break;
-                    }
-                    if (x!= y)
-                        return false;
-                    bit++;
-                }
-            }
-            if(flag)
-                break;
-        }
-        return true;
+        long[] network = IpAddressArithmetic.ipv6ToLongs(networkIp);
+        long[] address = IpAddressArithmetic.ipv6ToLongs(ipAddr);
+        return IpAddressArithmetic.ipv6Contains(network[0], network[1], maskBits, address[0], address[1]);
     }
     
     
@@ -0,0 +1,734 @@
+/*
+ * Copyright 2010-2023 Neotropic SAS <contact@neotropic.co>
+ *
+ * Licensed under the EPL License, Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.neotropic.kuwaiba.modules.commercial.ipam.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
+
+/**
+ * An in-memory index of the subnets and IP addresses of one IPAM root (hence of one IP version). The entries are kept in a
+ * path-compressed binary trie (a Patricia trie) keyed by the network address and the mask bits, so
+ * the subnets that contain or are contained by a given one are found walking a single path of the trie,
+ * no matter how many subnets there are. Every node also keeps the size of the largest free aligned block
+ * below it, so the search for free blocks and free addresses skips the branches that are already
+ * full. IP addresses are stored as /32 (or /128) entries. The index can be used from several threads.
+ * @author agent {@literal <agent@local>}
+ */
+public final class SubnetIndex {
+    /**
+     * Number of bits of the addresses, 32 or 128.
+     */
+    private final int width;
+    /**
+     * The root of the trie, the /0 prefix.
+     */
+    private final Node root;
+    /**
+     * The nodes holding subnets. The key is the id of the subnet.
+     */
+    private final HashMap<String, Node> subnets;
+    /**
+     * The nodes holding IP addresses. The key is the id of the address.
+     */
+    private final HashMap<String, Node> addresses;
+    /**
+     * Guards the trie and the maps.
+     */
+    private final ReentrantReadWriteLock lock;
+
+    /**
+     * Creates an empty index.
+     * @param width Number of bits of the addresses. See IpAddressArithmetic.IPV4_BITS and IpAddressArithmetic.IPV6_BITS.
+     */
+    public SubnetIndex(int width) {
+        if (width != IpAddressArithmetic.IPV4_BITS && width != IpAddressArithmetic.IPV6_BITS)
+            throw new IllegalArgumentException(String.format("Unsupported address width %s", width)); //NOI18N
+        this.width = width;
+        this.root = new Node(0, 0, 0);
+        this.root.free = width;
+        this.subnets = new HashMap<>();
+        this.addresses = new HashMap<>();
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    public boolean isIpv6() {
+        return width == IpAddressArithmetic.IPV6_BITS;
+    }
+
+    public int getSubnetCount() {
+        lock.readLock().lock();
+        try {
+            return subnets.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getAddressCount() {
+        lock.readLock().lock();
+        try {
+            return addresses.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a subnet to the index. If there is already an entry with that id, it is replaced. If there is
+     * already another subnet with the same network address and mask, the new one takes its place.
+     * @param id The id of the subnet.
+     * @param cidr The subnet in CIDR notation, e.g. 10.0.0.0/8. The host bits are ignored.
+     * @throws InvalidArgumentException If the subnet is not a valid subnet of this IP version.
+     */
+    public void putSubnet(String id, String cidr) throws InvalidArgumentException {
+        long[] prefix = parseCidr(cidr);
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+            Node node = insert(prefix[0], prefix[1], (int) prefix[2]);
+            if (node.subnetId != null)
+                subnets.remove(node.subnetId);
+            node.subnetId = id;
+            subnets.put(id, node);
+            refresh(node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an IP address to the index. If there is already an entry with that id, it is replaced.
+     * @param id The id of the IP address.
+     * @param ipAddress The IP address.
+     * @throws InvalidArgumentException If the address is not a valid address of this IP version.
+     */
+    public void putAddress(String id, String ipAddress) throws InvalidArgumentException {
+        long[] address = parseAddress(ipAddress);
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+            Node node = insert(address[0], address[1], width);
+            if (node.addressId != null)
+                addresses.remove(node.addressId);
+            node.addressId = id;
+            addresses.put(id, node);
+            refresh(node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a subnet or an IP address from the index.
+     * @param id The id of the subnet or IP address.
+     * @return If there was an entry with that id.
+     */
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            return removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the subnet with the given network address and mask.
+     * @param cidr The subnet in CIDR notation.
+     * @return The subnet or null if there is none.
+     * @throws InvalidArgumentException If the subnet is not a valid subnet of this IP version.
+     */
+    public Entry getSubnet(String cidr) throws InvalidArgumentException {
+        long[] prefix = parseCidr(cidr);
+        lock.readLock().lock();
+        try {
+            Node node = find(prefix[0], prefix[1], (int) prefix[2]);
+            return node != null && node.depth == prefix[2] && node.subnetId != null ? new Entry(node.subnetId, this, node, false) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the IP address entry of a given address.
+     * @param ipAddress The IP address.
+     * @return The entry or null if the address is not in the index.
+     * @throws InvalidArgumentException If the address is not a valid address of this IP version.
+     */
+    public Entry getAddress(String ipAddress) throws InvalidArgumentException {
+        long[] address = parseAddress(ipAddress);
+        lock.readLock().lock();
+        try {
+            Node node = find(address[0], address[1], width);
+            return node != null && node.depth == width && node.addressId != null ? new Entry(node.addressId, this, node, true) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the subnets that contain the given subnet or address, not including the subnet itself.
+     * @param cidr A subnet in CIDR notation or a single IP address.
+     * @return The subnets, from the largest to the smallest one. The last one is the subnet the given one belongs to.
+     * @throws InvalidArgumentException If the subnet is not a valid subnet of this IP version.
+     */
+    public List<Entry> getContainingSubnets(String cidr) throws InvalidArgumentException {
+        long[] prefix = cidr.contains("/") ? parseCidr(cidr) : toPrefix(parseAddress(cidr), width); //NOI18N
+        int depth = (int) prefix[2];
+        List<Entry> res = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Node current = root;
+            while (current.depth < depth) {
+                if (current.subnetId != null)
+                    res.add(new Entry(current.subnetId, this, current, false));
+                Node child = current.child(bit(prefix[0], prefix[1], current.depth));
+                if (child == null || child.depth > depth || commonPrefix(prefix[0], prefix[1], child.high, child.low) < child.depth)
+                    break;
+                current = child;
+            }
+            return res;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the smallest subnet that contains the given subnet or address.
+     * @param cidr A subnet in CIDR notation or a single IP address.
+     * @return The subnet or null if no subnet contains it.
+     * @throws InvalidArgumentException If the subnet is not a valid subnet of this IP version.
+     */
+    public Entry getContainingSubnet(String cidr) throws InvalidArgumentException {
+        List<Entry> containingSubnets = getContainingSubnets(cidr);
+        return containingSubnets.isEmpty() ? null : containingSubnets.get(containingSubnets.size() - 1);
+    }
+
+    /**
+     * Gets the subnets and (optionally) the IP addresses inside a subnet, not including the subnet itself.
+     * @param cidr The subnet in CIDR notation.
+     * @param includeAddresses If the IP addresses should be included.
+     * @param limit Max number of entries to be returned. -1 to retrieve all.
+     * @return The entries sorted by network address, the larger subnets before the smaller ones starting at the same address.
+     * @throws InvalidArgumentException If the subnet is not a valid subnet of this IP version.
+     */
+    public List<Entry> getContainedEntries(String cidr, boolean includeAddresses, int limit) throws InvalidArgumentException {
+        long[] prefix = parseCidr(cidr);
+        List<Entry> res = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Node node = find(prefix[0], prefix[1], (int) prefix[2]);
+            if (node == null)
+                return res;
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(node);
+            while (!pending.isEmpty() && (limit < 0 || res.size() < limit)) {
+                Node current = pending.pop();
+                if (current.depth > prefix[2]) {
+                    if (current.subnetId != null)
+                        res.add(new Entry(current.subnetId, this, current, false));
+                    if (includeAddresses && current.addressId != null && (limit < 0 || res.size() < limit))
+                        res.add(new Entry(current.addressId, this, current, true));
+                }
+                if (current.one != null)
+                    pending.push(current.one);
+                if (current.zero != null)
+                    pending.push(current.zero);
+            }
+            return res;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the subnets that have any address in common with a given subnet: the ones containing it, the one with the
+     * same network address and mask (if any) and the ones inside it.
+     * @param cidr The subnet in CIDR notation.
+     * @param limit Max number of subnets inside the given one to be returned. -1 to retrieve all.
+     * @return The subnets, the containing ones first.
+     * @throws InvalidArgumentException If the subnet is not a valid subnet of this IP version.
+     */
+    public List<Entry> getOverlappingSubnets(String cidr, int limit) throws InvalidArgumentException {
+        List<Entry> res = getContainingSubnets(cidr);
+        Entry sameSubnet = getSubnet(cidr);
+        if (sameSubnet != null)
+            res.add(sameSubnet);
+        res.addAll(getContainedEntries(cidr, false, limit));
+        return res;
+    }
+
+    /**
+     * Finds the first block of a given size inside a subnet that does not overlap any of the subnets or IP addresses
+     * inside it. The subnet itself and the subnets containing it are not taken into account.
+     * @param cidr The subnet to search into, in CIDR notation.
+     * @param blockMaskBits The mask bits of the block to be found.
+     * @param from The block must start at or after this address. Null to start at the beginning of the subnet.
+     * @return The block in CIDR notation or null if there is no free block of that size.
+     * @throws InvalidArgumentException If the subnet is not valid or if the block is larger than the subnet.
+     */
+    public String getFirstFreeBlock(String cidr, int blockMaskBits, String from) throws InvalidArgumentException {
+        long[] prefix = parseCidr(cidr);
+        int depth = (int) prefix[2];
+        if (blockMaskBits < depth || blockMaskBits > width)
+            throw new InvalidArgumentException(String.format("A /%s block can not be allocated inside a /%s subnet", blockMaskBits, depth));
+        long[] fromAddress = from == null ? new long[] { prefix[0], prefix[1] } : parseAddress(from);
+
+        lock.readLock().lock();
+        try {
+            long[] block = firstFreeBlock(prefix, blockMaskBits, fromAddress[0], fromAddress[1]);
+            return block == null ? null : format(block[0], block[1]) + "/" + blockMaskBits; //NOI18N
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the first address of a subnet that is not in the index, that is, not created yet and not inside
+     * any of the subnets inside the given one. In IPv4 subnets larger than a /31, the network and broadcast addresses
+     * are never returned.
+     * @param cidr The subnet in CIDR notation.
+     * @param after The address must be greater than this one. Null to start at the beginning of the subnet.
+     * @return The address or null if the subnet is full.
+     * @throws InvalidArgumentException If the subnet is not a valid subnet of this IP version.
+     */
+    public String getNextFreeAddress(String cidr, String after) throws InvalidArgumentException {
+        long[] prefix = parseCidr(cidr);
+        int depth = (int) prefix[2];
+        long[] from = new long[] { prefix[0], prefix[1] };
+        if (after != null) {
+            long[] afterAddress = parseAddress(after);
+            long[] lastAddress = lastAddress(0, 0, 0);
+            if (compare(afterAddress, lastAddress[0], lastAddress[1]) >= 0)
+                return null;
+            long[] nextAddress = increment(afterAddress[0], afterAddress[1]);
+            if (compare(nextAddress, from[0], from[1]) > 0)
+                from = nextAddress;
+        }
+
+        boolean skipNetworkAndBroadcast = width == IpAddressArithmetic.IPV4_BITS && depth < IpAddressArithmetic.IPV4_BITS - 1;
+        if (skipNetworkAndBroadcast && from[1] == prefix[1])
+            from = increment(from[0], from[1]);
+
+        lock.readLock().lock();
+        try {
+            long[] address = firstFreeBlock(prefix, width, from[0], from[1]);
+            if (address == null || (skipNetworkAndBroadcast && address[1] == lastAddress(prefix[0], prefix[1], depth)[1]))
+                return null;
+            return format(address[0], address[1]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Trie maintenance">
+    /**
+     * Gets the node of a prefix, creating it (and the intermediate node needed to keep the trie path-compressed) if necessary.
+     */
+    private Node insert(long high, long low, int depth) {
+        Node current = root;
+        while (current.depth < depth) {
+            int branch = bit(high, low, current.depth);
+            Node child = current.child(branch);
+            if (child == null) {
+                Node leaf = new Node(high, low, depth);
+                current.setChild(branch, leaf);
+                return leaf;
+            }
+            int common = Math.min(commonPrefix(high, low, child.high, child.low), Math.min(depth, child.depth));
+            if (common == child.depth) {
+                current = child;
+                continue;
+            }
+            //The new prefix and the child differ somewhere along the edge, so a node is needed right where they split
+            Node split = new Node(high & maskHigh(common), low & maskLow(common), common);
+            current.setChild(branch, split);
+            split.setChild(bit(child.high, child.low, common), child);
+            if (common == depth)
+                return split;
+            Node leaf = new Node(high, low, depth);
+            split.setChild(bit(high, low, common), leaf);
+            return leaf;
+        }
+        return current;
+    }
+
+    /**
+     * Removes the entry with the given id and the nodes that are no longer needed. The caller must hold the write lock.
+     */
+    private boolean removeEntry(String id) {
+        Node node = subnets.remove(id);
+        if (node != null)
+            node.subnetId = null;
+        else {
+            node = addresses.remove(id);
+            if (node == null)
+                return false;
+            node.addressId = null;
+        }
+
+        //Empty leaves are removed and empty nodes with a single child are spliced out
+        Node current = node;
+        while (current != root && !current.isOccupied() && (current.zero == null || current.one == null)) {
+            Node parent = current.parent;
+            Node onlyChild = current.zero != null ? current.zero : current.one;
+            parent.setChild(parent.zero == current ? 0 : 1, onlyChild);
+            current.parent = null;
+            current = parent;
+            if (onlyChild != null)
+                break;
+        }
+        refresh(current);
+        return true;
+    }
+
+    /**
+     * Updates the size of the largest free block of a node and its ancestors.
+     */
+    private void refresh(Node node) {
+        for (Node current = node; current != null; current = current.parent) {
+            if (current.zero == null && current.one == null) {
+                current.free = width - current.depth;
+                continue;
+            }
+            int free = -1;
+            for (int branch = 0; branch < 2; branch++) {
+                Node child = current.child(branch);
+                if (child == null)
+                    free = Math.max(free, width - current.depth - 1);
+                else {
+                    //The sibling of the node right below, if the edge skips some levels
+                    if (child.depth > current.depth + 1)
+                        free = Math.max(free, width - current.depth - 2);
+                    if (!child.isOccupied())
+                        free = Math.max(free, child.free);
+                }
+            }
+            current.free = free;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Queries">
+    /**
+     * Finds the node of a prefix or, if there is none, the topmost node below it.
+     * @return The node or null if there is nothing inside the prefix.
+     */
+    private Node find(long high, long low, int depth) {
+        Node current = root;
+        while (current.depth < depth) {
+            Node child = current.child(bit(high, low, current.depth));
+            if (child == null)
+                return null;
+            if (commonPrefix(high, low, child.high, child.low) < Math.min(depth, child.depth))
+                return null;
+            current = child;
+        }
+        return current;
+    }
+
+    /**
+     * Finds the first free block inside a prefix, ignoring the entries at the prefix itself. The caller must hold the read lock.
+     */
+    private long[] firstFreeBlock(long[] prefix, int blockMaskBits, long fromHigh, long fromLow) {
+        int depth = (int) prefix[2];
+        Node node = find(prefix[0], prefix[1], depth);
+        if (node == null)
+            return firstBlock(prefix[0], prefix[1], depth, blockMaskBits, fromHigh, fromLow);
+        if (node.depth == depth)
+            return searchNode(node, blockMaskBits, fromHigh, fromLow);
+        return searchBranch(prefix[0], prefix[1], depth, node, blockMaskBits, fromHigh, fromLow);
+    }
+
+    /**
+     * Searches the first free block below a node, regardless of the node being occupied or not.
+     */
+    private long[] searchNode(Node node, int blockMaskBits, long fromHigh, long fromLow) {
+        if (node.zero == null && node.one == null)
+            return firstBlock(node.high, node.low, node.depth, blockMaskBits, fromHigh, fromLow);
+        if (node.free < width - blockMaskBits || compare(lastAddress(node.high, node.low, node.depth), fromHigh, fromLow) < 0)
+            return null;
+        for (int branch = 0; branch < 2; branch++) {
+            long[] half = withBit(node.high, node.low, node.depth, branch);
+            long[] block = searchBranch(half[0], half[1], node.depth + 1, node.child(branch), blockMaskBits, fromHigh, fromLow);
+            if (block != null)
+                return block;
+        }
+        return null;
+    }
+
+    /**
+     * Searches the first free block inside a prefix whose entries are all below a given node (or null if it is empty).
+     * Along the compressed edge from the prefix to the node, every level has a sibling with no entries at all.
+     */
+    private long[] searchBranch(long high, long low, int depth, Node node, int blockMaskBits, long fromHigh, long fromLow) {
+        if (node == null)
+            return firstBlock(high, low, depth, blockMaskBits, fromHigh, fromLow);
+
+        //The empty siblings at the left of the path, from the largest to the smallest
+        for (int level = depth; level < Math.min(node.depth, blockMaskBits); level++) {
+            if (bit(node.high, node.low, level) == 1) {
+                long[] sibling = withBit(node.high & maskHigh(level), node.low & maskLow(level), level, 0);
+                long[] block = firstBlock(sibling[0], sibling[1], level + 1, blockMaskBits, fromHigh, fromLow);
+                if (block != null)
+                    return block;
+            }
+        }
+
+        if (!node.isOccupied() && node.free >= width - blockMaskBits) {
+            long[] block = searchNode(node, blockMaskBits, fromHigh, fromLow);
+            if (block != null)
+                return block;
+        }
+
+        //The empty siblings at the right of the path, from the smallest to the largest
+        for (int level = Math.min(node.depth, blockMaskBits) - 1; level >= depth; level--) {
+            if (bit(node.high, node.low, level) == 0) {
+                long[] sibling = withBit(node.high & maskHigh(level), node.low & maskLow(level), level, 1);
+                long[] block = firstBlock(sibling[0], sibling[1], level + 1, blockMaskBits, fromHigh, fromLow);
+                if (block != null)
+                    return block;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The first block of a given size inside an empty prefix starting at or after a given address.
+     */
+    private long[] firstBlock(long high, long low, int depth, int blockMaskBits, long fromHigh, long fromLow) {
+        if (depth > blockMaskBits)
+            return null;
+        long[] last = lastAddress(high, low, depth);
+        if (compare(last[0], last[1], fromHigh, fromLow) < 0)
+            return null;
+        if (compare(high, low, fromHigh, fromLow) >= 0)
+            return new long[] { high, low };
+        //Align the lower bound up to the block size
+        long blockHigh = fromHigh & maskHigh(blockMaskBits);
+        long blockLow = fromLow & maskLow(blockMaskBits);
+        if (blockHigh != fromHigh || blockLow != fromLow) {
+            long[] lastInBlock = lastAddress(blockHigh, blockLow, blockMaskBits);
+            if (compare(lastInBlock[0], lastInBlock[1], last[0], last[1]) >= 0)
+                return null;
+            return increment(lastInBlock[0], lastInBlock[1]);
+        }
+        return new long[] { blockHigh, blockLow };
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Bit manipulation">
+    /**
+     * The bit of an address at the given position, counting from the most significant one.
+     */
+    private int bit(long high, long low, int position) {
+        if (width == IpAddressArithmetic.IPV4_BITS)
+            return (int) (low >>> (IpAddressArithmetic.IPV4_BITS - 1 - position)) & 1;
+        return position < 64 ? (int) (high >>> (63 - position)) & 1 : (int) (low >>> (IpAddressArithmetic.IPV6_BITS - 1 - position)) & 1;
+    }
+
+    /**
+     * Sets the bit at the given position of a prefix whose bits from that position on are all zero.
+     */
+    private long[] withBit(long high, long low, int position, int value) {
+        if (value == 0)
+            return new long[] { high, low };
+        if (width == IpAddressArithmetic.IPV4_BITS)
+            return new long[] { high, low | (1L << (IpAddressArithmetic.IPV4_BITS - 1 - position)) };
+        return position < 64 ? new long[] { high | (1L << (63 - position)), low }
+                : new long[] { high, low | (1L << (IpAddressArithmetic.IPV6_BITS - 1 - position)) };
+    }
+
+    /**
+     * Number of leading bits two addresses have in common.
+     */
+    private int commonPrefix(long highA, long lowA, long highB, long lowB) {
+        if (width == IpAddressArithmetic.IPV4_BITS)
+            return Long.numberOfLeadingZeros(lowA ^ lowB) - (64 - IpAddressArithmetic.IPV4_BITS);
+        long highDifference = highA ^ highB;
+        return highDifference != 0 ? Long.numberOfLeadingZeros(highDifference) : 64 + Long.numberOfLeadingZeros(lowA ^ lowB);
+    }
+
+    private long maskHigh(int maskBits) {
+        return width == IpAddressArithmetic.IPV4_BITS ? 0 : IpAddressArithmetic.ipv6MaskHigh(maskBits);
+    }
+
+    private long maskLow(int maskBits) {
+        return width == IpAddressArithmetic.IPV4_BITS ? IpAddressArithmetic.ipv4Mask(maskBits) & 0xffffffffL : IpAddressArithmetic.ipv6MaskLow(maskBits);
+    }
+
+    private long[] lastAddress(long high, long low, int maskBits) {
+        return new long[] { high | ~maskHigh(maskBits) & (width == IpAddressArithmetic.IPV4_BITS ? 0 : -1L), low | (~maskLow(maskBits) & maskLow(width)) };
+    }
+
+    private long[] increment(long high, long low) {
+        return low == -1L ? new long[] { high + 1, 0 } : new long[] { high, low + 1 };
+    }
+
+    private static int compare(long[] address, long high, long low) {
+        return IpAddressArithmetic.ipv6Compare(address[0], address[1], high, low);
+    }
+
+    private static int compare(long highA, long lowA, long highB, long lowB) {
+        return IpAddressArithmetic.ipv6Compare(highA, lowA, highB, lowB);
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Parsing and formatting">
+    /**
+     * Parses an address of the version of this index into its high and low parts.
+     */
+    private long[] parseAddress(String ipAddress) throws InvalidArgumentException {
+        try {
+            if (width == IpAddressArithmetic.IPV4_BITS)
+                return new long[] { 0, IpAddressArithmetic.ipv4ToInt(ipAddress) & 0xffffffffL };
+            return IpAddressArithmetic.ipv6ToLongs(ipAddress);
+        } catch (NumberFormatException | NullPointerException ex) {
+            throw new InvalidArgumentException(String.format("Invalid IP address %s", ipAddress));
+        }
+    }
+
+    /**
+     * Parses a subnet in CIDR notation into the high and low parts of its network address and its mask bits.
+     */
+    private long[] parseCidr(String cidr) throws InvalidArgumentException {
+        int slash = cidr == null ? -1 : cidr.indexOf('/');
+        if (slash == -1)
+            throw new InvalidArgumentException(String.format("Invalid subnet %s", cidr));
+        int maskBits;
+        try {
+            maskBits = Integer.parseInt(cidr.substring(slash + 1));
+        } catch (NumberFormatException ex) {
+            throw new InvalidArgumentException(String.format("Invalid subnet %s", cidr));
+        }
+        if (maskBits < 0 || maskBits > width)
+            throw new InvalidArgumentException(String.format("Invalid subnet %s", cidr));
+        return toPrefix(parseAddress(cidr.substring(0, slash)), maskBits);
+    }
+
+    private long[] toPrefix(long[] address, int maskBits) {
+        return new long[] { address[0] & maskHigh(maskBits), address[1] & maskLow(maskBits), maskBits };
+    }
+
+    private String format(long high, long low) {
+        return width == IpAddressArithmetic.IPV4_BITS ? IpAddressArithmetic.ipv4ToString((int) low) : IpAddressArithmetic.ipv6ToString(high, low);
+    }
+    // </editor-fold>
+
+    /**
+     * A subnet or an IP address in the index.
+     */
+    public static final class Entry {
+        /**
+         * The id of the subnet or IP address.
+         */
+        private final String id;
+        /**
+         * The subnet in CIDR notation or the IP address.
+         */
+        private final String name;
+        /**
+         * If the entry is an IP address.
+         */
+        private final boolean address;
+
+        private Entry(String id, SubnetIndex index, Node node, boolean address) {
+            this.id = id;
+            this.name = address ? index.format(node.high, node.low) : index.format(node.high, node.low) + "/" + node.depth; //NOI18N
+            this.address = address;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isAddress() {
+            return address;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * A node of the trie. A node may hold a subnet, an IP address (only at the deepest level), both or none
+     * (if it only joins two branches).
+     */
+    private static final class Node {
+        /**
+         * The 64 most significant bits of the prefix. Always 0 in IPv4.
+         */
+        private final long high;
+        /**
+         * The 64 least significant bits of the prefix. In IPv4, the address as an unsigned number.
+         */
+        private final long low;
+        /**
+         * The length of the prefix.
+         */
+        private final int depth;
+        private Node parent;
+        /**
+         * The branch where the next bit is 0.
+         */
+        private Node zero;
+        /**
+         * The branch where the next bit is 1.
+         */
+        private Node one;
+        private String subnetId;
+        private String addressId;
+        /**
+         * The number of host bits of the largest aligned block below this node with no entries, not taking
+         * into account the entries of the node itself. -1 if there is none.
+         */
+        private int free;
+
+        private Node(long high, long low, int depth) {
+            this.high = high;
+            this.low = low;
+            this.depth = depth;
+        }
+
+        private boolean isOccupied() {
+            return subnetId != null || addressId != null;
+        }
+
+        private Node child(int branch) {
+            return branch == 0 ? zero : one;
+        }
+
+        private void setChild(int branch, Node child) {
+            if (branch == 0)
+                zero = child;
+            else
+                one = child;
+            if (child != null)
+                child.parent = this;
+        }
+    }
+}
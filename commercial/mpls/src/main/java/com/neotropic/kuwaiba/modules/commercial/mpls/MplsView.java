@@ -248,6 +248,8 @@ public class MplsView extends AbstractView<Component> {
         QName qEdge = new QName("edge"); //NOI18N
         QName qControlPoint = new QName("controlpoint"); //NOI18N
         try {
+            HashMap<String, BusinessObjectLight> viewObjects = getViewObjects(structure, bem);
+            List<String> missingObjects = new ArrayList();
             ByteArrayInputStream bais = new ByteArrayInputStream(structure);
             XMLStreamReader reader = inputFactory.createXMLStreamReader(bais);
 
@@ -261,7 +263,7 @@ public class MplsView extends AbstractView<Component> {
                         int yCoordinate = Double.valueOf(reader.getAttributeValue(null,"y")).intValue();
                         String objectId = reader.getElementText();
                         //this side is connected
-                        BusinessObjectLight lol = bem.getObjectLight(objectClass, objectId);
+                        BusinessObjectLight lol = viewObjects.get(objectId);
                         if (lol != null) {
                            String uri = StreamResourceRegistry.getURI(resourceFactory.getClassIcon(lol.getClassName())).toString();       
                            
@@ -273,7 +275,8 @@ public class MplsView extends AbstractView<Component> {
                         }
                         else if(objectId.equals("-1")) { // we create an empty side
                             emptySides.add(new BusinessObjectLight("", UUID.randomUUID().toString() + "-" + (objectId), ""));
-                        }
+                        } else
+                            missingObjects.add(String.format("%s [%s]", objectId, objectClass)); //NOI18N
                     }else {
                         if (reader.getName().equals(qEdge)){
                             String mplsLinkId = reader.getAttributeValue(null, "id");
@@ -284,7 +287,7 @@ public class MplsView extends AbstractView<Component> {
                             String bSideClass = reader.getAttributeValue(null, "bsideclass");
                             
                             String className = reader.getAttributeValue(null, "class");
-                            BusinessObjectLight mplsLink = bem.getObject(className, mplsLinkId);
+                            BusinessObjectLight mplsLink = viewObjects.get(mplsLinkId);
                             BusinessObjectLight endPointA = null;
                             BusinessObjectLight endPointB = null;
                             if (mplsLink != null) {
@@ -338,12 +341,17 @@ public class MplsView extends AbstractView<Component> {
                                 props.put("sourceLabel", endPointA == null ? "" : endPointA.getName());
                                 props.put("targetLabel", endPointB == null ? "" : endPointB.getName());
                                 addEdge(mplsLink, aSideObject, bSideObject, props);
-                            }
+                            } else
+                                missingObjects.add(String.format("%s [%s]", mplsLinkId, className)); //NOI18N
                         }
                     }
                 }
             }
             reader.close();
+            if (!missingObjects.isEmpty())
+                new SimpleNotification(ts.getTranslatedString("module.general.messages.warning"), 
+                        String.format(ts.getTranslatedString("module.general.messages.objects-not-found"), String.join(", ", missingObjects)), 
+                            AbstractNotification.NotificationType.WARNING, ts).open();
             MxGraphNode dummyNode = new MxGraphNode();
             dummyNode.setGeometry(0, 0, 0, 0);
             dummyNode.setMovable(false);
@@ -452,7 +460,7 @@ public class MplsView extends AbstractView<Component> {
             BusinessObjectViewNode aNode = new BusinessObjectViewNode(entry.getKey());
             aNode.getProperties().put("x", entry.getValue().getX());
             aNode.getProperties().put("y", entry.getValue().getY());
-            this.viewMap.getNodes().add(aNode);
+            this.viewMap.addNode(aNode);
         }
         
         for (Map.Entry<BusinessObjectLight, MxGraphEdge> entry : mxgraphCanvas.getEdges().entrySet()) {
@@ -461,7 +469,7 @@ public class MplsView extends AbstractView<Component> {
             anEdge.getProperties().put("sourceLabel", entry.getValue().getSourceLabel() == null ? "" : entry.getValue().getSourceLabel());
             anEdge.getProperties().put("targetLabel", entry.getValue().getTargetLabel() == null ? "" : entry.getValue().getTargetLabel());
             
-            this.viewMap.getEdges().add(anEdge);
+            this.viewMap.addEdge(anEdge);
             this.viewMap.attachSourceNode(anEdge, new BusinessObjectViewNode(mxgraphCanvas.findSourceEdgeObject(entry.getKey())));
             this.viewMap.attachTargetNode(anEdge, new BusinessObjectViewNode(mxgraphCanvas.findTargetEdgeObject(entry.getKey())));
         }
@@ -129,6 +129,11 @@ public class OutsidePlantManagerUI extends VerticalLayout implements HasDynamicT
      */
     @Autowired
     private EditConnectionsVisualAction editConnectionEndPointsWidget;
+    /**
+     * Reference to the Outside Plant Service.
+     */
+    @Autowired
+    private OutsidePlantService ospService;
     
     @Override
     public String getPageTitle() {
@@ -153,7 +158,8 @@ public class OutsidePlantManagerUI extends VerticalLayout implements HasDynamicT
             viewWidgetRegistry, 
             explorerWidgetRegistry,
             ospExternalServicesProvider,
-            editConnectionEndPointsWidget
+            editConnectionEndPointsWidget,
+            ospService
         );
         add(this.dashboard);
     }
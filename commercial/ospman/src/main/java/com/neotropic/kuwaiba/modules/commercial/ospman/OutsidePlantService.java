@@ -15,9 +15,37 @@
  */
 package com.neotropic.kuwaiba.modules.commercial.ospman;
 
+import com.neotropic.kuwaiba.modules.commercial.ospman.api.OspConstants;
+import com.neotropic.kuwaiba.modules.commercial.ospman.engine.SpatialIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectChange;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectChangeListener;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.BusinessObjectNotFoundException;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InventoryException;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.MetadataObjectNotFoundException;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.MetadataEntityManager;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
+import org.neotropic.kuwaiba.core.services.threading.ManagedJob;
+import org.neotropic.kuwaiba.core.services.threading.ManagedJobDescriptor;
+import org.neotropic.kuwaiba.core.services.threading.ThreadingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -53,6 +81,31 @@ public class OutsidePlantService {
      * Default minimum zoom level for the map when displaying labels.
      */
     public static final double DEFAULT_MIN_ZOOM_FOR_LABELS = 15;
+    /**
+     * Default number of nodes and edges above which a view is rendered by level of detail: only the features
+     * in the viewport are drawn, and when zoomed out, the nodes are clustered and the edges simplified. This
+     * value is used when the configuration variable <code>module.ospman.maxRenderedFeatures</code> can not be found.
+     */
+    public static final int DEFAULT_MAX_RENDERED_FEATURES = 2000;
+    /**
+     * Default minimum zoom level to draw the nodes and edges of views rendered by level of detail as they are,
+     * and allow their edition. This value is used when the configuration variable
+     * <code>module.ospman.minZoomForDetail</code> can not be found.
+     */
+    public static final double DEFAULT_MIN_ZOOM_FOR_DETAIL = 14;
+    /**
+     * Size in pixels of the cells used to cluster the nodes of views rendered by level of detail.
+     */
+    public static final double CLUSTER_CELL_SIZE = 48;
+    /**
+     * Maximum distance in pixels between a simplified edge and its actual path.
+     */
+    public static final double EDGE_SIMPLIFICATION_TOLERANCE = 1.5;
+    /**
+     * Fraction of the viewport size added to every side when fetching the features to draw, so small pans
+     * don't require drawing new ones.
+     */
+    public static final double VIEWPORT_PADDING = 0.25;
     /**
      * Default color for map labels.
      */
@@ -80,21 +133,387 @@ public class OutsidePlantService {
      * Generic Physical Container.
      */
     public static final String SPECIAL_RELATIONSHIP_OSPMAN_HAS_PATH = "ospHasPath"; //NOI18N
+    /**
+     * Size of the cells of the spatial index in degrees (about 11 km at the equator).
+     */
+    public static final double SPATIAL_INDEX_CELL_SIZE = 0.1;
+    /**
+     * Max number of created or moved objects waiting to be checked before the spatial index is built again, 
+     * e.g. after a bulk import, so they don't pile up if nobody queries the index for a long time. The current 
+     * index keeps answering the queries until the new one replaces it.
+     */
+    public static final int SPATIAL_INDEX_MAX_STALE_LOCATIONS = 10000;
+    /**
+     * Max time in seconds a query waits for the spatial index to be built when there is none yet.
+     */
+    public static final int SPATIAL_INDEX_BUILD_TIMEOUT = 60;
     /**
      * Reference to the Metadata Entity Manager.
      */
     @Autowired
     private MetadataEntityManager mem;
+    /**
+     * Reference to the Business Entity Manager.
+     */
+    @Autowired
+    private BusinessEntityManager bem;
     /**
      * Reference to the Translate Service.
      */
     @Autowired
     private TranslationService ts;
+    /**
+     * Reference to the Threading Service, which runs the construction of the spatial index.
+     */
+    @Autowired
+    private ThreadingService threadingService;
+    /**
+     * In-memory index of the positions of the locations. Null until it is built.
+     */
+    private volatile SpatialIndex spatialIndex;
+    /**
+     * The objects created, or whose position or name changed, since they were indexed. They are read again before 
+     * the next query. The key is the id of the object and the value its class.
+     */
+    private final ConcurrentHashMap<String, String> staleLocations = new ConcurrentHashMap<>();
+    /**
+     * The changes committed while the spatial index is being built. Null if it is not being built.
+     */
+    private List<BusinessObjectChange> pendingChanges;
+    /**
+     * The construction of the spatial index in progress. Null if it is not being built.
+     */
+    private CompletableFuture<Void> spatialIndexBuild;
+    /**
+     * Guards the replacement of the spatial index, the pending changes and the construction in progress.
+     */
+    private final Object spatialIndexLock = new Object();
+    /**
+     * Keeps the spatial index up to date with the locations created, moved or deleted anywhere in the application.
+     */
+    private final BusinessObjectChangeListener locationChangeListener = this::locationsChanged;
 
     @PostConstruct
     public void init() {
         mem.setSpecialRelationshipDisplayName(
                 SPECIAL_RELATIONSHIP_OSPMAN_HAS_PATH,
                 ts.getTranslatedString("module.ospman.special-relationship.ospman-has-path.display-name"));
+        bem.addChangeListener(locationChangeListener);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        bem.removeChangeListener(locationChangeListener);
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="Spatial index">
+    /**
+     * Starts building in background the in-memory index of the positions of all the locations (instances of 
+     * GenericLocation) with a <code>latitude</code> and a <code>longitude</code>, used to answer the geographic 
+     * queries without reading every location. The locations are read without holding any lock, the changes 
+     * committed in the meantime are applied to the new index, and then it replaces the current one (if any). 
+     * If the index is already being built, nothing new is started.
+     * @return The construction in progress, or null if it could not be started (the reason is logged).
+     */
+    public CompletableFuture<Void> buildSpatialIndex() {
+        synchronized (spatialIndexLock) {
+            if (spatialIndexBuild != null)
+                return spatialIndexBuild;
+            
+            ManagedJob<Void> job = new ManagedJob<Void>(null) {
+                @Override
+                public Void get() {
+                    try {
+                        loadSpatialIndex();
+                        descriptor.setState(ManagedJobDescriptor.STATE_END_SUCCESS);
+                        return null;
+                    } catch (InventoryException ex) {
+                        throw new CompletionException(ex);
+                    } finally {
+                        if (descriptor.getState() == ManagedJobDescriptor.STATE_RUNNING)
+                            descriptor.setState(ManagedJobDescriptor.STATE_END_ERROR);
+                        descriptor.setEndTime(Calendar.getInstance().getTimeInMillis());
+                    }
+                }
+            };
+            job.getDescriptor().setDescription("Outside plant spatial index construction"); //NOI18N
+            try {
+                spatialIndexBuild = threadingService.startJob(job);
+            } catch (IllegalArgumentException ex) {
+                Logger.getLogger(OutsidePlantService.class.getName()).log(Level.SEVERE, 
+                        String.format("[KUWAIBA] [%s] The outside plant spatial index could not be built: %s", //NOI18N
+                                Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+                return null;
+            }
+            return spatialIndexBuild.whenComplete((result, ex) -> {
+                synchronized (spatialIndexLock) {
+                    spatialIndexBuild = null;
+                }
+                try {
+                    threadingService.removeJob(job.getDescriptor().getId());
+                } catch (IllegalArgumentException iae) {} // Already removed from the job table
+                if (ex != null)
+                    Logger.getLogger(OutsidePlantService.class.getName()).log(Level.SEVERE, 
+                            String.format("[KUWAIBA] [%s] The outside plant spatial index could not be built: %s", //NOI18N
+                                    Calendar.getInstance().getTime(), ex.getCause() == null ? ex.getLocalizedMessage() : ex.getCause().getLocalizedMessage()));
+            });
+        }
+    }
+    
+    /**
+     * Discards the current spatial index, it will be built again the next time it is needed.
+     */
+    public void invalidateSpatialIndex() {
+        synchronized (spatialIndexLock) {
+            spatialIndex = null;
+            staleLocations.clear();
+        }
+    }
+    
+    /**
+     * Gets the locations inside a bounding box, e.g. the area currently displayed in a map. If the west 
+     * longitude is greater than the east one, the box is understood to cross the antimeridian.
+     * @param south The southern latitude.
+     * @param west The western longitude.
+     * @param north The northern latitude.
+     * @param east The eastern longitude.
+     * @param limit Max number of locations to be returned, -1 to return them all.
+     * @return The locations and their positions, in no particular order.
+     * @throws InvalidArgumentException If the coordinates are out of range or the spatial index could not be built.
+     */
+    public List<SpatialIndex.Entry> getLocationsInBoundingBox(double south, double west, double north, double east, int limit) 
+            throws InvalidArgumentException {
+        try {
+            return getSpatialIndex().getEntriesInBoundingBox(south, west, north, east, limit);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidArgumentException(ex.getMessage());
+        }
+    }
+    
+    /**
+     * Gets the locations within a given distance of a point.
+     * @param latitude The latitude of the point.
+     * @param longitude The longitude of the point.
+     * @param radius The distance in meters.
+     * @return The locations and their positions, the closest first. See {@link SpatialIndex#distance(double, double, double, double)}.
+     * @throws InvalidArgumentException If the position or the radius are not valid or the spatial index could not be built.
+     */
+    public List<SpatialIndex.Entry> getLocationsWithinRadius(double latitude, double longitude, double radius) 
+            throws InvalidArgumentException {
+        try {
+            return getSpatialIndex().getEntriesWithinRadius(latitude, longitude, radius);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidArgumentException(ex.getMessage());
+        }
+    }
+    
+    /**
+     * Gets the locations closest to a point.
+     * @param latitude The latitude of the point.
+     * @param longitude The longitude of the point.
+     * @param count Max number of locations to be returned.
+     * @param maxRadius Max distance in meters to search for locations, zero or less to search everywhere.
+     * @return The locations and their positions, the closest first.
+     * @throws InvalidArgumentException If the position or the count are not valid or the spatial index could not be built.
+     */
+    public List<SpatialIndex.Entry> getNearestLocations(double latitude, double longitude, int count, double maxRadius) 
+            throws InvalidArgumentException {
+        try {
+            return getSpatialIndex().getNearestEntries(latitude, longitude, count, maxRadius);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidArgumentException(ex.getMessage());
+        }
+    }
+    
+    /**
+     * Gets the spatial index, with the objects created, moved or renamed since the last query read again. If it 
+     * has not been built yet, the caller waits for its construction, which is shared by all the concurrent queries.
+     * @return The spatial index.
+     * @throws InvalidArgumentException If the locations could not be retrieved or the spatial index could not be built in time.
+     */
+    private SpatialIndex getSpatialIndex() throws InvalidArgumentException {
+        SpatialIndex index = spatialIndex;
+        try {
+            if (index == null)
+                index = awaitSpatialIndex();
+            refreshStaleLocations(index);
+            return index;
+        } catch (MetadataObjectNotFoundException ex) {
+            throw new InvalidArgumentException(ex.getMessage());
+        }
+    }
+    
+    /**
+     * Starts the construction of the spatial index, or joins the one in progress, and waits up to 
+     * {@link #SPATIAL_INDEX_BUILD_TIMEOUT} seconds for it to finish.
+     * @return The new spatial index.
+     * @throws MetadataObjectNotFoundException If the location class can not be found.
+     * @throws InvalidArgumentException If the spatial index could not be built in time.
+     */
+    private SpatialIndex awaitSpatialIndex() throws MetadataObjectNotFoundException, InvalidArgumentException {
+        CompletableFuture<Void> build = buildSpatialIndex();
+        if (build == null) // The construction could not be started, so the locations are read just for this query
+            return scanLocations();
+        try {
+            build.get(SPATIAL_INDEX_BUILD_TIMEOUT, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            throw new InvalidArgumentException(String.format("The spatial index is still being built after %s seconds, try again later", 
+                    SPATIAL_INDEX_BUILD_TIMEOUT));
+        } catch (ExecutionException ex) {
+            throw new InvalidArgumentException(String.format("The spatial index could not be built: %s", 
+                    ex.getCause() == null ? ex.getLocalizedMessage() : ex.getCause().getLocalizedMessage()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InvalidArgumentException("The construction of the spatial index was interrupted");
+        }
+        SpatialIndex index = spatialIndex;
+        // The index was invalidated right after it was built
+        return index == null ? scanLocations() : index;
+    }
+    
+    /**
+     * Reads the locations and builds the new spatial index. The changes committed while the locations are read 
+     * are applied once the index is ready, right before it replaces the current one.
+     * @throws MetadataObjectNotFoundException If the location class can not be found.
+     * @throws InvalidArgumentException If the locations could not be retrieved.
+     */
+    private void loadSpatialIndex() throws MetadataObjectNotFoundException, InvalidArgumentException {
+        synchronized (spatialIndexLock) {
+            pendingChanges = new ArrayList<>();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            SpatialIndex newIndex = scanLocations();
+            synchronized (spatialIndexLock) {
+                // The locations read before they were changed are read again before the next query
+                for (BusinessObjectChange change : pendingChanges) {
+                    if (change.getType() == BusinessObjectChange.Type.DELETED)
+                        newIndex.remove(change.getId());
+                    else
+                        staleLocations.put(change.getId(), change.getClassName());
+                }
+                spatialIndex = newIndex;
+            }
+            Logger.getLogger(OutsidePlantService.class.getName()).log(Level.INFO, 
+                    String.format("[KUWAIBA] [%s] Outside plant spatial index built with %s locations in %s ms", //NOI18N
+                            Calendar.getInstance().getTime(), newIndex.size(), System.currentTimeMillis() - start));
+        } finally {
+            synchronized (spatialIndexLock) {
+                pendingChanges = null;
+            }
+        }
+    }
+    
+    /**
+     * Reads the positions of all the locations into a new index, with a single query.
+     * @return The new index.
+     * @throws MetadataObjectNotFoundException If the location class can not be found.
+     * @throws InvalidArgumentException If the locations could not be retrieved.
+     */
+    private SpatialIndex scanLocations() throws MetadataObjectNotFoundException, InvalidArgumentException {
+        SpatialIndex newIndex = new SpatialIndex(SPATIAL_INDEX_CELL_SIZE);
+        bem.streamObjectsOfClassWithAttributes(Constants.CLASS_GENERICLOCATION, 
+                Arrays.asList(OspConstants.ATTR_LATITUDE, OspConstants.ATTR_LONGITUDE), location -> 
+                    indexLocation(newIndex, location.getObject(), 
+                            location.getAttributes().get(OspConstants.ATTR_LATITUDE), 
+                            location.getAttributes().get(OspConstants.ATTR_LONGITUDE)));
+        return newIndex;
+    }
+    
+    /**
+     * Removes the deleted locations from the spatial index, and keeps the created ones and those whose position 
+     * or name changed to be read again before the next query, so the queries are answered from memory. Nothing 
+     * is kept while there is no index, the locations will be read along with the rest when it is built. If too 
+     * many locations are waiting to be read, the index is built again in background.
+     */
+    private void locationsChanged(List<BusinessObjectChange> changes) {
+        synchronized (spatialIndexLock) {
+            if (spatialIndex == null && pendingChanges == null)
+                return;
+            for (BusinessObjectChange change : changes) {
+                if (change.getType() == BusinessObjectChange.Type.DELETED) {
+                    staleLocations.remove(change.getId());
+                    if (spatialIndex != null)
+                        spatialIndex.remove(change.getId());
+                } else if (change.getClassName() != null && (change.getType() == BusinessObjectChange.Type.CREATED 
+                        || change.getChangedAttributes().contains(OspConstants.ATTR_LATITUDE) 
+                        || change.getChangedAttributes().contains(OspConstants.ATTR_LONGITUDE)
+                        || change.getChangedAttributes().contains(Constants.PROPERTY_NAME)))
+                    staleLocations.put(change.getId(), change.getClassName());
+                else
+                    continue;
+                if (pendingChanges != null)
+                    pendingChanges.add(change);
+            }
+            if (staleLocations.size() > SPATIAL_INDEX_MAX_STALE_LOCATIONS && pendingChanges == null) {
+                // The stale locations will be read along with the rest, the current index answers the queries in the meantime
+                staleLocations.clear();
+                buildSpatialIndex();
+            }
+        }
+    }
+    
+    /**
+     * Reads again the positions of the objects created, moved or renamed since the last query, and updates the 
+     * spatial index. The objects that are not locations are skipped. The refreshes are made one at a time, so an older position 
+     * can't overwrite a newer one.
+     * @param index The spatial index.
+     * @throws MetadataObjectNotFoundException If the location class can not be found.
+     */
+    private void refreshStaleLocations(SpatialIndex index) throws MetadataObjectNotFoundException {
+        if (staleLocations.isEmpty())
+            return;
+        
+        synchronized (staleLocations) {
+            HashMap<String, List<String>> locationIds = new HashMap<>();
+            for (String locationId : staleLocations.keySet()) {
+                String className = staleLocations.remove(locationId);
+                if (className != null)
+                    locationIds.computeIfAbsent(className, key -> new ArrayList<>()).add(locationId);
+            }
+            for (String className : locationIds.keySet()) {
+                try {
+                    if (!mem.isSubclassOf(Constants.CLASS_GENERICLOCATION, className))
+                        continue;
+                } catch (MetadataObjectNotFoundException ex) { // The class was deleted along with its instances
+                    continue;
+                }
+                for (String locationId : locationIds.get(className)) {
+                    try {
+                        HashMap<String, String> attributes = bem.getAttributeValuesAsString(className, locationId);
+                        indexLocation(index, new BusinessObjectLight(className, locationId, attributes.get(Constants.PROPERTY_NAME)), 
+                                attributes.get(OspConstants.ATTR_LATITUDE), attributes.get(OspConstants.ATTR_LONGITUDE));
+                    } catch (BusinessObjectNotFoundException ex) {
+                        index.remove(locationId);
+                    } catch (InventoryException ex) {
+                        Logger.getLogger(OutsidePlantService.class.getName()).log(Level.WARNING, 
+                                String.format("[KUWAIBA] [%s] The position of location %s can not be indexed: %s", //NOI18N
+                                        Calendar.getInstance().getTime(), locationId, ex.getLocalizedMessage()));
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Indexes the position of a location, or removes it from the index if it has no valid position.
+     */
+    private void indexLocation(SpatialIndex index, BusinessObjectLight location, String latitude, String longitude) {
+        try {
+            if (latitude != null && longitude != null) {
+                double lat = Double.parseDouble(latitude);
+                double lon = Double.parseDouble(longitude);
+                if (SpatialIndex.isValidPosition(lat, lon)) {
+                    index.put(location, lat, lon);
+                    return;
+                }
+            }
+        } catch (NumberFormatException ex) {
+            Logger.getLogger(OutsidePlantService.class.getName()).log(Level.WARNING, 
+                    String.format("[KUWAIBA] [%s] The position of location %s (%s) can not be indexed: %s", //NOI18N
+                            Calendar.getInstance().getTime(), location.getName(), location.getId(), ex.getLocalizedMessage()));
+        }
+        index.remove(location.getId());
     }
+    // </editor-fold>
 }
@@ -0,0 +1,188 @@
+/*
+ *  Copyright 2010-2023 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.neotropic.kuwaiba.modules.commercial.ospman.api;
+
+/**
+ * A rectangular area of the map, delimited by its south west and north east corners. If the area crosses the
+ * antimeridian, the west longitude is greater than the east longitude.
+ * @author agent {@literal <agent@local>}
+ */
+public class GeoBounds {
+    /**
+     * Size in pixels of the tiles used by the web mercator projection at zoom level 0.
+     */
+    private static final double TILE_SIZE = 256;
+    /**
+     * The southernmost latitude.
+     */
+    private final double south;
+    /**
+     * The westernmost longitude.
+     */
+    private final double west;
+    /**
+     * The northernmost latitude.
+     */
+    private final double north;
+    /**
+     * The easternmost longitude.
+     */
+    private final double east;
+
+    public GeoBounds(double south, double west, double north, double east) {
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+    }
+
+    public double getSouth() {
+        return south;
+    }
+
+    public double getWest() {
+        return west;
+    }
+
+    public double getNorth() {
+        return north;
+    }
+
+    public double getEast() {
+        return east;
+    }
+
+    /**
+     * Checks if the area covers all the longitudes.
+     * @return True if the area covers all the longitudes.
+     */
+    public boolean isWorldWide() {
+        return west == -180 && east == 180;
+    }
+
+    /**
+     * Checks if a position is inside the area.
+     * @param latitude The latitude of the position.
+     * @param longitude The longitude of the position.
+     * @return True if the position is inside the area.
+     */
+    public boolean contains(double latitude, double longitude) {
+        if (latitude < south || latitude > north)
+            return false;
+        return west <= east ? longitude >= west && longitude <= east : longitude >= west || longitude <= east;
+    }
+
+    /**
+     * Checks if another rectangular area overlaps this one.
+     * @param otherSouth The southernmost latitude of the other area.
+     * @param otherWest The westernmost longitude of the other area. It must be lower than or equal to the easternmost.
+     * @param otherNorth The northernmost latitude of the other area.
+     * @param otherEast The easternmost longitude of the other area.
+     * @return True if the areas overlap.
+     */
+    public boolean intersects(double otherSouth, double otherWest, double otherNorth, double otherEast) {
+        if (otherNorth < south || otherSouth > north)
+            return false;
+        if (west <= east)
+            return otherEast >= west && otherWest <= east;
+        return otherEast >= west || otherWest <= east;
+    }
+
+    /**
+     * Creates a copy of this area enlarged on every side by a fraction of its size, so small pans don't require
+     * fetching features again.
+     * @param ratio The fraction of the height and width added to every side.
+     * @return The enlarged area.
+     */
+    public GeoBounds pad(double ratio) {
+        double width = west <= east ? east - west : 360 - west + east;
+        double latitudeMargin = (north - south) * ratio;
+        double longitudeMargin = width * ratio;
+
+        if (width + 2 * longitudeMargin >= 360)
+            return new GeoBounds(Math.max(-90, south - latitudeMargin), -180, Math.min(90, north + latitudeMargin), 180);
+
+        return new GeoBounds(
+            Math.max(-90, south - latitudeMargin),
+            normalizeLongitude(west - longitudeMargin),
+            Math.min(90, north + latitudeMargin),
+            normalizeLongitude(east + longitudeMargin)
+        );
+    }
+
+    /**
+     * Creates a copy of this area enlarged on every side by a fixed number of degrees.
+     * @param degrees The degrees of latitude and longitude added to every side.
+     * @return The enlarged area.
+     */
+    public GeoBounds grow(double degrees) {
+        double width = west <= east ? east - west : 360 - west + east;
+
+        if (width + 2 * degrees >= 360)
+            return new GeoBounds(Math.max(-90, south - degrees), -180, Math.min(90, north + degrees), 180);
+
+        return new GeoBounds(
+            Math.max(-90, south - degrees),
+            normalizeLongitude(west - degrees),
+            Math.min(90, north + degrees),
+            normalizeLongitude(east + degrees)
+        );
+    }
+
+    /**
+     * Computes the area displayed by a map using the web mercator projection, as both Google Maps and OpenLayers do.
+     * @param center The center of the map.
+     * @param zoom The zoom level of the map.
+     * @param width The width of the map in pixels.
+     * @param height The height of the map in pixels.
+     * @return The area displayed by the map.
+     */
+    public static GeoBounds fromViewport(GeoCoordinate center, double zoom, double width, double height) {
+        double worldSize = TILE_SIZE * Math.pow(2, zoom);
+        double sinLatitude = Math.sin(Math.toRadians(Math.max(-85.0511, Math.min(85.0511, center.getLatitude()))));
+        double centerY = (0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI)) * worldSize;
+
+        double north = toLatitude(Math.max(0, centerY - height / 2), worldSize);
+        double south = toLatitude(Math.min(worldSize, centerY + height / 2), worldSize);
+        double longitudeSpan = width * 360 / worldSize;
+
+        if (longitudeSpan >= 360)
+            return new GeoBounds(south, -180, north, 180);
+
+        return new GeoBounds(south,
+            normalizeLongitude(center.getLongitude() - longitudeSpan / 2),
+            north,
+            normalizeLongitude(center.getLongitude() + longitudeSpan / 2)
+        );
+    }
+
+    private static double toLatitude(double y, double worldSize) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / worldSize))));
+    }
+
+    private static double normalizeLongitude(double longitude) {
+        while (longitude < -180)
+            longitude += 360;
+        while (longitude > 180)
+            longitude -= 360;
+        return longitude;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s, %s, %s, %s]", south, west, north, east); //NOI18N
+    }
+}
@@ -68,6 +68,12 @@ public interface MapProvider {
      * @param zoom map zoom
      */
     void setZoom(double zoom);
+    /**
+     * Gets the area of the map currently displayed. The size of the map is only known by the browser,
+     * so the area is delivered asynchronously.
+     * @param callback Operation that accepts the displayed area.
+     */
+    void getBounds(Consumer<GeoBounds> callback);
     /**
      * Gets the minimum zoom level for the map when displaying labels.
      * @return The minimum zoom level for the map when displaying labels.
@@ -40,6 +40,11 @@ public class OspConstants {
      * View Edge property controlPoints
      */
     public static final String PROPERTY_CONTROL_POINTS = "controlPoints"; //NOI18N
+    /**
+     * View Edge property with the (simplified) control points to be drawn instead of the actual ones. 
+     * It's only read when the edge is added to the map.
+     */
+    public static final String PROPERTY_DISPLAYED_CONTROL_POINTS = "displayedControlPoints"; //NOI18N
     
     public static final String BUSINESS_OBJECT_SOURCE = "source"; //NOI18N
     
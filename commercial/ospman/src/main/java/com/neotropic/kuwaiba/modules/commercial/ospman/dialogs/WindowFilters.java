@@ -31,10 +31,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.neotropic.kuwaiba.core.apis.integration.views.ViewMap;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.MetadataObjectNotFoundException;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadata;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.MetadataEntityManager;
@@ -52,21 +54,37 @@ import org.neotropic.util.visual.notifications.SimpleNotification;
 public class WindowFilters extends ConfirmDialog {
     private final MetadataEntityManager mem;
     private final TranslationService ts;
+    /**
+     * The view, whose nodes and edges are listed by class.
+     */
+    private final ViewMap viewMap;
+    /**
+     * The nodes and edges drawn on the map.
+     */
     private final HashMap<BusinessObjectViewNode, MapNode> nodes;
     private final HashMap<BusinessObjectViewEdge, MapEdge> edges;
+    /**
+     * The names of the classes hidden, shared with the view so the nodes and edges drawn later are hidden too.
+     */
+    private final Set<String> hiddenClasses;
     
-    public WindowFilters(
+    public WindowFilters(ViewMap viewMap, 
         HashMap<BusinessObjectViewNode, MapNode> nodes, 
         HashMap<BusinessObjectViewEdge, MapEdge> edges, 
+        Set<String> hiddenClasses, 
         MetadataEntityManager mem, TranslationService ts) {
         
+        Objects.requireNonNull(viewMap);
         Objects.requireNonNull(nodes);
         Objects.requireNonNull(edges);
+        Objects.requireNonNull(hiddenClasses);
         Objects.requireNonNull(mem);
         Objects.requireNonNull(ts);
         
+        this.viewMap = viewMap;
         this.nodes = nodes;
         this.edges = edges;
+        this.hiddenClasses = hiddenClasses;
         this.mem = mem;
         this.ts = ts;
         
@@ -80,40 +98,20 @@ public class WindowFilters extends ConfirmDialog {
     
     @Override
     public void open() {
-        List<ClassMetadata> classes = new ArrayList();
-        HashMap<ClassMetadata, List<MapNode>> mapNodeClasses = new HashMap();
-        HashMap<ClassMetadata, List<MapEdge>> mapEdgeClasses = new HashMap();
+        // Not only the drawn nodes and edges are counted, when the view is rendered by level of detail most are not drawn
+        LinkedHashMap<String, Integer> classCounts = new LinkedHashMap();
+        viewMap.getNodes().forEach(viewNode -> classCounts.merge(
+            ((BusinessObjectViewNode) viewNode).getIdentifier().getClassName(), 1, Integer::sum));
+        viewMap.getEdges().forEach(viewEdge -> classCounts.merge(
+            ((BusinessObjectViewEdge) viewEdge).getIdentifier().getClassName(), 1, Integer::sum));
         
-        nodes.forEach((viewNode, mapNode) -> {
-            try {
-                ClassMetadata mapNodeClass = mem.getClass(viewNode.getIdentifier().getClassName());
-                if (!classes.contains(mapNodeClass))
-                    classes.add(mapNodeClass);
-                
-                if (!mapNodeClasses.containsKey(mapNodeClass))
-                    mapNodeClasses.put(mapNodeClass, new ArrayList());
-                
-                mapNodeClasses.get(mapNodeClass).add(mapNode);
-                
-            } catch (MetadataObjectNotFoundException ex) {
-                new SimpleNotification(
-                    ts.getTranslatedString("module.general.messages.error"), 
-                    ex.getLocalizedMessage(), 
-                    AbstractNotification.NotificationType.ERROR, ts
-                ).open();
-            }
-        });
-        edges.forEach((viewEdge, mapEdge) -> {
+        List<ClassMetadata> classes = new ArrayList();
+        HashMap<ClassMetadata, Integer> featureCounts = new HashMap();
+        for (String className : classCounts.keySet()) {
             try {
-                ClassMetadata mapEdgeClass = mem.getClass(viewEdge.getIdentifier().getClassName());
-                if (!classes.contains(mapEdgeClass))
-                    classes.add(mapEdgeClass);
-                
-                if (!mapEdgeClasses.containsKey(mapEdgeClass))
-                    mapEdgeClasses.put(mapEdgeClass, new ArrayList());
-
-                mapEdgeClasses.get(mapEdgeClass).add(mapEdge);
-                
+                ClassMetadata featureClass = mem.getClass(className);
+                classes.add(featureClass);
+                featureCounts.put(featureClass, classCounts.get(className));
             } catch (MetadataObjectNotFoundException ex) {
                 new SimpleNotification(
                     ts.getTranslatedString("module.general.messages.error"), 
@@ -121,7 +119,7 @@ public class WindowFilters extends ConfirmDialog {
                     AbstractNotification.NotificationType.ERROR, ts
                 ).open();
             }
-        });
+        }
         if (classes.isEmpty())
             return;
         List<ClassMetadata> selectedClasses = new ArrayList();
@@ -129,9 +127,12 @@ public class WindowFilters extends ConfirmDialog {
         List<ClassMetadata> filteredSelectedClasses = new ArrayList();
         
         Collections.sort(classes, Comparator.comparing(ClassMetadata::toString));
-        selectedClasses.addAll(classes);
+        classes.forEach(featureClass -> {
+            if (!hiddenClasses.contains(featureClass.getName()))
+                selectedClasses.add(featureClass);
+        });
         filteredClasses.addAll(classes);
-        filteredSelectedClasses.addAll(classes);
+        filteredSelectedClasses.addAll(selectedClasses);
         
         TextField txtSearchClass = new TextField();
         txtSearchClass.setWidthFull();
@@ -146,17 +147,15 @@ public class WindowFilters extends ConfirmDialog {
         MultiSelectListBox<String> lstSelectAll = new MultiSelectListBox();
         lstSelectAll.setWidthFull();
         lstSelectAll.setItems(strSelectAll);
-        lstSelectAll.select(strSelectAll);
+        if (selectedClasses.size() == classes.size())
+            lstSelectAll.select(strSelectAll);
         
         MultiSelectListBox<ClassMetadata> lstClasses = new MultiSelectListBox();
         lstClasses.setSizeFull();
         lstClasses.setItems(classes);
         lstClasses.select(selectedClasses);
         lstClasses.setRenderer(new ComponentRenderer<>(item -> {
-            return new Label(String.format("%s (%s)", item.toString(), 
-                (mapNodeClasses.containsKey(item) ? mapNodeClasses.get(item).size() : 0) + 
-                (mapEdgeClasses.containsKey(item) ? mapEdgeClasses.get(item).size() : 0)
-            ));
+            return new Label(String.format("%s (%s)", item.toString(), featureCounts.getOrDefault(item, 0)));
         }));
         Command cmdLstSelectAll = () -> {
             boolean allSelected = true;
@@ -208,7 +207,7 @@ public class WindowFilters extends ConfirmDialog {
                     filteredSelectedClasses.clear();
                     lstClasses.deselectAll();
                 }
-                filterClasses(selectedClasses, mapNodeClasses, mapEdgeClasses);
+                filterClasses(classes, selectedClasses);
             }
         });
         lstClasses.addSelectionListener(event -> {
@@ -222,7 +221,7 @@ public class WindowFilters extends ConfirmDialog {
                     filteredSelectedClasses.remove(item);
                 });
                 cmdLstSelectAll.execute();
-                filterClasses(selectedClasses, mapNodeClasses, mapEdgeClasses);
+                filterClasses(classes, selectedClasses);
             }
         });
         Scroller scroller = new Scroller();
@@ -246,22 +245,21 @@ public class WindowFilters extends ConfirmDialog {
 
     @Override
     public void close() {
+        hiddenClasses.clear();
         nodes.values().forEach(node -> node.setNodeVisible(true));
         edges.values().forEach(edge -> edge.setEdgeVisible(true));
         super.close();
     }
     
-    private void filterClasses(List<ClassMetadata> selectedClasses, 
-        HashMap<ClassMetadata, List<MapNode>> mapNodeClasses, 
-        HashMap<ClassMetadata, List<MapEdge>> mapEdgeClasses) {
-        
-        mapNodeClasses.forEach((mapNodeClass, mapNodes) -> {
-            boolean visible = selectedClasses.contains(mapNodeClass);
-            mapNodes.forEach(mapNode -> mapNode.setNodeVisible(visible));
-        });
-        mapEdgeClasses.forEach((mapEdgeClass, mapEdges) -> {
-            boolean visible = selectedClasses.contains(mapEdgeClass);
-            mapEdges.forEach(mapEdge -> mapEdge.setEdgeVisible(visible));
+    private void filterClasses(List<ClassMetadata> classes, List<ClassMetadata> selectedClasses) {
+        hiddenClasses.clear();
+        classes.forEach(featureClass -> {
+            if (!selectedClasses.contains(featureClass))
+                hiddenClasses.add(featureClass.getName());
         });
+        nodes.forEach((viewNode, mapNode) -> 
+            mapNode.setNodeVisible(!hiddenClasses.contains(viewNode.getIdentifier().getClassName())));
+        edges.forEach((viewEdge, mapEdge) -> 
+            mapEdge.setEdgeVisible(!hiddenClasses.contains(viewEdge.getIdentifier().getClassName())));
     }
 }
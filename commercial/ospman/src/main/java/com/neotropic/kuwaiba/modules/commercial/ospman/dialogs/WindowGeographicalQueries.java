@@ -15,6 +15,7 @@
  */
 package com.neotropic.kuwaiba.modules.commercial.ospman.dialogs;
 
+import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.MapProvider;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.UnitOfLength;
 import com.vaadin.flow.component.button.Button;
@@ -64,6 +65,7 @@ public class WindowGeographicalQueries extends ConfirmDialog {
     private final Double lat;
     private final Double lng;
     private final MapProvider mapProvider;
+    private final OutsidePlantService ospService;
     
     public WindowGeographicalQueries(UnitOfLength unitOfLength, 
         Double lat, Double lng, List<AbstractViewNode> viewNodes,
@@ -77,7 +79,8 @@ public class WindowGeographicalQueries extends ConfirmDialog {
         PhysicalConnectionsService physicalConnectionsService,
         TranslationService ts,
         Consumer<BusinessObjectLight> consumerLocateNode, 
-        MapProvider mapProvider) {
+        MapProvider mapProvider,
+        OutsidePlantService ospService) {
         
         this(unitOfLength, null, 
             lat, lng, viewNodes, 
@@ -86,7 +89,7 @@ public class WindowGeographicalQueries extends ConfirmDialog {
             viewWidgetRegistry, 
             explorerWidgetRegistry, 
             aem, bem, mem, physicalConnectionsService, ts, 
-            consumerLocateNode, mapProvider);
+            consumerLocateNode, mapProvider, ospService);
     }
     
     public WindowGeographicalQueries(UnitOfLength unitOfLength, AbstractViewNode<BusinessObjectLight> selectedNode, 
@@ -101,7 +104,8 @@ public class WindowGeographicalQueries extends ConfirmDialog {
         PhysicalConnectionsService physicalConnectionsService, 
         TranslationService ts, 
         Consumer<BusinessObjectLight> consumerLocateNode,
-        MapProvider mapProvider) {
+        MapProvider mapProvider,
+        OutsidePlantService ospService) {
         
         this.unitOfLength = unitOfLength;
         this.selectedNode = selectedNode;
@@ -119,6 +123,7 @@ public class WindowGeographicalQueries extends ConfirmDialog {
         this.lng = lng;
         this.lat = lat;
         this.mapProvider = mapProvider;
+        this.ospService = ospService;
     }
     @Override
     public void open() {
@@ -141,7 +146,7 @@ public class WindowGeographicalQueries extends ConfirmDialog {
                         if (scriptedQuery != null) {
                             WindowGeographicalQuery wdwGeographicalQuery = new WindowGeographicalQuery(
                                 scriptedQuery, lat, lng, viewNodes, unitOfLength, aem, bem, mem, ts, physicalConnectionsService, consumerLocateNode,
-                                coreActionsRegistry, advancedActionsRegistry, viewWidgetRegistry, explorerWidgetRegistry, mapProvider
+                                coreActionsRegistry, advancedActionsRegistry, viewWidgetRegistry, explorerWidgetRegistry, mapProvider, ospService
                             );
                             wdwGeographicalQuery.setSelectedNode(selectedNode);
                             wdwGeographicalQuery.open();
@@ -15,6 +15,7 @@
  */
 package com.neotropic.kuwaiba.modules.commercial.ospman.dialogs;
 
+import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.GeoCoordinate;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.Heatmap;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.MapProvider;
@@ -75,6 +76,12 @@ public class WindowGeographicalQuery extends ConfirmDialog {
     private static final String PARAM_LONGITUDE = "longitude"; //NOI18
     private static final String PARAM_VIEW_NODES = "viewNodes"; //NOI18
     private static final String PARAM_RADIUS = "radius"; //NOI18N
+    /**
+     * Parameter that receives the Outside Plant Service, so the scripts can query its spatial index 
+     * (e.g. <code>scriptParameters.spatialIndex.getLocationsWithinRadius(latitude, longitude, radius)</code>) 
+     * instead of computing the distance to every location.
+     */
+    private static final String PARAM_SPATIAL_INDEX = "spatialIndex"; //NOI18N
     
     private final ApplicationEntityManager aem;
     private final BusinessEntityManager bem;
@@ -96,6 +103,7 @@ public class WindowGeographicalQuery extends ConfirmDialog {
     private ObjectOptionsWindow wdwObjectOptions;
     
     private final MapProvider mapProvider;
+    private final OutsidePlantService ospService;
     private ViewHeatmap viewHeatmap;
     private Heatmap heatmap;
     
@@ -109,7 +117,8 @@ public class WindowGeographicalQuery extends ConfirmDialog {
         AdvancedActionsRegistry advancedActionsRegistry,
         ViewWidgetRegistry viewWidgetRegistry,
         ExplorerWidgetRegistry explorerWidgetRegistry,
-        MapProvider mapProvider) {
+        MapProvider mapProvider,
+        OutsidePlantService ospService) {
         Objects.requireNonNull(scriptedQuery);
         Objects.requireNonNull(lat);
         Objects.requireNonNull(lng);
@@ -140,6 +149,7 @@ public class WindowGeographicalQuery extends ConfirmDialog {
         this.viewWidgetRegistry = viewWidgetRegistry;
         this.explorerWidgetRegistry = explorerWidgetRegistry;
         this.mapProvider = mapProvider;
+        this.ospService = ospService;
     }
     
     public AbstractViewNode getSelectedNode() {
@@ -427,6 +437,8 @@ public class WindowGeographicalQuery extends ConfirmDialog {
                     param.setValue(lng);
                 else if (PARAM_VIEW_NODES.equals(param.getName()))
                     param.setValue(viewNodes);
+                else if (PARAM_SPATIAL_INDEX.equals(param.getName()))
+                    param.setValue(ospService);
                 else {
                     if (Constants.DATA_TYPE_STRING.equals(param.getType())) {
                         TextField txtParam = new TextField();
@@ -15,6 +15,7 @@
  */
 package com.neotropic.kuwaiba.modules.commercial.ospman.dialogs;
 
+import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.MapProvider;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.UnitOfLength;
 import com.vaadin.flow.component.button.Button;
@@ -60,6 +61,7 @@ public class WindowMap extends ConfirmDialog {
     private final TranslationService ts;
     private final Consumer<BusinessObjectLight> consumerLocateNode;
     private final MapProvider mapProvider;
+    private final OutsidePlantService ospService;
     
     public WindowMap(UnitOfLength unitOfLength, 
         Double lat, Double lng, List<AbstractViewNode> viewNodes,
@@ -73,7 +75,8 @@ public class WindowMap extends ConfirmDialog {
         PhysicalConnectionsService physicalConnectionsService,
         TranslationService ts,
         Consumer<BusinessObjectLight> consumerLocateNode, 
-        MapProvider mapProvider) {
+        MapProvider mapProvider,
+        OutsidePlantService ospService) {
         
         this.unitOfLength = unitOfLength;
         this.lat = lat;
@@ -90,6 +93,7 @@ public class WindowMap extends ConfirmDialog {
         this.ts = ts;
         this.consumerLocateNode = consumerLocateNode;
         this.mapProvider = mapProvider;
+        this.ospService = ospService;
     }
 
     @Override
@@ -117,7 +121,8 @@ public class WindowMap extends ConfirmDialog {
                             viewWidgetRegistry, explorerWidgetRegistry, 
                             aem, bem, mem, physicalConnectionsService, ts, 
                             consumerLocateNode,
-                            mapProvider
+                            mapProvider,
+                            ospService
                         ).open();
                     break;
                 }
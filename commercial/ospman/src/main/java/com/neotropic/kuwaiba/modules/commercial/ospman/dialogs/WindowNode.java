@@ -16,6 +16,7 @@
 package com.neotropic.kuwaiba.modules.commercial.ospman.dialogs;
 
 import com.neotropic.kuwaiba.modules.commercial.osp.external.services.OutsidePlantExternalServicesProvider;
+import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.MapProvider;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.OspConstants;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.UnitOfLength;
@@ -80,7 +81,8 @@ public class WindowNode extends ConfirmDialog {
         Command cmdDeleteNode,
         Consumer<BusinessObjectLight> consumerLocateNode, 
         MapProvider mapProvider,
-        OutsidePlantExternalServicesProvider ospExternalServicesProvider) {
+        OutsidePlantExternalServicesProvider ospExternalServicesProvider,
+        OutsidePlantService ospService) {
         this.node = node;
         this.mem = mem;
         this.ts = ts;
@@ -159,7 +161,7 @@ public class WindowNode extends ConfirmDialog {
                             viewWidgetRegistry, 
                             explorerWidgetRegistry, 
                             aem, bem, mem, physicalConnectionsService, ts, 
-                            consumerLocateNode, mapProvider
+                            consumerLocateNode, mapProvider, ospService
                         ).open();
                     break;
                     case 4:
@@ -0,0 +1,177 @@
+/*
+ *  Copyright 2010-2023 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.neotropic.kuwaiba.modules.commercial.ospman.engine;
+
+import com.neotropic.kuwaiba.modules.commercial.ospman.api.GeoCoordinate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Operations used to reduce the number of features drawn on a map when it's zoomed out: nearby nodes are
+ * clustered and polylines are simplified. The computations are made on the web mercator projection
+ * (longitude and mercator latitude, both in degrees), so distances are proportional to pixels on screen.
+ * @author agent {@literal <agent@local>}
+ */
+public final class LevelOfDetail {
+    /**
+     * Size in pixels of the tiles used by the web mercator projection at zoom level 0.
+     */
+    private static final double TILE_SIZE = 256;
+    /**
+     * Maximum latitude that can be projected.
+     */
+    private static final double MAX_LATITUDE = 85.0511;
+
+    private LevelOfDetail() {
+    }
+
+    /**
+     * Gets the size of a pixel in projected degrees at a given zoom level.
+     * @param zoom The zoom level.
+     * @return The size of a pixel.
+     */
+    public static double getPixelSize(double zoom) {
+        return 360 / (TILE_SIZE * Math.pow(2, zoom));
+    }
+
+    /**
+     * Groups the items whose positions are close to each other in a grid of square cells, and picks as
+     * representative of every group the item closest to its center.
+     * @param <T> The type of the items.
+     * @param items The items to cluster.
+     * @param position Function that gets the position of an item.
+     * @param cellSize The size of the cells in projected degrees (see {@link #getPixelSize(double)}).
+     * @return The representative items (in the order they were found) mapped to the size of their groups.
+     */
+    public static <T> LinkedHashMap<T, Integer> cluster(Collection<T> items, Function<T, GeoCoordinate> position, double cellSize) {
+        LinkedHashMap<Long, List<T>> cells = new LinkedHashMap();
+        HashMap<T, double[]> projectedPositions = new HashMap();
+        long columns = (long) Math.ceil(360 / cellSize) + 1;
+
+        for (T item : items) {
+            GeoCoordinate coordinate = position.apply(item);
+            double[] projected = { coordinate.getLongitude(), toMercatorLatitude(coordinate.getLatitude()) };
+            long row = (long) Math.floor((projected[1] + 180) / cellSize);
+            long column = (long) Math.floor((projected[0] + 180) / cellSize);
+
+            projectedPositions.put(item, projected);
+            cells.computeIfAbsent(row * columns + column, key -> new ArrayList()).add(item);
+        }
+
+        LinkedHashMap<T, Integer> clusters = new LinkedHashMap();
+        for (List<T> members : cells.values()) {
+            double x = 0, y = 0;
+            for (T member : members) {
+                x += projectedPositions.get(member)[0];
+                y += projectedPositions.get(member)[1];
+            }
+            x /= members.size();
+            y /= members.size();
+
+            T representative = null;
+            double minDistance = Double.MAX_VALUE;
+            for (T member : members) {
+                double[] projected = projectedPositions.get(member);
+                double distance = (projected[0] - x) * (projected[0] - x) + (projected[1] - y) * (projected[1] - y);
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    representative = member;
+                }
+            }
+            clusters.put(representative, members.size());
+        }
+        return clusters;
+    }
+
+    /**
+     * Simplifies a polyline using the Douglas-Peucker algorithm. The first and last points are always kept.
+     * @param points The points of the polyline.
+     * @param tolerance The maximum distance in projected degrees (see {@link #getPixelSize(double)}) between
+     * the simplified polyline and the removed points.
+     * @return The points of the simplified polyline, or the same list if no point could be removed.
+     */
+    public static List<GeoCoordinate> simplify(List<GeoCoordinate> points, double tolerance) {
+        if (points == null || points.size() <= 2)
+            return points;
+
+        int size = points.size();
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = points.get(i).getLongitude();
+            y[i] = toMercatorLatitude(points.get(i).getLatitude());
+        }
+
+        boolean[] kept = new boolean[size];
+        kept[0] = kept[size - 1] = true;
+        double squaredTolerance = tolerance * tolerance;
+        // Iterative to avoid a deep recursion with long polylines
+        Deque<int[]> segments = new ArrayDeque();
+        segments.push(new int[] { 0, size - 1 });
+
+        while (!segments.isEmpty()) {
+            int[] segment = segments.pop();
+            int first = segment[0], last = segment[1];
+            int farthest = -1;
+            double maxDistance = squaredTolerance;
+
+            for (int i = first + 1; i < last; i++) {
+                double distance = getSquaredSegmentDistance(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest != -1) {
+                kept[farthest] = true;
+                segments.push(new int[] { first, farthest });
+                segments.push(new int[] { farthest, last });
+            }
+        }
+
+        List<GeoCoordinate> simplified = new ArrayList();
+        for (int i = 0; i < size; i++) {
+            if (kept[i])
+                simplified.add(points.get(i));
+        }
+        return simplified.size() == size ? points : simplified;
+    }
+
+    /**
+     * Projects a latitude to the web mercator projection.
+     * @param latitude The latitude.
+     * @return The projected latitude in degrees (between -180 and 180).
+     */
+    public static double toMercatorLatitude(double latitude) {
+        double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+        return Math.toDegrees(Math.log(Math.tan(Math.PI / 4 + Math.toRadians(clamped) / 2)));
+    }
+
+    private static double getSquaredSegmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax, dy = by - ay;
+        double squaredLength = dx * dx + dy * dy;
+        double t = squaredLength == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / squaredLength;
+        t = Math.max(0, Math.min(1, t));
+        double cx = ax + t * dx - px, cy = ay + t * dy - py;
+        return cx * cx + cy * cy;
+    }
+}
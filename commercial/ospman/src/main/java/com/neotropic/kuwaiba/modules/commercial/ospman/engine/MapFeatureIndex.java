@@ -0,0 +1,210 @@
+/*
+ *  Copyright 2010-2023 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.neotropic.kuwaiba.modules.commercial.ospman.engine;
+
+import com.neotropic.kuwaiba.modules.commercial.ospman.api.GeoBounds;
+import com.neotropic.kuwaiba.modules.commercial.ospman.api.GeoCoordinate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
+
+/**
+ * An in-memory index of the nodes and edges of a map, so the ones inside the area displayed can be found
+ * without going through all of them. The nodes are indexed by their position, and the edges by the center
+ * of the rectangle that bounds their control points, except the ones larger than a cell of the index, which
+ * are expected to be few and are checked one by one. It's meant to be used by a single view, so unlike
+ * {@link SpatialIndex}, it's not thread safe.
+ * @author agent {@literal <agent@local>}
+ */
+public final class MapFeatureIndex {
+    /**
+     * Size of the side of the cells in degrees.
+     */
+    private final double cellSize;
+    /**
+     * The positions of the nodes.
+     */
+    private final SpatialIndex nodeIndex;
+    /**
+     * The centers of the edges no larger than a cell.
+     */
+    private final SpatialIndex edgeIndex;
+    /**
+     * All the edges. The key is the id of the edge.
+     */
+    private final HashMap<String, EdgeEntry> edges;
+    /**
+     * The edges larger than a cell. The key is the id of the edge.
+     */
+    private final HashMap<String, EdgeEntry> largeEdges;
+
+    /**
+     * Creates an empty index.
+     * @param cellSize Size of the side of the cells in degrees (see {@link SpatialIndex#SpatialIndex(double)}).
+     */
+    public MapFeatureIndex(double cellSize) {
+        this.cellSize = cellSize;
+        this.nodeIndex = new SpatialIndex(cellSize);
+        this.edgeIndex = new SpatialIndex(cellSize);
+        this.edges = new HashMap<>();
+        this.largeEdges = new HashMap<>();
+    }
+
+    /**
+     * Adds a node to the index or moves it if it was already indexed. A node whose position is out of range
+     * is removed from the index, since it can't be displayed anyway.
+     * @param object The object represented by the node.
+     * @param latitude The latitude of the node.
+     * @param longitude The longitude of the node.
+     */
+    public void putNode(BusinessObjectLight object, double latitude, double longitude) {
+        if (SpatialIndex.isValidPosition(latitude, longitude))
+            nodeIndex.put(object, latitude, longitude);
+        else
+            nodeIndex.remove(object.getId());
+    }
+
+    /**
+     * Removes a node from the index.
+     * @param id The id of the object represented by the node.
+     */
+    public void removeNode(String id) {
+        nodeIndex.remove(id);
+    }
+
+    /**
+     * Adds an edge to the index or updates its path if it was already indexed. An edge without control points
+     * is removed from the index.
+     * @param object The object represented by the edge.
+     * @param controlPoints The control points of the edge.
+     */
+    public void putEdge(BusinessObjectLight object, List<GeoCoordinate> controlPoints) {
+        removeEdge(object.getId());
+        if (controlPoints == null || controlPoints.isEmpty())
+            return;
+
+        double south = 90, west = 180, north = -90, east = -180;
+        for (GeoCoordinate controlPoint : controlPoints) {
+            south = Math.min(south, controlPoint.getLatitude());
+            north = Math.max(north, controlPoint.getLatitude());
+            west = Math.min(west, controlPoint.getLongitude());
+            east = Math.max(east, controlPoint.getLongitude());
+        }
+        double centerLatitude = (south + north) / 2;
+        double centerLongitude = (west + east) / 2;
+        if (!SpatialIndex.isValidPosition(centerLatitude, centerLongitude))
+            return;
+
+        EdgeEntry entry = new EdgeEntry(object, south, west, north, east);
+        edges.put(object.getId(), entry);
+        if (Math.max(north - south, east - west) > cellSize)
+            largeEdges.put(object.getId(), entry);
+        else
+            edgeIndex.put(object, centerLatitude, centerLongitude);
+    }
+
+    /**
+     * Removes an edge from the index.
+     * @param id The id of the object represented by the edge.
+     */
+    public void removeEdge(String id) {
+        if (edges.remove(id) != null && largeEdges.remove(id) == null)
+            edgeIndex.remove(id);
+    }
+
+    /**
+     * Gets the nodes inside an area.
+     * @param bounds The area.
+     * @return The nodes and their positions, in no particular order.
+     */
+    public List<SpatialIndex.Entry> getNodes(GeoBounds bounds) {
+        return nodeIndex.getEntriesInBoundingBox(bounds.getSouth(), bounds.getWest(), bounds.getNorth(), bounds.getEast(), -1);
+    }
+
+    /**
+     * Gets the edges whose bounding rectangle overlaps an area.
+     * @param bounds The area.
+     * @return The edges and their bounding rectangles, in no particular order.
+     */
+    public List<EdgeEntry> getEdges(GeoBounds bounds) {
+        List<EdgeEntry> res = new ArrayList<>();
+        // The center of an edge no larger than a cell that overlaps the area is at most half a cell away from it
+        GeoBounds searchBounds = bounds.grow(cellSize / 2);
+        for (SpatialIndex.Entry candidate : edgeIndex.getEntriesInBoundingBox(
+                searchBounds.getSouth(), searchBounds.getWest(), searchBounds.getNorth(), searchBounds.getEast(), -1)) {
+            EdgeEntry entry = edges.get(candidate.getObject().getId());
+            if (entry.intersects(bounds))
+                res.add(entry);
+        }
+        largeEdges.values().forEach(entry -> {
+            if (entry.intersects(bounds))
+                res.add(entry);
+        });
+        return res;
+    }
+
+    /**
+     * An indexed edge and the rectangle that bounds its control points.
+     */
+    public static final class EdgeEntry {
+        /**
+         * The object represented by the edge.
+         */
+        private final BusinessObjectLight object;
+        private final double south;
+        private final double west;
+        private final double north;
+        private final double east;
+
+        public EdgeEntry(BusinessObjectLight object, double south, double west, double north, double east) {
+            this.object = object;
+            this.south = south;
+            this.west = west;
+            this.north = north;
+            this.east = east;
+        }
+
+        public BusinessObjectLight getObject() {
+            return object;
+        }
+
+        public double getSouth() {
+            return south;
+        }
+
+        public double getWest() {
+            return west;
+        }
+
+        public double getNorth() {
+            return north;
+        }
+
+        public double getEast() {
+            return east;
+        }
+
+        /**
+         * Checks if the bounding rectangle of the edge overlaps an area.
+         * @param bounds The area.
+         * @return True if they overlap.
+         */
+        public boolean intersects(GeoBounds bounds) {
+            return bounds.intersects(south, west, north, east);
+        }
+    }
+}
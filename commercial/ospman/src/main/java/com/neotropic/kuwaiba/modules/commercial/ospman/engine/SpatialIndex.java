@@ -0,0 +1,372 @@
+/*
+ *  Copyright 2010-2023 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.neotropic.kuwaiba.modules.commercial.ospman.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
+
+/**
+ * An in-memory index of the inventory objects that have a geographic position. The positions are bucketed
+ * in a grid of cells of a fixed size (in degrees), so the bounding box, within radius and nearest objects
+ * queries only read the cells around the requested area, no matter how many objects there are. Bounding
+ * boxes crossing the antimeridian are supported. The distances are great-circle distances in meters. The
+ * index can be used from several threads.
+ * @author agent {@literal <agent@local>}
+ */
+public final class SpatialIndex {
+    /**
+     * Mean radius of the Earth in meters.
+     */
+    public static final double EARTH_RADIUS = 6371008.8;
+    /**
+     * Half the circumference of the Earth in meters, the longest possible distance between two points.
+     */
+    private static final double MAX_DISTANCE = Math.PI * EARTH_RADIUS;
+    /**
+     * Size of the side of the cells in degrees.
+     */
+    private final double cellSize;
+    /**
+     * Number of columns of the grid.
+     */
+    private final int columns;
+    /**
+     * Number of rows of the grid.
+     */
+    private final int rows;
+    /**
+     * The entries of each non-empty cell. The key is the number of the cell.
+     */
+    private final HashMap<Long, List<Entry>> cells;
+    /**
+     * All the entries. The key is the id of the object.
+     */
+    private final HashMap<String, Entry> entries;
+    /**
+     * Guards the cells and the entries.
+     */
+    private final ReentrantReadWriteLock lock;
+
+    /**
+     * Creates an empty index.
+     * @param cellSize Size of the side of the cells in degrees. It should be in the order of the areas usually
+     * queried, e.g. 0.1 degrees are about 11 km at the equator.
+     */
+    public SpatialIndex(double cellSize) {
+        if (!(cellSize > 0 && cellSize <= 90))
+            throw new IllegalArgumentException(String.format("Invalid cell size %s", cellSize)); //NOI18N
+        this.cellSize = cellSize;
+        this.columns = (int) Math.ceil(360 / cellSize);
+        this.rows = (int) Math.ceil(180 / cellSize);
+        this.cells = new HashMap<>();
+        this.entries = new HashMap<>();
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an object to the index or moves it if it was already indexed.
+     * @param object The object.
+     * @param latitude The latitude of the object, between -90 and 90.
+     * @param longitude The longitude of the object, between -180 and 180.
+     * @throws IllegalArgumentException If the position is out of range.
+     */
+    public void put(BusinessObjectLight object, double latitude, double longitude) {
+        if (!isValidPosition(latitude, longitude))
+            throw new IllegalArgumentException(String.format("Invalid position %s, %s", latitude, longitude)); //NOI18N
+
+        Entry newEntry = new Entry(object, latitude, longitude);
+        lock.writeLock().lock();
+        try {
+            Entry oldEntry = entries.put(object.getId(), newEntry);
+            if (oldEntry != null)
+                removeFromCell(oldEntry);
+            cells.computeIfAbsent(getCell(latitude, longitude), key -> new ArrayList<>()).add(newEntry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the indexed position of an object.
+     * @param id The id of the object.
+     * @return The entry or null if the object is not indexed.
+     */
+    public Entry get(String id) {
+        lock.readLock().lock();
+        try {
+            return entries.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an object from the index.
+     * @param id The id of the object.
+     * @return True if the object was indexed.
+     */
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.remove(id);
+            if (entry == null)
+                return false;
+            removeFromCell(entry);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the objects inside a bounding box. If the west longitude is greater than the east one, the box
+     * is understood to cross the antimeridian.
+     * @param south The southern latitude.
+     * @param west The western longitude.
+     * @param north The northern latitude.
+     * @param east The eastern longitude.
+     * @param limit Max number of objects to be returned, -1 to return them all.
+     * @return The objects inside the box, in no particular order.
+     * @throws IllegalArgumentException If the coordinates are out of range or the south is above the north.
+     */
+    public List<Entry> getEntriesInBoundingBox(double south, double west, double north, double east, int limit) {
+        if (!isValidPosition(south, west) || !isValidPosition(north, east) || south > north)
+            throw new IllegalArgumentException(String.format("Invalid bounding box %s, %s, %s, %s", south, west, north, east)); //NOI18N
+
+        List<Entry> res = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (west <= east)
+                collect(south, west, north, east, limit, res);
+            else {
+                collect(south, west, north, 180, limit, res);
+                collect(south, -180, north, east, limit, res);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return res;
+    }
+
+    /**
+     * Gets the objects within a given distance of a point.
+     * @param latitude The latitude of the point.
+     * @param longitude The longitude of the point.
+     * @param radius The distance in meters.
+     * @return The objects found, the closest first.
+     * @throws IllegalArgumentException If the position is out of range or the radius is negative.
+     */
+    public List<Entry> getEntriesWithinRadius(double latitude, double longitude, double radius) {
+        if (!isValidPosition(latitude, longitude) || !(radius >= 0))
+            throw new IllegalArgumentException(String.format("Invalid position %s, %s or radius %s", latitude, longitude, radius)); //NOI18N
+
+        double angularRadius = Math.min(radius, MAX_DISTANCE) / EARTH_RADIUS;
+        double south = latitude - Math.toDegrees(angularRadius);
+        double north = latitude + Math.toDegrees(angularRadius);
+        double west = -180, east = 180;
+        // Unless the circle reaches a pole, its longitudes are bounded by the meridians tangent to it
+        if (south > -90 && north < 90) {
+            double deltaLongitude = Math.toDegrees(Math.asin(Math.sin(angularRadius) / Math.cos(Math.toRadians(latitude))));
+            if (deltaLongitude < 180) {
+                west = longitude - deltaLongitude;
+                east = longitude + deltaLongitude;
+                if (west < -180)
+                    west += 360;
+                if (east > 180)
+                    east -= 360;
+            }
+        }
+
+        List<Entry> candidates = getEntriesInBoundingBox(Math.max(south, -90), west, Math.min(north, 90), east, -1);
+        List<Entry> res = new ArrayList<>();
+        HashMap<Entry, Double> distances = new HashMap<>();
+        for (Entry candidate : candidates) {
+            double distance = distance(latitude, longitude, candidate.latitude, candidate.longitude);
+            if (distance <= radius) {
+                res.add(candidate);
+                distances.put(candidate, distance);
+            }
+        }
+        res.sort(Comparator.comparingDouble(distances::get));
+        return res;
+    }
+
+    /**
+     * Gets the objects closest to a point. The search area starts at the size of a cell and is doubled
+     * until enough objects are found.
+     * @param latitude The latitude of the point.
+     * @param longitude The longitude of the point.
+     * @param count Max number of objects to be returned.
+     * @param maxRadius Max distance in meters to search for objects, zero or less to search the whole index.
+     * @return The objects found, the closest first.
+     * @throws IllegalArgumentException If the position is out of range or the count is not greater than zero.
+     */
+    public List<Entry> getNearestEntries(double latitude, double longitude, int count, double maxRadius) {
+        if (count <= 0)
+            throw new IllegalArgumentException(String.format("Invalid number of objects %s", count)); //NOI18N
+
+        double limit = maxRadius > 0 ? Math.min(maxRadius, MAX_DISTANCE) : MAX_DISTANCE;
+        double radius = Math.min(Math.toRadians(cellSize) * EARTH_RADIUS, limit);
+        while (true) {
+            List<Entry> found = getEntriesWithinRadius(latitude, longitude, radius);
+            // Every object within the radius was found, so if there are enough, the closest ones are among them
+            if (found.size() >= count || radius >= limit)
+                return found.size() > count ? new ArrayList<>(found.subList(0, count)) : found;
+            radius = Math.min(radius * 2, limit);
+        }
+    }
+
+    /**
+     * Computes the great-circle distance between two points using the haversine formula.
+     * @param latitude1 The latitude of the first point.
+     * @param longitude1 The longitude of the first point.
+     * @param latitude2 The latitude of the second point.
+     * @param longitude2 The longitude of the second point.
+     * @return The distance in meters.
+     */
+    public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double sinDeltaLatitude = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+        double sinDeltaLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinDeltaLatitude * sinDeltaLatitude
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinDeltaLongitude * sinDeltaLongitude;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Checks if a latitude and a longitude are in range.
+     * @param latitude The latitude.
+     * @param longitude The longitude.
+     * @return True if the latitude is between -90 and 90 and the longitude between -180 and 180.
+     */
+    public static boolean isValidPosition(double latitude, double longitude) {
+        return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
+    /**
+     * Adds the entries inside a bounding box that doesn't cross the antimeridian. If the box covers more
+     * cells than there are entries, all the entries are checked instead. The read lock must be held.
+     */
+    private void collect(double south, double west, double north, double east, int limit, List<Entry> res) {
+        int firstRow = getRow(south), lastRow = getRow(north);
+        int firstColumn = getColumn(west), lastColumn = getColumn(east);
+
+        if ((long) (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1) > entries.size())
+            collect(entries.values(), south, west, north, east, limit, res);
+        else {
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    List<Entry> cell = cells.get((long) row * columns + column);
+                    if (cell != null && !collect(cell, south, west, north, east, limit, res))
+                        return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the given entries that are inside a bounding box.
+     * @return False if the limit was reached.
+     */
+    private boolean collect(Collection<Entry> candidates, double south, double west, double north, double east, int limit, List<Entry> res) {
+        for (Entry candidate : candidates) {
+            if (limit >= 0 && res.size() >= limit)
+                return false;
+            if (candidate.latitude >= south && candidate.latitude <= north
+                    && candidate.longitude >= west && candidate.longitude <= east)
+                res.add(candidate);
+        }
+        return limit < 0 || res.size() < limit;
+    }
+
+    /**
+     * Removes an entry from its cell. The write lock must be held.
+     */
+    private void removeFromCell(Entry entry) {
+        long cellKey = getCell(entry.latitude, entry.longitude);
+        List<Entry> cell = cells.get(cellKey);
+        if (cell != null) {
+            cell.remove(entry);
+            if (cell.isEmpty())
+                cells.remove(cellKey);
+        }
+    }
+
+    private long getCell(double latitude, double longitude) {
+        return (long) getRow(latitude) * columns + getColumn(longitude);
+    }
+
+    private int getRow(double latitude) {
+        return Math.min((int) ((latitude + 90) / cellSize), rows - 1);
+    }
+
+    private int getColumn(double longitude) {
+        return Math.min((int) ((longitude + 180) / cellSize), columns - 1);
+    }
+
+    /**
+     * An indexed object and its position.
+     */
+    public static final class Entry {
+        /**
+         * The object.
+         */
+        private final BusinessObjectLight object;
+        /**
+         * The latitude of the object.
+         */
+        private final double latitude;
+        /**
+         * The longitude of the object.
+         */
+        private final double longitude;
+
+        public Entry(BusinessObjectLight object, double latitude, double longitude) {
+            this.object = object;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public BusinessObjectLight getObject() {
+            return object;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+}
@@ -82,8 +82,10 @@ public class GoogleMapEdge extends GoogleMapPolyline implements MapEdge {
                     AbstractNotification.NotificationType.ERROR, ts
                 ).open();
             }
+            List<GeoCoordinate> displayedControlPoints = (List) viewEdge.getProperties().getOrDefault(
+                OspConstants.PROPERTY_DISPLAYED_CONTROL_POINTS, controlPoints);
             List<LatLng> path = new ArrayList();
-            controlPoints.forEach(controlPoint -> 
+            displayedControlPoints.forEach(controlPoint -> 
                 path.add(new LatLng(controlPoint.getLatitude(), controlPoint.getLongitude()))
             );
             if (mapProvider.getZoom() >= mapProvider.getMinZoomForLabels()) {
@@ -20,11 +20,13 @@ import com.neotropic.flow.component.googlemap.GeometryPoly;
 import com.neotropic.flow.component.googlemap.GoogleMap;
 import com.neotropic.flow.component.googlemap.OverlayType;
 import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
+import com.neotropic.kuwaiba.modules.commercial.ospman.api.GeoBounds;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.GeoCoordinate;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.Heatmap;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.MapEdge;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.MapNode;
 import com.vaadin.flow.component.Component;
+import elemental.json.JsonArray;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -310,6 +312,12 @@ public class GoogleMapsMapProvider implements MapProvider {
         googleMap.setZoom(zoom);
     }
     @Override
+    public void getBounds(Consumer<GeoBounds> callback) {
+        googleMap.getElement().executeJs("return [this.clientWidth, this.clientHeight];").then(JsonArray.class, size -> //NOI18N
+            callback.accept(GeoBounds.fromViewport(getCenter(), getZoom(), size.getNumber(0), size.getNumber(1)))
+        );
+    }
+    @Override
     public double getMinZoomForLabels() {
         return minZoomForLabels;
     }
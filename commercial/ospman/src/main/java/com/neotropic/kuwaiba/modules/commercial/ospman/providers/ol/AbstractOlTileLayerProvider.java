@@ -28,6 +28,7 @@ import com.neotropic.flow.component.olmap.interaction.FeatureContextMenu;
 import com.neotropic.flow.component.olmap.interaction.Modify;
 import com.neotropic.flow.component.olmap.interaction.Select;
 import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
+import com.neotropic.kuwaiba.modules.commercial.ospman.api.GeoBounds;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.GeoCoordinate;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.Heatmap;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.MapEdge;
@@ -282,6 +283,13 @@ public abstract class AbstractOlTileLayerProvider implements MapProvider {
 //        2
     }
 
+    @Override
+    public void getBounds(Consumer<GeoBounds> callback) {
+        olMap.getElement().executeJs("return [this.clientWidth, this.clientHeight];").then(JsonArray.class, size -> //NOI18N
+            callback.accept(GeoBounds.fromViewport(getCenter(), getZoom(), size.getNumber(0), size.getNumber(1)))
+        );
+    }
+
     @Override
     public double getMinZoomForLabels() {
         //12
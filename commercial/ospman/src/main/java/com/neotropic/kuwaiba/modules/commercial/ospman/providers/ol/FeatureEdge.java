@@ -134,7 +134,8 @@ public class FeatureEdge extends Feature implements MapEdge, ClickEventDispatche
             }
         };
         setProperties(properties);
-        List<GeoCoordinate> controlPoints = (List) viewEdge.getProperties().get(OspConstants.PROPERTY_CONTROL_POINTS);
+        List<GeoCoordinate> controlPoints = (List) viewEdge.getProperties().getOrDefault(
+                OspConstants.PROPERTY_DISPLAYED_CONTROL_POINTS, viewEdge.getProperties().get(OspConstants.PROPERTY_CONTROL_POINTS));
         controlPoints.forEach(controlPoint -> coordinates.add(
                 new PointCoordinates(controlPoint.getLongitude(), controlPoint.getLatitude())
         ));
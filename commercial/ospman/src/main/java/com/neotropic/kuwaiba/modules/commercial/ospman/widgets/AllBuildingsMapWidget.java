@@ -16,17 +16,12 @@
 
 package com.neotropic.kuwaiba.modules.commercial.ospman.widgets;
 
-import com.neotropic.kuwaiba.modules.commercial.ospman.api.OspConstants;
-import java.util.List;
+import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
-import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
-import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InventoryException;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.MetadataEntityManager;
-import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
-import org.neotropic.kuwaiba.visualization.api.BusinessObjectViewNode;
 import org.neotropic.kuwaiba.visualization.api.resources.ResourceFactory;
 import org.neotropic.util.visual.notifications.AbstractNotification;
 import org.neotropic.util.visual.notifications.SimpleNotification;
@@ -41,11 +36,16 @@ public class AllBuildingsMapWidget extends AbstractDashboardWidget {
      * Reference to the Resource Factory
      */
     private final ResourceFactory resourceFactory;
+    /**
+     * Reference to the Outside Plant Service, whose spatial index provides the positions of the locations
+     */
+    private final OutsidePlantService ospService;
     
     public AllBuildingsMapWidget(ApplicationEntityManager aem, BusinessEntityManager bem, 
-            MetadataEntityManager mem, TranslationService ts, ResourceFactory resourceFactory) {
+            MetadataEntityManager mem, TranslationService ts, ResourceFactory resourceFactory, OutsidePlantService ospService) {
         super(mem, aem, bem, ts);
         this.resourceFactory = resourceFactory;
+        this.ospService = ospService;
         setSizeFull();
         setMargin(false);
         setPadding(false);
@@ -59,36 +59,8 @@ public class AllBuildingsMapWidget extends AbstractDashboardWidget {
         try {
             OutsidePlantView ospView = new OutsidePlantView(aem, bem, mem, ts, resourceFactory);
             ospView.clean();
-            try {
-                List<BusinessObjectLight> allPhysicalLocation = bem.getObjectsOfClassLight(Constants.CLASS_GENERICLOCATION, null, -1, -1);
-                allPhysicalLocation.stream().forEach(aPhysicalLocation -> {
-                    try {
-                        String lat = bem.getAttributeValueAsString(aPhysicalLocation.getClassName(), aPhysicalLocation.getId(), "latitude"); //NOI18N
-                        if (lat != null) {
-                            String lng = bem.getAttributeValueAsString(aPhysicalLocation.getClassName(), aPhysicalLocation.getId(), "longitude"); //NOI18N
-                            if (lng != null) {
-                                BusinessObjectViewNode newViewNode = new BusinessObjectViewNode(aPhysicalLocation);
-                                newViewNode.getProperties().put(OspConstants.ATTR_LAT, Double.valueOf(lat));
-                                newViewNode.getProperties().put(OspConstants.ATTR_LON, Double.valueOf(lng));
-                                
-                                ospView.getAsViewMap().addNode(newViewNode);
-                            }
-                        }
-                    } catch (InventoryException ex) {
-                        new SimpleNotification(
-                            ts.getTranslatedString("module.general.messages.error"), 
-                            ex.getLocalizedMessage(),
-                            AbstractNotification.NotificationType.ERROR, ts
-                        ).open();
-                    }
-                });
-            } catch (InventoryException ex) {
-                new SimpleNotification(
-                    ts.getTranslatedString("module.general.messages.error"), 
-                    ex.getLocalizedMessage(),
-                    AbstractNotification.NotificationType.ERROR, ts
-                ).open();
-            }
+            // The locations are read from the spatial index as the map is panned, instead of being all added to the view
+            ospView.showLocations(ospService);
             if (ospView.getAsUiElement()!= null)
                 add(ospView.getAsUiElement());
         } catch (InvalidArgumentException ex) {
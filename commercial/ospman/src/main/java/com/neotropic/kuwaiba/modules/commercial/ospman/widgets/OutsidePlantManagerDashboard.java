@@ -16,6 +16,7 @@
 package com.neotropic.kuwaiba.modules.commercial.ospman.widgets;
 
 import com.neotropic.kuwaiba.modules.commercial.osp.external.services.OutsidePlantExternalServicesProvider;
+import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
 import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.Component;
 import com.vaadin.flow.component.dependency.CssImport;
@@ -113,6 +114,10 @@ public class OutsidePlantManagerDashboard extends HorizontalLayout implements Ab
      * Widget that allows connect and disconnect connections endpoints.
      */
     private final EditConnectionsVisualAction editConnectionEndPointsWidget;
+    /**
+     * Reference to the Outside Plant Service.
+     */
+    private final OutsidePlantService ospService;
     
     public OutsidePlantManagerDashboard(
         TranslationService ts, 
@@ -130,7 +135,8 @@ public class OutsidePlantManagerDashboard extends HorizontalLayout implements Ab
         ViewWidgetRegistry viewWidgetRegistry, 
         ExplorerWidgetRegistry explorerWidgetRegistry,
         OutsidePlantExternalServicesProvider ospExternalServicesProvider,
-        EditConnectionsVisualAction editConnectionEndPointsWidget) {
+        EditConnectionsVisualAction editConnectionEndPointsWidget,
+        OutsidePlantService ospService) {
         
         this.aem = aem;
         this.bem = bem;
@@ -148,6 +154,7 @@ public class OutsidePlantManagerDashboard extends HorizontalLayout implements Ab
         this.explorerWidgetRegistry = explorerWidgetRegistry;
         this.ospExternalServicesProvider = ospExternalServicesProvider;
         this.editConnectionEndPointsWidget = editConnectionEndPointsWidget;
+        this.ospService = ospService;
         setSizeFull();
         setPadding(false);
         setMargin(false);
@@ -181,7 +188,8 @@ public class OutsidePlantManagerDashboard extends HorizontalLayout implements Ab
                 explorerWidgetRegistry, 
                 lytAccordion,
                 ospExternalServicesProvider,
-                editConnectionEndPointsWidget
+                editConnectionEndPointsWidget,
+                ospService
             );
             ospView.clean();
             
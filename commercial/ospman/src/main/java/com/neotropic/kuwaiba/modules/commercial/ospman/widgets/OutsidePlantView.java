@@ -20,8 +20,12 @@ import com.neotropic.kuwaiba.modules.commercial.ospman.dialogs.DialogOspViews;
 import com.neotropic.kuwaiba.modules.commercial.ospman.dialogs.WindowContainers;
 import com.neotropic.kuwaiba.modules.commercial.ospman.dialogs.WindowNode;
 import com.neotropic.kuwaiba.modules.commercial.ospman.dialogs.WindowEdge;
+import com.neotropic.kuwaiba.modules.commercial.ospman.api.GeoBounds;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.GeoCoordinate;
 import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
+import com.neotropic.kuwaiba.modules.commercial.ospman.engine.LevelOfDetail;
+import com.neotropic.kuwaiba.modules.commercial.ospman.engine.MapFeatureIndex;
+import com.neotropic.kuwaiba.modules.commercial.ospman.engine.SpatialIndex;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.OspConstants;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.MapEdge;
 import com.neotropic.kuwaiba.modules.commercial.ospman.api.MapNode;
@@ -36,8 +40,11 @@ import java.io.ByteArrayOutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.xml.namespace.QName;
@@ -236,6 +243,10 @@ public class OutsidePlantView extends AbstractView<Component> {
      * Reference to the Outside Plant External Services Provider.
      */
     private OutsidePlantExternalServicesProvider ospExternalServicesProvider;
+    /**
+     * Reference to the Outside Plant Service, which keeps the spatial index of the locations.
+     */
+    private OutsidePlantService ospService;
 
     private EditConnectionsVisualAction editConnectionEndPointsWidget;
 
@@ -249,6 +260,38 @@ public class OutsidePlantView extends AbstractView<Component> {
     private final HashMap<BusinessObjectViewNode, MapNode> nodes = new HashMap();
     private final HashMap<BusinessObjectViewEdge, MapEdge> edges = new HashMap();
     private boolean minZoomForLabels = false;
+    /**
+     * If the view has too many nodes and edges to draw them all at once, so only the ones in the viewport
+     * are drawn, and when zoomed out, the nodes are clustered and the edges simplified.
+     */
+    private boolean levelOfDetail = false;
+    /**
+     * Minimum zoom level to draw the nodes and edges as they are when rendering by level of detail.
+     */
+    private double minZoomForDetail = OutsidePlantService.DEFAULT_MIN_ZOOM_FOR_DETAIL;
+    /**
+     * The level the drawn nodes and edges were computed for: the integer zoom level if they were clustered
+     * and simplified, or <code>Integer.MAX_VALUE</code> if they are drawn as they are.
+     */
+    private int drawnLevel = Integer.MIN_VALUE;
+    /**
+     * Number of nodes represented by each drawn node when the nodes are clustered.
+     */
+    private final HashMap<BusinessObjectViewNode, Integer> clusterSizes = new HashMap();
+    /**
+     * The positions of the nodes and edges of the view, used to find the ones inside the viewport when 
+     * rendering by level of detail.
+     */
+    private MapFeatureIndex featureIndex;
+    /**
+     * If the nodes are the locations in the spatial index of the Outside Plant Service instead of the ones 
+     * saved in the view, so only the drawn ones are kept in the view (see {@link #showLocations(OutsidePlantService)}).
+     */
+    private boolean showLocations = false;
+    /**
+     * The classes of the nodes and edges hidden by the filters. They are applied to the ones drawn later too.
+     */
+    private final Set<String> hiddenClasses = new HashSet();
     private OutsidePlantAccordion ospAccordion;
     private WindowFilters wdwFilters;
     private WindowAddNodes wdwAddNodes;
@@ -278,7 +321,8 @@ public class OutsidePlantView extends AbstractView<Component> {
             ExplorerWidgetRegistry explorerWidgetRegistry,
             OutsidePlantAccordion ospAccordion,
             OutsidePlantExternalServicesProvider ospExternalServicesProvider,
-            EditConnectionsVisualAction editConnectionEndPointsWidget) {
+            EditConnectionsVisualAction editConnectionEndPointsWidget,
+            OutsidePlantService ospService) {
 
         this.aem = aem;
         this.bem = bem;
@@ -298,6 +342,7 @@ public class OutsidePlantView extends AbstractView<Component> {
         this.ospAccordion = ospAccordion;
         this.viewMap = new ViewMap();
         this.ospmanDashboard = ospmanDashboard;
+        this.ospService = ospService;
         this.ospExternalServicesProvider = ospExternalServicesProvider;
         this.editConnectionEndPointsWidget = editConnectionEndPointsWidget;
 
@@ -1100,6 +1145,15 @@ public class OutsidePlantView extends AbstractView<Component> {
                                                         position -> mapProvider.setCenter(position)
                                                 );
                                                 mapEdge.setPlayAnimation(true);
+                                            } else if (viewNode != null) {
+                                                // Not drawn yet, the view is rendered by level of detail
+                                                mapProvider.setCenter(new GeoCoordinate(
+                                                        (double) viewNode.getProperties().get(OspConstants.ATTR_LAT),
+                                                        (double) viewNode.getProperties().get(OspConstants.ATTR_LON)
+                                                ));
+                                            } else if (viewEdge != null) {
+                                                List<GeoCoordinate> controlPoints = (List) viewEdge.getProperties().get(OspConstants.PROPERTY_CONTROL_POINTS);
+                                                mapProvider.setCenter(controlPoints.get(controlPoints.size() / 2));
                                             }
                                         }
                                 );
@@ -1113,7 +1167,7 @@ public class OutsidePlantView extends AbstractView<Component> {
                                 });
                             });
                             btnFilter.addClickListener(clickEvent -> {
-                                wdwFilters = new WindowFilters(nodes, edges, mem, ts);
+                                wdwFilters = new WindowFilters(viewMap, nodes, edges, hiddenClasses, mem, ts);
                                 wdwFilters.open();
                             });
                             btnMeasureDistance.addClickListener(clickEvent -> mapProvider.setMeasureMode());
@@ -1139,21 +1193,27 @@ public class OutsidePlantView extends AbstractView<Component> {
                         });
                         mapProvider.addIdleEventListener(event -> {
                             mapProvider.removeIdleEventListener(event.getListener());
-
-                            viewMap.getNodes().forEach(viewNode
-                                    -> addNode((BusinessObjectLight) viewNode.getIdentifier(), viewNode.getProperties())
-                            );
-                            viewMap.getEdges().forEach(viewEdge
-                                    -> addEdge(
-                                            (BusinessObjectLight) viewEdge.getIdentifier(),
-                                            (BusinessObjectLight) viewMap.getEdgeSource(viewEdge).getIdentifier(),
-                                            (BusinessObjectLight) viewMap.getEdgeTarget(viewEdge).getIdentifier(),
-                                            viewEdge.getProperties()
-                                    )
-                            );
-                            nodes.values().forEach(node
-                                    -> node.setNodeTitle(node.getViewNode().getIdentifier().getName())
-                            );
+                            
+                            levelOfDetail = showLocations || viewMap.getNodes().size() + viewMap.getEdges().size() 
+                                    > (int) getConfigurationVariable("module.ospman.maxRenderedFeatures", OutsidePlantService.DEFAULT_MAX_RENDERED_FEATURES); //NOI18N
+                            
+                            if (levelOfDetail) {
+                                minZoomForDetail = getConfigurationVariable("module.ospman.minZoomForDetail", OutsidePlantService.DEFAULT_MIN_ZOOM_FOR_DETAIL); //NOI18N
+                                if (!showLocations) {
+                                    featureIndex = new MapFeatureIndex(OutsidePlantService.SPATIAL_INDEX_CELL_SIZE);
+                                    viewMap.getNodes().forEach(this::indexNode);
+                                    viewMap.getEdges().forEach(this::indexEdge);
+                                }
+                                mapProvider.addIdleEventListener(idleEvent -> mapProvider.getBounds(this::drawViewport));
+                                mapProvider.getBounds(this::drawViewport);
+                            } else {
+                                // The nodes and edges are drawn without saving the view after each one, as addNode and addEdge do
+                                viewMap.getNodes().forEach(viewNode -> drawNode((BusinessObjectViewNode) viewNode, viewTools));
+                                viewMap.getEdges().forEach(viewEdge -> drawEdge((BusinessObjectViewEdge) viewEdge, null, viewTools));
+                                nodes.values().forEach(node
+                                        -> node.setNodeTitle(node.getViewNode().getIdentifier().getName())
+                                );
+                            }
                         });
                         mapProvider.addIdleEventListener(event -> {
                             if (ospAccordion != null) {
@@ -1250,7 +1310,7 @@ public class OutsidePlantView extends AbstractView<Component> {
                                             (UnitOfLength) viewMap.getProperties().get(OspConstants.MAP_PROPERTY_UNIT_OF_LENGTH),
                                             event.getLat(), event.getLng(), getAsViewMap().getNodes(),
                                             coreActionsRegistry, advancedActionsRegistry, viewWidgetRegistry, explorerWidgetRegistry,
-                                            aem, bem, mem, physicalConnectionsService, ts, consumerLocateNode, mapProvider
+                                            aem, bem, mem, physicalConnectionsService, ts, consumerLocateNode, mapProvider, ospService
                                     ).open();
                                 }
                             });
@@ -1343,6 +1403,10 @@ public class OutsidePlantView extends AbstractView<Component> {
             QName tmpTagControlPoint = new QName("controlPoint");
             boolean tmpBadNames = false;
 
+            // The objects in the view are resolved at once before building it
+            HashMap<String, BusinessObjectLight> viewObjects = getViewObjects(view, bem);
+            List<String> missingObjects = new ArrayList();
+
             XMLInputFactory inputFactory = XMLInputFactory.newInstance();
             ByteArrayInputStream bais = new ByteArrayInputStream(view);
             XMLStreamReader reader = inputFactory.createXMLStreamReader(bais);
@@ -1396,64 +1460,75 @@ public class OutsidePlantView extends AbstractView<Component> {
                         double zoom = Double.valueOf(reader.getElementText());
                         viewMap.getProperties().put(PropertyNames.ZOOM, zoom);
                     } else if (tagNode.equals(reader.getName())) {
-                        try {
-                            String objectClass = reader.getAttributeValue(null, ATTR_CLASS);
-                            double lat = Double.valueOf(reader.getAttributeValue(null, OspConstants.ATTR_LAT));
-                            double lon = Double.valueOf(reader.getAttributeValue(null, tmpBadNames ? "lng" : OspConstants.ATTR_LON));
-                            String objectId = reader.getElementText();
+                        String objectClass = reader.getAttributeValue(null, ATTR_CLASS);
+                        double lat = Double.valueOf(reader.getAttributeValue(null, OspConstants.ATTR_LAT));
+                        double lon = Double.valueOf(reader.getAttributeValue(null, tmpBadNames ? "lng" : OspConstants.ATTR_LON));
+                        String objectId = reader.getElementText();
 
-                            BusinessObjectViewNode viewNode = new BusinessObjectViewNode(bem.getObjectLight(objectClass, objectId));
+                        BusinessObjectLight businessObject = viewObjects.get(objectId);
+                        if (businessObject != null) {
+                            BusinessObjectViewNode viewNode = new BusinessObjectViewNode(businessObject);
                             viewNode.getProperties().put(OspConstants.ATTR_LAT, lat);
                             viewNode.getProperties().put(OspConstants.ATTR_LON, lon);
                             getAsViewMap().addNode(viewNode);
-                        } catch (InventoryException ex) {
-                            new SimpleNotification(
-                                    ts.getTranslatedString("module.general.messages.error"),
-                                    ex.getLocalizedMessage(),
-                                    AbstractNotification.NotificationType.ERROR, ts
-                            ).open();
-                        }
+                        } else
+                            missingObjects.add(String.format("%s [%s]", objectId, objectClass)); //NOI18N
                     } else if (tagEdge.equals(reader.getName())) {
-                        try {
-                            String objectId = reader.getAttributeValue(null, ATTR_ID);
-                            String objectClass = reader.getAttributeValue(null, ATTR_CLASS);
-                            String aSideId = reader.getAttributeValue(null, ATTR_A_SIDE_ID);
-                            String aSideClass = reader.getAttributeValue(null, ATTR_A_SIDE_CLASS);
-                            String bSideId = reader.getAttributeValue(null, ATTR_B_SIDE_ID);
-                            String bSideClass = reader.getAttributeValue(null, ATTR_B_SIDE_CLASS);
-
-                            List<GeoCoordinate> controlPoints = new ArrayList();
-                            while (true) {
-                                reader.nextTag();
-                                if (tmpBadNames ? tmpTagControlPoint.equals(reader.getName()) : tagControlPoint.equals(reader.getName())) {
-                                    if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
-                                        controlPoints.add(new GeoCoordinate(
-                                                Double.valueOf(reader.getAttributeValue(null, OspConstants.ATTR_LAT)),
-                                                Double.valueOf(reader.getAttributeValue(null, tmpBadNames ? "lng" : OspConstants.ATTR_LON))
-                                        ));
-                                    }
-                                } else {
-                                    break;
+                        String objectId = reader.getAttributeValue(null, ATTR_ID);
+                        String objectClass = reader.getAttributeValue(null, ATTR_CLASS);
+                        String aSideId = reader.getAttributeValue(null, ATTR_A_SIDE_ID);
+                        String aSideClass = reader.getAttributeValue(null, ATTR_A_SIDE_CLASS);
+                        String bSideId = reader.getAttributeValue(null, ATTR_B_SIDE_ID);
+                        String bSideClass = reader.getAttributeValue(null, ATTR_B_SIDE_CLASS);
+
+                        List<GeoCoordinate> controlPoints = new ArrayList();
+                        while (true) {
+                            reader.nextTag();
+                            if (tmpBadNames ? tmpTagControlPoint.equals(reader.getName()) : tagControlPoint.equals(reader.getName())) {
+                                if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+                                    controlPoints.add(new GeoCoordinate(
+                                            Double.valueOf(reader.getAttributeValue(null, OspConstants.ATTR_LAT)),
+                                            Double.valueOf(reader.getAttributeValue(null, tmpBadNames ? "lng" : OspConstants.ATTR_LON))
+                                    ));
                                 }
+                            } else {
+                                break;
                             }
-                            if (controlPoints.size() >= 2) {
-                                BusinessObjectViewEdge viewEdge = new BusinessObjectViewEdge(bem.getObjectLight(objectClass, objectId));
-                                viewEdge.getProperties().put(OspConstants.PROPERTY_CONTROL_POINTS, controlPoints);
-                                viewMap.addEdge(viewEdge);
-                                viewMap.attachSourceNode(viewEdge, viewMap.findNode(bem.getObjectLight(aSideClass, aSideId)));
-                                viewMap.attachTargetNode(viewEdge, viewMap.findNode(bem.getObjectLight(bSideClass, bSideId)));
-                            }
-                        } catch (InventoryException ex) {
-                            new SimpleNotification(
-                                    ts.getTranslatedString("module.general.messages.error"),
-                                    ex.getLocalizedMessage(),
-                                    AbstractNotification.NotificationType.ERROR, ts
-                            ).open();
+                        }
+                        BusinessObjectLight businessObject = viewObjects.get(objectId);
+                        // The nodes are listed before the edges, so the endpoints are already in the map
+                        AbstractViewNode aSideNode = viewMap.findNode(aSideId);
+                        AbstractViewNode bSideNode = viewMap.findNode(bSideId);
+                        if (businessObject == null)
+                            missingObjects.add(String.format("%s [%s]", objectId, objectClass)); //NOI18N
+                        else if (aSideNode == null || bSideNode == null)
+                            missingObjects.add(String.format("%s [%s] (%s [%s], %s [%s])", //NOI18N
+                                    objectId, objectClass, aSideId, aSideClass, bSideId, bSideClass));
+                        else if (controlPoints.size() >= 2) {
+                            BusinessObjectViewEdge viewEdge = new BusinessObjectViewEdge(businessObject);
+                            viewEdge.getProperties().put(OspConstants.PROPERTY_CONTROL_POINTS, controlPoints);
+                            viewMap.addEdge(viewEdge);
+                            viewMap.attachSourceNode(viewEdge, aSideNode);
+                            viewMap.attachTargetNode(viewEdge, bSideNode);
                         }
                     }
                 }
             }
             reader.close();
+            
+            if (!missingObjects.isEmpty()) {
+                new SimpleNotification(
+                        ts.getTranslatedString("module.general.messages.warning"),
+                        String.format(ts.getTranslatedString("module.general.messages.objects-not-found"), String.join(", ", missingObjects)),
+                        AbstractNotification.NotificationType.WARNING, ts
+                ).open();
+            }
+        } catch (InvalidArgumentException ex) {
+            new SimpleNotification(
+                    ts.getTranslatedString("module.general.messages.error"),
+                    ex.getLocalizedMessage(),
+                    AbstractNotification.NotificationType.ERROR, ts
+            ).open();
         } catch (XMLStreamException ex) {
             Logger.getLogger(OutsidePlantView.class.getName()).log(Level.SEVERE, null, ex);
             new SimpleNotification(
@@ -1494,6 +1569,12 @@ public class OutsidePlantView extends AbstractView<Component> {
 
         nodes.clear();
         edges.clear();
+        clusterSizes.clear();
+        hiddenClasses.clear();
+        featureIndex = null;
+        showLocations = false;
+        levelOfDetail = false;
+        drawnLevel = Integer.MIN_VALUE;
 
         this.getProperties().put(Constants.PROPERTY_ID, -1);
         this.getProperties().put(Constants.PROPERTY_NAME, "");
@@ -1529,8 +1610,30 @@ public class OutsidePlantView extends AbstractView<Component> {
     @Override
     public AbstractViewNode addNode(BusinessObjectLight businessObject, Properties properties) {
         BusinessObjectViewNode viewNode = (BusinessObjectViewNode) viewMap.findNode(businessObject.getId());
+        indexNode(viewNode);
+        drawNode(viewNode, isEditable());
+        if (viewTools) {
+            saveOspView(
+                    getProperties().getProperty(Constants.PROPERTY_NAME),
+                    getProperties().getProperty(Constants.PROPERTY_DESCRIPTION),
+                    false
+            );
+        }
+        return viewNode;
+    }
+
+    /**
+     * Draws a node of the view on the map.
+     * @param viewNode The node to draw.
+     * @param editable If the node can be moved and edited.
+     * @return The node on the map.
+     */
+    private MapNode drawNode(BusinessObjectViewNode viewNode, boolean editable) {
+        BusinessObjectLight businessObject = viewNode.getIdentifier();
         MapNode mapNode = mapProvider.addNode(viewNode);
         nodes.put(viewNode, mapNode);
+        if (hiddenClasses.contains(businessObject.getClassName()))
+            mapNode.setNodeVisible(false);
         Command cmdSelectViewNode = () -> {
             mapProvider.getEdgeSelectionManager().deselectAll();
             mapProvider.getNodeSelectionManager().deselectAll();
@@ -1539,7 +1642,7 @@ public class OutsidePlantView extends AbstractView<Component> {
         mapNode.addClickEventListener(event -> cmdSelectViewNode.execute());
         mapNode.addRightClickEventListener(event -> cmdSelectViewNode.execute());
 
-        if (viewTools) {
+        if (editable) {
             mapNode.setDraggableNode(true);
             Command cmdViewNodeClick = () -> {
                 if (ospAccordion != null) {
@@ -1589,14 +1692,7 @@ public class OutsidePlantView extends AbstractView<Component> {
             });
             mapNode.addRightClickEventListener(event -> openWindowNode(viewNode));
         }
-        if (viewTools) {
-            saveOspView(
-                    getProperties().getProperty(Constants.PROPERTY_NAME),
-                    getProperties().getProperty(Constants.PROPERTY_DESCRIPTION),
-                    false
-            );
-        }
-        return viewNode;
+        return mapNode;
     }
 
     @Override
@@ -1610,8 +1706,37 @@ public class OutsidePlantView extends AbstractView<Component> {
             return null;
         }
         BusinessObjectViewEdge viewEdge = (BusinessObjectViewEdge) viewMap.findEdge(businessObject.getId());
+        indexEdge(viewEdge);
+        drawEdge(viewEdge, null, isEditable());
+        if (viewTools) {
+            saveOspView(
+                    getProperties().getProperty(Constants.PROPERTY_NAME),
+                    getProperties().getProperty(Constants.PROPERTY_DESCRIPTION),
+                    false
+            );
+        }
+        return viewEdge;
+    }
+
+    /**
+     * Draws an edge of the view on the map.
+     * @param viewEdge The edge to draw.
+     * @param displayedControlPoints The (simplified) control points to draw instead of the actual ones. Null to draw the actual ones.
+     * @param editable If the path of the edge can be edited.
+     * @return The edge on the map.
+     */
+    private MapEdge drawEdge(BusinessObjectViewEdge viewEdge, List<GeoCoordinate> displayedControlPoints, boolean editable) {
+        BusinessObjectLight businessObject = viewEdge.getIdentifier();
+        AbstractViewNode sourceNode = viewMap.getEdgeSource(viewEdge);
+        AbstractViewNode targetNode = viewMap.getEdgeTarget(viewEdge);
+        
+        if (displayedControlPoints != null)
+            viewEdge.getProperties().put(OspConstants.PROPERTY_DISPLAYED_CONTROL_POINTS, displayedControlPoints);
         MapEdge mapEdge = mapProvider.addEdge(viewEdge);
+        viewEdge.getProperties().remove(OspConstants.PROPERTY_DISPLAYED_CONTROL_POINTS);
         edges.put(viewEdge, mapEdge);
+        if (hiddenClasses.contains(businessObject.getClassName()))
+            mapEdge.setEdgeVisible(false);
         Command cmdSelectViewEdge = () -> {
             mapProvider.getNodeSelectionManager().deselectAll();
             mapProvider.getEdgeSelectionManager().deselectAll();
@@ -1619,7 +1744,7 @@ public class OutsidePlantView extends AbstractView<Component> {
         };
         mapEdge.addClickEventListener(event -> cmdSelectViewEdge.execute());
         mapEdge.addRightClickEventListener(event -> cmdSelectViewEdge.execute());
-        if (viewTools) {
+        if (editable) {
             mapEdge.addPathChangedEventListener(event -> {
                 mapEdge.computeLength(event.getControlPoints(), length -> {
                     mapEdge.setLength(length);
@@ -1633,10 +1758,13 @@ public class OutsidePlantView extends AbstractView<Component> {
                 GeoCoordinate sourcePosition = event.getControlPoints().get(0);
                 GeoCoordinate targetPosition = event.getControlPoints().get(event.getControlPoints().size() - 1);
                 
+                // The endpoints might not be drawn if the view is rendered by level of detail
                 MapNode sourceMapNode = nodes.get((BusinessObjectViewNode) sourceNode);
-                sourceMapNode.setPosition(sourcePosition);
+                if (sourceMapNode != null)
+                    sourceMapNode.setPosition(sourcePosition);
                 MapNode targetMapNode = nodes.get((BusinessObjectViewNode) targetNode);
-                targetMapNode.setPosition(targetPosition);
+                if (targetMapNode != null)
+                    targetMapNode.setPosition(targetPosition);
                 
                 updatePosition(sourceNode, sourcePosition);
                 updatePosition(targetNode, targetPosition);
@@ -1665,14 +1793,7 @@ public class OutsidePlantView extends AbstractView<Component> {
 
             mapEdge.addRightClickEventListener(event -> openWindowEdge(viewEdge));
         }
-        if (viewTools) {
-            saveOspView(
-                    getProperties().getProperty(Constants.PROPERTY_NAME),
-                    getProperties().getProperty(Constants.PROPERTY_DESCRIPTION),
-                    false
-            );
-        }
-        return viewEdge;
+        return mapEdge;
     }
 
     @Override
@@ -1680,15 +1801,12 @@ public class OutsidePlantView extends AbstractView<Component> {
         AbstractViewNode viewNode = viewMap.findNode(businessObject.getId());
         if (viewNode instanceof BusinessObjectViewNode) {
             List<BusinessObjectViewEdge> viewEdgesToRemove = new ArrayList();
-            viewMap.getEdges().forEach(viewEdge -> {
-                if (viewNode.equals(viewMap.getEdgeSource(viewEdge)) || viewNode.equals(viewMap.getEdgeTarget(viewEdge))) {
-                    viewEdgesToRemove.add((BusinessObjectViewEdge) viewEdge);
-                }
-            });
+            viewMap.getIncidentEdges(viewNode).forEach(viewEdge -> viewEdgesToRemove.add((BusinessObjectViewEdge) viewEdge));
             viewEdgesToRemove.forEach(viewEdge -> removeEdge(viewEdge.getIdentifier()));
-            nodes.remove((BusinessObjectViewNode) viewNode);
-            mapProvider.removeNode((BusinessObjectViewNode) viewNode);
-            viewMap.getNodes().remove(viewNode);
+            eraseNode((BusinessObjectViewNode) viewNode);
+            viewMap.removeNode(viewNode);
+            if (featureIndex != null)
+                featureIndex.removeNode(businessObject.getId());
 
             if (viewTools) {
                 saveOspView(
@@ -1704,9 +1822,10 @@ public class OutsidePlantView extends AbstractView<Component> {
     public void removeEdge(BusinessObjectLight businessObject) {
         AbstractViewEdge viewEdge = viewMap.findEdge(businessObject.getId());
         if (viewEdge instanceof BusinessObjectViewEdge) {
-            edges.remove((BusinessObjectViewEdge) viewEdge);
-            mapProvider.removeEdge((BusinessObjectViewEdge) viewEdge);
-            viewMap.getEdges().remove(viewEdge);
+            eraseEdge((BusinessObjectViewEdge) viewEdge);
+            viewMap.removeEdge(viewEdge);
+            if (featureIndex != null)
+                featureIndex.removeEdge(businessObject.getId());
 
             if (viewTools) {
                 saveOspView(
@@ -1748,7 +1867,8 @@ public class OutsidePlantView extends AbstractView<Component> {
                     },
                     consumerLocateNode,
                     mapProvider,
-                    ospExternalServicesProvider
+                    ospExternalServicesProvider,
+                    ospService
             );
             wdwNode.open();
         }
@@ -1854,27 +1974,221 @@ public class OutsidePlantView extends AbstractView<Component> {
         confirmDialog.open();
     }
 
-    private void updatePosition(AbstractViewNode viewNode, GeoCoordinate geoCoordinate) {
-        MapNode mapNode = nodes.get((BusinessObjectViewNode) viewNode);
-        if (mapNode != null) {
-            viewNode.getProperties().put(OspConstants.ATTR_LAT, geoCoordinate.getLatitude());
-            viewNode.getProperties().put(OspConstants.ATTR_LON, geoCoordinate.getLongitude());
-
-            viewMap.getEdges().forEach(edge -> {
-                List<GeoCoordinate> controlPoints = (List) edge.getProperties().get(OspConstants.PROPERTY_CONTROL_POINTS);
-
-                if (viewNode.equals(viewMap.getEdgeSource(edge))) {
-                    controlPoints.remove(0);
-                    controlPoints.add(0, geoCoordinate);
-
-                    edges.get((BusinessObjectViewEdge) edge).setControlPoints(controlPoints);
-                } else if (viewNode.equals(viewMap.getEdgeTarget(edge))) {
-                    controlPoints.remove(controlPoints.size() - 1);
-                    controlPoints.add(geoCoordinate);
-
-                    edges.get((BusinessObjectViewEdge) edge).setControlPoints(controlPoints);
-                }
+    /**
+     * Checks if the nodes and edges drawn can be edited: the tools are enabled and they are not clustered 
+     * or simplified.
+     */
+    private boolean isEditable() {
+        return viewTools && (!levelOfDetail || drawnLevel == Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Gets the value of a numeric configuration variable.
+     * @param name The name of the variable.
+     * @param defaultValue The value used if the variable can not be found or it's not a number.
+     * @return The value of the variable.
+     */
+    private double getConfigurationVariable(String name, double defaultValue) {
+        try {
+            return Double.valueOf(String.valueOf(aem.getConfigurationVariableValue(name)));
+        } catch (InventoryException | NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Draws the nodes and edges inside the given area and erases the ones outside, if the view is rendered by 
+     * level of detail. Below the minimum zoom for detail, the nodes are clustered, the edges simplified and the 
+     * edges shorter than a cluster are not drawn. Only the changes are sent to the map, unless the zoom level changed 
+     * while zoomed out, in which case everything is drawn again.
+     * @param bounds The area displayed by the map.
+     */
+    private void drawViewport(GeoBounds bounds) {
+        if (mapProvider == null || !levelOfDetail)
+            return;
+        
+        GeoBounds paddedBounds = bounds.pad(OutsidePlantService.VIEWPORT_PADDING);
+        double zoom = mapProvider.getZoom();
+        boolean overview = zoom < minZoomForDetail;
+        int level = overview ? (int) Math.floor(zoom) : Integer.MAX_VALUE;
+        
+        if (level != drawnLevel) {
+            new ArrayList<>(edges.keySet()).forEach(this::eraseEdge);
+            new ArrayList<>(nodes.keySet()).forEach(this::eraseNode);
+            drawnLevel = level;
+        }
+        double pixelSize = LevelOfDetail.getPixelSize(overview ? level : zoom);
+        double clusterSize = OutsidePlantService.CLUSTER_CELL_SIZE * pixelSize;
+        
+        List<SpatialIndex.Entry> viewportNodes;
+        if (showLocations) {
+            try {
+                viewportNodes = ospService.getLocationsInBoundingBox(paddedBounds.getSouth(), paddedBounds.getWest(), 
+                    paddedBounds.getNorth(), paddedBounds.getEast(), -1);
+            } catch (InvalidArgumentException ex) {
+                new SimpleNotification(
+                        ts.getTranslatedString("module.general.messages.error"),
+                        ex.getLocalizedMessage(),
+                        AbstractNotification.NotificationType.ERROR, ts
+                ).open();
+                return;
+            }
+        } else
+            viewportNodes = featureIndex.getNodes(paddedBounds);
+        
+        LinkedHashMap<SpatialIndex.Entry, Integer> clusters = new LinkedHashMap();
+        if (overview)
+            clusters.putAll(LevelOfDetail.cluster(viewportNodes, entry -> new GeoCoordinate(entry.getLatitude(), entry.getLongitude()), clusterSize));
+        else
+            viewportNodes.forEach(entry -> clusters.put(entry, 1));
+        LinkedHashMap<BusinessObjectViewNode, Integer> nodesToDraw = new LinkedHashMap();
+        clusters.forEach((entry, representedNodes) -> nodesToDraw.put(getViewNode(entry), representedNodes));
+        
+        LinkedHashMap<BusinessObjectViewEdge, List<GeoCoordinate>> edgesToDraw = new LinkedHashMap();
+        if (featureIndex != null) {
+            featureIndex.getEdges(paddedBounds).forEach(entry -> {
+                BusinessObjectViewEdge viewEdge = (BusinessObjectViewEdge) viewMap.findEdge(entry.getObject().getId());
+                if (overview) {
+                    // An edge shorter than a cluster would be drawn on top of it
+                    if (Math.max(entry.getEast() - entry.getWest(), 
+                            LevelOfDetail.toMercatorLatitude(entry.getNorth()) - LevelOfDetail.toMercatorLatitude(entry.getSouth())) < clusterSize)
+                        return;
+                    edgesToDraw.put(viewEdge, LevelOfDetail.simplify((List) viewEdge.getProperties().get(OspConstants.PROPERTY_CONTROL_POINTS), 
+                        OutsidePlantService.EDGE_SIMPLIFICATION_TOLERANCE * pixelSize));
+                } else
+                    edgesToDraw.put(viewEdge, null);
             });
         }
+        
+        new ArrayList<>(edges.keySet()).forEach(viewEdge -> {
+            if (!edgesToDraw.containsKey(viewEdge))
+                eraseEdge(viewEdge);
+        });
+        new ArrayList<>(nodes.keySet()).forEach(viewNode -> {
+            if (!nodesToDraw.containsKey(viewNode))
+                eraseNode(viewNode);
+        });
+        nodesToDraw.forEach((viewNode, representedNodes) -> {
+            MapNode mapNode = nodes.get(viewNode);
+            if (mapNode == null)
+                mapNode = drawNode(viewNode, isEditable());
+            else if (representedNodes.equals(clusterSizes.get(viewNode)))
+                return;
+            
+            clusterSizes.put(viewNode, representedNodes);
+            mapNode.setNodeTitle(representedNodes > 1 
+                ? String.format(ts.getTranslatedString("module.ospman.map.cluster"), viewNode.getIdentifier().getName(), representedNodes - 1)
+                : viewNode.getIdentifier().getName()
+            );
+        });
+        edgesToDraw.forEach((viewEdge, displayedControlPoints) -> {
+            if (!edges.containsKey(viewEdge))
+                drawEdge(viewEdge, displayedControlPoints, isEditable());
+        });
+    }
+    
+    /**
+     * Gets the node of the view that represents a node found inside the viewport. If the nodes are the locations 
+     * in the spatial index, the node is added to the view the first time it's drawn, and moved if the location 
+     * was moved since then.
+     * @param entry The node found and its position.
+     * @return The node of the view.
+     */
+    private BusinessObjectViewNode getViewNode(SpatialIndex.Entry entry) {
+        BusinessObjectViewNode viewNode = (BusinessObjectViewNode) viewMap.findNode(entry.getObject().getId());
+        if (!showLocations)
+            return viewNode;
+        
+        if (viewNode == null) {
+            viewNode = new BusinessObjectViewNode(entry.getObject());
+            viewMap.addNode(viewNode);
+        } else if (entry.getLatitude() == (double) viewNode.getProperties().get(OspConstants.ATTR_LAT) 
+                && entry.getLongitude() == (double) viewNode.getProperties().get(OspConstants.ATTR_LON))
+            return viewNode;
+        
+        viewNode.getProperties().put(OspConstants.ATTR_LAT, entry.getLatitude());
+        viewNode.getProperties().put(OspConstants.ATTR_LON, entry.getLongitude());
+        MapNode mapNode = nodes.get(viewNode);
+        if (mapNode != null)
+            mapNode.setPosition(new GeoCoordinate(entry.getLatitude(), entry.getLongitude()));
+        return viewNode;
+    }
+    
+    /**
+     * Removes a node from the map, if it's drawn. The node is kept in the view, unless the nodes are the 
+     * locations in the spatial index.
+     * @param viewNode The node to erase.
+     */
+    private void eraseNode(BusinessObjectViewNode viewNode) {
+        clusterSizes.remove(viewNode);
+        if (nodes.remove(viewNode) != null)
+            mapProvider.removeNode(viewNode);
+        if (showLocations)
+            viewMap.removeNode(viewNode);
+    }
+    
+    /**
+     * Removes an edge from the map, if it's drawn. The edge is kept in the view.
+     * @param viewEdge The edge to erase.
+     */
+    private void eraseEdge(BusinessObjectViewEdge viewEdge) {
+        if (edges.remove(viewEdge) != null)
+            mapProvider.removeEdge(viewEdge);
+    }
+    
+    private void updatePosition(AbstractViewNode viewNode, GeoCoordinate geoCoordinate) {
+        viewNode.getProperties().put(OspConstants.ATTR_LAT, geoCoordinate.getLatitude());
+        viewNode.getProperties().put(OspConstants.ATTR_LON, geoCoordinate.getLongitude());
+        indexNode(viewNode);
+
+        viewMap.getIncidentEdges(viewNode).forEach(edge -> {
+            List<GeoCoordinate> controlPoints = (List) edge.getProperties().get(OspConstants.PROPERTY_CONTROL_POINTS);
+
+            if (viewNode.equals(viewMap.getEdgeSource(edge))) {
+                controlPoints.remove(0);
+                controlPoints.add(0, geoCoordinate);
+            } else if (viewNode.equals(viewMap.getEdgeTarget(edge))) {
+                controlPoints.remove(controlPoints.size() - 1);
+                controlPoints.add(geoCoordinate);
+            } else
+                return;
+            // The edge might not be drawn if the view is rendered by level of detail
+            MapEdge mapEdge = edges.get((BusinessObjectViewEdge) edge);
+            if (mapEdge != null)
+                mapEdge.setControlPoints(controlPoints);
+            indexEdge(edge);
+        });
+    }
+    
+    /**
+     * Shows the locations in the spatial index of the Outside Plant Service instead of the nodes of the view. 
+     * The view is rendered by level of detail, and only the locations drawn are kept in the view.
+     * @param ospService Reference to the Outside Plant Service.
+     */
+    public void showLocations(OutsidePlantService ospService) {
+        Objects.requireNonNull(ospService);
+        this.ospService = ospService;
+        this.showLocations = true;
+    }
+    
+    /**
+     * Updates the position of a node in the feature index, if the view is rendered by level of detail.
+     * @param viewNode The node.
+     */
+    private void indexNode(AbstractViewNode viewNode) {
+        if (featureIndex != null)
+            featureIndex.putNode((BusinessObjectLight) viewNode.getIdentifier(), 
+                (double) viewNode.getProperties().get(OspConstants.ATTR_LAT), 
+                (double) viewNode.getProperties().get(OspConstants.ATTR_LON));
+    }
+    
+    /**
+     * Updates the path of an edge in the feature index, if the view is rendered by level of detail.
+     * @param viewEdge The edge.
+     */
+    private void indexEdge(AbstractViewEdge viewEdge) {
+        if (featureIndex != null)
+            featureIndex.putEdge((BusinessObjectLight) viewEdge.getIdentifier(), 
+                (List) viewEdge.getProperties().get(OspConstants.PROPERTY_CONTROL_POINTS));
     }
 }
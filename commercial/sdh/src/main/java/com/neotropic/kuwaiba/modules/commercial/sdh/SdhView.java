@@ -64,7 +64,6 @@ import org.neotropic.kuwaiba.core.apis.integration.views.AbstractViewEdge;
 import org.neotropic.kuwaiba.core.apis.integration.views.AbstractViewNode;
 import org.neotropic.kuwaiba.core.apis.integration.views.ViewEventListener;
 import org.neotropic.kuwaiba.core.apis.integration.views.ViewMap;
-import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObject;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadata;
 import org.neotropic.util.visual.general.FormattedObjectDisplayNameSpan;
 import org.neotropic.util.visual.notifications.AbstractNotification;
@@ -250,6 +249,8 @@ public class SdhView extends AbstractView<Component> {
         QName qEdge = new QName("edge"); //NOI18N
         QName qControlPoint = new QName("controlpoint"); //NOI18N
         try {
+            HashMap<String, BusinessObjectLight> viewObjects = getViewObjects(structure, bem);
+            List<String> missingObjects = new ArrayList();
             ByteArrayInputStream bais = new ByteArrayInputStream(structure);
             XMLStreamReader reader = inputFactory.createXMLStreamReader(bais);
 
@@ -263,7 +264,7 @@ public class SdhView extends AbstractView<Component> {
                         int yCoordinate = Double.valueOf(reader.getAttributeValue(null,"y")).intValue();
                         String objectId = reader.getElementText();
                         //this side is connected
-                        BusinessObjectLight lol = bem.getObjectLight(objectClass, objectId);
+                        BusinessObjectLight lol = viewObjects.get(objectId);
                         if (lol != null) {
                            String uri = StreamResourceRegistry.getURI(resourceFactory.getClassIcon(lol.getClassName())).toString();       
                            
@@ -275,7 +276,8 @@ public class SdhView extends AbstractView<Component> {
                         }
                         else if(objectId.equals("-1")) { // we create an empty side
                             emptySides.add(new BusinessObjectLight("", UUID.randomUUID().toString() + "-" + (objectId), ""));
-                        }
+                        } else
+                            missingObjects.add(String.format("%s [%s]", objectId, objectClass)); //NOI18N
                     }else {
                         if (reader.getName().equals(qEdge)){
                             String linkId = reader.getAttributeValue(null, "id");
@@ -286,7 +288,7 @@ public class SdhView extends AbstractView<Component> {
                             String bSideClass = reader.getAttributeValue(null, "bsideclass");
                             
                             String className = reader.getAttributeValue(null, "class");
-                            BusinessObject theLink = bem.getObject(className, linkId);
+                            BusinessObjectLight theLink = viewObjects.get(linkId);
                             BusinessObjectLight endPointA = null;
                             BusinessObjectLight endPointB = null;
                             if (theLink != null) {
@@ -341,12 +343,17 @@ public class SdhView extends AbstractView<Component> {
                                 props.put("targetLabel", endPointB == null ? "" : endPointB.getName());
                                                                
                                 addEdge(theLink, aSideObject, bSideObject, props);
-                            }
+                            } else
+                                missingObjects.add(String.format("%s [%s]", linkId, className)); //NOI18N
                         }
                     }
                 }
             }
             reader.close();
+            if (!missingObjects.isEmpty())
+                new SimpleNotification(ts.getTranslatedString("module.general.messages.warning"), 
+                        String.format(ts.getTranslatedString("module.general.messages.objects-not-found"), String.join(", ", missingObjects)), 
+                            AbstractNotification.NotificationType.WARNING, ts).open();
             MxGraphNode dummyNode = new MxGraphNode();
             dummyNode.setGeometry(0, 0, 0, 0);
             dummyNode.setMovable(false);
@@ -461,7 +468,7 @@ public class SdhView extends AbstractView<Component> {
             BusinessObjectViewNode aNode = new BusinessObjectViewNode(entry.getKey());
             aNode.getProperties().put("x", entry.getValue().getX());
             aNode.getProperties().put("y", entry.getValue().getY());
-            this.viewMap.getNodes().add(aNode);
+            this.viewMap.addNode(aNode);
         }
         
         for (Map.Entry<BusinessObjectLight, MxGraphEdge> entry : mxgraphCanvas.getEdges().entrySet()) {
@@ -470,7 +477,7 @@ public class SdhView extends AbstractView<Component> {
             anEdge.getProperties().put("sourceLabel", entry.getValue().getSourceLabel() == null ? "" : entry.getValue().getSourceLabel());
             anEdge.getProperties().put("targetLabel", entry.getValue().getTargetLabel() == null ? "" : entry.getValue().getTargetLabel());
             
-            this.viewMap.getEdges().add(anEdge);
+            this.viewMap.addEdge(anEdge);
             this.viewMap.attachSourceNode(anEdge, new BusinessObjectViewNode(mxgraphCanvas.findSourceEdgeObject(entry.getKey())));
             this.viewMap.attachTargetNode(anEdge, new BusinessObjectViewNode(mxgraphCanvas.findTargetEdgeObject(entry.getKey())));
         }
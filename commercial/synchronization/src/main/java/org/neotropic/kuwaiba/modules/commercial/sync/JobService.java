@@ -35,6 +35,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -46,6 +50,10 @@ import java.util.stream.Collectors;
  */
 @Service
 public class JobService {
+    /**
+     * Max number of data sources of the same synchronization group fetched at the same time
+     */
+    private static final int MAX_CONCURRENT_FETCHES = 32;
     /**
      * Vaadin thread broadcaster
      */
@@ -71,11 +79,23 @@ public class JobService {
     @Async
     public CompletableFuture<PollResult> createAsyncFetchJob(AbstractSyncProvider syncProvider
             , SyncDataSourceConfiguration dataSourceConfiguration) {
+        return createAsyncFetchJob(syncProvider, dataSourceConfiguration, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Async thread to fetch data using a data source configuration
+     * @param syncProvider synchronization provider
+     * @param dataSourceConfiguration data source configuration
+     * @param executor the executor the job will be run by
+     * @return completale future thread
+     */
+    public CompletableFuture<PollResult> createAsyncFetchJob(AbstractSyncProvider syncProvider
+            , SyncDataSourceConfiguration dataSourceConfiguration, Executor executor) {
         AsyncFetchDataJob newJob = new AsyncFetchDataJob(syncProvider, dataSourceConfiguration);
         return CompletableFuture.supplyAsync(() -> {
             newJob.run();
             return newJob.getValue();
-        });
+        }, executor);
     }
 
     /**
@@ -109,14 +129,16 @@ public class JobService {
      */
     public CompletableFuture<List<SyncResult>> createJob(AbstractSyncProvider syncProvider
             , List<SyncDataSourceConfiguration> datasources) {
-        // create contents of all users asynchronously
+        // create contents of all users asynchronously, polling at most MAX_CONCURRENT_FETCHES data sources at once
+        ExecutorService fetchExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(datasources.size(), MAX_CONCURRENT_FETCHES)));
         List<CompletableFuture<PollResult>> firstStepFetchData = datasources
                 .stream()
-                .map(item -> createAsyncFetchJob(syncProvider, item))
+                .map(item -> createAsyncFetchJob(syncProvider, item, fetchExecutor))
                 .collect(Collectors.toList());
 
         // Create a combined Future using allOf()
         CompletableFuture<Void> allFutures = CompletableFuture.allOf(firstStepFetchData.toArray(new CompletableFuture[0]));
+        allFutures.whenComplete((result, error) -> fetchExecutor.shutdown());
 
         // When all the Futures are completed, call `future.join()` to get their results and collect the results in a list -
         CompletableFuture<PollResult> secondStepData = allFutures.thenApply(v -> {
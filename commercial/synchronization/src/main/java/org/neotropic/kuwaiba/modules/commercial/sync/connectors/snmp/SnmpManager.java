@@ -21,15 +21,15 @@ import org.snmp4j.PDU;
 import org.snmp4j.ScopedPDU;
 import org.snmp4j.Snmp;
 import org.snmp4j.Target;
-import org.snmp4j.TransportMapping;
 import org.snmp4j.UserTarget;
 import org.snmp4j.mp.MPv3;
 import org.snmp4j.mp.MessageProcessingModel;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.security.AuthMD5;
+import org.snmp4j.security.AuthSHA;
+import org.snmp4j.security.PrivAES128;
 import org.snmp4j.security.PrivDES;
 import org.snmp4j.security.SecurityLevel;
-import org.snmp4j.security.SecurityModels;
 import org.snmp4j.security.SecurityProtocols;
 import org.snmp4j.security.USM;
 import org.snmp4j.security.UsmUser;
@@ -37,24 +37,42 @@ import org.snmp4j.smi.Address;
 import org.snmp4j.smi.GenericAddress;
 import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
-import org.snmp4j.smi.UdpAddress;
 import org.snmp4j.smi.VariableBinding;
 import org.snmp4j.transport.DefaultUdpTransportMapping;
 import org.snmp4j.util.DefaultPDUFactory;
 import org.snmp4j.util.PDUFactory;
 import org.snmp4j.util.TableEvent;
+import org.snmp4j.util.TableListener;
 import org.snmp4j.util.TableUtils;
+import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A SNMP Manager is a client of an SNMP agent which consume the information given
- * by the agent, and transform the data to be manage like java objects
+ * by the agent, and transform the data to be manage like java objects. The manager has no per-agent state:
+ * all the agents are polled through a single SNMP session (and UDP socket), and the connection parameters
+ * of each agent are provided with every request as an {@link SnmpTarget}, so it can be used to poll
+ * many agents concurrently. The tables are retrieved asynchronously using GETBULK requests, and the columns
+ * of a table, as well as several tables of the same agent, are requested in parallel.
  *
  * @author Hardy Ryan Chingal Martinez <ryan.chingal@neotropic.co>
  */
+@Service
 public class SnmpManager {
     public static final String NONE = "None";
     public static final String VERSION_2C = "2c";
@@ -70,372 +88,310 @@ public class SnmpManager {
     private static final int RETRIES = 2;
     private static final int TIMEOUT = 5000;
     /**
-     * Singleton instance
+     * Number of rows requested in every GETBULK request.
      */
-    private static SnmpManager instance;
+    private static final int MAX_ROWS_PER_PDU = 25;
     /**
-     * e.g. udp:127.0.0.1/1024
+     * Max number of table walks in progress at the same time, no matter how many agents are being polled.
+     * Additional requests wait until one of the current walks is finished.
      */
-    private String address;
+    private static final int MAX_CONCURRENT_WALKS = 64;
     /**
-     * SNMP client
+     * Max time to wait for the table walks requested at once to finish. The timeouts and retries of the individual
+     * requests are handled by the SNMP session, this only prevents a caller from waiting forever. The walks not
+     * finished in time are cancelled.
      */
-    private Snmp snmp;
-    /**
-     * SNMP version. Possible values: 2c, 3. Default value 2c
-     */
-    private String version = "2c";
-    /**
-     * SNMP Version 2c attribute community. Default value public
-     */
-    private String community = "public";
-    /**
-     * SNMP version 3 attribute authentication protocol. Possible values: MD5, SHA
-     */
-    private String authProtocol;
-    /**
-     * SNMP version 3 attribute  authentication protocol pass phrase
-     */
-    private String authPass;
-    /*
-    private String securityEngineID; // no supported yet
-    private String contextEngineID; // no supported yet
-    */
-    /**
-     * SNMP version 3 attribute security level. Possible values: noAuthNoPriv, authNoPriv, authPriv
-     */
-    private String securityLevel;
-    /**
-     * SNMP version 3 attribute context name
-     */
-    private String contextName;
-    /**
-     * SNMP version 3 attribute security name
-     */
-    private String securityName;
-    /**
-     * SNMP version 3 attribute privacy protocol. Possible values: DES, AES
-     */
-    private String privacyProtocol;
-    /**
-     * SNMP version 3 attribute privacy protocol pass phrase
-     */
-    private String privacyPass;
-
-    /*
-    private String destinationEngine_Boots_Time; // no supported yet
-    */
-    private SnmpManager() {
-    }
-
-    public static SnmpManager getInstance() {
-        return instance == null ? instance = new SnmpManager() : instance;
-    }
-
-    public String getAddress() {
-        return address;
-    }
-
-    /**
-     * @param address e.g. udp:127.0.0.1/1024
-     */
-    public void setAddress(String address) {
-        this.address = address;
-    }
-
-    public String getVersion() {
-        return version;
-    }
-
-    /**
-     * @param version SNMP version. Possible values: 2c, 3. Default value 2c
-     */
-    public void setVersion(String version) {
-        this.version = version;
-    }
-
-    public String getCommunity() {
-        return community;
-    }
-
+    private static final long MAX_WALK_TIME = TimeUnit.MINUTES.toMillis(10);
     /**
-     * @param community SNMP version 2 attribute community default value public
+     * SNMP client shared by all the targets
      */
-    public void setCommunity(String community) {
-        this.community = community;
-    }
-
-    public String getAuthProtocol() {
-        return authProtocol;
-    }
-
+    private Snmp snmp;
     /**
-     * @param authProtocol SNMP version 3 attribute authentication protocol. Possible values: MD5, SHA
+     * The user based security model used for SNMP version 3 targets
      */
-    public void setAuthProtocol(String authProtocol) {
-        this.authProtocol = authProtocol;
-    }
-
-    public String getAuthPass() {
-        return authPass;
-    }
-
+    private USM usm;
     /**
-     * @param authPass SNMP version 3 attribute  authentication protocol pass phrase.
-     *                 If the value of authProtocol is not null authPass must be not null
+     * Authoritative engine ids of the SNMP version 3 agents already contacted. The key is the address of the agent
      */
-    public void setAuthPass(String authPass) {
-        this.authPass = authPass;
-    }
-
-    public String getSecurityLevel() {
-        return securityLevel;
-    }
-
+    private final ConcurrentHashMap<String, OctetString> engineIds = new ConcurrentHashMap<>();
     /**
-     * @param securityLevel SNMP version 3 attribute security level. Possible values: noAuthNoPriv, authNoPriv, authPriv
+     * Limits the number of table walks in progress
      */
-    public void setSecurityLevel(String securityLevel) {
-        this.securityLevel = securityLevel;
-    }
+    private final Semaphore walkPermits = new Semaphore(MAX_CONCURRENT_WALKS, true);
 
-    public String getContextName() {
-        return contextName;
-    }
-
-    /**
-     * @param contextName SNMP version 3 attribute context name
-     */
-    public void setContextName(String contextName) {
-        this.contextName = contextName;
-    }
-
-    public String getSecurityName() {
-        return securityName;
-    }
-
-    /**
-     * @param securityName SNMP version 3 attribute security name
-     */
-    public void setSecurityName(String securityName) {
-        this.securityName = securityName;
+    @PostConstruct
+    public void init() {
+        try {
+            snmp = new Snmp(new DefaultUdpTransportMapping());
+            usm = new USM(SecurityProtocols.getInstance(), new OctetString(MPv3.createLocalEngineID()), 0);
+            snmp.getMessageDispatcher().addMessageProcessingModel(new MPv3(usm));
+            snmp.listen();
+        } catch (IOException ex) {
+            Logger.getLogger(SnmpManager.class.getName()).log(Level.SEVERE,
+                    String.format("[KUWAIBA] [%s] The SNMP session could not be opened: %s", //NOI18N
+                            SnmpManager.class.getSimpleName(), ex.getMessage()));
+        }
     }
 
-    public String getPrivacyProtocol() {
-        return privacyProtocol;
+    @PreDestroy
+    public void shutdown() {
+        if (snmp == null)
+            return;
+        try {
+            snmp.close();
+        } catch (IOException ex) {
+            Logger.getLogger(SnmpManager.class.getName()).log(Level.WARNING,
+                    String.format("[KUWAIBA] [%s] The SNMP session could not be closed: %s", //NOI18N
+                            SnmpManager.class.getSimpleName(), ex.getMessage()));
+        }
     }
 
     /**
-     * @param privacyProtocol SNMP version 3 attribute privacy protocol. Possible values: DES, AES
+     * Gets a list of items for the given oids.
+     *
+     * @param target The agent to be polled
+     * @param oids list of oids
+     * @return A list of items where the columns are assigned to the oids and the rows for each item. Null if the
+     * table could not be retrieved or the target parameters are not valid
      */
-    public void setPrivacyProtocol(String privacyProtocol) {
-        this.privacyProtocol = privacyProtocol;
-    }
-
-    public String getPrivacyPass() {
-        return privacyPass;
+    public List<List<String>> getTableAsString(SnmpTarget target, OID[] oids) {
+        return getTablesAsString(target, Collections.singletonList(oids)).get(0);
     }
 
     /**
-     * @param privacyPass SNMP version 3 attribute privacy protocol pass phrase
+     * Retrieves several tables from the same agent. All the tables are requested at once, instead of waiting for
+     * one to be finished to request the next one.
+     *
+     * @param target The agent to be polled
+     * @param tables The oids of the columns of each table
+     * @return One entry per table, in the same order they were requested. See {@link #getTableAsString(SnmpTarget, OID[]) }
      */
-    public void setPrivacyPass(String privacyPass) {
-        this.privacyPass = privacyPass;
+    public List<List<List<String>>> getTablesAsString(SnmpTarget target, List<OID[]> tables) {
+        List<CompletableFuture<List<List<String>>>> walks = new ArrayList<>();
+        for (OID[] oids : tables)
+            walks.add(getTableAsStringAsync(target, oids));
+
+        List<List<List<String>>> res = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + MAX_WALK_TIME;
+        for (CompletableFuture<List<List<String>>> walk : walks) {
+            try {
+                res.add(walk.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                walk.cancel(true);
+                res.add(null);
+            } catch (TimeoutException ex) {
+                // Nobody is waiting for the walk anymore. Cancelling it releases its permit and stops it
+                walk.cancel(true);
+                res.add(null);
+            } catch (ExecutionException | CancellationException ex) {
+                res.add(null);
+            }
+        }
+        return res;
     }
 
     /**
-     * Gets a list of items for the given oids. Only if the parameters for a version of SNMP are assigned
+     * Starts the retrieval of a table. The method returns immediately, the table is retrieved using the
+     * thread of the SNMP session.
      *
+     * @param target The agent to be polled
      * @param oids list of oids
-     * @return A list of items where the columns are assigned to the oids and the rows for each item
+     * @return A future that will be completed with the table. See {@link #getTableAsString(SnmpTarget, OID[]) }.
+     * Cancel it to stop the walk if the caller can not wait for it anymore
      */
-    public List<List<String>> getTableAsString(OID[] oids) {
-        if (oids == null)
-            return null;
-
-        if (oids.length < 1)
-            return null;
+    public CompletableFuture<List<List<String>>> getTableAsStringAsync(SnmpTarget target, OID[] oids) {
+        if (oids == null || oids.length < 1 || target == null || snmp == null)
+            return CompletableFuture.completedFuture(null);
 
-        switch (version) {
+        Target snmpTarget;
+        PDUFactory pduFactory;
+        switch (target.getVersion() == null ? "" : target.getVersion()) {
             case VERSION_2C:
-                return getTableAsStringSnmpVersion2c(oids);
+                snmpTarget = getCommunityTarget(target);
+                pduFactory = new DefaultPDUFactory(PDU.GETBULK);
+                break;
             case VERSION_3:
-                return getTableAsStringSnmpVersion3(oids);
+                snmpTarget = getUserTarget(target);
+                pduFactory = new ScopedPDUFactory(target.getContextName());
+                break;
             default:
-                return null;
+                return CompletableFuture.completedFuture(null);
         }
-    }
+        if (snmpTarget == null)
+            return CompletableFuture.completedFuture(null);
 
-    private Target getTarget() {
-        Address targetAddress = GenericAddress.parse(address);
-        if (targetAddress == null)
-            return null;
+        TableUtils tableUtils = new TableUtils(snmp, pduFactory);
+        tableUtils.setMaxNumRowsPerPDU(MAX_ROWS_PER_PDU);
 
-        switch (version) {
-            case VERSION_2C:
-                return getCommunityTarget(targetAddress);
-            case VERSION_3:
-                return getUserTarget(targetAddress);
-            default:
-                return null;
+        TableWalk walk = new TableWalk();
+        try {
+            walkPermits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(null);
         }
-    }
-
-    private CommunityTarget getCommunityTarget(Address targetAddress) {
+        walk.getResult().whenComplete((result, error) -> walkPermits.release());
         try {
-            TransportMapping<UdpAddress> transportMapping = new DefaultUdpTransportMapping();
-
-            snmp = new Snmp(transportMapping);
-
-            snmp.listen();
-
-            CommunityTarget communityTarget = new CommunityTarget();
-
-            communityTarget.setCommunity(new OctetString(community == null ? "public" : community)); //NOI18N
-            communityTarget.setVersion(SnmpConstants.version2c);
-
-            communityTarget.setAddress(targetAddress);
-            communityTarget.setRetries(RETRIES);
-            communityTarget.setTimeout(TIMEOUT);
-
-            return communityTarget;
-
-        } catch (IOException ex) {
-            return null;
+            tableUtils.getTable(snmpTarget, oids, walk, null, null, null);
+        } catch (RuntimeException ex) {
+            walk.getResult().complete(null);
         }
+        return walk.getResult();
     }
 
-    private UserTarget getUserTarget(Address targetAddress) {
-        try {
-            TransportMapping<UdpAddress> transportMapping = new DefaultUdpTransportMapping();
-
-            snmp = new Snmp(transportMapping);
-
-            USM usm = new USM(SecurityProtocols.getInstance(),
-                    new OctetString(MPv3.createLocalEngineID()), 0);
-
-            SecurityModels.getInstance().addSecurityModel(usm);
-
-            snmp.listen();
-
-            OID authProtocolOID = null;
+    private CommunityTarget getCommunityTarget(SnmpTarget target) {
+        Address targetAddress = GenericAddress.parse(target.getAddress());
+        if (targetAddress == null)
+            return null;
 
-            if (!NONE.equals(authProtocol)) {
-                if (AUTH_MD5.equals(authProtocol))
-                    authProtocolOID = AuthMD5.ID;
-                /*
-                if (AUTH_SHA.equals(authProtocol)) {
-                    //TODO: Manage SHA
-                }
-                */
-            }
-            OID privacyProtocolOID = null;
+        CommunityTarget communityTarget = new CommunityTarget();
+        communityTarget.setCommunity(new OctetString(target.getCommunity() == null ? "public" : target.getCommunity())); //NOI18N
+        communityTarget.setVersion(SnmpConstants.version2c);
+        communityTarget.setAddress(targetAddress);
+        communityTarget.setRetries(RETRIES);
+        communityTarget.setTimeout(TIMEOUT);
+        return communityTarget;
+    }
 
-            if (!NONE.equals(privacyProtocol)) {
+    /**
+     * Creates the target of a SNMP version 3 agent. The user is registered in the USM localized to the engine id of
+     * the agent, so agents that use the same security name with different pass phrases do not overwrite each other.
+     */
+    private UserTarget getUserTarget(SnmpTarget target) {
+        Address targetAddress = GenericAddress.parse(target.getAddress());
+        if (targetAddress == null)
+            return null;
 
-                if (PRIV_DES.equals(privacyProtocol))
-                    privacyProtocolOID = PrivDES.ID;
-                /*
-                if (PRIV_AES.equals(privacyProtocol)) {
-                    //TODO: Manage AES
-                }
-                */
-            }
-            snmp.getUSM().addUser(!securityName.isEmpty() ? new OctetString(securityName) : null,
-                    new UsmUser(!securityName.isEmpty() ? new OctetString(securityName) : null,
-                            authProtocolOID,
-                            authProtocolOID == null || !authPass.isEmpty() ? new OctetString(authPass) : null,
-                            privacyProtocolOID,
-                            privacyProtocolOID == null || !privacyPass.isEmpty() ? new OctetString(privacyPass) : null));
-
-            UserTarget userTarget = new UserTarget();
-            userTarget.setAddress(targetAddress);
-            userTarget.setRetries(RETRIES);
-            userTarget.setTimeout(TIMEOUT);
-            userTarget.setVersion(SnmpConstants.version3);
-
-            switch (securityLevel) {
-                case AUTH_NO_PRIV:
-                    userTarget.setSecurityLevel(SecurityLevel.AUTH_NOPRIV);
-                    break;
-                case AUTH_PRIV:
-                    userTarget.setSecurityLevel(SecurityLevel.AUTH_PRIV);
-                    break;
-                case NO_AUTH_NO_PRIV:
-                default:
-                    userTarget.setSecurityLevel(SecurityLevel.NOAUTH_NOPRIV);
-                    break;
+        OctetString securityName = isEmpty(target.getSecurityName()) ? new OctetString() : new OctetString(target.getSecurityName());
+
+        OID authProtocolOID = null;
+        if (AUTH_MD5.equals(target.getAuthProtocol()))
+            authProtocolOID = AuthMD5.ID;
+        if (AUTH_SHA.equals(target.getAuthProtocol()))
+            authProtocolOID = AuthSHA.ID;
+
+        OID privacyProtocolOID = null;
+        if (PRIV_DES.equals(target.getPrivacyProtocol()))
+            privacyProtocolOID = PrivDES.ID;
+        if (PRIV_AES.equals(target.getPrivacyProtocol()))
+            privacyProtocolOID = PrivAES128.ID;
+
+        UsmUser user = new UsmUser(securityName,
+                authProtocolOID,
+                authProtocolOID == null || isEmpty(target.getAuthPass()) ? null : new OctetString(target.getAuthPass()),
+                privacyProtocolOID,
+                privacyProtocolOID == null || isEmpty(target.getPrivacyPass()) ? null : new OctetString(target.getPrivacyPass()));
+
+        // The discovery is done outside the map, so agents that take long to answer do not block the lookups of others
+        OctetString engineId = engineIds.get(target.getAddress());
+        if (engineId == null) {
+            byte[] discoveredEngineId = snmp.discoverAuthoritativeEngineID(targetAddress, TIMEOUT);
+            if (discoveredEngineId != null) {
+                engineId = new OctetString(discoveredEngineId);
+                engineIds.put(target.getAddress(), engineId);
             }
-            userTarget.setSecurityName(!securityName.isEmpty() ? new OctetString(securityName) : new OctetString());
+        }
 
-            return userTarget;
+        UserTarget userTarget = new UserTarget();
+        if (engineId == null) // The agent did not answer to the discovery, let the session try again when the request is sent
+            usm.addUser(securityName, user);
+        else {
+            usm.addUser(securityName, engineId, user);
+            userTarget.setAuthoritativeEngineID(engineId.getValue());
+        }
 
-        } catch (IOException ex) {
-            return null;
+        userTarget.setAddress(targetAddress);
+        userTarget.setRetries(RETRIES);
+        userTarget.setTimeout(TIMEOUT);
+        userTarget.setVersion(SnmpConstants.version3);
+
+        switch (target.getSecurityLevel() == null ? NO_AUTH_NO_PRIV : target.getSecurityLevel()) {
+            case AUTH_NO_PRIV:
+                userTarget.setSecurityLevel(SecurityLevel.AUTH_NOPRIV);
+                break;
+            case AUTH_PRIV:
+                userTarget.setSecurityLevel(SecurityLevel.AUTH_PRIV);
+                break;
+            case NO_AUTH_NO_PRIV:
+            default:
+                userTarget.setSecurityLevel(SecurityLevel.NOAUTH_NOPRIV);
+                break;
         }
+        userTarget.setSecurityName(securityName);
+        return userTarget;
     }
 
-    private List<List<String>> getTableAsStringSnmpVersion2c(OID[] oids) {
-        Target target = getTarget();
-
-        if (target == null)
-            return null;
-
-        TableUtils tableUtils = new TableUtils(snmp, new DefaultPDUFactory());
-
-        return getTableAsString(target, tableUtils, oids);
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
     }
 
-    private List<List<String>> getTableAsStringSnmpVersion3(OID[] oids) {
-        Target target = getTarget();
-
-        if (target == null)
-            return null;
-
-        TableUtils tableUtils = new TableUtils(snmp, new PDUFactory() {
-
-            @Override
-            public PDU createPDU(Target target) {
-                ScopedPDU pdu = new ScopedPDU();
-                pdu.setType(PDU.GETBULK);
-                pdu.setContextName(!contextName.isEmpty() ? new OctetString(contextName) : new OctetString());
+    /**
+     * Creates the GETBULK requests of SNMP version 3 targets
+     */
+    private static class ScopedPDUFactory implements PDUFactory {
+        private final OctetString contextName;
 
-                return pdu;
-            }
+        public ScopedPDUFactory(String contextName) {
+            this.contextName = isEmpty(contextName) ? new OctetString() : new OctetString(contextName);
+        }
 
-            @Override
-            public PDU createPDU(MessageProcessingModel messageProcessingModel) {
-                return null;
-            }
-        });
+        @Override
+        public PDU createPDU(Target target) {
+            ScopedPDU pdu = new ScopedPDU();
+            pdu.setType(PDU.GETBULK);
+            pdu.setContextName(contextName);
+            return pdu;
+        }
 
-        return getTableAsString(target, tableUtils, oids);
+        @Override
+        public PDU createPDU(MessageProcessingModel messageProcessingModel) {
+            return createPDU((Target) null);
+        }
     }
 
-    private List<List<String>> getTableAsString(Target target, TableUtils tableUtils, OID[] oids) {
-
-        List<TableEvent> events = tableUtils.getTable(target, oids, null, null);
-
-        List<List<String>> list = new ArrayList<>();
+    /**
+     * Collects the rows of a table as they arrive and completes the result once the walk is finished. If the result
+     * is completed from outside, usually because it was cancelled, no more rows are requested
+     */
+    private static class TableWalk implements TableListener {
+        private final List<List<String>> rows = new ArrayList<>();
+        private final CompletableFuture<List<List<String>>> result = new CompletableFuture<>();
+        private volatile boolean finished;
 
-        for (TableEvent event : events) {
-            if (event.isError())
-                return null;
+        public CompletableFuture<List<List<String>>> getResult() {
+            return result;
+        }
 
+        @Override
+        public synchronized boolean next(TableEvent event) {
+            if (result.isDone()) {
+                finished = true;
+                return false;
+            }
+            if (event.isError()) {
+                finished(event);
+                return false;
+            }
             List<String> strList = new ArrayList<>();
-            list.add(strList);
-
             for (VariableBinding vb : event.getColumns())
                 strList.add(vb != null ? vb.getVariable().toString() : "");
+            strList.add(event.getIndex().toString());
+            rows.add(strList);
+            return true;
+        }
 
-            String strIndex = event.getIndex().toString();
-            strList.add(strIndex);
+        @Override
+        public synchronized void finished(TableEvent event) {
+            if (finished)
+                return;
+            finished = true;
+            result.complete(event.isError() ? null : rows);
         }
-        try {
-            snmp.close();
-        } catch (IOException ex) {
-            return null;
+
+        @Override
+        public boolean isFinished() {
+            return finished || result.isDone();
         }
-        return list;
     }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023-2023. Neotropic SAS <contact@neotropic.co>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp;
+
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+
+import java.util.Map;
+
+/**
+ * The connection parameters of an SNMP agent. Instances can not be modified, so the same descriptor
+ * can be used to poll an agent from several threads at once and descriptors of different agents
+ * never interfere with each other.
+ *
+ * @author agent {@literal <agent@local>}
+ */
+public final class SnmpTarget {
+    /**
+     * e.g. udp:127.0.0.1/1024
+     */
+    private final String address;
+    /**
+     * SNMP version. Possible values: 2c, 3
+     */
+    private final String version;
+    /**
+     * SNMP version 2c attribute community
+     */
+    private final String community;
+    /**
+     * SNMP version 3 attribute security name
+     */
+    private final String securityName;
+    /**
+     * SNMP version 3 attribute security level. Possible values: noAuthNoPriv, authNoPriv, authPriv
+     */
+    private final String securityLevel;
+    /**
+     * SNMP version 3 attribute authentication protocol. Possible values: None, MD5, SHA
+     */
+    private final String authProtocol;
+    /**
+     * SNMP version 3 attribute authentication protocol pass phrase
+     */
+    private final String authPass;
+    /**
+     * SNMP version 3 attribute privacy protocol. Possible values: None, DES, AES
+     */
+    private final String privacyProtocol;
+    /**
+     * SNMP version 3 attribute privacy protocol pass phrase
+     */
+    private final String privacyPass;
+    /**
+     * SNMP version 3 attribute context name
+     */
+    private final String contextName;
+
+    public SnmpTarget(String address, String version, String community, String securityName, String securityLevel,
+            String authProtocol, String authPass, String privacyProtocol, String privacyPass, String contextName) {
+        this.address = address;
+        this.version = version;
+        this.community = community;
+        this.securityName = securityName;
+        this.securityLevel = securityLevel;
+        this.authProtocol = authProtocol;
+        this.authPass = authPass;
+        this.privacyProtocol = privacyProtocol;
+        this.privacyPass = privacyPass;
+        this.contextName = contextName;
+    }
+
+    /**
+     * Creates a target taking the community and the SNMP version 3 attributes from the parameters of a sync data source.
+     * @param ipAddress The address of the agent.
+     * @param port The port the agent is listening to.
+     * @param version SNMP version. Possible values: 2c, 3.
+     * @param parameters The parameters of the sync data source (see Constants.PROPERTY_COMMUNITY, Constants.PROPERTY_SECURITY_NAME, etc).
+     * @return The target.
+     */
+    public static SnmpTarget fromParameters(String ipAddress, String port, String version, Map<String, String> parameters) {
+        return new SnmpTarget(String.format("udp:%s/%s", ipAddress, port), version, //NOI18N
+                parameters.get(Constants.PROPERTY_COMMUNITY),
+                parameters.get(Constants.PROPERTY_SECURITY_NAME),
+                parameters.get(Constants.PROPERTY_SECURITY_LEVEL),
+                parameters.get(Constants.PROPERTY_AUTH_PROTOCOL),
+                parameters.get(Constants.PROPERTY_AUTH_PASS),
+                parameters.get(Constants.PROPERTY_PRIVACY_PROTOCOL),
+                parameters.get(Constants.PROPERTY_PRIVACY_PASS),
+                parameters.get(Constants.PROPERTY_CONTEXT_NAME));
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getCommunity() {
+        return community;
+    }
+
+    public String getSecurityName() {
+        return securityName;
+    }
+
+    public String getSecurityLevel() {
+        return securityLevel;
+    }
+
+    public String getAuthProtocol() {
+        return authProtocol;
+    }
+
+    public String getAuthPass() {
+        return authPass;
+    }
+
+    public String getPrivacyProtocol() {
+        return privacyProtocol;
+    }
+
+    public String getPrivacyPass() {
+        return privacyPass;
+    }
+
+    public String getContextName() {
+        return contextName;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (SNMP v%s)", address, version); //NOI18N
+    }
+}
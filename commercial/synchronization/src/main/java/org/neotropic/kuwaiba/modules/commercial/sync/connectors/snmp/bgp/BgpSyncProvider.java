@@ -26,6 +26,7 @@ import org.neotropic.kuwaiba.core.apis.persistence.metadata.MetadataEntityManage
 import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
 import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.SnmpManager;
+import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.SnmpTarget;
 import org.neotropic.kuwaiba.modules.commercial.sync.model.AbstractDataEntity;
 import org.neotropic.kuwaiba.modules.commercial.sync.model.AbstractSyncProvider;
 import org.neotropic.kuwaiba.modules.commercial.sync.model.PollResult;
@@ -40,6 +41,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -72,6 +74,11 @@ public class BgpSyncProvider extends AbstractSyncProvider {
      */
     @Autowired
     private ApplicationEntityManager aem;
+    /**
+     * Reference to the SNMP manager shared by all the SNMP providers
+     */
+    @Autowired
+    private SnmpManager snmpManager;
 
     @Override
     public String getDisplayName() {
@@ -167,26 +174,14 @@ public class BgpSyncProvider extends AbstractSyncProvider {
 
             try {
                 BusinessObjectLight mappedObjLight = bem.getObjectLight(agent.getParameters().get("deviceClass"), agent.getParameters().get("deviceId"));
-                SnmpManager snmpManager = SnmpManager.getInstance();
-
-                snmpManager.setAddress(String.format("udp:%s/%s", agent.getParameters().get("ipAddress"), agent.getParameters().get("port"))); //NOI18N
-                snmpManager.setVersion(snmpVersion);
-
-                if (SnmpManager.VERSION_2C.equals(snmpVersion))
-                    snmpManager.setCommunity(agent.getParameters().get(Constants.PROPERTY_COMMUNITY));
-
-                if (SnmpManager.VERSION_3.equals(snmpVersion)) {
-                    snmpManager.setAuthProtocol(agent.getParameters().get(Constants.PROPERTY_AUTH_PROTOCOL));
-                    snmpManager.setAuthPass(agent.getParameters().get(Constants.PROPERTY_AUTH_PASS));
-                    snmpManager.setSecurityLevel(agent.getParameters().get(Constants.PROPERTY_SECURITY_LEVEL));
-                    snmpManager.setContextName(agent.getParameters().get(Constants.PROPERTY_CONTEXT_NAME));
-                    snmpManager.setSecurityName(agent.getParameters().get(Constants.PROPERTY_SECURITY_NAME));
-                    snmpManager.setPrivacyProtocol(agent.getParameters().get(Constants.PROPERTY_PRIVACY_PROTOCOL));
-                    snmpManager.setPrivacyPass(agent.getParameters().get(Constants.PROPERTY_PRIVACY_PASS));
-                }
-                //ipAddrTable table
+                SnmpTarget target = SnmpTarget.fromParameters(agent.getParameters().get("ipAddress"), agent.getParameters().get("port"), snmpVersion, agent.getParameters());
                 SnmpBgpResourceDefinition bgpTable = new SnmpBgpResourceDefinition();
-                List<List<String>> tableAsString = snmpManager.getTableAsString(bgpTable.values().toArray(new org.snmp4j.smi.OID[0]));
+                SnmpBgpLocalResourceDefinition bgpLocalTable = new SnmpBgpLocalResourceDefinition();
+                List<List<List<String>>> tables = snmpManager.getTablesAsString(target, Arrays.asList(
+                        bgpTable.values().toArray(new org.snmp4j.smi.OID[0]),
+                        bgpLocalTable.values().toArray(new org.snmp4j.smi.OID[0])));
+                //ipAddrTable table
+                List<List<String>> tableAsString = tables.get(0);
 
                 if (tableAsString == null) {
                     pollResult.getSyncDataSourceConfigurationExceptions(agent).add(
@@ -199,8 +194,7 @@ public class BgpSyncProvider extends AbstractSyncProvider {
                 pollResult.getResult().get(agent).add(
                         new TableData("bgpTable", SyncUtil.parseMibTable("instance", bgpTable, tableAsString))); //NOI18N
                 //
-                SnmpBgpLocalResourceDefinition bgpLocalTable = new SnmpBgpLocalResourceDefinition();
-                List<List<String>> bgpLocalTableAsString = snmpManager.getTableAsString(bgpLocalTable.values().toArray(new org.snmp4j.smi.OID[0]));
+                List<List<String>> bgpLocalTableAsString = tables.get(1);
 
                 if (bgpLocalTableAsString == null) {
                     pollResult.getSyncDataSourceConfigurationExceptions(agent).add(
@@ -279,27 +273,14 @@ public class BgpSyncProvider extends AbstractSyncProvider {
         try {
             BusinessObjectLight mappedObjLight = bem.getObjectLight(dataSourceConfiguration.getParameters().get("deviceClass")
                     , dataSourceConfiguration.getParameters().get("deviceId"));
-            SnmpManager snmpManager = SnmpManager.getInstance();
-
-            snmpManager.setAddress(String.format("udp:%s/%s", dataSourceConfiguration.getParameters().get("ipAddress")
-                    , dataSourceConfiguration.getParameters().get("port"))); //NOI18N
-            snmpManager.setVersion(snmpVersion);
-
-            if (SnmpManager.VERSION_2C.equals(snmpVersion))
-                snmpManager.setCommunity(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_COMMUNITY));
-
-            if (SnmpManager.VERSION_3.equals(snmpVersion)) {
-                snmpManager.setAuthProtocol(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_AUTH_PROTOCOL));
-                snmpManager.setAuthPass(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_AUTH_PASS));
-                snmpManager.setSecurityLevel(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_SECURITY_LEVEL));
-                snmpManager.setContextName(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_CONTEXT_NAME));
-                snmpManager.setSecurityName(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_SECURITY_NAME));
-                snmpManager.setPrivacyProtocol(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_PRIVACY_PROTOCOL));
-                snmpManager.setPrivacyPass(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_PRIVACY_PASS));
-            }
-            //ipAddrTable table
+            SnmpTarget target = SnmpTarget.fromParameters(dataSourceConfiguration.getParameters().get("ipAddress"), dataSourceConfiguration.getParameters().get("port"), snmpVersion, dataSourceConfiguration.getParameters());
             SnmpBgpResourceDefinition bgpTable = new SnmpBgpResourceDefinition();
-            List<List<String>> tableAsString = snmpManager.getTableAsString(bgpTable.values().toArray(new org.snmp4j.smi.OID[0]));
+            SnmpBgpLocalResourceDefinition bgpLocalTable = new SnmpBgpLocalResourceDefinition();
+            List<List<List<String>>> tables = snmpManager.getTablesAsString(target, Arrays.asList(
+                    bgpTable.values().toArray(new org.snmp4j.smi.OID[0]),
+                    bgpLocalTable.values().toArray(new org.snmp4j.smi.OID[0])));
+            //ipAddrTable table
+            List<List<String>> tableAsString = tables.get(0);
 
             if (tableAsString == null) {
                 pollResult.getSyncDataSourceConfigurationExceptions(dataSourceConfiguration).add(
@@ -312,8 +293,7 @@ public class BgpSyncProvider extends AbstractSyncProvider {
             pollResult.getResult().get(dataSourceConfiguration).add(
                     new TableData("bgpTable", SyncUtil.parseMibTable("instance", bgpTable, tableAsString))); //NOI18N
             //
-            SnmpBgpLocalResourceDefinition bgpLocalTable = new SnmpBgpLocalResourceDefinition();
-            List<List<String>> bgpLocalTableAsString = snmpManager.getTableAsString(bgpLocalTable.values().toArray(new org.snmp4j.smi.OID[0]));
+            List<List<String>> bgpLocalTableAsString = tables.get(1);
 
             if (bgpLocalTableAsString == null) {
                 pollResult.getSyncDataSourceConfigurationExceptions(dataSourceConfiguration).add(
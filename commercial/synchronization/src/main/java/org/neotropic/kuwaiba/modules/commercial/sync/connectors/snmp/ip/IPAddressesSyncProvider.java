@@ -25,6 +25,7 @@ import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InventoryException
 import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
 import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.SnmpManager;
+import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.SnmpTarget;
 import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.reference.SnmpifXTableResocurceDefinition;
 import org.neotropic.kuwaiba.modules.commercial.sync.model.AbstractDataEntity;
 import org.neotropic.kuwaiba.modules.commercial.sync.model.AbstractSyncProvider;
@@ -40,6 +41,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -66,6 +68,11 @@ public class IPAddressesSyncProvider extends AbstractSyncProvider {
      */
     @Autowired
     private ApplicationEntityManager aem;
+    /**
+     * Reference to the SNMP manager shared by all the SNMP providers
+     */
+    @Autowired
+    private SnmpManager snmpManager;
 
     @Override
     public String getDisplayName() {
@@ -157,27 +164,14 @@ public class IPAddressesSyncProvider extends AbstractSyncProvider {
             try {
                 BusinessObjectLight mappedObjLight = bem.getObjectLight(agent.getParameters().get("deviceClass")
                         , agent.getParameters().get("deviceId"));
-                SnmpManager snmpManager = SnmpManager.getInstance();
-
-                snmpManager.setAddress(String.format("udp:%s/%s", agent.getParameters().get("ipAddress")
-                        , agent.getParameters().get("port"))); //NOI18N
-                snmpManager.setVersion(snmpVersion);
-
-                if (SnmpManager.VERSION_2C.equals(snmpVersion))
-                    snmpManager.setCommunity(agent.getParameters().get(Constants.PROPERTY_COMMUNITY));
-
-                if (SnmpManager.VERSION_3.equals(snmpVersion)) {
-                    snmpManager.setAuthProtocol(agent.getParameters().get(Constants.PROPERTY_AUTH_PROTOCOL));
-                    snmpManager.setAuthPass(agent.getParameters().get(Constants.PROPERTY_AUTH_PASS));
-                    snmpManager.setSecurityLevel(agent.getParameters().get(Constants.PROPERTY_SECURITY_LEVEL));
-                    snmpManager.setContextName(agent.getParameters().get(Constants.PROPERTY_CONTEXT_NAME));
-                    snmpManager.setSecurityName(agent.getParameters().get(Constants.PROPERTY_SECURITY_NAME));
-                    snmpManager.setPrivacyProtocol(agent.getParameters().get(Constants.PROPERTY_PRIVACY_PROTOCOL));
-                    snmpManager.setPrivacyPass(agent.getParameters().get(Constants.PROPERTY_PRIVACY_PASS));
-                }
-                //ipAddrTable table
+                SnmpTarget target = SnmpTarget.fromParameters(agent.getParameters().get("ipAddress"), agent.getParameters().get("port"), snmpVersion, agent.getParameters());
                 SnmpIPResourceDefinition ipAddrTable = new SnmpIPResourceDefinition();
-                List<List<String>> tableAsString = snmpManager.getTableAsString(ipAddrTable.values().toArray(new org.snmp4j.smi.OID[0]));
+                SnmpifXTableResocurceDefinition ifMibTable = new SnmpifXTableResocurceDefinition();
+                List<List<List<String>>> tables = snmpManager.getTablesAsString(target, Arrays.asList(
+                        ipAddrTable.values().toArray(new org.snmp4j.smi.OID[0]),
+                        ifMibTable.values().toArray(new org.snmp4j.smi.OID[0])));
+                //ipAddrTable table
+                List<List<String>> tableAsString = tables.get(0);
 
                 if (tableAsString == null) {
                     pollResult.getSyncDataSourceConfigurationExceptions(agent).add(
@@ -191,8 +185,7 @@ public class IPAddressesSyncProvider extends AbstractSyncProvider {
                         new TableData("ipAddrTable", SyncUtil.parseMibTable("instance", ipAddrTable
                                 , tableAsString))); //NOI18N
                 //
-                SnmpifXTableResocurceDefinition ifMibTable = new SnmpifXTableResocurceDefinition();
-                List<List<String>> ifMibTableAsString = snmpManager.getTableAsString(ifMibTable.values().toArray(new org.snmp4j.smi.OID[0]));
+                List<List<String>> ifMibTableAsString = tables.get(1);
 
                 if (ifMibTableAsString == null) {
                     pollResult.getSyncDataSourceConfigurationExceptions(agent).add(
@@ -269,27 +262,14 @@ public class IPAddressesSyncProvider extends AbstractSyncProvider {
         try {
             BusinessObjectLight mappedObjLight = bem.getObjectLight(dataSourceConfiguration.getParameters().get("deviceClass")
                     , dataSourceConfiguration.getParameters().get("deviceId"));
-            SnmpManager snmpManager = SnmpManager.getInstance();
-
-            snmpManager.setAddress(String.format("udp:%s/%s", dataSourceConfiguration.getParameters().get("ipAddress")
-                    , dataSourceConfiguration.getParameters().get("port"))); //NOI18N
-            snmpManager.setVersion(snmpVersion);
-
-            if (SnmpManager.VERSION_2C.equals(snmpVersion))
-                snmpManager.setCommunity(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_COMMUNITY));
-
-            if (SnmpManager.VERSION_3.equals(snmpVersion)) {
-                snmpManager.setAuthProtocol(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_AUTH_PROTOCOL));
-                snmpManager.setAuthPass(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_AUTH_PASS));
-                snmpManager.setSecurityLevel(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_SECURITY_LEVEL));
-                snmpManager.setContextName(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_CONTEXT_NAME));
-                snmpManager.setSecurityName(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_SECURITY_NAME));
-                snmpManager.setPrivacyProtocol(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_PRIVACY_PROTOCOL));
-                snmpManager.setPrivacyPass(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_PRIVACY_PASS));
-            }
-            //ipAddrTable table
+            SnmpTarget target = SnmpTarget.fromParameters(dataSourceConfiguration.getParameters().get("ipAddress"), dataSourceConfiguration.getParameters().get("port"), snmpVersion, dataSourceConfiguration.getParameters());
             SnmpIPResourceDefinition ipAddrTable = new SnmpIPResourceDefinition();
-            List<List<String>> tableAsString = snmpManager.getTableAsString(ipAddrTable.values().toArray(new org.snmp4j.smi.OID[0]));
+            SnmpifXTableResocurceDefinition ifMibTable = new SnmpifXTableResocurceDefinition();
+            List<List<List<String>>> tables = snmpManager.getTablesAsString(target, Arrays.asList(
+                    ipAddrTable.values().toArray(new org.snmp4j.smi.OID[0]),
+                    ifMibTable.values().toArray(new org.snmp4j.smi.OID[0])));
+            //ipAddrTable table
+            List<List<String>> tableAsString = tables.get(0);
 
             if (tableAsString == null) {
                 pollResult.getSyncDataSourceConfigurationExceptions(dataSourceConfiguration).add(
@@ -303,8 +283,7 @@ public class IPAddressesSyncProvider extends AbstractSyncProvider {
                     new TableData("ipAddrTable", SyncUtil.parseMibTable("instance", ipAddrTable
                             , tableAsString))); //NOI18N
             //
-            SnmpifXTableResocurceDefinition ifMibTable = new SnmpifXTableResocurceDefinition();
-            List<List<String>> ifMibTableAsString = snmpManager.getTableAsString(ifMibTable.values().toArray(new org.snmp4j.smi.OID[0]));
+            List<List<String>> ifMibTableAsString = tables.get(1);
 
             if (ifMibTableAsString == null) {
                 pollResult.getSyncDataSourceConfigurationExceptions(dataSourceConfiguration).add(
@@ -32,6 +32,7 @@ import org.neotropic.kuwaiba.core.apis.persistence.metadata.MetadataEntityManage
 import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
 import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.SnmpManager;
+import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.SnmpTarget;
 import org.neotropic.kuwaiba.modules.commercial.sync.model.AbstractDataEntity;
 import org.neotropic.kuwaiba.modules.commercial.sync.model.AbstractSyncProvider;
 import org.neotropic.kuwaiba.modules.commercial.sync.model.ESyncParameters;
@@ -84,6 +85,11 @@ public class ReferenceSnmpSyncProvider extends AbstractSyncProvider {
      */
     @Autowired
     private ApplicationEntityManager aem;
+    /**
+     * Reference to the SNMP manager shared by all the SNMP providers
+     */
+    @Autowired
+    private SnmpManager snmpManager;
 
     @Override
     public String getDisplayName() {
@@ -178,27 +184,11 @@ public class ReferenceSnmpSyncProvider extends AbstractSyncProvider {
                             new InvalidArgumentException(String.format("Can not connect to the synchronization data source due to: %s", ex.getMessage())));
                 }
                 if (mappedObjLight != null) {
-                    SnmpManager snmpManager = SnmpManager.getInstance();
-
-                    snmpManager.setAddress(String.format("udp:%s/%s", address, port)); //NOI18N
-                    snmpManager.setVersion(version);
-
-                    if (SnmpManager.VERSION_2C.equals(version))
-                        snmpManager.setCommunity(dsConfig.getParameters().get(Constants.PROPERTY_COMMUNITY));
-
-                    if (SnmpManager.VERSION_3.equals(version)) {
-                        snmpManager.setAuthProtocol(dsConfig.getParameters().get(Constants.PROPERTY_AUTH_PROTOCOL));
-                        snmpManager.setAuthPass(dsConfig.getParameters().get(Constants.PROPERTY_AUTH_PASS));
-                        snmpManager.setSecurityLevel(dsConfig.getParameters().get(Constants.PROPERTY_SECURITY_LEVEL));
-                        snmpManager.setContextName(dsConfig.getParameters().get(Constants.PROPERTY_CONTEXT_NAME));
-                        snmpManager.setSecurityName(dsConfig.getParameters().get(Constants.PROPERTY_SECURITY_NAME));
-                        snmpManager.setPrivacyProtocol(dsConfig.getParameters().get(Constants.PROPERTY_PRIVACY_PROTOCOL));
-                        snmpManager.setPrivacyPass(dsConfig.getParameters().get(Constants.PROPERTY_PRIVACY_PASS));
-                    }
+                    SnmpTarget target = SnmpTarget.fromParameters(address, port, version, dsConfig.getParameters());
                     boolean firstSnmpConnectionAttemptFail = false;
                     //ENTITY-MIB table
                     ReferenceSnmpEntPhysicalTableResourceDefinition entPhysicalTable = new ReferenceSnmpEntPhysicalTableResourceDefinition();
-                    List<List<String>> tableAsString = snmpManager.getTableAsString(entPhysicalTable.values().toArray(new org.snmp4j.smi.OID[0]));
+                    List<List<String>> tableAsString = snmpManager.getTableAsString(target, entPhysicalTable.values().toArray(new org.snmp4j.smi.OID[0]));
 
                     if (tableAsString == null) {
                         pollResult.getSyncDataSourceConfigurationExceptions(dsConfig).add(
@@ -216,7 +206,7 @@ public class ReferenceSnmpSyncProvider extends AbstractSyncProvider {
                     List<List<String>> ifMibTableAsString;
                     //if the first attempt fails it will not be possible to make the sync, so we avoid the reading of others MIB tables
                     if (!firstSnmpConnectionAttemptFail) {
-                        ifMibTableAsString = snmpManager.getTableAsString(ifMibTable.values().toArray(new org.snmp4j.smi.OID[0]));
+                        ifMibTableAsString = snmpManager.getTableAsString(target, ifMibTable.values().toArray(new org.snmp4j.smi.OID[0]));
                         //if something goes wrong with reading the second MIB table.
                         if (ifMibTableAsString == null) {
                             pollResult.getSyncDataSourceConfigurationExceptions(dsConfig).add(
@@ -303,27 +293,21 @@ public class ReferenceSnmpSyncProvider extends AbstractSyncProvider {
                             new InvalidArgumentException(String.format("Can not connect to the synchronization data source due to: %s", ex.getMessage())));
                 }
                 if (mappedObjLight != null) {
-                    SnmpManager snmpManager = SnmpManager.getInstance();
-
-                    snmpManager.setAddress(String.format("udp:%s/%s", address, port)); //NOI18N
-                    snmpManager.setVersion(version);
-
-                    if (SnmpManager.VERSION_2C.equals(version))
-                        snmpManager.setCommunity(dataSourceConfiguration.getCommonParameters().getParameters().get(Constants.PROPERTY_COMMUNITY));
-
-                    if (SnmpManager.VERSION_3.equals(version)) {
-                        snmpManager.setAuthProtocol(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_AUTH_PROTOCOL));
-                        snmpManager.setAuthPass(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_AUTH_PASS));
-                        snmpManager.setSecurityLevel(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_SECURITY_LEVEL));
-                        snmpManager.setContextName(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_CONTEXT_NAME));
-                        snmpManager.setSecurityName(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_SECURITY_NAME));
-                        snmpManager.setPrivacyProtocol(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_PRIVACY_PROTOCOL));
-                        snmpManager.setPrivacyPass(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_PRIVACY_PASS));
-                    }
+                    Map<String, String> parameters = dataSourceConfiguration.getParameters();
+                    // The community is a common parameter, the SNMP version 3 attributes are specific to this data source
+                    SnmpTarget target = new SnmpTarget(String.format("udp:%s/%s", address, port), version //NOI18N
+                            , dataSourceConfiguration.getCommonParameters().getParameters().get(Constants.PROPERTY_COMMUNITY)
+                            , parameters.get(Constants.PROPERTY_SECURITY_NAME)
+                            , parameters.get(Constants.PROPERTY_SECURITY_LEVEL)
+                            , parameters.get(Constants.PROPERTY_AUTH_PROTOCOL)
+                            , parameters.get(Constants.PROPERTY_AUTH_PASS)
+                            , parameters.get(Constants.PROPERTY_PRIVACY_PROTOCOL)
+                            , parameters.get(Constants.PROPERTY_PRIVACY_PASS)
+                            , parameters.get(Constants.PROPERTY_CONTEXT_NAME));
                     boolean firstSnmpConnectionAttemptFail = false;
                     //ENTITY-MIB table
                     ReferenceSnmpEntPhysicalTableResourceDefinition entPhysicalTable = new ReferenceSnmpEntPhysicalTableResourceDefinition();
-                    List<List<String>> tableAsString = snmpManager.getTableAsString(entPhysicalTable.values().toArray(new org.snmp4j.smi.OID[0]));
+                    List<List<String>> tableAsString = snmpManager.getTableAsString(target, entPhysicalTable.values().toArray(new org.snmp4j.smi.OID[0]));
 
                     if (tableAsString == null) {
                         pollResult.getSyncDataSourceConfigurationExceptions(dataSourceConfiguration).add(
@@ -341,7 +325,7 @@ public class ReferenceSnmpSyncProvider extends AbstractSyncProvider {
                     List<List<String>> ifMibTableAsString = null;
                     //if the first attempt fails it will not be possible to make the sync, so we avoid the reading of others MIB tables
                     if (!firstSnmpConnectionAttemptFail) {
-                        ifMibTableAsString = snmpManager.getTableAsString(ifMibTable.values().toArray(new org.snmp4j.smi.OID[0]));
+                        ifMibTableAsString = snmpManager.getTableAsString(target, ifMibTable.values().toArray(new org.snmp4j.smi.OID[0]));
                         //if something goes wrong with reading the second MIB table.
                         if (ifMibTableAsString == null) {
                             pollResult.getSyncDataSourceConfigurationExceptions(dataSourceConfiguration).add(
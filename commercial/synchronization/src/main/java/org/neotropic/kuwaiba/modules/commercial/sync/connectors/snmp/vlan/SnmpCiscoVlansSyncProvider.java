@@ -25,6 +25,7 @@ import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InventoryException
 import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
 import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.SnmpManager;
+import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.SnmpTarget;
 import org.neotropic.kuwaiba.modules.commercial.sync.connectors.snmp.reference.SnmpifXTableResocurceDefinition;
 import org.neotropic.kuwaiba.modules.commercial.sync.model.AbstractDataEntity;
 import org.neotropic.kuwaiba.modules.commercial.sync.model.AbstractSyncProvider;
@@ -41,6 +42,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -65,6 +67,11 @@ public class SnmpCiscoVlansSyncProvider extends AbstractSyncProvider {
      */
     @Autowired
     private ApplicationEntityManager aem;
+    /**
+     * Reference to the SNMP manager shared by all the SNMP providers
+     */
+    @Autowired
+    private SnmpManager snmpManager;
 
     @Override
     public String getDisplayName() {
@@ -149,26 +156,18 @@ public class SnmpCiscoVlansSyncProvider extends AbstractSyncProvider {
                             new InvalidArgumentException(String.format(ts.getTranslatedString("snmp_sync_object_not_found"), ex.getMessage())));
                 }
                 if (mappedObjLight != null) {
-                    SnmpManager snmpManager = SnmpManager.getInstance();
-
-                    snmpManager.setAddress(String.format("udp:%s/%s", address, port)); //NOI18N
-                    snmpManager.setVersion(version);
-
-                    if (SnmpManager.VERSION_2C.equals(version))
-                        snmpManager.setCommunity(dsConfig.getParameters().get(Constants.PROPERTY_COMMUNITY));
-
-                    if (SnmpManager.VERSION_3.equals(version)) {
-                        snmpManager.setAuthProtocol(dsConfig.getParameters().get(Constants.PROPERTY_AUTH_PROTOCOL));
-                        snmpManager.setAuthPass(dsConfig.getParameters().get(Constants.PROPERTY_AUTH_PASS));
-                        snmpManager.setSecurityLevel(dsConfig.getParameters().get(Constants.PROPERTY_SECURITY_LEVEL));
-                        snmpManager.setContextName(dsConfig.getParameters().get(Constants.PROPERTY_CONTEXT_NAME));
-                        snmpManager.setSecurityName(dsConfig.getParameters().get(Constants.PROPERTY_SECURITY_NAME));
-                        snmpManager.setPrivacyProtocol(dsConfig.getParameters().get(Constants.PROPERTY_PRIVACY_PROTOCOL));
-                        snmpManager.setPrivacyPass(dsConfig.getParameters().get(Constants.PROPERTY_PRIVACY_PASS));
-                    }
-                    //VlanTrunkPortsTable
+                    SnmpTarget target = SnmpTarget.fromParameters(address, port, version, dsConfig.getParameters());
                     SnmpVlanTrunkPortsTableResourceDefinition VlanTrunkPortsTable = new SnmpVlanTrunkPortsTableResourceDefinition();
-                    List<List<String>> vlansMibTableAsString = snmpManager.getTableAsString(VlanTrunkPortsTable.values().toArray(new OID[0]));
+                    SnmpifXTableResocurceDefinition ifXTable = new SnmpifXTableResocurceDefinition();
+                    SnmpVtpVlanTableResourceDefinition vlanInfo = new SnmpVtpVlanTableResourceDefinition();
+                    SnmpvmMembershipTableResourceDefinition vmMembershipTable = new SnmpvmMembershipTableResourceDefinition();
+                    List<List<List<String>>> tables = snmpManager.getTablesAsString(target, Arrays.asList(
+                            VlanTrunkPortsTable.values().toArray(new OID[0]),
+                            ifXTable.values().toArray(new OID[0]),
+                            vlanInfo.values().toArray(new OID[0]),
+                            vmMembershipTable.values().toArray(new OID[0])));
+                    //VlanTrunkPortsTable
+                    List<List<String>> vlansMibTableAsString = tables.get(0);
 
                     if (vlansMibTableAsString == null) {
                         pollResult.getSyncDataSourceConfigurationExceptions(dsConfig).add(
@@ -179,8 +178,7 @@ public class SnmpCiscoVlansSyncProvider extends AbstractSyncProvider {
                     pollResult.getResult().get(dsConfig).add(
                             new TableData("vlansMibTable", SyncUtil.parseMibTable("instance", VlanTrunkPortsTable, vlansMibTableAsString))); //NOI18N
                     //ifXTable
-                    SnmpifXTableResocurceDefinition ifXTable = new SnmpifXTableResocurceDefinition();
-                    List<List<String>> ifXTableAsString = snmpManager.getTableAsString(ifXTable.values().toArray(new OID[0]));
+                    List<List<String>> ifXTableAsString = tables.get(1);
 
                     if (ifXTableAsString == null) {
                         pollResult.getSyncDataSourceConfigurationExceptions(dsConfig).add(
@@ -191,8 +189,7 @@ public class SnmpCiscoVlansSyncProvider extends AbstractSyncProvider {
                     pollResult.getResult().get(dsConfig).add(
                             new TableData("ifXTable", SyncUtil.parseMibTable("instance", ifXTable, ifXTableAsString))); //NOI18N
                     //VlanInfo
-                    SnmpVtpVlanTableResourceDefinition vlanInfo = new SnmpVtpVlanTableResourceDefinition();
-                    List<List<String>> vlanInfoAsString = snmpManager.getTableAsString(vlanInfo.values().toArray(new OID[0]));
+                    List<List<String>> vlanInfoAsString = tables.get(2);
 
                     if (vlanInfoAsString == null) {
                         pollResult.getSyncDataSourceConfigurationExceptions(dsConfig).add(
@@ -204,8 +201,7 @@ public class SnmpCiscoVlansSyncProvider extends AbstractSyncProvider {
                             new TableData("vlanInfo", SyncUtil.parseMibTable("instance", vlanInfo, vlanInfoAsString))); //NOI18N
 
                     //vmMemberShipTable
-                    SnmpvmMembershipTableResourceDefinition vmMembershipTable = new SnmpvmMembershipTableResourceDefinition();
-                    List<List<String>> vmMembershipTableAsString = snmpManager.getTableAsString(vmMembershipTable.values().toArray(new OID[0]));
+                    List<List<String>> vmMembershipTableAsString = tables.get(3);
 
                     if (vmMembershipTableAsString == null) {
                         pollResult.getSyncDataSourceConfigurationExceptions(dsConfig).add(
@@ -326,26 +322,18 @@ public class SnmpCiscoVlansSyncProvider extends AbstractSyncProvider {
                         new InvalidArgumentException(String.format(ts.getTranslatedString("snmp_sync_object_not_found"), ex.getMessage())));
             }
             if (mappedObjLight != null) {
-                SnmpManager snmpManager = SnmpManager.getInstance();
-
-                snmpManager.setAddress(String.format("udp:%s/%s", address, port)); //NOI18N
-                snmpManager.setVersion(version);
-
-                if (SnmpManager.VERSION_2C.equals(version))
-                    snmpManager.setCommunity(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_COMMUNITY));
-
-                if (SnmpManager.VERSION_3.equals(version)) {
-                    snmpManager.setAuthProtocol(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_AUTH_PROTOCOL));
-                    snmpManager.setAuthPass(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_AUTH_PASS));
-                    snmpManager.setSecurityLevel(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_SECURITY_LEVEL));
-                    snmpManager.setContextName(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_CONTEXT_NAME));
-                    snmpManager.setSecurityName(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_SECURITY_NAME));
-                    snmpManager.setPrivacyProtocol(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_PRIVACY_PROTOCOL));
-                    snmpManager.setPrivacyPass(dataSourceConfiguration.getParameters().get(Constants.PROPERTY_PRIVACY_PASS));
-                }
-                //VlanTrunkPortsTable
+                SnmpTarget target = SnmpTarget.fromParameters(address, port, version, dataSourceConfiguration.getParameters());
                 SnmpVlanTrunkPortsTableResourceDefinition VlanTrunkPortsTable = new SnmpVlanTrunkPortsTableResourceDefinition();
-                List<List<String>> vlansMibTableAsString = snmpManager.getTableAsString(VlanTrunkPortsTable.values().toArray(new OID[0]));
+                SnmpifXTableResocurceDefinition ifXTable = new SnmpifXTableResocurceDefinition();
+                SnmpVtpVlanTableResourceDefinition vlanInfo = new SnmpVtpVlanTableResourceDefinition();
+                SnmpvmMembershipTableResourceDefinition vmMembershipTable = new SnmpvmMembershipTableResourceDefinition();
+                List<List<List<String>>> tables = snmpManager.getTablesAsString(target, Arrays.asList(
+                        VlanTrunkPortsTable.values().toArray(new OID[0]),
+                        ifXTable.values().toArray(new OID[0]),
+                        vlanInfo.values().toArray(new OID[0]),
+                        vmMembershipTable.values().toArray(new OID[0])));
+                //VlanTrunkPortsTable
+                List<List<String>> vlansMibTableAsString = tables.get(0);
 
                 if (vlansMibTableAsString == null) {
                     pollResult.getSyncDataSourceConfigurationExceptions(dataSourceConfiguration).add(
@@ -356,8 +344,7 @@ public class SnmpCiscoVlansSyncProvider extends AbstractSyncProvider {
                 pollResult.getResult().get(dataSourceConfiguration).add(
                         new TableData("vlansMibTable", SyncUtil.parseMibTable("instance", VlanTrunkPortsTable, vlansMibTableAsString))); //NOI18N
                 //ifXTable
-                SnmpifXTableResocurceDefinition ifXTable = new SnmpifXTableResocurceDefinition();
-                List<List<String>> ifXTableAsString = snmpManager.getTableAsString(ifXTable.values().toArray(new OID[0]));
+                List<List<String>> ifXTableAsString = tables.get(1);
 
                 if (ifXTableAsString == null) {
                     pollResult.getSyncDataSourceConfigurationExceptions(dataSourceConfiguration).add(
@@ -368,8 +355,7 @@ public class SnmpCiscoVlansSyncProvider extends AbstractSyncProvider {
                 pollResult.getResult().get(dataSourceConfiguration).add(
                         new TableData("ifXTable", SyncUtil.parseMibTable("instance", ifXTable, ifXTableAsString))); //NOI18N
                 //VlanInfo
-                SnmpVtpVlanTableResourceDefinition vlanInfo = new SnmpVtpVlanTableResourceDefinition();
-                List<List<String>> vlanInfoAsString = snmpManager.getTableAsString(vlanInfo.values().toArray(new OID[0]));
+                List<List<String>> vlanInfoAsString = tables.get(2);
 
                 if (vlanInfoAsString == null) {
                     pollResult.getSyncDataSourceConfigurationExceptions(dataSourceConfiguration).add(
@@ -381,8 +367,7 @@ public class SnmpCiscoVlansSyncProvider extends AbstractSyncProvider {
                         new TableData("vlanInfo", SyncUtil.parseMibTable("instance", vlanInfo, vlanInfoAsString))); //NOI18N
 
                 //vmMemberShipTable
-                SnmpvmMembershipTableResourceDefinition vmMembershipTable = new SnmpvmMembershipTableResourceDefinition();
-                List<List<String>> vmMembershipTableAsString = snmpManager.getTableAsString(vmMembershipTable.values().toArray(new OID[0]));
+                List<List<String>> vmMembershipTableAsString = tables.get(3);
 
                 if (vmMembershipTableAsString == null) {
                     pollResult.getSyncDataSourceConfigurationExceptions(dataSourceConfiguration).add(
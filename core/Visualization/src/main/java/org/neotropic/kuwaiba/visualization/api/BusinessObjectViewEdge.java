@@ -15,6 +15,7 @@
  */
 package org.neotropic.kuwaiba.visualization.api;
 
+import java.util.Objects;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
 import org.neotropic.kuwaiba.core.apis.integration.views.AbstractViewEdge;
 
@@ -43,10 +44,19 @@ public class BusinessObjectViewEdge extends AbstractViewEdge<BusinessObjectLight
         return false;
     }
 
+    /**
+     * Besides the business object, the element can be found using the id of the business object.
+     * @return The business object and its id.
+     */
+    @Override
+    public Object[] getLookupKeys() {
+        return new Object[] { getIdentifier(), getIdentifier().getId() };
+    }
+
     @Override
     public int hashCode() {
-        int hash = 7;
-        return hash;
+        // Consistent with the equality between elements, which depends only on the id of the business object
+        return Objects.hashCode(getIdentifier().getId());
     }
     
     @Override
@@ -16,9 +16,17 @@
 package org.neotropic.kuwaiba.core.apis.integration.views;
 
 import com.vaadin.flow.component.Component;
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
 
@@ -94,6 +102,43 @@ public abstract class AbstractView<C extends Component> {
      * @param view The view to be rendered.
      */
     public abstract void buildFromSavedView(byte[] view);
+    /**
+     * Retrieves in a single call the inventory objects behind the nodes and edges of a saved view, so they don't have to be 
+     * fetched one by one while the view is being built. Nodes of a type other than "object" (free shapes, icons), empty 
+     * sides (id -1), and edges without a class or of class "edge" (polylines) are skipped.
+     * @param structure The saved view.
+     * @param bem Reference to the business entity manager.
+     * @return The objects found, indexed by id.
+     * @throws XMLStreamException If the view could not be parsed.
+     * @throws InvalidArgumentException If the objects could not be retrieved.
+     */
+    protected HashMap<String, BusinessObjectLight> getViewObjects(byte[] structure, BusinessEntityManager bem) 
+            throws XMLStreamException, InvalidArgumentException {
+        QName qNode = new QName("node"); //NOI18N
+        QName qEdge = new QName("edge"); //NOI18N
+        HashMap<String, List<String>> objectIds = new HashMap<>();
+        
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(structure));
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                if (reader.getName().equals(qNode)) {
+                    String type = reader.getAttributeValue(null, "type"); //NOI18N
+                    if (type != null && !type.equals("object")) //NOI18N
+                        continue;
+                    String objectClass = reader.getAttributeValue(null, "class"); //NOI18N
+                    String objectId = reader.getElementText();
+                    if (objectClass != null && !objectId.equals("-1")) //NOI18N
+                        objectIds.computeIfAbsent(objectClass, key -> new ArrayList<>()).add(objectId);
+                } else if (reader.getName().equals(qEdge)) {
+                    String objectClass = reader.getAttributeValue(null, "class"); //NOI18N
+                    if (objectClass != null && !objectClass.isEmpty() && !objectClass.equals("edge")) //NOI18N
+                        objectIds.computeIfAbsent(objectClass, key -> new ArrayList<>()).add(reader.getAttributeValue(null, "id")); //NOI18N
+                }
+            }
+        }
+        reader.close();
+        return bem.getObjectsLight(objectIds);
+    }
     /**
      * Adds a node to views that are not generated automatically.
      * @param businessObject The business object behind the node to be added. Nodes that already exist will not be added.
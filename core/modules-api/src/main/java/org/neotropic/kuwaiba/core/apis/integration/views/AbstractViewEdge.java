@@ -51,6 +51,16 @@ public abstract class AbstractViewEdge<E> {
         this.properties = properties;
     }
     
+    /**
+     * The keys this edge can be found with in a {@link ViewMap}. Subclasses that can be matched against objects other than 
+     * the identifier in <code>equals</code> (e.g. a short id) should add them here. The keys must not change while 
+     * the edge is in a map.
+     * @return The identifier, by default.
+     */
+    public Object[] getLookupKeys() {
+        return new Object[] { identifier };
+    }
+    
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof AbstractViewEdge))
@@ -17,16 +17,24 @@ package org.neotropic.kuwaiba.core.apis.integration.views;
 
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * A representation of a view (which in turn a graphical representation of an inventory object or a function in the domain of the inventory system) as a set of java objects. 
  * In general terms, a ViewMap instance is a group of nodes and connections between those nodes, as well as auxiliary components, such as comments, or groups of nodes. This map 
  * does not contain rendering information, such as dimensions or positions, but it is rather a description of the internal structure of the view, which can be used by the consumer 
  * to perform analysis on the information contained by the view.
+ * The nodes and edges are indexed by their lookup keys (see {@link AbstractViewNode#getLookupKeys()}), and the edges by 
+ * the nodes they are attached to, so finding an element or the connections of a node doesn't require traversing the whole map. 
+ * For that reason, nodes and edges should be added and removed using the methods of this class, not directly in the lists 
+ * returned by {@link #getNodes()} and {@link #getEdges()}.
  * @author Charles Edward Bedon Cortazar {@literal <charles.bedon@kuwaiba.org>}
  */
 public class ViewMap {
@@ -38,6 +46,14 @@ public class ViewMap {
      * The list of edges in the map.
      */
     private List<AbstractViewEdge> edges;
+    /**
+     * The nodes in the map indexed by each one of their lookup keys.
+     */
+    private HashMap<Object, AbstractViewNode> nodeIndex;
+    /**
+     * The edges in the map indexed by each one of their lookup keys.
+     */
+    private HashMap<Object, AbstractViewEdge> edgeIndex;
     /**
      * A hashmap containing the edges and their source nodes.
      */
@@ -46,6 +62,10 @@ public class ViewMap {
      * A hashmap containing the edges and their target nodes.
      */
     private HashMap<AbstractViewEdge, AbstractViewNode> targetNodes;
+    /**
+     * The edges attached to each node, either as source or target.
+     */
+    private HashMap<AbstractViewNode, Set<AbstractViewEdge>> incidentEdges;
     /**
      * Extra settings that might be applicable to the view map. Typical examples are properties such as "zoom", or "units".
      */
@@ -54,8 +74,11 @@ public class ViewMap {
     public ViewMap() {
         this.nodes  = new ArrayList<>();
         this.edges = new ArrayList<>();
+        this.nodeIndex = new HashMap<>();
+        this.edgeIndex = new HashMap<>();
         this.sourceNodes = new HashMap<>();
         this.targetNodes = new HashMap<>();
+        this.incidentEdges = new HashMap<>();
         this.properties = new Properties();
     }
     
@@ -64,8 +87,22 @@ public class ViewMap {
      * @param node The node to be added. If the node is already in the map, nothing will be done.
      */
     public void addNode(AbstractViewNode node) {
-        if (!nodes.contains(node))
-            nodes.add(node);
+        if (nodeIndex.containsKey(node.getIdentifier()))
+            return;
+        
+        nodes.add(node);
+        for (Object key : node.getLookupKeys())
+            nodeIndex.put(key, node);
+    }
+    
+    /**
+     * Adds a set of nodes to the map. Use this method instead of calling {@link #addNode(AbstractViewNode)} repeatedly 
+     * when loading large views, so the storage is resized only once.
+     * @param nodesToAdd The nodes to be added. The nodes already in the map will be ignored.
+     */
+    public void addNodes(Collection<? extends AbstractViewNode> nodesToAdd) {
+        ((ArrayList<AbstractViewNode>) nodes).ensureCapacity(nodes.size() + nodesToAdd.size());
+        nodesToAdd.forEach(this::addNode);
     }
     
     /**
@@ -73,8 +110,59 @@ public class ViewMap {
      * @param edge The edge to be added. If the edge is already in the map, nothing will be done.
      */
     public void addEdge(AbstractViewEdge edge) {
-        if (!edges.contains(edge))
-            edges.add(edge);
+        if (edgeIndex.containsKey(edge.getIdentifier()))
+            return;
+        
+        edges.add(edge);
+        for (Object key : edge.getLookupKeys())
+            edgeIndex.put(key, edge);
+    }
+    
+    /**
+     * Adds a set of edges to the map. Use this method instead of calling {@link #addEdge(AbstractViewEdge)} repeatedly 
+     * when loading large views, so the storage is resized only once.
+     * @param edgesToAdd The edges to be added. The edges already in the map will be ignored.
+     */
+    public void addEdges(Collection<? extends AbstractViewEdge> edgesToAdd) {
+        ((ArrayList<AbstractViewEdge>) edges).ensureCapacity(edges.size() + edgesToAdd.size());
+        edgesToAdd.forEach(this::addEdge);
+    }
+    
+    /**
+     * Removes a node from the map, along with the edges attached to it.
+     * @param node The node to be removed. If the node is not in the map, nothing will be done.
+     * @return The edges that were removed because they were attached to the node.
+     */
+    public List<AbstractViewEdge> removeNode(AbstractViewNode node) {
+        AbstractViewNode nodeToRemove = node == null ? null : nodeIndex.get(node.getIdentifier());
+        if (nodeToRemove == null)
+            return Collections.emptyList();
+        
+        List<AbstractViewEdge> edgesToRemove = new ArrayList<>(getIncidentEdges(nodeToRemove));
+        if (!edgesToRemove.isEmpty()) {
+            Set<AbstractViewEdge> edgesToRemoveSet = new HashSet<>(edgesToRemove);
+            edges.removeIf(edgesToRemoveSet::contains);
+            edgesToRemove.forEach(this::unindexEdge);
+        }
+        
+        nodes.remove(nodeToRemove);
+        for (Object key : nodeToRemove.getLookupKeys())
+            nodeIndex.remove(key);
+        incidentEdges.remove(nodeToRemove);
+        return edgesToRemove;
+    }
+    
+    /**
+     * Removes an edge from the map, detaching it from its source and target nodes.
+     * @param edge The edge to be removed. If the edge is not in the map, nothing will be done.
+     */
+    public void removeEdge(AbstractViewEdge edge) {
+        AbstractViewEdge edgeToRemove = edge == null ? null : edgeIndex.get(edge.getIdentifier());
+        if (edgeToRemove == null)
+            return;
+        
+        edges.remove(edgeToRemove);
+        unindexEdge(edgeToRemove);
     }
     
     /**
@@ -83,9 +171,10 @@ public class ViewMap {
      * @param sourceNode The node to be connected to the edge.
      */
     public void attachSourceNode(AbstractViewEdge edge, AbstractViewNode sourceNode) {
-        assert (!edges.contains(edge) || !nodes.contains(sourceNode)) : "The map does not contain either the source node or the edge provided";
-        sourceNodes.remove(edge);
+        assert (edgeIndex.containsKey(edge.getIdentifier()) && (sourceNode == null || nodeIndex.containsKey(sourceNode.getIdentifier()))) : "The map does not contain either the source node or the edge provided";
+        detach(edge, sourceNodes.remove(edge));
         sourceNodes.put(edge, sourceNode);
+        attach(edge, sourceNode);
     }
     
     /**
@@ -94,9 +183,10 @@ public class ViewMap {
      * @param targetNode The node to be connected to the edge.
      */
     public void attachTargetNode(AbstractViewEdge edge, AbstractViewNode targetNode) {
-        assert (!edges.contains(edge) || !nodes.contains(targetNode)) : "The map does not contain either the target node or the edge provided";
-        targetNodes.remove(edge);
+        assert (edgeIndex.containsKey(edge.getIdentifier()) && (targetNode == null || nodeIndex.containsKey(targetNode.getIdentifier()))) : "The map does not contain either the target node or the edge provided";
+        detach(edge, targetNodes.remove(edge));
         targetNodes.put(edge, targetNode);
+        attach(edge, targetNode);
     }
     
     /**
@@ -105,9 +195,8 @@ public class ViewMap {
      * @return The node or null if such identifier does not belong to any node.
      */
     public AbstractViewNode getNode(Object identifier) {
-        return nodes.stream().filter((aNode) -> {
-            return aNode.getIdentifier().equals(identifier);
-        }).findFirst().orElse(null);
+        AbstractViewNode node = nodeIndex.get(identifier);
+        return node != null && node.getIdentifier().equals(identifier) ? node : null;
     }
     
     /**
@@ -116,9 +205,8 @@ public class ViewMap {
      * @return The node or null if such identifier does not belong to any node.
      */
     public AbstractViewEdge getEdge(Object identifier) {
-        return edges.stream().filter((anEdge) -> {
-            return anEdge.getIdentifier().equals(identifier);
-        }).findFirst().orElse(null);
+        AbstractViewEdge edge = edgeIndex.get(identifier);
+        return edge != null && edge.getIdentifier().equals(identifier) ? edge : null;
     }
     
     /**
@@ -140,7 +228,18 @@ public class ViewMap {
     }
     
     /**
-     * Returns the available nodes.
+     * Gets the edges attached to a node, either as source or target.
+     * @param node The node.
+     * @return The edges attached to the node, in the order they were attached. The set is read-only.
+     */
+    public Set<AbstractViewEdge> getIncidentEdges(AbstractViewNode node) {
+        Set<AbstractViewEdge> nodeEdges = incidentEdges.get(node);
+        return nodeEdges == null ? Collections.emptySet() : Collections.unmodifiableSet(nodeEdges);
+    }
+    
+    /**
+     * Returns the available nodes. Use {@link #addNode(AbstractViewNode)} and {@link #removeNode(AbstractViewNode)} to 
+     * modify the nodes in the map, otherwise the indexes won't be updated.
      * @return The nodes in the map.
      */
     public List<AbstractViewNode> getNodes() {
@@ -148,7 +247,8 @@ public class ViewMap {
     }
     
     /**
-     * Returns the available edges.
+     * Returns the available edges. Use {@link #addEdge(AbstractViewEdge)} and {@link #removeEdge(AbstractViewEdge)} to 
+     * modify the edges in the map, otherwise the indexes won't be updated.
      * @return The edges in the map.
      */
     public List<AbstractViewEdge> getEdges() {
@@ -170,42 +270,65 @@ public class ViewMap {
     public void clear() {
         this.edges.clear();
         this.nodes.clear();
+        this.nodeIndex.clear();
+        this.edgeIndex.clear();
         this.sourceNodes.clear();
         this.targetNodes.clear();
+        this.incidentEdges.clear();
         this.properties.clear();
     }
     
     /**
      * Tries to match a node in the view with a business object provided as parameter. 
-     * The <code>identifier</code> is compared with the business object behind each one of the existing nodes 
-     * using its <code>equals</code> method, thus being able to support multiple types of comparisons.
-     * @param identifier The business object to be matched against.
+     * The <code>identifier</code> is looked up among the lookup keys of the existing nodes (see 
+     * {@link AbstractViewNode#getLookupKeys()}), thus being able to support multiple types of comparisons.
+     * @param identifier The business object to be matched against, one of its alternative keys, or another node.
      * @return The view node if existent, null otherwise.
      */
     public AbstractViewNode findNode(Object identifier) {
-        try {
-            return this.nodes.stream().filter((aNode) -> {
-                return aNode.equals(identifier);
-            }).findFirst().get();
-        } catch (NoSuchElementException ex) {
-            return null;
-        }
+        if (identifier instanceof AbstractViewNode)
+            return nodeIndex.get(((AbstractViewNode)identifier).getIdentifier());
+        return identifier == null ? null : nodeIndex.get(identifier);
     }
     
     /**
      * Tries to match an edge in the view with a business object provided as parameter. 
-     * The <code>identifier</code> is compared with the business object behind each one of the existing edges 
-     * using its <code>equals</code> method, thus being able to support multiple types of comparisons.
-     * @param identifier The business object to be matched against.
+     * The <code>identifier</code> is looked up among the lookup keys of the existing edges (see 
+     * {@link AbstractViewEdge#getLookupKeys()}), thus being able to support multiple types of comparisons.
+     * @param identifier The business object to be matched against, one of its alternative keys, or another edge.
      * @return The view edge if existent, null otherwise.
      */
     public AbstractViewEdge findEdge(Object identifier) {
-        try {
-            return this.edges.stream().filter((anEdge) -> {
-                return anEdge.equals(identifier);
-            }).findFirst().get();
-        } catch (NoSuchElementException ex) {
-            return null;
+        if (identifier instanceof AbstractViewEdge)
+            return edgeIndex.get(((AbstractViewEdge)identifier).getIdentifier());
+        return identifier == null ? null : edgeIndex.get(identifier);
+    }
+    
+    /**
+     * Removes an edge from the indexes and detaches it from its nodes.
+     * @param edge The edge.
+     */
+    private void unindexEdge(AbstractViewEdge edge) {
+        for (Object key : edge.getLookupKeys())
+            edgeIndex.remove(key);
+        detach(edge, sourceNodes.remove(edge));
+        detach(edge, targetNodes.remove(edge));
+    }
+    
+    private void attach(AbstractViewEdge edge, AbstractViewNode node) {
+        if (node != null)
+            incidentEdges.computeIfAbsent(node, aNode -> new LinkedHashSet<>()).add(edge);
+    }
+    
+    private void detach(AbstractViewEdge edge, AbstractViewNode node) {
+        if (node == null)
+            return;
+        Set<AbstractViewEdge> nodeEdges = incidentEdges.get(node);
+        // A self-loop is still attached to the node by its other end
+        if (nodeEdges != null && !node.equals(sourceNodes.get(edge)) && !node.equals(targetNodes.get(edge))) {
+            nodeEdges.remove(edge);
+            if (nodeEdges.isEmpty())
+                incidentEdges.remove(node);
         }
     }
 }
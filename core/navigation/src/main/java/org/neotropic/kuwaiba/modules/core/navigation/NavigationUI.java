@@ -975,8 +975,11 @@ public class NavigationUI extends VerticalLayout implements
                 });
                 btnGoToDashboard.setWidthFull();
                 
-                // Header
-                Label lblTitle = new Label(selectedObject.toString());
+                // Header. When the validators are evaluated on demand, the listed objects come without them,
+                // so they are fetched only for the selected object
+                if (selectedObject.getValidators() == null || selectedObject.getValidators().isEmpty())
+                    selectedObject.setValidators(bem.getObjectValidators(selectedObject.getClassName(), selectedObject.getId()));
+                FormattedObjectDisplayNameSpan lblTitle = new FormattedObjectDisplayNameSpan(selectedObject, false, false, true, false);
                 lblTitle.setClassName("dialog-title");
 
                 Button btnInfo = new Button(ts.getTranslatedString("module.navigation.actions.show-more-information-button-name"),
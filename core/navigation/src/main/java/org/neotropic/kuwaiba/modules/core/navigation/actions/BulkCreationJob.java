@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.modules.core.navigation.actions;
+
+import java.util.Calendar;
+import java.util.concurrent.CompletionException;
+import org.neotropic.kuwaiba.core.apis.persistence.application.UserProfileLight;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BulkCreationResult;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InventoryException;
+import org.neotropic.kuwaiba.core.services.threading.ManagedJob;
+import org.neotropic.kuwaiba.core.services.threading.ManagedJobDescriptor;
+
+/**
+ * A job that creates multiple objects (or special objects) from a name pattern, committing them in chunks
+ * and reporting the progress through its descriptor, so it can be followed in the Threading Service.
+ * If the job ends with error, the objects created so far remain created, and the result tells from what index
+ * the creation can be resumed.
+ * @author agent {@literal <agent@local>}
+ */
+public class BulkCreationJob extends ManagedJob<BulkCreationResult> {
+    /**
+     * The action parameter with the index (in the list of names generated by the name pattern) of the first object to be created, 
+     * used to resume a creation that did not finish. Optional, 0 by default.
+     */
+    public static final String PARAM_FIRST_INDEX = "firstIndex"; //NOI18N
+    /**
+     * The action response entry with the future that completes with the {@link BulkCreationResult} once the job is done.
+     */
+    public static final String RESPONSE_CREATION = "creation"; //NOI18N
+    /**
+     * Reference to the Business Entity Manager.
+     */
+    private final BusinessEntityManager bem;
+    /**
+     * The class name for the new objects.
+     */
+    private final String className;
+    /**
+     * The parent class name for the new objects.
+     */
+    private final String parentClassName;
+    /**
+     * The object id of the parent.
+     */
+    private final String parentId;
+    /**
+     * The pattern to create the names for the new objects.
+     */
+    private final String namePattern;
+    /**
+     * The template for the new objects. Null for none.
+     */
+    private final String templateId;
+    /**
+     * True to create the objects as special children of the parent.
+     */
+    private final boolean special;
+    /**
+     * The index (in the list of names generated by the name pattern) of the first object to be created.
+     */
+    private final int firstIndex;
+
+    public BulkCreationJob(UserProfileLight user, BusinessEntityManager bem, String className, String parentClassName,
+            String parentId, String namePattern, String templateId, boolean special, int firstIndex) {
+        super(user);
+        this.bem = bem;
+        this.className = className;
+        this.parentClassName = parentClassName;
+        this.parentId = parentId;
+        this.namePattern = namePattern;
+        this.templateId = templateId;
+        this.special = special;
+        this.firstIndex = firstIndex;
+        this.descriptor.setDescription(String.format("Bulk creation of %s objects under %s (%s)", className, parentClassName, parentId)); //NOI18N
+    }
+
+    /**
+     * Creates the objects.
+     * @return The ids of the objects created and, if the creation did not finish, why it stopped and where it should be resumed.
+     * @throws CompletionException Wrapping the {@link InventoryException} thrown if the class, the parent or the template are not valid.
+     * No object is created in that case.
+     */
+    @Override
+    public BulkCreationResult get() {
+        try {
+            BulkCreationResult result = bem.createBulkObjects(className, parentClassName, parentId, namePattern, templateId,
+                    special, firstIndex, 0, aResult -> descriptor.setProgress(aResult.getProgress()));
+            descriptor.setState(result.isComplete() ? ManagedJobDescriptor.STATE_END_SUCCESS : ManagedJobDescriptor.STATE_END_ERROR);
+            return result;
+        } catch (InventoryException ex) {
+            throw new CompletionException(ex);
+        } finally {
+            if (descriptor.getState() == ManagedJobDescriptor.STATE_RUNNING)
+                descriptor.setState(ManagedJobDescriptor.STATE_END_ERROR);
+            descriptor.setEndTime(Calendar.getInstance().getTimeInMillis());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.modules.core.navigation.actions;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+
+/**
+ * Keeps the browser polling while there are bulk creation jobs (see {@link BulkCreationJob}) running for a UI.
+ * There's no server push, so the outcome of a job can only be shown once the browser asks for it. The number of
+ * running jobs is kept in the UI, so the polling is only stopped once the last one is done. Must be called with
+ * the session locked (from a listener or within {@link UI#access(com.vaadin.flow.server.Command)}).
+ * @author agent {@literal <agent@local>}
+ */
+final class BulkCreationPolling {
+    /**
+     * How often (in milliseconds) the browser asks for the outcome of the creation while it's running.
+     */
+    private static final int POLL_INTERVAL = 2000;
+
+    private BulkCreationPolling() { }
+
+    /**
+     * Starts polling, if it's the first job running for the UI.
+     * @param ui The UI the job was started from.
+     */
+    static void jobStarted(UI ui) {
+        RunningJobs runningJobs = ComponentUtil.getData(ui, RunningJobs.class);
+        if (runningJobs == null) {
+            runningJobs = new RunningJobs();
+            ComponentUtil.setData(ui, RunningJobs.class, runningJobs);
+        }
+        if (runningJobs.count++ == 0)
+            ui.setPollInterval(POLL_INTERVAL);
+    }
+
+    /**
+     * Stops polling, if no other job is running for the UI.
+     * @param ui The UI the job was started from.
+     */
+    static void jobFinished(UI ui) {
+        RunningJobs runningJobs = ComponentUtil.getData(ui, RunningJobs.class);
+        if (runningJobs == null || --runningJobs.count <= 0) {
+            ComponentUtil.setData(ui, RunningJobs.class, null);
+            ui.setPollInterval(-1);
+        }
+    }
+
+    /**
+     * The number of jobs running for a UI.
+     */
+    private static class RunningJobs {
+        private int count;
+    }
+}
@@ -15,17 +15,21 @@
  */
 package org.neotropic.kuwaiba.modules.core.navigation.actions;
 
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.icon.Icon;
 import com.vaadin.flow.component.icon.VaadinIcon;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.PostConstruct;
 import org.neotropic.kuwaiba.core.apis.integration.modules.ModuleActionException;
 import org.neotropic.kuwaiba.core.apis.integration.modules.actions.AbstractAction;
 import org.neotropic.kuwaiba.core.apis.integration.modules.actions.ActionResponse;
 import org.neotropic.kuwaiba.core.apis.persistence.application.Privilege;
+import org.neotropic.kuwaiba.core.apis.persistence.application.Session;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BulkCreationResult;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
-import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InventoryException;
 import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
+import org.neotropic.kuwaiba.core.services.threading.ThreadingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -45,6 +49,11 @@ public class NewMultipleBusinessObjectsAction extends AbstractAction {
      */
     @Autowired
     private TranslationService ts;
+    /**
+     * Reference to the Threading Service, used to run the creation as a managed job.
+     */
+    @Autowired
+    private ThreadingService threadingService;
     
     @PostConstruct
     protected void init() {
@@ -61,14 +70,25 @@ public class NewMultipleBusinessObjectsAction extends AbstractAction {
                 String parentOid = (String) parameters.get(Constants.PROPERTY_PARENT_ID);
                 String pattern = (String) parameters.get(Constants.PROPERTY_PATTERN);
                 String templateId = (String) parameters.get(Constants.PROPERTY_TEMPLATE_ID);
+                int firstIndex = parameters.containsKey(BulkCreationJob.PARAM_FIRST_INDEX) ? 
+                        (int) parameters.get(BulkCreationJob.PARAM_FIRST_INDEX) : 0;
+                Session session = UI.getCurrent().getSession().getAttribute(Session.class);
                 
-                String[] createBulkObjects = bem.createBulkObjects(className, parentClassName, parentOid, pattern, templateId);
+                BulkCreationJob job = new BulkCreationJob(session.getUser(), bem, className, parentClassName, 
+                        parentOid, pattern, templateId, false, firstIndex);
+                // The objects are created in the background, and the job is dropped from the job table once it's done. 
+                // The caller is told about the outcome through the future in the response
+                CompletableFuture<BulkCreationResult> creation = threadingService.startJob(job).whenComplete((result, ex) -> {
+                    try {
+                        threadingService.removeJob(job.getDescriptor().getId());
+                    } catch (IllegalArgumentException iae) {} // Already removed from the job table
+                });
                 
                 ActionResponse actionResponse = new ActionResponse();
-                actionResponse.put(ActionResponse.ActionType.ADD, createBulkObjects.length);
+                actionResponse.put(BulkCreationJob.RESPONSE_CREATION, creation);
                 
                 return actionResponse;
-            } catch (InventoryException ex) {
+            } catch (IllegalArgumentException ex) {
                 throw new ModuleActionException(ex.getMessage());
             }
         });
@@ -18,12 +18,15 @@ package org.neotropic.kuwaiba.modules.core.navigation.actions;
 import com.vaadin.componentfactory.theme.EnhancedDialogVariant;
 import com.vaadin.flow.component.Key;
 import com.vaadin.flow.component.ShortcutRegistration;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.combobox.ComboBox;
 import com.vaadin.flow.component.dialog.Dialog;
 import com.vaadin.flow.component.html.Label;
 import com.vaadin.flow.component.orderedlayout.FlexComponent;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.textfield.IntegerField;
 import com.vaadin.flow.component.textfield.TextField;
+import java.util.concurrent.CompletableFuture;
 import org.neotropic.kuwaiba.core.apis.integration.modules.ModuleActionException;
 import org.neotropic.kuwaiba.core.apis.integration.modules.ModuleActionParameter;
 import org.neotropic.kuwaiba.core.apis.integration.modules.ModuleActionParameterSet;
@@ -32,6 +35,7 @@ import org.neotropic.kuwaiba.core.apis.integration.modules.actions.AbstractVisua
 import org.neotropic.kuwaiba.core.apis.integration.modules.actions.ActionCompletedListener.ActionCompletedEvent;
 import org.neotropic.kuwaiba.core.apis.integration.modules.actions.ActionResponse;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BulkCreationResult;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InventoryException;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadataLight;
@@ -134,7 +138,13 @@ public class NewMultipleBusinessObjectsVisualAction extends AbstractVisualInvent
                 txtPattern.setPlaceholder(ts.getTranslatedString("module.navigation.actions.new-multiple-business-objects-pattern-example"));
                 txtPattern.setSizeFull();
                 
-                HorizontalLayout lytFields = new HorizontalLayout(cmbPossibleChildrenClass, txtPattern);
+                //First index, used to resume a creation that did not finish
+                IntegerField intFirstIndex = new IntegerField(ts.getTranslatedString("module.navigation.actions.new-multiple-business-objects.first-index"));
+                intFirstIndex.setMin(0);
+                intFirstIndex.setValue(parameters.containsKey(BulkCreationJob.PARAM_FIRST_INDEX) ? 
+                        (int) parameters.get(BulkCreationJob.PARAM_FIRST_INDEX) : 0);
+                
+                HorizontalLayout lytFields = new HorizontalLayout(cmbPossibleChildrenClass, txtPattern, intFirstIndex);
                 lytFields.setWidthFull();
                 wdw.setContent(lytFields);
                 //Buttons
@@ -143,24 +153,49 @@ public class NewMultipleBusinessObjectsVisualAction extends AbstractVisualInvent
                 wdw.getBtnConfirm().addClickListener(event -> {
                     try {
                         if(txtPattern.getValue() != null){
+                            int firstIndex = intFirstIndex.getValue() == null ? 0 : intFirstIndex.getValue();
                             ModuleActionParameterSet params = new ModuleActionParameterSet(
                                     new ModuleActionParameter(Constants.PROPERTY_CLASSNAME, cmbPossibleChildrenClass.getValue().getName()),
                                     new ModuleActionParameter(Constants.PROPERTY_PARENT_ID, businessObject.getId() == null ? "-1" : businessObject.getId()),
                                     new ModuleActionParameter(Constants.PROPERTY_PARENT_CLASS_NAME, businessObject.getClassName()),
                                     new ModuleActionParameter(Constants.PROPERTY_PATTERN, txtPattern.getValue()),
-                                    new ModuleActionParameter(Constants.PROPERTY_TEMPLATE_ID, ""));
-                            wdw.close();
-                            //Here we create the objects and we return the number of created objects                                                
+                                    new ModuleActionParameter(Constants.PROPERTY_TEMPLATE_ID, ""),
+                                    new ModuleActionParameter(BulkCreationJob.PARAM_FIRST_INDEX, firstIndex));
+                            //Here we start the creation of the objects. The outcome is reported once the job is done
                             ActionResponse actionResponse = newMultipleBusinessObjectsAction.getCallback().execute(params);
-                            actionResponse.put(Constants.PROPERTY_PARENT_ID, businessObject.getId());
-                            actionResponse.put(Constants.PROPERTY_PARENT_CLASS_NAME, businessObject.getClassName());
-                            actionResponse.put(PARAM_BUSINESS_OBJECT, businessObject);    
-
-                            fireActionCompletedEvent(new ActionCompletedEvent(
-                                    ActionCompletedEvent.STATUS_SUCCESS,
-                                    ts.getTranslatedString("module.navigation.actions.new-business-object.ui.success"),
-                                    NewBusinessObjectAction.class, actionResponse)
-                            );
+                            wdw.close();
+                            
+                            CompletableFuture<BulkCreationResult> creation = 
+                                    (CompletableFuture<BulkCreationResult>) actionResponse.get(BulkCreationJob.RESPONSE_CREATION);
+                            UI ui = UI.getCurrent();
+                            // There's no server push, so the browser polls until the outcome can be shown
+                            BulkCreationPolling.jobStarted(ui);
+                            creation.whenComplete((result, ex) -> ui.access(() -> {
+                                BulkCreationPolling.jobFinished(ui);
+                                if (ex != null)
+                                    fireActionCompletedEvent(new ActionCompletedEvent(
+                                            ActionCompletedEvent.STATUS_ERROR, ex.getCause() == null ? ex.getMessage() : ex.getCause().getMessage(),
+                                            NewMultipleBusinessObjectsAction.class));
+                                else if (!result.isComplete())
+                                    fireActionCompletedEvent(new ActionCompletedEvent(
+                                            ActionCompletedEvent.STATUS_ERROR, 
+                                            String.format(ts.getTranslatedString("module.navigation.actions.new-multiple-business-objects.messages.partially-created"), 
+                                                    result.getCreatedIds().size(), result.getTotal() - firstIndex, result.getNextIndex(), result.getFailureMessage()),
+                                            NewMultipleBusinessObjectsAction.class));
+                                else {
+                                    ActionResponse creationResponse = new ActionResponse();
+                                    creationResponse.put(ActionResponse.ActionType.ADD, result.getCreatedIds().size());
+                                    creationResponse.put(Constants.PROPERTY_PARENT_ID, businessObject.getId());
+                                    creationResponse.put(Constants.PROPERTY_PARENT_CLASS_NAME, businessObject.getClassName());
+                                    creationResponse.put(PARAM_BUSINESS_OBJECT, businessObject);
+                                    
+                                    fireActionCompletedEvent(new ActionCompletedEvent(
+                                            ActionCompletedEvent.STATUS_SUCCESS,
+                                            ts.getTranslatedString("module.navigation.actions.new-business-object.ui.success"),
+                                            NewBusinessObjectAction.class, creationResponse)
+                                    );
+                                }
+                            }));
                         }
                     } catch (ModuleActionException ex) {
                         fireActionCompletedEvent(new ActionCompletedEvent(
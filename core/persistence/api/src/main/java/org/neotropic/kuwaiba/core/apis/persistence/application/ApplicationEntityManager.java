@@ -17,10 +17,11 @@
 package org.neotropic.kuwaiba.core.apis.persistence.application;
 
 import org.neotropic.kuwaiba.core.apis.persistence.ChangeDescriptor;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
 import org.neotropic.kuwaiba.core.apis.persistence.AbstractEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.application.processman.ActivityDefinition;
 import org.neotropic.kuwaiba.core.apis.persistence.application.processman.Artifact;
@@ -73,10 +74,15 @@ public interface ApplicationEntityManager extends AbstractEntityManager {
     
    
     /**
-     * Gets current sessions
-     * @return A dictionary whose keys are the session tokens and the values are the session related objects
+     * Gets current sessions. Use {@link #validateCall(java.lang.String, java.lang.String, java.lang.String)} to check a session before using it
+     * @return A read-only dictionary whose keys are the session tokens and the values are the session related objects
      */
-    public ConcurrentHashMap<String, Session> getSessions();
+    public Map<String, Session> getSessions();
+    /**
+     * Gets the registry of the current sessions, which also provides statistics about their use.
+     * @return The session registry.
+     */
+    public SessionRegistry getSessionRegistry();
     /**
      * Tells if a given pair user-session token is valid.
      * @param username The user name.
@@ -851,6 +857,19 @@ public interface ApplicationEntityManager extends AbstractEntityManager {
      */
     public List<ActivityLogEntry> getGeneralActivityAuditTrail(int page, int limit, HashMap<String, Object> filters);
     
+    /**
+     * Retrieves the general activity log entries that have been moved out of the database to the audit trail archive 
+     * because they were too old.
+     * @param from The beginning of the period to look into, in milliseconds since the epoch (inclusive).
+     * @param to The end of the period to look into, in milliseconds since the epoch (exclusive).
+     * @param limit Max number of entries to be returned. -1 to retrieve them all.
+     * @param filters Same as in {@link #getGeneralActivityAuditTrail(int, int, java.util.HashMap)}.
+     * @return The list of activity log entries. The entries are sorted by creation date in descending order.
+     * @throws InvalidArgumentException If the archive could not be read.
+     */
+    public List<ActivityLogEntry> getArchivedGeneralActivityAuditTrail(long from, long to, int limit, HashMap<String, Object> filters) 
+            throws InvalidArgumentException;
+    
     /**
      * Validates if a user is allowed to call a given a northbound interface method
      * @param methodName The method to check if the user is allowed to call it.
@@ -1663,6 +1682,21 @@ public interface ApplicationEntityManager extends AbstractEntityManager {
      * @throws InvalidArgumentException If the file size exceeds the max permitted (default value is 10MB)
      */
     public long attachFileToListTypeItem(String name, String tags, byte[] file, String ltClass, String listTypeItemId) throws BusinessObjectNotFoundException, OperationNotPermittedException, MetadataObjectNotFoundException, InvalidArgumentException;
+    /**
+     * Relates a file to a list type item. The file is streamed to disk, so it's never loaded in memory as a whole. 
+     * If the same contents are already attached to another object, they are not stored again
+     * @param name The name of the file
+     * @param tags The tags that describe the contents of the file
+     * @param file The contents of the file. The stream is not closed by this method
+     * @param ltClass the list type class
+     * @param listTypeItemId The id of the list type item the file will be attached to
+     * @return The id of the resulting file object
+     * @throws BusinessObjectNotFoundException If the inventory object could not be found
+     * @throws OperationNotPermittedException If there's some sort of system restriction that prevented the file to be created
+     * @throws MetadataObjectNotFoundException If the class provided does not exist
+     * @throws InvalidArgumentException If the file size exceeds the max permitted (default value is 10MB)
+     */
+    public long attachFileToListTypeItem(String name, String tags, InputStream file, String ltClass, String listTypeItemId) throws BusinessObjectNotFoundException, OperationNotPermittedException, MetadataObjectNotFoundException, InvalidArgumentException;
     /**
      * Fetches the files associated to an inventory object. Note that this call won't retrieve the actual files, but only references to them
      * @param className The class of the object whose files will be fetched from
@@ -1685,6 +1719,18 @@ public interface ApplicationEntityManager extends AbstractEntityManager {
      * @throws MetadataObjectNotFoundException If the class provided does not exist
      */
     public FileObject getFile(long fileId, String className, String objectId) throws BusinessObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException;
+    /**
+     * Retrieves a particular file associated to an inventory list type item. Unlike {@link #getFile(long, java.lang.String, java.lang.String)}, 
+     * this call doesn't load the file in memory, but returns a reference to its contents, so they can be streamed
+     * @param fileId The id of the file object
+     * @param className The class of the object the file is associated to
+     * @param objectId The id of the list type item the file is associated to
+     * @return The file
+     * @throws BusinessObjectNotFoundException If the object could not be found
+     * @throws InvalidArgumentException If for some low level reason, the file could not be found in its original location
+     * @throws MetadataObjectNotFoundException If the class provided does not exist
+     */
+    public FileObjectContent getFileContent(long fileId, String className, String objectId) throws BusinessObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException;
     /**
      * Releases (and deletes) a file associated to a list type item
      * @param fileId The id of the file
@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.apis.persistence.application;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The basic metadata about a file attached to an inventory object, plus a reference to its contents, so they can be
+ * read as a stream or copied to a channel instead of being loaded in memory as in {@link FileObject}.
+ * @author agent {@literal <agent@local>}
+ */
+public class FileObjectContent extends FileObjectLight {
+    /**
+     * Size of the buffer used to decompress the contents.
+     */
+    private static final int BUFFER_SIZE = 65536;
+    /**
+     * The file where the contents are stored.
+     */
+    private Path location;
+    /**
+     * If the stored contents are compressed (gzip).
+     */
+    private boolean compressed;
+    /**
+     * The size of the (uncompressed) contents in bytes.
+     */
+    private long size;
+
+    public FileObjectContent(long fileOjectId, String name, String tags, long creationDate, Path location, boolean compressed, long size) {
+        super(fileOjectId, name, tags, creationDate);
+        this.location = location;
+        this.compressed = compressed;
+        this.size = size;
+    }
+
+    public Path getLocation() {
+        return location;
+    }
+
+    public void setLocation(Path location) {
+        this.location = location;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    /**
+     * Opens the contents for reading. The caller must close the stream.
+     * @return The (uncompressed) contents.
+     * @throws IOException If the contents could not be opened.
+     */
+    public InputStream openStream() throws IOException {
+        InputStream in = Files.newInputStream(location);
+        return compressed ? new GZIPInputStream(in, BUFFER_SIZE) : new BufferedInputStream(in, BUFFER_SIZE);
+    }
+
+    /**
+     * Copies the contents to a channel. If the contents are not compressed, the copy is delegated to the operating
+     * system, so they don't go through the heap.
+     * @param target The channel. It's not closed by this method.
+     * @return The number of bytes written.
+     * @throws IOException If the contents could not be read or the channel could not be written.
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        if (!compressed) {
+            try (FileChannel source = FileChannel.open(location, StandardOpenOption.READ)) {
+                long position = 0, length = source.size();
+                while (position < length)
+                    position += source.transferTo(position, length - position, target);
+                return position;
+            }
+        }
+
+        long written = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (ReadableByteChannel source = Channels.newChannel(openStream())) {
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining())
+                    written += target.write(buffer);
+                buffer.clear();
+            }
+        }
+        return written;
+    }
+}
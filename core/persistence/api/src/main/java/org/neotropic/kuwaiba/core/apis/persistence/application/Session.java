@@ -61,12 +61,17 @@ public class Session implements Serializable {
      * Session token
      */
     private String token;
+    /**
+     * Last time (in milliseconds) the session was used. Updated on every call, so it's not guarded by any lock
+     */
+    private volatile long lastAccessTime;
 
     public Session(UserProfile user, int sessionType) {
         this.user = user;
         this.loginTime = Calendar.getInstance().getTime();
         this.token = generateSessionToken();
         this.sessionType = sessionType;
+        this.lastAccessTime = loginTime.getTime();
     }
 
     public Date getLoginTime() {
@@ -100,6 +105,17 @@ public class Session implements Serializable {
     public void setSessionType(int sessionType) {
         this.sessionType = sessionType;
     }
+
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /**
+     * Records the session has just been used.
+     */
+    public void touch() {
+        this.lastAccessTime = System.currentTimeMillis();
+    }
     
     @Override
     public String toString() {
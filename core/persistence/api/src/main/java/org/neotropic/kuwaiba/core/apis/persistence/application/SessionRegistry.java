@@ -0,0 +1,305 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.neotropic.kuwaiba.core.apis.persistence.application;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the open sessions indexed by token and by user, so validating a token or finding the sessions of a user
+ * don't need to go through all the sessions. Sessions that have not been used for longer than the idle timeout
+ * are closed by a background sweeper, except for web client sessions, whose life cycle is bound to that of the
+ * HTTP session. The registry also counts the session validations, so the current load can be monitored.
+ * @author agent {@literal <agent@local>}
+ */
+public class SessionRegistry {
+    /**
+     * How often (in seconds) the idle sessions are looked for and the validation rate is updated.
+     */
+    private static final int SWEEP_INTERVAL = 5;
+    /**
+     * The sessions. The key is the session token.
+     */
+    private final ConcurrentHashMap<String, Session> sessionsByToken;
+    /**
+     * Read-only view of the sessions indexed by token, handed to the callers of {@link #getSessionsByToken()}.
+     */
+    private final Map<String, Session> sessionsByTokenView;
+    /**
+     * The sessions of every user. The key is the user id, and the value is a map whose key is the session type,
+     * since a user can have only one session of each type.
+     */
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Integer, Session>> sessionsByUser;
+    /**
+     * Number of session validations since the registry was created.
+     */
+    private final LongAdder validations;
+    /**
+     * Number of sessions closed because they were idle for too long.
+     */
+    private final LongAdder expiredSessions;
+    /**
+     * Number of validations at the time of the last sweep.
+     */
+    private long validationsAtLastSweep;
+    /**
+     * Time of the last sweep in nanoseconds.
+     */
+    private long lastSweepTime;
+    /**
+     * The validations per second measured between the last two sweeps.
+     */
+    private volatile double validationsPerSecond;
+    /**
+     * Time in milliseconds a session can be unused before it's closed. A value of zero or less disables the expiration.
+     */
+    private volatile long idleTimeout;
+    /**
+     * Runs the sweeper.
+     */
+    private final ScheduledExecutorService sweeper;
+    /**
+     * Notified of every session closed by the sweeper. Null if nobody needs to know.
+     */
+    private volatile Consumer<Session> expirationListener;
+
+    public SessionRegistry() {
+        this.sessionsByToken = new ConcurrentHashMap<>();
+        this.sessionsByTokenView = Collections.unmodifiableMap(sessionsByToken);
+        this.sessionsByUser = new ConcurrentHashMap<>();
+        this.validations = new LongAdder();
+        this.expiredSessions = new LongAdder();
+        this.lastSweepTime = System.nanoTime();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread sweeperThread = new Thread(runnable, "session-sweeper"); //NOI18N
+            sweeperThread.setDaemon(true);
+            return sweeperThread;
+        });
+        this.sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Adds a session, replacing the session of the same type the user might have already opened.
+     * @param session The new session.
+     * @return The replaced session or null if the user had no other session of the same type.
+     */
+    public Session add(Session session) {
+        Session replacedSession = sessionsByUser.computeIfAbsent(session.getUser().getId(), userId -> new ConcurrentHashMap<>())
+                .put(session.getSessionType(), session);
+        if (replacedSession != null)
+            sessionsByToken.remove(replacedSession.getToken(), replacedSession);
+        sessionsByToken.put(session.getToken(), session);
+        return replacedSession;
+    }
+
+    /**
+     * Gets a session. This is a read-only lookup: it's neither counted as a validation nor recorded as a use of the session, 
+     * so it's meant for callers that have already validated the token with {@link #touch(java.lang.String)}.
+     * @param token The session token.
+     * @return The session or null if there is no session with that token.
+     */
+    public Session get(String token) {
+        return token == null ? null : sessionsByToken.get(token);
+    }
+
+    /**
+     * Gets a session and records it has just been used, so it doesn't expire. The call is counted as a validation.
+     * @param token The session token.
+     * @return The session or null if there is no session with that token.
+     */
+    public Session touch(String token) {
+        validations.increment();
+        Session session = get(token);
+        if (session != null)
+            session.touch();
+        return session;
+    }
+
+    /**
+     * Tells if a token belongs to a session of a given user, and if so, records the session has just been used.
+     * @param userName The user name.
+     * @param token The session token.
+     * @return True if the token exists and corresponds to the given user.
+     */
+    public boolean isValid(String userName, String token) {
+        Session session = touch(token);
+        return session != null && session.getUser().getUserName().equals(userName);
+    }
+
+    /**
+     * Removes a session.
+     * @param token The session token.
+     * @return The removed session or null if there was no session with that token.
+     */
+    public Session remove(String token) {
+        Session session = get(token);
+        return session != null && remove(session) ? session : null;
+    }
+
+    /**
+     * Removes a session, provided it's still registered.
+     * @param session The session.
+     * @return True if the session was removed, false if it had already been removed or replaced.
+     */
+    private boolean remove(Session session) {
+        if (!sessionsByToken.remove(session.getToken(), session))
+            return false;
+        sessionsByUser.computeIfPresent(session.getUser().getId(), (userId, sessionsOfUser) -> {
+            sessionsOfUser.remove(session.getSessionType(), session);
+            return sessionsOfUser.isEmpty() ? null : sessionsOfUser;
+        });
+        return true;
+    }
+
+    /**
+     * Gets the sessions opened by a user.
+     * @param userId The id of the user.
+     * @return The sessions of the user. An empty list if the user has no sessions.
+     */
+    public List<Session> getSessionsOfUser(long userId) {
+        ConcurrentHashMap<Integer, Session> sessionsOfUser = sessionsByUser.get(userId);
+        return sessionsOfUser == null ? Collections.emptyList() : new ArrayList<>(sessionsOfUser.values());
+    }
+
+    /**
+     * The sessions indexed by token. Use the add and remove methods to modify them, so the user index is kept up to date.
+     * Note that getting a session from this map doesn't count as a use of the session, use {@link #touch(java.lang.String)} instead.
+     * @return A read-only view of the sessions. The key is the session token.
+     */
+    public Map<String, Session> getSessionsByToken() {
+        return sessionsByTokenView;
+    }
+
+    /**
+     * Number of sessions currently open.
+     * @return The number of sessions.
+     */
+    public int getActiveSessions() {
+        return sessionsByToken.size();
+    }
+
+    /**
+     * Number of session validations since the application started.
+     * @return The number of validations.
+     */
+    public long getValidations() {
+        return validations.sum();
+    }
+
+    /**
+     * The session validations per second, measured over the last few seconds.
+     * @return The validation rate.
+     */
+    public double getValidationsPerSecond() {
+        return validationsPerSecond;
+    }
+
+    /**
+     * Number of sessions closed because they were idle for too long since the application started.
+     * @return The number of expired sessions.
+     */
+    public long getExpiredSessions() {
+        return expiredSessions.sum();
+    }
+
+    /**
+     * Time a session can be unused before it's closed.
+     * @return The timeout in milliseconds. Zero or less if the sessions don't expire.
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets the time a session can be unused before it's closed.
+     * @param idleTimeout The timeout in milliseconds. Zero or less to disable the expiration.
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Sets who is notified of the sessions closed because they were idle for too long (e.g. to log it in the audit trail).
+     * The listener is called from the sweeper thread.
+     * @param expirationListener The listener. Null to remove it.
+     */
+    public void setExpirationListener(Consumer<Session> expirationListener) {
+        this.expirationListener = expirationListener;
+    }
+
+    /**
+     * Stops the sweeper. Sessions will not expire after calling this method.
+     */
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Updates the validation rate and closes the sessions that have been idle for too long.
+     */
+    private void sweep() {
+        try {
+            long now = System.nanoTime();
+            long currentValidations = validations.sum();
+            validationsPerSecond = (currentValidations - validationsAtLastSweep) / ((now - lastSweepTime) / 1e9);
+            validationsAtLastSweep = currentValidations;
+            lastSweepTime = now;
+
+            long timeout = idleTimeout;
+            if (timeout <= 0)
+                return;
+            long oldestAllowedAccess = System.currentTimeMillis() - timeout;
+            for (Session session : sessionsByToken.values()) {
+                if (session.getSessionType() != Session.TYPE_WEB && session.getLastAccessTime() < oldestAllowedAccess && remove(session)) {
+                    expiredSessions.increment();
+                    Logger.getLogger(SessionRegistry.class.getName()).log(Level.INFO, String.format("[KUWAIBA] [%s] Session of user %s closed after being idle for more than %s ms",
+                            Calendar.getInstance().getTime(), session.getUser().getUserName(), timeout));
+                    notifyExpiration(session);
+                }
+            }
+        } catch (Exception ex) { //An exception would cancel the scheduled task
+            Logger.getLogger(SessionRegistry.class.getName()).log(Level.WARNING, String.format("[KUWAIBA] [%s] Unexpected error sweeping the idle sessions: %s",
+                    Calendar.getInstance().getTime(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * Tells the expiration listener (if any) a session was closed. A failure doesn't prevent the other sessions from being swept.
+     */
+    private void notifyExpiration(Session session) {
+        Consumer<Session> listener = expirationListener;
+        if (listener == null)
+            return;
+        try {
+            listener.accept(session);
+        } catch (Exception ex) {
+            Logger.getLogger(SessionRegistry.class.getName()).log(Level.WARNING, String.format("[KUWAIBA] [%s] The expiration of the session of user %s could not be notified: %s",
+                    Calendar.getInstance().getTime(), session.getUser().getUserName(), ex.getMessage()));
+        }
+    }
+}
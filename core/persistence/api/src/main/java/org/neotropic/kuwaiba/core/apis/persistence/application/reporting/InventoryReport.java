@@ -15,6 +15,10 @@
  */
 package org.neotropic.kuwaiba.core.apis.persistence.application.reporting;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import org.neotropic.kuwaiba.core.apis.persistence.util.MimeTypes;
+
 /**
  * All report types must inherit from this abstract class. It describes the general behavior of a report. 
  * Do not mistake this class for {@link ReportMetadata}: Instances of this class represent the reports after being generated, 
@@ -70,4 +74,23 @@ public abstract class InventoryReport {
      * @return 
      */
     public abstract byte[] asByteArray();
+    
+    /**
+     * Writes the result of the report to a stream. Reports that can be rendered incrementally should override 
+     * this method, so the whole result doesn't have to be held in memory. By default, the result of 
+     * {@link #asByteArray()} is written.
+     * @param outputStream The stream. It's not closed by this method.
+     * @throws IOException If the stream could not be written.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(asByteArray());
+    }
+    
+    /**
+     * The media type of the result of the report. 
+     * @return The media type. By default, HTML.
+     */
+    public String getContentType() {
+        return MimeTypes.MIME_TYPE_HTML;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.apis.persistence.business;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk creation of objects. The objects are created in chunks, each one committed on its own,
+ * so if a chunk fails, the objects of the previous chunks remain created, and the creation can be resumed
+ * from {@link #getNextIndex()} using the same name pattern.
+ * @author agent {@literal <agent@local>}
+ */
+public class BulkCreationResult implements Serializable {
+    /**
+     * The ids of the objects created so far, in the same order as the names generated by the name pattern.
+     */
+    private final List<String> createdIds;
+    /**
+     * How many names the name pattern generates.
+     */
+    private final int total;
+    /**
+     * The index (in the list of names generated by the name pattern) of the next object to be created.
+     */
+    private int nextIndex;
+    /**
+     * Why the creation stopped before creating all the objects. Null if no chunk has failed.
+     */
+    private String failureMessage;
+
+    public BulkCreationResult(int total, int firstIndex) {
+        this.createdIds = new ArrayList<>();
+        this.total = total;
+        this.nextIndex = firstIndex;
+    }
+
+    /**
+     * Registers a chunk of objects that has been committed.
+     * @param ids The ids of the objects in the chunk.
+     */
+    public void addChunk(List<String> ids) {
+        createdIds.addAll(ids);
+        nextIndex += ids.size();
+    }
+
+    public List<String> getCreatedIds() {
+        return Collections.unmodifiableList(createdIds);
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getNextIndex() {
+        return nextIndex;
+    }
+
+    public String getFailureMessage() {
+        return failureMessage;
+    }
+
+    public void setFailureMessage(String failureMessage) {
+        this.failureMessage = failureMessage;
+    }
+
+    /**
+     * Tells if all the objects were created.
+     * @return True if there's nothing else left to create.
+     */
+    public boolean isComplete() {
+        return failureMessage == null && nextIndex >= total;
+    }
+
+    /**
+     * The fraction of the objects already created.
+     * @return A number between 0 and 1.
+     */
+    public float getProgress() {
+        return total == 0 ? 1 : (float) nextIndex / total;
+    }
+}
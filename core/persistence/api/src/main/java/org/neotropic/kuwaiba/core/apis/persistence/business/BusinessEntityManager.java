@@ -19,6 +19,8 @@ package org.neotropic.kuwaiba.core.apis.persistence.business;
 import org.neotropic.kuwaiba.core.apis.persistence.ChangeDescriptor;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FileObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.application.InventoryObjectPool;
+import org.neotropic.kuwaiba.core.apis.persistence.application.Validator;
+import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.InventoryReport;
 import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.ReportMetadata;
 import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.ReportMetadataLight;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.ApplicationObjectNotFoundException;
@@ -27,11 +29,14 @@ import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentExc
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.MetadataObjectNotFoundException;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.OperationNotPermittedException;
 import org.neotropic.kuwaiba.core.apis.persistence.util.StringPair;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.neotropic.kuwaiba.core.apis.persistence.AbstractEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FileObject;
+import org.neotropic.kuwaiba.core.apis.persistence.application.FileObjectContent;
 
 /**
  * This is the entity in charge of manipulating business objects
@@ -152,7 +157,9 @@ public interface BusinessEntityManager extends AbstractEntityManager {
     public String createPoolItem(String poolId, String className, HashMap<String, String> attributes, String templateId) 
             throws ApplicationObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException;
     /**
-     * Creates multiple objects using a given name pattern
+     * Creates multiple objects using a given name pattern. All the objects are created in a single transaction, so either all 
+     * of them are created or none. Use {@link #createBulkObjects(java.lang.String, java.lang.String, java.lang.String, java.lang.String, java.lang.String, boolean, int, int, java.util.function.Consumer)} 
+     * to commit large amounts of objects in chunks.
      * @param className The class name for the new objects
      * @param parentClassName The parent class name for the new objects
      * @param parentOid The object id of the parent
@@ -171,7 +178,8 @@ public interface BusinessEntityManager extends AbstractEntityManager {
         throws MetadataObjectNotFoundException, OperationNotPermittedException, BusinessObjectNotFoundException, 
             InvalidArgumentException, ApplicationObjectNotFoundException;
     /**
-     * Creates multiple special objects using a given name pattern
+     * Creates multiple special objects using a given name pattern. All the objects are created in a single transaction, so either all 
+     * of them are created or none.
      * @param className The class name for the new special objects
      * @param parentClassName The parent class name for the new special objects
      * @param parentId The object id of the parent
@@ -188,6 +196,36 @@ public interface BusinessEntityManager extends AbstractEntityManager {
      */
     public String[] createBulkSpecialObjects(String className, String parentClassName, String parentId, String namePattern, String templateId) 
         throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, OperationNotPermittedException, InvalidArgumentException, ApplicationObjectNotFoundException;
+    /**
+     * Creates multiple objects (or special objects) using a given name pattern, committing them in chunks. The class, 
+     * the parent and the template are validated before anything is created. If a chunk can not be committed, 
+     * the creation stops, the objects in the previous chunks remain created, and the returned result tells 
+     * from what index the creation can be resumed. Since every chunk is committed on its own, it can't be called from within another transaction.
+     * @param className The class name for the new objects
+     * @param parentClassName The parent class name for the new objects
+     * @param parentId The object id of the parent
+     * @param namePattern A pattern to create the names for the new objects
+     * @param templateId The id of the template to be used for the set of objects to be created. Used null for none.
+     * @param special True to create the objects as special children of the parent, false to create them as regular children.
+     * @param firstIndex The index (in the list of names generated by the name pattern) of the first object to be created. 
+     * Use 0 to create all the objects, or the next index of a previous failed creation to resume it.
+     * @param chunkSize How many objects are committed at once. Use 0 or less to use the configured default 
+     * (see the business property <code>bulkCreationChunkSize</code>).
+     * @param progressListener Notified every time a chunk is committed. It could be null.
+     * @return The ids of the objects created and, if the creation did not finish, why it stopped and where it should be resumed.
+     * @throws MetadataObjectNotFoundException If the className or the parentClassName can not be found.
+     * @throws BusinessObjectNotFoundException If the parent node can not be found.
+     * @throws InvalidArgumentException If the given name pattern not match with the regular expression to build the new object name, 
+     *                                  the first index is out of bounds or the template is not applicable to the class.
+     * @throws OperationNotPermittedException If the className is not a possible (special) children of parentClassName.
+     *                                        If the className is not in design or are abstract.
+     *                                        If the className is not an InventoryObject.
+     *                                        If it's called from within another transaction.
+     * @throws ApplicationObjectNotFoundException If the provided template could not be found.
+     */
+    public BulkCreationResult createBulkObjects(String className, String parentClassName, String parentId, String namePattern, String templateId, 
+            boolean special, int firstIndex, int chunkSize, Consumer<BulkCreationResult> progressListener) 
+        throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, OperationNotPermittedException, InvalidArgumentException, ApplicationObjectNotFoundException;
     
     /**
      * Gets the detailed information about an object
@@ -251,6 +289,32 @@ public interface BusinessEntityManager extends AbstractEntityManager {
     public BusinessObjectLight getObjectLight(String className, String oid)
             throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException;
     
+    /**
+     * Gets the simplified information about a set of objects using a single query. It's meant for the cases where 
+     * many objects have to be resolved at once, like when a saved view is loaded, so they don't have to be fetched 
+     * one by one with {@link #getObjectLight(java.lang.String, java.lang.String)}.
+     * @param objectIds The ids of the objects to be retrieved, grouped by class name. An object is retrieved only if 
+     * it's an instance of the class it's listed under.
+     * @return The objects found, indexed by id. The objects that could not be found (or whose class doesn't 
+     * match) are not included, so the caller can report all of them at once.
+     * @throws InvalidArgumentException If the set of ids is null
+     */
+    public HashMap<String, BusinessObjectLight> getObjectsLight(Map<String, List<String>> objectIds)
+            throws InvalidArgumentException;
+    
+    /**
+     * Evaluates the validators applicable to an object. Use it to fetch the validators on demand when they are not 
+     * evaluated while listing objects (see the business property <code>validatorEvaluationMode</code>).
+     * @param className Object class name
+     * @param oid Object's oid
+     * @return The validators produced by the validator definitions applicable to the object
+     * @throws MetadataObjectNotFoundException If the className class can't be found
+     * @throws BusinessObjectNotFoundException If the requested object can't be found
+     * @throws InvalidArgumentException If the oid is null
+     */
+    public List<Validator> getObjectValidators(String className, String oid)
+            throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException;
+    
     /**
      * Retrieves a list of light instances of a given class given a simple filter. This method will search for all objects with a string-based attribute (filterName) whose value matches a value provided (filterValue)
      * @param className The class of the objects to be searched. This method support abstract superclasses as well
@@ -394,6 +458,15 @@ public interface BusinessEntityManager extends AbstractEntityManager {
     public List<BusinessObjectLight> getParents(String objectClassName, String oid)
         throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, InvalidArgumentException;
     
+    /**
+     * Retrieves the parents of many objects at once, for example, to show the location of every row of a report. 
+     * The ancestors shared by the objects are retrieved only once.
+     * @param oids The ids of the objects.
+     * @return The parents of every object (as returned by {@link #getParents(java.lang.String, java.lang.String)}), 
+     * indexed by object id. The objects that don't exist are mapped to an empty list.
+     */
+    public HashMap<String, List<BusinessObjectLight>> getParents(List<String> oids);
+    
     /**
      * Gets the list of parents (according to the special and standard containment hierarchy) until it finds an instance of class 
      * objectToMatchClassName (for example "give me the parents of this port until you find the nearest rack")
@@ -621,6 +694,39 @@ public interface BusinessEntityManager extends AbstractEntityManager {
     public List<BusinessObjectLight> getObjectChildren(long classId, String oid, int maxResults)
             throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, InvalidArgumentException;
     
+    /**
+     * Gets a page of the children of a given object. The pages are delimited by a cursor instead of an offset, 
+     * so the time needed to retrieve a page doesn't grow with the number of pages already read. The children are 
+     * sorted by id.
+     * @param className Object's class name
+     * @param oid Object's oid. Use -1 to get the children of the navigation tree root
+     * @param cursor The cursor returned along with the previous page. Null to get the first page
+     * @param limit Max number of children in the page. It must be greater than zero
+     * @return The page of children
+     * @throws MetadataObjectNotFoundException If the object's class can't be found
+     * @throws BusinessObjectNotFoundException If the object can't be found
+     * @throws InvalidArgumentException If the cursor is not valid or the limit is not greater than zero
+     */
+    public BusinessObjectLightPage getObjectChildrenPage(String className, String oid, String cursor, int limit)
+            throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException;
+    
+    /**
+     * Delivers the children of a given object to a consumer as they are read from the database, so they 
+     * don't need to be held in memory. The children are sorted by id.
+     * @param className Object's class name
+     * @param oid Object's oid. Use -1 to get the children of the navigation tree root
+     * @param cursor A cursor returned by {@link #getObjectChildrenPage(java.lang.String, java.lang.String, java.lang.String, int)}, 
+     * to start after the last child of that page. Null to start from the first child
+     * @param limit Max number of children to be delivered, -1 to deliver them all
+     * @param consumer Receives the children while the query is being executed
+     * @return The number of children delivered
+     * @throws MetadataObjectNotFoundException If the object's class can't be found
+     * @throws BusinessObjectNotFoundException If the object can't be found
+     * @throws InvalidArgumentException If the cursor is not valid
+     */
+    public long streamObjectChildren(String className, String oid, String cursor, long limit, Consumer<BusinessObjectLight> consumer)
+            throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException;
+    
     /**
      * Gets the direct children of a given object of a given class.
      * @param parentOid parent id
@@ -666,6 +772,66 @@ public interface BusinessEntityManager extends AbstractEntityManager {
      */
     public List<BusinessObjectLight> getChildrenOfClassLightRecursive(String parentOid, String parentClass, String classToFilter, HashMap <String, String> attributesToFilters, int page, int limit) 
         throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException;
+    
+    /**
+     * Same as {@link #getChildrenOfClassLightRecursive(java.lang.String, java.lang.String, java.lang.String, java.util.HashMap, int, int)}, 
+     * but the pages are delimited by a cursor instead of an offset. The children are sorted by id
+     * @param parentOid Object id of the root parent of the hierarchy
+     * @param parentClass Class name of the root parent of the hierarchy
+     * @param classToFilter Class name of the expected children
+     * @param attributesToFilters if filtering by the attributes of the retrieved objects
+     * @param cursor The cursor returned along with the previous page. Null to get the first page
+     * @param limit Max number of children in the page. It must be greater than zero
+     * @return The page of children
+     * @throws MetadataObjectNotFoundException If the class to filter is not found
+     * @throws BusinessObjectNotFoundException If the parent is not found
+     * @throws InvalidArgumentException If the cursor is not valid or the limit is not greater than zero
+     */
+    public BusinessObjectLightPage getChildrenOfClassLightRecursivePage(String parentOid, String parentClass, String classToFilter, 
+            HashMap <String, String> attributesToFilters, String cursor, int limit) 
+        throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException;
+    
+    /**
+     * Same as {@link #getChildrenOfClassLightRecursive(java.lang.String, java.lang.String, java.lang.String, java.util.HashMap, int, int)}, 
+     * but the children are delivered to a consumer as they are read from the database, so they don't need to be 
+     * held in memory. The children are sorted by id
+     * @param parentOid Object id of the root parent of the hierarchy
+     * @param parentClass Class name of the root parent of the hierarchy
+     * @param classToFilter Class name of the expected children
+     * @param attributesToFilters if filtering by the attributes of the retrieved objects
+     * @param cursor A cursor returned by {@link #getChildrenOfClassLightRecursivePage(java.lang.String, java.lang.String, java.lang.String, java.util.HashMap, java.lang.String, int)}, 
+     * to start after the last child of that page. Null to start from the first child
+     * @param limit Max number of children to be delivered, -1 to deliver them all
+     * @param consumer Receives the children while the query is being executed
+     * @return The number of children delivered
+     * @throws MetadataObjectNotFoundException If the class to filter is not found
+     * @throws BusinessObjectNotFoundException If the parent is not found
+     * @throws InvalidArgumentException If the cursor is not valid
+     */
+    public long streamChildrenOfClassLightRecursive(String parentOid, String parentClass, String classToFilter, 
+            HashMap <String, String> attributesToFilters, String cursor, long limit, Consumer<BusinessObjectLight> consumer) 
+        throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException;
+    /**
+     * Delivers the instances of a given class (or its subclasses) in the containment hierarchy with root in the given 
+     * parent to a consumer as they are read from the database, along with the value of some of their attributes and 
+     * their parents up to the root of the hierarchy. It's meant for reports and exports, which would otherwise need 
+     * to retrieve the attributes and the parents of each object separately.
+     * i.e.: all the routers in a City, with their serial number and location
+     * @param parentOid Object id of the root parent of the hierarchy
+     * @param parentClass Class name of the root parent of the hierarchy
+     * @param classToFilter Class name of the expected children. It can be an abstract class
+     * @param attributeNames The attributes whose values are to be retrieved. The list types are returned as the 
+     * names of the selected items
+     * @param consumer Receives the children while the query is being executed
+     * @return The number of children delivered
+     * @throws MetadataObjectNotFoundException If the class to filter or the parent class are not found
+     * @throws BusinessObjectNotFoundException If the parent is not found
+     * @throws InvalidArgumentException If the parent Id is null
+     */
+    public long streamChildrenOfClassRecursive(String parentOid, String parentClass, String classToFilter, 
+            List<String> attributeNames, Consumer<LocatedBusinessObjectLight> consumer) 
+        throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException;
+    
     /**
      * Gets all class and abstract class special children of a given class to filter 
      * in a hierarchy with root in the given parent.
@@ -732,6 +898,50 @@ public interface BusinessEntityManager extends AbstractEntityManager {
      */
     public List<BusinessObjectLight> getObjectsOfClassLight(String className, long page, long limit) throws InvalidArgumentException, MetadataObjectNotFoundException;
     
+    /**
+     * Gets a page of the light instances of a given class. The pages are delimited by a cursor instead of an offset, 
+     * so the time needed to retrieve a page doesn't grow with the number of pages already read. The instances are 
+     * sorted by id
+     * @param className Class name. It must be a subclass of InventoryObject
+     * @param cursor The cursor returned along with the previous page. Null to get the first page
+     * @param limit Max number of instances in the page. It must be greater than zero
+     * @return The page of instances
+     * @throws InvalidArgumentException If the class name is null, the cursor is not valid or the limit is not greater than zero
+     * @throws MetadataObjectNotFoundException If the provided class name doesn't exists
+     */
+    public BusinessObjectLightPage getObjectsOfClassLightPage(String className, String cursor, int limit) throws InvalidArgumentException, MetadataObjectNotFoundException;
+    
+    /**
+     * Delivers the light instances of a given class to a consumer as they are read from the database, so they 
+     * don't need to be held in memory. The instances are sorted by id
+     * @param className Class name. It must be a subclass of InventoryObject
+     * @param cursor A cursor returned by {@link #getObjectsOfClassLightPage(java.lang.String, java.lang.String, int)}, 
+     * to start after the last instance of that page. Null to start from the first instance
+     * @param limit Max number of instances to be delivered, -1 to deliver them all
+     * @param consumer Receives the instances while the query is being executed
+     * @return The number of instances delivered
+     * @throws InvalidArgumentException If the class name is null or the cursor is not valid
+     * @throws MetadataObjectNotFoundException If the provided class name doesn't exists
+     */
+    public long streamObjectsOfClassLight(String className, String cursor, long limit, Consumer<BusinessObjectLight> consumer) 
+            throws InvalidArgumentException, MetadataObjectNotFoundException;
+    
+    /**
+     * Delivers the instances of a given class (or its subclasses) that have a value in all the given attributes to 
+     * a consumer as they are read from the database, along with those values. It's meant for modules that keep 
+     * their own indexes of some attributes and would otherwise retrieve them one object at a time.
+     * i.e.: all the locations with latitude and longitude. The parents of the delivered objects are not retrieved
+     * @param className Class name. It must be a subclass of InventoryObject
+     * @param attributeNames The attributes whose values are to be retrieved. The list types are returned as the 
+     * names of the selected items
+     * @param consumer Receives the instances while the query is being executed
+     * @return The number of instances delivered
+     * @throws InvalidArgumentException If the class name is null or no attributes were given
+     * @throws MetadataObjectNotFoundException If the provided class name doesn't exists
+     */
+    public long streamObjectsOfClassWithAttributes(String className, List<String> attributeNames, 
+            Consumer<LocatedBusinessObjectLight> consumer) throws InvalidArgumentException, MetadataObjectNotFoundException;
+    
     /**
      * Recursively gets all the instances of given class
      * @param className Class name. It mist be a subclass of InventoryObject
@@ -817,6 +1027,17 @@ public interface BusinessEntityManager extends AbstractEntityManager {
     public List<BusinessObjectLight> getSpecialAttribute(String objectClass, String objectId, String specialAttributeName) 
             throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, InvalidArgumentException;
     
+    /**
+     * Gets the value of a special attribute of many objects at once, for example, to fill the rows of a report. 
+     * The related objects are retrieved in a single query, instead of one query per object.
+     * @param objectIds The ids of the objects.
+     * @param specialAttributeName Special attribute name
+     * @return The objects related to every object through the special relationship (as returned by 
+     * {@link #getSpecialAttribute(java.lang.String, java.lang.String, java.lang.String)}), indexed by object id. 
+     * The objects that don't exist or are not related to others using that relationship are mapped to an empty list.
+     */
+    public HashMap<String, List<BusinessObjectLight>> getSpecialAttribute(List<String> objectIds, String specialAttributeName);
+    
     /**
      * This method will extract the object at the other side of the special relationship and all the properties of the relationship itself
      * @param objectClass The class of the object whose special attribute will be retrieved from
@@ -938,6 +1159,22 @@ public interface BusinessEntityManager extends AbstractEntityManager {
      */
     public long attachFileToObject(String name, String tags, byte[] file, String className, 
             String objectId) throws BusinessObjectNotFoundException, OperationNotPermittedException, MetadataObjectNotFoundException, InvalidArgumentException;
+    /**
+     * Relates a file to an inventory object. The file is streamed to disk, so it's never loaded in memory as a whole. 
+     * If the same contents are already attached to another object, they are not stored again
+     * @param name The name of the file
+     * @param tags The tags that describe the contents of the file
+     * @param file The contents of the file. The stream is not closed by this method
+     * @param className The class of the object the file will be attached to
+     * @param objectId The id of the object the file will be attached to
+     * @return The id of the resulting file object
+     * @throws BusinessObjectNotFoundException If the inventory object could not be found
+     * @throws OperationNotPermittedException If there's some sort of system restriction that prevented the file to be created
+     * @throws MetadataObjectNotFoundException If the class provided does not exist
+     * @throws InvalidArgumentException If the file size exceeds the max permitted (default value is 10MB)
+     */
+    public long attachFileToObject(String name, String tags, InputStream file, String className, 
+            String objectId) throws BusinessObjectNotFoundException, OperationNotPermittedException, MetadataObjectNotFoundException, InvalidArgumentException;
     /**
      * Fetches the files associated to an inventory object. Note that this call won't retrieve the actual files, but only references to them
      * @param className The class of the object whose files will be fetched from
@@ -960,6 +1197,18 @@ public interface BusinessEntityManager extends AbstractEntityManager {
      * @throws MetadataObjectNotFoundException If the class provided does not exist
      */
     public FileObject getFile(long fileObjectId, String className, String objectId) throws BusinessObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException;
+    /**
+     * Retrieves a particular file associated to an inventory object. Unlike {@link #getFile(long, java.lang.String, java.lang.String)}, 
+     * this call doesn't load the file in memory, but returns a reference to its contents, so they can be streamed
+     * @param fileObjectId The id of the file object
+     * @param className The class of the object the file is associated to
+     * @param objectId The id of the object the file is associated to
+     * @return The file
+     * @throws BusinessObjectNotFoundException If the object could not be found
+     * @throws InvalidArgumentException If for some low level reason, the file could not be found in its original location
+     * @throws MetadataObjectNotFoundException If the class provided does not exist
+     */
+    public FileObjectContent getFileContent(long fileObjectId, String className, String objectId) throws BusinessObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException;
     /**
      * Releases (and deletes) a file associated to an inventory object
      * @param fileObjectId The id of the file object
@@ -1184,6 +1433,35 @@ public interface BusinessEntityManager extends AbstractEntityManager {
     public List<BusinessObjectLight> getPoolItems(String poolId, int limit)
             throws ApplicationObjectNotFoundException, InvalidArgumentException;
     
+    /**
+     * Retrieves a page of the objects in a pool. The pages are delimited by a cursor instead of an offset, so 
+     * the time needed to retrieve a page doesn't grow with the number of pages already read. The objects are 
+     * sorted by id
+     * @param poolId Parent pool id
+     * @param cursor The cursor returned along with the previous page. Null to get the first page
+     * @param limit Max number of objects in the page. It must be greater than zero
+     * @return The page of items
+     * @throws ApplicationObjectNotFoundException If the pool id provided is not valid
+     * @throws InvalidArgumentException If the pool id is null, the cursor is not valid or the limit is not greater than zero
+     */
+    public BusinessObjectLightPage getPoolItemsPage(String poolId, String cursor, int limit)
+            throws ApplicationObjectNotFoundException, InvalidArgumentException;
+    
+    /**
+     * Delivers the objects in a pool to a consumer as they are read from the database, so they don't need 
+     * to be held in memory. The objects are sorted by id
+     * @param poolId Parent pool id
+     * @param cursor A cursor returned by {@link #getPoolItemsPage(java.lang.String, java.lang.String, int)}, 
+     * to start after the last item of that page. Null to start from the first item
+     * @param limit Max number of objects to be delivered, -1 to deliver them all
+     * @param consumer Receives the items while the query is being executed
+     * @return The number of items delivered
+     * @throws ApplicationObjectNotFoundException If the pool id provided is not valid
+     * @throws InvalidArgumentException If the pool id is null or the cursor is not valid
+     */
+    public long streamPoolItems(String poolId, String cursor, long limit, Consumer<BusinessObjectLight> consumer)
+            throws ApplicationObjectNotFoundException, InvalidArgumentException;
+    
      /**
      * Retrieves the list of objects from a pool
      * @param poolId Parent pool id
@@ -1317,6 +1595,22 @@ public interface BusinessEntityManager extends AbstractEntityManager {
     public byte[] executeClassLevelReport(String objectClassName, String objectId, long reportId) 
             throws MetadataObjectNotFoundException, ApplicationObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException;
     
+    /**
+     * Executes the script of a class level report and returns the resulting report without rendering it, so it can be 
+     * written to a stream with {@link InventoryReport#writeTo(java.io.OutputStream)}. Note that the report will likely 
+     * be rendered after the transaction used to run the script has been closed.
+     * @param objectClassName The class of the instance that will be used as input for the report.
+     * @param objectId The id of the instance that will be used as input for the report.
+     * @param reportId The id of the report.
+     * @return The report.
+     * @throws MetadataObjectNotFoundException If the class could not be found.
+     * @throws ApplicationObjectNotFoundException If the report could not be found.
+     * @throws BusinessObjectNotFoundException If the inventory object could not be found.
+     * @throws InvalidArgumentException If there's an error during the execution of the report.
+     */
+    public InventoryReport buildClassLevelReport(String objectClassName, String objectId, long reportId) 
+            throws MetadataObjectNotFoundException, ApplicationObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException;
+    
     /**
      * Executes an inventory level report and returns the result.
      * @param reportId The id of the report.
@@ -1327,6 +1621,19 @@ public interface BusinessEntityManager extends AbstractEntityManager {
      */
     public byte[] executeInventoryLevelReport(long reportId, List<StringPair> parameters)
             throws ApplicationObjectNotFoundException, InvalidArgumentException;
+    
+    /**
+     * Executes the script of an inventory level report and returns the resulting report without rendering it, so it can be 
+     * written to a stream with {@link InventoryReport#writeTo(java.io.OutputStream)}. Note that the report will likely 
+     * be rendered after the transaction used to run the script has been closed.
+     * @param reportId The id of the report.
+     * @param parameters List of pairs param name - param value.
+     * @return The report.
+     * @throws ApplicationObjectNotFoundException If the report could not be found.
+     * @throws InvalidArgumentException If the associated script exits with error.
+     */
+    public InventoryReport buildInventoryLevelReport(long reportId, List<StringPair> parameters) 
+            throws ApplicationObjectNotFoundException, InvalidArgumentException;
     //</editor-fold>
     
     //<editor-fold desc="Warehouse" defaultstate="collapsed">
@@ -1402,6 +1709,49 @@ public interface BusinessEntityManager extends AbstractEntityManager {
             List<String> classesNamesToFilter, String filter, long classesSkip
             , long classesLimit, long objectSkip, long objectLimit) throws InvalidArgumentException;
     
+    /**
+     * Drops and creates again the index used to suggest objects by name (see the getSuggestedObjectsWithFilter methods). 
+     * The index is populated in the background, and the suggestions are computed scanning the objects until it's done 
+     * (see {@link #getSearchIndexStatus()}). This is only necessary if the index failed or was lost, since it is updated 
+     * along with the objects.
+     * @throws IllegalStateException If the index could not be dropped or created again.
+     */
+    public void rebuildSearchIndex();
+    
+    /**
+     * Gets the state and usage counters of the index used to suggest objects by name.
+     * @return The state of the index (key state, one of ONLINE, POPULATING, FAILED or MISSING), the population progress 
+     * in percentage (progress), the failure message if any (failureMessage), when the index was last created (lastRebuild), 
+     * the number of searches answered by the index (queries) and their average time in milliseconds (averageQueryTime) 
+     * and the number of searches that had to scan the objects (fallbacks).
+     */
+    public HashMap<String, Object> getSearchIndexStatus();
+    
+    /**
+     * Gets the usage counters of the named statements used to query the inventory objects in the most frequent operations.
+     * @return One entry per statement, with its name (key name), the number of executions (executions), the number of rows 
+     * returned (rows), the average and max time of an execution in milliseconds (averageTime and maxTime) and the query itself (query).
+     */
+    public List<HashMap<String, Object>> getQueryStatistics();
+    
+    /**
+     * Sets to zero the usage counters of the named statements used to query the inventory objects.
+     */
+    public void resetQueryStatistics();
+    
+    /**
+     * Registers a listener to be notified of the changes made to the inventory objects once they are committed. 
+     * The changes made by any module or API are reported, including the deletion of the children of a deleted object.
+     * @param listener The listener.
+     */
+    public void addChangeListener(BusinessObjectChangeListener listener);
+    
+    /**
+     * Removes a listener registered with {@link #addChangeListener(BusinessObjectChangeListener)}.
+     * @param listener The listener.
+     */
+    public void removeChangeListener(BusinessObjectChangeListener listener);
+    
     /**
      * Suggests a number of pools based on a search string (the pool name).
      * This search string will be case-insensitive-matched against the name of 
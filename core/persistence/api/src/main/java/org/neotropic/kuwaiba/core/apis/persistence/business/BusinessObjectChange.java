@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.neotropic.kuwaiba.core.apis.persistence.business;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Describes how a committed transaction changed an inventory object. See {@link BusinessObjectChangeListener}.
+ * @author agent {@literal <agent@local>}
+ */
+public class BusinessObjectChange implements Serializable {
+    /**
+     * The kinds of change.
+     */
+    public enum Type {
+        /**
+         * The object was created.
+         */
+        CREATED,
+        /**
+         * Some attributes of the object were set or removed, or the object was moved to another parent.
+         */
+        UPDATED,
+        /**
+         * The object was deleted.
+         */
+        DELETED
+    }
+    /**
+     * The kind of change.
+     */
+    private final Type type;
+    /**
+     * The id of the object.
+     */
+    private final String id;
+    /**
+     * The class of the object. Null if it could not be read (e.g. the class was deleted along with the object).
+     */
+    private final String className;
+    /**
+     * The name of the object after the change, or before it if the object was deleted.
+     */
+    private final String name;
+    /**
+     * The id of the new parent (an object or a pool) if the object was created or moved, null otherwise.
+     */
+    private final String parentId;
+    /**
+     * The names of the attributes set or removed, including the list type attributes whose items were changed. Empty if the object was not updated.
+     */
+    private final Set<String> changedAttributes;
+
+    public BusinessObjectChange(Type type, String id, String className, String name, String parentId, Set<String> changedAttributes) {
+        this.type = type;
+        this.id = id;
+        this.className = className;
+        this.name = name;
+        this.parentId = parentId;
+        this.changedAttributes = changedAttributes == null ? Collections.emptySet() : Collections.unmodifiableSet(changedAttributes);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getParentId() {
+        return parentId;
+    }
+
+    public Set<String> getChangedAttributes() {
+        return changedAttributes;
+    }
+
+    /**
+     * Checks if the object was moved to another parent.
+     * @return True if the object was updated and has a new parent.
+     */
+    public boolean isMoved() {
+        return type == Type.UPDATED && parentId != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s (%s)", type, id, className); //NOI18N
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.neotropic.kuwaiba.core.apis.persistence.business;
+
+import java.util.List;
+
+/**
+ * Receives the changes made to the inventory objects, no matter which module or API made them. Used by the modules that keep 
+ * in-memory structures derived from the inventory (e.g. indexes) to keep them up to date. 
+ * See {@link BusinessEntityManager#addChangeListener(BusinessObjectChangeListener)}.
+ * @author agent {@literal <agent@local>}
+ */
+@FunctionalInterface
+public interface BusinessObjectChangeListener {
+    /**
+     * Called once a transaction that changed inventory objects has been committed, in the thread that committed it, so the 
+     * changes are visible to the caller of the operation as soon as it returns. Keep it short: no queries, no blocking.
+     * @param changes The changes, in no particular order. Never empty.
+     */
+    public void objectsChanged(List<BusinessObjectChange> changes);
+}
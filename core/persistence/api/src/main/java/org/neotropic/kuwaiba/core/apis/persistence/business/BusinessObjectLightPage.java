@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.apis.persistence.business;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A page of light business objects retrieved using a cursor instead of an offset. The cursor is opaque: it should
+ * only be passed back to get the next page.
+ * @author agent {@literal <agent@local>}
+ */
+public class BusinessObjectLightPage implements Serializable {
+    /**
+     * The objects in this page.
+     */
+    private List<BusinessObjectLight> items;
+    /**
+     * The cursor to retrieve the next page. Null if this is the last page.
+     */
+    private String nextCursor;
+
+    public BusinessObjectLightPage(List<BusinessObjectLight> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<BusinessObjectLight> getItems() {
+        return items;
+    }
+
+    public void setItems(List<BusinessObjectLight> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
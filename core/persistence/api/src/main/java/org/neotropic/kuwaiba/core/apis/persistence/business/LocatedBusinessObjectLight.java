@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.apis.persistence.business;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A light business object retrieved along with the value of some of its attributes (as strings) and its
+ * parents, so reports don't have to fetch them one object at a time.
+ * @author agent {@literal <agent@local>}
+ */
+public class LocatedBusinessObjectLight implements Serializable {
+    /**
+     * The object itself.
+     */
+    private BusinessObjectLight object;
+    /**
+     * The requested attributes. Attributes without a value are not included.
+     */
+    private HashMap<String, String> attributes;
+    /**
+     * The parents of the object, the closest first, up to the root of the hierarchy the object was retrieved from.
+     */
+    private List<BusinessObjectLight> parents;
+
+    public LocatedBusinessObjectLight(BusinessObjectLight object, HashMap<String, String> attributes, List<BusinessObjectLight> parents) {
+        this.object = object;
+        this.attributes = attributes;
+        this.parents = parents;
+    }
+
+    public BusinessObjectLight getObject() {
+        return object;
+    }
+
+    public void setObject(BusinessObjectLight object) {
+        this.object = object;
+    }
+
+    public HashMap<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(HashMap<String, String> attributes) {
+        this.attributes = attributes;
+    }
+
+    public List<BusinessObjectLight> getParents() {
+        return parents;
+    }
+
+    public void setParents(List<BusinessObjectLight> parents) {
+        this.parents = parents;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.neotropic.kuwaiba.core.apis.persistence.caching;
+
+import java.io.Serializable;
+
+/**
+ * A snapshot of the usage counters of a cache region (for example, the class index or the possible children index).
+ * @author agent {@literal <agent@local>}
+ */
+public class CacheStatistics implements Serializable {
+    /**
+     * The name of the cache region.
+     */
+    private String regionName;
+    /**
+     * Number of entries in the region at the time the snapshot was taken.
+     */
+    private long size;
+    /**
+     * Max number of entries allowed in the region. 0 means the region is not bounded.
+     */
+    private long maxSize;
+    /**
+     * How many lookups found the requested entry.
+     */
+    private long hits;
+    /**
+     * How many lookups did not find the requested entry.
+     */
+    private long misses;
+    /**
+     * How many entries have been discarded to keep the region within its bounds.
+     */
+    private long evictions;
+
+    public CacheStatistics(String regionName, long size, long maxSize, long hits, long misses, long evictions) {
+        this.regionName = regionName;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * The fraction of lookups that found the requested entry.
+     * @return A value between 0 and 1. 0 if there have been no lookups.
+     */
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s entries, %s hits, %s misses, %s evictions", //NOI18N
+                regionName, size, hits, misses, evictions);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.neotropic.kuwaiba.core.apis.persistence.caching;
+
+import java.util.List;
+
+/**
+ * Implementors expose the usage counters of the cache used by the persistence layer,
+ * so they can be monitored without depending on a particular implementation.
+ * @author agent {@literal <agent@local>}
+ */
+public interface CacheStatisticsProvider {
+    /**
+     * Takes a snapshot of the counters of every cache region.
+     * @return One entry per cache region.
+     */
+    public List<CacheStatistics> getCacheStatistics();
+    /**
+     * Sets to zero the hit, miss and eviction counters of every cache region. The cached entries are not affected.
+     */
+    public void resetCacheStatistics();
+    /**
+     * Tells how the validators of the objects are evaluated: EAGER (every time an object is retrieved), CACHED (the first 
+     * time an object is retrieved after it changes) or ON_DEMAND (only when the validators of an object are explicitly requested).
+     * @return The name of the validator evaluation mode.
+     */
+    public String getValidatorEvaluationMode();
+    /**
+     * Takes a snapshot of the time spent evaluating validator definitions and of the validator results taken from the cache.
+     * @return One entry per class whose instances have been evaluated.
+     */
+    public List<ValidatorStatistics> getValidatorStatistics();
+    /**
+     * Sets to zero the validator evaluation counters. The cached validator results are not affected.
+     */
+    public void resetValidatorStatistics();
+    /**
+     * Takes a snapshot of the compilations and executions of the scripts, and of the compiled scripts reused.
+     * @return The script counters.
+     */
+    public ScriptStatistics getScriptStatistics();
+    /**
+     * Sets to zero the script compilation and execution counters. The compiled scripts are not affected.
+     */
+    public void resetScriptStatistics();
+}
@@ -0,0 +1,99 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.apis.persistence.caching;
+
+import java.io.Serializable;
+
+/**
+ * A snapshot of how many times the scripts (tasks, scripted queries, reports and validator definitions) were 
+ * compiled, and how many times their compiled version was reused instead.
+ * @author agent {@literal <agent@local>}
+ */
+public class ScriptStatistics implements Serializable {
+    /**
+     * How many compiled scripts are currently kept.
+     */
+    private int cachedScripts;
+    /**
+     * How many times a compiled script was reused.
+     */
+    private long cacheHits;
+    /**
+     * How many times a script had to be compiled.
+     */
+    private long compilations;
+    /**
+     * Total time spent compiling scripts in milliseconds.
+     */
+    private long compilationTime;
+    /**
+     * How many times a script was run.
+     */
+    private long executions;
+    /**
+     * Total time spent running scripts (not including the compilation) in milliseconds.
+     */
+    private long executionTime;
+    /**
+     * How many compiled scripts were discarded to keep the cache within its bounds.
+     */
+    private long evictions;
+
+    public ScriptStatistics(int cachedScripts, long cacheHits, long compilations, long compilationTime, 
+            long executions, long executionTime, long evictions) {
+        this.cachedScripts = cachedScripts;
+        this.cacheHits = cacheHits;
+        this.compilations = compilations;
+        this.compilationTime = compilationTime;
+        this.executions = executions;
+        this.executionTime = executionTime;
+        this.evictions = evictions;
+    }
+
+    public int getCachedScripts() {
+        return cachedScripts;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCompilations() {
+        return compilations;
+    }
+
+    public long getCompilationTime() {
+        return compilationTime;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    public long getExecutionTime() {
+        return executionTime;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s cached scripts, %s hits, %s compilations (%s ms), %s executions (%s ms), %s evictions", //NOI18N
+                cachedScripts, cacheHits, compilations, compilationTime, executions, executionTime, evictions);
+    }
+}
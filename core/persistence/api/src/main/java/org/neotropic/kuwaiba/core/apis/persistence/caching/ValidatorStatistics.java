@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.neotropic.kuwaiba.core.apis.persistence.caching;
+
+import java.io.Serializable;
+
+/**
+ * A snapshot of the time spent evaluating the validator definitions applicable to the instances of a class, 
+ * and of how many times the results were taken from the cache instead.
+ * @author agent {@literal <agent@local>}
+ */
+public class ValidatorStatistics implements Serializable {
+    /**
+     * The name of the class whose instances were evaluated.
+     */
+    private String className;
+    /**
+     * How many objects have been evaluated.
+     */
+    private long evaluations;
+    /**
+     * How many times the result was taken from the cache instead of evaluating the validator definitions.
+     */
+    private long cacheHits;
+    /**
+     * Total time spent evaluating validator definitions in milliseconds.
+     */
+    private long totalTime;
+    /**
+     * The average time spent evaluating the validator definitions of an object in milliseconds.
+     */
+    private double averageTime;
+    /**
+     * The longest evaluation in milliseconds.
+     */
+    private long maxTime;
+
+    public ValidatorStatistics(String className, long evaluations, long cacheHits, long totalTime, double averageTime, long maxTime) {
+        this.className = className;
+        this.evaluations = evaluations;
+        this.cacheHits = cacheHits;
+        this.totalTime = totalTime;
+        this.averageTime = averageTime;
+        this.maxTime = maxTime;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    public double getAverageTime() {
+        return averageTime;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s evaluations, %s cache hits, %s ms total, %.2f ms avg, %s ms max", //NOI18N
+                className, evaluations, cacheHits, totalTime, averageTime, maxTime);
+    }
+}
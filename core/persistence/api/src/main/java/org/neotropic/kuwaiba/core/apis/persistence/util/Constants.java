@@ -341,6 +341,8 @@ public class Constants {
     public static final String PROPERTY_VERSION = "version"; //NOI18N
     public static final String PROPERTY_APPLIES_TO = "appliesTo"; //NOI18N
     public static final String PROPERTY_TAGS = "tags"; //NOI18N
+    public static final String PROPERTY_CONTENT_HASH = "contentHash"; //NOI18N
+    public static final String PROPERTY_SIZE = "size"; //NOI18N
     public static final String PROPERTY_MASKED = "masked"; //NOI18N
     public static final String PROPERTY_STATE = "state"; //NOI18N
     public static final String PROPERTY_IS_MANAGEMENT = "isManagement"; //NOI18N
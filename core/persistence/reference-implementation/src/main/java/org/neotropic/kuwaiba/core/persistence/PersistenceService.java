@@ -23,6 +23,11 @@ import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntity
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.MetadataEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.AttachmentStore;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.AuditTrailArchiver;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.AuditTrailWriter;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.QueryCatalog;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.SearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -81,6 +86,31 @@ public class PersistenceService {
      */
     @Autowired
     private BusinessEntityManager bem;
+    /**
+     * The audit trail writer to be started.
+     */
+    @Autowired
+    private AuditTrailWriter auditTrailWriter;
+    /**
+     * The audit trail archiver to be started.
+     */
+    @Autowired
+    private AuditTrailArchiver auditTrailArchiver;
+    /**
+     * The attachment store to be configured.
+     */
+    @Autowired
+    private AttachmentStore attachmentStore;
+    /**
+     * The index used to suggest objects by name.
+     */
+    @Autowired
+    private SearchIndex searchIndex;
+    /**
+     * The catalogue of the statements used in the hot paths, compiled during the start up.
+     */
+    @Autowired
+    private QueryCatalog queryCatalog;
     
     
     public Properties getMetadataProperties() {
@@ -173,10 +203,15 @@ public class PersistenceService {
             
             aem.setConfiguration(applicationProperties);
             aem.initCache();
+            auditTrailWriter.start(applicationProperties);
+            auditTrailArchiver.start(applicationProperties);
             Logger.getLogger(PersistenceService.class.getName()).log(Level.INFO, "Application Entity Manager initialized successfully");
             
             bem.setConfiguration(businessProperties);
             bem.initCache();
+            attachmentStore.start(businessProperties);
+            searchIndex.start();
+            queryCatalog.warmUp();
             Logger.getLogger(PersistenceService.class.getName()).log(Level.INFO, "Business Entity Manager initialized successfully");
             
             Logger.getLogger(PersistenceService.class.getName()).log(Level.INFO, "Persistence Service is up and running");
@@ -194,6 +229,10 @@ public class PersistenceService {
         if (state == EXECUTION_STATE.STOPPED)
             throw new IllegalStateException("Persistence Service can not be stopped because it is not running");
         
+        auditTrailArchiver.stop();
+        searchIndex.stop();
+        Logger.getLogger(PersistenceService.class.getName()).log(Level.INFO, "Writing the pending audit trail entries...");
+        auditTrailWriter.stop();
         Logger.getLogger(PersistenceService.class.getName()).log(Level.INFO, "Closing connection...");
         connectionManager.closeConnection();
         Logger.getLogger(PersistenceService.class.getName()).log(Level.INFO, "Connection closed");
@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.extras.caching;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Caches the ancestors (parents, parents of the parents, and so on, up to the navigation tree root) of the inventory objects.
+ * Only the ids of the ancestor nodes are cached, not the objects themselves, so renaming or updating an ancestor doesn't
+ * make the cached paths stale, and the callers must check the nodes still exist and are the same objects when the paths are read.
+ * Moving an object does make stale the paths of the object and all its descendants, so the index keeps track of the objects
+ * whose paths go through every ancestor, and all of them are discarded at once when the ancestor is moved
+ * (see {@link #invalidate(long)}, called by {@link AncestorPathInvalidationHandler} once the move has been committed). 
+ * A discarded path is also removed from the sets of all the other ancestors it went through, so they don't grow with stale entries.
+ * Reads don't block, while updates are serialized.
+ * @author agent {@literal <agent@local>}
+ */
+public class AncestorPathIndex {
+    /**
+     * The cached paths. The key is the id of the object.
+     */
+    private final CacheRegion<String, AncestorPath> paths;
+    /**
+     * The objects whose cached paths go through a given node. The key is the node id of the ancestor.
+     */
+    private final HashMap<Long, Set<String>> descendants;
+    /**
+     * Max number of cached paths. Once reached, the index is emptied and starts over.
+     */
+    private final int maxSize;
+    /**
+     * Incremented every time a path is invalidated, so paths computed before the invalidation are not cached after it.
+     */
+    private volatile long version;
+
+    public AncestorPathIndex(String name, int maxSize) {
+        this.paths = new CacheRegion<>(name, maxSize);
+        this.descendants = new HashMap<>();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Retrieves the cached path of an object.
+     * @param objectId The id of the object.
+     * @return The path or null if it's not cached.
+     */
+    public AncestorPath get(String objectId) {
+        return paths.get(objectId);
+    }
+
+    /**
+     * The current version of the index. Read it before computing a path, and pass it to {@link #put(java.lang.String, org.neotropic.kuwaiba.core.persistence.reference.extras.caching.AncestorPathIndex.AncestorPath, long)}.
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Caches the path of an object, unless an object was moved since the path was computed.
+     * @param objectId The id of the object.
+     * @param path The path.
+     * @param computedAt The version of the index before the path was computed.
+     */
+    public synchronized void put(String objectId, AncestorPath path, long computedAt) {
+        if (computedAt != version)
+            return;
+        if (paths.size() >= maxSize) {
+            paths.recordEviction();
+            clear();
+        }
+        removePath(objectId);
+        paths.put(objectId, path);
+        descendants.computeIfAbsent(path.getObjectNodeId(), key -> new HashSet<>()).add(objectId);
+        for (long ancestorNodeId : path.getAncestorNodeIds())
+            descendants.computeIfAbsent(ancestorNodeId, key -> new HashSet<>()).add(objectId);
+    }
+
+    /**
+     * Discards the cached paths of an object and all its descendants. Call it after the outermost transaction that moved the object
+     * has been committed, otherwise the old path could be read and cached again before the commit.
+     * @param nodeId The node id of the moved object.
+     */
+    public synchronized void invalidate(long nodeId) {
+        version++;
+        Set<String> stalePaths = descendants.get(nodeId);
+        if (stalePaths != null) {
+            for (String objectId : stalePaths.toArray(new String[0]))
+                removePath(objectId);
+        }
+    }
+
+    /**
+     * Discards the cached path of an object and removes the object from the descendants of every node in the path.
+     * @param objectId The id of the object.
+     */
+    private void removePath(String objectId) {
+        AncestorPath path = paths.remove(objectId);
+        if (path == null)
+            return;
+        removeDescendant(path.getObjectNodeId(), objectId);
+        for (long ancestorNodeId : path.getAncestorNodeIds())
+            removeDescendant(ancestorNodeId, objectId);
+    }
+
+    private void removeDescendant(long nodeId, String objectId) {
+        Set<String> nodeDescendants = descendants.get(nodeId);
+        if (nodeDescendants != null && nodeDescendants.remove(objectId) && nodeDescendants.isEmpty())
+            descendants.remove(nodeId);
+    }
+
+    /**
+     * Discards all the cached paths.
+     */
+    public synchronized void clear() {
+        version++;
+        paths.clear();
+        descendants.clear();
+    }
+
+    /**
+     * The region that holds the cached paths, used to report the usage counters.
+     * @return The region.
+     */
+    public CacheRegion<String, AncestorPath> getRegion() {
+        return paths;
+    }
+
+    /**
+     * The ancestors of an object, from the direct parent to the navigation tree root.
+     */
+    public static final class AncestorPath {
+        /**
+         * The node id of the object.
+         */
+        private final long objectNodeId;
+        /**
+         * The node ids of the ancestors, closest first.
+         */
+        private final long[] ancestorNodeIds;
+        /**
+         * The ids of the ancestors (null if the ancestor has no id, like the navigation tree root).
+         * They are used to tell if a node id has been reused by another object.
+         */
+        private final String[] ancestorIds;
+
+        public AncestorPath(long objectNodeId, long[] ancestorNodeIds, String[] ancestorIds) {
+            this.objectNodeId = objectNodeId;
+            this.ancestorNodeIds = ancestorNodeIds;
+            this.ancestorIds = ancestorIds;
+        }
+
+        public long getObjectNodeId() {
+            return objectNodeId;
+        }
+
+        public long[] getAncestorNodeIds() {
+            return ancestorNodeIds;
+        }
+
+        public String[] getAncestorIds() {
+            return ancestorIds;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.extras.caching;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
+
+/**
+ * Discards the cached ancestor paths (see {@link AncestorPathIndex}) of the objects whose parent was changed by a transaction,
+ * and of all their descendants, once the transaction has been committed. An object is considered moved if a CHILD_OF or
+ * CHILD_OF_SPECIAL relationship starting at it was created or deleted, which covers the moves made by any module, the special
+ * parents added and removed, and the deleted objects. Since the handler is called by the database, transactions nested in other
+ * transactions are only processed when the outermost one is committed, so a path can't be read and cached again before the new
+ * parents are visible to other transactions.
+ * @author agent {@literal <agent@local>}
+ */
+public class AncestorPathInvalidationHandler implements TransactionEventHandler<Set<Long>> {
+
+    /**
+     * Collects the node ids of the moved objects.
+     * @param data The changes made by the transaction.
+     * @return The node ids of the moved objects.
+     */
+    @Override
+    public Set<Long> beforeCommit(TransactionData data) {
+        Set<Long> movedNodes = new HashSet<>();
+        addChildren(data.createdRelationships(), movedNodes);
+        addChildren(data.deletedRelationships(), movedNodes);
+        return movedNodes;
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, Set<Long> movedNodes) {
+        if (movedNodes != null && !movedNodes.isEmpty()) {
+            AncestorPathIndex ancestorPathIndex = CacheManager.getInstance().getAncestorPathIndex();
+            for (long nodeId : movedNodes)
+                ancestorPathIndex.invalidate(nodeId);
+        }
+    }
+
+    @Override
+    public void afterRollback(TransactionData data, Set<Long> movedNodes) {
+        // Nothing was committed, but the paths could have been read and cached from within the failed transaction
+        afterCommit(data, movedNodes);
+    }
+
+    private static void addChildren(Iterable<Relationship> relationships, Set<Long> nodeIds) {
+        for (Relationship relationship : relationships) {
+            if (relationship.isType(RelTypes.CHILD_OF) || relationship.isType(RelTypes.CHILD_OF_SPECIAL))
+                nodeIds.add(relationship.getStartNodeId());
+        }
+    }
+}
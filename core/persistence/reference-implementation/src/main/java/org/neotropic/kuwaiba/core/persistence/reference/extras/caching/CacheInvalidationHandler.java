@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.extras.caching;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+
+/**
+ * Discards the cached validator results of the objects changed by a transaction once the transaction has been committed.
+ * An object is considered changed if any of its properties was set or removed, if it was deleted, or if any relationship
+ * was created, deleted or modified between the object and another node, which covers moves, new or removed children and
+ * special relationships, and related list type items. Since the handler is called by the database, transactions nested in
+ * other transactions are only processed when the outermost one is committed. Register it only when the validator results
+ * are cached (see {@link CacheManager#putValidators(java.lang.String, java.util.List, long)}).
+ * @author agent {@literal <agent@local>}
+ */
+public class CacheInvalidationHandler implements TransactionEventHandler<Set<String>> {
+    /**
+     * Reference to the database, used to read the ids of the objects whose relationships changed.
+     */
+    private final GraphDatabaseService graphDb;
+
+    public CacheInvalidationHandler(GraphDatabaseService graphDb) {
+        this.graphDb = graphDb;
+    }
+
+    /**
+     * Collects the ids of the changed objects while the transaction is still open, so the nodes can still be read.
+     * @param data The changes made by the transaction.
+     * @return The ids of the changed objects.
+     */
+    @Override
+    public Set<String> beforeCommit(TransactionData data) {
+        Set<String> changedObjects = new HashSet<>();
+        // The ids of the nodes whose id property is set or removed by this transaction are known without reading them.
+        // That includes the created and the deleted nodes, which can't be read anymore
+        Set<Long> knownNodes = new HashSet<>();
+        for (Node deletedNode : data.deletedNodes())
+            knownNodes.add(deletedNode.getId());
+        for (PropertyEntry<Node> removedProperty : data.removedNodeProperties()) {
+            if (Constants.PROPERTY_UUID.equals(removedProperty.key())) {
+                changedObjects.add((String) removedProperty.previouslyCommitedValue());
+                knownNodes.add(removedProperty.entity().getId());
+            }
+        }
+        for (PropertyEntry<Node> assignedProperty : data.assignedNodeProperties()) {
+            if (Constants.PROPERTY_UUID.equals(assignedProperty.key())) {
+                changedObjects.add((String) assignedProperty.value());
+                knownNodes.add(assignedProperty.entity().getId());
+            }
+        }
+
+        Set<Long> changedNodes = new HashSet<>();
+        addEntities(data.assignedNodeProperties(), changedNodes);
+        addEntities(data.removedNodeProperties(), changedNodes);
+        addEndpoints(data.createdRelationships(), changedNodes);
+        addEndpoints(data.deletedRelationships(), changedNodes);
+        for (PropertyEntry<Relationship> relationshipProperty : data.assignedRelationshipProperties())
+            addEndpoints(relationshipProperty.entity(), changedNodes);
+        for (PropertyEntry<Relationship> relationshipProperty : data.removedRelationshipProperties())
+            addEndpoints(relationshipProperty.entity(), changedNodes);
+
+        changedNodes.removeAll(knownNodes);
+        for (long nodeId : changedNodes) {
+            try {
+                Object objectId = graphDb.getNodeById(nodeId).getProperty(Constants.PROPERTY_UUID, null);
+                if (objectId instanceof String)
+                    changedObjects.add((String) objectId);
+            } catch (NotFoundException ex) {} // Deleted without an id, so it can't have cached validators
+        }
+        return changedObjects;
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, Set<String> changedObjects) {
+        if (changedObjects != null && !changedObjects.isEmpty())
+            CacheManager.getInstance().removeValidators(changedObjects);
+    }
+
+    @Override
+    public void afterRollback(TransactionData data, Set<String> changedObjects) {
+        // Nothing was committed, but the results could have been evaluated and cached from within the failed transaction
+        afterCommit(data, changedObjects);
+    }
+
+    private static void addEntities(Iterable<PropertyEntry<Node>> entries, Set<Long> nodeIds) {
+        for (PropertyEntry<Node> entry : entries)
+            nodeIds.add(entry.entity().getId());
+    }
+
+    private static void addEndpoints(Iterable<Relationship> relationships, Set<Long> nodeIds) {
+        for (Relationship relationship : relationships)
+            addEndpoints(relationship, nodeIds);
+    }
+
+    private static void addEndpoints(Relationship relationship, Set<Long> nodeIds) {
+        nodeIds.add(relationship.getStartNodeId());
+        nodeIds.add(relationship.getEndNodeId());
+    }
+}
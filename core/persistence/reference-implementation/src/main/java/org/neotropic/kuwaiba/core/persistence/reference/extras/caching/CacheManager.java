@@ -18,6 +18,7 @@ package org.neotropic.kuwaiba.core.persistence.reference.extras.caching;
 
 import org.neotropic.kuwaiba.core.apis.persistence.application.GroupProfile;
 import org.neotropic.kuwaiba.core.apis.persistence.application.UserProfile;
+import org.neotropic.kuwaiba.core.apis.persistence.application.Validator;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ValidatorDefinition;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadata;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadataLight;
@@ -26,98 +27,105 @@ import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FilterDefinition;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import org.neotropic.kuwaiba.core.apis.persistence.application.Filter;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.CacheStatistics;
 
 /**
- * Manages the caching strategy
+ * Manages the caching strategy. The cache is split in regions (see {@link CacheRegion}) that can be read 
+ * concurrently without locking. The regions whose contents depend on the data model (possible children, 
+ * subclasses, unique attributes, etc) are grouped so they can be invalidated in a single step when a class changes. 
+ * Values that are lists are never modified in place once cached: a modified copy replaces the original entry, 
+ * so readers never see a list being modified.
  * @author Charles Edward Bedon Cortazar {@literal <charles.bedon@kuwaiba.org>}
  */
 public class CacheManager {
     /**
-     * Singleton
+     * Max number of objects whose validator results will be cached.
      */
-    private static CacheManager cm;
+    private static final int MAX_CACHED_VALIDATOR_RESULTS = 100000;
     /**
-     * Cache slots to save complex objects
+     * Max number of values of a single unique attribute that will be cached. If an attribute has more values 
+     * than this, its values are discarded and its uniqueness must be checked against the database.
      */
-    private HashMap<String, CacheSlot> cacheSlots;
+    private static final int MAX_CACHED_UNIQUE_ATTRIBUTE_VALUES = 50000;
     /**
-     * Class cache
+     * Max number of objects whose ancestors will be cached.
      */
-    private HashMap<String, ClassMetadata> classIndex;
+    private static final int MAX_CACHED_ANCESTOR_PATHS = 100000;
     /**
-     * List type cache, the key is the list type 
+     * Max number of templates whose instantiation plans will be cached.
      */
-    private HashMap<String, GenericObjectList> listTypeIndex;
+    private static final int MAX_CACHED_TEMPLATE_PLANS = 1000;
     /**
-     * Possible children index. The key is the class, the value its possible children. Note that a blank key ("") represents the navigation tree root
+     * Singleton
      */
-    private HashMap<String, List<ClassMetadata>> possibleChildrenIndex;
+    private static final CacheManager cm = new CacheManager();
     /**
-     * Possible special children index. The key is the class, the value its possible special children. Note that a blank key ("") represents the navigation tree root. The only difference with the possibleChildrenIndex, is that the relationship used to link the parent object with its children is CHILD_OF_SPECIAL
+     * Cache slots to save complex objects
      */
-    private HashMap<String, List<String>> possibleSpecialChildrenIndex;
+    private Map<String, CacheSlot> cacheSlots;
     /**
-     * List of subclasses of a class, the key is the name of the class, the value is the subclasses
+     * Class cache
      */
-    private HashMap<String, List<ClassMetadataLight>> subClassesIndex;
+    private final CacheRegion<String, ClassMetadata> classIndex;
     /**
-     * List of subclasses of a class, the key is the name of the class, the value is the subclasses
+     * List type cache, the key is the list type 
      */
-    private HashMap<String, List<ClassMetadataLight>> subClassesNoRecursiveIndex;
+    private final CacheRegion<String, GenericObjectList> listTypeIndex;
     /**
      * Users index. It is used to ease the username uniqueness validation
      */
-    private HashMap<String, UserProfile> userIndex;
+    private final CacheRegion<String, UserProfile> userIndex;
     /**
      * Groups index. It is used to ease the username uniqueness validation
      */
-    private HashMap<String, GroupProfile> groupIndex;
+    private final CacheRegion<String, GroupProfile> groupIndex;
+    /**
+     * A structure that caches the filters associated to a given class (the key of the hash).
+     */
+    private final CacheRegion<String, List<FilterDefinition>> filterDefinitionIndex;
     /**
-     * List of the classes with unique attributes and its values index
+     * Caches the existing configuration variables values (not definitions).
      */
-    private HashMap<String, HashMap<String, List<Object>>> uniqueClassAttributesIndex;
+    private final CacheRegion<String, Object> configurationVariablesIndex;
     /**
-     * A structure that caches the superclasses of a given class (the key of the hashmap). This structure does contain redundant information, 
-     * but that is the trade off to simplify the access to the upstream class hierarchy
+     * Caches the ancestors of the inventory objects. It doesn't depend on the data model, 
+     * but on the containment hierarchy of the objects.
      */
-    private HashMap<String, List<ClassMetadataLight>> superClassIndex;
+    private final AncestorPathIndex ancestorPathIndex;
     /**
-     * A structure that caches the validators associated to a given class (the key of the hash).
+     * Caches the instantiation plans of the templates.
      */
-    private HashMap<String, List<ValidatorDefinition>> validatorDefinitionIndex;
+    private final TemplatePlanIndex templatePlanIndex;
     /**
-     * A structure that caches the filters associated to a given class (the key of the hash).
+     * The regions that depend on the data model. The whole set is replaced at once when the class hierarchy changes.
      */
-    private HashMap<String, List<FilterDefinition>> filterDefinitionIndex;
+    private volatile ClassDependentRegions classDependentRegions;
     /**
-     * Caches the existing configuration variables values (not definitions).
+     * Incremented every time cached validator results are discarded, so results evaluated before an object changed 
+     * are not cached after the change has been committed.
      */
-    private HashMap<String, Object> configurationVariablesIndex;
+    private volatile long validatorResultsVersion;
     
     private CacheManager() {
-        cacheSlots = new HashMap<>();
-        classIndex = new HashMap<>();
-        userIndex = new HashMap<>();
-        groupIndex = new HashMap<>();
-        possibleChildrenIndex = new HashMap<>();
-        possibleSpecialChildrenIndex = new HashMap<>();
-        subClassesIndex =  new HashMap<>();
-        subClassesNoRecursiveIndex = new HashMap<>();
-        uniqueClassAttributesIndex = new HashMap<>();
-        listTypeIndex = new HashMap<>();
-        superClassIndex = new HashMap<>();
-        validatorDefinitionIndex = new HashMap<>();
-        filterDefinitionIndex = new HashMap<>();
-        configurationVariablesIndex = new HashMap<>();
+        cacheSlots = new ConcurrentHashMap<>();
+        classIndex = new CacheRegion<>("classIndex"); //NOI18N
+        userIndex = new CacheRegion<>("userIndex"); //NOI18N
+        groupIndex = new CacheRegion<>("groupIndex"); //NOI18N
+        listTypeIndex = new CacheRegion<>("listTypeIndex"); //NOI18N
+        filterDefinitionIndex = new CacheRegion<>("filterDefinitionIndex"); //NOI18N
+        configurationVariablesIndex = new CacheRegion<>("configurationVariablesIndex"); //NOI18N
+        ancestorPathIndex = new AncestorPathIndex("ancestorPathIndex", MAX_CACHED_ANCESTOR_PATHS); //NOI18N
+        templatePlanIndex = new TemplatePlanIndex("templatePlanIndex", MAX_CACHED_TEMPLATE_PLANS); //NOI18N
+        classDependentRegions = new ClassDependentRegions();
     }
 
     public static CacheManager getInstance(){
-        if (cm == null)
-            cm = new CacheManager();
         return cm;
     }
 
@@ -152,7 +160,7 @@ public class CacheManager {
      * @param children
      */
     public void putPossibleChildren(String parent, List<ClassMetadata>children){
-        possibleChildrenIndex.put(parent, children);
+        classDependentRegions.possibleChildrenIndex.put(parent, children);
     }
     
     /**
@@ -161,13 +169,21 @@ public class CacheManager {
      * @param children the list of possible special children classes
      */
     public void putPossibleSpecialChildren(String parent, List<String>children){
-        possibleSpecialChildrenIndex.put(parent, children);
+        classDependentRegions.possibleSpecialChildrenIndex.put(parent, children);
     }
 
+    /**
+     * Adds a direct subclass to the cached subclasses of a class. If the subclasses of the parent class are not cached, nothing is done, 
+     * as they will be fully loaded the next time they're requested.
+     * @param parent The parent class
+     * @param newSubClass The new subclass
+     */
     public void putSubClassNoRecursive(String parent, ClassMetadataLight newSubClass){
-        List<ClassMetadataLight> children = subClassesNoRecursiveIndex.get(parent);
-        children.add(newSubClass);
-        subClassesNoRecursiveIndex.put(parent, children);
+        classDependentRegions.subClassesNoRecursiveIndex.computeIfPresent(parent, (key, children) -> {
+            List<ClassMetadataLight> newChildren = new ArrayList<>(children);
+            newChildren.add(newSubClass);
+            return newChildren;
+        });
     }
     /**
      * Adds an entry to the subclasses index
@@ -175,7 +191,7 @@ public class CacheManager {
      * @param subClasses  the subclasses of the given class
      */
     public void putSubclasses(String className, List<ClassMetadataLight> subClasses){
-        subClassesIndex.put(className, subClasses);
+        classDependentRegions.subClassesIndex.put(className, subClasses);
     }
     
     /**
@@ -184,68 +200,81 @@ public class CacheManager {
      * @param subClasses  the subclasses of the given class
      */
     public void putSubclassesNorecursive(String className, List<ClassMetadataLight> subClasses){
-        subClassesNoRecursiveIndex.put(className, subClasses);
+        classDependentRegions.subClassesNoRecursiveIndex.put(className, subClasses);
     }
     
     /**
      * adds an entry for every unique attribute value of every class that has unique attributes
      * @param className class name
      * @param attributeName attribute name 
-     * @param value new value of an unique attribute
+     * @param value new value of an unique attribute. If null, only the (empty) entry for the attribute is created
      */
     public void putUniqueAttributeValueIndex(String className, String attributeName, Object value) {
-        HashMap<String, List<Object>> uniqueClassAttributes = uniqueClassAttributesIndex.get(className);
-        if(uniqueClassAttributes == null) {
-            uniqueClassAttributes = new HashMap<>();
-            List<Object> values = new ArrayList<>();
-            if(value != null) //maybe still there is no object of this class with this unique attribute
-                values.add(value);
-            uniqueClassAttributes.put(attributeName, values);
-            uniqueClassAttributesIndex.put(className, uniqueClassAttributes);
-        }
-        else {
-            List<Object> values = uniqueClassAttributes.get(attributeName);
-            if(values == null) {
-                values = new ArrayList<>();
-                values.add(value);
-                uniqueClassAttributes.put(attributeName, values);
-                uniqueClassAttributesIndex.put(className, uniqueClassAttributes);
-            }
-            else {
-                values.add(value);
-                uniqueClassAttributes.put(attributeName, values);
-                uniqueClassAttributesIndex.put(className, uniqueClassAttributes);
-            }
+        ClassDependentRegions regions = classDependentRegions;
+        String key = uniqueAttributeKey(className, attributeName);
+        if (regions.overflownUniqueAttributes.contains(key))
+            return;
+        
+        Set<Object> values = regions.uniqueClassAttributesIndex.computeIfAbsent(className, 
+                    aClassName -> new ConcurrentHashMap<>()).computeIfAbsent(attributeName, anAttributeName -> ConcurrentHashMap.newKeySet());
+        if (value != null) { //maybe still there is no object of this class with this unique attribute
+            values.add(value);
+            checkUniqueAttributeValuesSize(regions, className, attributeName, values);
         }
     }
     
-    public void putUniqueAttributeValuesIndex(String className, String attributeName, List<Object> values){
-        HashMap<String, List<Object>> uniqueClassAttributes = uniqueClassAttributesIndex.get(className);
-        if(uniqueClassAttributes == null){
-            uniqueClassAttributes = new HashMap<>();
-            if(values != null)
-                uniqueClassAttributes.put(attributeName, values);
-            uniqueClassAttributesIndex.put(className, uniqueClassAttributes);
-        }
-        else if(values != null){
-            uniqueClassAttributes.put(attributeName, values);
-            uniqueClassAttributesIndex.put(className, uniqueClassAttributes);
+    /**
+     * Replaces the cached values of a unique attribute.
+     * @param className class name
+     * @param attributeName attribute name 
+     * @param values All the values of the attribute. If there are more than the max allowed, the attribute is not cached 
+     */
+    public void putUniqueAttributeValuesIndex(String className, String attributeName, Collection<Object> values){
+        ClassDependentRegions regions = classDependentRegions;
+        Map<String, Set<Object>> uniqueClassAttributes = regions.uniqueClassAttributesIndex.computeIfAbsent(className, 
+                aClassName -> new ConcurrentHashMap<>());
+        if (values != null) {
+            regions.overflownUniqueAttributes.remove(uniqueAttributeKey(className, attributeName));
+            Set<Object> valueSet = ConcurrentHashMap.newKeySet(values.size());
+            valueSet.addAll(values);
+            uniqueClassAttributes.put(attributeName, valueSet);
+            checkUniqueAttributeValuesSize(regions, className, attributeName, valueSet);
         }
     }
     
+    /**
+     * Atomically adds a value to the cached values of a unique attribute.
+     * @param className class name
+     * @param attributeName attribute name 
+     * @param value The value to be added
+     * @return False if the value was already cached, true otherwise
+     */
+    public boolean addUniqueAttributeValue(String className, String attributeName, Object value) {
+        ClassDependentRegions regions = classDependentRegions;
+        Map<String, Set<Object>> uniqueClassAttributes = regions.uniqueClassAttributesIndex.peek(className);
+        Set<Object> values = uniqueClassAttributes == null ? null : uniqueClassAttributes.get(attributeName);
+        if (values == null)
+            return true;
+        
+        boolean added = values.add(value);
+        checkUniqueAttributeValuesSize(regions, className, attributeName, values);
+        return added;
+    }
+    
     /**
      * Adds an entry to the possible children index
      * @param parent
      * @param child
      */
     public void putPossibleChild(String parent, ClassMetadata child){
-        List<ClassMetadata> myList = possibleChildrenIndex.get(parent);
-        if (myList != null) {
-            myList.add(child);
-            myList.sort((classNameA, classNameB) -> { //Sorts the list everytime a new entry is added
+        classDependentRegions.possibleChildrenIndex.computeIfPresent(parent, (key, children) -> {
+            List<ClassMetadata> newChildren = new ArrayList<>(children);
+            newChildren.add(child);
+            newChildren.sort((classNameA, classNameB) -> { //Sorts the list everytime a new entry is added
                 return classNameA.getName().compareTo(classNameB.getName());
             });
-        }
+            return newChildren;
+        });
     }
     
     /**
@@ -254,42 +283,51 @@ public class CacheManager {
      * @param child
      */
     public void putPossibleSpecialChild(String parent, String child){
-        List<String> myList = possibleSpecialChildrenIndex.get(parent);
-        if (myList != null) {
-            myList.add(child);
-            myList.sort((classNameA, classNameB) -> { //Sorts the list everytime a new entry is added
+        classDependentRegions.possibleSpecialChildrenIndex.computeIfPresent(parent, (key, children) -> {
+            List<String> newChildren = new ArrayList<>(children);
+            newChildren.add(child);
+            newChildren.sort((classNameA, classNameB) -> { //Sorts the list everytime a new entry is added
                 return classNameA.compareTo(classNameB);
             });
-        }
+            return newChildren;
+        });
     }
 
     public List<ClassMetadata> getPossibleChildren(String parent){
         if (parent == null)
-            return possibleChildrenIndex.get(Constants.NODE_DUMMYROOT);
-        return possibleChildrenIndex.get(parent);
+            return classDependentRegions.possibleChildrenIndex.get(Constants.NODE_DUMMYROOT);
+        return classDependentRegions.possibleChildrenIndex.get(parent);
     }
     
     public List<String> getPossibleSpecialChildren(String parent){
         if (parent == null)
-            return possibleSpecialChildrenIndex.get(Constants.NODE_DUMMYROOT);
-        return possibleSpecialChildrenIndex.get(parent);
+            return classDependentRegions.possibleSpecialChildrenIndex.get(Constants.NODE_DUMMYROOT);
+        return classDependentRegions.possibleSpecialChildrenIndex.get(parent);
     }
     
     public List<ClassMetadataLight> getSubclasses(String className){
-        return subClassesIndex.get(className);
+        return classDependentRegions.subClassesIndex.get(className);
     }
     
     public List<ClassMetadataLight> getSubclassesNorecursive(String className){
-        return subClassesNoRecursiveIndex.get(className);
+        return classDependentRegions.subClassesNoRecursiveIndex.get(className);
     }
     
-    public HashMap<String, List<Object>> getUniqueClassAttributes(String className){
-        return uniqueClassAttributesIndex.get(className);
+    public Map<String, Set<Object>> getUniqueClassAttributes(String className){
+        return classDependentRegions.uniqueClassAttributesIndex.get(className);
     }
     
-    public List<Object> getUniqueAttributeValues(String className, String attributeName){
-        if (uniqueClassAttributesIndex.get(className) != null)
-            return uniqueClassAttributesIndex.get(className).get(attributeName);
+    /**
+     * Retrieves the cached values of a unique attribute.
+     * @param className class name
+     * @param attributeName attribute name 
+     * @return The values. Null if the attribute values are not cached, either because they have not been loaded 
+     * or because there are too many of them
+     */
+    public Set<Object> getUniqueAttributeValues(String className, String attributeName){
+        Map<String, Set<Object>> uniqueClassAttributes = classDependentRegions.uniqueClassAttributesIndex.get(className);
+        if (uniqueClassAttributes != null)
+            return uniqueClassAttributes.get(attributeName);
         else
             return null;
     }
@@ -341,23 +379,25 @@ public class CacheManager {
      * @param groupName
      */
     public void removeGroup(String groupName){
-        userIndex.remove(groupName);
+        groupIndex.remove(groupName);
     }
     
     public void removeUniqueAttribute(String className, String attributeName){
-        if (uniqueClassAttributesIndex.containsKey(className))
-            uniqueClassAttributesIndex.get(className).remove(attributeName);
+        ClassDependentRegions regions = classDependentRegions;
+        regions.overflownUniqueAttributes.remove(uniqueAttributeKey(className, attributeName));
+        regions.uniqueClassAttributesIndex.computeIfPresent(className, (key, uniqueClassAttributes) -> {
+            uniqueClassAttributes.remove(attributeName);
+            return uniqueClassAttributes;
+        });
     }    
     
     public void removeUniqueAttributeValue(String className, String attributeName, Object attributeValue) {
-        HashMap<String, List<Object>> uniqueClassAttributes = uniqueClassAttributesIndex.get(className);
-        if (uniqueClassAttributes == null)
-            uniqueClassAttributes = new HashMap<>();
-        List<Object> uniqueValues = uniqueClassAttributes.get(attributeName);
+        Map<String, Set<Object>> uniqueClassAttributes = classDependentRegions.uniqueClassAttributesIndex.peek(className);
+        if (uniqueClassAttributes == null || attributeValue == null)
+            return;
+        Set<Object> uniqueValues = uniqueClassAttributes.get(attributeName);
         if(uniqueValues != null)
             uniqueValues.remove(attributeValue);
-        uniqueClassAttributes.put(attributeName, uniqueValues);
-        uniqueClassAttributesIndex.put(className, uniqueClassAttributes);
     }
     /**
      * Tries to retrieve a cached list type
@@ -390,7 +430,7 @@ public class CacheManager {
      * @param superClasses The super classes of the given class (including itself)
      */
     public void addUpstreamClassHierarchy(String className, List<ClassMetadataLight> superClasses) {
-        superClassIndex.put(className, superClasses);
+        classDependentRegions.superClassIndex.put(className, superClasses);
     }
     
     /**
@@ -399,7 +439,7 @@ public class CacheManager {
      * @return The list of cached super classes up to RootObject (including itself). Null of the class provided is not cached
      */
     public List<ClassMetadataLight> getUpstreamClassHierarchy(String className) {
-        return superClassIndex.get(className);
+        return classDependentRegions.superClassIndex.get(className);
     }
     
     /**
@@ -408,7 +448,7 @@ public class CacheManager {
      * @param validatorDefinitions The super classes of the given class (including itself)
      */
     public void addValidatorDefinitions(String className, List<ValidatorDefinition> validatorDefinitions) {
-        validatorDefinitionIndex.put(className, validatorDefinitions);
+        classDependentRegions.validatorDefinitionIndex.put(className, validatorDefinitions);
     }
     
     /**
@@ -417,14 +457,61 @@ public class CacheManager {
      * @return The list of cached validator definitions. Null of the class provided is not cached
      */
     public List<ValidatorDefinition> getValidatorDefinitions(String className) {
-        return validatorDefinitionIndex.get(className);
+        return classDependentRegions.validatorDefinitionIndex.get(className);
     }
     
     /**
-     * Clears the cached validator definitions
+     * Clears the cached validator definitions. The cached validator results are cleared too, as they could have been 
+     * produced by definitions that changed
      */
-    public void clearValidatorDefinitionsCache() {
-        validatorDefinitionIndex.clear();
+    public synchronized void clearValidatorDefinitionsCache() {
+        validatorResultsVersion++;
+        ClassDependentRegions regions = classDependentRegions;
+        regions.validatorDefinitionIndex.clear();
+        regions.validatorResultsIndex.clear();
+    }
+    
+    /**
+     * The current version of the cached validator results. Read it before evaluating the validators of an object, and pass it to 
+     * {@link #putValidators(java.lang.String, java.util.List, long)}.
+     * @return The version.
+     */
+    public long getValidatorResultsVersion() {
+        return validatorResultsVersion;
+    }
+    
+    /**
+     * Adds or replaces the result of evaluating the validators of a given object, unless cached results were discarded 
+     * since the evaluation started.
+     * @param objectId The id of the object.
+     * @param validators The validators produced by the validator definitions applicable to the object.
+     * @param computedAt The version of the validator results before the validators were evaluated.
+     */
+    public synchronized void putValidators(String objectId, List<Validator> validators, long computedAt) {
+        if (computedAt == validatorResultsVersion)
+            classDependentRegions.validatorResultsIndex.put(objectId, validators);
+    }
+    
+    /**
+     * Retrieves the cached result of evaluating the validators of a given object.
+     * @param objectId The id of the object.
+     * @return The cached validators. Null if the validators of the object are not cached
+     */
+    public List<Validator> getValidators(String objectId) {
+        return classDependentRegions.validatorResultsIndex.get(objectId);
+    }
+    
+    /**
+     * Removes the cached validators of some objects because the objects (or something the validators depend on, like their 
+     * children or related objects) changed. Call it after the transaction that changed the objects has been committed, 
+     * otherwise the old results could be evaluated and cached again before the commit.
+     * @param objectIds The ids of the objects.
+     */
+    public synchronized void removeValidators(Collection<String> objectIds) {
+        validatorResultsVersion++;
+        CacheRegion<String, List<Validator>> validatorResultsIndex = classDependentRegions.validatorResultsIndex;
+        for (String objectId : objectIds)
+            validatorResultsIndex.remove(objectId);
     }
     
     /**
@@ -433,11 +520,14 @@ public class CacheManager {
      * @param filterDefinition a filter definition for the class to be included in the cache
      */
     public void addFilterDefinition(String className, FilterDefinition filterDefinition) {
-        if(filterDefinitionIndex.get(className) == null)
-            filterDefinitionIndex.put(className, new ArrayList<>());
-        
-        if(!filterDefinitionIndex.get(className).contains(filterDefinition))
-            filterDefinitionIndex.get(className).add(filterDefinition);
+        filterDefinitionIndex.computeIfAbsent(className, aClassName -> new ArrayList<>());
+        filterDefinitionIndex.computeIfPresent(className, (key, filters) -> {
+            if (filters.contains(filterDefinition))
+                return filters;
+            List<FilterDefinition> newFilters = new ArrayList<>(filters);
+            newFilters.add(filterDefinition);
+            return newFilters;
+        });
     }
     
     /**
@@ -447,13 +537,15 @@ public class CacheManager {
      * @param filterDefinition the filter definition to update
      */
     public void updateFilterInFilterDefinition(String className, FilterDefinition filterDefinition) {
-        if(filterDefinitionIndex.get(className) == null)
-            filterDefinitionIndex.put(className, new ArrayList<>());
-
-        if(!filterDefinitionIndex.get(className).contains(filterDefinition))
-            filterDefinitionIndex.get(className).add(filterDefinition);
-        else
-            filterDefinitionIndex.get(className).set(filterDefinitionIndex.get(className).indexOf(filterDefinition), filterDefinition);
+        filterDefinitionIndex.computeIfAbsent(className, aClassName -> new ArrayList<>());
+        filterDefinitionIndex.computeIfPresent(className, (key, filters) -> {
+            List<FilterDefinition> newFilters = new ArrayList<>(filters);
+            if(!newFilters.contains(filterDefinition))
+                newFilters.add(filterDefinition);
+            else
+                newFilters.set(newFilters.indexOf(filterDefinition), filterDefinition);
+            return newFilters;
+        });
     }
     
     /**
@@ -487,15 +579,11 @@ public class CacheManager {
      * @param filterId the filter definition id.
      */
     public void removeFilterDefinitionsForClass(String className, long filterId) {
-        if(filterDefinitionIndex.get(className) != null){
-            FilterDefinition filterToRemove = null;
-            for(FilterDefinition f : filterDefinitionIndex.get(className))
-                if(f.getId() == filterId)
-                    filterToRemove = f;
-            
-            if(filterToRemove != null)
-                filterDefinitionIndex.get(className).remove(filterToRemove);
-        }
+        filterDefinitionIndex.computeIfPresent(className, (key, filters) -> {
+            List<FilterDefinition> newFilters = new ArrayList<>(filters);
+            newFilters.removeIf(f -> f.getId() == filterId);
+            return newFilters;
+        });
     }
     
     /**
@@ -531,6 +619,22 @@ public class CacheManager {
         configurationVariablesIndex.remove(configVariableName);
     }
     
+    /**
+     * Gets the index of the ancestors of the inventory objects.
+     * @return The ancestor path index.
+     */
+    public AncestorPathIndex getAncestorPathIndex() {
+        return ancestorPathIndex;
+    }
+    
+    /**
+     * Gets the index of the instantiation plans of the templates.
+     * @return The template plan index.
+     */
+    public TemplatePlanIndex getTemplatePlanIndex() {
+        return templatePlanIndex;
+    }
+    
     /**
      * Clears all cached information
      */
@@ -540,8 +644,9 @@ public class CacheManager {
         groupIndex.clear();
         listTypeIndex.clear();
         configurationVariablesIndex.clear();
-        validatorDefinitionIndex.clear();
         filterDefinitionIndex.clear();
+        ancestorPathIndex.clear();
+        templatePlanIndex.clear();
         clearClassCache();
     }
     
@@ -550,19 +655,36 @@ public class CacheManager {
      * performing any change in the class hierarchy of the property of the classes. 
      * Note that this method doesn't actually clears the main classIndex, only de dependencies, such as 
      * the possibleChildrenIndex, possibleSpecialChildrenIndex, subClassesIndex, 
-     * subClassesNoRecursiveIndex and uniqueClassAttributesIndex
+     * subClassesNoRecursiveIndex and uniqueClassAttributesIndex. All of them are replaced at once, so 
+     * readers see either the old or the new (empty) set of dependencies, never a mix of both. The instantiation 
+     * plans of the templates are discarded too, since deleting a class deletes its templates
      */
-    public void clearClassCache() {
-        possibleChildrenIndex.clear();
-        possibleSpecialChildrenIndex.clear();
-        subClassesIndex.clear();
-        subClassesNoRecursiveIndex.clear();
-        uniqueClassAttributesIndex.clear();
-        validatorDefinitionIndex.clear();
-        superClassIndex.clear();
+    public synchronized void clearClassCache() {
+        validatorResultsVersion++;
+        classDependentRegions = classDependentRegions.renew();
+        templatePlanIndex.clear();
+    }
+    
+    /**
+     * Takes a snapshot of the counters of every cache region.
+     * @return The statistics of each region.
+     */
+    public List<CacheStatistics> getStatistics() {
+        List<CacheStatistics> res = new ArrayList<>();
+        for (CacheRegion region : getRegions())
+            res.add(region.getStatistics());
+        return res;
+    }
+    
+    /**
+     * Sets to zero the hit, miss and eviction counters of every cache region.
+     */
+    public void resetStatistics() {
+        for (CacheRegion region : getRegions())
+            region.resetStatistics();
     }
 
-    public HashMap<String, CacheSlot> getCacheSlots() {
+    public Map<String, CacheSlot> getCacheSlots() {
         return cacheSlots;
     }
     
@@ -584,7 +706,130 @@ public class CacheManager {
         cacheSlots.put(cacheSlotName, new CacheSlot(content, currentDate.getTime(), cal.getTimeInMillis()));
     }
 
-    public void setCacheSlots(HashMap<String, CacheSlot> cacheSlots) {
-        this.cacheSlots = cacheSlots;
+    public void setCacheSlots(Map<String, CacheSlot> cacheSlots) {
+        this.cacheSlots = new ConcurrentHashMap<>(cacheSlots);
+    }
+    
+    private List<CacheRegion> getRegions() {
+        ClassDependentRegions regions = classDependentRegions;
+        List<CacheRegion> res = new ArrayList<>();
+        res.add(classIndex);
+        res.add(listTypeIndex);
+        res.add(userIndex);
+        res.add(groupIndex);
+        res.add(filterDefinitionIndex);
+        res.add(configurationVariablesIndex);
+        res.add(ancestorPathIndex.getRegion());
+        res.add(templatePlanIndex.getRegion());
+        res.add(regions.possibleChildrenIndex);
+        res.add(regions.possibleSpecialChildrenIndex);
+        res.add(regions.subClassesIndex);
+        res.add(regions.subClassesNoRecursiveIndex);
+        res.add(regions.uniqueClassAttributesIndex);
+        res.add(regions.superClassIndex);
+        res.add(regions.validatorDefinitionIndex);
+        res.add(regions.validatorResultsIndex);
+        return res;
+    }
+    
+    /**
+     * Discards the cached values of a unique attribute if there are too many of them. From then on, 
+     * the attribute is not cached until its values are explicitly set again using {@link #putUniqueAttributeValuesIndex(java.lang.String, java.lang.String, java.util.Collection) }.
+     */
+    private void checkUniqueAttributeValuesSize(ClassDependentRegions regions, String className, String attributeName, Set<Object> values) {
+        if (values.size() <= MAX_CACHED_UNIQUE_ATTRIBUTE_VALUES)
+            return;
+        regions.overflownUniqueAttributes.add(uniqueAttributeKey(className, attributeName));
+        Map<String, Set<Object>> uniqueClassAttributes = regions.uniqueClassAttributesIndex.peek(className);
+        if (uniqueClassAttributes != null && uniqueClassAttributes.remove(attributeName, values))
+            regions.uniqueClassAttributesIndex.recordEviction();
+    }
+    
+    private static String uniqueAttributeKey(String className, String attributeName) {
+        return className + "." + attributeName; //NOI18N
+    }
+    
+    /**
+     * The cache regions whose content depends on the class hierarchy or the properties of the classes.
+     */
+    private static class ClassDependentRegions {
+        /**
+         * Possible children index. The key is the class, the value its possible children. Note that a blank key ("") represents the navigation tree root
+         */
+        private final CacheRegion<String, List<ClassMetadata>> possibleChildrenIndex;
+        /**
+         * Possible special children index. The key is the class, the value its possible special children. Note that a blank key ("") represents the navigation tree root. The only difference with the possibleChildrenIndex, is that the relationship used to link the parent object with its children is CHILD_OF_SPECIAL
+         */
+        private final CacheRegion<String, List<String>> possibleSpecialChildrenIndex;
+        /**
+         * List of subclasses of a class, the key is the name of the class, the value is the subclasses
+         */
+        private final CacheRegion<String, List<ClassMetadataLight>> subClassesIndex;
+        /**
+         * List of direct subclasses of a class, the key is the name of the class, the value is the subclasses
+         */
+        private final CacheRegion<String, List<ClassMetadataLight>> subClassesNoRecursiveIndex;
+        /**
+         * List of the classes with unique attributes and its values index. The values of an attribute are bounded by MAX_CACHED_UNIQUE_ATTRIBUTE_VALUES
+         */
+        private final CacheRegion<String, Map<String, Set<Object>>> uniqueClassAttributesIndex;
+        /**
+         * The unique attributes (in the format class.attribute) whose values were discarded because there were too many of them.
+         */
+        private final Set<String> overflownUniqueAttributes;
+        /**
+         * A structure that caches the superclasses of a given class (the key of the hashmap). This structure does contain redundant information, 
+         * but that is the trade off to simplify the access to the upstream class hierarchy
+         */
+        private final CacheRegion<String, List<ClassMetadataLight>> superClassIndex;
+        /**
+         * A structure that caches the validators associated to a given class (the key of the hash).
+         */
+        private final CacheRegion<String, List<ValidatorDefinition>> validatorDefinitionIndex;
+        /**
+         * A structure that caches the result of evaluating the validators of a given object (the key of the map is the object id). 
+         * Its size is bounded by MAX_CACHED_VALIDATOR_RESULTS.
+         */
+        private final CacheRegion<String, List<Validator>> validatorResultsIndex;
+
+        private ClassDependentRegions() {
+            this(new CacheRegion<>("possibleChildrenIndex"), //NOI18N
+                new CacheRegion<>("possibleSpecialChildrenIndex"), //NOI18N
+                new CacheRegion<>("subClassesIndex"), //NOI18N
+                new CacheRegion<>("subClassesNoRecursiveIndex"), //NOI18N
+                new CacheRegion<>("uniqueClassAttributesIndex"), //NOI18N
+                new CacheRegion<>("superClassIndex"), //NOI18N
+                new CacheRegion<>("validatorDefinitionIndex"), //NOI18N
+                new CacheRegion<>("validatorResultsIndex", MAX_CACHED_VALIDATOR_RESULTS)); //NOI18N
+        }
+
+        private ClassDependentRegions(CacheRegion<String, List<ClassMetadata>> possibleChildrenIndex, 
+                CacheRegion<String, List<String>> possibleSpecialChildrenIndex, 
+                CacheRegion<String, List<ClassMetadataLight>> subClassesIndex, 
+                CacheRegion<String, List<ClassMetadataLight>> subClassesNoRecursiveIndex, 
+                CacheRegion<String, Map<String, Set<Object>>> uniqueClassAttributesIndex, 
+                CacheRegion<String, List<ClassMetadataLight>> superClassIndex, 
+                CacheRegion<String, List<ValidatorDefinition>> validatorDefinitionIndex, 
+                CacheRegion<String, List<Validator>> validatorResultsIndex) {
+            this.possibleChildrenIndex = possibleChildrenIndex;
+            this.possibleSpecialChildrenIndex = possibleSpecialChildrenIndex;
+            this.subClassesIndex = subClassesIndex;
+            this.subClassesNoRecursiveIndex = subClassesNoRecursiveIndex;
+            this.uniqueClassAttributesIndex = uniqueClassAttributesIndex;
+            this.superClassIndex = superClassIndex;
+            this.validatorDefinitionIndex = validatorDefinitionIndex;
+            this.validatorResultsIndex = validatorResultsIndex;
+            this.overflownUniqueAttributes = ConcurrentHashMap.newKeySet();
+        }
+
+        /**
+         * Creates an empty set of regions that keeps the counters of the current one.
+         * @return The new set of regions.
+         */
+        private ClassDependentRegions renew() {
+            return new ClassDependentRegions(possibleChildrenIndex.renew(), possibleSpecialChildrenIndex.renew(), 
+                    subClassesIndex.renew(), subClassesNoRecursiveIndex.renew(), uniqueClassAttributesIndex.renew(), 
+                    superClassIndex.renew(), validatorDefinitionIndex.renew(), validatorResultsIndex.renew());
+        }
     }
 }
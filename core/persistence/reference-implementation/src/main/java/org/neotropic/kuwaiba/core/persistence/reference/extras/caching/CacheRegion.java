@@ -0,0 +1,201 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.neotropic.kuwaiba.core.persistence.reference.extras.caching;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.CacheStatistics;
+
+/**
+ * A segment of the cache. Reads never block, writes only lock the bin of the affected key, and
+ * every lookup is accounted as a hit or a miss. If the region is bounded, arbitrary entries are
+ * discarded once the max size is exceeded.
+ * @author agent {@literal <agent@local>}
+ * @param <K> The type of the keys.
+ * @param <V> The type of the cached values.
+ */
+public class CacheRegion<K, V> {
+    /**
+     * The name of the region, used for monitoring purposes.
+     */
+    private final String name;
+    /**
+     * Max number of entries. 0 means the region is not bounded.
+     */
+    private final int maxSize;
+    /**
+     * The actual entries.
+     */
+    private final ConcurrentHashMap<K, V> entries;
+    /**
+     * Counters. They are shared by the regions created using {@link #renew() }, so they survive cache invalidations.
+     */
+    private final Counters counters;
+
+    public CacheRegion(String name, int maxSize) {
+        this(name, maxSize, new Counters());
+    }
+
+    public CacheRegion(String name) {
+        this(name, 0);
+    }
+
+    private CacheRegion(String name, int maxSize, Counters counters) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.entries = new ConcurrentHashMap<>();
+        this.counters = counters;
+    }
+
+    /**
+     * Creates an empty region with the same name and bounds that keeps accumulating on the counters of this one.
+     * @return The new region.
+     */
+    public CacheRegion<K, V> renew() {
+        return new CacheRegion<>(name, maxSize, counters);
+    }
+
+    /**
+     * Retrieves an entry and accounts the lookup as a hit or a miss.
+     * @param key The key of the entry.
+     * @return The cached value or null if it is not cached.
+     */
+    public V get(K key) {
+        V value = entries.get(key);
+        if (value == null)
+            counters.misses.increment();
+        else
+            counters.hits.increment();
+        return value;
+    }
+
+    /**
+     * Retrieves an entry without affecting the counters. Meant for internal lookups that are not actual cache reads.
+     * @param key The key of the entry.
+     * @return The cached value or null if it is not cached.
+     */
+    public V peek(K key) {
+        return entries.get(key);
+    }
+
+    public boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Adds or replaces an entry, discarding others if the region becomes larger than allowed.
+     * @param key The key of the entry.
+     * @param value The value to be cached. Null values are ignored.
+     */
+    public void put(K key, V value) {
+        if (value == null)
+            return;
+        entries.put(key, value);
+        evictIfNeeded();
+    }
+
+    /**
+     * Atomically retrieves an entry or creates it if it is not present.
+     * @param key The key of the entry.
+     * @param mappingFunction The function used to create the entry if it is not cached.
+     * @return The existing or the newly created value.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = entries.computeIfAbsent(key, mappingFunction);
+        evictIfNeeded();
+        return value;
+    }
+
+    /**
+     * Atomically replaces an entry, if present. Useful to copy, modify and replace a cached value, instead
+     * of modifying it in place while other threads may be reading it.
+     * @param key The key of the entry.
+     * @param remappingFunction The function that computes the new value from the current one. If it returns null, the entry is removed.
+     * @return The new value or null if there is none.
+     */
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return entries.computeIfPresent(key, remappingFunction);
+    }
+
+    public V remove(K key) {
+        return entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Takes a snapshot of the counters of this region.
+     * @return The statistics.
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(name, entries.size(), maxSize, counters.hits.sum(),
+                counters.misses.sum(), counters.evictions.sum());
+    }
+
+    /**
+     * Sets the hit, miss and eviction counters to zero.
+     */
+    public void resetStatistics() {
+        counters.hits.reset();
+        counters.misses.reset();
+        counters.evictions.reset();
+    }
+
+    /**
+     * Accounts an entry discarded by the owner of the region, for example, when the value 
+     * of an entry is a collection and some of its elements were discarded.
+     */
+    public void recordEviction() {
+        counters.evictions.increment();
+    }
+
+    /**
+     * Discards entries until the region is within its bounds. The entries are not discarded in any particular order,
+     * as keeping track of the usage of each entry would force reads to write.
+     */
+    private void evictIfNeeded() {
+        if (maxSize <= 0 || entries.size() <= maxSize)
+            return;
+        Iterator<K> keys = entries.keySet().iterator();
+        while (entries.size() > maxSize && keys.hasNext()) {
+            if (entries.remove(keys.next()) != null)
+                counters.evictions.increment();
+        }
+    }
+
+    /**
+     * The usage counters of a region.
+     */
+    private static class Counters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+    }
+}
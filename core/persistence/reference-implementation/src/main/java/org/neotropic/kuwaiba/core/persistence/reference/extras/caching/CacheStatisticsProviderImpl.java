@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.neotropic.kuwaiba.core.persistence.reference.extras.caching;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.CacheStatistics;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.CacheStatisticsProvider;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.ScriptStatistics;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.ValidatorStatistics;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.ObjectGraphMappingService;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.ScriptCompilationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Exposes the counters of the {@link CacheManager} regions, of the validators evaluated by the {@link ObjectGraphMappingService} 
+ * and of the scripts compiled by the {@link ScriptCompilationService}.
+ * @author agent {@literal <agent@local>}
+ */
+@Service
+public class CacheStatisticsProviderImpl implements CacheStatisticsProvider {
+    /**
+     * Reference to the Object-Graph Mapping service, which evaluates the validators.
+     */
+    @Autowired
+    private ObjectGraphMappingService ogmService;
+    /**
+     * Reference to the service that compiles and runs the scripts.
+     */
+    @Autowired
+    private ScriptCompilationService scriptCompilationService;
+
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        return CacheManager.getInstance().getStatistics();
+    }
+
+    @Override
+    public void resetCacheStatistics() {
+        CacheManager.getInstance().resetStatistics();
+    }
+
+    @Override
+    public String getValidatorEvaluationMode() {
+        return ogmService.getValidatorEvaluationMode().name();
+    }
+
+    @Override
+    public List<ValidatorStatistics> getValidatorStatistics() {
+        return ogmService.getValidatorExecutionStatistics().values().stream()
+                .map(statistics -> new ValidatorStatistics(statistics.getClassName(), statistics.getEvaluations(), statistics.getCacheHits(), 
+                        statistics.getTotalTime(), statistics.getAverageTime(), statistics.getMaxTime()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void resetValidatorStatistics() {
+        ogmService.clearValidatorExecutionStatistics();
+    }
+
+    @Override
+    public ScriptStatistics getScriptStatistics() {
+        return new ScriptStatistics(scriptCompilationService.getCachedScripts(), scriptCompilationService.getCacheHits(), 
+                scriptCompilationService.getCompilations(), scriptCompilationService.getCompilationTime(), 
+                scriptCompilationService.getExecutions(), scriptCompilationService.getExecutionTime(), 
+                scriptCompilationService.getEvictions());
+    }
+
+    @Override
+    public void resetScriptStatistics() {
+        scriptCompilationService.resetStatistics();
+    }
+}
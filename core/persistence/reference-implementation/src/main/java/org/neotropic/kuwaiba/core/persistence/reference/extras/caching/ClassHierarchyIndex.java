@@ -0,0 +1,264 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.neotropic.kuwaiba.core.persistence.reference.extras.caching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadataLight;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+
+/**
+ * An immutable snapshot of the class hierarchy. Every class gets a dense integer id and is numbered
+ * following a depth-first walk of the hierarchy, so all the subclasses of a class are those whose
+ * number falls within the interval of the class. That way, telling if a class is subclass of another
+ * takes two comparisons and no allocations. The direct subclasses of every class are kept too, so the subclasses
+ * of a class are retrieved walking only its own branch. Since it can not be modified, it can be read from any thread
+ * and must be replaced by a new one each time the class hierarchy changes.
+ * @author agent {@literal <agent@local>}
+ */
+public final class ClassHierarchyIndex {
+    /**
+     * An index with no classes.
+     */
+    public static final ClassHierarchyIndex EMPTY = new ClassHierarchyIndex(Collections.emptyList());
+    /**
+     * Dense ids of the classes. The key is the class name.
+     */
+    private final HashMap<String, Integer> ids;
+    /**
+     * The classes, indexed by their dense id.
+     */
+    private final ClassMetadataLight[] classes;
+    /**
+     * The dense id of the parent of each class. -1 if the class has no parent (or its parent is not in the index).
+     */
+    private final int[] parents;
+    /**
+     * The position of each class in a depth-first walk of the hierarchy.
+     */
+    private final int[] preOrder;
+    /**
+     * The position of the last subclass of each class in a depth-first walk of the hierarchy.
+     * A class B is subclass of A if preOrder[A] &lt; preOrder[B] &lt;= lastSubclass[A].
+     */
+    private final int[] lastSubclass;
+    /**
+     * The dense ids of the direct subclasses of each class, sorted by class name.
+     */
+    private final int[][] children;
+
+    private ClassHierarchyIndex(Collection<? extends ClassMetadataLight> allClasses) {
+        int size = allClasses.size();
+        this.ids = new HashMap<>(size * 2);
+        this.classes = new ClassMetadataLight[size];
+        this.parents = new int[size];
+        this.preOrder = new int[size];
+        this.lastSubclass = new int[size];
+
+        int id = 0;
+        for (ClassMetadataLight aClass : allClasses) {
+            classes[id] = aClass;
+            ids.put(aClass.getName(), id);
+            id++;
+        }
+
+        //Children lists stored as compact arrays: firstChild/nextSibling
+        int[] firstChild = new int[size];
+        int[] nextSibling = new int[size];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        for (int i = size - 1; i >= 0; i--) {
+            Integer parent = classes[i].getParentClassName() == null ? null : ids.get(classes[i].getParentClassName());
+            parents[i] = parent == null ? -1 : parent;
+            if (parent != null) {
+                nextSibling[i] = firstChild[parent];
+                firstChild[parent] = i;
+            }
+        }
+
+        //Iterative depth-first walk starting from every root class
+        int counter = 0;
+        int[] stack = new int[size];
+        for (int root = 0; root < size; root++) {
+            if (parents[root] != -1)
+                continue;
+            int top = 0;
+            stack[top] = root;
+            preOrder[root] = counter++;
+            int current = firstChild[root];
+            while (top >= 0) {
+                if (current != -1) { //Go down
+                    preOrder[current] = counter++;
+                    stack[++top] = current;
+                    current = firstChild[current];
+                } else { //Go up
+                    int finished = stack[top--];
+                    lastSubclass[finished] = counter - 1;
+                    current = nextSibling[finished];
+                    if (top < 0)
+                        break;
+                }
+            }
+        }
+
+        this.children = new int[size][];
+        Comparator<Integer> byName = Comparator.comparing(anId -> classes[anId].getName());
+        for (int i = 0; i < size; i++) {
+            List<Integer> directSubclasses = new ArrayList<>();
+            for (int child = firstChild[i]; child != -1; child = nextSibling[child])
+                directSubclasses.add(child);
+            directSubclasses.sort(byName);
+            children[i] = directSubclasses.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Builds an index from the given classes. The classes are copied in their light flavor, so later changes to them
+     * do not affect the index.
+     * @param allClasses All the classes in the data model.
+     * @return The new index.
+     */
+    public static ClassHierarchyIndex build(Collection<? extends ClassMetadataLight> allClasses) {
+        List<ClassMetadataLight> lightClasses = new ArrayList<>(allClasses.size());
+        for (ClassMetadataLight aClass : allClasses)
+            lightClasses.add(toLight(aClass));
+        return new ClassHierarchyIndex(lightClasses);
+    }
+
+    /**
+     * Checks if a class is part of this index.
+     * @param className The name of the class.
+     * @return If the class is in the index.
+     */
+    public boolean contains(String className) {
+        return ids.containsKey(className);
+    }
+
+    public int size() {
+        return classes.length;
+    }
+
+    /**
+     * Checks if a class is subclass of another or the same class.
+     * @param allegedParent The alleged super class.
+     * @param className The class to be evaluated.
+     * @return True if className is allegedParent or one of its subclasses. False if any of them is not in the index.
+     */
+    public boolean isSubclassOf(String allegedParent, String className) {
+        Integer parentId = ids.get(allegedParent);
+        Integer classId = ids.get(className);
+        if (parentId == null || classId == null)
+            return false;
+        return preOrder[parentId] <= preOrder[classId] && preOrder[classId] <= lastSubclass[parentId];
+    }
+
+    /**
+     * Retrieves all the subclasses of a class (not including itself) sorted by name.
+     * @param className The name of the class.
+     * @return The subclasses. An empty list if the class has no subclasses or if it's not in the index.
+     */
+    public List<ClassMetadataLight> getSubclasses(String className) {
+        Integer classId = ids.get(className);
+        if (classId == null)
+            return new ArrayList<>();
+
+        List<ClassMetadataLight> res = new ArrayList<>(lastSubclass[classId] - preOrder[classId]);
+        if (lastSubclass[classId] == preOrder[classId]) //No subclasses at all
+            return res;
+
+        //Only the branch of the class is walked
+        int[] stack = new int[lastSubclass[classId] - preOrder[classId] + 1];
+        int top = 0;
+        stack[top] = classId;
+        while (top >= 0) {
+            for (int child : children[stack[top--]]) {
+                res.add(classes[child]);
+                stack[++top] = child;
+            }
+        }
+        res.sort(Comparator.comparing(ClassMetadataLight::getName));
+        return res;
+    }
+
+    /**
+     * Retrieves the direct subclasses of a class sorted by name.
+     * @param className The name of the class.
+     * @return The direct subclasses. An empty list if the class has no subclasses or if it's not in the index.
+     */
+    public List<ClassMetadataLight> getDirectSubclasses(String className) {
+        Integer classId = ids.get(className);
+        if (classId == null)
+            return new ArrayList<>();
+
+        List<ClassMetadataLight> res = new ArrayList<>(children[classId].length);
+        for (int child : children[classId])
+            res.add(classes[child]);
+        return res;
+    }
+
+    /**
+     * Retrieves the super classes of a class, up to InventoryObject or GenericObjectList, whatever applies.
+     * Classes outside those two branches have no upstream hierarchy.
+     * @param className The name of the class.
+     * @param includeSelf If the class itself should be included in the result as its first element.
+     * @return The list of super classes, starting from the closest one. An empty list if the class is not in the index.
+     */
+    public List<ClassMetadataLight> getUpstreamClassHierarchy(String className, boolean includeSelf) {
+        List<ClassMetadataLight> res = new ArrayList<>();
+        Integer classId = ids.get(className);
+        if (classId == null)
+            return res;
+
+        if (includeSelf)
+            res.add(classes[classId]);
+
+        int current = parents[classId];
+        while (current != -1) {
+            res.add(classes[current]);
+            String currentName = classes[current].getName();
+            if (Constants.CLASS_INVENTORYOBJECT.equals(currentName) || Constants.CLASS_GENERICOBJECTLIST.equals(currentName))
+                return res;
+            current = parents[current];
+        }
+        //No root was found
+        res.clear();
+        return res;
+    }
+
+    /**
+     * Copies the properties of a class into a new ClassMetadataLight object, so the index does not keep references to
+     * heavier objects (such as ClassMetadata instances) that could be modified elsewhere.
+     */
+    private static ClassMetadataLight toLight(ClassMetadataLight aClass) {
+        ClassMetadataLight res = new ClassMetadataLight(aClass.getId(), aClass.getName(), aClass.getDisplayName());
+        res.setAbstract(aClass.isAbstract());
+        res.setSmallIcon(aClass.getSmallIcon());
+        res.setColor(aClass.getColor());
+        res.setCustom(aClass.isCustom());
+        res.setInDesign(aClass.isInDesign());
+        res.setViewable(aClass.isViewable());
+        res.setListType(aClass.isListType());
+        res.setAdministrative(aClass.isAdministrative());
+        res.setParentClassName(aClass.getParentClassName());
+        return res;
+    }
+}
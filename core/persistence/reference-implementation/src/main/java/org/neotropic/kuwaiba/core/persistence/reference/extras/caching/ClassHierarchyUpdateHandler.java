@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.extras.caching;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadataLight;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.Util;
+
+/**
+ * Rebuilds the {@link ClassHierarchyIndex} when a transaction changes the data model, and publishes it once the transaction
+ * has been committed. The data model is considered changed if a class was created or deleted, if any property of a class
+ * was set or removed, or if an EXTENDS relationship was created or deleted. The new index is built while the transaction is
+ * still open, so it reflects its changes, but other transactions keep using the former one until the commit. Since the handler
+ * is called by the database, transactions nested in other transactions are only processed when the outermost one is committed,
+ * and nothing is published if the transaction is rolled back.
+ * @author agent {@literal <agent@local>}
+ */
+public class ClassHierarchyUpdateHandler implements TransactionEventHandler<ClassHierarchyIndex> {
+    /**
+     * Class label
+     */
+    private static final Label CLASS_LABEL = Label.label(Constants.LABEL_CLASS);
+    /**
+     * Reference to the database, used to read the classes when the data model changes.
+     */
+    private final GraphDatabaseService graphDb;
+    /**
+     * Receives the new index once the transaction that changed the data model has been committed.
+     */
+    private final Consumer<ClassHierarchyIndex> publisher;
+
+    public ClassHierarchyUpdateHandler(GraphDatabaseService graphDb, Consumer<ClassHierarchyIndex> publisher) {
+        this.graphDb = graphDb;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Builds the new index if the transaction changed the data model.
+     * @param data The changes made by the transaction.
+     * @return The new index, or null if the data model was not changed.
+     */
+    @Override
+    public ClassHierarchyIndex beforeCommit(TransactionData data) {
+        if (!changesDataModel(data))
+            return null;
+
+        List<ClassMetadataLight> allClasses = new ArrayList<>();
+        try (ResourceIterator<Node> classes = graphDb.findNodes(CLASS_LABEL)) {
+            while (classes.hasNext())
+                allClasses.add(Util.createClassMetadataFromNode(classes.next()));
+        }
+        return ClassHierarchyIndex.build(allClasses);
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, ClassHierarchyIndex hierarchy) {
+        if (hierarchy != null)
+            publisher.accept(hierarchy);
+    }
+
+    @Override
+    public void afterRollback(TransactionData data, ClassHierarchyIndex hierarchy) {
+        // Nothing was committed, so the current index is still valid
+    }
+
+    private static boolean changesDataModel(TransactionData data) {
+        for (LabelEntry entry : data.assignedLabels()) {
+            if (entry.label().equals(CLASS_LABEL))
+                return true;
+        }
+        for (LabelEntry entry : data.removedLabels()) {
+            if (entry.label().equals(CLASS_LABEL))
+                return true;
+        }
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+            if (isClass(data, entry.entity()))
+                return true;
+        }
+        for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+            if (isClass(data, entry.entity()))
+                return true;
+        }
+        return hasInheritance(data.createdRelationships()) || hasInheritance(data.deletedRelationships());
+    }
+
+    /**
+     * Checks if a node is a class. The deleted classes are found by their removed labels instead, since they can't be read anymore.
+     */
+    private static boolean isClass(TransactionData data, Node node) {
+        return !data.isDeleted(node) && node.hasLabel(CLASS_LABEL);
+    }
+
+    private static boolean hasInheritance(Iterable<Relationship> relationships) {
+        for (Relationship relationship : relationships) {
+            if (relationship.isType(RelTypes.EXTENDS))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.extras.caching;
+
+/**
+ * A template flattened into the list of objects to be created every time the template is instantiated, so
+ * the template elements don't have to be traversed again. The elements are sorted so the parent of an element
+ * always comes before it, and the nodes the new objects point to (their classes and the list type items they are
+ * related to) are referenced by node id, each one only once, so they can be resolved once for many instantiations.
+ * Instances of this class are immutable and can be shared between threads.
+ * @author agent {@literal <agent@local>}
+ */
+public final class TemplateInstantiationPlan {
+    /**
+     * The elements of the template. The first one is the template root.
+     */
+    private final ElementSpec[] elements;
+    /**
+     * The node ids of the classes and list type items referenced by the elements.
+     */
+    private final long[] referencedNodeIds;
+
+    public TemplateInstantiationPlan(ElementSpec[] elements, long[] referencedNodeIds) {
+        this.elements = elements;
+        this.referencedNodeIds = referencedNodeIds;
+    }
+
+    public ElementSpec[] getElements() {
+        return elements;
+    }
+
+    public long[] getReferencedNodeIds() {
+        return referencedNodeIds;
+    }
+
+    /**
+     * How many objects are created every time the template is instantiated.
+     * @return The number of elements in the template.
+     */
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * An object to be created from a template element.
+     */
+    public static final class ElementSpec {
+        /**
+         * The id of the template element.
+         */
+        private final String templateElementId;
+        /**
+         * The class of the element.
+         */
+        private final String className;
+        /**
+         * The index of the class node in the referenced node ids.
+         */
+        private final int classReference;
+        /**
+         * The index of the parent element, or -1 if this is the template root.
+         */
+        private final int parentIndex;
+        /**
+         * True if the element is a special child of its parent.
+         */
+        private final boolean specialChild;
+        /**
+         * The names of the properties copied from the template element.
+         */
+        private final String[] propertyKeys;
+        /**
+         * The values of the properties, in the same order as the names.
+         */
+        private final Object[] propertyValues;
+        /**
+         * The properties set to an empty string. They must be checked against the mandatory attributes of the class
+         * every time the template is instantiated, as the attributes could have been set as mandatory after the plan was compiled.
+         */
+        private final String[] emptyProperties;
+        /**
+         * The names of the list type attributes set in the template element.
+         */
+        private final String[] listTypeAttributes;
+        /**
+         * The indexes of the list type item nodes in the referenced node ids, in the same order as the attribute names.
+         */
+        private final int[] listTypeItemReferences;
+
+        public ElementSpec(String templateElementId, String className, int classReference, int parentIndex, boolean specialChild,
+                String[] propertyKeys, Object[] propertyValues, String[] emptyProperties, String[] listTypeAttributes, int[] listTypeItemReferences) {
+            this.templateElementId = templateElementId;
+            this.className = className;
+            this.classReference = classReference;
+            this.parentIndex = parentIndex;
+            this.specialChild = specialChild;
+            this.propertyKeys = propertyKeys;
+            this.propertyValues = propertyValues;
+            this.emptyProperties = emptyProperties;
+            this.listTypeAttributes = listTypeAttributes;
+            this.listTypeItemReferences = listTypeItemReferences;
+        }
+
+        public String getTemplateElementId() {
+            return templateElementId;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public int getClassReference() {
+            return classReference;
+        }
+
+        public int getParentIndex() {
+            return parentIndex;
+        }
+
+        public boolean isSpecialChild() {
+            return specialChild;
+        }
+
+        public String[] getPropertyKeys() {
+            return propertyKeys;
+        }
+
+        public Object[] getPropertyValues() {
+            return propertyValues;
+        }
+
+        public String[] getEmptyProperties() {
+            return emptyProperties;
+        }
+
+        public String[] getListTypeAttributes() {
+            return listTypeAttributes;
+        }
+
+        public int[] getListTypeItemReferences() {
+            return listTypeItemReferences;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.extras.caching;
+
+/**
+ * Caches the instantiation plans of the templates (see {@link TemplateInstantiationPlan}). Templates are seldom
+ * modified compared to how often they are instantiated, so all the plans are discarded at once every time a template
+ * element changes (see {@link #clear()}). Reads don't block, while updates are serialized.
+ * @author agent {@literal <agent@local>}
+ */
+public class TemplatePlanIndex {
+    /**
+     * The cached plans. The key is the id of the template.
+     */
+    private final CacheRegion<String, TemplateInstantiationPlan> plans;
+    /**
+     * Incremented every time the plans are discarded, so plans compiled before a template changed are not cached after it.
+     */
+    private volatile long version;
+
+    public TemplatePlanIndex(String name, int maxSize) {
+        this.plans = new CacheRegion<>(name, maxSize);
+    }
+
+    /**
+     * Retrieves the cached plan of a template.
+     * @param templateId The id of the template.
+     * @return The plan or null if it's not cached.
+     */
+    public TemplateInstantiationPlan get(String templateId) {
+        return plans.get(templateId);
+    }
+
+    /**
+     * The current version of the index. Read it before compiling a plan, and pass it to {@link #put(java.lang.String, org.neotropic.kuwaiba.core.persistence.reference.extras.caching.TemplateInstantiationPlan, long)}.
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Caches the plan of a template, unless a template was modified since the plan was compiled.
+     * @param templateId The id of the template.
+     * @param plan The plan.
+     * @param computedAt The version of the index before the plan was compiled.
+     */
+    public synchronized void put(String templateId, TemplateInstantiationPlan plan, long computedAt) {
+        if (computedAt == version)
+            plans.put(templateId, plan);
+    }
+
+    /**
+     * Discards all the cached plans. Call it after the transaction that modified a template has been committed,
+     * otherwise the old plan could be compiled and cached again before the commit.
+     */
+    public synchronized void clear() {
+        version++;
+        plans.clear();
+    }
+
+    /**
+     * The region that holds the cached plans, used to report the usage counters.
+     * @return The region.
+     */
+    public CacheRegion<String, TemplateInstantiationPlan> getRegion() {
+        return plans;
+    }
+}
@@ -31,6 +31,7 @@ import org.neotropic.kuwaiba.core.apis.persistence.application.InventoryObjectPo
 import org.neotropic.kuwaiba.core.apis.persistence.application.Privilege;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ResultRecord;
 import org.neotropic.kuwaiba.core.apis.persistence.application.Session;
+import org.neotropic.kuwaiba.core.apis.persistence.application.SessionRegistry;
 import org.neotropic.kuwaiba.core.apis.persistence.application.Task;
 import org.neotropic.kuwaiba.core.apis.persistence.application.TaskNotificationDescriptor;
 import org.neotropic.kuwaiba.core.apis.persistence.application.TaskResult;
@@ -69,26 +70,34 @@ import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.apis.persistence.util.StringPair;
 import groovy.lang.Binding;
 import groovy.lang.GroovyClassLoader;
-import groovy.lang.GroovyShell;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Modifier;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import javax.xml.bind.DatatypeConverter;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventFactory;
@@ -105,8 +114,11 @@ import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
 import org.neo4j.helpers.collection.Iterators;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FileObject;
+import org.neotropic.kuwaiba.core.apis.persistence.application.FileObjectContent;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FileObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.application.Filter;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FilterDefinition;
@@ -122,6 +134,10 @@ import org.neotropic.kuwaiba.core.i18n.TranslationService;
 import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.CacheManager;
 import org.neotropic.kuwaiba.core.persistence.reference.extras.processman.ProcessManagerService;
 import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.ObjectGraphMappingService;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.ScriptCompilationService;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.AttachmentStore;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.AuditTrailArchiver;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.AuditTrailWriter;
 import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.Util;
 import org.neotropic.kuwaiba.core.persistence.reference.naming.util.DynamicNameGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -143,10 +159,9 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
      * Default background path
      */
     private static final String DEFAULT_BACKGROUNDS_PATH = "/data/img/backgrounds"; //NOI18N  
-       /**
-     * Default attachment location.
+    /**
+     * Default max attachment size in MB.
      */
-    private static final String DEFAULT_ATTACHMENTS_PATH = "/data/files/attachments";
     private static final String DEFAULT_MAX_ATTACHMENT_SIZE = "10";
     /**
      * Key prefix to error messages in the Application Entity Manager Service
@@ -283,6 +298,11 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
      */
     @Autowired
     private ObjectGraphMappingService ogmService;
+    /**
+     * Reference to the service that compiles and caches the scripts of tasks, scripted queries and validator definitions.
+     */
+    @Autowired
+    private ScriptCompilationService scriptCompilationService;
     /**
      * Reference to the translation service.
      */
@@ -293,16 +313,49 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
      */
     @Autowired
     private ProcessManagerService processManagerService;
+    /**
+     * Reference to the audit trail writer.
+     */
+    @Autowired
+    private AuditTrailWriter auditTrailWriter;
+    /**
+     * Reference to the audit trail archiver.
+     */
+    @Autowired
+    private AuditTrailArchiver auditTrailArchiver;
+    /**
+     * Reference to the attachment store.
+     */
+    @Autowired
+    private AttachmentStore attachmentStore;
+    /**
+     * Where the pages of the general activity audit trail retrieved recently end, so the next pages don't have to skip all the newer entries.
+     */
+    private final AuditTrailCursors auditTrailCursors;
+    /**
+     * Max number of entries counted when the general activity audit trail is filtered.
+     */
+    private static final int MAX_FILTERED_AUDIT_TRAIL_COUNT = 100000;
+    /**
+     * How long (in seconds) to wait for the schema indexes to come online during the start up.
+     */
+    private static final int SCHEMA_INDEX_ONLINE_TIMEOUT = 300;
     
     /**
-     * Map with the current sessions. The key is the session token, the value is the list of session object. Note that a single user might have multiple
+     * The current sessions, indexed by token and user. Note that a single user might have multiple
      * session opened as long as they are of different type.
      */
-    private final ConcurrentHashMap<String, Session> sessions;
+    private final SessionRegistry sessions;
+    /**
+     * Default time (in minutes) a web service, desktop or mobile session can be unused before it's closed. Zero means the sessions never expire.
+     */
+    private static final long DEFAULT_SESSION_IDLE_TIMEOUT = 0;
     
     public ApplicationEntityManagerImpl() {
         this.configuration = new Properties();
-        this.sessions = new ConcurrentHashMap<>();
+        this.sessions = new SessionRegistry();
+        this.sessions.setExpirationListener(this::sessionExpired);
+        this.auditTrailCursors = new AuditTrailCursors();
         this.passwordEnconder = new BCryptPasswordEncoder();
         
         // Initilize labels
@@ -348,17 +401,61 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             Logger.getLogger(ApplicationEntityManagerImpl.class.getName()).log(Level.SEVERE, String.format("[KUWAIBA] [%s] An error was found while creating the AEM instance: %s", 
                     Calendar.getInstance().getTime(), ex.getMessage()));
         }
+        createAuditTrailIndex();
+    }
+    
+    /**
+     * Makes sure there is a schema index on the creation date of the activity log entries, so the audit trail can be 
+     * retrieved page by page, most recent first, walking the index instead of sorting the whole log. If the index 
+     * does not exist, it is created and the method waits until it is online. Schema changes can not be mixed with 
+     * data changes, so this is done in its own transaction.
+     */
+    private void createAuditTrailIndex() {
+        Label activityLogsLabel = Label.label(Constants.LABEL_GENERAL_ACTIVITY_LOGS);
+        try {
+            try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                Schema schema = connectionManager.getConnectionHandler().schema();
+                boolean indexExists = false;
+                for (IndexDefinition index : schema.getIndexes(activityLogsLabel)) {
+                    Iterator<String> propertyKeys = index.getPropertyKeys().iterator();
+                    if (propertyKeys.hasNext() && Constants.PROPERTY_CREATION_DATE.equals(propertyKeys.next()) && !propertyKeys.hasNext()) {
+                        indexExists = true;
+                        break;
+                    }
+                }
+                
+                if (!indexExists) {
+                    Logger.getLogger(ApplicationEntityManagerImpl.class.getName()).log(Level.INFO, 
+                            String.format("[KUWAIBA] Creating index on %s(%s)", activityLogsLabel, Constants.PROPERTY_CREATION_DATE));
+                    schema.indexFor(activityLogsLabel).on(Constants.PROPERTY_CREATION_DATE).create();
+                }
+                tx.success();
+            }
+            
+            try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                connectionManager.getConnectionHandler().schema().awaitIndexesOnline(SCHEMA_INDEX_ONLINE_TIMEOUT, TimeUnit.SECONDS);
+                tx.success();
+            }
+        } catch (Exception ex) { // The index is an optimization. If it is not available, the audit trail will still be retrieved, but slower
+            Logger.getLogger(ApplicationEntityManagerImpl.class.getName()).log(Level.SEVERE, 
+                    String.format("[KUWAIBA] [%s] The index on %s(%s) could not be created or is not online: %s", 
+                    Calendar.getInstance().getTime(), activityLogsLabel, Constants.PROPERTY_CREATION_DATE, ex.getMessage()));
+        }
     }
     
     @Override
-    public ConcurrentHashMap<String, Session> getSessions() {
+    public Map<String, Session> getSessions() {
+        return sessions.getSessionsByToken();
+    }
+    
+    @Override
+    public SessionRegistry getSessionRegistry() {
         return sessions;
     }
     
     @Override
     public boolean isSessionValid(String username, String token) {
-        return this.sessions.values().stream().filter(aSession -> aSession.getToken().equals(token) && aSession.getUser().getUserName().equals(username)).
-                findAny().isPresent();
+        return sessions.isValid(username, token);
     }
 
     @Override
@@ -494,9 +591,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
                 cm.removeUser(userName);
             }
             UserProfile userProfile = Util.createUserProfileWithGroupPrivilegesFromNode(userNode);
-            sessions.values().stream().filter(session -> (session.getUser().getId() == userProfile.getId())).forEachOrdered(session -> {
-                session.setUser(userProfile);
-            });
+            sessions.getSessionsOfUser(userProfile.getId()).forEach(session -> session.setUser(userProfile));
             tx.success();
             cm.putUser(userProfile);
         }
@@ -560,9 +655,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
                 userNode.setProperty(UserProfile.PROPERTY_EMAIL, email);
             
             UserProfile userProfile = Util.createUserProfileWithGroupPrivilegesFromNode(userNode);
-            sessions.values().stream().filter(session -> (session.getUser().getId() == userProfile.getId())).forEachOrdered(session -> {
-                session.setUser(userProfile);
-            });
+            sessions.getSessionsOfUser(userProfile.getId()).forEach(session -> session.setUser(userProfile));
             tx.success();
             cm.putUser(userProfile);
         }
@@ -996,6 +1089,9 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             listTypeItemNode.delete();
             tx.success();
             cm.removeListType(className);
+        } finally {
+            // The template elements could have been related to the deleted item
+            cm.getTemplatePlanIndex().clear();
         }
     }
     
@@ -2452,15 +2548,18 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
     }
         
     private void deletePool(String id) throws ApplicationObjectNotFoundException, OperationNotPermittedException {
+        List<String> releasedContents = new ArrayList<>();
         try(Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             Node poolNode = connectionManager.getConnectionHandler().findNode(poolLabel, Constants.PROPERTY_UUID, id);
             if (poolNode == null)
                 throw new ApplicationObjectNotFoundException(String.format("A pool with id %s does not exist", id));
 
-            deletePool(poolNode);
+            deletePool(poolNode, releasedContents);
             
             tx.success();
         }
+        //The contents of the attachments can only be deleted once the attachments are gone
+        releasedContents.forEach(attachmentStore::deleteIfUnused);
     }
     
     @Override
@@ -2502,7 +2601,12 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
                         objectClass, Constants.CLASS_INVENTORYOBJECT));
             Node instanceNode = getInstanceOfClass(objectClass, objectId);
             List<ActivityLogEntry> log = new ArrayList<>();
-            int i = 0;
+            //The entries not written yet go first, since they are the most recent ones
+            for (AuditTrailWriter.PendingEntry pendingEntry : auditTrailWriter.getPendingEntries()) {
+                if (objectId.equals(pendingEntry.getObjectId()) && (limit <= 0 || log.size() < limit))
+                    log.add(pendingEntry.toActivityLogEntry(instanceNode.getId()));
+            }
+            int i = log.size();
             for (Relationship rel : instanceNode.getRelationships(RelTypes.HAS_HISTORY_ENTRY)) {
                 if (limit > 0) {
                     if (i < limit)
@@ -2526,87 +2630,166 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
     @Override
     public long getGeneralActivityAuditTrailCount(int page, int limit, HashMap<String, Object> filters) {
         try(Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            long pendingEntries = getPendingGeneralActivityEntries(filters).size();
             HashMap<String, Object> parameters = new HashMap<>();
-            
-            String userFilter;
-            if (filters != null && filters.containsKey("user")) {
-                userFilter = "user.name = {userName}";
-                parameters.put("userName", filters.get("user"));
-            } else
-                userFilter = "true";
-            
-            String typeFilter;
-            if (filters != null && filters.containsKey("type")) {
-                typeFilter = "auditTrailEntry.type = {type}";
-                parameters.put("type", filters.get("type"));
-            } else
-                typeFilter = "true";
-            
-            String query = "MATCH (auditTrailEntry:generalActivityLogs)-[:PERFORMED_BY]->(user) "
-                    + ((filters == null || filters.isEmpty()) ? "" : "WHERE " + userFilter + " AND " + typeFilter)
-                    + " RETURN count(auditTrailEntry) AS count";
+            String query;
+            if (filters == null || (!filters.containsKey("user") && !filters.containsKey("type"))) //NOI18N
+                //Without filters, the total comes straight from the database counters
+                query = "MATCH (auditTrailEntry:generalActivityLogs) RETURN count(auditTrailEntry) AS count"; //NOI18N
+            else {
+                //With filters, counting every match in a large log takes too long, so the count is capped. The grids showing 
+                //the audit trail only need it to size their scroll bars
+                query = "MATCH (auditTrailEntry:generalActivityLogs)-[:PERFORMED_BY]->(user) " //NOI18N
+                        + "WHERE " + buildAuditTrailFilter(filters, parameters) //NOI18N
+                        + " WITH auditTrailEntry LIMIT {maxCount} RETURN count(auditTrailEntry) AS count"; //NOI18N
+                parameters.put("maxCount", MAX_FILTERED_AUDIT_TRAIL_COUNT); //NOI18N
+            }
             
             Result result = connectionManager.getConnectionHandler().execute(query, parameters);
                         
             while (result.hasNext()) {
                 tx.success();
-                return (long) result.next().get("count");
+                return (long) result.next().get("count") + pendingEntries;
             }
-            return 0;
+            return pendingEntries;
         }
     }
     
     @Override
     public List<ActivityLogEntry> getGeneralActivityAuditTrail(int page, int limit, HashMap<String, Object> filters) {        
         try(Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            HashMap<String, Object> parameters = new HashMap<>();
-            
-            String userFilter;
-            if (filters != null && filters.containsKey("user")) {
-                userFilter = "user.name = {userName}";
-                parameters.put("userName", filters.get("user"));
-            } else
-                userFilter = "true";
-            
-            String typeFilter;
-            if (filters != null && filters.containsKey("type")) {
-                typeFilter = "auditTrailEntry.type = {type}";
-                parameters.put("type", filters.get("type"));
+            //The entries not written yet are the most recent ones, so they go before those in the database
+            List<ActivityLogEntry> log = new ArrayList<>();
+            List<AuditTrailWriter.PendingEntry> pendingEntries = getPendingGeneralActivityEntries(filters);
+            boolean paged = page >= 0 && limit >= 0;
+            int offset = 0, pageSize = limit;
+            if (paged) {
+                for (int i = page; i < pendingEntries.size() && log.size() < limit; i++)
+                    log.add(pendingEntries.get(i).toActivityLogEntry(0));
+                offset = Math.max(0, page - pendingEntries.size());
+                pageSize = limit - log.size();
             } else
-                typeFilter = "true";
+                pendingEntries.forEach(pendingEntry -> log.add(pendingEntry.toActivityLogEntry(0)));
             
-            String query = "MATCH (auditTrailEntry:generalActivityLogs)-[:PERFORMED_BY]->(user) "
-                    + ((filters == null || filters.isEmpty()) ? "" : "WHERE " + userFilter + " AND " + typeFilter)
-                    + " RETURN auditTrailEntry, user"
-                    + " ORDER BY auditTrailEntry.creationDate DESC"
-                    + (page >= 0 && limit >= 0 ? " SKIP " + page + " LIMIT " + limit : "");
+            //Instead of skipping all the newer entries, the query continues after the last entry of the previous page, if known. 
+            //That's where the entries created or deleted since then leave it, unlike a number of entries to skip. The entries are 
+            //walked in the order of the index on the creation date, so the log is not sorted as a whole
+            HashMap<String, Object> parameters = new HashMap<>();
+            String filterKey = String.valueOf(filters == null ? null : filters.get("user")) + ":" //NOI18N
+                    + String.valueOf(filters == null ? null : filters.get("type")); //NOI18N
+            AuditTrailCursor cursor = paged ? auditTrailCursors.find(filterKey, offset) : null;
+            long before = cursor == null ? Long.MAX_VALUE : cursor.timestamp;
+            Set<Long> returnedEntries = cursor == null ? Collections.emptySet() : cursor.entries;
+            int skip = cursor == null ? offset : offset - cursor.offset;
+            parameters.put("before", before); //NOI18N
+            //The entries already returned with the cursor creation date come first, since no entry is newer
+            parameters.put("limit", (long) returnedEntries.size() + skip + pageSize); //NOI18N
+            
+            String query = "MATCH (auditTrailEntry:generalActivityLogs)-[:PERFORMED_BY]->(user) " //NOI18N
+                    + "WHERE auditTrailEntry.creationDate <= {before} AND " + buildAuditTrailFilter(filters, parameters) //NOI18N
+                    + " RETURN auditTrailEntry, user" //NOI18N
+                    + " ORDER BY auditTrailEntry.creationDate DESC" //NOI18N
+                    + (paged ? " LIMIT {limit}" : ""); //NOI18N
             
             Result result = connectionManager.getConnectionHandler().execute(query, parameters);
             
-            List<ActivityLogEntry> log = new ArrayList<>();
+            long lastTimestamp = before;
+            Set<Long> entriesAtLastTimestamp = new HashSet<>(returnedEntries);
             while (result.hasNext()) {
                 Map<String, Object> resultEntry = result.next();
                 Node logEntry = (Node)resultEntry.get("auditTrailEntry");
                 Node user = (Node)resultEntry.get("user");
                 
+                long timestamp = (Long)logEntry.getProperty(Constants.PROPERTY_CREATION_DATE);
+                if (timestamp == before && returnedEntries.contains(logEntry.getId()))
+                    continue;
+                if (timestamp != lastTimestamp) {
+                    lastTimestamp = timestamp;
+                    entriesAtLastTimestamp = new HashSet<>();
+                }
+                entriesAtLastTimestamp.add(logEntry.getId());
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                
                 log.add(new ActivityLogEntry(logEntry.getId(), 0, (Integer)logEntry.getProperty(Constants.PROPERTY_TYPE), 
-                        (String)user.getProperty(Constants.PROPERTY_NAME), 
-                        (Long)logEntry.getProperty(Constants.PROPERTY_CREATION_DATE), 
+                        (String)user.getProperty(Constants.PROPERTY_NAME), timestamp, 
                         logEntry.hasProperty(Constants.PROPERTY_AFFECTED_PROPERTY) ? (String)logEntry.getProperty(Constants.PROPERTY_AFFECTED_PROPERTY) : null, 
                         logEntry.hasProperty(Constants.PROPERTY_OLD_VALUE) ? (String)logEntry.getProperty(Constants.PROPERTY_OLD_VALUE) :  null, 
                         logEntry.hasProperty(Constants.PROPERTY_NEW_VALUE) ? (String)logEntry.getProperty(Constants.PROPERTY_NEW_VALUE) : null, 
                         logEntry.hasProperty(Constants.PROPERTY_NOTES) ? (String)logEntry.getProperty(Constants.PROPERTY_NOTES) : null));
             }
             
+            //The next page starts after the last entry returned. Entries with the same creation date are told apart by their ids
+            if (paged) {
+                int fetchedEntries = log.size() - (limit - pageSize);
+                if (offset == 0)
+                    auditTrailCursors.clear(filterKey);
+                if (fetchedEntries > 0)
+                    auditTrailCursors.put(filterKey, new AuditTrailCursor(offset + fetchedEntries, lastTimestamp, entriesAtLastTimestamp));
+            }
+            
             tx.success();
             return log;
         }
     }
     
+    @Override
+    public List<ActivityLogEntry> getArchivedGeneralActivityAuditTrail(long from, long to, int limit, HashMap<String, Object> filters) 
+            throws InvalidArgumentException {
+        try {
+            return auditTrailArchiver.getArchivedEntries(from, to, limit, 
+                    filters == null ? null : (String) filters.get("user"), //NOI18N
+                    filters == null ? null : (Integer) filters.get("type")); //NOI18N
+        } catch (IOException ex) {
+            throw new InvalidArgumentException(String.format("The audit trail archive could not be read: %s", ex.getLocalizedMessage()));
+        }
+    }
+    
+    /**
+     * Builds the condition used to filter the general activity audit trail queries by user and type.
+     * @param filters The filters. The supported keys are "user" (the user name) and "type" (the entry type).
+     * @param parameters The query parameters. The values of the filters are added here.
+     * @return The condition.
+     */
+    private String buildAuditTrailFilter(HashMap<String, Object> filters, HashMap<String, Object> parameters) {
+        String userFilter;
+        if (filters != null && filters.containsKey("user")) {
+            userFilter = "user.name = {userName}";
+            parameters.put("userName", filters.get("user"));
+        } else
+            userFilter = "true";
+        
+        String typeFilter;
+        if (filters != null && filters.containsKey("type")) {
+            typeFilter = "auditTrailEntry.type = {type}";
+            parameters.put("type", filters.get("type"));
+        } else
+            typeFilter = "true";
+        return userFilter + " AND " + typeFilter;
+    }
+    
+    /**
+     * Gets the audit trail entries not written to the database yet that match the filters used to retrieve the general activity audit trail.
+     * @param filters The filters. The supported keys are "user" (the user name) and "type" (the entry type).
+     * @return The matching entries, newest first.
+     */
+    private List<AuditTrailWriter.PendingEntry> getPendingGeneralActivityEntries(HashMap<String, Object> filters) {
+        List<AuditTrailWriter.PendingEntry> pendingEntries = auditTrailWriter.getPendingEntries();
+        if (filters != null) {
+            if (filters.containsKey("user"))
+                pendingEntries.removeIf(pendingEntry -> !Objects.equals(filters.get("user"), pendingEntry.getUserName()));
+            if (filters.containsKey("type"))
+                pendingEntries.removeIf(pendingEntry -> !Objects.equals(filters.get("type"), pendingEntry.getType()));
+        }
+        return pendingEntries;
+    }
+    
     @Override
     public void validateCall(String methodName, String ipAddress, String sessionId)
             throws NotAuthorizedException {
-        Session aSession = sessions.get(sessionId);
+        Session aSession = sessions.touch(sessionId);
         
         if(aSession == null) {
             NotAuthorizedException ex = new NotAuthorizedException(ts.getTranslatedString(KEY_PREFIX + ".17"));
@@ -2666,16 +2849,10 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             if (passwordEnconder.matches(password, (String)userNode.getProperty(Constants.PROPERTY_PASSWORD))) {
                 UserProfile user = Util.createUserProfileWithGroupPrivilegesFromNode(userNode);
 
-                for (Session aSession : sessions.values()) {
-                    if (aSession.getUser().getUserName().equals(userName) 
-                            && aSession.getSessionType() == sessionType) { //Multiple sessions withe the same user are allowed as long as they have a different type (e.g. one mobile session and the other web session)
-                        sessions.remove(aSession.getToken());
-                        break;
-                    }
-                }
-                
+                //Multiple sessions withe the same user are allowed as long as they have a different type (e.g. one mobile session and the other web session), 
+                //so the previous session of the same type, if any, is replaced
                 Session newSession = new Session(user, sessionType);
-                sessions.put(newSession.getToken(), newSession);
+                sessions.add(newSession);
                 cm.putUser(user);
                 
                 createGeneralActivityLogEntry(user.getUserName(), ActivityLogEntry.ACTIVITY_TYPE_OPEN_SESSION, 
@@ -2726,6 +2903,29 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
         }
     }
 
+    /**
+     * Logs in the audit trail the sessions closed because they were idle for too long.
+     * @param session The expired session.
+     */
+    private void sessionExpired(Session session) {
+        try {
+            createGeneralActivityLogEntry(session.getUser().getUserName(), ActivityLogEntry.ACTIVITY_TYPE_CLOSE_SESSION, 
+                    "Session expired");
+        } catch (ApplicationObjectNotFoundException ex) {
+            Logger.getLogger(ApplicationEntityManagerImpl.class.getName()).log(Level.WARNING, 
+                    String.format("[KUWAIBA] [%s] The expiration of the session of user %s could not be logged: %s", //NOI18N
+                            Calendar.getInstance().getTime(), session.getUser().getUserName(), ex.getLocalizedMessage()));
+        }
+    }
+    
+    /**
+     * Stops the sweeper of the idle sessions.
+     */
+    @PreDestroy
+    public void shutdown() {
+        sessions.shutdown();
+    }
+    
     @Override
     public void closeSession(String sessionId) throws NotAuthorizedException {
         Session aSession = sessions.get(sessionId);
@@ -2741,6 +2941,14 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
     @Override
     public void setConfiguration (Properties properties) {
         this.configuration = properties;
+        try {
+            sessions.setIdleTimeout(TimeUnit.MINUTES.toMillis(Long.valueOf(properties.getProperty("sessionIdleTimeout", String.valueOf(DEFAULT_SESSION_IDLE_TIMEOUT))))); //NOI18N
+        } catch (NumberFormatException ex) {
+            Logger.getLogger(ApplicationEntityManagerImpl.class.getName()).log(Level.WARNING, 
+                    String.format("[KUWAIBA] [%s] Invalid session idle timeout, sessions will not expire: %s", //NOI18N
+                            Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+            sessions.setIdleTimeout(TimeUnit.MINUTES.toMillis(DEFAULT_SESSION_IDLE_TIMEOUT));
+        }
     }
 
     @Override
@@ -2751,8 +2959,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
     @Override
     public void createGeneralActivityLogEntry(String userName, int type, String notes) throws ApplicationObjectNotFoundException {
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            Util.createActivityLogEntry(null, userName, type,
-                    Calendar.getInstance().getTimeInMillis(), null, null, null, notes, connectionManager.getConnectionHandler(), ts);
+            auditTrailWriter.log(null, userName, type, Calendar.getInstance().getTimeInMillis(), null, null, null, notes);
             tx.success();        
         }
     }
@@ -2760,9 +2967,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
     @Override
     public void createGeneralActivityLogEntry(String userName, int type, ChangeDescriptor changeDescriptor) throws ApplicationObjectNotFoundException {
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            Util.createActivityLogEntry(null, userName, type,
-                    Calendar.getInstance().getTimeInMillis(), changeDescriptor.getAffectedProperties(), 
-                    changeDescriptor.getOldValues(), changeDescriptor.getNewValues(), changeDescriptor.getNotes(), connectionManager.getConnectionHandler(), ts);
+            auditTrailWriter.log(null, userName, type, Calendar.getInstance().getTimeInMillis(), changeDescriptor.getAffectedProperties(), 
+                    changeDescriptor.getOldValues(), changeDescriptor.getNewValues(), changeDescriptor.getNotes());
 
             tx.success();  
         }
@@ -2777,11 +2983,11 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             if (objectNode == null)
                 throw new BusinessObjectNotFoundException(className, oid);
             
-            Node activityLogEntryNode = Util.createActivityLogEntry(objectNode, userName, type, Calendar.getInstance().getTimeInMillis(), 
-                    affectedProperties, oldValues, newValues, notes, connectionManager.getConnectionHandler(), ts);
+            long activityLogEntryId = auditTrailWriter.log(objectNode, userName, type, Calendar.getInstance().getTimeInMillis(), 
+                    affectedProperties, oldValues, newValues, notes);
 
             tx.success();
-            return activityLogEntryNode.getId();
+            return activityLogEntryId;
         }
     }
     
@@ -2841,6 +3047,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
                 case Constants.PROPERTY_DESCRIPTION:
                 case Constants.PROPERTY_SCRIPT:
                     taskNode.setProperty(propertyName, propertyValue);
+                    scriptCompilationService.invalidate(ScriptCompilationService.SCRIPT_TYPE_TASK, taskId);
                     break;
                 case Constants.PROPERTY_ENABLED:
                 case Constants.PROPERTY_COMMIT_ON_EXECUTE:
@@ -2957,6 +3164,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
                 rel.delete();
             
             taskNode.delete();
+            scriptCompilationService.invalidate(ScriptCompilationService.SCRIPT_TYPE_TASK, taskId);
             tx.success();
         }
     }
@@ -3126,8 +3334,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             environmentParameters.setVariable("connectionHandler", connectionManager.getConnectionHandler()); //NOI18N
             environmentParameters.setVariable("scriptParameters", scriptParameters); //NOI18N
          
-            GroovyShell shell = new GroovyShell(ApplicationEntityManager.class.getClassLoader(), environmentParameters);
-            Object theResult = shell.evaluate(script);
+            Object theResult = scriptCompilationService.evaluate(ScriptCompilationService.SCRIPT_TYPE_TASK, taskId, script, environmentParameters);
 
             if (theResult == null)
                 throw new InvalidArgumentException(ts.getTranslatedString("module.taskman.task.actions.task-script-result-null-object"));
@@ -3225,6 +3432,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             
             tx.success();
             return uuid;
+        } finally {
+            cm.getTemplatePlanIndex().clear();
         }
     }
     
@@ -3280,6 +3489,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             
             tx.success();
             return uuid;
+        } finally {
+            cm.getTemplatePlanIndex().clear();
         }
     }
     
@@ -3343,6 +3554,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             }            
             tx.success();            
             return res;
+        } finally {
+            cm.getTemplatePlanIndex().clear();
         }
     }
         
@@ -3406,6 +3619,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             }
             tx.success();
             return res;
+        } finally {
+            cm.getTemplatePlanIndex().clear();
         }
     }
         
@@ -3471,6 +3686,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             } catch (NotFoundException ex) {
                 throw new ApplicationObjectNotFoundException(String.format("Template object %s of class %s could not be found", templateElementId, templateElementClass));
             }
+        } finally {
+            cm.getTemplatePlanIndex().clear();
         }
     }
 
@@ -3492,6 +3709,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             return new ChangeDescriptor("", "", "", String.format("Deleted template element %s [%s]", templateObjectName, templateElementClass));
         } catch (NotFoundException ex) {
             throw new ApplicationObjectNotFoundException(String.format("Template object %s of class %s could not be found", templateElementId, templateElementClass));
+        } finally {
+            cm.getTemplatePlanIndex().clear();
         }
     }
 
@@ -3609,6 +3828,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             }
             tx.success();
             return newTemplateElements;
+        } finally {
+            cm.getTemplatePlanIndex().clear();
         }
     }
     
@@ -3630,6 +3851,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             }
             tx.success();
             return newTemplateSpecialElements;
+        } finally {
+            cm.getTemplatePlanIndex().clear();
         }
     }
     
@@ -3820,15 +4043,22 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
         throw new BusinessObjectNotFoundException(className, oid);
     }    
     
-    public void deletePool(Node poolNode) throws OperationNotPermittedException {
+    /**
+     * Deletes recursively a pool and its contents. Note that the transaction should be handled by the caller
+     * @param poolNode The pool to be deleted
+     * @param releasedContents The hashes of the contents of the deleted attachments are added here, so they can be 
+     * deleted once the transaction is committed if no other attachment uses them
+     * @throws OperationNotPermittedException If any of the objects in the pool can not be deleted
+     */
+    public void deletePool(Node poolNode, List<String> releasedContents) throws OperationNotPermittedException {
         
         for (Relationship containmentRelationship : poolNode.getRelationships(Direction.INCOMING, RelTypes.CHILD_OF_SPECIAL)) {
                 //A pool may have inventory objects as children or other pools
                 Node child = containmentRelationship.getStartNode();
                 if (child.hasRelationship(RelTypes.INSTANCE_OF)) //It's an inventory object
-                    deleteObject(child, false);
+                    deleteObject(child, false, releasedContents);
                 else
-                    deletePool(child); //Although making deletePool to receive a node as argument would be more efficient,
+                    deletePool(child, releasedContents); //Although making deletePool to receive a node as argument would be more efficient,
                                                //the impact is not that much since the number of pools is expected to be low
             }
             
@@ -4117,39 +4347,53 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
     @Override
     public long attachFileToListTypeItem(String name, String tags, byte[] file, String listTypeItemClass, String listTypeItemId) 
             throws BusinessObjectNotFoundException, OperationNotPermittedException, MetadataObjectNotFoundException, InvalidArgumentException {
+        return attachFileToListTypeItem(name, tags, new ByteArrayInputStream(file), listTypeItemClass, listTypeItemId);
+    }
+    
+    @Override
+    public long attachFileToListTypeItem(String name, String tags, InputStream file, String listTypeItemClass, String listTypeItemId) 
+            throws BusinessObjectNotFoundException, OperationNotPermittedException, MetadataObjectNotFoundException, InvalidArgumentException {
         
         float maxAttachmentSize = Float.valueOf(configuration.getProperty("maxAttachmentSize", DEFAULT_MAX_ATTACHMENT_SIZE)) * 1048576; // Default maxSize value is 10MB
         
-        String attachmentsPath = configuration.getProperty("attachmentsPath", DEFAULT_ATTACHMENTS_PATH);
-        
-        if (!Files.exists(Paths.get(attachmentsPath)))
-            throw new InvalidArgumentException(String.format(ts.getTranslatedString("module.general.messages.invalid-path"), attachmentsPath));
-            
-        if (file.length > maxAttachmentSize)
-            throw new InvalidArgumentException(String.format("The file size exceeds the maximum size allowed (%s MB)", maxAttachmentSize));
+        if (!Files.exists(attachmentStore.getAttachmentsPath()))
+            throw new InvalidArgumentException(String.format(ts.getTranslatedString("module.general.messages.invalid-path"), attachmentStore.getAttachmentsPath()));
         
         if (name == null || name.trim().isEmpty())
             throw new InvalidArgumentException("The file name can not be an empty string");
         
-        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            Node listTypeItemNode = getListTypeItemNode(listTypeItemId, listTypeItemClass);  
-            
-            Node fileObjectNode = connectionManager.getConnectionHandler().createNode(Label.label(Constants.LABEL_ATTACHMENTS));
-            fileObjectNode.setProperty(Constants.PROPERTY_CREATION_DATE, Calendar.getInstance().getTimeInMillis());
-            fileObjectNode.setProperty(Constants.PROPERTY_NAME, name);
-            fileObjectNode.setProperty(Constants.PROPERTY_TAGS, tags == null ? "" : tags);
+        AttachmentStore.StoredContent content;
+        try {
+            content = attachmentStore.store(file, (long) maxAttachmentSize);
+        } catch (AttachmentStore.ContentTooLargeException ex) {
+            throw new InvalidArgumentException(ex.getMessage());
+        } catch (IOException ex) {
+            throw new OperationNotPermittedException(ex.getMessage());
+        }
+        
+        long fileObjectId;
+        boolean committed = false; //Set only once the attachment is committed
+        try {
+            try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                Node listTypeItemNode = getListTypeItemNode(listTypeItemId, listTypeItemClass);  
             
-            Relationship hasAttachmentRelationship = listTypeItemNode.createRelationshipTo(fileObjectNode, RelTypes.HAS_ATTACHMENT);
-            hasAttachmentRelationship.setProperty(Constants.PROPERTY_NAME, "attachments");
+                Node fileObjectNode = connectionManager.getConnectionHandler().createNode(Label.label(Constants.LABEL_ATTACHMENTS));
+                fileObjectNode.setProperty(Constants.PROPERTY_CREATION_DATE, Calendar.getInstance().getTimeInMillis());
+                fileObjectNode.setProperty(Constants.PROPERTY_NAME, name);
+                fileObjectNode.setProperty(Constants.PROPERTY_TAGS, tags == null ? "" : tags);
+                attachmentStore.setContent(fileObjectNode, content);
             
-            String fileName = listTypeItemNode.getProperty(Constants.PROPERTY_UUID) + "_" + fileObjectNode.getId();
-            Util.saveFile(attachmentsPath, fileName, file);
+                Relationship hasAttachmentRelationship = listTypeItemNode.createRelationshipTo(fileObjectNode, RelTypes.HAS_ATTACHMENT);
+                hasAttachmentRelationship.setProperty(Constants.PROPERTY_NAME, "attachments");
             
-            tx.success();
-            return fileObjectNode.getId();
-        } catch(IOException ex) {
-            throw new OperationNotPermittedException(ex.getMessage());
+                tx.success();
+                fileObjectId = fileObjectNode.getId();
+            }
+            committed = true;
+        } finally {
+            attachmentStore.release(content, committed);
         }
+        return fileObjectId;
     }
 
     @Override
@@ -4169,19 +4413,26 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
 
     @Override
     public FileObject getFile(long fileObjectId, String className, String objectId) throws BusinessObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException {
+        FileObjectContent content = getFileContent(fileObjectId, className, objectId);
+        try {
+            ByteArrayOutputStream file = new ByteArrayOutputStream((int) Math.min(content.getSize(), Integer.MAX_VALUE));
+            content.transferTo(Channels.newChannel(file));
+            return new FileObject(fileObjectId, content.getName(), content.getTags(), content.getCreationDate(), file.toByteArray());
+        } catch(IOException ex) {
+            throw new InvalidArgumentException(String.format("File with id %s could not be retrieved: %s", fileObjectId, ex.getMessage()));
+        }
+    }
+    
+    @Override
+    public FileObjectContent getFileContent(long fileObjectId, String className, String objectId) throws BusinessObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException {
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             Node objectNode = getListTypeItemNode(objectId, className);
 
             for (Relationship fileObjectRelationship : objectNode.getRelationships(RelTypes.HAS_ATTACHMENT, Direction.OUTGOING)) {
                 if (fileObjectRelationship.getEndNode().getId() == fileObjectId) {
-                    String fileName = objectNode.getProperty(Constants.PROPERTY_UUID) + "_" + fileObjectId;
                     try {
-                        byte[] background = Util.readBytesFromFile(configuration.getProperty("attachmentsPath", DEFAULT_ATTACHMENTS_PATH) + "/" + fileName);
-                        return new FileObject(fileObjectId, (String)fileObjectRelationship.getEndNode().getProperty(Constants.PROPERTY_NAME), 
-                                                    (String)fileObjectRelationship.getEndNode().getProperty(Constants.PROPERTY_TAGS), 
-                                                    (long)fileObjectRelationship.getEndNode().getProperty(Constants.PROPERTY_CREATION_DATE), 
-                                                    background);
-                    }catch(IOException ex) {
+                        return attachmentStore.getContent(fileObjectRelationship.getEndNode(), (String) objectNode.getProperty(Constants.PROPERTY_UUID));
+                    } catch(IOException ex) {
                         throw new InvalidArgumentException(String.format("File with id %s could not be retrieved: %s", fileObjectId, ex.getMessage()));
                     }
                 }
@@ -4193,27 +4444,29 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
     @Override
     public void detachFileFromListTypeItem(long fileObjectId, String className, String objectId) 
             throws BusinessObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException {
+        String contentHash = null;
+        boolean found = false;
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             Node objectNode = getListTypeItemNode(objectId, className);
 
             for (Relationship fileObjectRelationship : objectNode.getRelationships(RelTypes.HAS_ATTACHMENT, Direction.OUTGOING)) {
                 if (fileObjectRelationship.getEndNode().getId() == fileObjectId) {
+                    Node fileObjectNode = fileObjectRelationship.getEndNode();
                     fileObjectRelationship.delete();
-                    fileObjectRelationship.getEndNode().delete();
-                    
-                    try {
-                        String fileName = objectNode.getProperty(Constants.PROPERTY_UUID) + "_" + fileObjectId;
-                        new File(configuration.getProperty("attachmentsPath", DEFAULT_ATTACHMENTS_PATH) + File.separator + fileName).delete();
-                    } catch(Exception ex) {
-                        throw new InvalidArgumentException(String.format("File with id %s could not be retrieved: %s", fileObjectId, ex.getMessage()));
-                    }
+                    contentHash = attachmentStore.deleteContent(fileObjectNode, (String) objectNode.getProperty(Constants.PROPERTY_UUID));
+                    fileObjectNode.delete();
                     tx.success();
-                    return;
+                    found = true;
+                    break;
                 }
             }
             
-            throw new InvalidArgumentException(String.format("The file with id %s could not be found", fileObjectId));
+            if (!found)
+                throw new InvalidArgumentException(String.format("The file with id %s could not be found", fileObjectId));
         }
+        //The contents can only be deleted once the attachment is gone
+        if (contentHash != null)
+            attachmentStore.deleteIfUnused(contentHash);
     }
     
     @Override
@@ -4591,6 +4844,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
 
     @Override
     public void deleteProcessInstance(String processInstanceId) throws OperationNotPermittedException {
+        List<String> releasedContents = new ArrayList<>();
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             Node processInstanceNode = Util.findNodeByLabelAndUuid(connectionManager.getConnectionHandler(), processInstanceLabel, processInstanceId);
                         
@@ -4598,7 +4852,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
                 
                 Node startNode = rel.getStartNode();
                 rel.delete();
-                deleteObject(startNode, false);
+                deleteObject(startNode, false, releasedContents);
             }
             processInstanceNode.delete();
             
@@ -4606,6 +4860,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
         } catch(Exception ex) {
              throw new OperationNotPermittedException("Cannot delete process instance, because it still has relationships");
         }
+        //The contents of the attachments can only be deleted once the attachments are gone
+        releasedContents.forEach(attachmentStore::deleteIfUnused);
     }
     //</editor-fold>
     
@@ -5103,8 +5359,10 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
                 validatorDefinitionNode.setProperty(Constants.PROPERTY_CLASSNAME, classToBeApplied);
             }
             
-            if (script != null)
+            if (script != null) {
                 validatorDefinitionNode.setProperty(Constants.PROPERTY_SCRIPT, script);
+                scriptCompilationService.invalidate(ScriptCompilationService.SCRIPT_TYPE_VALIDATOR_DEFINITION, validatorDefinitionId);
+            }
             
             if (enabled != null)
                 validatorDefinitionNode.setProperty(Constants.PROPERTY_ENABLED, enabled);
@@ -5173,8 +5431,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
                     try {
                         if ((boolean)aValidatorDefinitionNode.getProperty(Constants.PROPERTY_ENABLED) && 
                                 mem.isSubclassOf((String)aValidatorDefinitionNode.getProperty(Constants.PROPERTY_CLASSNAME), objectClass)) {
-                            GroovyShell shell = new GroovyShell(ApplicationEntityManager.class.getClassLoader(), environmentParameters);
-                            Object theResult = shell.evaluate(script);
+                            Object theResult = scriptCompilationService.evaluate(ScriptCompilationService.SCRIPT_TYPE_VALIDATOR_DEFINITION, 
+                                    aValidatorDefinitionNode.getId(), script, environmentParameters);
 
                             if (theResult instanceof Validator) //The script must return a validator, otherwise, the result will be ignored
                                 res.add((Validator)theResult);
@@ -5199,6 +5457,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
                         String.format(ts.getTranslatedString("module.configman.validators.validator-id-not-found"), validatorDefinitionId));
             
             validatorDefinitionNode.delete();
+            scriptCompilationService.invalidate(ScriptCompilationService.SCRIPT_TYPE_VALIDATOR_DEFINITION, validatorDefinitionId);
             
             //While not entirely efficient, this will clear all cached validator definitions to prevent that a validator definition 
             //associated to a super class is missed by the caching system
@@ -5402,15 +5661,17 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
      * Deletes recursively and object and all its children. Note that the transaction should be handled by the caller
      * @param instance The object to be deleted
      * @param unsafeDeletion True if you want the object to be deleted no matter if it has RELATED_TO, HAS_PROCESS_INSTANCE or RELATED_TO_SPECIAL relationships
+     * @param releasedContents The hashes of the contents of the deleted attachments are added here, so they can be 
+     * deleted once the transaction is committed if no other attachment uses them
      * @throws org.kuwaiba.apis.persistence.exceptions.OperationNotPermittedException If the object already has relationships
      */
-    private void deleteObject(Node instance, boolean unsafeDeletion) throws OperationNotPermittedException {
+    private void deleteObject(Node instance, boolean unsafeDeletion, List<String> releasedContents) throws OperationNotPermittedException {
         if(!unsafeDeletion && instance.hasRelationship(RelTypes.RELATED_TO_SPECIAL, RelTypes.HAS_PROCESS_INSTANCE)) 
             throw new OperationNotPermittedException(String.format("The object with %s (%s) can not be deleted since it has relationships", 
                     instance.getProperty(Constants.PROPERTY_NAME), instance.getProperty(Constants.PROPERTY_UUID)));
         
         for (Relationship rel : instance.getRelationships(Direction.INCOMING, RelTypes.CHILD_OF, RelTypes.CHILD_OF_SPECIAL))
-            deleteObject(rel.getStartNode(), unsafeDeletion);
+            deleteObject(rel.getStartNode(), unsafeDeletion, releasedContents);
         
         // Searches the related views to delete the nodes in the data base       
         for (Relationship aHasViewRelationship : instance.getRelationships(RelTypes.HAS_VIEW)) {
@@ -5431,15 +5692,9 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             Node attachmentNode = aHasAttachmentRelationship.getEndNode();
             aHasAttachmentRelationship.delete();
             
-            String fileName = instance.getProperty(Constants.PROPERTY_UUID) + "_" + attachmentNode.getId(); //NOI18N
-            try {
-                Files.deleteIfExists(Paths.get(fileName));
-                File fileToBeDeleted = new File(fileName);
-                fileToBeDeleted.delete();
-            } catch (IOException ex) {
-                System.out.println(String.format("[KUWAIBA] [%s] An error occurred while deleting attachment %s for object %s (%s)", 
-                        Calendar.getInstance().getTime(), fileName, instance.getProperty(Constants.PROPERTY_NAME), instance.getId()));
-            }
+            String contentHash = attachmentStore.deleteContent(attachmentNode, (String) instance.getProperty(Constants.PROPERTY_UUID));
+            if (contentHash != null)
+                releasedContents.add(contentHash);
             attachmentNode.delete();
         }
         
@@ -6227,6 +6482,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             parameters.put("enabled", enabled);
             ResourceIterator<Node> result = connectionManager.getConnectionHandler().execute(query, parameters).columnAs("n");
             if (result.hasNext()) {
+                scriptCompilationService.invalidate(ScriptCompilationService.SCRIPT_TYPE_SCRIPTED_QUERY, scriptedQueryId);
                 tx.success();
                 return;
             }
@@ -6252,6 +6508,7 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             parameters.put("_uuid", scriptedQueryId);
             QueryStatistics queryStatistics = connectionManager.getConnectionHandler().execute(query, parameters).getQueryStatistics();
             if (queryStatistics.containsUpdates()) {
+                scriptCompilationService.invalidate(ScriptCompilationService.SCRIPT_TYPE_SCRIPTED_QUERY, scriptedQueryId);
                 tx.success();
                 return;
             }
@@ -6355,8 +6612,8 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
             sharedData.setVariable("connectionHandler", connectionManager.getConnectionHandler()); //NOI18N
             sharedData.setVariable("scriptParameters", scriptParameters); //NOI18N
             
-            GroovyShell shell = new GroovyShell(ApplicationEntityManager.class.getClassLoader(), sharedData);
-            Object result = shell.evaluate(scriptedQuery.getScript());
+            Object result = scriptCompilationService.evaluate(ScriptCompilationService.SCRIPT_TYPE_SCRIPTED_QUERY, 
+                    scriptedQuery.getId(), scriptedQuery.getScript(), sharedData);
             
             if (result == null)
                 throw new InvalidArgumentException(ts.getTranslatedString("apis.persistence.aem.messages.null-scripted-query-result"));
@@ -6516,4 +6773,78 @@ public class ApplicationEntityManagerImpl implements ApplicationEntityManager {
         }
     }
     //</editor-fold>
+    
+    /**
+     * Where a page of the general activity audit trail ends: the position of the next entry, the creation date of the 
+     * last entry returned, and the ids of the entries with that creation date returned so far.
+     */
+    private static class AuditTrailCursor {
+        private final int offset;
+        private final long timestamp;
+        private final Set<Long> entries;
+
+        public AuditTrailCursor(int offset, long timestamp, Set<Long> entries) {
+            this.offset = offset;
+            this.timestamp = timestamp;
+            this.entries = entries;
+        }
+    }
+    
+    /**
+     * The cursors of the pages of the general activity audit trail retrieved recently. They are grouped by the filters 
+     * used, and only the cursors of the most recently used filters are kept.
+     */
+    private static class AuditTrailCursors {
+        /**
+         * Max number of filter combinations whose cursors are kept.
+         */
+        private static final int MAX_FILTERS = 32;
+        /**
+         * Max number of cursors kept per filter combination.
+         */
+        private static final int MAX_CURSORS = 1000;
+        /**
+         * The cursors by filter combination. The cursors are sorted by offset.
+         */
+        private final LinkedHashMap<String, TreeMap<Integer, AuditTrailCursor>> cursors;
+
+        public AuditTrailCursors() {
+            this.cursors = new LinkedHashMap<String, TreeMap<Integer, AuditTrailCursor>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TreeMap<Integer, AuditTrailCursor>> eldest) {
+                    return size() > MAX_FILTERS;
+                }
+            };
+        }
+        
+        /**
+         * Finds the closest cursor at or before an offset.
+         * @param filterKey The filter combination.
+         * @param offset The offset.
+         * @return The cursor or null if there's none.
+         */
+        public synchronized AuditTrailCursor find(String filterKey, int offset) {
+            TreeMap<Integer, AuditTrailCursor> cursorsByOffset = cursors.get(filterKey);
+            if (cursorsByOffset == null)
+                return null;
+            Map.Entry<Integer, AuditTrailCursor> cursor = cursorsByOffset.floorEntry(offset);
+            return cursor == null ? null : cursor.getValue();
+        }
+        
+        public synchronized void put(String filterKey, AuditTrailCursor cursor) {
+            TreeMap<Integer, AuditTrailCursor> cursorsByOffset = cursors.computeIfAbsent(filterKey, key -> new TreeMap<>());
+            if (cursorsByOffset.size() >= MAX_CURSORS)
+                cursorsByOffset.clear();
+            cursorsByOffset.put(cursor.offset, cursor);
+        }
+        
+        /**
+         * Forgets the cursors of a filter combination. Called when the first page is retrieved again, since the entries 
+         * created or deleted in the meantime move the rest.
+         * @param filterKey The filter combination.
+         */
+        public synchronized void clear(String filterKey) {
+            cursors.remove(filterKey);
+        }
+    }
 }
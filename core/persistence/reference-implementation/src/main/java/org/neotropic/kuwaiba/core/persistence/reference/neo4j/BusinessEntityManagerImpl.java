@@ -20,17 +20,23 @@ import org.neotropic.kuwaiba.core.apis.persistence.ChangeDescriptor;
 import org.neotropic.kuwaiba.core.apis.persistence.ConnectionManager;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FileObject;
+import org.neotropic.kuwaiba.core.apis.persistence.application.FileObjectContent;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FileObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.application.InventoryObjectPool;
+import org.neotropic.kuwaiba.core.apis.persistence.application.Validator;
 import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.InventoryReport;
 import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.ReportMetadata;
 import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.ReportMetadataLight;
 import org.neotropic.kuwaiba.core.apis.persistence.business.AnnotatedBusinessObjectLight;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BulkCreationResult;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObject;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectChangeListener;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLightList;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLightPage;
 import org.neotropic.kuwaiba.core.apis.persistence.business.Contact;
+import org.neotropic.kuwaiba.core.apis.persistence.business.LocatedBusinessObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.ApplicationObjectNotFoundException;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.BusinessObjectNotFoundException;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
@@ -42,24 +48,34 @@ import org.neotropic.kuwaiba.core.apis.persistence.metadata.MetadataEntityManage
 import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.apis.persistence.util.StringPair;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
-import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
@@ -70,14 +86,28 @@ import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
 import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ActivityLogEntry;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
+import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.AncestorPathIndex;
+import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.AncestorPathInvalidationHandler;
+import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.CacheInvalidationHandler;
 import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.CacheManager;
+import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.TemplateInstantiationPlan;
+import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.TemplatePlanIndex;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.AttachmentStore;
 import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.ObjectGraphMappingService;
 import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.Util;
 import org.neotropic.kuwaiba.core.persistence.reference.naming.util.DynamicNameGenerator;
 import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.PortUtilityService;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.BusinessObjectChangeNotifier;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.QueryCatalog;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.ScriptCompilationService;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.SearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -88,10 +118,143 @@ import org.springframework.stereotype.Service;
 @Service
 public class BusinessEntityManagerImpl implements BusinessEntityManager {
     /**
-     * Default attachment location.
+     * Default max attachment size in MB.
      */
-    private static final String DEFAULT_ATTACHMENTS_PATH = "/data/files/attachments";
     private static final String DEFAULT_MAX_ATTACHMENT_SIZE = "10";
+    /**
+     * Default validator evaluation mode.
+     */
+    private static final String DEFAULT_VALIDATOR_EVALUATION_MODE = "EAGER";
+    /**
+     * Default number of objects committed at once during a bulk creation.
+     */
+    private static final int DEFAULT_BULK_CREATION_CHUNK_SIZE = 500;
+    /**
+     * How long (in seconds) to wait for the schema indexes to come online during the start up.
+     */
+    private static final int SCHEMA_INDEX_ONLINE_TIMEOUT = 300;
+    //<editor-fold desc="Catalogued statements" defaultstate="collapsed">
+    private static final QueryCatalog.Statement QUERY_OBJECTS_WITH_FILTER = QueryCatalog.declare("bem.objectsWithFilter", //NOI18N
+            "MATCH (subclass:classes {name: $className})<-[:EXTENDS*0..]-(:classes)<-[:INSTANCE_OF]-(object:inventoryObjects) " //NOI18N
+            + "WHERE object[$filterName] = $filterValue OR (object)-[:RELATED_TO {name: $filterName}]->(:listTypeItems {name: $filterValue}) " //NOI18N
+            + "RETURN DISTINCT object", //NOI18N
+            "className", "", "filterName", "", "filterValue", ""); //NOI18N
+    private static final QueryCatalog.PagedStatement QUERY_SUGGESTED_OBJECTS = QueryCatalog.declarePaged("bem.suggestedObjects", //NOI18N
+            "MATCH (object:inventoryObjects)-[:INSTANCE_OF]->(class) " //NOI18N
+            + "WHERE toLower(object.name) CONTAINS toLower($searchString) OR toLower(class.name) CONTAINS toLower($searchString) " //NOI18N
+            + "OR toLower(class.displayName) CONTAINS toLower($searchString) " //NOI18N
+            + "RETURN object.name AS oname, object._uuid AS oid, class.name AS cname, class.displayName AS cdisplay " //NOI18N
+            + "ORDER BY object.name ASC", //NOI18N
+            "searchString", ""); //NOI18N
+    private static final QueryCatalog.PagedStatement QUERY_SUGGESTED_OBJECTS_OF_SUPERCLASS = QueryCatalog.declarePaged("bem.suggestedObjectsOfSuperclass", //NOI18N
+            "MATCH (object:inventoryObjects)-[:INSTANCE_OF]->(class)-[:EXTENDS*0..]->(superclass) " //NOI18N
+            + "WHERE (toLower(object.name) CONTAINS toLower($searchString) OR toLower(class.name) CONTAINS toLower($searchString) " //NOI18N
+            + "OR toLower(class.displayName) CONTAINS toLower($searchString)) AND superclass.name = $superclass " //NOI18N
+            + "RETURN object.name AS oname, object._uuid AS oid, class.name AS cname, class.displayName AS cdisplay " //NOI18N
+            + "ORDER BY object.name ASC", //NOI18N
+            "searchString", "", "superclass", ""); //NOI18N
+    private static final QueryCatalog.PagedStatement QUERY_SUGGESTED_OBJECTS_OF_CLASSES = QueryCatalog.declarePaged("bem.suggestedObjectsOfClasses", //NOI18N
+            "MATCH (child:inventoryObjects)-[:INSTANCE_OF]->(childClass:classes)-[:EXTENDS*0..]->(childParentClass:classes) " //NOI18N
+            + "WHERE (toLower(child.name) CONTAINS toLower($filter) OR toLower(childClass.name) CONTAINS toLower($filter) " //NOI18N
+            + "OR toLower(childClass.displayName) CONTAINS toLower($filter)) " //NOI18N
+            + "AND (size($classes) = 0 OR childParentClass.name IN $classes) " //NOI18N
+            + "RETURN DISTINCT child ORDER BY child.name", //NOI18N
+            "filter", "", "classes", Collections.emptyList()); //NOI18N
+    private static final QueryCatalog.PagedStatement QUERY_OBJECTS_BY_NAME = QueryCatalog.declarePaged("bem.objectsByName", //NOI18N
+            "MATCH (child:inventoryObjects)-[:INSTANCE_OF]->(childClass:classes)-[:EXTENDS*0..]->(childParentClass:classes) " //NOI18N
+            + "WHERE child.name IN $names AND (size($classes) = 0 OR childParentClass.name IN $classes) " //NOI18N
+            + "RETURN DISTINCT child ORDER BY child.name", //NOI18N
+            "names", Collections.emptyList(), "classes", Collections.emptyList()); //NOI18N
+    private static final QueryCatalog.PagedStatement QUERY_SUGGESTED_CHILDREN = QueryCatalog.declarePaged("bem.suggestedChildren", //NOI18N
+            "MATCH (parentClass:classes {name: $parentClass})<-[:INSTANCE_OF]-(parent:inventoryObjects {_uuid: $parentId})" //NOI18N
+            + "<-[:CHILD_OF|CHILD_OF_SPECIAL]-(child:inventoryObjects)-[:INSTANCE_OF]->(childClass:classes)-[:EXTENDS*0..]->(childParentClass:classes) " //NOI18N
+            + "WHERE (toLower(child.name) CONTAINS toLower($filter) OR toLower(childClass.name) CONTAINS toLower($filter)) " //NOI18N
+            + "AND (size($classes) = 0 OR childParentClass.name IN $classes) " //NOI18N
+            + "RETURN DISTINCT child ORDER BY child.name", //NOI18N
+            "parentClass", "", "parentId", "", "filter", "", "classes", Collections.emptyList()); //NOI18N
+    private static final QueryCatalog.PagedStatement QUERY_SUGGESTED_CHILDREN_IGNORING_SPECIAL = QueryCatalog.declarePaged("bem.suggestedChildrenIgnoringSpecial", //NOI18N
+            "MATCH (parentClass:classes {name: $parentClass})<-[:INSTANCE_OF]-(parent:inventoryObjects {_uuid: $parentId})" //NOI18N
+            + "<-[:CHILD_OF]-(child:inventoryObjects)-[:INSTANCE_OF]->(childClass:classes)-[:EXTENDS*0..]->(childParentClass:classes) " //NOI18N
+            + "WHERE (toLower(child.name) CONTAINS toLower($filter) OR toLower(childClass.name) CONTAINS toLower($filter)) " //NOI18N
+            + "AND (size($classes) = 0 OR childParentClass.name IN $classes) " //NOI18N
+            + "RETURN DISTINCT child ORDER BY child.name", //NOI18N
+            "parentClass", "", "parentId", "", "filter", "", "classes", Collections.emptyList()); //NOI18N
+    private static final QueryCatalog.Statement QUERY_FILES_FROM_RELATED_LIST_TYPE_ITEMS = QueryCatalog.declare("bem.filesFromRelatedListTypeItems", //NOI18N
+            "MATCH (object:inventoryObjects {_uuid: $uuid})-[:RELATED_TO]->(listTypeItem)-[:HAS_ATTACHMENT]->(file), " //NOI18N
+            + "(listTypeItem)-[:INSTANCE_OF]->(modelClass:classes) " //NOI18N
+            + "RETURN DISTINCT listTypeItem._uuid AS ltiId, listTypeItem.name AS ltiName, modelClass.name AS modelClassName, " //NOI18N
+            + "modelClass.displayName AS modelClassDisplayName, file", //NOI18N
+            "uuid", ""); //NOI18N
+    private static final QueryCatalog.Statement QUERY_ROUTES_THROUGH_SPECIAL_RELATIONSHIPS = QueryCatalog.declare("bem.routesThroughSpecialRelationships", //NOI18N
+            "MATCH path = (a:inventoryObjects {_uuid: $objectAId})-[:RELATED_TO_SPECIAL*1..30 {name: $relationshipName}]-(b:inventoryObjects {_uuid: $objectBId}) " //NOI18N
+            + "RETURN nodes(path) AS path LIMIT $limit", //NOI18N
+            "objectAId", "", "objectBId", "", "relationshipName", "", "limit", 0L); //NOI18N
+    private static final QueryCatalog.Statement QUERY_SPECIAL_ATTRIBUTE_OF_OBJECTS = QueryCatalog.declare("bem.specialAttributeOfObjects", //NOI18N
+            "UNWIND $objectIds AS objectId " //NOI18N
+            + "MATCH (object:inventoryObjects {_uuid: objectId})-[:RELATED_TO_SPECIAL {name: $specialAttributeName}]-(related) " //NOI18N
+            + "RETURN objectId, related", //NOI18N
+            "objectIds", Collections.emptyList(), "specialAttributeName", ""); //NOI18N
+    private static final QueryCatalog.Statement QUERY_WAREHOUSES_IN_OBJECT = QueryCatalog.declare("bem.warehousesInObject", //NOI18N
+            "MATCH (warehouse:inventoryObjects)-[:RELATED_TO_SPECIAL {name: 'warehouseHas'}]-(child:inventoryObjects)" //NOI18N
+            + "-[:CHILD_OF*]->(parent:inventoryObjects {_uuid: $objectId})-[:INSTANCE_OF]->(class:classes {name: $className}) " //NOI18N
+            + "RETURN warehouse", //NOI18N
+            "objectId", "", "className", ""); //NOI18N
+    private static final QueryCatalog.Statement QUERY_WAREHOUSES_TO_OBJECT = QueryCatalog.declare("bem.warehousesToObject", //NOI18N
+            "MATCH (class:classes {name: $className})<-[:INSTANCE_OF]-(inventoryObject:inventoryObjects {_uuid: $objectId})" //NOI18N
+            + "-[:CHILD_OF_SPECIAL {name: 'pool'}]->(pool)-[:CHILD_OF_SPECIAL {name: 'pool'}]->(warehouse) " //NOI18N
+            + "RETURN warehouse", //NOI18N
+            "objectId", "", "className", ""); //NOI18N
+    private static final QueryCatalog.Statement QUERY_PHYSICAL_NODES_TO_OBJECT_IN_WAREHOUSE = QueryCatalog.declare("bem.physicalNodesToObjectInWarehouse", //NOI18N
+            "MATCH (class:classes {name: $className})<-[:INSTANCE_OF]-(inventoryObject:inventoryObjects {_uuid: $objectId})" //NOI18N
+            + "-[:CHILD_OF_SPECIAL {name: 'pool'}]->(pool)-[:CHILD_OF_SPECIAL {name: 'pool'}]->(warehouse)" //NOI18N
+            + "-[:RELATED_TO_SPECIAL {name: 'warehouseHas'}]->(physicalNode) " //NOI18N
+            + "RETURN physicalNode", //NOI18N
+            "objectId", "", "className", ""); //NOI18N
+    private static final QueryCatalog.Statement QUERY_CLASS_REPORTS = QueryCatalog.declare("bem.classReports", //NOI18N
+            "MATCH (theReport:reports)<-[:HAS_REPORT]-(aClass) " //NOI18N
+            + "WHERE aClass.name = $className AND ($includeDisabled OR theReport.enabled = true) " //NOI18N
+            + "RETURN theReport ORDER BY theReport.name ASC", //NOI18N
+            "className", "", "includeDisabled", false); //NOI18N
+    private static final QueryCatalog.Statement QUERY_CLASS_REPORTS_RECURSIVE = QueryCatalog.declare("bem.classReportsRecursive", //NOI18N
+            "MATCH (theClass:classes)-[:EXTENDS*]->(aSuperClass) WHERE aSuperClass.name = $className OR theClass.name = $className " //NOI18N
+            + "WITH collect(theClass) + collect(aSuperClass) AS res UNWIND res AS nodes " //NOI18N
+            + "MATCH (theReport:reports)<-[:HAS_REPORT]-(aClass) " //NOI18N
+            + "WHERE aClass.name = nodes.name AND ($includeDisabled OR theReport.enabled = true) " //NOI18N
+            + "RETURN DISTINCT theReport ORDER BY theReport.name ASC", //NOI18N
+            "className", "", "includeDisabled", false); //NOI18N
+    private static final QueryCatalog.Statement QUERY_ANCESTORS = QueryCatalog.declare("bem.ancestors", //NOI18N
+            "MATCH (n)-[:CHILD_OF|CHILD_OF_SPECIAL*]->(m) WHERE n._uuid = $oid RETURN m AS parents", //NOI18N
+            "oid", ""); //NOI18N
+    private static final QueryCatalog.Statement QUERY_ANCESTORS_BY_NODE_ID = QueryCatalog.declare("bem.ancestorsByNodeId", //NOI18N
+            "MATCH (n)-[:CHILD_OF|CHILD_OF_SPECIAL*]->(m) WHERE id(n) = $nodeId RETURN m AS parents", //NOI18N
+            "nodeId", 0L); //NOI18N
+    private static final QueryCatalog.PagedStatement QUERY_SUGGESTED_OBJECTS_GROUPED_BY_CLASS = QueryCatalog.declarePaged("bem.suggestedObjectsGroupedByClass", //NOI18N
+            "MATCH (object:inventoryObjects)-[:INSTANCE_OF]->(class:classes) " //NOI18N
+            + "WHERE toLower(class.name) CONTAINS toLower($searchString) OR toLower(class.displayName) CONTAINS toLower($searchString) " //NOI18N
+            + "OR toLower(object.name) CONTAINS toLower($searchString) " //NOI18N
+            + "RETURN class {.name, .displayName, objects: collect(DISTINCT object {.name, ._uuid})[$objectSkip..$objectLimit]} " //NOI18N
+            + "ORDER BY class.name ASC", //NOI18N
+            "searchString", "", "objectSkip", 0L, "objectLimit", 0L); //NOI18N
+    private static final QueryCatalog.PagedStatement QUERY_SUGGESTED_OBJECTS_GROUPED_BY_CLASS_OF_CLASSES = QueryCatalog.declarePaged("bem.suggestedObjectsGroupedByClassOfClasses", //NOI18N
+            // The classes are also compared with the parent classes in case a generic class name was provided
+            "MATCH (class:classes)-[:EXTENDS*]->(pclass:classes) WHERE class.name IN $classes OR pclass.name IN $classes " //NOI18N
+            + "WITH class MATCH (object:inventoryObjects)-[:INSTANCE_OF]->(class:classes) " //NOI18N
+            + "WHERE toLower(object.name) CONTAINS toLower($searchString) " //NOI18N
+            + "WITH class, collect(DISTINCT object)[$objectSkip..$objectLimit] AS objs UNWIND objs AS obj " //NOI18N
+            + "RETURN class {.name, .displayName, objects: collect(obj {.name, ._uuid})} " //NOI18N
+            + "ORDER BY class.name ASC", //NOI18N
+            "classes", Collections.emptyList(), "searchString", "", "objectSkip", 0L, "objectLimit", 0L); //NOI18N
+    private static final QueryCatalog.PagedStatement QUERY_SUGGESTED_POOLS = QueryCatalog.declarePaged("bem.suggestedPools", //NOI18N
+            "MATCH (pool:pools) WHERE toLower(pool.className) CONTAINS toLower($searchString) OR toLower(pool.name) CONTAINS toLower($searchString) " //NOI18N
+            + "RETURN pool {.className, pools: collect(DISTINCT pool {.name, ._uuid, .description, .type})[$objectSkip..$objectLimit]} " //NOI18N
+            + "ORDER BY pool.name ASC", //NOI18N
+            "searchString", "", "objectSkip", 0L, "objectLimit", 0L); //NOI18N
+    private static final QueryCatalog.PagedStatement QUERY_SUGGESTED_POOLS_OF_CLASSES = QueryCatalog.declarePaged("bem.suggestedPoolsOfClasses", //NOI18N
+            "MATCH (pool:pools) WHERE pool.className IN $classes AND toLower(pool.name) CONTAINS toLower($searchString) " //NOI18N
+            + "RETURN pool {.className, pools: collect(DISTINCT pool {.name, ._uuid, .description, .type})[$objectSkip..$objectLimit]} " //NOI18N
+            + "ORDER BY pool.name ASC", //NOI18N
+            "classes", Collections.emptyList(), "searchString", "", "objectSkip", 0L, "objectLimit", 0L); //NOI18N
+    //</editor-fold>
     /**
      * Key prefix to error messages in the Business Entity Manager Service
      */
@@ -124,10 +287,18 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
      * Label used to tag the nodes that store contact information.
      */
     private final Label contactsLabel;
+    /**
+     * List type items label.
+     */
+    private final Label listTypeItemLabel;
     /**
      * Global configuration variables.
      */
     private Properties configuration;
+    /**
+     * Number of objects committed at once during a bulk creation, unless the caller asks for a different chunk size.
+     */
+    private int bulkCreationChunkSize = DEFAULT_BULK_CREATION_CHUNK_SIZE;
 
     @Autowired
     private ConnectionManager<GraphDatabaseService> connectionManager;
@@ -151,11 +322,47 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
      */
     @Autowired
     private  PortUtilityService portUtilityService;
+    /**
+     * Reference to the service that compiles and caches the report scripts
+     */
+    @Autowired
+    private ScriptCompilationService scriptCompilationService;
     /**
      * Reference to internationalization service
      */
     @Autowired
     private TranslationService ts;
+    /**
+     * Reference to the attachment store.
+     */
+    @Autowired
+    private AttachmentStore attachmentStore;
+    /**
+     * Reference to the index used to suggest objects by name.
+     */
+    @Autowired
+    private SearchIndex searchIndex;
+    /**
+     * Reference to the catalogue of the statements used in the hot paths.
+     */
+    @Autowired
+    private QueryCatalog queryCatalog;
+    /**
+     * Discards the cached validator results of the objects changed by every committed transaction. Null if the results are not cached.
+     */
+    private CacheInvalidationHandler cacheInvalidationHandler;
+    /**
+     * Discards the cached ancestor paths of the objects moved by every committed transaction. Null until the cache is initialized.
+     */
+    private AncestorPathInvalidationHandler ancestorPathInvalidationHandler;
+    /**
+     * The listeners notified of the changes made to the inventory objects.
+     */
+    private final List<BusinessObjectChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Reports the changes made by every committed transaction to the change listeners. Null until the cache is initialized.
+     */
+    private BusinessObjectChangeNotifier changeNotifier;
     /**
      * Main constructor. It receives references to the other entity managers
      */
@@ -169,11 +376,44 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         this.specialNodeLabel = Label.label(Constants.LABEL_SPECIAL_NODE);
         this.reportsLabel = Label.label(Constants.LABEL_REPORTS);
         this.contactsLabel = Label.label(Constants.LABEL_CONTACTS);
+        this.listTypeItemLabel = Label.label(Constants.LABEL_LIST_TYPE_ITEMS);
     }
 
     @Override
     public void initCache() {
-        // Nothing for now.
+        createUuidIndexes();
+        Util.createUniqueAttributeIndexes(connectionManager.getConnectionHandler());
+        
+        String validatorEvaluationMode = configuration.getProperty("validatorEvaluationMode", DEFAULT_VALIDATOR_EVALUATION_MODE);
+        try {
+            ogmService.setValidatorEvaluationMode(ObjectGraphMappingService.ValidatorEvaluationMode.valueOf(validatorEvaluationMode.trim().toUpperCase()));
+        } catch (IllegalArgumentException ex) {
+            Logger.getLogger(BusinessEntityManagerImpl.class.getName()).log(Level.WARNING, 
+                    String.format("[KUWAIBA] Unknown validator evaluation mode %s. Using %s instead", validatorEvaluationMode, DEFAULT_VALIDATOR_EVALUATION_MODE));
+        }
+        //The cached validator results of the objects changed by a transaction are discarded once the transaction is committed
+        if (ogmService.getValidatorEvaluationMode() == ObjectGraphMappingService.ValidatorEvaluationMode.CACHED && cacheInvalidationHandler == null) {
+            cacheInvalidationHandler = new CacheInvalidationHandler(connectionManager.getConnectionHandler());
+            connectionManager.getConnectionHandler().registerTransactionEventHandler(cacheInvalidationHandler);
+        }
+        //The cached ancestors of the objects moved by a transaction are discarded once the transaction is committed
+        if (ancestorPathInvalidationHandler == null) {
+            ancestorPathInvalidationHandler = new AncestorPathInvalidationHandler();
+            connectionManager.getConnectionHandler().registerTransactionEventHandler(ancestorPathInvalidationHandler);
+        }
+        if (changeNotifier == null) {
+            changeNotifier = new BusinessObjectChangeNotifier(connectionManager.getConnectionHandler(), changeListeners);
+            connectionManager.getConnectionHandler().registerTransactionEventHandler(changeNotifier);
+        }
+        
+        try {
+            bulkCreationChunkSize = Math.max(1, Integer.valueOf(configuration.getProperty("bulkCreationChunkSize", //NOI18N
+                    String.valueOf(DEFAULT_BULK_CREATION_CHUNK_SIZE))));
+        } catch (NumberFormatException ex) {
+            bulkCreationChunkSize = DEFAULT_BULK_CREATION_CHUNK_SIZE;
+            Logger.getLogger(BusinessEntityManagerImpl.class.getName()).log(Level.WARNING, 
+                    String.format("[KUWAIBA] Invalid bulk creation chunk size. Using %s instead", DEFAULT_BULK_CREATION_CHUNK_SIZE));
+        }
     }
     
     @Override
@@ -245,7 +485,7 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
                     if (templateNode.hasRelationship(Direction.INCOMING, RelTypes.HAS_TEMPLATE)) {
                         if (className.equals(templateNode.getSingleRelationship(RelTypes.HAS_TEMPLATE, Direction.INCOMING).
                                 getStartNode().getProperty(Constants.PROPERTY_NAME)))
-                            newObject = copyTemplateElement(templateNode, myClass, true);
+                            newObject = instantiateTemplate(templateNode, null);
                         else {
                             InvalidArgumentException ex = new InvalidArgumentException(String.format(ts.getTranslatedString(KEY_PREFIX + ".6"), templateId, className));
                             ex.setPrefix(KEY_PREFIX);
@@ -353,7 +593,7 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
                     if (templateNode.hasRelationship(Direction.INCOMING, RelTypes.HAS_TEMPLATE)) {
                         if (objectClass.equals(templateNode.getSingleRelationship(RelTypes.HAS_TEMPLATE, Direction.INCOMING).
                                 getStartNode().getProperty(Constants.PROPERTY_NAME)))
-                            newObject = copyTemplateElement(templateNode, objectClass, true);
+                            newObject = instantiateTemplate(templateNode, null);
                         else
                             throw new InvalidArgumentException(String.format("The template with id %s is not applicable to instances of class %s", templateId, objectClass));
                     } else 
@@ -442,7 +682,7 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
                     if (templateNode.hasRelationship(Direction.INCOMING, RelTypes.HAS_TEMPLATE)) {
                         if (className.equals(templateNode.getSingleRelationship(RelTypes.HAS_TEMPLATE, Direction.INCOMING).
                                 getStartNode().getProperty(Constants.PROPERTY_NAME))) {
-                            newObject = copyTemplateElement(templateNode, classMetadata, true);
+                            newObject = instantiateTemplate(templateNode, null);
                             ogmService.updateObject((String)newObject.getProperty(Constants.PROPERTY_UUID), 
                                     classMetadata, attributes); //Override the template values with those provided, if any
                         }
@@ -525,7 +765,7 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
                 if (templateNode.hasRelationship(Direction.INCOMING, RelTypes.HAS_TEMPLATE)) {
                     if (className.equals(templateNode.getSingleRelationship(RelTypes.HAS_TEMPLATE, Direction.INCOMING).
                             getStartNode().getProperty(Constants.PROPERTY_NAME))) {
-                        newObject = copyTemplateElement(templateNode, classMetadata, true, templateIds);
+                        newObject = instantiateTemplate(templateNode, templateIds);
                         ogmService.updateObject((String)newObject.getProperty(Constants.PROPERTY_UUID), 
                                 classMetadata, attributes); //Override the template values with those provided, if any
                     }
@@ -566,7 +806,7 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             Node objectNode = getInstanceOfClass(parentClass, parentId);
             specialObjectNode.createRelationshipTo(objectNode, RelTypes.CHILD_OF_SPECIAL);
             tx.success();
-        }            
+        }
     }
     
     @Override
@@ -595,7 +835,7 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
                     if (templateNode.hasRelationship(Direction.INCOMING, RelTypes.HAS_TEMPLATE)) {
                         if (className.equals(templateNode.getSingleRelationship(RelTypes.HAS_TEMPLATE, Direction.INCOMING).
                                 getStartNode().getProperty(Constants.PROPERTY_NAME)))
-                            newObject = copyTemplateElement(templateNode, myClass, true);
+                            newObject = instantiateTemplate(templateNode, null);
                         else
                             throw new InvalidArgumentException(String.format("The template with id %s is not applicable to instances of class %s", templateId, className));
                     } else 
@@ -644,85 +884,91 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     @Override
     public String[] createBulkObjects(String className, String parentClassName, String parentOid, String namePattern, String templateId) 
         throws MetadataObjectNotFoundException, OperationNotPermittedException, BusinessObjectNotFoundException, InvalidArgumentException, ApplicationObjectNotFoundException {
-        if (parentOid == null)
-            throw new InvalidArgumentException("The parent id cannot be null");
-                
-        ClassMetadata myClass = mem.getClass(className);
+        return createAllBulkObjects(className, parentClassName, parentOid, namePattern, templateId, false);
+    }
+    
+    @Override
+    public String[] createBulkSpecialObjects(String className, String parentClassName, String parentId, String namePattern, String templateId) 
+            throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, OperationNotPermittedException, InvalidArgumentException, ApplicationObjectNotFoundException {
+        return createAllBulkObjects(className, parentClassName, parentId, namePattern, templateId, true);
+    }
+    
+    @Override
+    public BulkCreationResult createBulkObjects(String className, String parentClassName, String parentId, String namePattern, String templateId, 
+            boolean special, int firstIndex, int chunkSize, Consumer<BulkCreationResult> progressListener) 
+        throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, OperationNotPermittedException, InvalidArgumentException, ApplicationObjectNotFoundException {
         
-        if (!mem.canBeChild(parentClassName, className))
-            throw new OperationNotPermittedException(String.format("An instance of class %s can't be created as child of %s", className, parentClassName == null ? Constants.NODE_DUMMYROOT : parentClassName));
+        // Every chunk has to be committed on its own, which is not possible within a transaction opened by the caller
+        if (((GraphDatabaseAPI) connectionManager.getConnectionHandler()).getDependencyResolver()
+                .resolveDependency(ThreadToStatementContextBridge.class).hasTransaction())
+            throw new OperationNotPermittedException("Objects can not be created in chunks from within another transaction");
         
+        List<String> names = new DynamicNameGenerator(namePattern).getDynamicNames();
+        if (firstIndex < 0 || firstIndex > names.size())
+            throw new InvalidArgumentException(String.format("The first index %s is out of bounds, the name pattern generates %s names", firstIndex, names.size()));
+        
+        BulkCreationTarget target;
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            Node classNode = connectionManager.getConnectionHandler().findNode(classLabel, Constants.PROPERTY_NAME, className);
-            
-            if (classNode == null)
-                throw new MetadataObjectNotFoundException(String.format("Class %s could not be found", className));
-                       
-            if (myClass.isInDesign())
-                throw new OperationNotPermittedException("Can not create instances of classes marked as inDesign");
-            
-            if (myClass.isAbstract())
-                throw new OperationNotPermittedException(String.format("Abstract class %s can not be instantiated", className));
-            
-            if (!mem.isSubclassOf(Constants.CLASS_INVENTORYOBJECT, className))
-                throw new OperationNotPermittedException("Can not create non-inventory objects");
-            //The object should be created under an instance other than the dummy root
-            if (parentClassName != null && !parentOid.equals("-1")) {
-                ClassMetadata myParentObjectClass = mem.getClass(parentClassName);
-                if (myParentObjectClass == null)
-                    throw new MetadataObjectNotFoundException(String.format("Class %s could not be found", parentClassName));
-            }
-            Node parentNode;
-            if (!parentOid.equals("-1")) { // Id -1 means the root of the containment hierarchy
-                parentNode = getInstanceOfClass(parentClassName, parentOid);
-                if (parentNode == null)
-                    throw new BusinessObjectNotFoundException(parentClassName, parentOid);
-                
-            }
-            else
-                parentNode = connectionManager.getConnectionHandler().findNode(specialNodeLabel, Constants.PROPERTY_NAME, Constants.NODE_DUMMYROOT);
-            
-            if (parentNode == null)
-                throw new BusinessObjectNotFoundException(parentClassName, parentOid);
-            
-            DynamicNameGenerator dynamicName = new DynamicNameGenerator(namePattern);                                   
-            String res[] = new String[dynamicName.getNumberOfDynamicNames()];
-                        
-            for (int i = 0; i < dynamicName.getNumberOfDynamicNames(); i++) {
-                Node newObject;
-                if (templateId == null || templateId.isEmpty())
-                    newObject = createObject(classNode, myClass, null);
-                else {
-                    try {
-                        Node templateNode = connectionManager.getConnectionHandler().findNode(templateLabel, Constants.PROPERTY_UUID, templateId);
-                        if (templateNode.hasRelationship(Direction.INCOMING, RelTypes.HAS_TEMPLATE)) {
-                            if (className.equals(templateNode.getSingleRelationship(RelTypes.HAS_TEMPLATE, Direction.INCOMING).
-                                    getStartNode().getProperty(Constants.PROPERTY_NAME)))
-                                newObject = copyTemplateElement(templateNode, myClass, true);
-                            else
-                                throw new InvalidArgumentException(String.format("The template with id %s is not applicable to instances of class %s", templateId, className));
-                        } else 
-                            throw new InvalidArgumentException(String.format("The template with id %s is malformed", templateId));
-
-                    } catch (NotFoundException ex) {
-                        throw new ApplicationObjectNotFoundException(String.format("No template with id %s was found for class %s", templateId, className));
-                    }
-                }
-
-                res[i] = newObject.hasProperty(Constants.PROPERTY_UUID) ? newObject.getProperty(Constants.PROPERTY_UUID).toString() : null;
-                newObject.setProperty(Constants.PROPERTY_NAME, dynamicName.getDynamicNames().get(i));
-                newObject.createRelationshipTo(parentNode, RelTypes.CHILD_OF); 
-            }
-                        
+            target = getBulkCreationTarget(className, parentClassName, parentId, templateId);
+            tx.success();
+        }
+        
+        int actualChunkSize = chunkSize > 0 ? chunkSize : bulkCreationChunkSize;
+        BulkCreationResult result = new BulkCreationResult(names.size(), firstIndex);
+        
+        while (result.getNextIndex() < names.size()) {
+            int chunkEnd = Math.min(result.getNextIndex() + actualChunkSize, names.size());
+            List<String> chunk;
+            // The commit happens when the transaction is closed, so a failed commit is caught here too
+            try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                chunk = createBulkObjectsRange(target, names, result.getNextIndex(), chunkEnd, special);
+                tx.success();
+            } catch (InvalidArgumentException | MetadataObjectNotFoundException | RuntimeException ex) {
+                result.setFailureMessage(ex.getLocalizedMessage() == null ? ex.getClass().getSimpleName() : ex.getLocalizedMessage());
+                Logger.getLogger(BusinessEntityManagerImpl.class.getName()).log(Level.WARNING, 
+                        String.format("[KUWAIBA] [%s] The bulk creation of %s objects stopped after %s of %s objects: %s", //NOI18N
+                                Calendar.getInstance().getTime(), className, result.getNextIndex(), names.size(), result.getFailureMessage()));
+                break;
+            }
+            result.addChunk(chunk);
+            if (progressListener != null)
+                progressListener.accept(result);
+        }
+        return result;
+    }
+    
+    /**
+     * Creates all the objects (or special objects) generated by a name pattern in a single transaction, so either all of them are created or none.
+     * @param className The class name for the new objects
+     * @param parentClassName The parent class name for the new objects
+     * @param parentId The object id of the parent
+     * @param namePattern A pattern to create the names for the new objects
+     * @param templateId The id of the template to be used for the set of objects to be created. Used null for none.
+     * @param special True to create the objects as special children of the parent, false to create them as regular children.
+     * @return The ids of the new objects.
+     */
+    private String[] createAllBulkObjects(String className, String parentClassName, String parentId, String namePattern, String templateId, boolean special) 
+        throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, OperationNotPermittedException, InvalidArgumentException, ApplicationObjectNotFoundException {
+        List<String> names = new DynamicNameGenerator(namePattern).getDynamicNames();
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            BulkCreationTarget target = getBulkCreationTarget(className, parentClassName, parentId, templateId);
+            String[] res = createBulkObjectsRange(target, names, 0, names.size(), special).toArray(new String[0]);
             tx.success();
             return res;
         }
     }
     
-    @Override
-    public String[] createBulkSpecialObjects(String className, String parentClassName, String parentId, String namePattern, String templateId) 
-            throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, OperationNotPermittedException, InvalidArgumentException, ApplicationObjectNotFoundException {
-        
+    /**
+     * Validates the class, the parent and the template of a bulk creation. Must be called within a transaction.
+     * @param className The class name for the new objects
+     * @param parentClassName The parent class name for the new objects
+     * @param parentId The object id of the parent
+     * @param templateId The id of the template to be used for the set of objects to be created. Used null for none.
+     * @return The node ids of the class and the parent and the template instantiation plan, so every chunk can fetch them 
+     * directly in its own transaction.
+     */
+    private BulkCreationTarget getBulkCreationTarget(String className, String parentClassName, String parentId, String templateId) 
+        throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, OperationNotPermittedException, InvalidArgumentException, ApplicationObjectNotFoundException {
         if (parentId == null)
             throw new InvalidArgumentException("The parent id cannot be null");
                 
@@ -731,70 +977,100 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         if (!mem.canBeChild(parentClassName, className))
             throw new OperationNotPermittedException(String.format("An instance of class %s can't be created as child of %s", className, parentClassName == null ? Constants.NODE_DUMMYROOT : parentClassName));
         
-        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            Node classNode = connectionManager.getConnectionHandler().findNode(classLabel, Constants.PROPERTY_NAME, className);
-            
-            if (classNode == null)
-                throw new MetadataObjectNotFoundException(String.format("Class %s could not be found", className));
-                       
-            if (myClass.isInDesign())
-                throw new OperationNotPermittedException("Can not create instances of classes marked as inDesign");
-            
-            if (myClass.isAbstract())
-                throw new OperationNotPermittedException(String.format("Abstract class %s can not be instantiated", className));
-            
-            if (!mem.isSubclassOf(Constants.CLASS_INVENTORYOBJECT, className))
-                throw new OperationNotPermittedException("Can not create non-inventory objects");
-            //The object should be created under an instance other than the dummy root
-            if (parentClassName != null && !parentId.equals("-1")) {
-                ClassMetadata myParentObjectClass = mem.getClass(parentClassName);
-                if (myParentObjectClass == null)
-                    throw new MetadataObjectNotFoundException(String.format("Class %s could not be found", parentClassName));
-            }
-            Node parentNode;
-            if (!parentId.equals("-1")) { // Id -1 means the root of the containment hierarchy
-                parentNode = getInstanceOfClass(parentClassName, parentId);
-                if (parentNode == null)
-                    throw new BusinessObjectNotFoundException(parentClassName, parentId);
-                
-            }
-            else
-                parentNode = connectionManager.getConnectionHandler().findNode(specialNodeLabel, Constants.PROPERTY_NAME, Constants.NODE_DUMMYROOT);
-            
+        Node classNode = connectionManager.getConnectionHandler().findNode(classLabel, Constants.PROPERTY_NAME, className);
+
+        if (classNode == null)
+            throw new MetadataObjectNotFoundException(String.format("Class %s could not be found", className));
+
+        if (myClass.isInDesign())
+            throw new OperationNotPermittedException("Can not create instances of classes marked as inDesign");
+
+        if (myClass.isAbstract())
+            throw new OperationNotPermittedException(String.format("Abstract class %s can not be instantiated", className));
+
+        if (!mem.isSubclassOf(Constants.CLASS_INVENTORYOBJECT, className))
+            throw new OperationNotPermittedException("Can not create non-inventory objects");
+        //The object should be created under an instance other than the dummy root
+        if (parentClassName != null && !parentId.equals("-1")) {
+            ClassMetadata myParentObjectClass = mem.getClass(parentClassName);
+            if (myParentObjectClass == null)
+                throw new MetadataObjectNotFoundException(String.format("Class %s could not be found", parentClassName));
+        }
+        Node parentNode;
+        if (!parentId.equals("-1")) { // Id -1 means the root of the containment hierarchy
+            parentNode = getInstanceOfClass(parentClassName, parentId);
             if (parentNode == null)
                 throw new BusinessObjectNotFoundException(parentClassName, parentId);
+
+        }
+        else
+            parentNode = connectionManager.getConnectionHandler().findNode(specialNodeLabel, Constants.PROPERTY_NAME, Constants.NODE_DUMMYROOT);
+
+        if (parentNode == null)
+            throw new BusinessObjectNotFoundException(parentClassName, parentId);
+
+        TemplateInstantiationPlan templatePlan = null;
+        if (templateId != null && !templateId.isEmpty()) {
+            Node templateNode = connectionManager.getConnectionHandler().findNode(templateLabel, Constants.PROPERTY_UUID, templateId);
+            if (templateNode == null)
+                throw new ApplicationObjectNotFoundException(String.format("No template with id %s was found for class %s", templateId, className));
+
+            if (!templateNode.hasRelationship(Direction.INCOMING, RelTypes.HAS_TEMPLATE))
+                throw new InvalidArgumentException(String.format("The template with id %s is malformed", templateId));
+
+            if (!className.equals(templateNode.getSingleRelationship(RelTypes.HAS_TEMPLATE, Direction.INCOMING).
+                    getStartNode().getProperty(Constants.PROPERTY_NAME)))
+                throw new InvalidArgumentException(String.format("The template with id %s is not applicable to instances of class %s", templateId, className));
+
+            templatePlan = getTemplatePlan(templateNode);
+        }
+        return new BulkCreationTarget(myClass, classNode.getId(), parentNode.getId(), templatePlan);
+    }
+    
+    /**
+     * Creates a range of the objects of a bulk creation. Must be called within a transaction.
+     * @param target The class, parent and template of the new objects.
+     * @param names The names generated by the name pattern.
+     * @param fromIndex The index of the name of the first object to be created.
+     * @param toIndex The index after the name of the last object to be created.
+     * @param special True to create the objects as special children of the parent, false to create them as regular children.
+     * @return The ids of the new objects.
+     */
+    private List<String> createBulkObjectsRange(BulkCreationTarget target, List<String> names, int fromIndex, int toIndex, boolean special) 
+            throws InvalidArgumentException, MetadataObjectNotFoundException {
+        List<String> res = new ArrayList<>(toIndex - fromIndex);
+        Node classNode = connectionManager.getConnectionHandler().getNodeById(target.classNodeId);
+        Node parentNode = connectionManager.getConnectionHandler().getNodeById(target.parentNodeId);
+        Node[] templateNodes = target.templatePlan == null ? null : resolveTemplatePlan(target.templatePlan);
+        
+        for (int i = fromIndex; i < toIndex; i++) {
+            Node newObject = target.templatePlan == null ? createObject(classNode, target.classMetadata, null) : 
+                    instantiateTemplatePlan(target.templatePlan, templateNodes, null);
             
-            DynamicNameGenerator dynamicName = new DynamicNameGenerator(namePattern);                                   
-            String res[] = new String[dynamicName.getNumberOfDynamicNames()];
-                        
-            for (int i = 0; i < dynamicName.getNumberOfDynamicNames(); i++) {
-                Node newObject;
-                if (templateId == null || templateId.isEmpty())
-                    newObject = createObject(classNode, myClass, null);
-                else {
-                    try {
-                        Node templateNode = connectionManager.getConnectionHandler().findNode(templateLabel, Constants.PROPERTY_UUID, templateId);
-                        if (templateNode.hasRelationship(Direction.INCOMING, RelTypes.HAS_TEMPLATE)) {
-                            if (className.equals(templateNode.getSingleRelationship(RelTypes.HAS_TEMPLATE, Direction.INCOMING).
-                                    getStartNode().getProperty(Constants.PROPERTY_NAME)))
-                                newObject = copyTemplateElement(templateNode, myClass, true);
-                            else
-                                throw new InvalidArgumentException(String.format("The template with id %s is not applicable to instances of class %s", templateId, className));
-                        } else 
-                            throw new InvalidArgumentException(String.format("The template with id %s is malformed", templateId));
-
-                    } catch (NotFoundException ex) {
-                        throw new ApplicationObjectNotFoundException(String.format("No template with id %s was found for class %s", templateId, className));
-                    }
-                }
+            res.add(newObject.hasProperty(Constants.PROPERTY_UUID) ? newObject.getProperty(Constants.PROPERTY_UUID).toString() : null);
+            newObject.setProperty(Constants.PROPERTY_NAME, names.get(i));
+            newObject.createRelationshipTo(parentNode, special ? RelTypes.CHILD_OF_SPECIAL : RelTypes.CHILD_OF);
+        }
+        return res;
+    }
+    
+    /**
+     * What a bulk creation creates and where, resolved once before the objects are created.
+     */
+    private static final class BulkCreationTarget {
+        private final ClassMetadata classMetadata;
+        private final long classNodeId;
+        private final long parentNodeId;
+        /**
+         * The plan of the template used to create the objects, or null if no template is used.
+         */
+        private final TemplateInstantiationPlan templatePlan;
 
-                res[i] = newObject.hasProperty(Constants.PROPERTY_UUID) ? newObject.getProperty(Constants.PROPERTY_UUID).toString() : null;
-                newObject.setProperty(Constants.PROPERTY_NAME, dynamicName.getDynamicNames().get(i));
-                newObject.createRelationshipTo(parentNode, RelTypes.CHILD_OF_SPECIAL); 
-            }
-                        
-            tx.success();
-            return res;
+        public BulkCreationTarget(ClassMetadata classMetadata, long classNodeId, long parentNodeId, TemplateInstantiationPlan templatePlan) {
+            this.classMetadata = classMetadata;
+            this.classNodeId = classNodeId;
+            this.parentNodeId = parentNodeId;
+            this.templatePlan = templatePlan;
         }
     }
     
@@ -819,7 +1095,6 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             ex.setCode(16);
             throw ex;
         }
-        //TODO: Re-write this method and check if a simple Cypher query is faster than the programatic solution!
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             Node classNode = connectionManager.getConnectionHandler().findNode(classLabel, Constants.PROPERTY_NAME, className);
 
@@ -830,16 +1105,66 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
                 ex.setMessageArgs(className);
                 throw ex;
             }
-            Iterable<Relationship> iterableInstances = classNode.getRelationships(RelTypes.INSTANCE_OF);
-            Iterator<Relationship> instances = iterableInstances.iterator();
-            while (instances.hasNext()) {
-                Node instance = instances.next().getStartNode();
-                if (instance.getProperty(Constants.PROPERTY_UUID).equals(oid)) {
-                    tx.success();
-                    return ogmService.createObjectLightFromNode(instance);
+            Node instance = findInstanceByUuid(classNode, oid);
+            if (instance == null)
+                throw new BusinessObjectNotFoundException(className, oid);
+            
+            tx.success();
+            return ogmService.createObjectLightFromNode(instance);
+        }
+    }
+    
+    @Override
+    public HashMap<String, BusinessObjectLight> getObjectsLight(Map<String, List<String>> objectIds) 
+            throws InvalidArgumentException {
+        if (objectIds == null)
+            throw new InvalidArgumentException("The set of object ids can not be null");
+        
+        List<Map<String, Object>> objects = new ArrayList<>();
+        objectIds.forEach((className, ids) -> {
+            if (className != null && ids != null) {
+                for (String id : ids) {
+                    if (id != null) {
+                        HashMap<String, Object> object = new HashMap<>();
+                        object.put("className", className); //NOI18N
+                        object.put("id", id); //NOI18N
+                        objects.add(object);
+                    }
                 }
             }
-            throw new BusinessObjectNotFoundException(className, oid);
+        });
+        
+        HashMap<String, BusinessObjectLight> res = new HashMap<>();
+        if (objects.isEmpty())
+            return res;
+        
+        // The match on the id uses the index on _uuid, so each object is found without scanning its class
+        String query = "UNWIND $objects AS object " //NOI18N
+                + "MATCH (instance:inventoryObjects {_uuid: object.id})-[:INSTANCE_OF]->(:classes {name: object.className}) " //NOI18N
+                + "RETURN instance"; //NOI18N
+        HashMap<String, Object> parameters = new HashMap<>();
+        parameters.put("objects", objects); //NOI18N
+        
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            try (Result result = connectionManager.getConnectionHandler().execute(query, parameters)) {
+                while (result.hasNext()) {
+                    BusinessObjectLight object = ogmService.createObjectLightFromNode((Node) result.next().get("instance")); //NOI18N
+                    res.put(object.getId(), object);
+                }
+            }
+            tx.success();
+            return res;
+        }
+    }
+    
+    @Override
+    public List<Validator> getObjectValidators(String className, String oid)
+            throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, InvalidArgumentException {
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            Node instance = getInstanceOfClass(className, oid);
+            List<Validator> res = ogmService.getValidators(instance);
+            tx.success();
+            return res;
         }
     }
     
@@ -865,15 +1190,12 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             throw ex;
         }
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            StringBuilder queryBuilder = new StringBuilder();
-            queryBuilder.append("MATCH (class:classes)<-[:EXTENDS*0..]-(subclass:classes{name:'%s'})<-[:EXTENDS*0..]-(:classes)<-[:INSTANCE_OF]-(object:inventoryObjects)").append("\n");
-            queryBuilder.append("WHERE object.%s = '%s'").append("\n");
-            queryBuilder.append("OR (object)-[:RELATED_TO{name:'%s'}]->(:listTypeItems{name:'%s'})").append("\n");
-            queryBuilder.append("RETURN DISTINCT object");
-            
-            String query = String.format(queryBuilder.toString(), className, filterName, filterValue, filterName, filterValue);
+            HashMap<String, Object> parameters = new HashMap<>();
+            parameters.put("className", className); //NOI18N
+            parameters.put("filterName", filterName); //NOI18N
+            parameters.put("filterValue", filterValue); //NOI18N
             
-            Result queryResult = connectionManager.getConnectionHandler().execute(query);
+            Result queryResult = queryCatalog.execute(QUERY_OBJECTS_WITH_FILTER, parameters);
             ResourceIterator<Node> column = queryResult.columnAs("object");
             
             List<BusinessObjectLight> result = new ArrayList();
@@ -907,15 +1229,12 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         }
         
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            StringBuilder queryBuilder = new StringBuilder();
-            queryBuilder.append("MATCH (class:classes)<-[:EXTENDS*0..]-(subclass:classes{name:'%s'})<-[:EXTENDS*0..]-(:classes)<-[:INSTANCE_OF]-(object:inventoryObjects)").append("\n");
-            queryBuilder.append("WHERE object.%s = '%s'").append("\n");
-            queryBuilder.append("OR (object)-[:RELATED_TO{name:'%s'}]->(:listTypeItems{name:'%s'})").append("\n");
-            queryBuilder.append("RETURN DISTINCT object");
-            
-            String query = String.format(queryBuilder.toString(), className, filterName, filterValue, filterName, filterValue);
+            HashMap<String, Object> parameters = new HashMap<>();
+            parameters.put("className", className); //NOI18N
+            parameters.put("filterName", filterName); //NOI18N
+            parameters.put("filterValue", filterValue); //NOI18N
             
-            Result queryResult = connectionManager.getConnectionHandler().execute(query);
+            Result queryResult = queryCatalog.execute(QUERY_OBJECTS_WITH_FILTER, parameters);
             ResourceIterator<Node> column = queryResult.columnAs("object");
             
             List<BusinessObject> result = new ArrayList();
@@ -929,14 +1248,21 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     @Override
     public List<BusinessObjectLight> getSuggestedObjectsWithFilter(String filter, int limit) {
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            String cypherQuery = "MATCH (object:" + inventoryObjectLabel + ")-[:INSTANCE_OF]->(class)" + 
-                    " WHERE TOLOWER(object.name) CONTAINS TOLOWER({searchString}) OR TOLOWER(class.name) "
-                    + "CONTAINS TOLOWER({searchString}) OR TOLOWER(class.displayName) CONTAINS TOLOWER({searchString}) " 
-                    + "RETURN object.name as oname, object._uuid as oid, class.name as cname, class.displayName as cdisplay ORDER BY object.name ASC" + (limit > 0 ? " LIMIT " + limit : ""); //NOI18N
+            List<Node> matches = findSuggestedObjects(filter, 0, limit > 0 ? limit : -1, null);
+            if (matches != null) {
+                List<BusinessObjectLight> res = new ArrayList<>();
+                for (Node match : matches)
+                    res.add(createSuggestionFromNode(match));
+                tx.success();
+                return res;
+            }
             
             HashMap<String, Object> parameters = new HashMap<>();
-            parameters.put("searchString", filter);
-            Result queryResult = connectionManager.getConnectionHandler().execute(cypherQuery, parameters);
+            parameters.put("searchString", filter); //NOI18N
+            parameters.put("skip", 0L); //NOI18N
+            if (limit > 0)
+                parameters.put("limit", (long) limit); //NOI18N
+            Result queryResult = queryCatalog.execute(QUERY_SUGGESTED_OBJECTS, parameters);
             
             List<BusinessObjectLight> res  = new ArrayList<>();
             
@@ -954,16 +1280,22 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     @Override
     public List<BusinessObjectLight> getSuggestedObjectsWithFilter(String filter, String superClass, int limit) {
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            String cypherQuery = "MATCH (object:" + inventoryObjectLabel + ")-[:INSTANCE_OF]->(class)" +
-                    "-[:EXTENDS*0..]->(superclass) WHERE (TOLOWER(object.name) CONTAINS TOLOWER({searchString})" + 
-                    " OR TOLOWER(class.name) CONTAINS TOLOWER({searchString}) OR TOLOWER(class.displayName) CONTAINS TOLOWER({searchString}))" + 
-                    " AND superclass.name = {superclass}" + 
-                    " RETURN object.name as oname, object._uuid as oid, class.name as cname, class.displayName as cdisplay ORDER BY object.name ASC" + (limit > 0 ? " LIMIT " + limit : "");
-
+            List<Node> matches = findSuggestedObjects(filter, 0, limit > 0 ? limit : -1, new String[] { superClass });
+            if (matches != null) {
+                List<BusinessObjectLight> res = new ArrayList<>();
+                for (Node match : matches)
+                    res.add(createSuggestionFromNode(match));
+                tx.success();
+                return res;
+            }
+            
             HashMap<String, Object> parameters = new HashMap<>();
-            parameters.put("searchString", filter);
-            parameters.put("superclass", superClass);
-            Result queryResult = connectionManager.getConnectionHandler().execute(cypherQuery, parameters);
+            parameters.put("searchString", filter); //NOI18N
+            parameters.put("superclass", superClass); //NOI18N
+            parameters.put("skip", 0L); //NOI18N
+            if (limit > 0)
+                parameters.put("limit", (long) limit); //NOI18N
+            Result queryResult = queryCatalog.execute(QUERY_SUGGESTED_OBJECTS_OF_SUPERCLASS, parameters);
             
             List<BusinessObjectLight> res  = new ArrayList<>();
             
@@ -982,36 +1314,21 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     public List<BusinessObjectLight> getSuggestedObjectsWithFilter(String filter, int skip, int limit, String... clasessToFilter) {
         List<BusinessObjectLight> objects = new ArrayList();
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            StringBuilder queryBuilder = new StringBuilder();
-            HashMap<String, Object> parameters = new HashMap();
-            
-            queryBuilder.append("MATCH (child:inventoryObjects)-[:INSTANCE_OF]->(childClass:classes)-[:EXTENDS*0..]->(childParentClass:classes)").append("\n"); //NOI18N
-            if (filter == null)
-                filter = "";
-            parameters.put("filter", filter); //NOI18N
-            queryBuilder.append("WHERE (TOLOWER(child.name) CONTAINS TOLOWER($filter) OR TOLOWER(childClass.name) CONTAINS TOLOWER($filter) OR TOLOWER(childClass.displayName) CONTAINS TOLOWER($filter))").append("\n"); //NOI18N
-            
-            if (clasessToFilter != null && clasessToFilter.length > 0) {
-                queryBuilder.append("AND ("); //NOI18N
-                for (int i = 0; i < clasessToFilter.length; i++) {
-                    if (i < clasessToFilter.length - 1)
-                        queryBuilder.append(String.format("childParentClass.name = '%s' OR ", clasessToFilter[i])); //NOI18N
-                    else
-                        queryBuilder.append(String.format("childParentClass.name = '%s'", clasessToFilter[i])); //NOI18N
-                }
-                queryBuilder.append(")").append("\n");
-            }
-            queryBuilder.append("RETURN DISTINCT child").append("\n"); //NOI18N
-            queryBuilder.append("ORDER BY child.name").append("\n"); //NOI18N
-            if (skip >= 0) {
-                parameters.put("skip", skip); //NOI18N
-                queryBuilder.append("SKIP $skip").append("\n"); //NOI18N
-            }
-            if (limit >= 0) {
-                parameters.put("limit", limit); //NOI18N
-                queryBuilder.append("LIMIT $limit").append("\n"); //NOI18N
+            List<Node> matches = findSuggestedObjects(filter, skip, limit, clasessToFilter);
+            if (matches != null) {
+                for (Node match : matches)
+                    objects.add(ogmService.createObjectLightFromNode(match));
+                tx.success();
+                return objects;
             }
-            Result queryResult = connectionManager.getConnectionHandler().execute(queryBuilder.toString(), parameters);
+            
+            HashMap<String, Object> parameters = new HashMap();
+            parameters.put("filter", filter == null ? "" : filter); //NOI18N
+            parameters.put("classes", clasessToFilter == null ? Collections.emptyList() : Arrays.asList(clasessToFilter)); //NOI18N
+            parameters.put("skip", skip >= 0 ? (long) skip : 0L); //NOI18N
+            if (limit >= 0)
+                parameters.put("limit", (long) limit); //NOI18N
+            Result queryResult = queryCatalog.execute(QUERY_SUGGESTED_OBJECTS_OF_CLASSES, parameters);
             while (queryResult.hasNext()) {
                 Map<String, Object> row = queryResult.next();
                 objects.add(ogmService.createObjectLightFromNode((Node) row.get("child"))); //NOI18N
@@ -1031,28 +1348,13 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         
         List<BusinessObjectLight> objects = new ArrayList();
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            StringBuilder queryBuilder = new StringBuilder();
             HashMap<String, Object> parameters = new HashMap();
-            
-            queryBuilder.append("MATCH (child:inventoryObjects)-[:INSTANCE_OF]->(childClass:classes)-[:EXTENDS*0..]->(childParentClass:classes)").append("\n"); //NOI18N
-            
-            queryBuilder.append("WHERE (child.name) IN ['").append(String.join("', '",  names)).append("'] "); //NOI18N
-            
-            if (clasessToFilter != null && clasessToFilter.length > 0)
-                queryBuilder.append("AND childParentClass.name IN ['")
-                        .append(String.join("', '", clasessToFilter)).append("'] "); //NOI18N
-            
-            queryBuilder.append("RETURN DISTINCT child").append("\n"); //NOI18N
-            queryBuilder.append("ORDER BY child.name").append("\n"); //NOI18N
-            if (skip >= 0) {
-                parameters.put("skip", skip); //NOI18N
-                queryBuilder.append("SKIP $skip").append("\n"); //NOI18N
-            }
-            if (limit >= 0) {
-                parameters.put("limit", limit); //NOI18N
-                queryBuilder.append("LIMIT $limit").append("\n"); //NOI18N
-            }
-            Result queryResult = connectionManager.getConnectionHandler().execute(queryBuilder.toString(), parameters);
+            parameters.put("names", names); //NOI18N
+            parameters.put("classes", clasessToFilter == null ? Collections.emptyList() : Arrays.asList(clasessToFilter)); //NOI18N
+            parameters.put("skip", skip >= 0 ? (long) skip : 0L); //NOI18N
+            if (limit >= 0)
+                parameters.put("limit", (long) limit); //NOI18N
+            Result queryResult = queryCatalog.execute(QUERY_OBJECTS_BY_NAME, parameters);
             while (queryResult.hasNext()) {
                 Map<String, Object> row = queryResult.next();
                 objects.add(ogmService.createObjectLightFromNode((Node) row.get("child"))); //NOI18N
@@ -1066,41 +1368,16 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     public List<BusinessObjectLight> getSuggestedChildrenWithFilter(String parentClass, String parentId, String filter, boolean ignoreSpecialChildren, int skip, int limit, String... clasessToFilter) {
         List<BusinessObjectLight> children = new ArrayList();
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            StringBuilder queryBuilder = new StringBuilder();
             HashMap<String, Object> parameters = new HashMap();
             parameters.put("parentClass", parentClass); //NOI18N
             parameters.put("parentId", parentId); //NOI18N
-            if (ignoreSpecialChildren)
-                queryBuilder.append("MATCH (parentClass:classes {name: $parentClass})<-[:INSTANCE_OF]-(parent:inventoryObjects {_uuid: $parentId})<-[:CHILD_OF]-(child:inventoryObjects)-[:INSTANCE_OF]->(childClass:classes)-[:EXTENDS*0..]->(childParentClass:classes)").append("\n"); //NOI18N
-            else
-                queryBuilder.append("MATCH (parentClass:classes {name: $parentClass})<-[:INSTANCE_OF]-(parent:inventoryObjects {_uuid: $parentId})<-[:CHILD_OF|:CHILD_OF_SPECIAL]-(child:inventoryObjects)-[:INSTANCE_OF]->(childClass:classes)-[:EXTENDS*0..]->(childParentClass:classes)").append("\n"); //NOI18N
-            
-            if (filter == null)
-                filter = "";
-            parameters.put("filter", filter); //NOI18N
-            queryBuilder.append("WHERE (toLower(child.name) CONTAINS toLower($filter) OR toLower(childClass.name) CONTAINS toLower($filter))").append("\n"); //NOI18N
-            
-            if (clasessToFilter != null && clasessToFilter.length > 0) {
-                queryBuilder.append("AND ("); //NOI18N
-                for (int i = 0; i < clasessToFilter.length; i++) {
-                    if (i < clasessToFilter.length - 1)
-                        queryBuilder.append(String.format("childParentClass.name = '%s' OR ", clasessToFilter[i])); //NOI18N
-                    else
-                        queryBuilder.append(String.format("childParentClass.name = '%s'", clasessToFilter[i])); //NOI18N
-                }
-                queryBuilder.append(")").append("\n");
-            }
-            queryBuilder.append("RETURN DISTINCT child").append("\n"); //NOI18N
-            queryBuilder.append("ORDER BY child.name").append("\n"); //NOI18N
-            if (skip >= 0) {
-                parameters.put("skip", skip); //NOI18N
-                queryBuilder.append("SKIP $skip").append("\n"); //NOI18N
-            }
-            if (limit >= 0) {
-                parameters.put("limit", limit); //NOI18N
-                queryBuilder.append("LIMIT $limit").append("\n"); //NOI18N
-            }
-            Result queryResult = connectionManager.getConnectionHandler().execute(queryBuilder.toString(), parameters);
+            parameters.put("filter", filter == null ? "" : filter); //NOI18N
+            parameters.put("classes", clasessToFilter == null ? Collections.emptyList() : Arrays.asList(clasessToFilter)); //NOI18N
+            parameters.put("skip", skip >= 0 ? (long) skip : 0L); //NOI18N
+            if (limit >= 0)
+                parameters.put("limit", (long) limit); //NOI18N
+            Result queryResult = queryCatalog.execute(ignoreSpecialChildren ? 
+                    QUERY_SUGGESTED_CHILDREN_IGNORING_SPECIAL : QUERY_SUGGESTED_CHILDREN, parameters);
             while (queryResult.hasNext()) {
                 Map<String, Object> row = queryResult.next();
                 children.add(ogmService.createObjectLightFromNode((Node) row.get("child")));
@@ -1251,28 +1528,32 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     public List<BusinessObjectLight> getParents (String objectClassName, String oid)
         throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, InvalidArgumentException {
         List<BusinessObjectLight> parents =  new ArrayList<>();
-        String cypherQuery = "MATCH (n)-[:" + RelTypes.CHILD_OF + "|" + RelTypes.CHILD_OF_SPECIAL + "*]->(m) " +
-                             "WHERE n._uuid = '" + oid + "' " +
-                             "RETURN m as parents";
-      
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            Result result = connectionManager.getConnectionHandler().execute(cypherQuery);
-            Iterator<Node> column = result.columnAs("parents");
-            for (Node node : Iterators.asIterable(column)) {  
-                if (node.hasProperty(Constants.PROPERTY_NAME)) {
-                    if (node.getProperty(Constants.PROPERTY_NAME).equals(Constants.NODE_DUMMYROOT)) {
-                        parents.add(new BusinessObjectLight(Constants.NODE_DUMMYROOT, "-1", Constants.NODE_DUMMYROOT, "Navigation Tree Root"));
-                        continue;
-                    }
-                }
-                if (node.hasRelationship(RelTypes.INSTANCE_OF, Direction.OUTGOING))
-                    parents.add(ogmService.createObjectLightFromNode(node));
-                else //the node has a poolNode as a parent
-                    parents.add(Util.createRemoteObjectLightFromPoolNode(node));
-            }
+            for (Node node : getAncestors(oid))
+                parents.add(createParentFromNode(node));
+            tx.success();
         }
         return parents;
     }
+    
+    @Override
+    public HashMap<String, List<BusinessObjectLight>> getParents(List<String> oids) {
+        HashMap<String, List<BusinessObjectLight>> res = new HashMap<>();
+        // Objects in the same location share most of their ancestors, so every ancestor is mapped only once
+        HashMap<Long, BusinessObjectLight> mappedAncestors = new HashMap<>();
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            for (String oid : oids) {
+                if (res.containsKey(oid))
+                    continue;
+                List<BusinessObjectLight> parents = new ArrayList<>();
+                for (Node node : getAncestors(oid))
+                    parents.add(mappedAncestors.computeIfAbsent(node.getId(), nodeId -> createParentFromNode(node)));
+                res.put(oid, parents);
+            }
+            tx.success();
+        }
+        return res;
+    }
 
     
     @Override
@@ -1280,14 +1561,8 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             String oid, String... objectToMatchClassNames) 
         throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, ApplicationObjectNotFoundException, InvalidArgumentException {
         List<BusinessObjectLight> parents =  new ArrayList<>();
-        String cypherQuery = "MATCH (n)-[:" + RelTypes.CHILD_OF + "|" + RelTypes.CHILD_OF_SPECIAL + "*]->(m) " +
-                             "WHERE n._uuid = '" + oid + "' " +
-                             "RETURN m as parents";
-      
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            Result result = connectionManager.getConnectionHandler().execute(cypherQuery);
-            Iterator<Node> column = result.columnAs("parents");
-            for (Node node : Iterators.asIterable(column)) {
+            for (Node node : getAncestors(oid)) {
                 
                 Label label = Label.label(Constants.LABEL_ROOT); //If the parent node is the dummy root, just return null
                 if (node.hasLabel(label))
@@ -1431,6 +1706,7 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     public void deleteObjects(HashMap<String, List<String>> objects, boolean releaseRelationships)
             throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, OperationNotPermittedException, InvalidArgumentException {
 
+        List<String> releasedContents = new ArrayList<>();
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             //TODO: Optimize so it can find all objects of a single class in one query
             for (String className : objects.keySet()) {
@@ -1455,11 +1731,13 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
                     } catch (InvalidArgumentException ex) {
                         //Should not happen
                     }
-                    deleteObject(instance, releaseRelationships);
+                    deleteObject(instance, releaseRelationships, releasedContents);
                 }
             }
             tx.success();
         }
+        //The contents of the attachments can only be deleted once the attachments are gone
+        releasedContents.forEach(attachmentStore::deleteIfUnused);
     }
 
     @Override
@@ -1563,8 +1841,9 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
                 String otherNodeUuid = rel.getOtherNode(node).hasProperty(Constants.PROPERTY_UUID) ? rel.getOtherNode(node).getProperty(Constants.PROPERTY_UUID).toString() : null;
                 
                 if ((rel.getProperty(Constants.PROPERTY_NAME).equals(name) && 
-                        (otherNodeUuid != null && otherNodeUuid.equals(otherObjectId)) || otherObjectId.equals("-1")))
+                        (otherNodeUuid != null && otherNodeUuid.equals(otherObjectId)) || otherObjectId.equals("-1"))) {
                     rel.delete();
+                }
             }
             tx.success();
         }
@@ -1925,6 +2204,39 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         }
     }
     
+    @Override
+    public BusinessObjectLightPage getObjectChildrenPage(String className, String oid, String cursor, int limit)
+            throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException {
+        if (limit <= 0)
+            throw new InvalidArgumentException("The page size must be greater than zero");
+        
+        List<BusinessObjectLight> res = new ArrayList<>();
+        streamObjectChildren(className, oid, cursor, limit + 1, res::add);
+        return createPage(res, limit);
+    }
+    
+    @Override
+    public long streamObjectChildren(String className, String oid, String cursor, long limit, Consumer<BusinessObjectLight> consumer)
+            throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException {
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            Node parentNode;
+            if (oid == null || oid.equals("-1"))
+                parentNode = connectionManager.getConnectionHandler().findNode(specialNodeLabel, Constants.PROPERTY_NAME, Constants.NODE_DUMMYROOT);
+            else
+                parentNode = getInstanceOfClass(className, oid);
+            
+            HashMap<String, Object> parameters = new HashMap<>();
+            StringBuilder queryBuilder = new StringBuilder();
+            queryBuilder.append("MATCH (parent)<-[:CHILD_OF]-(instance:").append(inventoryObjectLabel).append(") "); //NOI18N
+            queryBuilder.append("WHERE id(parent) = $parentId "); //NOI18N
+            parameters.put("parentId", parentNode.getId()); //NOI18N
+            
+            long count = streamObjectsAfterCursor(queryBuilder, parameters, cursor, limit, consumer);
+            tx.success();
+            return count;
+        }
+    }
+    
     @Override
     public List<BusinessObjectLight> getSiblings(String className, String oid, int maxResults)
             throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException {
@@ -2065,6 +2377,102 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         }
     }
     
+    @Override
+    public BusinessObjectLightPage getObjectsOfClassLightPage(String className, String cursor, int limit) throws InvalidArgumentException, MetadataObjectNotFoundException {
+        if (limit <= 0)
+            throw new InvalidArgumentException("The page size must be greater than zero");
+        
+        List<BusinessObjectLight> res = new ArrayList<>();
+        streamObjectsOfClassLight(className, cursor, limit + 1, res::add);
+        return createPage(res, limit);
+    }
+    
+    @Override
+    public long streamObjectsOfClassLight(String className, String cursor, long limit, Consumer<BusinessObjectLight> consumer) 
+            throws InvalidArgumentException, MetadataObjectNotFoundException {
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            if (className == null)
+                throw new InvalidArgumentException("The className cannot be null");
+
+            Node classMetadataNode = connectionManager.getConnectionHandler().findNode(classLabel, Constants.PROPERTY_NAME, className);
+
+            if (classMetadataNode == null)
+                throw new MetadataObjectNotFoundException(className);
+
+            HashMap<String, Object> parameters = new HashMap<>();
+            StringBuilder queryBuilder = new StringBuilder();
+
+            if ((Boolean) classMetadataNode.getProperty(Constants.PROPERTY_ABSTRACT))
+                queryBuilder.append("MATCH (class:classes)<-[:EXTENDS*]-(subclass:classes)<-[:INSTANCE_OF]-"); //NOI18N
+            else
+                queryBuilder.append("MATCH (class:classes)<-[:INSTANCE_OF]-"); //NOI18N
+     
+            queryBuilder.append("(instance:" + Constants.LABEL_INVENTORY_OBJECTS + ") "); //NOI18N
+            queryBuilder.append("WHERE class.name = $className "); //NOI18N
+            parameters.put("className", className); //NOI18N
+
+            long count = streamObjectsAfterCursor(queryBuilder, parameters, cursor, limit, consumer);
+            tx.success();
+            return count;
+        }
+    }
+
+    @Override
+    public long streamObjectsOfClassWithAttributes(String className, List<String> attributeNames, 
+            Consumer<LocatedBusinessObjectLight> consumer) throws InvalidArgumentException, MetadataObjectNotFoundException {
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            if (className == null)
+                throw new InvalidArgumentException("The className cannot be null");
+            if (attributeNames == null || attributeNames.isEmpty())
+                throw new InvalidArgumentException("At least one attribute is required");
+
+            Node classMetadataNode = connectionManager.getConnectionHandler().findNode(classLabel, Constants.PROPERTY_NAME, className);
+
+            if (classMetadataNode == null)
+                throw new MetadataObjectNotFoundException(className);
+
+            HashMap<String, Object> parameters = new HashMap<>();
+            StringBuilder queryBuilder = new StringBuilder();
+
+            if ((Boolean) classMetadataNode.getProperty(Constants.PROPERTY_ABSTRACT))
+                queryBuilder.append("MATCH (class:classes)<-[:EXTENDS*]-(subclass:classes)<-[:INSTANCE_OF]-"); //NOI18N
+            else
+                queryBuilder.append("MATCH (class:classes)<-[:INSTANCE_OF]-"); //NOI18N
+     
+            queryBuilder.append("(instance:" + Constants.LABEL_INVENTORY_OBJECTS + ") "); //NOI18N
+            queryBuilder.append("WHERE class.name = $className "); //NOI18N
+            queryBuilder.append("RETURN instance"); //NOI18N
+            parameters.put("className", className); //NOI18N
+            
+            // The type of the requested attributes in each class found
+            HashMap<String, HashMap<String, AttributeMetadata>> attributesCache = new HashMap<>();
+            long count = 0;
+            
+            try (Result result = connectionManager.getConnectionHandler().execute(queryBuilder.toString(), parameters)) {
+                while (result.hasNext()) {
+                    Node instanceNode = (Node) result.next().get("instance"); //NOI18N
+                    String instanceClassName = (String) instanceNode.getSingleRelationship(RelTypes.INSTANCE_OF, 
+                            Direction.OUTGOING).getEndNode().getProperty(Constants.PROPERTY_NAME);
+                    
+                    HashMap<String, AttributeMetadata> classAttributes = getRequestedAttributes(instanceClassName, 
+                            attributeNames, attributesCache);
+                    if (classAttributes.size() < attributeNames.size())
+                        continue;
+                    
+                    HashMap<String, String> attributeValues = getAttributeValuesAsString(instanceNode, classAttributes);
+                    if (attributeValues.size() < attributeNames.size())
+                        continue;
+                    
+                    consumer.accept(new LocatedBusinessObjectLight(ogmService.createObjectLightFromNode(instanceNode), 
+                            attributeValues, new ArrayList<>()));
+                    count++;
+                }
+            }
+            tx.success();
+            return count;
+        }
+    }
+
     @Override
     public List<BusinessObject> getObjectsOfClass(String className, int maxResults)
             throws MetadataObjectNotFoundException, InvalidArgumentException {
@@ -2240,6 +2648,133 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         }
     }
     
+    @Override
+    public BusinessObjectLightPage getChildrenOfClassLightRecursivePage(String parentOid, String parentClass, String classToFilter, 
+            HashMap <String, String> attributesToFilter, String cursor, int limit) 
+        throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException {
+        if (limit <= 0)
+            throw new InvalidArgumentException("The page size must be greater than zero");
+        
+        List<BusinessObjectLight> res = new ArrayList<>();
+        streamChildrenOfClassLightRecursive(parentOid, parentClass, classToFilter, attributesToFilter, cursor, limit + 1, res::add);
+        return createPage(res, limit);
+    }
+    
+    @Override
+    public long streamChildrenOfClassLightRecursive(String parentOid, String parentClass, String classToFilter, 
+            HashMap <String, String> attributesToFilter, String cursor, long limit, Consumer<BusinessObjectLight> consumer) 
+        throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException {
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            Node classMetadataNode = connectionManager.getConnectionHandler().findNode(classLabel, Constants.PROPERTY_NAME, classToFilter);
+            
+            if (classMetadataNode == null)
+                throw new MetadataObjectNotFoundException(classToFilter);
+
+            HashMap<String, Object> parameters = new HashMap<>();
+            StringBuilder queryBuilder = new StringBuilder();
+            StringBuilder queryFilterBuilder = new StringBuilder();
+            
+            //Attributes to filter
+            if(attributesToFilter != null){
+                attributesToFilter.entrySet().forEach(entry -> {
+                    String key = (String)entry.getKey();
+                    String val = (String)entry.getValue();
+                    if (val != null) {
+                        parameters.put(key, val);
+                        queryFilterBuilder.append(String.format("AND TOLOWER(instance.%s) CONTAINS TOLOWER($%s) ", key, key)); //NOI18N
+                    }
+                });
+            }
+            
+            queryBuilder.append("MATCH (parentClass:classes {name:$className})<-[:INSTANCE_OF]-"); //NOI18N
+            queryBuilder.append("(parent:inventoryObjects {_uuid:$parentOid})<-[:CHILD_OF*]-"); //NOI18N
+            
+            if((Boolean) classMetadataNode.getProperty(Constants.PROPERTY_ABSTRACT))
+                queryBuilder.append("(instance:inventoryObjects)-[:INSTANCE_OF]->(x:classes)-[:EXTENDS*]->(c:classes {name:$classToFilter}) "); //NOI18N
+            else
+                queryBuilder.append("(instance:inventoryObjects)-[:INSTANCE_OF]->(childClass:classes {name:$classToFilter}) "); //NOI18N
+            
+            queryBuilder.append("WHERE parentClass.name=$className "); //NOI18N            
+            queryBuilder.append(queryFilterBuilder);
+            
+            parameters.put("className", parentClass); //NOI18N
+            parameters.put("parentOid", parentOid); //NOI18N
+            parameters.put("classToFilter", classToFilter); //NOI18N
+        
+            long count = streamObjectsAfterCursor(queryBuilder, parameters, cursor, limit, consumer);
+            tx.success();
+            return count;
+        }
+    }
+
+    @Override
+    public long streamChildrenOfClassRecursive(String parentOid, String parentClass, String classToFilter, 
+            List<String> attributeNames, Consumer<LocatedBusinessObjectLight> consumer) 
+        throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException {
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            Node classMetadataNode = connectionManager.getConnectionHandler().findNode(classLabel, Constants.PROPERTY_NAME, classToFilter);
+            
+            if (classMetadataNode == null)
+                throw new MetadataObjectNotFoundException(classToFilter);
+            
+            getInstanceOfClass(parentClass, parentOid);
+
+            HashMap<String, Object> parameters = new HashMap<>();
+            StringBuilder queryBuilder = new StringBuilder();
+            
+            queryBuilder.append("MATCH (parentClass:classes {name:$className})<-[:INSTANCE_OF]-(parent:inventoryObjects {_uuid:$parentOid}) "); //NOI18N
+            queryBuilder.append("MATCH path = (parent)<-[:CHILD_OF*]-"); //NOI18N
+            
+            if((Boolean) classMetadataNode.getProperty(Constants.PROPERTY_ABSTRACT))
+                queryBuilder.append("(instance:inventoryObjects)-[:INSTANCE_OF]->(x:classes)-[:EXTENDS*]->(c:classes {name:$classToFilter}) "); //NOI18N
+            else
+                queryBuilder.append("(instance:inventoryObjects)-[:INSTANCE_OF]->(childClass:classes {name:$classToFilter}) "); //NOI18N
+            
+            queryBuilder.append("RETURN instance, nodes(path) AS path"); //NOI18N
+            
+            parameters.put("className", parentClass); //NOI18N
+            parameters.put("parentOid", parentOid); //NOI18N
+            parameters.put("classToFilter", classToFilter); //NOI18N
+            
+            // The same parents are shared by many children, so they're mapped only once
+            HashMap<Long, BusinessObjectLight> parentsCache = new HashMap<>();
+            // The type of the requested attributes in each class found
+            HashMap<String, HashMap<String, AttributeMetadata>> attributesCache = new HashMap<>();
+            long count = 0;
+            
+            try (Result result = connectionManager.getConnectionHandler().execute(queryBuilder.toString(), parameters)) {
+                while (result.hasNext()) {
+                    Map<String, Object> row = result.next();
+                    Node instanceNode = (Node) row.get("instance"); //NOI18N
+                    List<Node> pathNodes = (List<Node>) row.get("path"); //NOI18N
+                    
+                    BusinessObjectLight instance = ogmService.createObjectLightFromNode(instanceNode);
+                    
+                    List<BusinessObjectLight> parents = new ArrayList<>();
+                    // The path starts at the root parent and ends at the instance itself
+                    for (int i = pathNodes.size() - 2; i >= 0; i--) {
+                        Node parentNode = pathNodes.get(i);
+                        BusinessObjectLight parent = parentsCache.get(parentNode.getId());
+                        if (parent == null) {
+                            parent = ogmService.createObjectLightFromNode(parentNode);
+                            parentsCache.put(parentNode.getId(), parent);
+                        }
+                        parents.add(parent);
+                    }
+                    
+                    HashMap<String, AttributeMetadata> classAttributes = getRequestedAttributes(instance.getClassName(), 
+                            attributeNames, attributesCache);
+                    
+                    consumer.accept(new LocatedBusinessObjectLight(instance, 
+                            getAttributeValuesAsString(instanceNode, classAttributes), parents));
+                    count++;
+                }
+            }
+            tx.success();
+            return count;
+        }
+    }
+    
     @Override
     public List<BusinessObjectLight> getSpecialChildrenOfClassLightRecursive(String parentOid, String parentClass, String classToFilter, int maxResults) 
         throws MetadataObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException {
@@ -2355,6 +2890,26 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         }
     }
 
+    @Override
+    public HashMap<String, List<BusinessObjectLight>> getSpecialAttribute(List<String> objectIds, String specialAttributeName) {
+        HashMap<String, List<BusinessObjectLight>> res = new HashMap<>();
+        for (String objectId : objectIds)
+            res.put(objectId, new ArrayList<>());
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            HashMap<String, Object> parameters = new HashMap<>();
+            parameters.put("objectIds", new ArrayList<>(res.keySet())); //NOI18N
+            parameters.put("specialAttributeName", specialAttributeName); //NOI18N
+            try (Result result = queryCatalog.execute(QUERY_SPECIAL_ATTRIBUTE_OF_OBJECTS, parameters)) {
+                while (result.hasNext()) {
+                    Map<String, Object> row = result.next();
+                    res.get((String) row.get("objectId")).add(ogmService.createObjectLightFromNode((Node) row.get("related"))); //NOI18N
+                }
+            }
+            tx.success();
+        }
+        return res;
+    }
+
     @Override
     public List<AnnotatedBusinessObjectLight> getAnnotatedSpecialAttribute(String objectClass, String objectId, String specialAttributeName) 
             throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, InvalidArgumentException {
@@ -2907,39 +3462,53 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     @Override
     public long attachFileToObject(String name, String tags, byte[] file, String className, String objectId) 
             throws BusinessObjectNotFoundException, OperationNotPermittedException, MetadataObjectNotFoundException, InvalidArgumentException {
+        return attachFileToObject(name, tags, new ByteArrayInputStream(file), className, objectId);
+    }
+    
+    @Override
+    public long attachFileToObject(String name, String tags, InputStream file, String className, String objectId) 
+            throws BusinessObjectNotFoundException, OperationNotPermittedException, MetadataObjectNotFoundException, InvalidArgumentException {
         
         float maxAttachmentSize = Float.valueOf(configuration.getProperty("maxAttachmentSize", DEFAULT_MAX_ATTACHMENT_SIZE)) * 1048576; // Default maxSize value is 10MB
         
-        String attachmentsPath = configuration.getProperty("attachmentsPath", DEFAULT_ATTACHMENTS_PATH);
-        
-        if (!Files.exists(Paths.get(attachmentsPath)))
-            throw new InvalidArgumentException(String.format(ts.getTranslatedString("module.general.messages.invalid-path"), attachmentsPath));
-            
-        if (file.length > maxAttachmentSize)
-            throw new InvalidArgumentException(String.format("The file size exceeds the maximum size allowed (%s MB)", maxAttachmentSize));
+        if (!Files.exists(attachmentStore.getAttachmentsPath()))
+            throw new InvalidArgumentException(String.format(ts.getTranslatedString("module.general.messages.invalid-path"), attachmentStore.getAttachmentsPath()));
         
         if (name == null || name.trim().isEmpty())
             throw new InvalidArgumentException("The file name can not be an empty string");
         
-        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            Node objectNode = getInstanceOfClass(className, objectId);
-            
-            Node fileObjectNode = connectionManager.getConnectionHandler().createNode(Label.label(Constants.LABEL_ATTACHMENTS));
-            fileObjectNode.setProperty(Constants.PROPERTY_CREATION_DATE, Calendar.getInstance().getTimeInMillis());
-            fileObjectNode.setProperty(Constants.PROPERTY_NAME, name);
-            fileObjectNode.setProperty(Constants.PROPERTY_TAGS, tags == null ? "" : tags);
+        AttachmentStore.StoredContent content;
+        try {
+            content = attachmentStore.store(file, (long) maxAttachmentSize);
+        } catch (AttachmentStore.ContentTooLargeException ex) {
+            throw new InvalidArgumentException(ex.getMessage());
+        } catch (IOException ex) {
+            throw new OperationNotPermittedException(ex.getMessage());
+        }
+        
+        long fileObjectId;
+        boolean committed = false; //Set only once the attachment is committed
+        try {
+            try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                Node objectNode = getInstanceOfClass(className, objectId);
             
-            Relationship hasAttachmentRelationship = objectNode.createRelationshipTo(fileObjectNode, RelTypes.HAS_ATTACHMENT);
-            hasAttachmentRelationship.setProperty(Constants.PROPERTY_NAME, "attachments");
+                Node fileObjectNode = connectionManager.getConnectionHandler().createNode(Label.label(Constants.LABEL_ATTACHMENTS));
+                fileObjectNode.setProperty(Constants.PROPERTY_CREATION_DATE, Calendar.getInstance().getTimeInMillis());
+                fileObjectNode.setProperty(Constants.PROPERTY_NAME, name);
+                fileObjectNode.setProperty(Constants.PROPERTY_TAGS, tags == null ? "" : tags);
+                attachmentStore.setContent(fileObjectNode, content);
             
-            String fileName = objectNode.getProperty(Constants.PROPERTY_UUID) + "_" + fileObjectNode.getId();
-            Util.saveFile((String)configuration.get("attachmentsPath"), fileName, file);
+                Relationship hasAttachmentRelationship = objectNode.createRelationshipTo(fileObjectNode, RelTypes.HAS_ATTACHMENT);
+                hasAttachmentRelationship.setProperty(Constants.PROPERTY_NAME, "attachments");
             
-            tx.success();
-            return fileObjectNode.getId();
-        } catch(IOException ex) {
-            throw new OperationNotPermittedException(ex.getMessage());
+                tx.success();
+                fileObjectId = fileObjectNode.getId();
+            }
+            committed = true;
+        } finally {
+            attachmentStore.release(content, committed);
         }
+        return fileObjectId;
     }
 
     @Override
@@ -2959,19 +3528,30 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
 
     @Override
     public FileObject getFile(long fileObjectId, String className, String objectId) throws BusinessObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException {
+        FileObjectContent content = getFileContent(fileObjectId, className, objectId);
+        try {
+            ByteArrayOutputStream file = new ByteArrayOutputStream((int) Math.min(content.getSize(), Integer.MAX_VALUE));
+            content.transferTo(Channels.newChannel(file));
+            return new FileObject(fileObjectId, content.getName(), content.getTags(), content.getCreationDate(), file.toByteArray());
+        } catch(IOException ex) {
+            InvalidArgumentException nestedEx = new InvalidArgumentException(String.format(ts.getTranslatedString(KEY_PREFIX + ".30"), fileObjectId, ex.getMessage()));
+            nestedEx.setPrefix(KEY_PREFIX);
+            nestedEx.setCode(30);
+            nestedEx.setMessageArgs(fileObjectId, ex.getMessage());
+            throw nestedEx;
+        }
+    }
+    
+    @Override
+    public FileObjectContent getFileContent(long fileObjectId, String className, String objectId) throws BusinessObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException {
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             Node objectNode = getInstanceOfClass(className, objectId);
 
             for (Relationship fileObjectRelationship : objectNode.getRelationships(RelTypes.HAS_ATTACHMENT, Direction.OUTGOING)) {
                 if (fileObjectRelationship.getEndNode().getId() == fileObjectId) {
-                    String fileName = objectNode.getProperty(Constants.PROPERTY_UUID) + "_" + fileObjectId;
                     try {
-                        byte[] background = Util.readBytesFromFile(configuration.getProperty("attachmentsPath", DEFAULT_ATTACHMENTS_PATH) + "/" + fileName);
-                        return new FileObject(fileObjectId, (String)fileObjectRelationship.getEndNode().getProperty(Constants.PROPERTY_NAME), 
-                                                    (String)fileObjectRelationship.getEndNode().getProperty(Constants.PROPERTY_TAGS), 
-                                                    (long)fileObjectRelationship.getEndNode().getProperty(Constants.PROPERTY_CREATION_DATE), 
-                                                    background);
-                    }catch(IOException ex) {
+                        return attachmentStore.getContent(fileObjectRelationship.getEndNode(), (String) objectNode.getProperty(Constants.PROPERTY_UUID));
+                    } catch(IOException ex) {
                         InvalidArgumentException nestedEx = new InvalidArgumentException(String.format(ts.getTranslatedString(KEY_PREFIX + ".30"), fileObjectId, ex.getMessage()));
                         nestedEx.setPrefix(KEY_PREFIX);
                         nestedEx.setCode(30);
@@ -2991,27 +3571,29 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     @Override
     public void detachFileFromObject(long fileObjectId, String className, String objectId) 
             throws BusinessObjectNotFoundException, InvalidArgumentException, MetadataObjectNotFoundException {
+        String contentHash = null;
+        boolean found = false;
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             Node objectNode = getInstanceOfClass(className, objectId);
 
             for (Relationship fileObjectRelationship : objectNode.getRelationships(RelTypes.HAS_ATTACHMENT, Direction.OUTGOING)) {
                 if (fileObjectRelationship.getEndNode().getId() == fileObjectId) {
+                    Node fileObjectNode = fileObjectRelationship.getEndNode();
                     fileObjectRelationship.delete();
-                    fileObjectRelationship.getEndNode().delete();
-                    
-                    try {
-                        String fileName = objectNode.getProperty(Constants.PROPERTY_UUID) + "_" + fileObjectId;
-                        new File(configuration.getProperty("attachmentsPath", DEFAULT_ATTACHMENTS_PATH) + File.separator + fileName).delete();
-                    } catch(Exception ex) {
-                        throw new InvalidArgumentException(String.format("File with id %s could not be retrieved: %s", fileObjectId, ex.getMessage()));
-                    }
+                    contentHash = attachmentStore.deleteContent(fileObjectNode, (String) objectNode.getProperty(Constants.PROPERTY_UUID));
+                    fileObjectNode.delete();
                     tx.success();
-                    return;
+                    found = true;
+                    break;
                 }
             }
             
-            throw new InvalidArgumentException(String.format("The file with id %s could not be found", fileObjectId));
+            if (!found)
+                throw new InvalidArgumentException(String.format("The file with id %s could not be found", fileObjectId));
         }
+        //The contents can only be deleted once the attachment is gone
+        if (contentHash != null)
+            attachmentStore.deleteIfUnused(contentHash);
     }
     
     @Override
@@ -3047,12 +3629,8 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     @Override   
     public Map<BusinessObjectLight, List<FileObjectLight>> getFilesFromRelatedListTypeItems(String uuid) {
         try(Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            String cypherQuery = "MATCH (object:" + inventoryObjectLabel + " {" + Constants.PROPERTY_UUID + ":'" + uuid + "'}) -[:" + (RelTypes.RELATED_TO.toString() + "]-> (listTypeItem) - " +
-                                 " [:"+ RelTypes.HAS_ATTACHMENT + "] -> (file), (listTypeItem) - [:INSTANCE_OF]->(modelClass:classes)" +
-                                 " RETURN DISTINCT listTypeItem._uuid as ltiId, listTypeItem.name as ltiName, modelClass.name as modelClassName, modelClass.displayName as modelClassDisplayName, file");    
-                        
             Map<BusinessObjectLight, List<FileObjectLight>> attributeFiles = new HashMap<>();
-            Result result = connectionManager.getConnectionHandler().execute(cypherQuery);
+            Result result = queryCatalog.execute(QUERY_FILES_FROM_RELATED_LIST_TYPE_ITEMS, Collections.singletonMap("uuid", uuid)); //NOI18N
                     
             while (result.hasNext()) {
                 Map<String, Object> row = result.next();
@@ -3078,13 +3656,19 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             String objectAId, String objectBClassName, String objectBId, String relationshipName) throws InvalidArgumentException {
         List<BusinessObjectLightList> paths = new ArrayList<>();
 
-        String cypherQuery = String.format("MATCH path = (a)-[:%s*1..30{name:\"%s\"}]-(b) " +
-                            "WHERE a._uuid = '%s' AND b._uuid = '%s' " +
-                            "RETURN nodes(path) as path LIMIT %s", RelTypes.RELATED_TO_SPECIAL, relationshipName, objectAId, objectBId, 
-                                                                    aem.getConfiguration().get("maxRoutes")); //NOI18N
+        HashMap<String, Object> parameters = new HashMap<>();
+        parameters.put("objectAId", objectAId); //NOI18N
+        parameters.put("objectBId", objectBId); //NOI18N
+        parameters.put("relationshipName", relationshipName); //NOI18N
+        try {
+            parameters.put("limit", Long.valueOf(String.valueOf(aem.getConfiguration().get("maxRoutes")).trim())); //NOI18N
+        } catch (NumberFormatException ex) {
+            throw new InvalidArgumentException(String.format("The configuration variable maxRoutes is not a valid number: %s", 
+                    aem.getConfiguration().get("maxRoutes"))); //NOI18N
+        }
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
            
-            Result result = connectionManager.getConnectionHandler().execute(cypherQuery);
+            Result result = queryCatalog.execute(QUERY_ROUTES_THROUGH_SPECIAL_RELATIONSHIPS, parameters);
             Iterator<List<Node>> column = result.columnAs("path");
             
             //Filtering the routes with repeated nodes didn't work using a cypher query, so we do it here
@@ -3127,11 +3711,11 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             
             List<BusinessObjectLight> warehouses = new ArrayList();
                                     
-            String cypherQuery = ""
-                + "MATCH (warehouse:inventoryObjects)-[:RELATED_TO_SPECIAL{ name: 'warehouseHas' }]-(child:inventoryObjects)-[:CHILD_OF*]->(parent:inventoryObjects)-[:INSTANCE_OF]->(class:classes{name: '" + objectClassName + "'}) "
-                + "WHERE parent._uuid = '" + objectId + "' RETURN warehouse;";
+            HashMap<String, Object> parameters = new HashMap<>();
+            parameters.put("className", objectClassName); //NOI18N
+            parameters.put("objectId", objectId); //NOI18N
             
-            Result result = connectionManager.getConnectionHandler().execute(cypherQuery);
+            Result result = queryCatalog.execute(QUERY_WAREHOUSES_IN_OBJECT, parameters);
             ResourceIterator<Node> warehouseColumn = result.columnAs("warehouse");
             List<Node> lstWarehouseColumn = Iterators.asList(warehouseColumn);
             
@@ -3158,12 +3742,11 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             
             List<BusinessObjectLight> warehouses = new ArrayList();
                                                 
-            String cypherQuery = ""
-                + "MATCH (class{name:'" + objectClassName + "'})<-[:INSTANCE_OF]-(inventoryObject)-[:CHILD_OF_SPECIAL{name: 'pool'}]->(pool)-[:CHILD_OF_SPECIAL{name: 'pool'}]->(warehouse) "
-                + "WHERE inventoryObject._uuid = '" + objectId + "' "
-                + "RETURN warehouse;";
+            HashMap<String, Object> parameters = new HashMap<>();
+            parameters.put("className", objectClassName); //NOI18N
+            parameters.put("objectId", objectId); //NOI18N
             
-            Result result = connectionManager.getConnectionHandler().execute(cypherQuery);
+            Result result = queryCatalog.execute(QUERY_WAREHOUSES_TO_OBJECT, parameters);
             ResourceIterator<Node> warehouseColumn = result.columnAs("warehouse");
             List<Node> lstWarehouseColumn = Iterators.asList(warehouseColumn);
             
@@ -3193,12 +3776,11 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             
             List<BusinessObjectLight> physicalNodes = new ArrayList();
                                     
-            String cypherQuery = ""
-                + "MATCH (class{name:'" + objectClassName + "'})<-[:INSTANCE_OF]-(inventoryObject)-[:CHILD_OF_SPECIAL{name: 'pool'}]->(pool)-[:CHILD_OF_SPECIAL{name: 'pool'}]->(warehouse)-[:RELATED_TO_SPECIAL{name: 'warehouseHas'}]->(physicalNode) "
-                + "WHERE inventoryObject._uuid = '" + objectId + "' "
-                + "RETURN physicalNode;";
+            HashMap<String, Object> parameters = new HashMap<>();
+            parameters.put("className", objectClassName); //NOI18N
+            parameters.put("objectId", objectId); //NOI18N
             
-            Result result = connectionManager.getConnectionHandler().execute(cypherQuery);
+            Result result = queryCatalog.execute(QUERY_PHYSICAL_NODES_TO_OBJECT_IN_WAREHOUSE, parameters);
             ResourceIterator<Node> physicalNodeColumn = result.columnAs("physicalNode");
             List<Node> lstphysicalNodeColumn = Iterators.asList(physicalNodeColumn);
             
@@ -3289,6 +3871,7 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             String reportName = reportNode.hasProperty(Constants.PROPERTY_NAME) ? (String) reportNode.getProperty(Constants.PROPERTY_NAME) : "";
             
             reportNode.delete();
+            scriptCompilationService.invalidate(ScriptCompilationService.SCRIPT_TYPE_REPORT, reportId);
             
             tx.success();
             return new ChangeDescriptor("","","", String.format("Deleted report %s", reportName));
@@ -3343,6 +3926,7 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
                 newValues += " " + script;
                 
                 reportNode.setProperty(Constants.PROPERTY_SCRIPT, script);
+                scriptCompilationService.invalidate(ScriptCompilationService.SCRIPT_TYPE_REPORT, reportId);
             }
 
             tx.success();
@@ -3397,20 +3981,11 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             if (mainClassNode == null)
                 throw new MetadataObjectNotFoundException(String.format("Class %s could not be found", className));
             
-            String cypherQuery;
-            
-            if (recursive)
-                cypherQuery = "MATCH (theClass:classes)-[:EXTENDS*]->(aSuperClass) WHERE (aSuperClass.name = \"" + className + "\" OR theClass.name = \"" + className + "\")" +
-                        " WITH Collect(theClass)+Collect(aSuperClass) as res " +
-                        " UNWIND res as nodes" +
-                        " MATCH (theReport:reports)<-[:HAS_REPORT]-(aClass) WHERE "
-                        + "(aClass.name = nodes.name) " + (includeDisabled ? "" : " AND theReport.enabled = true") + 
-                        " RETURN DISTINCT theReport ORDER BY theReport.name ASC";
-            else
-                cypherQuery = "MATCH(theReport:reports)<-[:HAS_REPORT]-(aClass) "
-                    + "WHERE aClass.name=\"" + className + "\"" + (includeDisabled ? "" : " AND theReport.enabled = true") + " RETURN theReport ORDER BY theReport.name ASC ";
+            HashMap<String, Object> parameters = new HashMap<>();
+            parameters.put("className", className); //NOI18N
+            parameters.put("includeDisabled", includeDisabled); //NOI18N
                 
-            Result result = connectionManager.getConnectionHandler().execute(cypherQuery);
+            Result result = queryCatalog.execute(recursive ? QUERY_CLASS_REPORTS_RECURSIVE : QUERY_CLASS_REPORTS, parameters);
             ResourceIterator<Node> reports = result.columnAs("theReport");
             List<Node> lstReports = Iterators.asList(reports);
 
@@ -3477,6 +4052,18 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
 
     @Override
     public byte[] executeClassLevelReport(String objectClassName, String objectId, long reportId) throws MetadataObjectNotFoundException, ApplicationObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException {
+        // The report is rendered inside the transaction, in case it's built lazily on top of the nodes
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            try {
+                return buildClassLevelReport(objectClassName, objectId, reportId).asByteArray();
+            } catch (InvalidArgumentException | RuntimeException ex) {
+                return ("<html><head><title>Error</title></head><body><center>" + ex.getMessage() + "</center></body></html>").getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    @Override
+    public InventoryReport buildClassLevelReport(String objectClassName, String objectId, long reportId) throws MetadataObjectNotFoundException, ApplicationObjectNotFoundException, BusinessObjectNotFoundException, InvalidArgumentException {
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             
             Node reportNode = Util.findNodeByLabelAndId(connectionManager.getConnectionHandler(), reportsLabel, reportId);
@@ -3499,28 +4086,40 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             environmentParameters.setVariable("objectClassName", objectClassName); //NOI18N
             environmentParameters.setVariable("objectId", objectId); //NOI18N
             
+            Object theResult;
             try {
-                GroovyShell shell = new GroovyShell(BusinessEntityManager.class.getClassLoader(), environmentParameters);
-                Object theResult = shell.evaluate(script);
-                
-                if (theResult == null)
-                    throw new InvalidArgumentException("The script returned a null object. Please check the syntax.");
-                else {
-                    if (theResult instanceof InventoryReport)
-                        return ((InventoryReport)theResult).asByteArray();
-                    else
-                        throw new InvalidArgumentException("The script does not return an InventoryReport object. Please check the return value.");
-                }
+                theResult = scriptCompilationService.evaluate(ScriptCompilationService.SCRIPT_TYPE_REPORT, reportId, script, environmentParameters);
             } catch(Exception ex) {
-                return ("<html><head><title>Error</title></head><body><center>" + ex.getMessage() + "</center></body></html>").getBytes(StandardCharsets.UTF_8);
+                throw new InvalidArgumentException(ex.getMessage());
+            }
+            
+            if (theResult == null)
+                throw new InvalidArgumentException("The script returned a null object. Please check the syntax.");
+            else {
+                if (theResult instanceof InventoryReport)
+                    return (InventoryReport)theResult;
+                else
+                    throw new InvalidArgumentException("The script does not return an InventoryReport object. Please check the return value.");
             }
         }
     }
 
     @Override
     public byte[] executeInventoryLevelReport(long reportId, List<StringPair> parameters) throws ApplicationObjectNotFoundException, InvalidArgumentException {
+        // The report is rendered inside the transaction, in case it's built lazily on top of the nodes
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            
+            try {
+                return buildInventoryLevelReport(reportId, parameters).asByteArray();
+            } catch (InvalidArgumentException | RuntimeException ex) {
+                return ("<html><head><title>Error</title></head><body><center>" + ex.getMessage() + "</center></body></html>").getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    @Override
+    public InventoryReport buildInventoryLevelReport(long reportId, List<StringPair> parameters) throws ApplicationObjectNotFoundException, InvalidArgumentException {
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            
             Node reportNode = Util.findNodeByLabelAndId(connectionManager.getConnectionHandler(), reportsLabel, reportId);
             
             if (reportNode == null)
@@ -3541,20 +4140,20 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             environmentParameters.setVariable("aem", aem); //NOI18N
             environmentParameters.setVariable("bem", this); //NOI18N
             
+            Object theResult;
             try {
-                GroovyShell shell = new GroovyShell(BusinessEntityManager.class.getClassLoader(), environmentParameters);
-                Object theResult = shell.evaluate(script);
-                
-                if (theResult == null)
-                    throw new InvalidArgumentException("The script returned a null object. Please check the syntax.");
-                else {
-                    if (theResult instanceof InventoryReport)
-                        return ((InventoryReport)theResult).asByteArray();
-                    else
-                        throw new InvalidArgumentException("The script does not return an InventoryReport instance. Please check the return value.");
-                }
+                theResult = scriptCompilationService.evaluate(ScriptCompilationService.SCRIPT_TYPE_REPORT, reportId, script, environmentParameters);
             } catch(Exception ex) {
-                return ("<html><head><title>Error</title></head><body><center>" + ex.getMessage() + "</center></body></html>").getBytes(StandardCharsets.UTF_8);
+                throw new InvalidArgumentException(ex.getMessage());
+            }
+            
+            if (theResult == null)
+                throw new InvalidArgumentException("The script returned a null object. Please check the syntax.");
+            else {
+                if (theResult instanceof InventoryReport)
+                    return (InventoryReport)theResult;
+                else
+                    throw new InvalidArgumentException("The script does not return an InventoryReport instance. Please check the return value.");
             }
         }
     }
@@ -3747,6 +4346,40 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
        
     }
     
+    @Override
+    public BusinessObjectLightPage getPoolItemsPage(String poolId, String cursor, int limit)
+            throws ApplicationObjectNotFoundException, InvalidArgumentException {
+        if (limit <= 0)
+            throw new InvalidArgumentException("The page size must be greater than zero");
+        
+        List<BusinessObjectLight> res = new ArrayList<>();
+        streamPoolItems(poolId, cursor, limit + 1, res::add);
+        return createPage(res, limit);
+    }
+    
+    @Override
+    public long streamPoolItems(String poolId, String cursor, long limit, Consumer<BusinessObjectLight> consumer)
+            throws ApplicationObjectNotFoundException, InvalidArgumentException {
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()){
+            if (poolId == null)
+                throw new InvalidArgumentException(ts.getTranslatedString("apis.persistence.bem.messages.is-parent-pool.id.non-null"));
+                        
+            HashMap<String, Object> parameters = new HashMap<>();
+            StringBuilder queryBuilder = new StringBuilder();
+            
+            queryBuilder.append("MATCH (pool:pools {_uuid:$_uuid})"); //NOI18N
+            queryBuilder.append("<-[r:").append(RelTypes.CHILD_OF_SPECIAL).append("]-"); //NOI18N
+            //The label keeps the pools out, and lets the planner use the index on the uuid to sort
+            queryBuilder.append("(instance:").append(inventoryObjectLabel).append(") "); //NOI18N
+            queryBuilder.append("WHERE r.name='").append(Constants.REL_PROPERTY_POOL).append("' "); //NOI18N
+            parameters.put("_uuid", poolId); //NOI18N
+            
+            long count = streamObjectsAfterCursor(queryBuilder, parameters, cursor, limit, consumer);
+            tx.success();
+            return count;
+        }
+    }
+
     @Override
     public List<BusinessObjectLight> getPoolItemsByClassName(String poolId, String className, int page, int limit)
             throws ApplicationObjectNotFoundException, InvalidArgumentException 
@@ -3877,30 +4510,499 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         if (classNode == null)
             throw new MetadataObjectNotFoundException(String.format("Class with id %s could not be found", classId));
 
-        Iterable<Relationship> iteratorInstances = classNode.getRelationships(RelTypes.INSTANCE_OF);
-        Iterator<Relationship> instances = iteratorInstances.iterator();
-        while (instances.hasNext()) {
-            Node otherSide = instances.next().getStartNode();
-            
-            String otherSideUuid = otherSide.hasProperty(Constants.PROPERTY_UUID) ? (String) otherSide.getProperty(Constants.PROPERTY_UUID) : null;
-            if (otherSideUuid != null && otherSideUuid.equals(oid))
-                return otherSide;
-        }
-        throw new BusinessObjectNotFoundException((String)classNode.getProperty(Constants.PROPERTY_NAME), oid);
+        return getInstanceOfClass(classNode, oid);
     }
 
+    /**
+     * Boiler-plate code. Gets a particular instance given its class node and the oid. Callers must handle associated transactions
+     * @param classNode The node of the class the object should be instance of
+     * @param oid object id
+     * @return a Node representing the entity
+     * @throws BusinessObjectNotFoundException If the object could not be found or it is not an instance of the given class
+     */
     public Node getInstanceOfClass(Node classNode, String oid) throws BusinessObjectNotFoundException{
-        Iterable<Relationship> iterableInstances = classNode.getRelationships(RelTypes.INSTANCE_OF);
-        Iterator<Relationship> instances = iterableInstances.iterator();
+        Node instance = findInstanceByUuid(classNode, oid);
+        if (instance == null)
+            throw new BusinessObjectNotFoundException((String)classNode.getProperty(Constants.PROPERTY_NAME), oid);
+        return instance;
+    }
+    
+    /**
+     * Finds an object by its uuid using the schema index on the inventory objects (see {@link #createUuidIndexes()}), 
+     * then checks that it is a direct instance of the given class. This way, the cost of the lookup does not 
+     * depend on the number of instances of the class. List type items are also checked, as they are instances 
+     * of (list type) classes too, using their own index. Callers must handle associated transactions
+     * @param classNode The node of the class the object should be instance of
+     * @param oid The object id
+     * @return The object node or null if there is no object with such id or if it is not an instance of the given class
+     */
+    private Node findInstanceByUuid(Node classNode, String oid) {
+        if (oid == null)
+            return null;
+        
+        Node instance = connectionManager.getConnectionHandler().findNode(inventoryObjectLabel, Constants.PROPERTY_UUID, oid);
+        if (instance == null)
+            instance = connectionManager.getConnectionHandler().findNode(listTypeItemLabel, Constants.PROPERTY_UUID, oid);
+        if (instance == null)
+            return null;
+        
+        Relationship instanceOfRelationship = instance.getSingleRelationship(RelTypes.INSTANCE_OF, Direction.OUTGOING);
+        return instanceOfRelationship != null && instanceOfRelationship.getEndNode().equals(classNode) ? instance : null;
+    }
+    
+    /**
+     * Makes sure there are schema indexes on the property _uuid of the inventory objects and of the list type items, 
+     * so the objects can be found by id without scanning all the instances of their class. The indexes that do not 
+     * exist are created and the method waits until they are online. Schema changes can not be mixed with data changes, 
+     * so this is done in its own transaction.
+     */
+    private void createUuidIndexes() {
+        for (Label label : new Label[] { inventoryObjectLabel, listTypeItemLabel }) {
+            try {
+                boolean indexExists = false;
+                try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                    Schema schema = connectionManager.getConnectionHandler().schema();
+                    for (IndexDefinition index : schema.getIndexes(label)) {
+                        Iterator<String> propertyKeys = index.getPropertyKeys().iterator();
+                        if (propertyKeys.hasNext() && Constants.PROPERTY_UUID.equals(propertyKeys.next()) && !propertyKeys.hasNext()) {
+                            indexExists = true;
+                            break;
+                        }
+                    }
+
+                    if (!indexExists) {
+                        Logger.getLogger(BusinessEntityManagerImpl.class.getName()).log(Level.INFO, 
+                                String.format("[KUWAIBA] Creating index on %s(%s)", label, Constants.PROPERTY_UUID));
+                        schema.indexFor(label).on(Constants.PROPERTY_UUID).create();
+                    }
+                    tx.success();
+                }
+            } catch (Exception ex) { // The indexes are an optimization. If they are not available, the lookups will still work, but slower
+                Logger.getLogger(BusinessEntityManagerImpl.class.getName()).log(Level.SEVERE, 
+                        String.format("[KUWAIBA] [%s] The index on %s(%s) could not be created: %s", 
+                        Calendar.getInstance().getTime(), label, Constants.PROPERTY_UUID, ex.getMessage()));
+            }
+        }
+        
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            connectionManager.getConnectionHandler().schema().awaitIndexesOnline(SCHEMA_INDEX_ONLINE_TIMEOUT, TimeUnit.SECONDS);
+            tx.success();
+        } catch (Exception ex) {
+            Logger.getLogger(BusinessEntityManagerImpl.class.getName()).log(Level.SEVERE, 
+                    String.format("[KUWAIBA] [%s] The indexes on %s could not be brought online: %s", 
+                    Calendar.getInstance().getTime(), Constants.PROPERTY_UUID, ex.getMessage()));
+        }
+    }
+    
+    /**
+     * Suggests inventory objects using the {@link SearchIndex}. The objects whose names contain the search string come first, 
+     * most relevant first, followed by the instances of the classes whose names or display names contain the search string. 
+     * The candidates are read only until enough suggestions are found, so there is no need to sort all the matches. 
+     * Must be called inside a transaction.
+     * @param filter The search string.
+     * @param skip How many suggestions to skip.
+     * @param limit Max number of suggestions. -1 for no limit.
+     * @param superClasses If not null nor empty, only instances of these classes or their subclasses are suggested.
+     * @return The suggested objects, or null if the search index can not answer this search (see {@link SearchIndex#findCandidates(java.lang.String)}).
+     */
+    private List<Node> findSuggestedObjects(String filter, int skip, int limit, String[] superClasses) {
+        long startTime = System.nanoTime();
+        Result candidates = searchIndex.findCandidates(filter);
+        if (candidates == null)
+            return null;
+        
+        String lowerCaseFilter = filter.toLowerCase();
+        long wanted = limit < 0 ? Long.MAX_VALUE : (long) Math.max(skip, 0) + limit;
+        HashMap<String, Boolean> suggestedClasses = new HashMap<>();
+        LinkedHashSet<Node> matches = new LinkedHashSet<>();
+        
+        while (matches.size() < wanted && candidates.hasNext()) {
+            Node candidate = (Node) candidates.next().get("node"); //NOI18N
+            String name = (String) candidate.getProperty(Constants.PROPERTY_NAME, null);
+            // The index matches trigrams, not the whole search string
+            if (name == null || !name.toLowerCase().contains(lowerCaseFilter))
+                continue;
+            Relationship instanceOf = candidate.getSingleRelationship(RelTypes.INSTANCE_OF, Direction.OUTGOING);
+            if (instanceOf != null && isSuggestedClass((String) instanceOf.getEndNode().getProperty(Constants.PROPERTY_NAME), superClasses, suggestedClasses))
+                matches.add(candidate);
+        }
+        candidates.close();
+        
+        if (matches.size() < wanted) {
+            for (String className : getClassesWithFilter(filter)) {
+                if (matches.size() >= wanted)
+                    break;
+                if (!isSuggestedClass(className, superClasses, suggestedClasses))
+                    continue;
+                // Objects already suggested by name may be found again, so up to wanted (not wanted - matches.size()) are read
+                ResourceIterator<Node> instances = getInstancesOfClass(className, 0, wanted);
+                while (matches.size() < wanted && instances.hasNext())
+                    matches.add(instances.next());
+                instances.close();
+            }
+        }
+        searchIndex.recordQuery(System.nanoTime() - startTime);
+        
+        List<Node> suggestions = new ArrayList<>(matches);
+        return skip > 0 ? suggestions.subList(Math.min(skip, suggestions.size()), suggestions.size()) : suggestions;
+    }
+    
+    /**
+     * Same as {@link #findSuggestedObjects(java.lang.String, int, int, java.lang.String[])}, but the suggestions are grouped by class. 
+     * All the matches have to be read, since the classes are sorted by name, but only the matches of the requested page of 
+     * every class are kept. Must be called inside a transaction.
+     * @param classesNamesToFilter If not null, only the instances of these classes or their subclasses whose names contain the 
+     * search string are suggested. If null, the instances of the classes whose names or display names contain the search string are suggested too.
+     * @param filter The search string.
+     * @param classesSkip How many classes to skip.
+     * @param classesLimit Max number of classes.
+     * @param objectSkip Index of the first object suggested in every class.
+     * @param objectLimit Index of the object after the last one suggested in every class.
+     * @return The suggested objects grouped by class name, or null if the search index can not answer this search.
+     */
+    private HashMap<String, List<BusinessObjectLight>> findSuggestedObjectsGroupedByClassName(List<String> classesNamesToFilter, 
+            String filter, long classesSkip, long classesLimit, long objectSkip, long objectLimit) {
+        if (objectSkip < 0 || objectLimit < 0)
+            return null;
+        
+        long startTime = System.nanoTime();
+        Result candidates = searchIndex.findCandidates(filter);
+        if (candidates == null)
+            return null;
+        
+        String lowerCaseFilter = filter.toLowerCase();
+        String[] superClasses = classesNamesToFilter == null ? null : classesNamesToFilter.toArray(new String[0]);
+        HashMap<String, Boolean> suggestedClasses = new HashMap<>();
+        TreeMap<String, List<BusinessObjectLight>> suggestions = new TreeMap<>();
+        HashMap<String, Long> matchesPerClass = new HashMap<>();
+        
+        // The instances of the classes that match the search string are suggested anyway, so there's no need to check them
+        List<String> matchingClasses = classesNamesToFilter == null ? getClassesWithFilter(filter) : Collections.emptyList();
+        for (String className : matchingClasses) {
+            List<BusinessObjectLight> instances = new ArrayList<>();
+            ResourceIterator<Node> instanceNodes = getInstancesOfClass(className, objectSkip, objectLimit - objectSkip);
+            while (instanceNodes.hasNext())
+                instances.add(createSuggestionFromNode(instanceNodes.next()));
+            instanceNodes.close();
+            if (!instances.isEmpty())
+                suggestions.put(className, instances);
+        }
+        
+        while (candidates.hasNext()) {
+            Node candidate = (Node) candidates.next().get("node"); //NOI18N
+            String name = (String) candidate.getProperty(Constants.PROPERTY_NAME, null);
+            if (name == null || !name.toLowerCase().contains(lowerCaseFilter))
+                continue;
+            Relationship instanceOf = candidate.getSingleRelationship(RelTypes.INSTANCE_OF, Direction.OUTGOING);
+            if (instanceOf == null)
+                continue;
+            String className = (String) instanceOf.getEndNode().getProperty(Constants.PROPERTY_NAME);
+            if (matchingClasses.contains(className) || !isSuggestedClass(className, superClasses, suggestedClasses))
+                continue;
+            
+            long index = matchesPerClass.merge(className, 1L, Long::sum) - 1;
+            List<BusinessObjectLight> instances = suggestions.computeIfAbsent(className, key -> new ArrayList<>());
+            if (index >= objectSkip && index < objectLimit)
+                instances.add(createSuggestionFromNode(candidate));
+        }
+        candidates.close();
+        searchIndex.recordQuery(System.nanoTime() - startTime);
+        
+        HashMap<String, List<BusinessObjectLight>> res = new HashMap<>();
+        long classIndex = 0;
+        for (Map.Entry<String, List<BusinessObjectLight>> entry : suggestions.entrySet()) {
+            // When filtering by class, only the classes with objects in the requested page are returned
+            if (classesNamesToFilter != null && entry.getValue().isEmpty())
+                continue;
+            if (classesSkip < 0 || classesLimit < 0 || (classIndex >= classesSkip && classIndex < classesSkip + classesLimit))
+                res.put(entry.getKey(), entry.getValue());
+            classIndex++;
+        }
+        return res;
+    }
+    
+    /**
+     * Checks if the instances of a class can be suggested. The result is cached, since most of the suggestions 
+     * in a single search are instances of a few classes.
+     * @param className The class of the instance.
+     * @param superClasses The classes whose instances can be suggested (including instances of their subclasses). Null or empty for any class.
+     * @param cache The classes already checked.
+     * @return If the instances of the class can be suggested.
+     */
+    private boolean isSuggestedClass(String className, String[] superClasses, HashMap<String, Boolean> cache) {
+        if (superClasses == null || superClasses.length == 0)
+            return true;
+        return cache.computeIfAbsent(className, key -> {
+            for (String superClass : superClasses) {
+                try {
+                    if (superClass != null && mem.isSubclassOf(superClass, key))
+                        return true;
+                } catch (MetadataObjectNotFoundException ex) {
+                    // A class that doesn't exist can't have instances
+                }
+            }
+            return false;
+        });
+    }
+    
+    /**
+     * Gets the classes whose names or display names contain a search string (case insensitive). There are only a few 
+     * hundred classes, so they are scanned. Must be called inside a transaction.
+     * @param filter The search string.
+     * @return The names of the matching classes, sorted.
+     */
+    private List<String> getClassesWithFilter(String filter) {
+        List<String> classes = new ArrayList<>();
+        Result result = connectionManager.getConnectionHandler().execute("MATCH (class:" + classLabel + ") " //NOI18N
+                + "WHERE TOLOWER(class.name) CONTAINS TOLOWER($filter) OR TOLOWER(class.displayName) CONTAINS TOLOWER($filter) " //NOI18N
+                + "RETURN class.name AS className ORDER BY className", Collections.singletonMap("filter", filter)); //NOI18N
+        while (result.hasNext())
+            classes.add((String) result.next().get("className")); //NOI18N
+        return classes;
+    }
+    
+    /**
+     * Gets a page of the inventory objects that are instances of a class (not its subclasses). Must be called inside a transaction.
+     * @param className The class.
+     * @param skip How many instances to skip.
+     * @param limit Max number of instances.
+     * @return The instances. The iterator must be closed if it's not consumed completely.
+     */
+    private ResourceIterator<Node> getInstancesOfClass(String className, long skip, long limit) {
+        HashMap<String, Object> parameters = new HashMap<>();
+        parameters.put("className", className); //NOI18N
+        parameters.put("skip", skip); //NOI18N
+        parameters.put("limit", Math.max(limit, 0)); //NOI18N
+        return connectionManager.getConnectionHandler().execute("MATCH (class:" + classLabel + " {name: $className})" //NOI18N
+                + "<-[:INSTANCE_OF]-(object:" + inventoryObjectLabel + ") RETURN object SKIP $skip LIMIT $limit", parameters) //NOI18N
+                .columnAs("object"); //NOI18N
+    }
+    
+    /**
+     * Creates a suggestion out of an object node. Unlike {@link ObjectGraphMappingService#createObjectLightFromNode(org.neo4j.graphdb.Node)}, 
+     * the validators are not evaluated.
+     * @param instance The object node.
+     * @return The suggested object.
+     */
+    private BusinessObjectLight createSuggestionFromNode(Node instance) {
+        Node classNode = instance.getSingleRelationship(RelTypes.INSTANCE_OF, Direction.OUTGOING).getEndNode();
+        return new BusinessObjectLight((String) classNode.getProperty(Constants.PROPERTY_NAME), (String) instance.getProperty(Constants.PROPERTY_UUID), 
+                (String) instance.getProperty(Constants.PROPERTY_NAME), (String) classNode.getProperty(Constants.PROPERTY_DISPLAY_NAME, null));
+    }
+    
+    /**
+     * Gets the ancestors of an object, from the direct parent up to the navigation tree root. The paths of the inventory objects 
+     * are cached (see {@link AncestorPathIndex}), and the nodes of a cached path are checked to still exist and belong to the 
+     * same objects before being used. Must be called inside a transaction.
+     * @param oid The id of the object.
+     * @return The ancestor nodes, closest first, as returned by a traversal of the CHILD_OF and CHILD_OF_SPECIAL relationships. 
+     * An empty list if the object could not be found.
+     */
+    private List<Node> getAncestors(String oid) {
+        AncestorPathIndex ancestorPathIndex = CacheManager.getInstance().getAncestorPathIndex();
+        AncestorPathIndex.AncestorPath cachedPath = ancestorPathIndex.get(oid);
+        if (cachedPath != null) {
+            List<Node> ancestors = resolveAncestorPath(oid, cachedPath);
+            if (ancestors != null)
+                return ancestors;
+        }
+        
+        long version = ancestorPathIndex.getVersion();
+        List<Node> ancestors = new ArrayList<>();
+        Node objectNode = connectionManager.getConnectionHandler().findNode(inventoryObjectLabel, Constants.PROPERTY_UUID, oid);
+        if (objectNode == null) { // Not an inventory object. These are not cached
+            Result result = queryCatalog.execute(QUERY_ANCESTORS, Collections.singletonMap("oid", oid)); //NOI18N
+            Iterators.addToCollection(result.<Node>columnAs("parents"), ancestors); //NOI18N
+            return ancestors;
+        }
         
-        while (instances.hasNext()) {
-            Node otherSide = instances.next().getStartNode();
+        Result result = queryCatalog.execute(QUERY_ANCESTORS_BY_NODE_ID, Collections.singletonMap("nodeId", objectNode.getId())); //NOI18N
+        Iterators.addToCollection(result.<Node>columnAs("parents"), ancestors); //NOI18N
+        
+        long[] ancestorNodeIds = new long[ancestors.size()];
+        String[] ancestorIds = new String[ancestors.size()];
+        for (int i = 0; i < ancestors.size(); i++) {
+            ancestorNodeIds[i] = ancestors.get(i).getId();
+            ancestorIds[i] = (String) ancestors.get(i).getProperty(Constants.PROPERTY_UUID, null);
+        }
+        ancestorPathIndex.put(oid, new AncestorPathIndex.AncestorPath(objectNode.getId(), ancestorNodeIds, ancestorIds), version);
+        return ancestors;
+    }
+    
+    /**
+     * Fetches the nodes of a cached path.
+     * @param oid The id of the object the path belongs to.
+     * @param path The cached path.
+     * @return The ancestor nodes or null if the object or any of its ancestors was deleted since the path was cached.
+     */
+    private List<Node> resolveAncestorPath(String oid, AncestorPathIndex.AncestorPath path) {
+        try {
+            // Node ids are reused after the nodes are deleted, hence the uuids are compared as well
+            Node objectNode = connectionManager.getConnectionHandler().getNodeById(path.getObjectNodeId());
+            if (!oid.equals(objectNode.getProperty(Constants.PROPERTY_UUID, null)))
+                return null;
             
-            String otherSideUuid = otherSide.hasProperty(Constants.PROPERTY_UUID) ? (String) otherSide.getProperty(Constants.PROPERTY_UUID) : null;
-            if (otherSideUuid != null && otherSideUuid.equals(oid))
-                return otherSide;
+            List<Node> ancestors = new ArrayList<>(path.getAncestorNodeIds().length);
+            for (int i = 0; i < path.getAncestorNodeIds().length; i++) {
+                Node ancestor = connectionManager.getConnectionHandler().getNodeById(path.getAncestorNodeIds()[i]);
+                if (!Objects.equals(path.getAncestorIds()[i], ancestor.getProperty(Constants.PROPERTY_UUID, null)))
+                    return null;
+                ancestors.add(ancestor);
+            }
+            return ancestors;
+        } catch (NotFoundException ex) {
+            return null;
+        }
+    }
+    
+    /**
+     * Maps an ancestor node to an object, as returned by {@link #getParents(java.lang.String, java.lang.String)}.
+     * @param node The ancestor node. It can be an inventory object, a pool or the navigation tree root.
+     * @return The ancestor.
+     */
+    private BusinessObjectLight createParentFromNode(Node node) {
+        if (node.hasProperty(Constants.PROPERTY_NAME) && node.getProperty(Constants.PROPERTY_NAME).equals(Constants.NODE_DUMMYROOT))
+            return new BusinessObjectLight(Constants.NODE_DUMMYROOT, "-1", Constants.NODE_DUMMYROOT, "Navigation Tree Root");
+        if (node.hasRelationship(RelTypes.INSTANCE_OF, Direction.OUTGOING))
+            return ogmService.createObjectLightFromNode(node);
+        else //the node has a poolNode as a parent
+            return Util.createRemoteObjectLightFromPoolNode(node);
+    }
+    
+    /**
+     * Gets the metadata of the requested attributes that a class actually has. The result is cached, since 
+     * the instances of the same class are usually found many times in a single query.
+     * @param className The class.
+     * @param attributeNames The requested attributes. Null for none.
+     * @param cache The attributes already looked up, indexed by class name.
+     * @return The attributes of the class among the requested ones, indexed by name.
+     * @throws MetadataObjectNotFoundException If the class could not be found.
+     */
+    private HashMap<String, AttributeMetadata> getRequestedAttributes(String className, List<String> attributeNames, 
+            HashMap<String, HashMap<String, AttributeMetadata>> cache) throws MetadataObjectNotFoundException {
+        HashMap<String, AttributeMetadata> classAttributes = cache.get(className);
+        if (classAttributes == null) {
+            classAttributes = new HashMap<>();
+            ClassMetadata instanceClass = mem.getClass(className);
+            if (attributeNames != null) {
+                for (String attributeName : attributeNames) {
+                    AttributeMetadata attribute = instanceClass.getAttribute(attributeName);
+                    if (attribute != null)
+                        classAttributes.put(attributeName, attribute);
+                }
+            }
+            cache.put(className, classAttributes);
+        }
+        return classAttributes;
+    }
+    
+    /**
+     * Reads the value of the given attributes directly from an object node, formatted as in 
+     * {@link #getAttributeValuesAsString(java.lang.String, java.lang.String)}. List types are read from 
+     * the relationships of the node, so no extra lookups are needed.
+     * @param instanceNode The object node.
+     * @param attributes The attributes to read, indexed by name.
+     * @return The attributes that have a value.
+     */
+    private HashMap<String, String> getAttributeValuesAsString(Node instanceNode, HashMap<String, AttributeMetadata> attributes) {
+        HashMap<String, String> res = new HashMap<>();
+        if (attributes.isEmpty())
+            return res;
+        
+        for (AttributeMetadata attribute : attributes.values()) {
+            if (!AttributeMetadata.isPrimitive(attribute.getType()) || !instanceNode.hasProperty(attribute.getName()))
+                continue;
+            switch (attribute.getType()) {
+                case "Date": //NOI18N
+                case "Time": //NOI18N
+                case "Timestamp": //NOI18N
+                    res.put(attribute.getName(), new Date((Long)instanceNode.getProperty(attribute.getName())).toString());
+                    break;
+                default:
+                    res.put(attribute.getName(), instanceNode.getProperty(attribute.getName()).toString());
+            }
+        }
+        
+        for (Relationship rel : instanceNode.getRelationships(Direction.OUTGOING, RelTypes.RELATED_TO)) {
+            String attributeName = (String) rel.getProperty(Constants.PROPERTY_NAME);
+            if (attributes.containsKey(attributeName)) {
+                String itemName = (String) rel.getEndNode().getProperty(Constants.PROPERTY_NAME);
+                res.merge(attributeName, itemName, (currentValue, newValue) -> currentValue + ";" + newValue); //NOI18N
+            }
+        }
+        return res;
+    }
+    
+    /**
+     * Completes a query whose results are to be retrieved using a cursor, runs it and delivers the results to 
+     * a consumer as the query produces them. The results are sorted by uuid, which is indexed, so the objects 
+     * before the cursor don't need to be read, as it happens with SKIP.
+     * @param queryBuilder The query so far. It must match the objects as "instance", labeled as inventory objects so 
+     * the index can be used, and end with a WHERE clause.
+     * @param parameters The query parameters.
+     * @param cursor The cursor to start after. Null to start from the first object.
+     * @param limit Max number of objects to be delivered, -1 to deliver them all.
+     * @param consumer Receives the objects.
+     * @return The number of objects delivered.
+     * @throws InvalidArgumentException If the cursor is not valid.
+     */
+    private long streamObjectsAfterCursor(StringBuilder queryBuilder, HashMap<String, Object> parameters, 
+            String cursor, long limit, Consumer<BusinessObjectLight> consumer) throws InvalidArgumentException {
+        queryBuilder.append("AND instance._uuid > $cursor "); //NOI18N
+        queryBuilder.append("RETURN instance ORDER BY instance._uuid "); //NOI18N
+        if (limit >= 0) {
+            queryBuilder.append("LIMIT $limit"); //NOI18N
+            parameters.put("limit", limit); //NOI18N
+        }
+        parameters.put("cursor", cursor == null ? "" : decodeCursor(cursor)); //NOI18N
+        
+        long count = 0;
+        try (Result result = connectionManager.getConnectionHandler().execute(queryBuilder.toString(), parameters)) {
+            while (result.hasNext()) {
+                consumer.accept(ogmService.createObjectLightFromNode((Node) result.next().get("instance"))); //NOI18N
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Builds a page from the results of a query that was asked for one more result than the page size, so 
+     * it can be told if there are more pages.
+     * @param results The results. The extra result, if any, is removed.
+     * @param limit The page size.
+     * @return The page.
+     */
+    private BusinessObjectLightPage createPage(List<BusinessObjectLight> results, int limit) {
+        if (results.size() <= limit)
+            return new BusinessObjectLightPage(results, null);
+        
+        results.remove(limit);
+        return new BusinessObjectLightPage(results, encodeCursor(results.get(limit - 1).getId()));
+    }
+    
+    /**
+     * Encodes the id of the last object of a page as a cursor. The cursor is URL safe, so it can be used as 
+     * a path parameter.
+     * @param uuid The id of the object.
+     * @return The cursor.
+     */
+    private String encodeCursor(String uuid) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(uuid.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decodes a cursor built with {@link #encodeCursor(java.lang.String)}.
+     * @param cursor The cursor.
+     * @return The id of the last object of the page the cursor was built for.
+     * @throws InvalidArgumentException If the cursor is not valid.
+     */
+    private String decodeCursor(String cursor) throws InvalidArgumentException {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidArgumentException(String.format("Invalid cursor %s", cursor));
         }
-        throw new BusinessObjectNotFoundException((String)classNode.getProperty(Constants.PROPERTY_NAME), oid);
     }
     
     public Node createObject(Node classNode, ClassMetadata classToMap, HashMap<String,String> attributes) 
@@ -3990,103 +5092,155 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
     }
         
     /**
-     * Spawns [recursively] an inventory object from a template element
-     * @param templateObject The template object used to create the inventory object
-     * @param recursive Should the spawn operation be recursive?
+     * Spawns recursively an inventory object from a template. Callers must handle the transaction.
+     * @param templateNode The template used to create the inventory object
+     * @param templateIds Map of the template element ids and the ids of the objects created from them. It could be null if not needed.
      * @return The root copied object
+     * @throws InvalidArgumentException If a mandatory attribute is empty in any of the template elements
      */
-    private Node copyTemplateElement(Node templateObject, ClassMetadata classToMap, boolean recursive) throws InvalidArgumentException {
+    private Node instantiateTemplate(Node templateNode, HashMap<String, String> templateIds) throws InvalidArgumentException {
+        TemplateInstantiationPlan plan = getTemplatePlan(templateNode);
+        return instantiateTemplatePlan(plan, resolveTemplatePlan(plan), templateIds);
+    }
+    
+    /**
+     * Gets the instantiation plan of a template, compiling it if it is not cached. Callers must handle the transaction.
+     * @param templateNode The template node.
+     * @return The plan.
+     */
+    private TemplateInstantiationPlan getTemplatePlan(Node templateNode) {
+        String templateId = (String) templateNode.getProperty(Constants.PROPERTY_UUID);
+        TemplatePlanIndex templatePlanIndex = CacheManager.getInstance().getTemplatePlanIndex();
+        TemplateInstantiationPlan plan = templatePlanIndex.get(templateId);
+        if (plan == null) {
+            long version = templatePlanIndex.getVersion();
+            List<TemplateInstantiationPlan.ElementSpec> elements = new ArrayList<>();
+            HashMap<Long, Integer> referencedNodes = new HashMap<>();
+            compileTemplateElement(templateNode, -1, false, elements, referencedNodes);
+            
+            long[] referencedNodeIds = new long[referencedNodes.size()];
+            referencedNodes.forEach((nodeId, index) -> referencedNodeIds[index] = nodeId);
+            plan = new TemplateInstantiationPlan(elements.toArray(new TemplateInstantiationPlan.ElementSpec[0]), referencedNodeIds);
+            templatePlanIndex.put(templateId, plan, version);
+        }
+        return plan;
+    }
+    
+    /**
+     * Adds a template element and, recursively, its children and special children to a template instantiation plan.
+     * @param templateElement The template element.
+     * @param parentIndex The index of the parent element in the plan, -1 if the element is the template root.
+     * @param specialChild Is the element a special child of its parent?
+     * @param elements The elements of the plan so far.
+     * @param referencedNodes The nodes referenced by the elements so far. The key is the node id, the value, its index.
+     */
+    private void compileTemplateElement(Node templateElement, int parentIndex, boolean specialChild, 
+            List<TemplateInstantiationPlan.ElementSpec> elements, HashMap<Long, Integer> referencedNodes) {
+        Node classNode = templateElement.getRelationships(RelTypes.INSTANCE_OF_SPECIAL).iterator().next().getEndNode();
         
-        Node newInstance = connectionManager.getConnectionHandler().createNode(inventoryObjectLabel);
-       
-        for (String property : templateObject.getPropertyKeys()) {
-            if (!property.equals(Constants.PROPERTY_UUID)) {
-                if (classToMap.isMandatory(property) && ((String)templateObject.getProperty(property)).isEmpty()) {
-                    InvalidArgumentException ex = new InvalidArgumentException(String.format(ts.getTranslatedString(KEY_PREFIX + ".33"), property));
-                    ex.setPrefix(KEY_PREFIX);
-                    ex.setCode(33);
-                    ex.setMessageArgs(property);
-                    throw ex;
-                }
-
-                newInstance.setProperty(property, templateObject.getProperty(property));
+        List<String> propertyKeys = new ArrayList<>();
+        List<Object> propertyValues = new ArrayList<>();
+        List<String> emptyProperties = new ArrayList<>();
+        for (Map.Entry<String, Object> property : templateElement.getAllProperties().entrySet()) {
+            if (!property.getKey().equals(Constants.PROPERTY_UUID)) {
+                propertyKeys.add(property.getKey());
+                propertyValues.add(property.getValue());
+                if (property.getValue() instanceof String && ((String) property.getValue()).isEmpty())
+                    emptyProperties.add(property.getKey());
             }
         }
         
-        for (Relationship rel : templateObject.getRelationships(RelTypes.RELATED_TO, Direction.OUTGOING))
-            newInstance.createRelationshipTo(rel.getEndNode(), RelTypes.RELATED_TO).setProperty(Constants.PROPERTY_NAME, rel.getProperty(Constants.PROPERTY_NAME));
-        
-        newInstance.setProperty(Constants.PROPERTY_CREATION_DATE, Calendar.getInstance().getTimeInMillis());
-        newInstance.createRelationshipTo(templateObject.getRelationships(RelTypes.INSTANCE_OF_SPECIAL).iterator().next().getEndNode(), 
-                RelTypes.INSTANCE_OF);
-
-        if (recursive) {
-            for (Relationship rel : templateObject.getRelationships(RelTypes.CHILD_OF, Direction.INCOMING)) {
-                Node classNode = rel.getStartNode().getSingleRelationship(RelTypes.INSTANCE_OF_SPECIAL, Direction.OUTGOING).getEndNode();
-                Node newChild = copyTemplateElement(rel.getStartNode(), Util.createClassMetadataFromNode(classNode), true);
-                newChild.createRelationshipTo(newInstance, RelTypes.CHILD_OF);
-            }
-            for (Relationship rel : templateObject.getRelationships(RelTypes.CHILD_OF_SPECIAL, Direction.INCOMING)) {
-                Node classNode = rel.getStartNode().getSingleRelationship(RelTypes.INSTANCE_OF_SPECIAL, Direction.OUTGOING).getEndNode();
-                Node newChild = copyTemplateElement(rel.getStartNode(), Util.createClassMetadataFromNode(classNode), true);
-                newChild.createRelationshipTo(newInstance, RelTypes.CHILD_OF_SPECIAL);
-            }
+        List<String> listTypeAttributes = new ArrayList<>();
+        List<Integer> listTypeItemReferences = new ArrayList<>();
+        for (Relationship rel : templateElement.getRelationships(RelTypes.RELATED_TO, Direction.OUTGOING)) {
+            listTypeAttributes.add((String) rel.getProperty(Constants.PROPERTY_NAME));
+            listTypeItemReferences.add(referencedNodes.computeIfAbsent(rel.getEndNode().getId(), nodeId -> referencedNodes.size()));
         }
-
-        newInstance.setProperty(Constants.PROPERTY_UUID, UUID.randomUUID().toString());
-        return newInstance;
+        
+        int index = elements.size();
+        elements.add(new TemplateInstantiationPlan.ElementSpec((String) templateElement.getProperty(Constants.PROPERTY_UUID), 
+                (String) classNode.getProperty(Constants.PROPERTY_NAME), 
+                referencedNodes.computeIfAbsent(classNode.getId(), nodeId -> referencedNodes.size()), 
+                parentIndex, specialChild, 
+                propertyKeys.toArray(new String[0]), propertyValues.toArray(), emptyProperties.toArray(new String[0]), 
+                listTypeAttributes.toArray(new String[0]), listTypeItemReferences.stream().mapToInt(Integer::intValue).toArray()));
+        
+        for (Relationship rel : templateElement.getRelationships(RelTypes.CHILD_OF, Direction.INCOMING))
+            compileTemplateElement(rel.getStartNode(), index, false, elements, referencedNodes);
+        for (Relationship rel : templateElement.getRelationships(RelTypes.CHILD_OF_SPECIAL, Direction.INCOMING))
+            compileTemplateElement(rel.getStartNode(), index, true, elements, referencedNodes);
     }
     
     /**
-     * Equal to {@link BusinessEntityManagerImpl#copyTemplateElement(org.neo4j.graphdb.Node, org.neotropic.kuwaiba.core.apis.persistence.metadata.ClassMetadata, boolean) }
-     * but add the in/out parameter templateIds
-     * Spawns [recursively] an inventory object from a template element
-     * @param templateObject The template object used to create the inventory object
-     * @param recursive Should the spawn operation be recursive?
-     * @param templateIds Map of the template id and the new object or special object
-     * @return The root copied object
+     * Fetches the nodes referenced by a template instantiation plan. Callers must handle the transaction, and 
+     * can use the resolved nodes to instantiate the template as many times as needed within that transaction.
+     * @param plan The plan.
+     * @return The nodes, in the same order as the referenced node ids of the plan.
      */
-    private Node copyTemplateElement(Node templateObject, ClassMetadata classToMap, boolean recursive, HashMap<String, String> templateIds) throws InvalidArgumentException {
-        
-        Node newInstance = connectionManager.getConnectionHandler().createNode(inventoryObjectLabel);
-       
-        for (String property : templateObject.getPropertyKeys()) {
-            if (!property.equals(Constants.PROPERTY_UUID)) {
-                if (classToMap.isMandatory(property) && ((String)templateObject.getProperty(property)).isEmpty())
-                    throw new InvalidArgumentException(String.format("The attribute %s is mandatory, can not be set null or empty", property));
-
-                newInstance.setProperty(property, templateObject.getProperty(property));
-            }
-        }
-        
-        for (Relationship rel : templateObject.getRelationships(RelTypes.RELATED_TO, Direction.OUTGOING))
-            newInstance.createRelationshipTo(rel.getEndNode(), RelTypes.RELATED_TO).setProperty(Constants.PROPERTY_NAME, rel.getProperty(Constants.PROPERTY_NAME));
+    private Node[] resolveTemplatePlan(TemplateInstantiationPlan plan) {
+        long[] referencedNodeIds = plan.getReferencedNodeIds();
+        Node[] referencedNodes = new Node[referencedNodeIds.length];
+        for (int i = 0; i < referencedNodeIds.length; i++)
+            referencedNodes[i] = connectionManager.getConnectionHandler().getNodeById(referencedNodeIds[i]);
+        return referencedNodes;
+    }
+    
+    /**
+     * Creates the objects described by a template instantiation plan. Callers must handle the transaction.
+     * @param plan The plan.
+     * @param referencedNodes The nodes referenced by the plan (see {@link #resolveTemplatePlan(org.neotropic.kuwaiba.core.persistence.reference.extras.caching.TemplateInstantiationPlan)}).
+     * @param templateIds Map of the template element ids and the ids of the objects created from them. It could be null if not needed.
+     * @return The object created from the template root.
+     * @throws InvalidArgumentException If a mandatory attribute is empty in any of the template elements
+     */
+    private Node instantiateTemplatePlan(TemplateInstantiationPlan plan, Node[] referencedNodes, HashMap<String, String> templateIds) 
+            throws InvalidArgumentException {
+        TemplateInstantiationPlan.ElementSpec[] elements = plan.getElements();
+        Node[] newInstances = new Node[elements.length];
+        long creationDate = Calendar.getInstance().getTimeInMillis();
         
-        newInstance.setProperty(Constants.PROPERTY_CREATION_DATE, Calendar.getInstance().getTimeInMillis());
-        newInstance.createRelationshipTo(templateObject.getRelationships(RelTypes.INSTANCE_OF_SPECIAL).iterator().next().getEndNode(), 
-                RelTypes.INSTANCE_OF);
-
-        if (recursive) {
-            for (Relationship rel : templateObject.getRelationships(RelTypes.CHILD_OF, Direction.INCOMING)) {
-                Node classNode = rel.getStartNode().getSingleRelationship(RelTypes.INSTANCE_OF_SPECIAL, Direction.OUTGOING).getEndNode();
-                Node newChild = copyTemplateElement(rel.getStartNode(), Util.createClassMetadataFromNode(classNode), true, templateIds);
-                newChild.createRelationshipTo(newInstance, RelTypes.CHILD_OF);
-            }
-            for (Relationship rel : templateObject.getRelationships(RelTypes.CHILD_OF_SPECIAL, Direction.INCOMING)) {
-                Node classNode = rel.getStartNode().getSingleRelationship(RelTypes.INSTANCE_OF_SPECIAL, Direction.OUTGOING).getEndNode();
-                Node newChild = copyTemplateElement(rel.getStartNode(), Util.createClassMetadataFromNode(classNode), true, templateIds);
-                newChild.createRelationshipTo(newInstance, RelTypes.CHILD_OF_SPECIAL);
+        for (int i = 0; i < elements.length; i++) {
+            TemplateInstantiationPlan.ElementSpec element = elements[i];
+            if (element.getEmptyProperties().length > 0) {
+                ClassMetadata classToMap = CacheManager.getInstance().getClass(element.getClassName());
+                if (classToMap == null)
+                    classToMap = Util.createClassMetadataFromNode(referencedNodes[element.getClassReference()]);
+                
+                for (String property : element.getEmptyProperties()) {
+                    if (classToMap.isMandatory(property)) {
+                        InvalidArgumentException ex = new InvalidArgumentException(String.format(ts.getTranslatedString(KEY_PREFIX + ".33"), property));
+                        ex.setPrefix(KEY_PREFIX);
+                        ex.setCode(33);
+                        ex.setMessageArgs(property);
+                        throw ex;
+                    }
+                }
             }
+            
+            Node newInstance = connectionManager.getConnectionHandler().createNode(inventoryObjectLabel);
+            String[] propertyKeys = element.getPropertyKeys();
+            Object[] propertyValues = element.getPropertyValues();
+            for (int j = 0; j < propertyKeys.length; j++)
+                newInstance.setProperty(propertyKeys[j], propertyValues[j]);
+            
+            String[] listTypeAttributes = element.getListTypeAttributes();
+            int[] listTypeItemReferences = element.getListTypeItemReferences();
+            for (int j = 0; j < listTypeAttributes.length; j++)
+                newInstance.createRelationshipTo(referencedNodes[listTypeItemReferences[j]], RelTypes.RELATED_TO).setProperty(Constants.PROPERTY_NAME, listTypeAttributes[j]);
+            
+            newInstance.setProperty(Constants.PROPERTY_CREATION_DATE, creationDate);
+            newInstance.createRelationshipTo(referencedNodes[element.getClassReference()], RelTypes.INSTANCE_OF);
+            if (element.getParentIndex() != -1)
+                newInstance.createRelationshipTo(newInstances[element.getParentIndex()], 
+                        element.isSpecialChild() ? RelTypes.CHILD_OF_SPECIAL : RelTypes.CHILD_OF);
+            
+            String uuid = UUID.randomUUID().toString();
+            newInstance.setProperty(Constants.PROPERTY_UUID, uuid);
+            if (templateIds != null)
+                templateIds.put(element.getTemplateElementId(), uuid);
+            newInstances[i] = newInstance;
         }
-
-        newInstance.setProperty(Constants.PROPERTY_UUID, UUID.randomUUID().toString());
-        if (templateIds != null) {
-            templateIds.put(
-                templateObject.getProperty(Constants.PROPERTY_UUID).toString(),
-                newInstance.getProperty(Constants.PROPERTY_UUID).toString()
-            );
-        }
-        return newInstance;
+        return newInstances[0];
     }
     
     @Override
@@ -4131,15 +5285,17 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
      * Deletes recursively and object and all its children. Note that the transaction should be handled by the caller
      * @param instance The object to be deleted
      * @param unsafeDeletion True if you want the object to be deleted no matter if it has RELATED_TO, HAS_PROCESS_INSTANCE or RELATED_TO_SPECIAL relationships
+     * @param releasedContents The hashes of the contents of the deleted attachments are added here, so they can be 
+     * deleted once the transaction is committed if no other attachment uses them
      * @throws org.kuwaiba.apis.persistence.exceptions.OperationNotPermittedException If the object already has relationships
      */
-    private void deleteObject(Node instance, boolean unsafeDeletion) throws OperationNotPermittedException {
+    private void deleteObject(Node instance, boolean unsafeDeletion, List<String> releasedContents) throws OperationNotPermittedException {
         if (!unsafeDeletion && !canDeleteObject(instance)) 
             throw new OperationNotPermittedException(String.format("The object %s (%s) can not be deleted since it has relationships", 
                     instance.getProperty(Constants.PROPERTY_NAME), instance.getProperty(Constants.PROPERTY_UUID)));
         
         for (Relationship rel : instance.getRelationships(Direction.INCOMING, RelTypes.CHILD_OF, RelTypes.CHILD_OF_SPECIAL))
-            deleteObject(rel.getStartNode(), unsafeDeletion);
+            deleteObject(rel.getStartNode(), unsafeDeletion, releasedContents);
         
         // Searches the related views to delete the nodes in the data base       
         for (Relationship aHasViewRelationship : instance.getRelationships(RelTypes.HAS_VIEW)) {
@@ -4164,14 +5320,9 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
             Node attachmentNode = aHasAttachmentRelationship.getEndNode();
             aHasAttachmentRelationship.delete();
             
-            String fileName = configuration.getProperty("attachmentsPath", DEFAULT_ATTACHMENTS_PATH) +  //NOI18N
-                    File.separator + instance.getId() + "_" + attachmentNode.getId(); //NOI18N
-            try {
-                new File(fileName).delete();
-            } catch (Exception ex) {
-                System.out.println(String.format("[KUWAIBA] An error occurred while deleting attachment %s for object %s (%s)", 
-                        fileName, instance.getProperty(Constants.PROPERTY_NAME), instance.getId()));
-            }
+            String contentHash = attachmentStore.deleteContent(attachmentNode, (String) instance.getProperty(Constants.PROPERTY_UUID));
+            if (contentHash != null)
+                releasedContents.add(contentHash);
             attachmentNode.delete();
         }
         
@@ -4328,58 +5479,29 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             if (filter == null)
                 throw new InvalidArgumentException("The className cannot be null");
-                        
-            HashMap<String, Object> parameters = new HashMap();
-            StringBuilder queryBuilder = new StringBuilder();
-            parameters.put("searchString", filter); //NOI18N
             
-            if(classesNamesToFilter == null){
-                queryBuilder.append("MATCH (object:").append(inventoryObjectLabel).append(")-[:INSTANCE_OF]->(class:").append(classLabel).append(") "); //NOI18N
-                queryBuilder.append("WHERE TOLOWER(class.name) CONTAINS TOLOWER($searchString) OR TOLOWER(class.displayName) CONTAINS TOLOWER($searchString) OR TOLOWER(object.name) CONTAINS TOLOWER($searchString)"); //NOI18N
-                queryBuilder.append("RETURN class {.name, .displayName, objects: collect(distinct object {.name, ._uuid})");
-                queryBuilder.append("[").append(objectSkip).append("..").append(objectLimit).append("]} "); //NOI18N
-                
-                queryBuilder.append("ORDER BY class.name ASC "); 
-                if(classesSkip >= 0 && classesLimit >= 0){
-                    queryBuilder.append("SKIP $skip LIMIT $limit ");
-                    parameters.put("skip", classesSkip); //NOI18N
-                    parameters.put("limit", classesLimit); //NOI18N
-                }
-            }else if(!classesNamesToFilter.isEmpty()){
-                queryBuilder.append("MATCH (class:").append(classLabel).append(")"); //NOI18N
-                queryBuilder.append("-[:EXTENDS*]->"); //NOI18N
-                queryBuilder.append("(pclass:").append(classLabel).append(") "); //NOI18N
-                queryBuilder.append("WHERE "); //NOI18N
-                
-                String instanceClasses = classesNamesToFilter.stream()
-                    .map(s -> String.format("class.name= '%s'", s)) // add double quotes around each string
-                    .collect(Collectors.joining(" OR "));
-                
-                queryBuilder.append(instanceClasses).append(" OR "); //NOI18N
-                //We also compare with possible parent classes in case a GenericClassName was provided
-                String possibleParentClasses = classesNamesToFilter.stream()
-                    .map(s -> String.format("pclass.name = '%s'", s)) // add double quotes around each string
-                    .collect(Collectors.joining(" OR "));
-                queryBuilder.append(possibleParentClasses);
-                queryBuilder.append(" WITH class "); //NOI18N
-                
-                queryBuilder.append("MATCH (object:").append(inventoryObjectLabel).append(")"); //NOI18N
-                queryBuilder.append("-[:INSTANCE_OF]->(class:").append(classLabel).append(") "); //NOI18N
-                queryBuilder.append("WHERE TOLOWER(object.name) CONTAINS TOLOWER($searchString) "); //NOI18N
-                queryBuilder.append("WITH class, COLLECT(distinct object)[").append(objectSkip).append("..").append(objectLimit).append("] as objs "); //NOI18N
-                queryBuilder.append("UNWIND objs as obj "); //NOI18N
-            
-                queryBuilder.append("RETURN class {.name, .displayName, objects: collect(obj {.name, ._uuid})} "); //NOI18N
-                queryBuilder.append("ORDER BY class.name ASC "); 
-                if(classesSkip >= 0 && classesLimit >= 0){
-                    queryBuilder.append("SKIP $skip LIMIT $limit ");
-                    parameters.put("skip", classesSkip); //NOI18N
-                    parameters.put("limit", classesLimit); //NOI18N
+            if (classesNamesToFilter == null || !classesNamesToFilter.isEmpty()) {
+                HashMap<String, List<BusinessObjectLight>> res = findSuggestedObjectsGroupedByClassName(classesNamesToFilter, 
+                        filter, classesSkip, classesLimit, objectSkip, objectLimit);
+                if (res != null) {
+                    tx.success();
+                    return res;
                 }
             }
+                        
+            HashMap<String, Object> parameters = new HashMap();
+            parameters.put("searchString", filter); //NOI18N
+            parameters.put("objectSkip", objectSkip); //NOI18N
+            parameters.put("objectLimit", objectLimit); //NOI18N
+            parameters.put("skip", classesSkip >= 0 && classesLimit >= 0 ? classesSkip : 0L); //NOI18N
+            if (classesSkip >= 0 && classesLimit >= 0)
+                parameters.put("limit", classesLimit); //NOI18N
+            if (classesNamesToFilter != null)
+                parameters.put("classes", classesNamesToFilter); //NOI18N
             
             HashMap<String, List<BusinessObjectLight>> res  = new HashMap<>();
-            Result result = connectionManager.getConnectionHandler().execute(queryBuilder.toString(), parameters);
+            Result result = queryCatalog.execute(classesNamesToFilter == null ? 
+                    QUERY_SUGGESTED_OBJECTS_GROUPED_BY_CLASS : QUERY_SUGGESTED_OBJECTS_GROUPED_BY_CLASS_OF_CLASSES, parameters);
             //format {name: className1, Objects[{}, {}]} {name: className2, Objects[{}, {}]} 
             while (result.hasNext()){
                 Map<String, Object> row = result.next();
@@ -4408,6 +5530,36 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
         }
     }
     
+    @Override
+    public void rebuildSearchIndex() {
+        searchIndex.rebuild();
+    }
+    
+    @Override
+    public HashMap<String, Object> getSearchIndexStatus() {
+        return searchIndex.getStatus();
+    }
+    
+    @Override
+    public List<HashMap<String, Object>> getQueryStatistics() {
+        return queryCatalog.getStatistics();
+    }
+    
+    @Override
+    public void resetQueryStatistics() {
+        queryCatalog.resetStatistics();
+    }
+    
+    @Override
+    public void addChangeListener(BusinessObjectChangeListener listener) {
+        changeListeners.add(listener);
+    }
+    
+    @Override
+    public void removeChangeListener(BusinessObjectChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+    
     @Override
     public HashMap<String, List<InventoryObjectPool>> getSuggestedPoolsByName(
             List<String> classesNamesToFilter, String nameTofilter, long poolSkip
@@ -4417,33 +5569,18 @@ public class BusinessEntityManagerImpl implements BusinessEntityManager {
                 throw new InvalidArgumentException("The className cannot be null");
                         
             HashMap<String, Object> parameters = new HashMap();
-            StringBuilder queryBuilder = new StringBuilder();
-            
-            queryBuilder.append(String.format("MATCH (pool:%s) ", poolLabel)); //NOI18N
-            if(classesNamesToFilter == null)
-                queryBuilder.append("WHERE TOLOWER(pool.className) CONTAINS TOLOWER($searchString) OR "); //NOI18N
-            
-            else if(!classesNamesToFilter.isEmpty()){
-                  String classesNames = classesNamesToFilter.stream()
-                        .map(s -> String.format("'%s'", s)) // add double quotes around each string
-                        .collect(Collectors.joining(","));
-                  
-                queryBuilder.append("WHERE (pool.className) IN [").append(classesNames).append("] AND "); //NOI18N
-            }
-            queryBuilder.append("TOLOWER(pool.name) CONTAINS TOLOWER($searchString) "); //NOI18N
-            queryBuilder.append("RETURN pool {.className, pools: collect(distinct pool {.name, ._uuid, .description, .type})"); //NOI18N
-            queryBuilder.append("[").append(objectSkip).append("..").append(objectLimit).append("]").append("} "); //NOI18N
-            queryBuilder.append("ORDER BY pool.name ASC ");
-            if(poolLimit >= 0 && poolSkip >= 0){
-                queryBuilder.append("SKIP $skip LIMIT $limit ");
-                parameters.put("skip", poolSkip); //NOI18N
+            parameters.put("searchString", nameTofilter); //NOI18N
+            parameters.put("objectSkip", objectSkip); //NOI18N
+            parameters.put("objectLimit", objectLimit); //NOI18N
+            parameters.put("skip", poolSkip >= 0 && poolLimit >= 0 ? poolSkip : 0L); //NOI18N
+            if (poolSkip >= 0 && poolLimit >= 0)
                 parameters.put("limit", poolLimit); //NOI18N
-            }
-            
-            parameters.put("searchString", nameTofilter);//NOI18N
+            if (classesNamesToFilter != null)
+                parameters.put("classes", classesNamesToFilter); //NOI18N
             
             HashMap<String, List<InventoryObjectPool>> res  = new HashMap<>();
-            Result result = connectionManager.getConnectionHandler().execute(queryBuilder.toString(), parameters);
+            Result result = queryCatalog.execute(classesNamesToFilter == null ? 
+                    QUERY_SUGGESTED_POOLS : QUERY_SUGGESTED_POOLS_OF_CLASSES, parameters);
             while (result.hasNext()){
                 Map<String, Object> row = result.next();
                 
@@ -48,6 +48,8 @@ import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.kernel.impl.traversal.MonoDirectionalTraversalDescription;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
 import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.CacheManager;
+import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.ClassHierarchyIndex;
+import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.ClassHierarchyUpdateHandler;
 import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.Util;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -66,6 +68,15 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
      * Reference to the CacheManager
      */
     private CacheManager cm;
+    /**
+     * Precomputed class hierarchy. It's replaced as a whole once a transaction that changes the class hierarchy
+     * has been committed (see {@link ClassHierarchyUpdateHandler}).
+     */
+    private volatile ClassHierarchyIndex classHierarchy = ClassHierarchyIndex.EMPTY;
+    /**
+     * Publishes the class hierarchy rebuilt by the transactions that change the data model.
+     */
+    private ClassHierarchyUpdateHandler classHierarchyUpdateHandler;
     /**
      * This hash contains the display name of the special relationship used in the different models
      */
@@ -94,13 +105,22 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
     @Override
     public void initCache() {
         this.cm = CacheManager.getInstance();
+        ClassHierarchyIndex hierarchy = null;
         try(Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            buildClassCache();
+            hierarchy = ClassHierarchyIndex.build(loadClassCache());
         } catch(Exception ex) {
             Logger.getLogger(MetadataEntityManagerImpl.class.getName()).log(Level.SEVERE, 
                     String.format("[KUWAIBA] [%s] An error was found while creating the MEM instance: %s", 
                     Calendar.getInstance().getTime(), ex.getMessage()));
         }
+        if (hierarchy != null)
+            classHierarchy = hierarchy;
+        //From now on, the class hierarchy is rebuilt by the transactions that change the data model, and published once they are committed
+        if (classHierarchyUpdateHandler == null) {
+            classHierarchyUpdateHandler = new ClassHierarchyUpdateHandler(connectionManager.getConnectionHandler(), 
+                    newHierarchy -> classHierarchy = newHierarchy);
+            connectionManager.getConnectionHandler().registerTransactionEventHandler(classHierarchyUpdateHandler);
+        }
     }
 
     @Override
@@ -325,7 +345,8 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
             
             tx.success();
             cm.clearClassCache();
-            cm.putClass(Util.createClassMetadataFromNode(classMetadataNode));
+            ClassMetadata updatedClass = Util.createClassMetadataFromNode(classMetadataNode);
+            cm.putClass(updatedClass);
 
             return new ChangeDescriptor(affectedProperties.trim(), oldValues.trim(), 
                     newValues.trim(), "");
@@ -530,6 +551,22 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
             
             return classManagerResultList;
         }
+        
+        ClassHierarchyIndex hierarchy = classHierarchy;
+        if (hierarchy.contains(className)) { //The subclasses are taken from the precomputed hierarchy instead of querying the database
+            subclasses = hierarchy.getSubclasses(className);
+            if (includeSelf && (includeAbstractClasses ? true : !aClass.isAbstract()))
+                classManagerResultList.add(aClass);
+            
+            for (ClassMetadataLight subclass : subclasses) {
+                if (!includeAbstractClasses && subclass.isAbstract())
+                    continue;
+                classManagerResultList.add(subclass);
+            }
+            cm.putSubclasses(className, subclasses);
+            return classManagerResultList;
+        }
+        
         // Retrieving all subclasses to update the cache
         String cypherQuery = "MATCH (inventory:classes)<-[:EXTENDS*]-(classmetadata) "
                            + "WHERE inventory.name IN ['" + className + "'] "
@@ -582,6 +619,21 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
             
             return classManagerResultList;
         }
+        
+        ClassHierarchyIndex hierarchy = classHierarchy;
+        if (hierarchy.contains(className)) { //The direct subclasses are also kept in the precomputed hierarchy
+            subclasses = hierarchy.getDirectSubclasses(className);
+            if (includeSelf && (includeAbstractClasses ? true : !aClass.isAbstract()))
+                classManagerResultList.add(aClass);
+            
+            for (ClassMetadataLight subclass : subclasses) {
+                if (!includeAbstractClasses && subclass.isAbstract())
+                    continue;
+                classManagerResultList.add(subclass);
+            }
+            cm.putSubclassesNorecursive(className, subclasses);
+            return classManagerResultList;
+        }
         // Retrieving all subclasses to update the cache
         classManagerResultList = new ArrayList<>();
         
@@ -797,6 +849,8 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
             refreshCacheOn(classNode);
             tx.success();
         } 
+        if (attributeDefinition.isUnique())
+            Util.createUniqueAttributeIndexes(connectionManager.getConnectionHandler());
     }
     
     @Override
@@ -816,6 +870,8 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
             tx.success();
             
         } 
+        if (attributeDefinition.isUnique())
+            Util.createUniqueAttributeIndexes(connectionManager.getConnectionHandler());
     }
     
     @Override
@@ -896,29 +952,37 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
     @Override
     public ChangeDescriptor setAttributeProperties(long classId, long attributeId, HashMap<String, Object> newProperties) 
             throws MetadataObjectNotFoundException, InvalidArgumentException, BusinessObjectNotFoundException {
+        ChangeDescriptor changeDescriptor;
         try(Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             Node classNode = Util.findNodeByLabelAndId(connectionManager.getConnectionHandler(), classLabel, classId);
             if (classNode == null)
                 throw new MetadataObjectNotFoundException(String.format("The class with id %s could not be found. Contact your administrator.", classId));
 
-            ChangeDescriptor changeDescriptor = setAttributeProperties(classNode, attributeId, newProperties);
+            changeDescriptor = setAttributeProperties(classNode, attributeId, newProperties);
             tx.success();
-            return changeDescriptor;
-        } 
+        }
+        //A unique attribute that is renamed needs an index on its new name
+        if (newProperties.containsKey(Constants.PROPERTY_UNIQUE) || newProperties.containsKey(Constants.PROPERTY_NAME))
+            Util.createUniqueAttributeIndexes(connectionManager.getConnectionHandler());
+        return changeDescriptor;
     }
     
     @Override
     public ChangeDescriptor setAttributeProperties (String className, long attributeId, HashMap<String, Object> newProperties) 
             throws MetadataObjectNotFoundException, InvalidArgumentException, BusinessObjectNotFoundException {
+        ChangeDescriptor changeDescriptor;
         try(Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
             Node classNode = connectionManager.getConnectionHandler().findNode(classLabel, Constants.PROPERTY_NAME, className);
             if (classNode == null)
                 throw new MetadataObjectNotFoundException(String.format("Class %s could not be found", className));
             
-            ChangeDescriptor changeDescriptor = setAttributeProperties(classNode, attributeId, newProperties);
+            changeDescriptor = setAttributeProperties(classNode, attributeId, newProperties);
             tx.success();
-            return changeDescriptor;
         }
+        //A unique attribute that is renamed needs an index on its new name
+        if (newProperties.containsKey(Constants.PROPERTY_UNIQUE) || newProperties.containsKey(Constants.PROPERTY_NAME))
+            Util.createUniqueAttributeIndexes(connectionManager.getConnectionHandler());
+        return changeDescriptor;
     }
     
     @Override
@@ -1520,6 +1584,10 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
     public List<ClassMetadataLight> getUpstreamClassHierarchy(String className, boolean includeSelf) throws MetadataObjectNotFoundException {
         getClass(className); //Checks if the class exists
         
+        ClassHierarchyIndex hierarchy = classHierarchy;
+        if (hierarchy.contains(className))
+            return hierarchy.getUpstreamClassHierarchy(className, includeSelf);
+        
         //Let's check the cache first
         List<ClassMetadataLight> res = cm.getUpstreamClassHierarchy(className);
         
@@ -1573,6 +1641,10 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
 
         if (allegedParent.equals(classToBeEvaluated))
             return true;
+        
+        ClassHierarchyIndex hierarchy = classHierarchy;
+        if (hierarchy.contains(classToBeEvaluated))
+            return hierarchy.isSubclassOf(allegedParent, classToBeEvaluated);
 
         ClassMetadata currentClass = getClass(classToBeEvaluated);
         
@@ -1765,21 +1837,32 @@ public class MetadataEntityManagerImpl implements MetadataEntityManager {
         }
     }
     @Override
-    //Callers must handle associated transactions
+    //Callers must handle associated transactions. The class hierarchy is published once the transaction is committed
     public void buildClassCache() throws InvalidArgumentException {
+        loadClassCache();
+    }
+    
+    /**
+     * Reloads the class cache. Callers must handle associated transactions
+     * @return All the classes in the data model
+     */
+    private List<ClassMetadata> loadClassCache() throws InvalidArgumentException {
         cm.clearClassCache();
+        List<ClassMetadata> allClasses = new ArrayList<>();
         ResourceIterator<Node> classes = connectionManager.getConnectionHandler().findNodes(classLabel);
         while (classes.hasNext()) {
             Node classNode = classes.next();
             
             ClassMetadata aClass = Util.createClassMetadataFromNode(classNode);
             cm.putClass(aClass);
+            allClasses.add(aClass);
 
             refreshPossibleChildren(classNode);
             refreshPossibleSpecialChildren(classNode);
         }
         loadUniqueAttributesCache();
         //Only the DummyRoot is not cached. It will be cached on demand later
+        return allClasses;
     }
    
     private List<ClassMetadataLight> refreshPossibleChildren(Node classNode) {
@@ -0,0 +1,439 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.neo4j.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
+import org.neotropic.kuwaiba.core.apis.persistence.ConnectionManager;
+import org.neotropic.kuwaiba.core.apis.persistence.application.FileObjectContent;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Stores the contents of the files attached to inventory objects and list type items. The contents are streamed
+ * to disk (they are never loaded in memory as a whole) and addressed by their SHA-256 hash, so a file attached to many
+ * objects is stored only once. Optionally (configuration variable attachmentsCompression), the contents are stored
+ * gzip-compressed. The contents live in the folder <code>content</code> inside the attachments folder (configuration
+ * variable attachmentsPath), in a sub folder named after the first two characters of the hash, to keep the folders small.
+ * The hash and the size of the contents are kept in the attachment nodes (properties contentHash and size), and
+ * the contents are deleted when the last attachment node that refers to them is deleted. Attachment nodes without
+ * a hash refer to files stored before the contents were addressed by hash, and are read from their old location.
+ * New contents are kept under a temporary name until the attachment that refers to them has been committed, so
+ * an attachment that fails to be committed leaves nothing behind.
+ * @author agent {@literal <agent@local>}
+ */
+@Service
+public class AttachmentStore {
+    /**
+     * Default location of the attachments.
+     */
+    public static final String DEFAULT_ATTACHMENTS_PATH = "/data/files/attachments"; //NOI18N
+    /**
+     * Name of the folder inside the attachments folder where the contents are stored.
+     */
+    private static final String CONTENT_FOLDER = "content"; //NOI18N
+    /**
+     * Name of the folder inside the content folder where the contents are written before their hash is known.
+     */
+    private static final String TEMP_FOLDER = "tmp"; //NOI18N
+    /**
+     * Extension of the compressed contents.
+     */
+    private static final String COMPRESSED_EXTENSION = ".gz"; //NOI18N
+    /**
+     * Size of the buffer used to copy the contents.
+     */
+    private static final int BUFFER_SIZE = 65536;
+    /**
+     * Max time in seconds to wait for the index on the content hash to be online.
+     */
+    private static final int SCHEMA_INDEX_ONLINE_TIMEOUT = 300;
+    /**
+     * Reference to the connection manager.
+     */
+    @Autowired
+    private ConnectionManager<GraphDatabaseService> connectionManager;
+    /**
+     * The attachments folder.
+     */
+    private volatile Path attachmentsPath = Paths.get(DEFAULT_ATTACHMENTS_PATH);
+    /**
+     * If new contents should be stored compressed.
+     */
+    private volatile boolean compress;
+    /**
+     * Number of attachments being created that use a given hash, but have not been committed yet. The key is the hash.
+     * Contents in use by those attachments are not deleted even if no committed attachment refers to them.
+     * Access to this map is synchronized on the map itself, which also serializes adding and deleting contents.
+     */
+    private final HashMap<String, Integer> pendingReferences = new HashMap<>();
+    /**
+     * Hashes whose references are being counted to decide if their contents can be deleted. A hash is removed from
+     * this set when an attachment that uses it is committed, so the contents are not deleted if the references were
+     * counted before that attachment was committed. Access to this set is synchronized on {@link #pendingReferences}.
+     */
+    private final HashSet<String> pendingDeletions = new HashSet<>();
+
+    /**
+     * Reads the configuration and makes sure the attachments can be found by content hash without scanning them all.
+     * @param configuration The configuration variables (attachmentsPath and attachmentsCompression).
+     */
+    public void start(Properties configuration) {
+        attachmentsPath = Paths.get(configuration.getProperty("attachmentsPath", DEFAULT_ATTACHMENTS_PATH)); //NOI18N
+        compress = Boolean.valueOf(configuration.getProperty("attachmentsCompression", "false")); //NOI18N
+        createContentHashIndex();
+    }
+
+    /**
+     * The folder where the attachments are stored.
+     * @return The attachments folder.
+     */
+    public Path getAttachmentsPath() {
+        return attachmentsPath;
+    }
+
+    /**
+     * Streams the contents of a file to a temporary file in the store. The hash is marked as in use until 
+     * {@link #release(StoredContent, boolean)} is called, so the contents are not deleted before the attachment that 
+     * refers to them is committed. Callers must always call release once the attachment has been committed or discarded,
+     * which moves the temporary file to its final location or deletes it.
+     * @param contents The contents. The stream is not closed by this method.
+     * @param maxSize Max size of the contents in bytes.
+     * @return The hash and size of the contents.
+     * @throws ContentTooLargeException If the contents exceed the max size.
+     * @throws IOException If the contents could not be read or written.
+     */
+    public StoredContent store(InputStream contents, long maxSize) throws IOException {
+        if (!Files.isDirectory(attachmentsPath) || !Files.isWritable(attachmentsPath))
+            throw new IOException(String.format("Path %s does not exist or is not writeable", attachmentsPath.toAbsolutePath()));
+        Path tempFolder = Files.createDirectories(attachmentsPath.resolve(CONTENT_FOLDER).resolve(TEMP_FOLDER));
+        Path tempFile = Files.createTempFile(tempFolder, "upload", compress ? COMPRESSED_EXTENSION : null); //NOI18N
+        boolean stored = false;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256"); //NOI18N
+            long size = 0;
+            try (OutputStream out = isCompressed(tempFile) ? new GZIPOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE)
+                    : Files.newOutputStream(tempFile)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = contents.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxSize)
+                        throw new ContentTooLargeException(maxSize);
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+
+            String hash = toHex(digest.digest());
+            synchronized (pendingReferences) {
+                pendingReferences.merge(hash, 1, Integer::sum);
+            }
+            stored = true;
+            return new StoredContent(hash, size, tempFile);
+        } catch (NoSuchAlgorithmException ex) { //Every JVM supports SHA-256
+            throw new IOException(ex.getMessage());
+        } finally {
+            if (!stored)
+                Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Marks a hash as no longer used by an attachment being created. See {@link #store(java.io.InputStream, long)}.
+     * If the attachment was committed, its contents are moved to their final location, unless the same contents have 
+     * already been stored. Otherwise, they are discarded.
+     * @param content The contents as returned by {@link #store(java.io.InputStream, long)}.
+     * @param committed If the attachment that uses the hash was committed.
+     */
+    public void release(StoredContent content, boolean committed) {
+        try {
+            synchronized (pendingReferences) {
+                if (committed) {
+                    pendingDeletions.remove(content.getHash());
+                    if (getLocation(content.getHash()) == null) {
+                        Path location = getLocation(content.getHash(), isCompressed(content.getTempFile()));
+                        Files.createDirectories(location.getParent());
+                        try {
+                            Files.move(content.getTempFile(), location, StandardCopyOption.ATOMIC_MOVE);
+                        } catch (AtomicMoveNotSupportedException ex) {
+                            Files.move(content.getTempFile(), location);
+                        }
+                    }
+                }
+                pendingReferences.computeIfPresent(content.getHash(), (aHash, references) -> references == 1 ? null : references - 1);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(AttachmentStore.class.getName()).log(Level.SEVERE,
+                    String.format("[KUWAIBA] [%s] The attachment contents %s could not be stored: %s", //NOI18N
+                            Calendar.getInstance().getTime(), content.getHash(), ex.getLocalizedMessage()));
+        } finally {
+            try {
+                Files.deleteIfExists(content.getTempFile()); //Only left if the contents were already stored, discarded or something went wrong
+            } catch (IOException ex) {
+                Logger.getLogger(AttachmentStore.class.getName()).log(Level.WARNING,
+                        String.format("[KUWAIBA] [%s] The temporary file %s could not be deleted: %s", //NOI18N
+                                Calendar.getInstance().getTime(), content.getTempFile(), ex.getLocalizedMessage()));
+            }
+        }
+    }
+
+    /**
+     * Deletes the contents with a given hash if no attachment refers to them anymore. Should be called after the
+     * transaction where the attachment nodes were deleted has been committed. If called within that transaction, 
+     * the contents will be deleted even if the transaction is rolled back later. The references are counted without
+     * holding the lock of the store, so the contents are only deleted if no attachment that uses them has been 
+     * committed or started meanwhile.
+     * @param hash The hash.
+     */
+    public void deleteIfUnused(String hash) {
+        synchronized (pendingReferences) {
+            if (pendingReferences.containsKey(hash))
+                return;
+            pendingDeletions.add(hash);
+        }
+        try {
+            long references;
+            try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                HashMap<String, Object> parameters = new HashMap<>();
+                parameters.put("hash", hash); //NOI18N
+                Result result = connectionManager.getConnectionHandler().execute(String.format(
+                        "MATCH (attachment:%s) WHERE attachment.%s = {hash} RETURN count(attachment) AS references", //NOI18N
+                        Constants.LABEL_ATTACHMENTS, Constants.PROPERTY_CONTENT_HASH), parameters);
+                references = (long) result.next().get("references"); //NOI18N
+                tx.success(); //Otherwise, an enclosing transaction would be rolled back
+            }
+            synchronized (pendingReferences) {
+                //If the hash is no longer pending deletion, an attachment that uses it was committed after the references were counted
+                if (!pendingDeletions.remove(hash) || references > 0 || pendingReferences.containsKey(hash))
+                    return;
+                Path location = getLocation(hash);
+                if (location != null)
+                    Files.delete(location);
+            }
+        } catch (Exception ex) {
+            synchronized (pendingReferences) {
+                pendingDeletions.remove(hash);
+            }
+            Logger.getLogger(AttachmentStore.class.getName()).log(Level.WARNING,
+                    String.format("[KUWAIBA] [%s] The attachment contents %s could not be deleted: %s", //NOI18N
+                            Calendar.getInstance().getTime(), hash, ex.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     * Records the contents of a new attachment in its node.
+     * @param fileObjectNode The attachment node.
+     * @param content The contents as returned by {@link #store(java.io.InputStream, long)}.
+     */
+    public void setContent(Node fileObjectNode, StoredContent content) {
+        fileObjectNode.setProperty(Constants.PROPERTY_CONTENT_HASH, content.getHash());
+        fileObjectNode.setProperty(Constants.PROPERTY_SIZE, content.getSize());
+    }
+
+    /**
+     * Gets the metadata and the location of the contents of an attachment. Must be called within a transaction.
+     * @param fileObjectNode The attachment node.
+     * @param ownerId The id of the object or list type item the file is attached to.
+     * @return The attachment.
+     * @throws IOException If the contents could not be found.
+     */
+    public FileObjectContent getContent(Node fileObjectNode, String ownerId) throws IOException {
+        String hash = (String) fileObjectNode.getProperty(Constants.PROPERTY_CONTENT_HASH, null);
+        Path location = hash == null ? getLegacyLocation(ownerId, fileObjectNode.getId()) : getLocation(hash);
+        if (location == null || !Files.exists(location))
+            throw new FileNotFoundException(String.format("The contents of the attachment %s could not be found", fileObjectNode.getId()));
+        
+        return new FileObjectContent(fileObjectNode.getId(), (String) fileObjectNode.getProperty(Constants.PROPERTY_NAME),
+                (String) fileObjectNode.getProperty(Constants.PROPERTY_TAGS), (long) fileObjectNode.getProperty(Constants.PROPERTY_CREATION_DATE),
+                location, isCompressed(location), hash == null ? Files.size(location) : (long) fileObjectNode.getProperty(Constants.PROPERTY_SIZE));
+    }
+
+    /**
+     * Deletes the file of an attachment stored before the contents were addressed by hash. Attachments with
+     * a hash are deleted with {@link #deleteIfUnused(java.lang.String)} once the attachment nodes have been deleted.
+     * @param fileObjectNode The attachment node.
+     * @param ownerId The id of the object or list type item the file is attached to.
+     * @return The hash of the contents, to be passed to deleteIfUnused once the transaction is committed. Null if
+     * the attachment had no hash and its file has already been deleted.
+     */
+    public String deleteContent(Node fileObjectNode, String ownerId) {
+        String hash = (String) fileObjectNode.getProperty(Constants.PROPERTY_CONTENT_HASH, null);
+        if (hash == null) {
+            Path location = getLegacyLocation(ownerId, fileObjectNode.getId());
+            try {
+                Files.deleteIfExists(location);
+            } catch (IOException ex) {
+                Logger.getLogger(AttachmentStore.class.getName()).log(Level.WARNING,
+                        String.format("[KUWAIBA] [%s] The attachment %s could not be deleted: %s", //NOI18N
+                                Calendar.getInstance().getTime(), location, ex.getLocalizedMessage()));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Finds the file where the contents with a given hash are stored.
+     * @param hash The hash.
+     * @return The location of the contents or null if there are no contents with that hash.
+     */
+    public Path getLocation(String hash) {
+        Path location = getLocation(hash, false);
+        if (Files.exists(location))
+            return location;
+        location = getLocation(hash, true);
+        return Files.exists(location) ? location : null;
+    }
+
+    /**
+     * Tells if stored contents are compressed.
+     * @param location The location of the contents as returned by {@link #getLocation(java.lang.String)}.
+     * @return If the contents are gzip-compressed.
+     */
+    public boolean isCompressed(Path location) {
+        return location.getFileName().toString().endsWith(COMPRESSED_EXTENSION);
+    }
+
+    /**
+     * The location of the files attached before the contents were addressed by hash. Those files are named after
+     * the id of the object they are attached to and the id of the attachment.
+     * @param objectId The id of the object.
+     * @param fileObjectId The id of the attachment.
+     * @return The location of the file.
+     */
+    public Path getLegacyLocation(String objectId, long fileObjectId) {
+        return attachmentsPath.resolve(objectId + "_" + fileObjectId); //NOI18N
+    }
+
+    /**
+     * Makes sure there is a schema index on the content hash of the attachments, so the references to some contents
+     * can be counted without scanning all the attachments. See BusinessEntityManagerImpl.createUuidIndexes.
+     */
+    private void createContentHashIndex() {
+        Label attachmentsLabel = Label.label(Constants.LABEL_ATTACHMENTS);
+        try {
+            try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                Schema schema = connectionManager.getConnectionHandler().schema();
+                boolean indexExists = false;
+                for (IndexDefinition index : schema.getIndexes(attachmentsLabel)) {
+                    Iterator<String> propertyKeys = index.getPropertyKeys().iterator();
+                    if (propertyKeys.hasNext() && Constants.PROPERTY_CONTENT_HASH.equals(propertyKeys.next()) && !propertyKeys.hasNext()) {
+                        indexExists = true;
+                        break;
+                    }
+                }
+                if (!indexExists) {
+                    Logger.getLogger(AttachmentStore.class.getName()).log(Level.INFO, 
+                            String.format("[KUWAIBA] Creating index on %s(%s)", attachmentsLabel, Constants.PROPERTY_CONTENT_HASH));
+                    schema.indexFor(attachmentsLabel).on(Constants.PROPERTY_CONTENT_HASH).create();
+                }
+                tx.success();
+            }
+            
+            try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                connectionManager.getConnectionHandler().schema().awaitIndexesOnline(SCHEMA_INDEX_ONLINE_TIMEOUT, TimeUnit.SECONDS);
+                tx.success();
+            }
+        } catch (Exception ex) { // The index is an optimization. Without it, deleting attachments will be slower
+            Logger.getLogger(AttachmentStore.class.getName()).log(Level.SEVERE, 
+                    String.format("[KUWAIBA] [%s] The index on %s(%s) could not be created or is not online: %s", 
+                    Calendar.getInstance().getTime(), attachmentsLabel, Constants.PROPERTY_CONTENT_HASH, ex.getMessage()));
+        }
+    }
+
+    private Path getLocation(String hash, boolean compressed) {
+        return attachmentsPath.resolve(CONTENT_FOLDER).resolve(hash.substring(0, 2))
+                .resolve(compressed ? hash + COMPRESSED_EXTENSION : hash);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte aByte : bytes)
+            hex.append(Character.forDigit((aByte >> 4) & 0xF, 16)).append(Character.forDigit(aByte & 0xF, 16));
+        return hex.toString();
+    }
+
+    /**
+     * The hash and size of contents just stored, and the temporary file they are kept in until they are released.
+     */
+    public static class StoredContent {
+        /**
+         * The SHA-256 hash of the contents, in hexadecimal.
+         */
+        private final String hash;
+        /**
+         * The size of the (uncompressed) contents in bytes.
+         */
+        private final long size;
+        /**
+         * The file where the contents are kept until the attachment that refers to them is committed.
+         */
+        private final Path tempFile;
+
+        public StoredContent(String hash, long size, Path tempFile) {
+            this.hash = hash;
+            this.size = size;
+            this.tempFile = tempFile;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public Path getTempFile() {
+            return tempFile;
+        }
+    }
+
+    /**
+     * Thrown when the contents to be stored exceed the max size allowed.
+     */
+    public static class ContentTooLargeException extends IOException {
+        public ContentTooLargeException(long maxSize) {
+            super(String.format("The file size exceeds the maximum size allowed (%s MB)", maxSize / 1048576f));
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.neo4j.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neotropic.kuwaiba.core.apis.persistence.ConnectionManager;
+import org.neotropic.kuwaiba.core.apis.persistence.application.ActivityLogEntry;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Moves the audit trail entries older than a given number of days (configuration variable auditTrailArchiveAfterDays)
+ * out of the database, into compressed files on local disk, one per day (UTC), so the audit trail in the database
+ * doesn't grow forever. The entries are moved once a day, oldest first, in chunks, each chunk in a single transaction.
+ * A chunk is deleted from the database only after it has been written to disk, so if the application stops in
+ * the middle, some entries may end up archived twice, but none is lost. The archived entries can still be retrieved
+ * with {@link #getArchivedEntries(long, long, int, java.lang.String, java.lang.Integer)}.
+ * @author agent {@literal <agent@local>}
+ */
+@Service
+public class AuditTrailArchiver {
+    /**
+     * Default location of the archive files.
+     */
+    public static final String DEFAULT_ARCHIVE_PATH = "/data/audit-trail/archive"; //NOI18N
+    /**
+     * Number of entries moved in a single transaction.
+     */
+    private static final int CHUNK_SIZE = 5000;
+    /**
+     * How long (in minutes) after the start up the entries are archived for the first time.
+     */
+    private static final int INITIAL_DELAY = 10;
+    /**
+     * Prefix of the archive files. The file name is the prefix, the date (yyyy-mm-dd) and the extension.
+     */
+    private static final String FILE_PREFIX = "audit-trail-"; //NOI18N
+    /**
+     * Extension of the archive files.
+     */
+    private static final String FILE_EXTENSION = ".gz"; //NOI18N
+    /**
+     * Reference to the connection manager.
+     */
+    @Autowired
+    private ConnectionManager<GraphDatabaseService> connectionManager;
+    /**
+     * Runs the archival once a day.
+     */
+    private ScheduledExecutorService scheduler;
+    /**
+     * Where the archive files are stored.
+     */
+    private Path archivePath;
+    /**
+     * Entries older than this number of days are archived.
+     */
+    private int archiveAfterDays;
+
+    /**
+     * Reads the configuration and, if the archival is enabled, schedules it once a day.
+     * @param configuration The application configuration variables (auditTrailArchiveAfterDays and auditTrailArchivePath).
+     */
+    public synchronized void start(Properties configuration) {
+        archivePath = Paths.get(configuration.getProperty("auditTrailArchivePath", DEFAULT_ARCHIVE_PATH)); //NOI18N
+        try {
+            archiveAfterDays = Integer.valueOf(configuration.getProperty("auditTrailArchiveAfterDays", "0")); //NOI18N
+        } catch (NumberFormatException ex) {
+            Logger.getLogger(AuditTrailArchiver.class.getName()).log(Level.WARNING,
+                    String.format("[KUWAIBA] [%s] Invalid number of days to archive the audit trail after. The audit trail will not be archived: %s", //NOI18N
+                            Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+            archiveAfterDays = 0;
+        }
+        if (archiveAfterDays <= 0 || scheduler != null)
+            return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread archiverThread = new Thread(runnable, "audit-trail-archiver"); //NOI18N
+            archiverThread.setDaemon(true);
+            return archiverThread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archive();
+            } catch (Exception ex) { //An exception would cancel the scheduled task
+                Logger.getLogger(AuditTrailArchiver.class.getName()).log(Level.SEVERE,
+                        String.format("[KUWAIBA] [%s] The audit trail could not be archived: %s", //NOI18N
+                                Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+            }
+        }, TimeUnit.MINUTES.toMillis(INITIAL_DELAY), TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the scheduled archival. If it's running, it's interrupted between chunks.
+     */
+    public synchronized void stop() {
+        if (scheduler == null)
+            return;
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    /**
+     * Moves the entries created before the beginning of the day (UTC) that is auditTrailArchiveAfterDays days ago to the archive files.
+     * @return The number of entries archived.
+     * @throws IOException If the archive files could not be written.
+     */
+    public long archive() throws IOException {
+        if (archiveAfterDays <= 0)
+            return 0;
+        Files.createDirectories(archivePath);
+        long cutOff = LocalDate.now(ZoneOffset.UTC).minusDays(archiveAfterDays).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+
+        HashMap<String, Object> parameters = new HashMap<>();
+        parameters.put("cutOff", cutOff); //NOI18N
+        parameters.put("chunkSize", CHUNK_SIZE); //NOI18N
+        String query = "MATCH (auditTrailEntry:generalActivityLogs) WHERE auditTrailEntry.creationDate < {cutOff} " //NOI18N
+                + "RETURN auditTrailEntry ORDER BY auditTrailEntry.creationDate LIMIT {chunkSize}"; //NOI18N
+
+        long archivedEntries = 0;
+        GraphDatabaseService graphDb = connectionManager.getConnectionHandler();
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Transaction tx = graphDb.beginTx()) {
+                Result result = graphDb.execute(query, parameters);
+                //The entries of the chunk grouped by the day they were created
+                TreeMap<LocalDate, List<ArchivedEntry>> entriesByDay = new TreeMap<>();
+                List<Node> entryNodes = new ArrayList<>();
+                while (result.hasNext()) {
+                    Node entryNode = (Node) result.next().get("auditTrailEntry"); //NOI18N
+                    ArchivedEntry entry = toArchivedEntry(entryNode);
+                    entriesByDay.computeIfAbsent(toDay(entry.timestamp), day -> new ArrayList<>()).add(entry);
+                    entryNodes.add(entryNode);
+                }
+                if (entryNodes.isEmpty())
+                    break;
+
+                for (Map.Entry<LocalDate, List<ArchivedEntry>> day : entriesByDay.entrySet())
+                    append(day.getKey(), day.getValue());
+
+                for (Node entryNode : entryNodes) {
+                    for (Relationship relationship : entryNode.getRelationships())
+                        relationship.delete();
+                    entryNode.delete();
+                }
+                tx.success();
+                archivedEntries += entryNodes.size();
+            }
+        }
+        if (archivedEntries > 0)
+            Logger.getLogger(AuditTrailArchiver.class.getName()).log(Level.INFO,
+                    String.format("[KUWAIBA] [%s] %s audit trail entries created before %s archived in %s", //NOI18N
+                            Calendar.getInstance().getTime(), archivedEntries, Instant.ofEpochMilli(cutOff), archivePath));
+        return archivedEntries;
+    }
+
+    /**
+     * Gets the archived entries created in a given period.
+     * @param from The beginning of the period in milliseconds (inclusive).
+     * @param to The end of the period in milliseconds (exclusive).
+     * @param limit Max number of entries to be returned. -1 to retrieve them all.
+     * @param userName Return only the entries of this user. Null to return the entries of all users.
+     * @param type Return only the entries of this type. Null to return the entries of all types.
+     * @return The entries, most recent first.
+     * @throws IOException If the archive files could not be read.
+     */
+    public List<ActivityLogEntry> getArchivedEntries(long from, long to, int limit, String userName, Integer type) throws IOException {
+        List<ActivityLogEntry> entries = new ArrayList<>();
+        if (archivePath == null || !Files.isDirectory(archivePath) || from >= to)
+            return entries;
+
+        //The files are read from the most recent day backwards, so it's possible to stop as soon as the limit is reached
+        for (LocalDate day = toDay(to - 1); !day.isBefore(toDay(from)); day = day.minusDays(1)) {
+            Path dayFile = archivePath.resolve(FILE_PREFIX + day + FILE_EXTENSION);
+            if (!Files.exists(dayFile))
+                continue;
+            List<ActivityLogEntry> entriesInDay = new ArrayList<>();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(dayFile))))) {
+                while (true) {
+                    ArchivedEntry entry = read(in);
+                    if (entry == null)
+                        break;
+                    if (entry.timestamp >= from && entry.timestamp < to
+                            && (userName == null || userName.equals(entry.userName)) && (type == null || type == entry.type))
+                        entriesInDay.add(new ActivityLogEntry(entry.id, 0, entry.type, entry.userName, entry.timestamp,
+                                entry.affectedProperty, entry.oldValue, entry.newValue, entry.notes));
+                }
+            }
+            entriesInDay.sort(Comparator.comparingLong(ActivityLogEntry::getTimestamp).reversed());
+            for (ActivityLogEntry entry : entriesInDay) {
+                if (limit >= 0 && entries.size() >= limit)
+                    return entries;
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Appends entries to the file of a day. Each call adds a new gzip member to the file, and the file is
+     * synced to disk before returning.
+     * @param day The day.
+     * @param entries The entries created that day.
+     * @throws IOException If the file could not be written.
+     */
+    private void append(LocalDate day, List<ArchivedEntry> entries) throws IOException {
+        Path dayFile = archivePath.resolve(FILE_PREFIX + day + FILE_EXTENSION);
+        try (FileOutputStream fileOut = new FileOutputStream(dayFile.toFile(), true)) {
+            GZIPOutputStream gzipOut = new GZIPOutputStream(new BufferedOutputStream(fileOut));
+            DataOutputStream out = new DataOutputStream(gzipOut);
+            for (ArchivedEntry entry : entries) {
+                out.writeLong(entry.id);
+                AuditTrailWriter.writeString(out, entry.objectId);
+                AuditTrailWriter.writeString(out, entry.userName);
+                out.writeInt(entry.type);
+                out.writeLong(entry.timestamp);
+                AuditTrailWriter.writeString(out, entry.affectedProperty);
+                AuditTrailWriter.writeString(out, entry.oldValue);
+                AuditTrailWriter.writeString(out, entry.newValue);
+                AuditTrailWriter.writeString(out, entry.notes);
+            }
+            gzipOut.finish();
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    /**
+     * Reads an entry from an archive file.
+     * @param in The decompressed contents of the file.
+     * @return The entry or null if the end of the file was reached.
+     * @throws IOException If the file could not be read.
+     */
+    private ArchivedEntry read(DataInputStream in) throws IOException {
+        long id;
+        try {
+            id = in.readLong();
+        } catch (EOFException ex) {
+            return null;
+        }
+        return new ArchivedEntry(id, AuditTrailWriter.readString(in), AuditTrailWriter.readString(in), in.readInt(), in.readLong(),
+                AuditTrailWriter.readString(in), AuditTrailWriter.readString(in), AuditTrailWriter.readString(in), AuditTrailWriter.readString(in));
+    }
+
+    private ArchivedEntry toArchivedEntry(Node entryNode) {
+        Relationship performedBy = entryNode.getSingleRelationship(RelTypes.PERFORMED_BY, Direction.OUTGOING);
+        Relationship historyEntry = entryNode.getSingleRelationship(RelTypes.HAS_HISTORY_ENTRY, Direction.INCOMING);
+        return new ArchivedEntry(entryNode.getId(),
+                historyEntry == null ? null : (String) historyEntry.getStartNode().getProperty(Constants.PROPERTY_UUID, null),
+                performedBy == null ? null : (String) performedBy.getEndNode().getProperty(Constants.PROPERTY_NAME, null),
+                (Integer) entryNode.getProperty(Constants.PROPERTY_TYPE),
+                (Long) entryNode.getProperty(Constants.PROPERTY_CREATION_DATE),
+                (String) entryNode.getProperty(Constants.PROPERTY_AFFECTED_PROPERTY, null),
+                (String) entryNode.getProperty(Constants.PROPERTY_OLD_VALUE, null),
+                (String) entryNode.getProperty(Constants.PROPERTY_NEW_VALUE, null),
+                (String) entryNode.getProperty(Constants.PROPERTY_NOTES, null));
+    }
+
+    private static LocalDate toDay(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    /**
+     * An entry as stored in the archive files.
+     */
+    private static class ArchivedEntry {
+        private final long id;
+        /**
+         * The id of the affected object. Null for general activity log entries.
+         */
+        private final String objectId;
+        private final String userName;
+        private final int type;
+        private final long timestamp;
+        private final String affectedProperty;
+        private final String oldValue;
+        private final String newValue;
+        private final String notes;
+
+        public ArchivedEntry(long id, String objectId, String userName, int type, long timestamp,
+                String affectedProperty, String oldValue, String newValue, String notes) {
+            this.id = id;
+            this.objectId = objectId;
+            this.userName = userName;
+            this.type = type;
+            this.timestamp = timestamp;
+            this.affectedProperty = affectedProperty;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+            this.notes = notes;
+        }
+    }
+}
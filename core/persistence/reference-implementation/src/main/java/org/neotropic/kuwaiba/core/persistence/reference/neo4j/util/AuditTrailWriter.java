@@ -0,0 +1,798 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.neo4j.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neotropic.kuwaiba.core.apis.persistence.ConnectionManager;
+import org.neotropic.kuwaiba.core.apis.persistence.application.ActivityLogEntry;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.ApplicationObjectNotFoundException;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.neotropic.kuwaiba.core.i18n.TranslationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes the audit trail entries. By default, the entries are written right away within the caller's transaction. If
+ * the asynchronous mode is enabled (configuration variable auditTrailAsync), the entries are put in a bounded queue
+ * and written by a background thread in batches, each batch in a single transaction, so bulk operations don't carry
+ * the audit trail in their own transactions. An entry is only queued once the transaction it was created in has been
+ * committed, and it's discarded if that transaction is rolled back. The queued entries are also appended to a write-ahead
+ * file on local disk, followed by a watermark record every time a batch is written, and the file is replayed on start up,
+ * so the entries are neither lost nor written twice if the application stops before or right after they are written.
+ * When the queue is full, the caller waits at most auditTrailMaxWait milliseconds for room, and then writes the entry
+ * itself. The entries that have not been written yet can be retrieved with {@link #getPendingEntries()}, so they can be
+ * shown along with those already in the database.
+ * @author agent {@literal <agent@local>}
+ */
+@Service
+public class AuditTrailWriter {
+    /**
+     * Default max number of entries waiting to be written.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+    /**
+     * Default max number of entries written in a single transaction.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    /**
+     * Default time in milliseconds a caller waits for room in the queue before writing the entry itself.
+     */
+    public static final long DEFAULT_MAX_WAIT = 1000;
+    /**
+     * Default location of the write-ahead file.
+     */
+    public static final String DEFAULT_WAL_PATH = "/data/audit-trail/audit-trail.wal"; //NOI18N
+    /**
+     * How long (in milliseconds) the background thread waits for new entries before checking if it should stop.
+     */
+    private static final long POLL_INTERVAL = 200;
+    /**
+     * Number of times an entry is tried to be written before it's discarded.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+    /**
+     * Size in bytes the write-ahead file can reach before it's compacted.
+     */
+    private static final long MAX_WAL_SIZE = 64 * 1024 * 1024;
+    /**
+     * Kind of the write-ahead file records holding an entry.
+     */
+    private static final byte RECORD_ENTRY = 0;
+    /**
+     * Kind of the write-ahead file records holding a watermark: all the entries with a sequence number up to the watermark
+     * have been written (or discarded), as well as the entries whose sequence numbers follow it in the record.
+     */
+    private static final byte RECORD_WATERMARK = 1;
+    /**
+     * Reference to the connection manager.
+     */
+    @Autowired
+    private ConnectionManager<GraphDatabaseService> connectionManager;
+    /**
+     * Reference to the translation service.
+     */
+    @Autowired
+    private TranslationService ts;
+    /**
+     * Label of the user nodes.
+     */
+    private final Label userLabel;
+    /**
+     * Label of the inventory object nodes.
+     */
+    private final Label inventoryObjectLabel;
+    /**
+     * The ids of the user nodes. The key is the user name.
+     */
+    private final ConcurrentHashMap<String, Long> userNodeIds;
+    /**
+     * The entries that have not been written yet. The key is the entry sequence number.
+     */
+    private final ConcurrentSkipListMap<Long, PendingEntry> pendingEntries;
+    /**
+     * The sequence numbers of the entries created in transactions that have not been committed or rolled back yet.
+     */
+    private final ConcurrentSkipListSet<Long> uncommittedEntries;
+    /**
+     * The entries created by the current thread in its open transaction.
+     */
+    private final ThreadLocal<TransactionEntries> transactionEntries;
+    /**
+     * The entries to be picked up by the background thread.
+     */
+    private final LinkedBlockingQueue<PendingEntry> queue;
+    /**
+     * The sequence number of the last created entry.
+     */
+    private final AtomicLong sequence;
+    /**
+     * Guards the write-ahead file, and the sequence numbers of the pending and uncommitted entries, so the watermark
+     * is consistent with them.
+     */
+    private final Object walLock;
+    /**
+     * Room left for new entries. A permit is taken when an entry is queued and released after it's written.
+     */
+    private Semaphore capacity;
+    /**
+     * Gives access to the database transaction bound to the current thread, so the entries can be queued once it's closed.
+     */
+    private ThreadToStatementContextBridge transactionBridge;
+    /**
+     * The write-ahead file. Null if it's not used.
+     */
+    private FileChannel wal;
+    /**
+     * The background thread.
+     */
+    private Thread writerThread;
+    /**
+     * If the entries are being written asynchronously.
+     */
+    private volatile boolean enabled;
+    /**
+     * If the background thread should keep running.
+     */
+    private volatile boolean running;
+    /**
+     * Max number of entries written in a single transaction.
+     */
+    private int batchSize;
+    /**
+     * Time in milliseconds a caller waits for room in the queue.
+     */
+    private long maxWait;
+
+    public AuditTrailWriter() {
+        this.userLabel = Label.label(Constants.LABEL_USER);
+        this.inventoryObjectLabel = Label.label(Constants.LABEL_INVENTORY_OBJECTS);
+        this.userNodeIds = new ConcurrentHashMap<>();
+        this.pendingEntries = new ConcurrentSkipListMap<>();
+        this.uncommittedEntries = new ConcurrentSkipListSet<>();
+        this.transactionEntries = new ThreadLocal<>();
+        this.queue = new LinkedBlockingQueue<>();
+        this.sequence = new AtomicLong();
+        this.walLock = new Object();
+    }
+
+    /**
+     * Reads the configuration and, if the asynchronous mode is enabled, writes the entries left in the write-ahead
+     * file by a previous run and starts the background thread. Must be called after the connection to the database is open.
+     * @param configuration The application configuration variables (auditTrailAsync, auditTrailQueueSize,
+     * auditTrailBatchSize, auditTrailMaxWait and auditTrailWalPath).
+     */
+    public void start(Properties configuration) {
+        if (enabled || !Boolean.valueOf(configuration.getProperty("auditTrailAsync", "false"))) //NOI18N
+            return;
+
+        int queueSize = DEFAULT_QUEUE_SIZE;
+        batchSize = DEFAULT_BATCH_SIZE;
+        maxWait = DEFAULT_MAX_WAIT;
+        try {
+            queueSize = Integer.valueOf(configuration.getProperty("auditTrailQueueSize", String.valueOf(DEFAULT_QUEUE_SIZE))); //NOI18N
+            batchSize = Integer.valueOf(configuration.getProperty("auditTrailBatchSize", String.valueOf(DEFAULT_BATCH_SIZE))); //NOI18N
+            maxWait = Long.valueOf(configuration.getProperty("auditTrailMaxWait", String.valueOf(DEFAULT_MAX_WAIT))); //NOI18N
+        } catch (NumberFormatException ex) {
+            Logger.getLogger(AuditTrailWriter.class.getName()).log(Level.WARNING,
+                    String.format("[KUWAIBA] [%s] Invalid audit trail writer settings, using the defaults: %s", //NOI18N
+                            Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+        }
+        capacity = new Semaphore(Math.max(1, queueSize));
+        batchSize = Math.max(1, batchSize);
+        transactionBridge = ((GraphDatabaseAPI) connectionManager.getConnectionHandler()).getDependencyResolver()
+                .resolveDependency(ThreadToStatementContextBridge.class);
+
+        String walPath = configuration.getProperty("auditTrailWalPath", DEFAULT_WAL_PATH); //NOI18N
+        if (walPath != null && !walPath.trim().isEmpty()) {
+            try {
+                Path path = Paths.get(walPath);
+                if (path.getParent() != null)
+                    Files.createDirectories(path.getParent());
+                wal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                replay();
+            } catch (IOException ex) {
+                wal = null;
+                Logger.getLogger(AuditTrailWriter.class.getName()).log(Level.WARNING,
+                        String.format("[KUWAIBA] [%s] The audit trail write-ahead file %s could not be opened. Queued entries will be lost if the application stops: %s", //NOI18N
+                                Calendar.getInstance().getTime(), walPath, ex.getLocalizedMessage()));
+            }
+        }
+
+        running = true;
+        writerThread = new Thread(this::writeQueuedEntries, "audit-trail-writer"); //NOI18N
+        writerThread.setDaemon(true);
+        writerThread.start();
+        enabled = true;
+    }
+
+    /**
+     * Stops accepting entries asynchronously and waits until the queued entries are written.
+     * Must be called before the connection to the database is closed.
+     */
+    public void stop() {
+        if (!enabled)
+            return;
+        enabled = false;
+        running = false;
+        try {
+            writerThread.join(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (walLock) {
+            try {
+                if (wal != null)
+                    wal.close();
+            } catch (IOException ex) {
+                Logger.getLogger(AuditTrailWriter.class.getName()).log(Level.WARNING,
+                        String.format("[KUWAIBA] [%s] The audit trail write-ahead file could not be closed: %s", //NOI18N
+                                Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+            }
+            wal = null;
+        }
+    }
+
+    /**
+     * Tells if the entries are being written asynchronously.
+     * @return True if the asynchronous mode is enabled and running.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Creates an audit trail entry. It's written right away within the caller's transaction if the asynchronous mode is disabled
+     * or the queue is full, otherwise it's queued once the caller's transaction is committed. Must be called within a transaction.
+     * @param objectNode The node of the affected object. Null if it's a general activity log entry.
+     * @param userName The user that performed the action.
+     * @param type The type of entry. See ActivityLogEntry.ACTIVITY_TYPE_XXX for possible values.
+     * @param timestamp The time of the action in milliseconds.
+     * @param affectedProperty The affected properties, if any.
+     * @param oldValue The old values, if any.
+     * @param newValue The new values, if any.
+     * @param notes Additional notes, if any.
+     * @return The id of the log entry node, or a negative number (the opposite of the entry sequence number) if the entry was queued.
+     * @throws ApplicationObjectNotFoundException If the user could not be found.
+     */
+    public long log(Node objectNode, String userName, int type, long timestamp,
+            String affectedProperty, String oldValue, String newValue, String notes) throws ApplicationObjectNotFoundException {
+        GraphDatabaseService graphDb = connectionManager.getConnectionHandler();
+        Node userNode = findUserNode(graphDb, userName);
+        if (enabled) {
+            boolean queued = false;
+            try {
+                queued = capacity.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (queued) {
+                PendingEntry entry;
+                synchronized (walLock) {
+                    entry = new PendingEntry(sequence.incrementAndGet(),
+                            objectNode == null ? null : (String) objectNode.getProperty(Constants.PROPERTY_UUID, null),
+                            userName, type, timestamp, affectedProperty, oldValue, newValue, notes);
+                    uncommittedEntries.add(entry.getSequence());
+                }
+                KernelTransaction transaction = transactionBridge.getKernelTransactionBoundToThisThread(true);
+                TransactionEntries entries = transactionEntries.get();
+                if (entries == null || entries.transaction != transaction) {
+                    TransactionEntries newEntries = new TransactionEntries(transaction);
+                    //Called in this thread once the transaction has been committed or rolled back, even if it has no changes
+                    transaction.registerCloseListener(transactionId -> {
+                        if (transactionEntries.get() == newEntries)
+                            transactionEntries.remove();
+                        transactionClosed(newEntries.entries, transactionId);
+                    });
+                    transactionEntries.set(newEntries);
+                    entries = newEntries;
+                }
+                entries.entries.add(entry);
+                return -entry.getSequence();
+            }
+        }
+        return Util.createActivityLogEntry(objectNode, userNode, type, timestamp, affectedProperty, oldValue, newValue, notes, graphDb).getId();
+    }
+
+    /**
+     * Queues the entries created in a transaction if it was committed, or discards them if it was rolled back.
+     * @param entries The entries created in the transaction.
+     * @param transactionId The id of the committed transaction, or KernelTransaction.ROLLBACK if it was rolled back.
+     */
+    private void transactionClosed(List<PendingEntry> entries, long transactionId) {
+        synchronized (walLock) {
+            if (transactionId == KernelTransaction.ROLLBACK) {
+                for (PendingEntry entry : entries)
+                    uncommittedEntries.remove(entry.getSequence());
+                capacity.release(entries.size());
+                return;
+            }
+            for (PendingEntry entry : entries)
+                appendToWal(entry);
+            syncWal();
+            for (PendingEntry entry : entries) {
+                pendingEntries.put(entry.getSequence(), entry);
+                uncommittedEntries.remove(entry.getSequence());
+            }
+        }
+        queue.addAll(entries);
+    }
+
+    /**
+     * The entries that have not been written to the database yet.
+     * @return The entries, newest first.
+     */
+    public List<PendingEntry> getPendingEntries() {
+        return new ArrayList<>(pendingEntries.descendingMap().values());
+    }
+
+    /**
+     * Finds the node of a user, remembering its id so the index doesn't have to be queried next time.
+     * @param graphDb The connection handler.
+     * @param userName The user name.
+     * @return The user node.
+     * @throws ApplicationObjectNotFoundException If the user could not be found.
+     */
+    private Node findUserNode(GraphDatabaseService graphDb, String userName) throws ApplicationObjectNotFoundException {
+        Long userNodeId = userNodeIds.get(userName);
+        if (userNodeId != null) {
+            try {
+                Node userNode = graphDb.getNodeById(userNodeId);
+                //The user might have been renamed or deleted (and its id reused) since it was cached
+                if (userNode.hasLabel(userLabel) && userName.equals(userNode.getProperty(Constants.PROPERTY_NAME, null)))
+                    return userNode;
+            } catch (NotFoundException ex) { }
+            userNodeIds.remove(userName, userNodeId);
+        }
+
+        Node userNode = graphDb.findNode(userLabel, Constants.PROPERTY_NAME, userName);
+        if (userNode == null) {
+            ApplicationObjectNotFoundException ex = new ApplicationObjectNotFoundException(String.format(ts.getTranslatedString("api.aem.error.200006"), userName));
+            ex.setPrefix("api.aem.error");
+            ex.setCode(200006);
+            ex.setMessageArgs(userName);
+            throw ex;
+        }
+        userNodeIds.put(userName, userNode.getId());
+        return userNode;
+    }
+
+    /**
+     * The body of the background thread. Takes the queued entries in batches and writes each batch in a single transaction.
+     */
+    private void writeQueuedEntries() {
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEntry firstEntry = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (firstEntry == null)
+                    continue;
+                batch.add(firstEntry);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) { //The thread must not die
+                Logger.getLogger(AuditTrailWriter.class.getName()).log(Level.SEVERE,
+                        String.format("[KUWAIBA] [%s] Unexpected error writing the audit trail: %s", //NOI18N
+                                Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch of entries in a single transaction. If the transaction fails, the entries are written one by one, and
+     * those that fail are queued again, or discarded if they have failed too many times.
+     * @param batch The entries.
+     */
+    private void write(List<PendingEntry> batch) {
+        GraphDatabaseService graphDb = connectionManager.getConnectionHandler();
+        try (Transaction tx = graphDb.beginTx()) {
+            for (PendingEntry entry : batch)
+                write(entry, graphDb);
+            tx.success();
+        } catch (Exception ex) {
+            for (PendingEntry entry : batch) {
+                try (Transaction tx = graphDb.beginTx()) {
+                    write(entry, graphDb);
+                    tx.success();
+                } catch (Exception entryEx) {
+                    if (++entry.attempts < MAX_ATTEMPTS) {
+                        queue.add(entry);
+                        continue;
+                    }
+                    Logger.getLogger(AuditTrailWriter.class.getName()).log(Level.SEVERE,
+                            String.format("[KUWAIBA] [%s] Audit trail entry %s by user %s could not be written and was discarded: %s", //NOI18N
+                                    Calendar.getInstance().getTime(), entry.getNotes(), entry.getUserName(), entryEx.getLocalizedMessage()));
+                }
+                written(Collections.singletonList(entry));
+            }
+            return;
+        }
+        written(batch);
+    }
+
+    /**
+     * Writes a single entry. Transactions are not managed here. If the affected object was deleted after the entry was
+     * queued, the entry is dropped: its audit trail was deleted along with it, and the entry can't be turned into a
+     * general activity log entry, since that's a different kind of entry.
+     * @param entry The entry.
+     * @param graphDb The connection handler.
+     * @throws ApplicationObjectNotFoundException If the user was deleted after the entry was queued.
+     */
+    private void write(PendingEntry entry, GraphDatabaseService graphDb) throws ApplicationObjectNotFoundException {
+        Node objectNode = null;
+        if (entry.getObjectId() != null) {
+            objectNode = graphDb.findNode(inventoryObjectLabel, Constants.PROPERTY_UUID, entry.getObjectId());
+            if (objectNode == null)
+                return;
+        }
+        Util.createActivityLogEntry(objectNode, findUserNode(graphDb, entry.getUserName()), entry.getType(), entry.getTimestamp(),
+                entry.getAffectedProperty(), entry.getOldValue(), entry.getNewValue(), entry.getNotes(), graphDb);
+    }
+
+    /**
+     * Forgets the entries already written (or discarded) and records it in the write-ahead file, so they are not written
+     * again if the file is replayed. The file is also kept small: it's emptied if there are no entries left to be written,
+     * and rewritten with the entries left if it grew too large.
+     * @param entries The entries.
+     */
+    private void written(Collection<PendingEntry> entries) {
+        synchronized (walLock) {
+            for (PendingEntry entry : entries)
+                pendingEntries.remove(entry.getSequence());
+            capacity.release(entries.size());
+            if (wal == null)
+                return;
+            try {
+                if (pendingEntries.isEmpty())
+                    wal.truncate(0);
+                else if (wal.size() > MAX_WAL_SIZE) {
+                    wal.truncate(0);
+                    for (PendingEntry pendingEntry : pendingEntries.values())
+                        appendToWal(pendingEntry);
+                } else {
+                    // Every entry below the oldest one not written yet is done
+                    long watermark = sequence.get();
+                    if (!pendingEntries.isEmpty())
+                        watermark = Math.min(watermark, pendingEntries.firstKey() - 1);
+                    if (!uncommittedEntries.isEmpty())
+                        watermark = Math.min(watermark, uncommittedEntries.first() - 1);
+                    List<Long> writtenEntries = new ArrayList<>();
+                    for (PendingEntry entry : entries) {
+                        if (entry.getSequence() > watermark)
+                            writtenEntries.add(entry.getSequence());
+                    }
+                    appendWatermarkToWal(watermark, writtenEntries);
+                }
+                syncWal();
+            } catch (IOException ex) {
+                Logger.getLogger(AuditTrailWriter.class.getName()).log(Level.WARNING,
+                        String.format("[KUWAIBA] [%s] The audit trail write-ahead file could not be compacted: %s", //NOI18N
+                                Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+            }
+        }
+    }
+
+    /**
+     * Appends an entry to the write-ahead file. Must be called holding the walLock. Each record is its length, followed
+     * by its kind and the entry itself.
+     * @param entry The entry.
+     */
+    private void appendToWal(PendingEntry entry) {
+        if (wal == null)
+            return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); //Placeholder for the length
+            out.writeByte(RECORD_ENTRY);
+            out.writeLong(entry.getSequence());
+            writeString(out, entry.getObjectId());
+            writeString(out, entry.getUserName());
+            out.writeInt(entry.getType());
+            out.writeLong(entry.getTimestamp());
+            writeString(out, entry.getAffectedProperty());
+            writeString(out, entry.getOldValue());
+            writeString(out, entry.getNewValue());
+            writeString(out, entry.getNotes());
+            out.flush();
+            appendRecordToWal(bytes.toByteArray());
+        } catch (IOException ex) {
+            Logger.getLogger(AuditTrailWriter.class.getName()).log(Level.WARNING,
+                    String.format("[KUWAIBA] [%s] Audit trail entry could not be added to the write-ahead file: %s", //NOI18N
+                            Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     * Appends a watermark to the write-ahead file. Must be called holding the walLock.
+     * @param watermark All the entries with a sequence number up to this one have been written or discarded.
+     * @param writtenEntries The sequence numbers of the entries above the watermark that have been written or discarded.
+     * @throws IOException If the record could not be appended.
+     */
+    private void appendWatermarkToWal(long watermark, Collection<Long> writtenEntries) throws IOException {
+        if (wal == null)
+            return;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Integer.BYTES * 2 + Long.BYTES * (writtenEntries.size() + 1) + 1);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); //Placeholder for the length
+        out.writeByte(RECORD_WATERMARK);
+        out.writeLong(watermark);
+        out.writeInt(writtenEntries.size());
+        for (long writtenEntry : writtenEntries)
+            out.writeLong(writtenEntry);
+        out.flush();
+        appendRecordToWal(bytes.toByteArray());
+    }
+
+    /**
+     * Appends a record to the end of the write-ahead file. Must be called holding the walLock.
+     * @param bytes The record, starting with room for its length.
+     * @throws IOException If the record could not be appended.
+     */
+    private void appendRecordToWal(byte[] bytes) throws IOException {
+        ByteBuffer record = ByteBuffer.wrap(bytes);
+        record.putInt(0, record.capacity() - Integer.BYTES);
+        wal.position(wal.size());
+        while (record.hasRemaining())
+            wal.write(record);
+    }
+
+    /**
+     * Flushes the write-ahead file to the disk. Must be called holding the walLock.
+     */
+    private void syncWal() {
+        if (wal == null)
+            return;
+        try {
+            wal.force(false);
+        } catch (IOException ex) {
+            Logger.getLogger(AuditTrailWriter.class.getName()).log(Level.WARNING,
+                    String.format("[KUWAIBA] [%s] The audit trail write-ahead file could not be flushed to the disk: %s", //NOI18N
+                            Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     * Writes the entries left in the write-ahead file by a previous run and empties it. The entries at or below the
+     * highest watermark, or listed in a watermark record, had already been written and are skipped. An incomplete last
+     * record (the application stopped while it was being appended) is ignored.
+     * @throws IOException If the file could not be read.
+     */
+    private void replay() throws IOException {
+        TreeMap<Long, PendingEntry> recordedEntries = new TreeMap<>();
+        Set<Long> writtenEntries = new HashSet<>();
+        long watermark = 0;
+        wal.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(wal)));
+        try {
+            while (true) {
+                byte[] record = new byte[in.readInt()];
+                in.readFully(record);
+                DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(record));
+                if (recordIn.readByte() == RECORD_WATERMARK) {
+                    watermark = Math.max(watermark, recordIn.readLong());
+                    for (int i = recordIn.readInt(); i > 0; i--)
+                        writtenEntries.add(recordIn.readLong());
+                } else {
+                    PendingEntry entry = new PendingEntry(recordIn.readLong(), readString(recordIn), readString(recordIn), recordIn.readInt(),
+                            recordIn.readLong(), readString(recordIn), readString(recordIn), readString(recordIn), readString(recordIn));
+                    recordedEntries.put(entry.getSequence(), entry);
+                }
+            }
+        } catch (EOFException ex) { } //End of the file or incomplete last record
+
+        if (!recordedEntries.isEmpty())
+            sequence.set(Math.max(sequence.get(), recordedEntries.lastKey()));
+        List<PendingEntry> leftEntries = new ArrayList<>();
+        for (PendingEntry entry : recordedEntries.tailMap(watermark, false).values()) {
+            if (!writtenEntries.contains(entry.getSequence()))
+                leftEntries.add(entry);
+        }
+
+        if (!leftEntries.isEmpty()) {
+            GraphDatabaseService graphDb = connectionManager.getConnectionHandler();
+            int discardedEntries = 0;
+            for (int i = 0; i < leftEntries.size(); i += batchSize) {
+                List<PendingEntry> batch = leftEntries.subList(i, Math.min(i + batchSize, leftEntries.size()));
+                try (Transaction tx = graphDb.beginTx()) {
+                    for (PendingEntry entry : batch)
+                        write(entry, graphDb);
+                    tx.success();
+                } catch (Exception ex) {
+                    for (PendingEntry entry : batch) {
+                        try (Transaction tx = graphDb.beginTx()) {
+                            write(entry, graphDb);
+                            tx.success();
+                        } catch (Exception entryEx) {
+                            discardedEntries++;
+                        }
+                    }
+                }
+                // The entries are replayed in order, so everything up to the end of the batch is done
+                synchronized (walLock) {
+                    appendWatermarkToWal(batch.get(batch.size() - 1).getSequence(), Collections.emptyList());
+                    syncWal();
+                }
+            }
+            Logger.getLogger(AuditTrailWriter.class.getName()).log(Level.INFO,
+                    String.format("[KUWAIBA] [%s] %s audit trail entries recovered from the write-ahead file, %s discarded", //NOI18N
+                            Calendar.getInstance().getTime(), leftEntries.size() - discardedEntries, discardedEntries));
+        }
+        wal.truncate(0);
+    }
+
+    /**
+     * Writes a string that can be null, preceded by its length in bytes (-1 for null values).
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null)
+            out.writeInt(-1);
+        else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(java.io.DataOutputStream, java.lang.String)}.
+     */
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The entries created within a database transaction that has not been closed yet.
+     */
+    private static class TransactionEntries {
+        private final KernelTransaction transaction;
+        private final List<PendingEntry> entries;
+
+        public TransactionEntries(KernelTransaction transaction) {
+            this.transaction = transaction;
+            this.entries = new ArrayList<>();
+        }
+    }
+
+    /**
+     * An audit trail entry that has not been written to the database yet.
+     */
+    public static class PendingEntry {
+        private final long sequence;
+        /**
+         * The id of the affected object. Null for general activity log entries.
+         */
+        private final String objectId;
+        private final String userName;
+        private final int type;
+        private final long timestamp;
+        private final String affectedProperty;
+        private final String oldValue;
+        private final String newValue;
+        private final String notes;
+        /**
+         * Number of failed attempts to write the entry. Only accessed by the background thread.
+         */
+        private int attempts;
+
+        public PendingEntry(long sequence, String objectId, String userName, int type, long timestamp,
+                String affectedProperty, String oldValue, String newValue, String notes) {
+            this.sequence = sequence;
+            this.objectId = objectId;
+            this.userName = userName;
+            this.type = type;
+            this.timestamp = timestamp;
+            this.affectedProperty = affectedProperty;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+            this.notes = notes;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getObjectId() {
+            return objectId;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getAffectedProperty() {
+            return affectedProperty;
+        }
+
+        public String getOldValue() {
+            return oldValue;
+        }
+
+        public String getNewValue() {
+            return newValue;
+        }
+
+        public String getNotes() {
+            return notes;
+        }
+
+        /**
+         * Converts the entry into a regular activity log entry. Since there's no log entry node yet, the id is the opposite of the sequence number.
+         * @param objectNodeId The id of the node of the affected object, if known, 0 otherwise.
+         * @return The activity log entry.
+         */
+        public ActivityLogEntry toActivityLogEntry(long objectNodeId) {
+            return new ActivityLogEntry(-sequence, objectNodeId, type, userName, timestamp, affectedProperty, oldValue, newValue, notes);
+        }
+    }
+}
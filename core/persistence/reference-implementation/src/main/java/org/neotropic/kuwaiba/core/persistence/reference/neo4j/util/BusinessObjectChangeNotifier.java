@@ -0,0 +1,219 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.neo4j.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectChange;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectChangeListener;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
+
+/**
+ * Reports the inventory objects created, updated, moved and deleted by every committed transaction to the 
+ * {@link BusinessObjectChangeListener}s registered in the Business Entity Manager. The changes are collected 
+ * while the transaction is still open (the deleted nodes can only be read through the transaction data) and 
+ * delivered after the commit. Since the handler is called by the database, the changes made by transactions 
+ * nested in other transactions are reported when the outermost one is committed, and nothing is reported if it 
+ * is rolled back.
+ * @author agent {@literal <agent@local>}
+ */
+public class BusinessObjectChangeNotifier implements TransactionEventHandler<List<BusinessObjectChange>> {
+    /**
+     * Reference to the database, used to read the classes of the deleted objects.
+     */
+    private final GraphDatabaseService graphDb;
+    /**
+     * The listeners to be notified. Owned by the Business Entity Manager.
+     */
+    private final List<BusinessObjectChangeListener> listeners;
+    /**
+     * The label of the inventory objects.
+     */
+    private final Label inventoryObjectLabel;
+
+    public BusinessObjectChangeNotifier(GraphDatabaseService graphDb, List<BusinessObjectChangeListener> listeners) {
+        this.graphDb = graphDb;
+        this.listeners = listeners;
+        this.inventoryObjectLabel = Label.label(Constants.LABEL_INVENTORY_OBJECTS);
+    }
+
+    @Override
+    public List<BusinessObjectChange> beforeCommit(TransactionData data) {
+        if (listeners.isEmpty())
+            return null;
+        
+        Map<Long, PendingChange> changes = new LinkedHashMap<>();
+        // Created objects
+        for (Node createdNode : data.createdNodes()) {
+            if (!createdNode.hasLabel(inventoryObjectLabel))
+                continue;
+            PendingChange change = new PendingChange(BusinessObjectChange.Type.CREATED);
+            change.id = (String) createdNode.getProperty(Constants.PROPERTY_UUID, null);
+            change.name = (String) createdNode.getProperty(Constants.PROPERTY_NAME, null);
+            Relationship instanceOf = createdNode.getSingleRelationship(RelTypes.INSTANCE_OF, Direction.OUTGOING);
+            if (instanceOf != null)
+                change.className = (String) instanceOf.getEndNode().getProperty(Constants.PROPERTY_NAME, null);
+            for (Relationship childOf : createdNode.getRelationships(Direction.OUTGOING, RelTypes.CHILD_OF, RelTypes.CHILD_OF_SPECIAL))
+                change.parentId = (String) childOf.getEndNode().getProperty(Constants.PROPERTY_UUID, null);
+            changes.put(createdNode.getId(), change);
+        }
+        // Deleted objects. Their properties and labels can only be read through the transaction data
+        Set<Long> deletedNodes = new HashSet<>();
+        for (Node deletedNode : data.deletedNodes())
+            deletedNodes.add(deletedNode.getId());
+        for (LabelEntry removedLabel : data.removedLabels()) {
+            if (deletedNodes.contains(removedLabel.node().getId()) && removedLabel.label().name().equals(Constants.LABEL_INVENTORY_OBJECTS))
+                changes.put(removedLabel.node().getId(), new PendingChange(BusinessObjectChange.Type.DELETED));
+        }
+        
+        // Property changes. Those of the deleted nodes provide their last id and name
+        for (PropertyEntry<Node> removedProperty : data.removedNodeProperties()) {
+            PendingChange change = getUpdatedObject(removedProperty.entity(), deletedNodes, changes);
+            if (change == null)
+                continue;
+            if (change.type == BusinessObjectChange.Type.DELETED) {
+                if (Constants.PROPERTY_UUID.equals(removedProperty.key()))
+                    change.id = (String) removedProperty.previouslyCommitedValue();
+                else if (Constants.PROPERTY_NAME.equals(removedProperty.key()))
+                    change.name = (String) removedProperty.previouslyCommitedValue();
+            } else if (change.type == BusinessObjectChange.Type.UPDATED)
+                change.attributes.add(removedProperty.key());
+        }
+        for (PropertyEntry<Node> assignedProperty : data.assignedNodeProperties()) {
+            PendingChange change = getUpdatedObject(assignedProperty.entity(), deletedNodes, changes);
+            if (change != null && change.type == BusinessObjectChange.Type.UPDATED)
+                change.attributes.add(assignedProperty.key());
+        }
+        
+        // Relationship changes: the classes of the deleted objects, moves and list type attributes
+        Map<Long, String> deletedRelationshipNames = new HashMap<>();
+        for (PropertyEntry<Relationship> removedProperty : data.removedRelationshipProperties()) {
+            if (Constants.PROPERTY_NAME.equals(removedProperty.key()))
+                deletedRelationshipNames.put(removedProperty.entity().getId(), (String) removedProperty.previouslyCommitedValue());
+        }
+        for (Relationship deletedRelationship : data.deletedRelationships()) {
+            long startNodeId = deletedRelationship.getStartNodeId();
+            if (deletedRelationship.isType(RelTypes.INSTANCE_OF)) {
+                PendingChange change = changes.get(startNodeId);
+                if (change != null && change.type == BusinessObjectChange.Type.DELETED && !deletedNodes.contains(deletedRelationship.getEndNodeId())) {
+                    try {
+                        change.className = (String) graphDb.getNodeById(deletedRelationship.getEndNodeId()).getProperty(Constants.PROPERTY_NAME, null);
+                    } catch (NotFoundException ex) {} // The class is unknown, but the deletion is still reported
+                }
+            } else if (deletedRelationship.isType(RelTypes.RELATED_TO) && !deletedNodes.contains(startNodeId)) {
+                PendingChange change = getUpdatedObject(graphDb.getNodeById(startNodeId), deletedNodes, changes);
+                String attributeName = deletedRelationshipNames.get(deletedRelationship.getId());
+                if (change != null && change.type == BusinessObjectChange.Type.UPDATED && attributeName != null)
+                    change.attributes.add(attributeName);
+            }
+        }
+        for (Relationship createdRelationship : data.createdRelationships()) {
+            if (!createdRelationship.isType(RelTypes.CHILD_OF) && !createdRelationship.isType(RelTypes.CHILD_OF_SPECIAL) 
+                    && !createdRelationship.isType(RelTypes.RELATED_TO))
+                continue;
+            PendingChange change = getUpdatedObject(createdRelationship.getStartNode(), deletedNodes, changes);
+            if (change == null || change.type != BusinessObjectChange.Type.UPDATED)
+                continue;
+            if (createdRelationship.isType(RelTypes.RELATED_TO)) {
+                Object attributeName = createdRelationship.getProperty(Constants.PROPERTY_NAME, null);
+                if (attributeName instanceof String)
+                    change.attributes.add((String) attributeName);
+            } else
+                change.parentId = (String) createdRelationship.getEndNode().getProperty(Constants.PROPERTY_UUID, null);
+        }
+        
+        List<BusinessObjectChange> result = new ArrayList<>();
+        for (PendingChange change : changes.values()) {
+            if (change.id == null || (change.type == BusinessObjectChange.Type.UPDATED && change.attributes.isEmpty() && change.parentId == null))
+                continue;
+            result.add(new BusinessObjectChange(change.type, change.id, change.className, change.name, change.parentId, change.attributes));
+        }
+        return result;
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, List<BusinessObjectChange> changes) {
+        if (changes == null || changes.isEmpty())
+            return;
+        for (BusinessObjectChangeListener listener : listeners) {
+            try {
+                listener.objectsChanged(changes);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(BusinessObjectChangeNotifier.class.getName()).log(Level.WARNING, 
+                        String.format("[KUWAIBA] A change listener failed: %s", ex.getLocalizedMessage()), ex);
+            }
+        }
+    }
+
+    @Override
+    public void afterRollback(TransactionData data, List<BusinessObjectChange> changes) {
+        // Nothing to report
+    }
+
+    /**
+     * Gets the change of an object that exists before and after the transaction, creating it if necessary. 
+     * The created and deleted objects get the change registered for them.
+     * @return The change or null if the node is not an inventory object.
+     */
+    private PendingChange getUpdatedObject(Node node, Set<Long> deletedNodes, Map<Long, PendingChange> changes) {
+        PendingChange change = changes.get(node.getId());
+        if (change != null || deletedNodes.contains(node.getId()) || !node.hasLabel(inventoryObjectLabel))
+            return change;
+        change = new PendingChange(BusinessObjectChange.Type.UPDATED);
+        change.id = (String) node.getProperty(Constants.PROPERTY_UUID, null);
+        change.name = (String) node.getProperty(Constants.PROPERTY_NAME, null);
+        Relationship instanceOf = node.getSingleRelationship(RelTypes.INSTANCE_OF, Direction.OUTGOING);
+        if (instanceOf != null)
+            change.className = (String) instanceOf.getEndNode().getProperty(Constants.PROPERTY_NAME, null);
+        changes.put(node.getId(), change);
+        return change;
+    }
+
+    /**
+     * A change being collected.
+     */
+    private static class PendingChange {
+        private final BusinessObjectChange.Type type;
+        private final Set<String> attributes;
+        private String id;
+        private String className;
+        private String name;
+        private String parentId;
+
+        private PendingChange(BusinessObjectChange.Type type) {
+            this.type = type;
+            this.attributes = new HashSet<>();
+        }
+    }
+}
@@ -20,9 +20,13 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
@@ -47,6 +51,7 @@ import org.neotropic.kuwaiba.core.apis.persistence.metadata.MetadataEntityManage
 import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
 import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.CacheManager;
+import org.neotropic.kuwaiba.core.persistence.reference.extras.caching.CacheInvalidationHandler;
 import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -87,6 +92,15 @@ public class ObjectGraphMappingService {
     @Autowired
     private TranslationService ts;
     
+    /**
+     * How the validators are evaluated when an object is mapped into a BusinessObjectLight.
+     */
+    private volatile ValidatorEvaluationMode validatorEvaluationMode = ValidatorEvaluationMode.EAGER;
+    /**
+     * Time spent evaluating validator definitions per class. The key is the class name.
+     */
+    private final ConcurrentHashMap<String, ValidatorExecutionStatistics> validatorExecutionStatistics = new ConcurrentHashMap<>();
+    
     private final String PREFIX = "api.service.object-graph-mapping";
     
     public BusinessObjectLight createObjectLightFromNode (Node instance) {
@@ -97,7 +111,60 @@ public class ObjectGraphMappingService {
         BusinessObjectLight res = new BusinessObjectLight(className, (String)instance.getProperty(Constants.PROPERTY_UUID), 
                 (String)instance.getProperty(Constants.PROPERTY_NAME), (String)classNode.getProperty(Constants.PROPERTY_DISPLAY_NAME, null));
         
-        //Then, we check the cache for validator definitions
+        //Then, depending on the evaluation mode, the validators are evaluated, taken from the cache or left to be requested on demand
+        switch (validatorEvaluationMode) {
+            case EAGER:
+                res.setValidators(evaluateValidators(instance, className));
+                break;
+            case CACHED:
+                res.setValidators(getValidators(instance, className));
+                break;
+        }
+        return res;
+    }
+    
+    /**
+     * Gets the validators of an object regardless of the evaluation mode. This is what callers should use to fetch the validators 
+     * on demand. In {@link ValidatorEvaluationMode#CACHED} mode the cached results are used if available.
+     * @param instance The object node.
+     * @return The list of validators applicable to the object.
+     */
+    public List<Validator> getValidators(Node instance) {
+        String className = (String)instance.getSingleRelationship(RelTypes.INSTANCE_OF, Direction.OUTGOING).getEndNode().getProperty(Constants.PROPERTY_NAME);
+        if (validatorEvaluationMode == ValidatorEvaluationMode.CACHED)
+            return getValidators(instance, className);
+        return evaluateValidators(instance, className);
+    }
+    
+    /**
+     * Gets the cached validators of an object, or evaluates and caches them if they are not. The cached entries of the objects 
+     * changed by a transaction are removed once the transaction is committed (see {@link CacheInvalidationHandler}).
+     * @param instance The object node.
+     * @param className The class of the object.
+     * @return The list of validators applicable to the object.
+     */
+    private List<Validator> getValidators(Node instance, String className) {
+        String objectId = (String)instance.getProperty(Constants.PROPERTY_UUID);
+        List<Validator> validators = CacheManager.getInstance().getValidators(objectId);
+        if (validators == null) {
+            long version = CacheManager.getInstance().getValidatorResultsVersion();
+            validators = evaluateValidators(instance, className);
+            CacheManager.getInstance().putValidators(objectId, validators, version);
+        } else
+            getValidatorExecutionStatistics(className).addCacheHit();
+        return validators;
+    }
+    
+    /**
+     * Evaluates the validator definitions applicable to an object and records how long it took.
+     * @param instance The object node.
+     * @param className The class of the object.
+     * @return The list of validators produced by the applicable validator definitions.
+     */
+    private List<Validator> evaluateValidators(Node instance, String className) {
+        long startTime = System.nanoTime();
+        
+        //First, we check the cache for validator definitions
         List<ValidatorDefinition> validatorDefinitions = CacheManager.getInstance().getValidatorDefinitions(className);
         if (validatorDefinitions == null) { //Since the validator definitions are not cached, we retrieve them for the object class and its super classes
             validatorDefinitions = new ArrayList<>();
@@ -151,7 +218,6 @@ public class ObjectGraphMappingService {
         }
         
         List<Validator> validators = new ArrayList<>();
-        
         //Now we run the applicable validator definitions
         validatorDefinitions.forEach((aValidatorDefinition) -> {
             try {
@@ -168,8 +234,40 @@ public class ObjectGraphMappingService {
             }
         });
         
-        res.setValidators(validators);
-        return res;
+        getValidatorExecutionStatistics(className).addEvaluation(System.nanoTime() - startTime);
+        return validators;
+    }
+    
+    /**
+     * Gets (creating it if necessary) the validator execution statistics of a given class.
+     * @param className The class name.
+     * @return The statistics of the class.
+     */
+    private ValidatorExecutionStatistics getValidatorExecutionStatistics(String className) {
+        return validatorExecutionStatistics.computeIfAbsent(className, ValidatorExecutionStatistics::new);
+    }
+    
+    /**
+     * Gets the time spent evaluating validator definitions per class.
+     * @return The statistics per class. The key is the class name.
+     */
+    public Map<String, ValidatorExecutionStatistics> getValidatorExecutionStatistics() {
+        return Collections.unmodifiableMap(validatorExecutionStatistics);
+    }
+    
+    /**
+     * Resets the validator execution statistics.
+     */
+    public void clearValidatorExecutionStatistics() {
+        validatorExecutionStatistics.clear();
+    }
+
+    public ValidatorEvaluationMode getValidatorEvaluationMode() {
+        return validatorEvaluationMode;
+    }
+
+    public void setValidatorEvaluationMode(ValidatorEvaluationMode validatorEvaluationMode) {
+        this.validatorEvaluationMode = validatorEvaluationMode;
     }
     
     public ChangeDescriptor updateObject(String id, ClassMetadata classMetadata, HashMap<String, String> attributes) 
@@ -419,17 +517,31 @@ public class ObjectGraphMappingService {
      * @param attributeName attribute name
      * @param attributeValue attribute value
      * @return true if the attribute value is unique
+     * @throws MetadataObjectNotFoundException If the class can not be found
+     * @throws InvalidArgumentException If the value can not be converted to the type of the attribute
      */
-    public boolean isObjectAttributeUnique(String className, String attributeName, Object attributeValue) {
-        List<Object> uniqueAttributeValues = CacheManager.getInstance().getUniqueAttributeValues(className, attributeName);
-        if (uniqueAttributeValues != null) {
-            for (Object uniqueAttributeValue : uniqueAttributeValues) {
-                if (uniqueAttributeValue.equals(attributeValue))
-                    return false;
-            }
+    public boolean isObjectAttributeUnique(String className, String attributeName, Object attributeValue) 
+            throws MetadataObjectNotFoundException, InvalidArgumentException {
+        if (CacheManager.getInstance().getUniqueAttributeValues(className, attributeName) != null)
+            return CacheManager.getInstance().addUniqueAttributeValue(className, attributeName, attributeValue);
+        
+        //The values are not cached (the class cache was cleared or there were too many values to be cached), so the value 
+        //is looked up in the database, through the index on the attribute (see Util.createUniqueAttributeIndexes)
+        if (attributeValue == null)
+            return true;
+        
+        ClassMetadata classMetadata = mem.getClass(className);
+        HashMap<String, Object> parameters = new HashMap<>();
+        parameters.put("className", className); //NOI18N
+        parameters.put("value", attributeValue instanceof String ? //NOI18N
+                Util.getRealValue((String) attributeValue, classMetadata.getType(attributeName), ts) : attributeValue);
+        
+        String query = "MATCH (object:" + Constants.LABEL_INVENTORY_OBJECTS + ") WHERE object.`" + attributeName + "` = $value " //NOI18N
+                + "MATCH (object)-[:" + RelTypes.INSTANCE_OF + "]->(class:" + Constants.LABEL_CLASS + ") " //NOI18N
+                + "WHERE class." + Constants.PROPERTY_NAME + " = $className RETURN object LIMIT 1"; //NOI18N
+        try (Result result = connectionManager.getConnectionHandler().execute(query, parameters)) {
+            return !result.hasNext();
         }
-        CacheManager.getInstance().putUniqueAttributeValueIndex(className, attributeName, attributeValue);
-        return true;
     }
     
     /**
@@ -478,4 +590,24 @@ public class ObjectGraphMappingService {
         }
         return newInstance;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Defines when the validators of an object are evaluated.
+     */
+    public enum ValidatorEvaluationMode {
+        /**
+         * The validators are evaluated every time the object is mapped into a BusinessObjectLight. This is the default behavior.
+         */
+        EAGER,
+        /**
+         * The validators are not evaluated when the object is mapped into a BusinessObjectLight, so the listings are faster. 
+         * They are evaluated only when explicitly requested.
+         */
+        ON_DEMAND,
+        /**
+         * The validators are evaluated the first time the object is mapped into a BusinessObjectLight and the result is cached 
+         * until the object changes.
+         */
+        CACHED
+    }
+}
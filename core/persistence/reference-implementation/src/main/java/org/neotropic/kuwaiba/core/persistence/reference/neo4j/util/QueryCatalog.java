@@ -0,0 +1,398 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.neo4j.util;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.neo4j.graphdb.ExecutionPlanDescription;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Notification;
+import org.neo4j.graphdb.QueryExecutionType;
+import org.neo4j.graphdb.QueryStatistics;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neotropic.kuwaiba.core.apis.persistence.ConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Catalogue of the Cypher statements used in the hot paths of the persistence layer. The statements are declared
+ * once (usually as constants of the class that uses them, see {@link #declare(java.lang.String, java.lang.String, java.lang.Object...)}),
+ * and all the values that change from call to call (ids, class names, filters, limits) are passed as parameters,
+ * so the database compiles each of them once and reuses the plan afterwards, instead of compiling a new query
+ * text (and evicting other plans from the query cache) every time. The plans are compiled at startup (see {@link #warmUp()}),
+ * and the catalogue keeps the number of executions, the returned rows and the time spent by every statement.
+ * @author agent {@literal <agent@local>}
+ */
+@Service
+public class QueryCatalog {
+    /**
+     * The declared statements, in the order they were declared.
+     */
+    private static final List<Statement> STATEMENTS = new CopyOnWriteArrayList<>();
+    /**
+     * Reference to the connection manager.
+     */
+    @Autowired
+    private ConnectionManager<GraphDatabaseService> connectionManager;
+
+    /**
+     * Declares a statement.
+     * @param name The name of the statement. Must be unique.
+     * @param text The Cypher query. It must not include values that change from call to call, but parameters.
+     * @param sampleParameters Pairs of parameter name and sample value. The plans are cached per parameter type, so
+     * the sample values must be of the same types the actual values will be (e.g. a String for an id or a List for a list of class names).
+     * They are used to compile the statement at startup, and its results are not read, so any value of the right type will do.
+     * @return The statement.
+     * @throws IllegalStateException If there's already a statement with the same name.
+     * @throws IllegalArgumentException If the sample parameters are not pairs of name and value.
+     */
+    public static Statement declare(String name, String text, Object... sampleParameters) {
+        if (sampleParameters.length % 2 != 0)
+            throw new IllegalArgumentException(String.format("The sample parameters of statement %s must be pairs of name and value", name));
+
+        HashMap<String, Object> parameters = new HashMap<>();
+        for (int i = 0; i < sampleParameters.length; i += 2)
+            parameters.put((String) sampleParameters[i], sampleParameters[i + 1]);
+
+        Statement statement = new Statement(name, text, parameters);
+        synchronized (STATEMENTS) {
+            for (Statement aStatement : STATEMENTS) {
+                if (aStatement.getName().equals(name))
+                    throw new IllegalStateException(String.format("There is already a statement named %s", name));
+            }
+            STATEMENTS.add(statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Declares a statement whose results are read in pages. Two statements are actually declared: one that skips the first
+     * results (<code>SKIP $skip</code>) and one that also limits the number of results (<code>SKIP $skip LIMIT $limit</code>).
+     * The database allocates room for as many rows as the limit when the results are sorted, so a very large limit
+     * can't be used to mean no limit, and the statement without limit is used instead.
+     * @param name The name of the statement. Must be unique.
+     * @param text The Cypher query, without SKIP and LIMIT clauses.
+     * @param sampleParameters Pairs of parameter name and sample value (see {@link #declare(java.lang.String, java.lang.String, java.lang.Object...)}), 
+     * but skip and limit, which are added.
+     * @return The statement.
+     */
+    public static PagedStatement declarePaged(String name, String text, Object... sampleParameters) {
+        Object[] allSampleParameters = Arrays.copyOf(sampleParameters, sampleParameters.length + 2);
+        allSampleParameters[sampleParameters.length] = "skip"; //NOI18N
+        allSampleParameters[sampleParameters.length + 1] = 0L;
+        Object[] pageSampleParameters = Arrays.copyOf(allSampleParameters, allSampleParameters.length + 2);
+        pageSampleParameters[allSampleParameters.length] = "limit"; //NOI18N
+        pageSampleParameters[allSampleParameters.length + 1] = 0L;
+        
+        return new PagedStatement(declare(name, text + " SKIP $skip", allSampleParameters), //NOI18N
+                declare(name + ".page", text + " SKIP $skip LIMIT $limit", pageSampleParameters)); //NOI18N
+    }
+
+    /**
+     * Executes a statement. Must be called inside a transaction. The time spent and the number of rows are recorded when
+     * the result is exhausted or closed, so the time includes reading the rows, as most of the work is done while the rows are read.
+     * @param statement The statement.
+     * @param parameters The parameters. The values must be of the same types as the sample parameters of the statement.
+     * @return The result.
+     */
+    public Result execute(Statement statement, Map<String, Object> parameters) {
+        long start = System.nanoTime();
+        try {
+            return new MeteredResult(statement, connectionManager.getConnectionHandler().execute(statement.getText(), parameters), start);
+        } catch (RuntimeException ex) {
+            statement.record(System.nanoTime() - start, 0);
+            throw ex;
+        }
+    }
+
+    /**
+     * Executes a paged statement. Must be called inside a transaction.
+     * @param statement The statement.
+     * @param parameters The parameters. The parameter skip is mandatory, and the parameter limit must be set only if
+     * the number of results is limited.
+     * @return The result.
+     */
+    public Result execute(PagedStatement statement, Map<String, Object> parameters) {
+        return execute(parameters.containsKey("limit") ? statement.getPage() : statement.getAll(), parameters); //NOI18N
+    }
+
+    /**
+     * Compiles the declared statements, so the first users don't have to wait for the plans to be built. The statements
+     * are only explained, not executed, so nothing is read or written. Statements that can't be compiled are logged and skipped.
+     */
+    public void warmUp() {
+        long start = System.nanoTime();
+        int compiled = 0;
+        for (Statement statement : STATEMENTS) {
+            try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                connectionManager.getConnectionHandler().execute("EXPLAIN " + statement.getText(), statement.getSampleParameters()).close(); //NOI18N
+                tx.success();
+                compiled++;
+            } catch (Exception ex) {
+                Logger.getLogger(QueryCatalog.class.getName()).log(Level.WARNING,
+                        String.format("[KUWAIBA] [%s] Statement %s could not be compiled: %s", Calendar.getInstance().getTime(), statement.getName(), ex.getMessage()));
+            }
+        }
+        Logger.getLogger(QueryCatalog.class.getName()).log(Level.INFO,
+                String.format("[KUWAIBA] [%s] %s of %s statements compiled in %s ms", Calendar.getInstance().getTime(),
+                        compiled, STATEMENTS.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    /**
+     * Takes a snapshot of the counters of every statement.
+     * @return One entry per statement, in the order they were declared, with its name (key name), the number of executions (executions),
+     * the number of rows returned (rows), the average and max time of an execution in milliseconds (averageTime and maxTime)
+     * and the query itself (query).
+     */
+    public List<HashMap<String, Object>> getStatistics() {
+        List<HashMap<String, Object>> statistics = new ArrayList<>();
+        for (Statement statement : STATEMENTS) {
+            long executions = statement.executions.get();
+            HashMap<String, Object> entry = new HashMap<>();
+            entry.put("name", statement.getName()); //NOI18N
+            entry.put("executions", executions); //NOI18N
+            entry.put("rows", statement.rows.get()); //NOI18N
+            entry.put("averageTime", executions == 0 ? 0 :
+                    (double) TimeUnit.NANOSECONDS.toMicros(statement.totalTime.get()) / executions / 1000); //NOI18N
+            entry.put("maxTime", (double) TimeUnit.NANOSECONDS.toMicros(statement.maxTime.get()) / 1000); //NOI18N
+            entry.put("query", statement.getText()); //NOI18N
+            statistics.add(entry);
+        }
+        return statistics;
+    }
+
+    /**
+     * Sets to zero the counters of every statement.
+     */
+    public void resetStatistics() {
+        for (Statement statement : STATEMENTS) {
+            statement.executions.set(0);
+            statement.rows.set(0);
+            statement.totalTime.set(0);
+            statement.maxTime.set(0);
+        }
+    }
+
+    /**
+     * A named, parameterized Cypher statement and its usage counters.
+     */
+    public static final class Statement {
+        /**
+         * The name of the statement.
+         */
+        private final String name;
+        /**
+         * The Cypher query.
+         */
+        private final String text;
+        /**
+         * Parameters used to compile the statement at startup.
+         */
+        private final Map<String, Object> sampleParameters;
+        /**
+         * Number of executions.
+         */
+        private final AtomicLong executions = new AtomicLong();
+        /**
+         * Number of rows returned by all the executions.
+         */
+        private final AtomicLong rows = new AtomicLong();
+        /**
+         * Time spent by all the executions in nanoseconds.
+         */
+        private final AtomicLong totalTime = new AtomicLong();
+        /**
+         * Time spent by the slowest execution in nanoseconds.
+         */
+        private final AtomicLong maxTime = new AtomicLong();
+
+        private Statement(String name, String text, Map<String, Object> sampleParameters) {
+            this.name = name;
+            this.text = text;
+            this.sampleParameters = Collections.unmodifiableMap(sampleParameters);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Map<String, Object> getSampleParameters() {
+            return sampleParameters;
+        }
+
+        private void record(long nanos, long rowCount) {
+            executions.incrementAndGet();
+            rows.addAndGet(rowCount);
+            totalTime.addAndGet(nanos);
+            maxTime.accumulateAndGet(nanos, Math::max);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * A statement that can be executed with or without a limit on the number of results.
+     */
+    public static final class PagedStatement {
+        /**
+         * The statement that returns all the results but the skipped ones.
+         */
+        private final Statement all;
+        /**
+         * The statement that returns a limited number of results.
+         */
+        private final Statement page;
+
+        private PagedStatement(Statement all, Statement page) {
+            this.all = all;
+            this.page = page;
+        }
+
+        public Statement getAll() {
+            return all;
+        }
+
+        public Statement getPage() {
+            return page;
+        }
+
+        @Override
+        public String toString() {
+            return all.getName();
+        }
+    }
+
+    /**
+     * Wraps the result of a statement to count the rows read and record the execution once the result is exhausted or closed.
+     */
+    private static class MeteredResult implements Result {
+        private final Statement statement;
+        private final Result result;
+        private final long start;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private long rowCount;
+
+        public MeteredResult(Statement statement, Result result, long start) {
+            this.statement = statement;
+            this.result = result;
+            this.start = start;
+        }
+
+        @Override
+        public QueryExecutionType getQueryExecutionType() {
+            return result.getQueryExecutionType();
+        }
+
+        @Override
+        public List<String> columns() {
+            return result.columns();
+        }
+
+        @Override
+        public <T> ResourceIterator<T> columnAs(String name) {
+            return map(row -> (T) row.get(name));
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = result.hasNext();
+            if (!hasNext)
+                finish();
+            return hasNext;
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            Map<String, Object> row = result.next();
+            rowCount++;
+            return row;
+        }
+
+        @Override
+        public void close() {
+            result.close();
+            finish();
+        }
+
+        @Override
+        public QueryStatistics getQueryStatistics() {
+            return result.getQueryStatistics();
+        }
+
+        @Override
+        public ExecutionPlanDescription getExecutionPlanDescription() {
+            return result.getExecutionPlanDescription();
+        }
+
+        @Override
+        public String resultAsString() {
+            String resultAsString = result.resultAsString();
+            finish();
+            return resultAsString;
+        }
+
+        @Override
+        public void writeAsStringTo(PrintWriter writer) {
+            result.writeAsStringTo(writer);
+            finish();
+        }
+
+        @Override
+        public void remove() {
+            result.remove();
+        }
+
+        @Override
+        public Iterable<Notification> getNotifications() {
+            return result.getNotifications();
+        }
+
+        @Override
+        public <VisitationException extends Exception> void accept(ResultVisitor<VisitationException> visitor) throws VisitationException {
+            result.accept(row -> {
+                rowCount++;
+                return visitor.visit(row);
+            });
+            finish();
+        }
+
+        private void finish() {
+            if (recorded.compareAndSet(false, true))
+                statement.record(System.nanoTime() - start, rowCount);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.neo4j.util;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
+import org.springframework.stereotype.Service;
+
+/**
+ * Compiles and runs the Groovy scripts stored in the database (tasks, scripted queries, reports, etc), keeping
+ * the compiled classes so the same script is not compiled every time it is run. The compiled classes are
+ * identified by the type and id of the script they belong to, and are used only as long as the script
+ * text has not changed. Every execution gets its own script instance and binding, so the scripts can be run
+ * concurrently. Each script is compiled by its own class loader, so the classes discarded from the cache can be
+ * unloaded.
+ * @author agent {@literal <agent@local>}
+ */
+@Service
+public class ScriptCompilationService {
+    /**
+     * Script type for tasks.
+     */
+    public static final String SCRIPT_TYPE_TASK = "task"; //NOI18N
+    /**
+     * Script type for scripted queries.
+     */
+    public static final String SCRIPT_TYPE_SCRIPTED_QUERY = "scriptedQuery"; //NOI18N
+    /**
+     * Script type for class and inventory level reports.
+     */
+    public static final String SCRIPT_TYPE_REPORT = "report"; //NOI18N
+    /**
+     * Script type for validator definitions.
+     */
+    public static final String SCRIPT_TYPE_VALIDATOR_DEFINITION = "validatorDefinition"; //NOI18N
+    /**
+     * Max number of compiled scripts to be kept. The least recently used ones are discarded first.
+     */
+    private static final int MAX_COMPILED_SCRIPTS = 500;
+    /**
+     * The compiled scripts. The key is the script type and id.
+     */
+    private final Map<String, CompiledScript> compiledScripts;
+    /**
+     * Number of times a compiled script was reused.
+     */
+    private final LongAdder cacheHits;
+    /**
+     * Number of times a script had to be compiled.
+     */
+    private final LongAdder compilations;
+    /**
+     * Total time spent compiling scripts in nanoseconds.
+     */
+    private final LongAdder compilationTime;
+    /**
+     * Number of script executions.
+     */
+    private final LongAdder executions;
+    /**
+     * Total time spent running scripts in nanoseconds.
+     */
+    private final LongAdder executionTime;
+    /**
+     * Number of compiled scripts discarded to keep the cache within its bounds.
+     */
+    private final LongAdder evictions;
+
+    public ScriptCompilationService() {
+        this.cacheHits = new LongAdder();
+        this.compilations = new LongAdder();
+        this.compilationTime = new LongAdder();
+        this.executions = new LongAdder();
+        this.executionTime = new LongAdder();
+        this.evictions = new LongAdder();
+        this.compiledScripts = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                if (size() > MAX_COMPILED_SCRIPTS) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Runs a script, compiling it first only if it has not been compiled before or if its text changed.
+     * @param scriptType The type of script. See SCRIPT_TYPE_XXX.
+     * @param scriptId The id of the script within its type (for example, the id of the task).
+     * @param script The text of the script.
+     * @param binding The variables available to the script during this execution.
+     * @return The result of the script.
+     */
+    public Object evaluate(String scriptType, Object scriptId, String script, Binding binding) {
+        Script scriptInstance = InvokerHelper.createScript(getScriptClass(scriptType + ":" + scriptId, script), binding); //NOI18N
+        long start = System.nanoTime();
+        try {
+            return scriptInstance.run();
+        } finally {
+            executions.increment();
+            executionTime.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Discards the compiled version of a script. Call it when the script is updated or deleted.
+     * @param scriptType The type of script. See SCRIPT_TYPE_XXX.
+     * @param scriptId The id of the script within its type.
+     */
+    public void invalidate(String scriptType, Object scriptId) {
+        synchronized (compiledScripts) {
+            compiledScripts.remove(scriptType + ":" + scriptId); //NOI18N
+        }
+    }
+
+    /**
+     * Discards all the compiled scripts.
+     */
+    public void clear() {
+        synchronized (compiledScripts) {
+            compiledScripts.clear();
+        }
+    }
+
+    /**
+     * Sets to zero the compilation, execution, hit and eviction counters. The compiled scripts are kept.
+     */
+    public void resetStatistics() {
+        cacheHits.reset();
+        compilations.reset();
+        compilationTime.reset();
+        executions.reset();
+        executionTime.reset();
+        evictions.reset();
+    }
+
+    public int getCachedScripts() {
+        synchronized (compiledScripts) {
+            return compiledScripts.size();
+        }
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCompilations() {
+        return compilations.sum();
+    }
+
+    /**
+     * Total time spent compiling scripts.
+     * @return The time in milliseconds.
+     */
+    public long getCompilationTime() {
+        return TimeUnit.NANOSECONDS.toMillis(compilationTime.sum());
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /**
+     * Total time spent running scripts (not including the compilation).
+     * @return The time in milliseconds.
+     */
+    public long getExecutionTime() {
+        return TimeUnit.NANOSECONDS.toMillis(executionTime.sum());
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s cached scripts, %s hits, %s compilations (%s ms), %s executions (%s ms), %s evictions", //NOI18N
+                getCachedScripts(), getCacheHits(), getCompilations(), getCompilationTime(), getExecutions(), getExecutionTime(), getEvictions());
+    }
+
+    /**
+     * Gets the compiled version of a script, compiling it if necessary. The compilation happens outside the lock
+     * that protects the cache, so a long compilation does not block the executions of other scripts.
+     */
+    private Class<? extends Script> getScriptClass(String key, String script) {
+        int scriptHash = script.hashCode();
+        synchronized (compiledScripts) {
+            CompiledScript compiledScript = compiledScripts.get(key);
+            if (compiledScript != null && compiledScript.scriptHash == scriptHash && compiledScript.script.equals(script)) {
+                cacheHits.increment();
+                return compiledScript.scriptClass;
+            }
+        }
+
+        long start = System.nanoTime();
+        Class<? extends Script> scriptClass;
+        try {
+            scriptClass = new GroovyClassLoader(ApplicationEntityManager.class.getClassLoader()).parseClass(script).asSubclass(Script.class);
+        } finally {
+            compilations.increment();
+            compilationTime.add(System.nanoTime() - start);
+        }
+
+        synchronized (compiledScripts) {
+            compiledScripts.put(key, new CompiledScript(script, scriptHash, scriptClass));
+        }
+        return scriptClass;
+    }
+
+    /**
+     * A compiled script and the text it was compiled from.
+     */
+    private static class CompiledScript {
+        private final String script;
+        private final int scriptHash;
+        private final Class<? extends Script> scriptClass;
+
+        public CompiledScript(String script, int scriptHash, Class<? extends Script> scriptClass) {
+            this.script = script;
+            this.scriptHash = scriptHash;
+            this.scriptClass = scriptClass;
+        }
+    }
+}
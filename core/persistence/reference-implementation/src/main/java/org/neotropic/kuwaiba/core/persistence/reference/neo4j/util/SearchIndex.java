@@ -0,0 +1,351 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.neo4j.util;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neotropic.kuwaiba.core.apis.persistence.ConnectionManager;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Full-text index on the names of the inventory objects, used to suggest objects while the user types without
+ * scanning every inventory object. The names are split in trigrams (see {@link SearchIndexAnalyzerProvider}), so
+ * a search string of three or more characters is found anywhere in the name, regardless of the case. The database
+ * updates the index in the same transaction the objects are created, renamed or deleted, so it never has to be
+ * synchronized by hand. The matches are returned by relevance (names with more occurrences of the search string
+ * and shorter names come first), hence the callers can stop reading as soon as they have enough results.
+ * Search strings shorter than a trigram can't be answered by the index, and the callers must fall back to a scan, as they 
+ * must while the index is being populated, which is done in the background so the application doesn't have to wait for it.
+ * @author agent {@literal <agent@local>}
+ */
+@Service
+public class SearchIndex {
+    /**
+     * The name of the index.
+     */
+    public static final String INDEX_NAME = "inventoryObjectNames"; //NOI18N
+    /**
+     * Max number of trigrams used to query the index. Longer search strings are queried using a sample of their trigrams,
+     * and the matches must be checked against the whole search string anyway.
+     */
+    private static final int MAX_QUERY_TERMS = 32;
+    /**
+     * Time in seconds between the checks of the state of the index while it's being populated.
+     */
+    private static final int POPULATION_CHECK_INTERVAL = 5;
+    /**
+     * The state of an index that can be queried.
+     */
+    private static final String STATE_ONLINE = "ONLINE"; //NOI18N
+    /**
+     * The state of an index whose population failed.
+     */
+    private static final String STATE_FAILED = "FAILED"; //NOI18N
+    /**
+     * Finds the candidates in the index.
+     */
+    private static final QueryCatalog.Statement QUERY_CANDIDATES = QueryCatalog.declare("searchIndex.candidates", //NOI18N
+            "CALL db.index.fulltext.queryNodes($name, $query) YIELD node RETURN node", //NOI18N
+            "name", INDEX_NAME, "query", ""); //NOI18N
+    /**
+     * Reference to the connection manager.
+     */
+    @Autowired
+    private ConnectionManager<GraphDatabaseService> connectionManager;
+    /**
+     * Reference to the catalogue of the statements used in the hot paths.
+     */
+    @Autowired
+    private QueryCatalog queryCatalog;
+    /**
+     * If the index exists and has been populated. While it's false, the callers fall back to a scan.
+     */
+    private volatile boolean online;
+    /**
+     * Waits for the index to be populated.
+     */
+    private ExecutorService populationWatcher;
+    /**
+     * The wait for the index being populated, if any.
+     */
+    private Future<?> population;
+    /**
+     * When was the index last created.
+     */
+    private volatile Date lastRebuild;
+    /**
+     * Number of searches answered by the index.
+     */
+    private final AtomicLong queries = new AtomicLong();
+    /**
+     * Total time spent in the searches answered by the index, in nanoseconds.
+     */
+    private final AtomicLong queryTime = new AtomicLong();
+    /**
+     * Number of searches that could not be answered by the index.
+     */
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * Creates the index if it doesn't exist. If it's not online yet, it's populated in the background, and the searches 
+     * fall back to a scan until it's done.
+     */
+    public synchronized void start() {
+        if (populationWatcher == null) {
+            populationWatcher = Executors.newSingleThreadExecutor(runnable -> {
+                Thread watcherThread = new Thread(runnable, "search-index-population"); //NOI18N
+                watcherThread.setDaemon(true);
+                return watcherThread;
+            });
+        }
+        try {
+            Map<String, Object> indexInfo = getIndexInfo();
+            if (indexInfo == null)
+                createIndex();
+            else if (STATE_ONLINE.equals(indexInfo.get("state"))) { //NOI18N
+                online = true;
+                return;
+            }
+            watchPopulation();
+        } catch (Exception ex) { // The index is an optimization. Without it, the suggestions are computed scanning the objects
+            Logger.getLogger(SearchIndex.class.getName()).log(Level.SEVERE,
+                    String.format("[KUWAIBA] [%s] The search index %s could not be created: %s",
+                    Calendar.getInstance().getTime(), INDEX_NAME, ex.getMessage()));
+        }
+    }
+
+    /**
+     * Stops waiting for the index to be populated. The database keeps populating it, and it will be used after the next start.
+     */
+    public synchronized void stop() {
+        if (populationWatcher == null)
+            return;
+        populationWatcher.shutdownNow();
+        populationWatcher = null;
+        population = null;
+        online = false;
+    }
+
+    /**
+     * Drops the index and creates it again from the current inventory objects. The index is populated in the background, 
+     * and the searches fall back to a scan until it's done (see {@link #getStatus()}). Use it if the index failed or got 
+     * out of sync after a store level recovery.
+     * @throws IllegalStateException If the index could not be dropped or created again.
+     */
+    public synchronized void rebuild() {
+        if (populationWatcher == null)
+            throw new IllegalStateException(String.format("The search index %s has not been started", INDEX_NAME));
+        online = false;
+        if (population != null)
+            population.cancel(true);
+        Logger.getLogger(SearchIndex.class.getName()).log(Level.INFO,
+                String.format("[KUWAIBA] [%s] Rebuilding the search index %s", Calendar.getInstance().getTime(), INDEX_NAME));
+        try {
+            if (getIndexInfo() != null) {
+                try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                    connectionManager.getConnectionHandler().execute("CALL db.index.fulltext.drop($name)", //NOI18N
+                            Collections.singletonMap("name", INDEX_NAME)); //NOI18N
+                    tx.success();
+                }
+            }
+            createIndex();
+        } catch (Exception ex) {
+            throw new IllegalStateException(String.format("The search index %s could not be rebuilt: %s", INDEX_NAME, ex.getMessage()), ex);
+        }
+        watchPopulation();
+    }
+
+    /**
+     * Finds the inventory objects whose names may contain a search string. The index matches the trigrams of the search string,
+     * so the names of the matches must be checked to contain the search string before being used. This method must be called
+     * inside a transaction, and the returned result must be consumed before the transaction is closed.
+     * @param filter The search string.
+     * @return The candidate nodes (column <code>node</code>), most relevant first. Null if the search string is too short
+     * to be searched in the index or the index is not online, in which case the caller must fall back to a scan.
+     */
+    public Result findCandidates(String filter) {
+        if (!online || filter == null || filter.codePointCount(0, filter.length()) < SearchIndexAnalyzerProvider.GRAM_SIZE) {
+            fallbacks.incrementAndGet();
+            return null;
+        }
+        HashMap<String, Object> parameters = new HashMap<>();
+        parameters.put("name", INDEX_NAME); //NOI18N
+        parameters.put("query", buildQuery(filter)); //NOI18N
+        return queryCatalog.execute(QUERY_CANDIDATES, parameters);
+    }
+
+    /**
+     * Records the time taken by a search answered by the index, including checking and mapping the candidates.
+     * @param nanos The time in nanoseconds.
+     */
+    public void recordQuery(long nanos) {
+        queries.incrementAndGet();
+        queryTime.addAndGet(nanos);
+    }
+
+    /**
+     * Takes a snapshot of the state of the index and of the usage counters.
+     * @return The state (key state, one of ONLINE, POPULATING, FAILED or MISSING), the population progress in percentage (progress),
+     * the failure message if any (failureMessage), the analyzer used (analyzer), when the index was last created by this service
+     * (lastRebuild, null if it was created before the application started), the number of searches answered by the index (queries)
+     * and their average time in milliseconds (averageQueryTime) and the number of searches that had to fall back to a scan (fallbacks).
+     */
+    public HashMap<String, Object> getStatus() {
+        HashMap<String, Object> status = new HashMap<>();
+        status.put("name", INDEX_NAME); //NOI18N
+        status.put("analyzer", SearchIndexAnalyzerProvider.ANALYZER_NAME); //NOI18N
+        try {
+            Map<String, Object> indexInfo = getIndexInfo();
+            if (indexInfo == null)
+                status.put("state", "MISSING"); //NOI18N
+            else {
+                status.put("state", indexInfo.get("state")); //NOI18N
+                status.put("progress", indexInfo.get("progress")); //NOI18N
+                status.put("failureMessage", indexInfo.get("failureMessage")); //NOI18N
+            }
+        } catch (Exception ex) {
+            status.put("state", "UNKNOWN"); //NOI18N
+            status.put("failureMessage", ex.getMessage()); //NOI18N
+        }
+        long answeredQueries = queries.get();
+        status.put("lastRebuild", lastRebuild); //NOI18N
+        status.put("queries", answeredQueries); //NOI18N
+        status.put("averageQueryTime", answeredQueries == 0 ? 0 :
+                (double) TimeUnit.NANOSECONDS.toMicros(queryTime.get()) / answeredQueries / 1000); //NOI18N
+        status.put("fallbacks", fallbacks.get()); //NOI18N
+        return status;
+    }
+
+    /**
+     * Builds a Lucene query that requires all the trigrams of the search string. The trigrams are quoted, so white spaces
+     * and special characters don't need to be escaped (but quotes and back slashes).
+     * @param filter The search string. It must be at least a trigram long.
+     * @return The query.
+     */
+    static String buildQuery(String filter) {
+        int[] codePoints = filter.codePoints().map(Character::toLowerCase).toArray();
+        LinkedHashSet<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + SearchIndexAnalyzerProvider.GRAM_SIZE <= codePoints.length; i++)
+            grams.add(new String(codePoints, i, SearchIndexAnalyzerProvider.GRAM_SIZE));
+
+        List<String> terms = new ArrayList<>(grams);
+        if (terms.size() > MAX_QUERY_TERMS) { // Evenly spaced, always including the first and the last
+            List<String> sample = new ArrayList<>();
+            for (int i = 0; i < MAX_QUERY_TERMS; i++)
+                sample.add(terms.get((int) ((long) i * (terms.size() - 1) / (MAX_QUERY_TERMS - 1))));
+            terms = sample;
+        }
+
+        StringBuilder query = new StringBuilder();
+        for (String term : terms) {
+            if (query.length() > 0)
+                query.append(" AND "); //NOI18N
+            query.append('"').append(term.replace("\\", "\\\\").replace("\"", "\\\"")).append('"'); //NOI18N
+        }
+        return query.toString();
+    }
+
+    private void createIndex() {
+        Logger.getLogger(SearchIndex.class.getName()).log(Level.INFO,
+                String.format("[KUWAIBA] Creating search index %s on %s(%s)", INDEX_NAME, Constants.LABEL_INVENTORY_OBJECTS, Constants.PROPERTY_NAME));
+        HashMap<String, Object> parameters = new HashMap<>();
+        parameters.put("name", INDEX_NAME); //NOI18N
+        parameters.put("labels", Collections.singletonList(Constants.LABEL_INVENTORY_OBJECTS)); //NOI18N
+        parameters.put("properties", Collections.singletonList(Constants.PROPERTY_NAME)); //NOI18N
+        parameters.put("settings", Collections.singletonMap("analyzer", SearchIndexAnalyzerProvider.ANALYZER_NAME)); //NOI18N
+        // Schema changes can't be mixed with data operations, so the index is created in its own transaction
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            connectionManager.getConnectionHandler().execute(
+                    "CALL db.index.fulltext.createNodeIndex($name, $labels, $properties, $settings)", parameters); //NOI18N
+            tx.success();
+        }
+        lastRebuild = Calendar.getInstance().getTime();
+    }
+
+    /**
+     * Checks the state of the index in the background until it's online, so it can be used, or its population failed.
+     */
+    private void watchPopulation() {
+        long startTime = System.currentTimeMillis();
+        population = populationWatcher.submit(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Map<String, Object> indexInfo = getIndexInfo();
+                    if (indexInfo == null || STATE_FAILED.equals(indexInfo.get("state"))) { //NOI18N
+                        Logger.getLogger(SearchIndex.class.getName()).log(Level.SEVERE,
+                                String.format("[KUWAIBA] [%s] The search index %s could not be populated: %s", Calendar.getInstance().getTime(), 
+                                INDEX_NAME, indexInfo == null ? "the index was dropped" : indexInfo.get("failureMessage"))); //NOI18N
+                        return;
+                    }
+                    if (STATE_ONLINE.equals(indexInfo.get("state"))) { //NOI18N
+                        synchronized (this) { // Unless it was stopped or rebuilt meanwhile
+                            if (Thread.currentThread().isInterrupted())
+                                return;
+                            online = true;
+                        }
+                        Logger.getLogger(SearchIndex.class.getName()).log(Level.INFO,
+                                String.format("[KUWAIBA] [%s] The search index %s was populated in %s s", Calendar.getInstance().getTime(), 
+                                INDEX_NAME, (System.currentTimeMillis() - startTime) / 1000));
+                        return;
+                    }
+                    TimeUnit.SECONDS.sleep(POPULATION_CHECK_INTERVAL);
+                }
+            } catch (InterruptedException ex) {
+                // Stopped or rebuilt while being populated
+            } catch (Exception ex) {
+                Logger.getLogger(SearchIndex.class.getName()).log(Level.SEVERE,
+                        String.format("[KUWAIBA] [%s] The state of the search index %s could not be checked: %s", 
+                        Calendar.getInstance().getTime(), INDEX_NAME, ex.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Gets the description of the index as provided by the database.
+     * @return The columns returned by db.indexes for the index, or null if it doesn't exist.
+     */
+    private Map<String, Object> getIndexInfo() {
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            Map<String, Object> indexInfo = null;
+            Result result = connectionManager.getConnectionHandler().execute("CALL db.indexes()"); //NOI18N
+            while (result.hasNext()) {
+                Map<String, Object> row = result.next();
+                if (INDEX_NAME.equals(row.get("indexName"))) //NOI18N
+                    indexInfo = row;
+            }
+            tx.success();
+            return indexInfo;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.neo4j.util;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.neo4j.graphdb.index.fulltext.AnalyzerProvider;
+
+/**
+ * Analyzer used by the {@link SearchIndex}. It splits the whole name (including white spaces and punctuation) 
+ * in lower case trigrams, so any substring of three or more characters can be found without the leading wildcards 
+ * Lucene does not allow. The database finds this provider through the service loader 
+ * (see META-INF/services/org.neo4j.graphdb.index.fulltext.AnalyzerProvider).
+ * @author agent {@literal <agent@local>}
+ */
+public class SearchIndexAnalyzerProvider extends AnalyzerProvider {
+    /**
+     * The name used to refer to this analyzer when creating an index.
+     */
+    public static final String ANALYZER_NAME = "kuwaiba-trigram"; //NOI18N
+    /**
+     * The length of the terms.
+     */
+    public static final int GRAM_SIZE = 3;
+
+    public SearchIndexAnalyzerProvider() {
+        super(ANALYZER_NAME);
+    }
+
+    @Override
+    public Analyzer createAnalyzer() {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = new NGramTokenizer(GRAM_SIZE, GRAM_SIZE);
+                return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+            }
+        };
+    }
+
+    @Override
+    public String description() {
+        return "Lower case trigrams of the whole value, used to find inventory objects by any part of their names"; //NOI18N
+    }
+}
@@ -51,8 +51,12 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
@@ -61,6 +65,8 @@ import org.neo4j.graphdb.Path;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.schema.IndexDefinition;
 import org.neo4j.graphdb.traversal.TraversalDescription;
 import org.neo4j.kernel.impl.traversal.MonoDirectionalTraversalDescription;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
@@ -974,6 +980,24 @@ public class Util {
             throw ex;
         }
         
+        return createActivityLogEntry(objectNode, userNode, type, timestamp, affectedProperty, oldValue, newValue, notes, graphDb);
+    }
+    
+    /**
+     * Creates a new log entry upon an action performed by a user whose node has already been found. Transactions are not managed here
+     * @param objectNode The node corresponding to the object that was affected by the action. Null if it's a general activity log entry (that is, it's not related to any specific object)
+     * @param userNode The node of the user that performed the action
+     * @param type The type of entry. See ActivityLogEntry.ACTIVITY_TYPE_XXX for possible values
+     * @param timestamp The time of the action in milliseconds
+     * @param affectedProperty The affected properties, if any
+     * @param oldValue The old values, if any
+     * @param newValue The new values, if any
+     * @param notes Additional notes, if any
+     * @param graphDb A reference to the connection handler.
+     * @return The log entry node
+     */
+    public static Node createActivityLogEntry(Node objectNode, Node userNode, int type, long timestamp, 
+            String affectedProperty, String oldValue, String newValue, String notes, GraphDatabaseService graphDb) {
         Node newEntry = graphDb.createNode(Label.label(Constants.LABEL_GENERAL_ACTIVITY_LOGS));
         
         newEntry.setProperty(Constants.PROPERTY_TYPE, type);
@@ -1075,4 +1099,41 @@ public class Util {
 
         return node.hasNext() ? node.next() : null;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Makes sure there is a schema index on every property used to store the value of a unique attribute, so the 
+     * uniqueness of a value can be checked without reading all the instances of the class 
+     * (see {@link ObjectGraphMappingService#isObjectAttributeUnique(java.lang.String, java.lang.String, java.lang.Object)}). 
+     * The missing indexes are populated in the background. Schema changes can't be mixed with data changes, 
+     * so call it outside any other transaction, typically after the transaction that created or modified the attribute is committed.
+     * @param graphDb The graphdb handler.
+     */
+    public static void createUniqueAttributeIndexes(GraphDatabaseService graphDb) {
+        Label inventoryObjectLabel = Label.label(Constants.LABEL_INVENTORY_OBJECTS);
+        try (Transaction tx = graphDb.beginTx()) {
+            Set<String> indexedProperties = new HashSet<>();
+            for (IndexDefinition index : graphDb.schema().getIndexes(inventoryObjectLabel)) {
+                Iterator<String> propertyKeys = index.getPropertyKeys().iterator();
+                String propertyKey = propertyKeys.next();
+                if (!propertyKeys.hasNext())
+                    indexedProperties.add(propertyKey);
+            }
+            
+            Result uniqueAttributes = graphDb.execute("MATCH (attribute:" + Constants.LABEL_ATTRIBUTE + ") WHERE attribute." //NOI18N
+                    + Constants.PROPERTY_UNIQUE + " = true RETURN DISTINCT attribute." + Constants.PROPERTY_NAME + " AS name"); //NOI18N
+            while (uniqueAttributes.hasNext()) {
+                String attributeName = (String) uniqueAttributes.next().get("name"); //NOI18N
+                if (indexedProperties.add(attributeName)) {
+                    Logger.getLogger(Util.class.getName()).log(Level.INFO, 
+                            String.format("[KUWAIBA] Creating index on %s(%s)", inventoryObjectLabel, attributeName));
+                    graphDb.schema().indexFor(inventoryObjectLabel).on(attributeName).create();
+                }
+            }
+            tx.success();
+        } catch (Exception ex) { // The indexes are an optimization. If they are not available, the uniqueness checks will still work, but slower
+            Logger.getLogger(Util.class.getName()).log(Level.SEVERE, 
+                    String.format("[KUWAIBA] [%s] The indexes on the unique attributes could not be created: %s", 
+                    Calendar.getInstance().getTime(), ex.getMessage()));
+        }
+    }
+}
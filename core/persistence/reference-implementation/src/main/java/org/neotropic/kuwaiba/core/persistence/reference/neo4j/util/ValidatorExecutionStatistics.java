@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.core.persistence.reference.neo4j.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the time spent evaluating the validator definitions applicable to the instances of a given class.
+ * It is safe to update it from several threads at the same time.
+ * @author agent {@literal <agent@local>}
+ */
+public class ValidatorExecutionStatistics {
+    /**
+     * The name of the class whose instances were evaluated.
+     */
+    private final String className;
+    /**
+     * How many objects have been evaluated.
+     */
+    private final LongAdder evaluations;
+    /**
+     * How many times the result was taken from the cache instead of evaluating the validator definitions.
+     */
+    private final LongAdder cacheHits;
+    /**
+     * Total time spent evaluating validator definitions in nanoseconds.
+     */
+    private final LongAdder totalTime;
+    /**
+     * The longest evaluation in nanoseconds.
+     */
+    private final AtomicLong maxTime;
+
+    public ValidatorExecutionStatistics(String className) {
+        this.className = className;
+        this.evaluations = new LongAdder();
+        this.cacheHits = new LongAdder();
+        this.totalTime = new LongAdder();
+        this.maxTime = new AtomicLong();
+    }
+
+    /**
+     * Registers the evaluation of the validator definitions of an object.
+     * @param elapsedTime The time the evaluation took in nanoseconds.
+     */
+    public void addEvaluation(long elapsedTime) {
+        evaluations.increment();
+        totalTime.add(elapsedTime);
+        maxTime.accumulateAndGet(elapsedTime, Math::max);
+    }
+
+    /**
+     * Registers that the validators of an object were taken from the cache.
+     */
+    public void addCacheHit() {
+        cacheHits.increment();
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Total time spent evaluating validator definitions.
+     * @return The time in milliseconds.
+     */
+    public long getTotalTime() {
+        return TimeUnit.NANOSECONDS.toMillis(totalTime.sum());
+    }
+
+    /**
+     * The average time spent evaluating the validator definitions of an object.
+     * @return The time in milliseconds.
+     */
+    public double getAverageTime() {
+        long count = evaluations.sum();
+        return count == 0 ? 0 : totalTime.sum() / (count * 1000000d);
+    }
+
+    /**
+     * The longest evaluation of the validator definitions of an object.
+     * @return The time in milliseconds.
+     */
+    public long getMaxTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxTime.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s evaluations, %s cache hits, %s ms total, %.2f ms avg, %s ms max", //NOI18N
+                className, getEvaluations(), getCacheHits(), getTotalTime(), getAverageTime(), getMaxTime());
+    }
+}
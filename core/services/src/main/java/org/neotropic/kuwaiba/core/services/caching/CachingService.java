@@ -16,8 +16,14 @@
 
 package org.neotropic.kuwaiba.core.services.caching;
 
+import java.util.List;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.CacheStatistics;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.CacheStatisticsProvider;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.ScriptStatistics;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.ValidatorStatistics;
 import org.neotropic.kuwaiba.core.services.scheduling.SchedulingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
 
 /**
  * A service that manages the caching strategies. Most cached data is related to the 
@@ -26,7 +32,66 @@ import org.springframework.beans.factory.annotation.Autowired;
  * criteria, like timeout or fixed schedules.
  * @author Charles Edward Bedon Cortazar {@literal <charles.bedon@kuwaiba.org>}
  */
+@Service
 public class CachingService {
     @Autowired
     private SchedulingService schedulingService;
+    /**
+     * Reference to the component that provides the counters of the persistence layer cache.
+     */
+    @Autowired
+    private CacheStatisticsProvider cacheStatisticsProvider;
+    
+    /**
+     * Takes a snapshot of the hit, miss and eviction counters of every region of the persistence layer cache.
+     * @return One entry per cache region.
+     */
+    public List<CacheStatistics> getCacheStatistics() {
+        return cacheStatisticsProvider.getCacheStatistics();
+    }
+    
+    /**
+     * Sets to zero the counters of every region of the persistence layer cache.
+     */
+    public void resetCacheStatistics() {
+        cacheStatisticsProvider.resetCacheStatistics();
+    }
+    
+    /**
+     * Tells how the validators of the objects are evaluated (EAGER, CACHED or ON_DEMAND).
+     * @return The name of the validator evaluation mode.
+     */
+    public String getValidatorEvaluationMode() {
+        return cacheStatisticsProvider.getValidatorEvaluationMode();
+    }
+    
+    /**
+     * Takes a snapshot of the time spent evaluating validator definitions per class.
+     * @return One entry per class whose instances have been evaluated.
+     */
+    public List<ValidatorStatistics> getValidatorStatistics() {
+        return cacheStatisticsProvider.getValidatorStatistics();
+    }
+    
+    /**
+     * Sets to zero the validator evaluation counters.
+     */
+    public void resetValidatorStatistics() {
+        cacheStatisticsProvider.resetValidatorStatistics();
+    }
+    
+    /**
+     * Takes a snapshot of the compilations and executions of the scripts, and of the compiled scripts reused.
+     * @return The script counters.
+     */
+    public ScriptStatistics getScriptStatistics() {
+        return cacheStatisticsProvider.getScriptStatistics();
+    }
+    
+    /**
+     * Sets to zero the script compilation and execution counters.
+     */
+    public void resetScriptStatistics() {
+        cacheStatisticsProvider.resetScriptStatistics();
+    }
 }
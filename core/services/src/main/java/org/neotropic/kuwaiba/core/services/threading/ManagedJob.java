@@ -25,7 +25,7 @@ import org.neotropic.kuwaiba.core.apis.persistence.application.UserProfileLight;
  * @author Charles Edward Bedon Cortazar {@literal <charles.bedon@kuwaiba.org>}
  * @param <T> The type of the result of the job.
  */
-public abstract class ManagedJob<T> implements Supplier {
+public abstract class ManagedJob<T> implements Supplier<T> {
     protected ManagedJobDescriptor descriptor;
     
     /**
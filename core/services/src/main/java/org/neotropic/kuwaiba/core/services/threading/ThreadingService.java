@@ -94,11 +94,13 @@ public class ThreadingService {
     
     /**
      * Registers and starts a job.
+     * @param <T> The type of the result of the job.
      * @param theJob The job to be started.
+     * @return The future that will hold the result of the job, so the caller can wait for it or chain further actions.
      * @throws IllegalArgumentException If the job could not be started, most likely because of its state. Also, if <code>theDescriptor</code> 
      * is a job that already exists in the table, or if {@link #TABLE_SIZE} limit has been reached.
      */
-    public void startJob(ManagedJob theJob) throws IllegalArgumentException {
+    public <T> CompletableFuture<T> startJob(ManagedJob<T> theJob) throws IllegalArgumentException {
         if (this.jobTable.size() >= TABLE_SIZE)
             throw new IllegalArgumentException(String.format(
                     ts.getTranslatedString("apis.services.threading.messages.job-limit-reached"), TABLE_SIZE));
@@ -110,7 +112,24 @@ public class ThreadingService {
                     ts.getTranslatedString("apis.services.threading.messages.job-can-not-restart"), theJob.getDescriptor().getId()));
         
         theJob.getDescriptor().setState(ManagedJobDescriptor.STATE_RUNNING);
-        this.jobTable.put(theJob.getDescriptor(), CompletableFuture.supplyAsync(theJob, taskExecutor));
+        CompletableFuture<T> theFuture = CompletableFuture.supplyAsync(theJob, taskExecutor);
+        this.jobTable.put(theJob.getDescriptor(), theFuture);
+        return theFuture;
+    }
+    
+    /**
+     * Removes a finished job from the job table.
+     * @param jobId The id of the job to remove.
+     * @throws IllegalArgumentException If the job could not be found or if it is still running.
+     */
+    public void removeJob(String jobId) throws IllegalArgumentException {
+        ManagedJobDescriptor aJob = getJob(jobId);
+        if (aJob == null)
+            throw new IllegalArgumentException(String.format(ts.getTranslatedString("apis.services.threading.messages.job-not-found"), jobId));
+        if (aJob.getState() == ManagedJobDescriptor.STATE_RUNNING)
+            throw new IllegalArgumentException(ts.getTranslatedString("apis.services.threading.messages.can-not-clean-job-table"));
+        
+        this.jobTable.remove(aJob);
     }
     
     /**
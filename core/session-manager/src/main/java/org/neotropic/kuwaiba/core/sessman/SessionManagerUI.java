@@ -19,16 +19,22 @@ package org.neotropic.kuwaiba.core.sessman;
 import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.Label;
+import com.vaadin.flow.component.icon.VaadinIcon;
+import com.vaadin.flow.component.orderedlayout.FlexComponent;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.data.renderer.ComponentRenderer;
 import com.vaadin.flow.router.HasDynamicTitle;
 import com.vaadin.flow.router.Route;
+import java.util.Date;
 import org.neotropic.kuwaiba.core.apis.integration.dashboards.AbstractUI;
 import org.neotropic.kuwaiba.core.apis.integration.modules.ModuleActionParameter;
 import org.neotropic.kuwaiba.core.apis.integration.modules.ModuleActionParameterSet;
 import org.neotropic.kuwaiba.core.apis.integration.modules.actions.ActionCompletedListener;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.application.Session;
+import org.neotropic.kuwaiba.core.apis.persistence.application.SessionRegistry;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
 import org.neotropic.kuwaiba.core.sessman.actions.TerminateSessionVisualAction;
 import org.neotropic.util.visual.notifications.AbstractNotification;
@@ -55,6 +61,10 @@ public class SessionManagerUI extends VerticalLayout implements HasDynamicTitle,
      * A table with the active sessions. 
      */
     private Grid<Session> tblSessions;
+    /**
+     * Shows the number of active sessions and how often they are being validated.
+     */
+    private Label lblStatistics;
     /**
      * Reference to the Application Entity Manager.
      */
@@ -76,7 +86,7 @@ public class SessionManagerUI extends VerticalLayout implements HasDynamicTitle,
         if (ev.getStatus() == ActionCompletedEvent.STATUS_SUCCESS) {
             new SimpleNotification(ts.getTranslatedString("module.sessman.ui.session-management"), 
                     ev.getMessage(), AbstractNotification.NotificationType.INFO, ts).open();
-            tblSessions.setItems(aem.getSessions().values());
+            refresh();
         } else
             new SimpleNotification(ts.getTranslatedString("module.sessman.ui.session-management"), 
                     ev.getMessage(), AbstractNotification.NotificationType.ERROR, ts).open();
@@ -103,6 +113,7 @@ public class SessionManagerUI extends VerticalLayout implements HasDynamicTitle,
                         }
                     }).setHeader(ts.getTranslatedString("module.sessman.ui.session-type"));
         tblSessions.addColumn(Session::getLoginTime).setHeader(ts.getTranslatedString("module.sessman.ui.login-time"));
+        tblSessions.addColumn(aSession -> new Date(aSession.getLastAccessTime())).setHeader(ts.getTranslatedString("module.sessman.ui.last-access-time"));
         tblSessions.addColumn(new ComponentRenderer<>( aSession -> { 
                 Button btnTerminate = new Button(ts.getTranslatedString("module.sessman.ui.terminate-session"));
                 btnTerminate.addClickListener((clickEvent) -> {
@@ -118,11 +129,29 @@ public class SessionManagerUI extends VerticalLayout implements HasDynamicTitle,
                 });
                 return btnTerminate;
             })).setHeader(ts.getTranslatedString("module.sessman.ui.actions"));
-        tblSessions.setItems(aem.getSessions().values());
         tblSessions.setSizeFull();
-        add(tblSessions);
+        
+        lblStatistics = new Label();
+        Button btnRefresh = new Button(VaadinIcon.REFRESH.create(), clickEvent -> refresh());
+        btnRefresh.getElement().setProperty("title", ts.getTranslatedString("module.sessman.ui.refresh")); //NOI18N
+        HorizontalLayout lytStatistics = new HorizontalLayout(lblStatistics, btnRefresh);
+        lytStatistics.setDefaultVerticalComponentAlignment(FlexComponent.Alignment.CENTER);
+        
+        refresh();
+        add(lytStatistics, tblSessions);
         setSizeFull();
         
         terminateSessionVisualAction.registerActionCompletedLister(this);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Reloads the sessions and the session statistics.
+     */
+    private void refresh() {
+        SessionRegistry sessionRegistry = aem.getSessionRegistry();
+        tblSessions.setItems(sessionRegistry.getSessionsByToken().values());
+        lblStatistics.setText(String.format(ts.getTranslatedString("module.sessman.ui.statistics"), 
+                sessionRegistry.getActiveSessions(), sessionRegistry.getValidationsPerSecond(), 
+                sessionRegistry.getValidations(), sessionRegistry.getExpiredSessions()));
+    }
+}
@@ -25,6 +25,10 @@ public class RestConstants {
     public static final String HEADER_PASSWORD = "password";
     public static final String HEADER_TOKEN = "token";
     public static final String HEADER_ERROR = "error";
+    /**
+     * Media type of the responses streamed as newline-delimited JSON, one object per line.
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
     /**
      * General
      */
@@ -48,6 +52,7 @@ public class RestConstants {
     public static final String OBJECTS_IDS = "objectsIds";
     public static final String FOLDER_ID = "folderId";
     public static final String LIMIT = "limit";
+    public static final String CURSOR = "cursor";
     public static final String CLASS_ID = "classId";
     public static final String CLASS_NAME = "className";
     public static final String CLASS_NAMES = "classNames";
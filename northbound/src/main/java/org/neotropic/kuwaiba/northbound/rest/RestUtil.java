@@ -15,18 +15,34 @@
  */
 package org.neotropic.kuwaiba.northbound.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
 import java.util.Arrays;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.text.StringEscapeUtils;
+import org.neotropic.kuwaiba.core.apis.persistence.application.FileObjectContent;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ScriptedQueryParameter;
 import org.neotropic.kuwaiba.core.apis.persistence.application.processman.Artifact;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.ApplicationObjectNotFoundException;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.BusinessObjectNotFoundException;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InventoryException;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.MetadataObjectNotFoundException;
 import org.neotropic.kuwaiba.northbound.rest.todeserialize.TransientArtifact;
 import org.neotropic.kuwaiba.northbound.rest.todeserialize.TransientScriptedQueryParameter;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Set of methods to use in the REST Controllers
@@ -44,6 +60,55 @@ public class RestUtil {
         return new ResponseEntity(headers, HttpStatus.NO_CONTENT);
     }
     
+    /**
+     * Builds a response that streams the contents of an attached file as they are read from disk, instead of 
+     * loading them in memory and encoding them in Base64.
+     * @param content The file.
+     * @return A response with the file name, size and contents.
+     */
+    public static ResponseEntity<StreamingResponseBody> getFileResponseEntity(FileObjectContent content) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentLength(content.getSize());
+        headers.setContentDisposition(ContentDisposition.builder("attachment").filename(content.getName()).build()); //NOI18N
+        return new ResponseEntity<>(outputStream -> content.transferTo(Channels.newChannel(outputStream)), headers, HttpStatus.OK);
+    }
+    
+    /**
+     * Builds a response that writes a sequence of objects as newline-delimited JSON (one object per line) as they 
+     * are produced, so large result sets don't need to be held in memory.
+     * @param <T> The type of the objects.
+     * @param objectMapper The mapper used to serialize each object.
+     * @param streamer Produces the objects.
+     * @return A response that streams the objects.
+     */
+    public static <T> ResponseEntity<StreamingResponseBody> getNdjsonResponseEntity(ObjectMapper objectMapper, ObjectStreamer<T> streamer) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(RestConstants.APPLICATION_NDJSON_VALUE));
+        return new ResponseEntity<>(outputStream -> {
+            BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream, 65536);
+            try {
+                streamer.stream(object -> {
+                    try {
+                        bufferedOutputStream.write(objectMapper.writeValueAsBytes(object));
+                        bufferedOutputStream.write('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            } catch (InvalidArgumentException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+            } catch (ApplicationObjectNotFoundException | BusinessObjectNotFoundException | MetadataObjectNotFoundException ex) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+            } catch (InventoryException ex) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
+            }
+            bufferedOutputStream.flush();
+        }, headers, HttpStatus.OK);
+    }
+    
     /**
      * Evaluates if a string is in Base64 format.
      * @param string String to be evaluated.
@@ -104,4 +169,18 @@ public class RestUtil {
                 artifact.getCommitDate()
         );
     }
-}
\ No newline at end of file
+    
+    /**
+     * Produces a sequence of objects and hands them to a consumer, usually as they are read from the database.
+     * @param <T> The type of the objects.
+     */
+    @FunctionalInterface
+    public interface ObjectStreamer<T> {
+        /**
+         * Produces the objects.
+         * @param consumer Receives the objects.
+         * @throws InventoryException If the objects could not be produced.
+         */
+        public void stream(Consumer<T> consumer) throws InventoryException;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.neotropic.kuwaiba.northbound.rest.aem;
 
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import org.apache.commons.codec.binary.Base64;
@@ -41,12 +42,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Set of resources to manage the application entities.
@@ -797,6 +800,44 @@ public class ApplicationEntityManagerRestController implements ApplicationEntity
         }
     }
     
+    /**
+     * Relates a file to a list type item. Unlike attachFileToListTypeItem, the file is sent as the raw request body 
+     * and streamed to disk, so it's suitable for large files.
+     * @param name The name of the file.
+     * @param tags The tags that describe the contents of the file.
+     * @param listTypeItemClassName The list type item class name.
+     * @param listTypeItemId The id of the list type item the file will be attached to.
+     * @param sessionId The session token id.
+     * @param file The contents of the file.
+     * @return The id of the resulting file object.
+     */
+    @RequestMapping(method = RequestMethod.PUT, value = "uploadFileToListTypeItem/{name}/{tags}/{listTypeItemClassName}/{listTypeItemId}/{sessionId}",
+            consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE}, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public long uploadFileToListTypeItem(
+            @PathVariable(RestConstants.NAME) String name,
+            @PathVariable(RestConstants.TAGS) String tags,
+            @PathVariable(RestConstants.LIST_TYPE_ITEM_CLASS_NAME) String listTypeItemClassName,
+            @PathVariable(RestConstants.LIST_TYPE_ITEM_ID) String listTypeItemId,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId,
+            InputStream file)
+    {
+        try {
+            aem.validateCall("uploadFileToListTypeItem", "127.0.0.1", sessionId);
+            return aem.attachFileToListTypeItem(name, tags, file, listTypeItemClassName, listTypeItemId);
+        } catch (InvalidArgumentException | OperationNotPermittedException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (BusinessObjectNotFoundException | MetadataObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
     /**
      * Fetches the files associated to an inventory object. Note that this call won't retrieve the actual files, but only references to them.
      * @param className The class of the object whose files will be fetched from.
@@ -861,6 +902,40 @@ public class ApplicationEntityManagerRestController implements ApplicationEntity
         }
     }
     
+    /**
+     * Retrieves a particular file associated to an inventory list type item. Unlike getFile, the file is returned as 
+     * the raw response body and streamed from disk, so it's suitable for large files.
+     * @param id The id of the file object.
+     * @param className The class of the object the file is associated to.
+     * @param objectId The id of the list type item the file is associated to.
+     * @param sessionId The session token id.
+     * @return The contents of the file.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "downloadFile/{id}/{className}/{objectId}/{sessionId}",
+            produces = {MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @PathVariable(RestConstants.ID) long id,
+            @PathVariable(RestConstants.CLASS_NAME) String className,
+            @PathVariable(RestConstants.OBJECT_ID) String objectId,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("downloadFile", "127.0.0.1", sessionId);
+            return RestUtil.getFileResponseEntity(aem.getFileContent(id, className, objectId));
+        } catch (InvalidArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (BusinessObjectNotFoundException | MetadataObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
     /**
      * Releases (and deletes) a file associated to a list type item.
      * @param id The id of the file.
@@ -23,6 +23,7 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import javax.validation.Valid;
@@ -37,10 +38,12 @@ import org.neotropic.kuwaiba.core.apis.persistence.application.ViewObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.util.StringPair;
 import org.neotropic.kuwaiba.northbound.rest.RestConstants;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Swagger documentation for Application Entity Manager.
@@ -431,6 +434,30 @@ public interface ApplicationEntityManagerRestOpenApi {
             @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
             @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
     
+    @Operation(summary = "Relates a file to a list type item. The file is sent as the raw request body and streamed to disk, so it's suitable for large files.", 
+            description = "The id of the resulting file object.", tags = {"files"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = long.class))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.PUT, value = "uploadFileToListTypeItem/{name}/{tags}/{listTypeItemClassName}/{listTypeItemId}/{sessionId}", 
+            consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE}, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public long uploadFileToListTypeItem(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The name of the file.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.NAME, required = true) String name,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The tags that describe the contents of the file.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.TAGS, required = true) String tags,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The list type item class name.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.LIST_TYPE_ITEM_CLASS_NAME, required = true) String listTypeItemClassName,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The id of the list type item the file will be attached to.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.LIST_TYPE_ITEM_ID, required = true) String listTypeItemId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId,
+            @Parameter(description = "The contents of the file.", required = true) InputStream file);
+    
     @Operation(summary = "Fetches the files associated to an inventory object. Note that this call won't retrieve the actual files, but only references to them.", description = "The list of files.", tags = {"files"})
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = FileObjectLight.class)))),
@@ -467,6 +494,26 @@ public interface ApplicationEntityManagerRestOpenApi {
             @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
             @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
     
+    @Operation(summary = "Retrieves a particular file associated to an inventory list type item. The file is returned as the raw response body and streamed from disk, so it's suitable for large files.", 
+            description = "The contents of the file.", tags = {"files"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value = "downloadFile/{id}/{className}/{objectId}/{sessionId}", produces = {MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The id of the file object.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.ID, required = true) long id,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The class of the object the file is associated to.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CLASS_NAME, required = true) String className,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The id of the list type item the file is associated to.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.OBJECT_ID, required = true) String objectId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
     @Operation(summary = "Releases (and deletes) a file associated to a list type item.", tags = {"files"})
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content),
@@ -15,6 +15,8 @@
  */
 package org.neotropic.kuwaiba.northbound.rest.bem;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,10 +26,12 @@ import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntity
 import org.neotropic.kuwaiba.core.apis.persistence.application.FileObject;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FileObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.application.InventoryObjectPool;
+import org.neotropic.kuwaiba.core.apis.persistence.application.Validator;
 import org.neotropic.kuwaiba.core.apis.persistence.business.AnnotatedBusinessObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObject;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLightPage;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.ApplicationObjectNotFoundException;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.BusinessObjectNotFoundException;
 import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InvalidArgumentException;
@@ -43,12 +47,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * This is the entity in charge of manipulating business objects.
@@ -76,6 +82,12 @@ public class BusinessEntityManagerRestController implements BusinessEntityManage
     @Autowired
     private TranslationService ts;
     
+    /**
+     * Reference to the JSON mapper used to serialize the streamed responses.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     /**
      * Reference to the default logger.
      */
@@ -490,6 +502,39 @@ public class BusinessEntityManagerRestController implements BusinessEntityManage
         }
     }
     
+    /**
+     * Evaluates the validators applicable to an object. Use it to fetch the validators on demand when 
+     * they are not evaluated while listing objects.
+     * @param className Object class name.
+     * @param objectId Object's oid.
+     * @param sessionId The session token id.
+     * @return The validators applicable to the object.
+     */
+    @RequestMapping(method = RequestMethod.GET, 
+            value ="getObjectValidators/{className}/{objectId}/{sessionId}", 
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public List<Validator> getObjectValidators(
+            @PathVariable(RestConstants.CLASS_NAME) String className,
+            @PathVariable(RestConstants.OBJECT_ID) String objectId,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getObjectValidators", "127.0.0.1", sessionId);
+            return bem.getObjectValidators(className, objectId);
+        } catch (InvalidArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (MetadataObjectNotFoundException | BusinessObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
     /**
      * Gets the children of a given object.
      * @param className Object's class name.
@@ -524,6 +569,75 @@ public class BusinessEntityManagerRestController implements BusinessEntityManage
         }
     }
     
+    /**
+     * Gets a page of the children of a given object. The pages are delimited by a cursor instead of an offset and the children are sorted by id.
+     * @param className Object's class name.
+     * @param objectId Object's oid. -1 for the children of the navigation tree root.
+     * @param cursor The cursor returned along with the previous page. "null" to get the first page.
+     * @param limit Max number of objects in the page.
+     * @param sessionId The session token id.
+     * @return The page of children and the cursor to get the next one.
+     */
+    @RequestMapping(method = RequestMethod.GET, 
+            value ="getObjectChildrenPage/{className}/{objectId}/{cursor}/{limit}/{sessionId}", 
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public BusinessObjectLightPage getObjectChildrenPage(
+            @PathVariable(RestConstants.CLASS_NAME) String className,
+            @PathVariable(RestConstants.OBJECT_ID) String objectId,
+            @PathVariable(RestConstants.CURSOR) String cursor,
+            @PathVariable(RestConstants.LIMIT) int limit,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getObjectChildrenPage", "127.0.0.1", sessionId);
+            return bem.getObjectChildrenPage(className, objectId, "null".equals(cursor) ? null : cursor, limit);
+        } catch (InvalidArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (MetadataObjectNotFoundException | BusinessObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Streams the children of a given object. The children are sorted by id.
+     * @param className Object's class name.
+     * @param objectId Object's oid. -1 for the children of the navigation tree root.
+     * @param cursor A cursor returned along with a page, to start after the last object of that page. "null" to start from the first object.
+     * @param limit Max number of objects to be returned, -1 to return them all.
+     * @param sessionId The session token id.
+     * @return The objects as newline-delimited JSON, one object per line, written as they are read from the database.
+     */
+    @RequestMapping(method = RequestMethod.GET, 
+            value ="streamObjectChildren/{className}/{objectId}/{cursor}/{limit}/{sessionId}", 
+            produces = {RestConstants.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamObjectChildren(
+            @PathVariable(RestConstants.CLASS_NAME) String className,
+            @PathVariable(RestConstants.OBJECT_ID) String objectId,
+            @PathVariable(RestConstants.CURSOR) String cursor,
+            @PathVariable(RestConstants.LIMIT) long limit,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("streamObjectChildren", "127.0.0.1", sessionId);
+            return RestUtil.<BusinessObjectLight>getNdjsonResponseEntity(objectMapper, 
+                    consumer -> bem.streamObjectChildren(className, objectId, "null".equals(cursor) ? null : cursor, limit, consumer));
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
     /**
      * Gets the children of a given object, providing the class and object id.
      * @param classId The id of the class the object is instance of.
@@ -941,6 +1055,71 @@ public class BusinessEntityManagerRestController implements BusinessEntityManage
         }
     }
     
+    /**
+     * Gets a page of the light instances of a given class. The pages are delimited by a cursor instead of an offset and the instances are sorted by id.
+     * @param className Class name. It must be a subclass of InventoryObject.
+     * @param cursor The cursor returned along with the previous page. "null" to get the first page.
+     * @param limit Max number of objects in the page.
+     * @param sessionId The session token id.
+     * @return The page of instances and the cursor to get the next one.
+     */
+    @RequestMapping(method = RequestMethod.GET, 
+            value ="getObjectsOfClassLightPage/{className}/{cursor}/{limit}/{sessionId}", 
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public BusinessObjectLightPage getObjectsOfClassLightPage(
+            @PathVariable(RestConstants.CLASS_NAME) String className,
+            @PathVariable(RestConstants.CURSOR) String cursor,
+            @PathVariable(RestConstants.LIMIT) int limit,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getObjectsOfClassLightPage", "127.0.0.1", sessionId);
+            return bem.getObjectsOfClassLightPage(className, "null".equals(cursor) ? null : cursor, limit);
+        } catch (InvalidArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (MetadataObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Streams the light instances of a given class. The instances are sorted by id.
+     * @param className Class name. It must be a subclass of InventoryObject.
+     * @param cursor A cursor returned along with a page, to start after the last object of that page. "null" to start from the first object.
+     * @param limit Max number of objects to be returned, -1 to return them all.
+     * @param sessionId The session token id.
+     * @return The objects as newline-delimited JSON, one object per line, written as they are read from the database.
+     */
+    @RequestMapping(method = RequestMethod.GET, 
+            value ="streamObjectsOfClassLight/{className}/{cursor}/{limit}/{sessionId}", 
+            produces = {RestConstants.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamObjectsOfClassLight(
+            @PathVariable(RestConstants.CLASS_NAME) String className,
+            @PathVariable(RestConstants.CURSOR) String cursor,
+            @PathVariable(RestConstants.LIMIT) long limit,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("streamObjectsOfClassLight", "127.0.0.1", sessionId);
+            return RestUtil.<BusinessObjectLight>getNdjsonResponseEntity(objectMapper, 
+                    consumer -> bem.streamObjectsOfClassLight(className, "null".equals(cursor) ? null : cursor, limit, consumer));
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
     /**
      * Recursively gets all the light instances of given class.
      * @param className Class name. It must be a subclass of InventoryObject.
@@ -1599,6 +1778,71 @@ public class BusinessEntityManagerRestController implements BusinessEntityManage
         }
     }
     
+    /**
+     * Retrieves a page of the objects in a pool. The pages are delimited by a cursor instead of an offset and the objects are sorted by id.
+     * @param poolId Parent pool id.
+     * @param cursor The cursor returned along with the previous page. "null" to get the first page.
+     * @param limit Max number of objects in the page.
+     * @param sessionId The session token id.
+     * @return The page of items and the cursor to get the next one.
+     */
+    @RequestMapping(method = RequestMethod.GET, 
+            value ="getPoolItemsPage/{poolId}/{cursor}/{limit}/{sessionId}", 
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public BusinessObjectLightPage getPoolItemsPage(
+            @PathVariable(RestConstants.POOL_ID) String poolId,
+            @PathVariable(RestConstants.CURSOR) String cursor,
+            @PathVariable(RestConstants.LIMIT) int limit,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getPoolItemsPage", "127.0.0.1", sessionId);
+            return bem.getPoolItemsPage(poolId, "null".equals(cursor) ? null : cursor, limit);
+        } catch (InvalidArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (ApplicationObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Streams the objects in a pool. The objects are sorted by id.
+     * @param poolId Parent pool id.
+     * @param cursor A cursor returned along with a page, to start after the last object of that page. "null" to start from the first object.
+     * @param limit Max number of objects to be returned, -1 to return them all.
+     * @param sessionId The session token id.
+     * @return The objects as newline-delimited JSON, one object per line, written as they are read from the database.
+     */
+    @RequestMapping(method = RequestMethod.GET, 
+            value ="streamPoolItems/{poolId}/{cursor}/{limit}/{sessionId}", 
+            produces = {RestConstants.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamPoolItems(
+            @PathVariable(RestConstants.POOL_ID) String poolId,
+            @PathVariable(RestConstants.CURSOR) String cursor,
+            @PathVariable(RestConstants.LIMIT) long limit,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("streamPoolItems", "127.0.0.1", sessionId);
+            return RestUtil.<BusinessObjectLight>getNdjsonResponseEntity(objectMapper, 
+                    consumer -> bem.streamPoolItems(poolId, "null".equals(cursor) ? null : cursor, limit, consumer));
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
     /**
      * Retrieves the list of objects from a pool.
      * @param poolId Parent pool id.
@@ -2539,6 +2783,85 @@ public class BusinessEntityManagerRestController implements BusinessEntityManage
         }
     }
     
+    /**
+     * Gets a page of the children of a given class in a hierarchy with root in the given parent. The pages are delimited by a cursor instead of an offset and the children are sorted by id.
+     * @param parentId Object id of the root parent of the hierarchy.
+     * @param parentClassName Class name of the root parent of the hierarchy.
+     * @param classNameToFilter Class name of the expected children.
+     * @param attributes If filtering by the attributes of the retrieved objects.
+     * @param cursor The cursor returned along with the previous page. "null" to get the first page.
+     * @param limit Max number of objects in the page.
+     * @param sessionId The session token id.
+     * @return The page of children and the cursor to get the next one.
+     */
+    @RequestMapping(method = RequestMethod.POST, 
+            value ="getChildrenOfClassLightRecursivePage/{parentId}/{parentClassName}/{classNameToFilter}/{cursor}/{limit}/{sessionId}", 
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public BusinessObjectLightPage getChildrenOfClassLightRecursivePage(
+            @PathVariable(RestConstants.PARENT_ID) String parentId,
+            @PathVariable(RestConstants.PARENT_CLASS_NAME) String parentClassName,
+            @PathVariable(RestConstants.CLASS_NAME_TO_FILTER) String classNameToFilter,
+            @RequestBody(required = false) HashMap<String, String> attributes,
+            @PathVariable(RestConstants.CURSOR) String cursor,
+            @PathVariable(RestConstants.LIMIT) int limit,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getChildrenOfClassLightRecursivePage", "127.0.0.1", sessionId);
+            return bem.getChildrenOfClassLightRecursivePage(parentId, parentClassName, 
+                    classNameToFilter, attributes, "null".equals(cursor) ? null : cursor, limit);
+        } catch (InvalidArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (BusinessObjectNotFoundException | MetadataObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Streams the children of a given class in a hierarchy with root in the given parent. The children are sorted by id.
+     * @param parentId Object id of the root parent of the hierarchy.
+     * @param parentClassName Class name of the root parent of the hierarchy.
+     * @param classNameToFilter Class name of the expected children.
+     * @param attributes If filtering by the attributes of the retrieved objects.
+     * @param cursor A cursor returned along with a page, to start after the last object of that page. "null" to start from the first object.
+     * @param limit Max number of objects to be returned, -1 to return them all.
+     * @param sessionId The session token id.
+     * @return The objects as newline-delimited JSON, one object per line, written as they are read from the database.
+     */
+    @RequestMapping(method = RequestMethod.POST, 
+            value ="streamChildrenOfClassLightRecursive/{parentId}/{parentClassName}/{classNameToFilter}/{cursor}/{limit}/{sessionId}", 
+            produces = {RestConstants.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamChildrenOfClassLightRecursive(
+            @PathVariable(RestConstants.PARENT_ID) String parentId,
+            @PathVariable(RestConstants.PARENT_CLASS_NAME) String parentClassName,
+            @PathVariable(RestConstants.CLASS_NAME_TO_FILTER) String classNameToFilter,
+            @RequestBody(required = false) HashMap<String, String> attributes,
+            @PathVariable(RestConstants.CURSOR) String cursor,
+            @PathVariable(RestConstants.LIMIT) long limit,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("streamChildrenOfClassLightRecursive", "127.0.0.1", sessionId);
+            return RestUtil.<BusinessObjectLight>getNdjsonResponseEntity(objectMapper, 
+                    consumer -> bem.streamChildrenOfClassLightRecursive(parentId, parentClassName, 
+                            classNameToFilter, attributes, "null".equals(cursor) ? null : cursor, limit, consumer));
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
     /**
      * Gets all class and abstract class special children of a given class to filter 
      * in a hierarchy with root in the given parent.Use case: used in some class level and inventory level reports script.
@@ -2763,6 +3086,46 @@ public class BusinessEntityManagerRestController implements BusinessEntityManage
         }
     }
     
+    /**
+     * Relates a file to an inventory object. Unlike attachFileToObject, the file is sent as the raw request body 
+     * and streamed to disk, so it's suitable for large files.
+     * @param name The name of the file.
+     * @param tags The tags that describe the contents of the file.
+     * @param className The class of the object the file will be attached to.
+     * @param objectId The id of the object the file will be attached to.
+     * @param sessionId The session token id.
+     * @param file The contents of the file.
+     * @return The id of the resulting file object.
+     */
+    @RequestMapping(method = RequestMethod.POST, 
+            value = "uploadFileToObject/{name}/{tags}/{className}/{objectId}/{sessionId}",
+            consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public long uploadFileToObject(
+            @PathVariable(RestConstants.NAME) String name,
+            @PathVariable(RestConstants.TAGS) String tags,
+            @PathVariable(RestConstants.CLASS_NAME) String className, 
+            @PathVariable(RestConstants.OBJECT_ID) String objectId,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId,
+            InputStream file)
+    {
+        try {
+            aem.validateCall("uploadFileToObject", "127.0.0.1", sessionId);
+            return bem.attachFileToObject(name, tags, file, className, objectId);
+        } catch (InvalidArgumentException | OperationNotPermittedException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (BusinessObjectNotFoundException | MetadataObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
     /**
      * Fetches the files associated to an inventory object. Note that this call won't retrieve the actual files, but only references to them.
      * @param className The class of the object whose files will be fetched from.
@@ -2829,6 +3192,41 @@ public class BusinessEntityManagerRestController implements BusinessEntityManage
         }
     }
     
+    /**
+     * Retrieves a particular file associated to an inventory object. Unlike getFile, the file is returned as the 
+     * raw response body and streamed from disk, so it's suitable for large files.
+     * @param fileObjectId The id of the file object.
+     * @param className The class of the object the file is associated to.
+     * @param objectId The id of the object the file is associated to.
+     * @param sessionId The session token id.
+     * @return The contents of the file.
+     */
+    @RequestMapping(method = RequestMethod.GET, 
+            value = "downloadFile/{fileObjectId}/{className}/{objectId}/{sessionId}",
+            produces = {MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @PathVariable(RestConstants.FILE_OBJECT_ID) long fileObjectId,
+            @PathVariable(RestConstants.CLASS_NAME) String className,
+            @PathVariable(RestConstants.OBJECT_ID) String objectId,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("downloadFile", "127.0.0.1", sessionId);
+            return RestUtil.getFileResponseEntity(bem.getFileContent(fileObjectId, className, objectId));
+        } catch (InvalidArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (BusinessObjectNotFoundException | MetadataObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
     /**
      * Releases (and deletes) a file associated to an inventory object.
      * @param fileObjectId The id of the file object.
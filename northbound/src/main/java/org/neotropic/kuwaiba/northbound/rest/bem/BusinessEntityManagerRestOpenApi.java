@@ -23,6 +23,7 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,16 +33,20 @@ import org.neotropic.kuwaiba.core.apis.persistence.ChangeDescriptor;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FileObject;
 import org.neotropic.kuwaiba.core.apis.persistence.application.FileObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.application.InventoryObjectPool;
+import org.neotropic.kuwaiba.core.apis.persistence.application.Validator;
 import org.neotropic.kuwaiba.core.apis.persistence.business.AnnotatedBusinessObjectLight;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObject;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLight;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObjectLightPage;
 import org.neotropic.kuwaiba.core.apis.persistence.util.StringPair;
 import org.neotropic.kuwaiba.northbound.rest.RestConstants;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Swagger documentation for Business Entity Manager.
@@ -280,6 +285,23 @@ public interface BusinessEntityManagerRestOpenApi {
             @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
             @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
     
+    @Operation(summary = "Evaluates the validators applicable to an object.", description = "The validators applicable to the object.", tags = {"objects"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = Validator.class)))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value ="getObjectValidators/{className}/{objectId}/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public List<Validator> getObjectValidators(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Object class name.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CLASS_NAME, required = true) String className,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Object's oid.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.OBJECT_ID, required = true) String objectId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
     @Operation(summary = "Gets the children of a given object.", description = "The list of children.", tags = {"objects"})
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = BusinessObjectLight.class)))),
@@ -299,6 +321,48 @@ public interface BusinessEntityManagerRestOpenApi {
             @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
             @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
     
+    @Operation(summary = "Gets a page of the children of a given object. The pages are delimited by a cursor instead of an offset and the children are sorted by id.", description = "The page of children and the cursor to get the next one.", tags = {"objects"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = BusinessObjectLightPage.class))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value ="getObjectChildrenPage/{className}/{objectId}/{cursor}/{limit}/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public BusinessObjectLightPage getObjectChildrenPage(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Object's class name.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CLASS_NAME, required = true) String className,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Object's oid. -1 for the children of the navigation tree root.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.OBJECT_ID, required = true) String objectId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The cursor returned along with the previous page. \"null\" to start from the first object.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CURSOR, required = true) String cursor,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Max number of objects in the page.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.LIMIT, required = true) int limit,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Streams the children of a given object. The children are sorted by id.", description = "The objects as newline-delimited JSON, one object per line, written as they are read from the database.", tags = {"objects"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = RestConstants.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = BusinessObjectLight.class))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value ="streamObjectChildren/{className}/{objectId}/{cursor}/{limit}/{sessionId}", produces = {RestConstants.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamObjectChildren(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Object's class name.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CLASS_NAME, required = true) String className,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Object's oid. -1 for the children of the navigation tree root.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.OBJECT_ID, required = true) String objectId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The cursor returned along with the previous page. \"null\" to start from the first object.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CURSOR, required = true) String cursor,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Max number of objects to be returned, -1 to return them all.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.LIMIT, required = true) long limit,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
     @Operation(summary = "Gets the children of a given object, providing the class and object id.", description = "The list of children.", tags = {"objects"})
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = BusinessObjectLight.class)))),
@@ -541,6 +605,44 @@ public interface BusinessEntityManagerRestOpenApi {
             @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
             @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
     
+    @Operation(summary = "Gets a page of the light instances of a given class. The pages are delimited by a cursor instead of an offset and the instances are sorted by id.", description = "The page of instances and the cursor to get the next one.", tags = {"objects"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = BusinessObjectLightPage.class))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value ="getObjectsOfClassLightPage/{className}/{cursor}/{limit}/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public BusinessObjectLightPage getObjectsOfClassLightPage(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Class name. It must be a subclass of InventoryObject.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CLASS_NAME, required = true) String className,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The cursor returned along with the previous page. \"null\" to start from the first object.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CURSOR, required = true) String cursor,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Max number of objects in the page.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.LIMIT, required = true) int limit,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Streams the light instances of a given class. The instances are sorted by id.", description = "The objects as newline-delimited JSON, one object per line, written as they are read from the database.", tags = {"objects"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = RestConstants.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = BusinessObjectLight.class))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value ="streamObjectsOfClassLight/{className}/{cursor}/{limit}/{sessionId}", produces = {RestConstants.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamObjectsOfClassLight(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Class name. It must be a subclass of InventoryObject.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CLASS_NAME, required = true) String className,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The cursor returned along with the previous page. \"null\" to start from the first object.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CURSOR, required = true) String cursor,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Max number of objects to be returned, -1 to return them all.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.LIMIT, required = true) long limit,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
     @Operation(summary = "Recursively gets all the light instances of given class, without filters.", description = "A set of instances of the class.", tags = {"objects"})
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = BusinessObjectLight.class)))),
@@ -919,6 +1021,44 @@ public interface BusinessEntityManagerRestOpenApi {
             @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
             @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
     
+    @Operation(summary = "Retrieves a page of the objects in a pool. The pages are delimited by a cursor instead of an offset and the objects are sorted by id.", description = "The page of items and the cursor to get the next one.", tags = {"pool-item"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = BusinessObjectLightPage.class))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value ="getPoolItemsPage/{poolId}/{cursor}/{limit}/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public BusinessObjectLightPage getPoolItemsPage(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Parent pool id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.POOL_ID, required = true) String poolId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The cursor returned along with the previous page. \"null\" to start from the first object.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CURSOR, required = true) String cursor,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Max number of objects in the page.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.LIMIT, required = true) int limit,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Streams the objects in a pool. The objects are sorted by id.", description = "The objects as newline-delimited JSON, one object per line, written as they are read from the database.", tags = {"pool-item"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = RestConstants.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = BusinessObjectLight.class))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value ="streamPoolItems/{poolId}/{cursor}/{limit}/{sessionId}", produces = {RestConstants.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamPoolItems(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Parent pool id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.POOL_ID, required = true) String poolId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The cursor returned along with the previous page. \"null\" to start from the first object.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CURSOR, required = true) String cursor,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Max number of objects to be returned, -1 to return them all.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.LIMIT, required = true) long limit,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
     @Operation(summary = "Retrieves the list of objects from a pool.", description = "The list of items inside the pool.", tags = {"pool-item"})
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = BusinessObjectLight.class)))),
@@ -1461,6 +1601,58 @@ public interface BusinessEntityManagerRestOpenApi {
             @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
             @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
     
+    @Operation(summary = "Gets a page of the children of a given class in a hierarchy with root in the given parent. The pages are delimited by a cursor instead of an offset and the children are sorted by id.", description = "The page of children and the cursor to get the next one.", tags = {"children"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = BusinessObjectLightPage.class))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.POST, value ="getChildrenOfClassLightRecursivePage/{parentId}/{parentClassName}/{classNameToFilter}/{cursor}/{limit}/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public BusinessObjectLightPage getChildrenOfClassLightRecursivePage(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Object id of the root parent of the hierarchy.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.PARENT_ID, required = true) String parentId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Class name of the root parent of the hierarchy.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.PARENT_CLASS_NAME, required = true) String parentClassName,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Class name of the expected children.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CLASS_NAME_TO_FILTER, required = true) String classNameToFilter,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "If filtering by the attributes of the retrieved objects.",
+                    required = false, content = @Content(schema = @Schema(implementation = HashMap.class)))
+            @Valid @RequestBody HashMap<String, String> attributes,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The cursor returned along with the previous page. \"null\" to start from the first object.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CURSOR, required = true) String cursor,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Max number of objects in the page.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.LIMIT, required = true) int limit,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Streams the children of a given class in a hierarchy with root in the given parent. The children are sorted by id.", description = "The objects as newline-delimited JSON, one object per line, written as they are read from the database.", tags = {"children"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = RestConstants.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = BusinessObjectLight.class))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.POST, value ="streamChildrenOfClassLightRecursive/{parentId}/{parentClassName}/{classNameToFilter}/{cursor}/{limit}/{sessionId}", produces = {RestConstants.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamChildrenOfClassLightRecursive(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Object id of the root parent of the hierarchy.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.PARENT_ID, required = true) String parentId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Class name of the root parent of the hierarchy.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.PARENT_CLASS_NAME, required = true) String parentClassName,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Class name of the expected children.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CLASS_NAME_TO_FILTER, required = true) String classNameToFilter,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "If filtering by the attributes of the retrieved objects.",
+                    required = false, content = @Content(schema = @Schema(implementation = HashMap.class)))
+            @Valid @RequestBody HashMap<String, String> attributes,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The cursor returned along with the previous page. \"null\" to start from the first object.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CURSOR, required = true) String cursor,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "Max number of objects to be returned, -1 to return them all.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.LIMIT, required = true) long limit,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
     @Operation(summary = "Gets all class and abstract class special children of a given class to filter in a hierarchy with root in the given parent.Use case: used in some class level and inventory level reports script.",
             description = "The list of object instance of the given class to filter.", tags = {"children"})
     @ApiResponses(value = {
@@ -1586,6 +1778,31 @@ public interface BusinessEntityManagerRestOpenApi {
             @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
             @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
     
+    @Operation(summary = "Relates a file to an inventory object. The file is sent as the raw request body and streamed to disk, so it's suitable for large files.", 
+            description = "The id of the resulting file object.", tags = {"attachments"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = long.class))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "405", description = "Method not allowed", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.POST, value = "uploadFileToObject/{name}/{tags}/{className}/{objectId}/{sessionId}", 
+            consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE}, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public long uploadFileToObject(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The name of the file.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.NAME, required = true) String name,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The tags that describe the contents of the file.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.TAGS, required = true) String tags,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The class of the object the file will be attached to.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CLASS_NAME, required = true) String className,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The id of the object the file will be attached to.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.OBJECT_ID, required = true) String objectId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId,
+            @Parameter(description = "The contents of the file.", required = true) InputStream file);
+    
     @Operation(summary = "Fetches the files associated to an inventory object. Note that this call won't retrieve the actual files, but only references to them.",
             description = "The list of files.", tags = {"attachments"})
     @ApiResponses(value = {
@@ -1626,6 +1843,27 @@ public interface BusinessEntityManagerRestOpenApi {
             @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
             @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
     
+    @Operation(summary = "Retrieves a particular file associated to an inventory object. The file is returned as the raw response body and streamed from disk, so it's suitable for large files.", 
+            description = "The contents of the file.", tags = {"attachments"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+        @ApiResponse(responseCode = "405", description = "Method not allowed", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value = "downloadFile/{fileObjectId}/{className}/{objectId}/{sessionId}", produces = {MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The id of the file object.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.FILE_OBJECT_ID, required = true) long fileObjectId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The class of the object the file is associated to.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.CLASS_NAME, required = true) String className,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The id of the object the file is associated to.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.OBJECT_ID, required = true) String objectId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
     @Operation(summary = "Releases (and deletes) a file associated to an inventory object.", tags = {"attachments"})
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content),
@@ -17,8 +17,12 @@ package org.neotropic.kuwaiba.northbound.rest.bem;
 
 import java.util.ArrayList;
 import java.util.List;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
 import org.neotropic.kuwaiba.core.apis.persistence.ChangeDescriptor;
+import org.neotropic.kuwaiba.core.apis.persistence.ConnectionManager;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
+import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.InventoryReport;
 import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.ReportMetadata;
 import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.ReportMetadataLight;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
@@ -35,12 +39,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * The definition of the Report Rest Controller.
@@ -67,6 +73,12 @@ public class ReportRestController implements ReportRestOpenApi {
     @Autowired
     private TranslationService ts;
     
+    /**
+     * Reference to the connection manager.
+     */
+    @Autowired
+    private ConnectionManager<GraphDatabaseService> connectionManager;
+    
     /**
      * Reference to the default logger.
      */
@@ -435,5 +447,94 @@ public class ReportRestController implements ReportRestOpenApi {
                     ts.getTranslatedString("api.rest.general.error.unexpected-error"));
         }
     }
+    
+    /**
+     * Executes a class level report and streams the result as it's rendered, instead of building it in memory first.
+     * The content type of the response depends on the report (HTML by default).
+     * @param objectClassName The class of the instance that will be used as input for the report.
+     * @param objectId The id of the instance that will be used as input for the report.
+     * @param reportId The id of the report.
+     * @param sessionId The session token id.
+     * @return The result of the report execution.
+     */
+    @RequestMapping(method = RequestMethod.GET,
+            value = "streamClassLevelReport/{objectClassName}/{objectId}/{reportId}/{sessionId}",
+            produces = {MediaType.ALL_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamClassLevelReport(
+            @PathVariable(RestConstants.OBJECT_CLASS_NAME) String objectClassName,
+            @PathVariable(RestConstants.OBJECT_ID) String objectId,
+            @PathVariable(RestConstants.REPORT_ID) long reportId,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("streamClassLevelReport", "127.0.0.1", sessionId);
+            return getReportResponseEntity(bem.buildClassLevelReport(objectClassName, objectId, reportId));
+        }  catch (InvalidArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }  catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (ApplicationObjectNotFoundException | BusinessObjectNotFoundException | MetadataObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Executes an inventory level report and streams the result as it's rendered, instead of building it in memory first.
+     * The content type of the response depends on the report (HTML by default).
+     * @param reportId The id of the report.
+     * @param parameters List of pairs param name - param value.
+     * @param sessionId The session token id.
+     * @return The result of the report execution.
+     */
+    @RequestMapping(method = RequestMethod.PUT,
+            value = "streamInventoryLevelReport/{reportId}/{sessionId}",
+            produces = {MediaType.ALL_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamInventoryLevelReport(
+            @PathVariable(RestConstants.REPORT_ID) long reportId,
+            @RequestBody(required = false) List<StringPair> parameters,
+            @PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("streamInventoryLevelReport", "127.0.0.1", sessionId);
+            return getReportResponseEntity(bem.buildInventoryLevelReport(
+                    reportId,
+                    parameters == null ? new ArrayList<>() : parameters
+            ));
+        }  catch (InvalidArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }  catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (ApplicationObjectNotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Creates a response whose body is the report, written directly to the response stream. The body is written 
+     * by another thread once the request has been handled, so the transaction the report might need to read 
+     * the nodes it was built on top of is opened there.
+     * @param report The report.
+     * @return The response.
+     */
+    private ResponseEntity<StreamingResponseBody> getReportResponseEntity(InventoryReport report) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(report.getContentType()))
+                .body(outputStream -> {
+                    try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+                        report.writeTo(outputStream);
+                        tx.success();
+                    }
+                });
+    }
     // </editor-fold>
 }
\ No newline at end of file
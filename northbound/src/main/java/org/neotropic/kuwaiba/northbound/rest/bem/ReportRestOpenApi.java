@@ -32,10 +32,12 @@ import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.ReportM
 import org.neotropic.kuwaiba.core.apis.persistence.util.StringPair;
 import org.neotropic.kuwaiba.northbound.rest.RestConstants;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Swagger documentation for reports.
@@ -260,5 +262,43 @@ public interface ReportRestOpenApi {
             @Valid @RequestBody List<StringPair> parameters,
             @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
             @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Executes a class level report and streams the result as it's rendered.", description = "The result of the report execution. The content type depends on the report (HTML by default).", tags = {"reports"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.ALL_VALUE, schema = @Schema(type = "string", format = "binary"))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value = "streamClassLevelReport/{objectClassName}/{objectId}/{reportId}/{sessionId}", produces = {MediaType.ALL_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamClassLevelReport(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The class of the instance that will be used as input for the report.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.OBJECT_CLASS_NAME, required = true) String objectClassName,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The id of the instance that will be used as input for the report.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.OBJECT_ID, required = true) String objectId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The id of the report.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.REPORT_ID, required = true) long reportId,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Executes an inventory level report and streams the result as it's rendered.", description = "The result of the report execution. The content type depends on the report (HTML by default).", tags = {"reports"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.ALL_VALUE, schema = @Schema(type = "string", format = "binary"))),
+        @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
+        @ApiResponse(responseCode = "405", description = "Method not allowed", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.PUT, value = "streamInventoryLevelReport/{reportId}/{sessionId}", produces = {MediaType.ALL_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamInventoryLevelReport(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The id of the report.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.REPORT_ID, required = true) long reportId,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "List of pairs param name - param value.", required = false,
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = StringPair.class)))) 
+            @Valid @RequestBody List<StringPair> parameters,
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
     // </editor-fold>
 }
\ No newline at end of file
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2023 Neotropic SAS <contact@neotropic.co>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.neotropic.kuwaiba.northbound.rest.services;
+
+import java.util.HashMap;
+import java.util.List;
+import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
+import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.CacheStatistics;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.ScriptStatistics;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.ValidatorStatistics;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.NotAuthorizedException;
+import org.neotropic.kuwaiba.core.i18n.TranslationService;
+import org.neotropic.kuwaiba.core.services.caching.CachingService;
+import org.neotropic.kuwaiba.northbound.rest.RestConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Database Tools Rest Controller. Exposes the counters used to tune the persistence layer and the maintenance of its indexes.
+ * @author agent {@literal <agent@local>}
+ */
+@RestController
+@RequestMapping(DatabaseToolsRestController.PATH)
+public class DatabaseToolsRestController implements DatabaseToolsRestOpenApi {
+    /**
+     * Reference to the Caching Service, which provides the counters of the persistence layer cache.
+     */
+    @Autowired
+    private CachingService cachingService;
+    
+    /**
+     * Reference to the Application Entity Manager.
+     */
+    @Autowired
+    private ApplicationEntityManager aem;
+    
+    /**
+     * Reference to the Business Entity Manager.
+     */
+    @Autowired
+    private BusinessEntityManager bem;
+    
+    /**
+     * Reference to the translation service.
+     */
+    @Autowired
+    private TranslationService ts;
+    
+    /**
+     * Reference to the default logger.
+     */
+    public static Logger LOG = LoggerFactory.getLogger(DatabaseToolsRestController.class);
+    
+    /**
+     * Path that includes the Kuwaiba version and module
+     */
+    public static final String PATH = "/v2.1/database-tools/"; //NOI18N
+    
+    // <editor-fold desc="database-tools" defaultstate="collapsed">
+    /**
+     * Takes a snapshot of the hit, miss and eviction counters of every region of the persistence layer cache.
+     * @param sessionId The session token id.
+     * @return One entry per cache region.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "getCacheStatistics/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public List<CacheStatistics> getCacheStatistics(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getCacheStatistics", "127.0.0.1", sessionId);
+            return cachingService.getCacheStatistics();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Sets to zero the counters of every region of the persistence layer cache. The cached entries are not affected.
+     * @param sessionId The session token id.
+     */
+    @RequestMapping(method = RequestMethod.PUT, value = "resetCacheStatistics/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void resetCacheStatistics(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("resetCacheStatistics", "127.0.0.1", sessionId);
+            cachingService.resetCacheStatistics();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Takes a snapshot of the usage counters of the named statements used to query the inventory objects.
+     * @param sessionId The session token id.
+     * @return One entry per statement, with its name, number of executions, rows returned, average and max time in milliseconds and query.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "getQueryStatistics/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public List<HashMap<String, Object>> getQueryStatistics(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getQueryStatistics", "127.0.0.1", sessionId);
+            return bem.getQueryStatistics();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Sets to zero the usage counters of the named statements used to query the inventory objects.
+     * @param sessionId The session token id.
+     */
+    @RequestMapping(method = RequestMethod.PUT, value = "resetQueryStatistics/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void resetQueryStatistics(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("resetQueryStatistics", "127.0.0.1", sessionId);
+            bem.resetQueryStatistics();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Tells how the validators of the objects are evaluated.
+     * @param sessionId The session token id.
+     * @return EAGER, CACHED or ON_DEMAND.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "getValidatorEvaluationMode/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public String getValidatorEvaluationMode(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getValidatorEvaluationMode", "127.0.0.1", sessionId);
+            return cachingService.getValidatorEvaluationMode();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Takes a snapshot of the time spent evaluating validator definitions and of the validator results taken from the cache.
+     * @param sessionId The session token id.
+     * @return One entry per class whose instances have been evaluated.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "getValidatorStatistics/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public List<ValidatorStatistics> getValidatorStatistics(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getValidatorStatistics", "127.0.0.1", sessionId);
+            return cachingService.getValidatorStatistics();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Sets to zero the validator evaluation counters. The cached validator results are not affected.
+     * @param sessionId The session token id.
+     */
+    @RequestMapping(method = RequestMethod.PUT, value = "resetValidatorStatistics/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void resetValidatorStatistics(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("resetValidatorStatistics", "127.0.0.1", sessionId);
+            cachingService.resetValidatorStatistics();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Takes a snapshot of the compilations and executions of the scripts (tasks, scripted queries, reports and 
+     * validator definitions), and of the compiled scripts reused.
+     * @param sessionId The session token id.
+     * @return The script counters.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "getScriptStatistics/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ScriptStatistics getScriptStatistics(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getScriptStatistics", "127.0.0.1", sessionId);
+            return cachingService.getScriptStatistics();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Sets to zero the script compilation and execution counters. The compiled scripts are not affected.
+     * @param sessionId The session token id.
+     */
+    @RequestMapping(method = RequestMethod.PUT, value = "resetScriptStatistics/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void resetScriptStatistics(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("resetScriptStatistics", "127.0.0.1", sessionId);
+            cachingService.resetScriptStatistics();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Drops and creates again the index used to suggest objects by name. It's populated in the background, and the 
+     * suggestions are computed scanning the objects until it's done.
+     * @param sessionId The session token id.
+     */
+    @RequestMapping(method = RequestMethod.PUT, value = "rebuildSearchIndex/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void rebuildSearchIndex(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("rebuildSearchIndex", "127.0.0.1", sessionId);
+            bem.rebuildSearchIndex();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (IllegalStateException ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    
+    /**
+     * Takes a snapshot of the state and usage counters of the index used to suggest objects by name.
+     * @param sessionId The session token id.
+     * @return The state of the index, its population progress and its usage counters.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "getSearchIndexStatus/{sessionId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE})
+    public HashMap<String, Object> getSearchIndexStatus(@PathVariable(RestConstants.SESSION_ID) String sessionId)
+    {
+        try {
+            aem.validateCall("getSearchIndexStatus", "127.0.0.1", sessionId);
+            return bem.getSearchIndexStatus();
+        } catch (NotAuthorizedException ex) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } catch (Exception ex) {
+            LOG.error(ex.getMessage());
+            LOG.debug("", ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    ts.getTranslatedString("api.rest.general.error.unexpected-error"));
+        }
+    }
+    //  </editor-fold>
+}
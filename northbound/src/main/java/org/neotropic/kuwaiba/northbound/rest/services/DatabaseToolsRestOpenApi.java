@@ -0,0 +1,169 @@
+/*
+ * Copyright 2023 Neotropic SAS <contact@neotropic.co>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.neotropic.kuwaiba.northbound.rest.services;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.util.HashMap;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.CacheStatistics;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.ScriptStatistics;
+import org.neotropic.kuwaiba.core.apis.persistence.caching.ValidatorStatistics;
+import org.neotropic.kuwaiba.northbound.rest.RestConstants;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Swagger documentation for the database tools.
+ * @author agent {@literal <agent@local>}
+ */
+@RequestMapping(DatabaseToolsRestOpenApi.PATH)
+public interface DatabaseToolsRestOpenApi {
+    // <editor-fold desc="database-tools" defaultstate="collapsed">
+    public static final String PATH = "/v2.1/database-tools/"; //NOI18N
+    
+    @Operation(summary = "Takes a snapshot of the hit, miss and eviction counters of every region of the persistence layer cache.", description = "One entry per cache region.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = CacheStatistics.class)))),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value = "getCacheStatistics/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public List<CacheStatistics> getCacheStatistics(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Sets to zero the counters of every region of the persistence layer cache. The cached entries are not affected.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.PUT, value = "resetCacheStatistics/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void resetCacheStatistics(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Takes a snapshot of the usage counters of the named statements used to query the inventory objects.", description = "One entry per statement, with its name, executions, rows, averageTime and maxTime in milliseconds, and query.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = HashMap.class)))),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value = "getQueryStatistics/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public List<HashMap<String, Object>> getQueryStatistics(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Sets to zero the usage counters of the named statements used to query the inventory objects.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.PUT, value = "resetQueryStatistics/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void resetQueryStatistics(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Tells how the validators of the objects are evaluated.", description = "EAGER, CACHED or ON_DEMAND.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = String.class))),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value = "getValidatorEvaluationMode/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public String getValidatorEvaluationMode(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Takes a snapshot of the time spent evaluating validator definitions and of the validator results taken from the cache.", description = "One entry per class whose instances have been evaluated.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = ValidatorStatistics.class)))),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value = "getValidatorStatistics/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public List<ValidatorStatistics> getValidatorStatistics(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Sets to zero the validator evaluation counters. The cached validator results are not affected.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.PUT, value = "resetValidatorStatistics/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void resetValidatorStatistics(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Takes a snapshot of the compilations and executions of the scripts, and of the compiled scripts reused.", description = "Covers tasks, scripted queries, reports and validator definitions.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ScriptStatistics.class))),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value = "getScriptStatistics/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ScriptStatistics getScriptStatistics(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Sets to zero the script compilation and execution counters. The compiled scripts are not affected.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.PUT, value = "resetScriptStatistics/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void resetScriptStatistics(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Drops and creates again the index used to suggest objects by name.", description = "The index is populated in the background, and the suggestions are computed scanning the objects until it's done.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "The index could not be dropped or created again", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.PUT, value = "rebuildSearchIndex/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void rebuildSearchIndex(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    
+    @Operation(summary = "Takes a snapshot of the state and usage counters of the index used to suggest objects by name.", description = "The state (ONLINE, POPULATING, FAILED or MISSING), progress, failureMessage, analyzer, lastRebuild, queries, averageQueryTime and fallbacks.", tags = {"database-tools"})
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = HashMap.class))),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+        @ApiResponse(responseCode = "500", description = "An unexpected error occurred. Contact your administrator for details", content = @Content)
+    })
+    @RequestMapping(method = RequestMethod.GET, value = "getSearchIndexStatus/{sessionId}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public HashMap<String, Object> getSearchIndexStatus(
+            @NotNull @Parameter(in = ParameterIn.PATH, description = "The session token id.", required = true, schema = @Schema())
+            @Valid @PathVariable(value = RestConstants.SESSION_ID, required = true) String sessionId);
+    //  </editor-fold>
+}
@@ -8474,12 +8474,13 @@ public class KuwaibaSoapWebServiceImpl implements KuwaibaSoapWebService {
     }
     
     /**
-     * Finds the user name using the session Id
+     * Finds the user name using the session Id. The session is not validated again nor recorded as used, 
+     * since the callers have already done it through validateCall
      * @param sessionId The sessionId
      * @return The username or null of the session could not be found
      */
     public String getUserNameFromSession (String sessionId) {
-        Session aSession = aem.getSessions().get(sessionId);
+        Session aSession = aem.getSessionRegistry().get(sessionId);
         if (aSession == null)
             return null;
         return aSession.getUser().getUserName();
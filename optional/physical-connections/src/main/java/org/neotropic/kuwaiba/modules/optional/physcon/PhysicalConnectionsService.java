@@ -16,16 +16,17 @@
 package org.neotropic.kuwaiba.modules.optional.physcon;
 
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
-import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
-import org.neo4j.helpers.collection.Iterators;
 import org.neotropic.kuwaiba.core.apis.persistence.ConnectionManager;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ActivityLogEntry;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
@@ -42,7 +43,6 @@ import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.i18n.TranslationService;
 import org.neotropic.kuwaiba.core.persistence.PersistenceService;
 import org.neotropic.kuwaiba.core.persistence.PersistenceService.EXECUTION_STATE;
-import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
 import org.neotropic.kuwaiba.core.persistence.reference.neo4j.util.ObjectGraphMappingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -97,6 +97,14 @@ public class PhysicalConnectionsService {
      * B side in a physical connection.
      */
     public static String RELATIONSHIP_ENDPOINTB = "endpointB"; //NOI18N
+    /**
+     * Default max number of hops followed when tracing a physical path or tree.
+     */
+    public static final int DEFAULT_PHYSICAL_PATH_MAX_DEPTH = 10000;
+    /**
+     * Default max number of objects visited when tracing a physical path or tree.
+     */
+    public static final int DEFAULT_PHYSICAL_PATH_MAX_NODES = 100000;
     
     public String createPhysicalConnection(String aObjectClass, String aObjectId, 
         String bObjectClass, String bObjectId, String name, String connectionClass,
@@ -205,20 +213,16 @@ public class PhysicalConnectionsService {
                 objectId = firstPhysicalParentPort.getId();
             }
         }
-        //The first part of the query will return many paths, the longest is the one we need. The others are
-        //subsets of the longest
-        String cypherQuery = "MATCH paths = (o)-[r:" + RelTypes.RELATED_TO_SPECIAL + "*]-(c) "+
-                             "WHERE o._uuid = '" + objectId + "' AND all(rel in r where rel.name IN ['mirror','mirrorMultiple'] or rel.name = 'endpointA' or rel.name = 'endpointB') "+
-                             "WITH nodes(paths) as path " +
-                             "RETURN path ORDER BY length(path) DESC LIMIT 1";
+        //The longest path is the one we need, the others are subsets of it
         try (Transaction tx = connectionManager.getConnectionHandler().beginTx()){
             if(logicalPortId != null)
                 path.add(ogmService.createObjectLightFromNode(connectionManager.getConnectionHandler().findNode(inventoryObjectLabel, Constants.PROPERTY_UUID, logicalPortId)));
-            Result result = connectionManager.getConnectionHandler().execute(cypherQuery);
-            Iterator<List<Node>> column = result.columnAs("path");
-            
-            for (List<Node> listOfNodes : Iterators.asIterable(column)) {
-                for(Node node : listOfNodes)
+            Node startNode = connectionManager.getConnectionHandler().findNode(inventoryObjectLabel, Constants.PROPERTY_UUID, objectId);
+            if (startNode != null) {
+                PhysicalPathTraversal traversal = createTraversal();
+                traversal.traverse(startNode, null);
+                logIfTruncated(traversal, objectId);
+                for (Node node : traversal.getLongestPath())
                     path.add(ogmService.createObjectLightFromNode(node));
             }
         }
@@ -253,42 +257,105 @@ public class PhysicalConnectionsService {
                 objectId = firstPhysicalParentPort.getId();
             }
         }
-        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
-            //The first part of the query will return many paths, that we build as a tree
-            StringBuilder queryBuilder = new StringBuilder();
-            queryBuilder.append(String.format("MATCH paths = (o)-[r:%s*]-(c) ", RelTypes.RELATED_TO_SPECIAL));
-            queryBuilder.append(String.format("WHERE o._uuid = '%s' AND all(rel in r where rel.name IN ['mirror','mirrorMultiple'] or rel.name = 'endpointA' or rel.name = 'endpointB') ", objectId));
-            queryBuilder.append("WITH nodes(paths) as path ");
-            queryBuilder.append("RETURN path ORDER BY length(path) DESC");
-
-            BusinessObjectLight logicalPort = null;
-            if (logicalPortId != null) {
-                logicalPort = ogmService.createObjectLightFromNode(connectionManager.getConnectionHandler().findNode(inventoryObjectLabel, Constants.PROPERTY_UUID, logicalPortId));
-                tree.put(logicalPort, new ArrayList());
+        BusinessObjectLight logicalPort = logicalPortId == null ? null : bem.getObjectLight(objectClass, logicalPortId);
+        streamPhysicalTree(objectId, (parent, object) -> {
+            if (parent == null) { //The starting port is added only if it's connected to something
+                if (logicalPort != null)
+                    tree.put(logicalPort, new ArrayList<>());
+                tree.put(object, new ArrayList<>());
+                if (logicalPort != null)
+                    tree.get(logicalPort).add(object);
+            } else {
+                tree.get(parent).add(object);
+                tree.put(object, new ArrayList<>());
             }
-            Result result = connectionManager.getConnectionHandler().execute(queryBuilder.toString());
-            Iterator<List<Node>> column = result.columnAs("path"); //NOI18N
-
-            for (List<Node> listOfNodes : Iterators.asIterable(column)) {
-                for (int i = 0; i < listOfNodes.size(); i++) {
-                    BusinessObjectLight object = ogmService.createObjectLightFromNode(listOfNodes.get(i));
-
-                    if (!tree.containsKey(object))
-                        tree.put(object, new ArrayList());
-
-                    if (logicalPort != null && i == 0)
-                        tree.get(logicalPort).add(object);
-
-                    if (i < listOfNodes.size() - 1) {
-                        BusinessObjectLight nextObject = ogmService.createObjectLightFromNode(listOfNodes.get(i + 1));
-
-                        if (!tree.get(object).contains(nextObject))
-                            tree.get(object).add(nextObject);
-                    }
+        });
+        if (tree.isEmpty() && logicalPort != null)
+            tree.put(logicalPort, new ArrayList<>());
+        return tree;
+    }
+    
+    /**
+     * Walks the physical tree of a port (the links connected to it, the ports at the other side, their mirrors, and so on) 
+     * handing over every pair of connected objects as soon as it is reached, so large trees (e.g. FTTH splitter 
+     * chains) can be processed without building them in memory first. Every object is reported only once and always 
+     * after the object it was reached from. The walk is bounded by the physicalPathMaxDepth and physicalPathMaxNodes 
+     * configuration variables. The consumer is called within a read transaction. If the port is not connected 
+     * to anything, the consumer is never called.
+     * @param objectClass The source port class. If it's a logical port, the walk starts at its first physical parent port.
+     * @param objectId The source port id.
+     * @param consumer Receives the object the new object was reached from (null for the source port) and the new object.
+     * @throws BusinessObjectNotFoundException If the port or its physical parent port cannot be found
+     * @throws MetadataObjectNotFoundException If the port class cannot be found
+     * @throws ApplicationObjectNotFoundException If the physical parent port of a logical port has a malformed list type attribute
+     * @throws InvalidArgumentException If the port has an invalid objectId or className
+     */
+    public void streamPhysicalTree(String objectClass, String objectId, BiConsumer<BusinessObjectLight, BusinessObjectLight> consumer) 
+            throws IllegalStateException, BusinessObjectNotFoundException, MetadataObjectNotFoundException, ApplicationObjectNotFoundException, InvalidArgumentException {
+        if (persistenceService.getState() == EXECUTION_STATE.STOPPED)
+            throw new IllegalStateException(ts.getTranslatedString("module.general.messages.cant-reach-backend"));
+        
+        if (mem.isSubclassOf(Constants.CLASS_GENERICLOGICALPORT, objectClass)) {
+            if (objectClass.equals("Pseudowire"))
+                objectId = bem.getFirstParentOfClass(objectClass, objectId, Constants.CLASS_GENERICCOMMUNICATIONSELEMENT).getId();
+            else
+                objectId = bem.getFirstParentOfClass(objectClass, objectId, Constants.CLASS_GENERICPHYSICALPORT).getId();
+        }
+        streamPhysicalTree(objectId, consumer);
+    }
+    
+    /**
+     * Walks the physical tree of a physical port. See {@link #streamPhysicalTree(java.lang.String, java.lang.String, java.util.function.BiConsumer)}.
+     */
+    private void streamPhysicalTree(String objectId, BiConsumer<BusinessObjectLight, BusinessObjectLight> consumer) {
+        try (Transaction tx = connectionManager.getConnectionHandler().beginTx()) {
+            Node startNode = connectionManager.getConnectionHandler().findNode(inventoryObjectLabel, Constants.PROPERTY_UUID, objectId);
+            if (startNode == null)
+                return;
+            
+            //The objects already reported, to avoid mapping the parents again. The starting port is reported along with its first child
+            HashMap<Long, BusinessObjectLight> reportedObjects = new HashMap<>();
+            PhysicalPathTraversal traversal = createTraversal();
+            traversal.traverse(startNode, (parentNode, node, depth) -> {
+                if (parentNode == null)
+                    return true;
+                BusinessObjectLight parent = reportedObjects.get(parentNode.getId());
+                if (parent == null) {
+                    parent = ogmService.createObjectLightFromNode(parentNode);
+                    reportedObjects.put(parentNode.getId(), parent);
+                    consumer.accept(null, parent);
                 }
-            }
+                BusinessObjectLight object = ogmService.createObjectLightFromNode(node);
+                reportedObjects.put(node.getId(), object);
+                consumer.accept(parent, object);
+                return true;
+            });
+            logIfTruncated(traversal, objectId);
             tx.success();
         }
-        return tree;
+    }
+    
+    /**
+     * Creates a traversal bounded by the physicalPathMaxDepth and physicalPathMaxNodes configuration variables.
+     */
+    private PhysicalPathTraversal createTraversal() {
+        int maxDepth = DEFAULT_PHYSICAL_PATH_MAX_DEPTH;
+        int maxNodes = DEFAULT_PHYSICAL_PATH_MAX_NODES;
+        try {
+            maxDepth = Integer.valueOf(aem.getConfiguration().getProperty("physicalPathMaxDepth", String.valueOf(DEFAULT_PHYSICAL_PATH_MAX_DEPTH))); //NOI18N
+            maxNodes = Integer.valueOf(aem.getConfiguration().getProperty("physicalPathMaxNodes", String.valueOf(DEFAULT_PHYSICAL_PATH_MAX_NODES))); //NOI18N
+        } catch (NumberFormatException ex) {
+            Logger.getLogger(PhysicalConnectionsService.class.getName()).log(Level.WARNING, 
+                    String.format("[KUWAIBA] [%s] Invalid physical path limits, using the defaults: %s", //NOI18N
+                            Calendar.getInstance().getTime(), ex.getLocalizedMessage()));
+        }
+        return new PhysicalPathTraversal(maxDepth, maxNodes);
+    }
+    
+    private void logIfTruncated(PhysicalPathTraversal traversal, String objectId) {
+        if (traversal.isTruncated())
+            Logger.getLogger(PhysicalConnectionsService.class.getName()).log(Level.WARNING, 
+                    String.format("[KUWAIBA] [%s] The physical path of object with id %s was truncated after %s objects", //NOI18N
+                            Calendar.getInstance().getTime(), objectId, traversal.getVisitedNodes()));
     }
 }
@@ -0,0 +1,205 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://apache.org/licenses/LICENSE-2.0.txt
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.modules.optional.physcon;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
+import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
+
+/**
+ * Walks the physical continuity of a port (the links connected to it, the ports at the other side of those links,
+ * their mirrors and so on) directly on the graph. The walk is depth-first and follows only the
+ * <code>mirror</code>, <code>mirrorMultiple</code>, <code>endpointA</code> and <code>endpointB</code> special
+ * relationships. Unlike a variable-length pattern match, which enumerates every possible path and grows exponentially
+ * in topologies with splitters, every object is visited only once, so the cost is linear in the number of objects
+ * reached. The objects are handed to a visitor as soon as they are reached, parents before children, so the caller can
+ * process the tree as it is built. The walk stops when the max depth or the max number of objects are reached.
+ * Instances are not thread-safe and must be used within a transaction.
+ * @author agent {@literal <agent@local>}
+ */
+public class PhysicalPathTraversal {
+    /**
+     * The special relationships followed by the traversal.
+     */
+    public static final Set<String> FOLLOWED_RELATIONSHIPS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "mirror", "mirrorMultiple", //NOI18N
+            PhysicalConnectionsService.RELATIONSHIP_ENDPOINTA, PhysicalConnectionsService.RELATIONSHIP_ENDPOINTB)));
+    /**
+     * Max number of hops from the starting object.
+     */
+    private final int maxDepth;
+    /**
+     * Max number of objects to be visited, including the starting one.
+     */
+    private final int maxNodes;
+    /**
+     * The objects reached so far and the object they were reached from. The key is the node id.
+     */
+    private final HashMap<Long, Node> parents;
+    /**
+     * The deepest object reached so far.
+     */
+    private Node deepestNode;
+    /**
+     * The depth of the deepest object reached so far.
+     */
+    private int deepestDepth;
+    /**
+     * If the traversal was stopped because the depth or the node budget was exhausted.
+     */
+    private boolean truncated;
+
+    /**
+     * Creates a traversal.
+     * @param maxDepth Max number of hops from the starting object.
+     * @param maxNodes Max number of objects to be visited, including the starting one.
+     */
+    public PhysicalPathTraversal(int maxDepth, int maxNodes) {
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        this.parents = new HashMap<>();
+    }
+
+    /**
+     * Walks the physical continuity of an object. The starting object is visited first with no parent.
+     * @param start The node of the starting object.
+     * @param visitor The visitor that will receive the objects as they are reached. Can be null if only the longest path is needed.
+     */
+    public void traverse(Node start, Visitor visitor) {
+        parents.clear();
+        truncated = false;
+        deepestNode = start;
+        deepestDepth = 0;
+
+        parents.put(start.getId(), null);
+        if (visitor != null && !visitor.visit(null, start, 0))
+            return;
+
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(start, 0));
+        while (!stack.isEmpty()) {
+            Frame current = stack.peek();
+            if (current.depth >= maxDepth) {
+                if (current.relationships.hasNext())
+                    truncated = true;
+                stack.pop();
+                continue;
+            }
+
+            Node next = null;
+            while (next == null && current.relationships.hasNext()) {
+                Relationship relationship = current.relationships.next();
+                if (!FOLLOWED_RELATIONSHIPS.contains(relationship.getProperty(Constants.PROPERTY_NAME, null)))
+                    continue;
+                Node otherNode = relationship.getOtherNode(current.node);
+                if (!parents.containsKey(otherNode.getId()))
+                    next = otherNode;
+            }
+
+            if (next == null) {
+                stack.pop();
+                continue;
+            }
+
+            if (parents.size() >= maxNodes) {
+                truncated = true;
+                return;
+            }
+            parents.put(next.getId(), current.node);
+            int depth = current.depth + 1;
+            if (depth > deepestDepth) {
+                deepestDepth = depth;
+                deepestNode = next;
+            }
+            if (visitor != null && !visitor.visit(current.node, next, depth))
+                return;
+            stack.push(new Frame(next, depth));
+        }
+    }
+
+    /**
+     * The path from the starting object to the deepest object reached by the last traversal. In topologies with no loops
+     * (the usual case), it's the longest path from the starting object.
+     * @return The nodes, starting with the starting object. An empty list if the starting object has no physical continuity.
+     */
+    public List<Node> getLongestPath() {
+        List<Node> path = new ArrayList<>(deepestDepth + 1);
+        if (deepestDepth == 0)
+            return path;
+        for (Node current = deepestNode; current != null; current = parents.get(current.getId()))
+            path.add(current);
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Number of objects visited by the last traversal, including the starting one.
+     * @return The number of objects.
+     */
+    public int getVisitedNodes() {
+        return parents.size();
+    }
+
+    /**
+     * If the last traversal was stopped before reaching all the objects because the max depth or the max number
+     * of objects was exhausted.
+     * @return If the result is incomplete.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Receives the objects reached by the traversal.
+     */
+    public interface Visitor {
+        /**
+         * Called once for every object reached.
+         * @param parent The node the object was reached from. Null for the starting object.
+         * @param node The node of the object.
+         * @param depth The number of hops from the starting object.
+         * @return True to continue the traversal, false to stop it.
+         */
+        public boolean visit(Node parent, Node node, int depth);
+    }
+
+    /**
+     * An object in the current branch and the relationships left to explore from it.
+     */
+    private static class Frame {
+        private final Node node;
+        private final int depth;
+        private final Iterator<Relationship> relationships;
+
+        public Frame(Node node, int depth) {
+            this.node = node;
+            this.depth = depth;
+            this.relationships = node.getRelationships(RelTypes.RELATED_TO_SPECIAL, Direction.BOTH).iterator();
+        }
+    }
+}
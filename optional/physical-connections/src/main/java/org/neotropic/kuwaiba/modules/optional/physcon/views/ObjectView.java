@@ -510,7 +510,7 @@ public class ObjectView extends AbstractView<VerticalLayout> {
             BusinessObjectViewNode aNode = new BusinessObjectViewNode(entry.getKey());
             aNode.getProperties().put("x", entry.getValue().getX());
             aNode.getProperties().put("y", entry.getValue().getY());
-            this.viewMap.getNodes().add(aNode);
+            this.viewMap.addNode(aNode);
         }
         
         for (Map.Entry<BusinessObjectLight, MxGraphEdge> entry : mxGraphCanvas.getEdges().entrySet()) {
@@ -519,7 +519,7 @@ public class ObjectView extends AbstractView<VerticalLayout> {
             anEdge.getProperties().put("sourceLabel", entry.getValue().getSourceLabel() == null ? "" : entry.getValue().getSourceLabel());
             anEdge.getProperties().put("targetLabel", entry.getValue().getTargetLabel() == null ? "" : entry.getValue().getTargetLabel());
             
-            this.viewMap.getEdges().add(anEdge);
+            this.viewMap.addEdge(anEdge);
             this.viewMap.attachSourceNode(anEdge, new BusinessObjectViewNode(mxGraphCanvas.findSourceEdgeObject(entry.getKey())));
             this.viewMap.attachTargetNode(anEdge, new BusinessObjectViewNode(mxGraphCanvas.findTargetEdgeObject(entry.getKey())));
         }
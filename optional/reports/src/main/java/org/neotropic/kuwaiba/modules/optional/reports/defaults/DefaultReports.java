@@ -15,9 +15,14 @@
  */
 package org.neotropic.kuwaiba.modules.optional.reports.defaults;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.neotropic.kuwaiba.core.apis.persistence.application.ApplicationEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.business.BusinessObject;
@@ -32,6 +37,8 @@ import org.neotropic.kuwaiba.core.apis.persistence.metadata.AttributeMetadata;
 import org.neotropic.kuwaiba.core.apis.persistence.metadata.MetadataEntityManager;
 import org.neotropic.kuwaiba.core.apis.persistence.util.Constants;
 import org.neotropic.kuwaiba.core.persistence.reference.neo4j.RelTypes;
+import org.neotropic.kuwaiba.modules.optional.reports.writers.ReportFormat;
+import org.neotropic.kuwaiba.modules.optional.reports.writers.StreamedReport;
 
 
 /**
@@ -545,48 +552,62 @@ public class DefaultReports {
 //        return new RawReport("Tributary Link Details", "Neotropic SAS","1.2", tributaryLinkUsageReportText);
 //    }
 //    
-    public RawReport buildNetworkEquipmentInLocationReport(String locationClass, String locationId) 
+    public StreamedReport buildNetworkEquipmentInLocationReport(String locationClass, String locationId) 
+        throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, ApplicationObjectNotFoundException, NotAuthorizedException, InvalidArgumentException {
+        return buildNetworkEquipmentInLocationReport(locationClass, locationId, ReportFormat.HTML);
+    }
+    
+    /**
+     * Builds a report with the network equipment in a location. The equipment is retrieved along with its 
+     * attributes and parents in a single query, and written as it's read.
+     * @param locationClass The class of the location.
+     * @param locationId The id of the location.
+     * @param format The output format.
+     * @return The report, rendered only when written.
+     * @throws BusinessObjectNotFoundException If the location could not be found.
+     * @throws MetadataObjectNotFoundException If the class of the location could not be found.
+     * @throws ApplicationObjectNotFoundException If the parents of the location could not be retrieved.
+     * @throws NotAuthorizedException If the user is not allowed to run the report.
+     * @throws InvalidArgumentException If the location id is null.
+     */
+    public StreamedReport buildNetworkEquipmentInLocationReport(String locationClass, String locationId, ReportFormat format) 
         throws BusinessObjectNotFoundException, MetadataObjectNotFoundException, ApplicationObjectNotFoundException, NotAuthorizedException, InvalidArgumentException {
-                
-        String title, networkEquipmentInLocationReportText;
-        
         BusinessObjectLight location = bem.getObjectLight(locationClass, locationId);
-        HashMap<String, String> filters = new HashMap<>();
-        List<BusinessObjectLight> networkEquipment = bem.getChildrenOfClassLightRecursive(locationId, locationClass, Constants.CLASS_GENERICCOMMUNICATIONSELEMENT, 
-                filters, -1, -1);
-            
-        title = "Network Equipment Report for " + location.getName();
-        networkEquipmentInLocationReportText = getHeader(title);
-        networkEquipmentInLocationReportText += 
-                            "  <body><table><tr><td><h1>" + title + "</h1></td><td align=\"center\"><img src=\"" + corporateLogo + "\"/></td></tr></table>\n";
-
-        networkEquipmentInLocationReportText += "<table><tr><td class=\"generalInfoLabel\">Name</td><td>" + location.getName() + "</td></tr>\n"
-                + "<tr><td class=\"generalInfoLabel\">Type</td><td>" + location.getClassName() + "</td></tr>\n"
-                + "<tr><td class=\"generalInfoLabel\">Location</td><td>" + Util.formatLocation(bem.getParents(location.getClassName(), location.getId())) + "</td></tr>\n</table>\n";
-
-        if (networkEquipment.isEmpty())
-            networkEquipmentInLocationReportText += "<div class=\"warning\">This location does not have any network equipment</div>";
-        else {
-            networkEquipmentInLocationReportText += "<table><tr><th>Name</th><th>Type</th><th>Serial Number</th><th>Location</th><th>Vendor</th><th>Operational State</th></tr>";
-            int i = 0;
-            for (BusinessObjectLight device : networkEquipment) {
-                HashMap<String, String> deviceAttributes = bem.getAttributeValuesAsString(device.getClassName(), device.getId());
-                networkEquipmentInLocationReportText += "<tr class=\"" + (i % 2 == 0 ? "even" :"odd") + "\">"
-                                                            + "<td>" + device.getName() + "</td>"
-                                                            + "<td>" + device.getClassName() + "</td>"
-                                                            + "<td>" + (deviceAttributes.get("serialNumber") == null ? asError("Not Set") : deviceAttributes.get("serialNumber")) + "</td>"
-                                                            + "<td>" + Util.formatLocation(bem.getParents(device.getClassName(), device.getId())) + "</td>"
-                                                            + "<td>" + (deviceAttributes.get("vendor") == null ? asError("Not Set") : deviceAttributes.get("vendor") ) + "</td>"
-                                                            + "<td>" + (deviceAttributes.get("state") == null ? asError("Not Set") : deviceAttributes.get("state") ) + "</td></tr>";
-                i ++;
-            }
-            networkEquipmentInLocationReportText += "</table>";
-        }
-        
+        List<BusinessObjectLight> locationParents = bem.getParents(location.getClassName(), location.getId());
         
-        networkEquipmentInLocationReportText += getFooter();
-        
-        return new RawReport("Network Equipment", "Neotropic SAS","1.1", networkEquipmentInLocationReportText);
+        StreamedReport report = new StreamedReport("Network Equipment Report for " + location.getName(), "Neotropic SAS", "1.2", format, writer -> {
+            writer.writeProperty("Name", location.getName());
+            writer.writeProperty("Type", location.getClassName());
+            writer.writeProperty("Location", Util.formatLocation(locationParents));
+            
+            List<String> attributeNames = Arrays.asList("serialNumber", "vendor", "state"); //NOI18N
+            long[] count = { 0 };
+            bem.streamChildrenOfClassRecursive(locationId, locationClass, Constants.CLASS_GENERICCOMMUNICATIONSELEMENT, attributeNames, device -> {
+                // The parents of the device end at the location, so those of the location are appended to format the full path
+                List<BusinessObjectLight> deviceParents = new ArrayList<>(device.getParents());
+                deviceParents.addAll(locationParents);
+                try {
+                    if (count[0]++ == 0)
+                        writer.startTable("Name", "Type", "Serial Number", "Location", "Vendor", "Operational State");
+                    writer.writeRow(device.getObject().getName(), 
+                            device.getObject().getClassName(), 
+                            device.getAttributes().get("serialNumber"), //NOI18N
+                            Util.formatLocation(deviceParents), 
+                            device.getAttributes().get("vendor"), //NOI18N
+                            device.getAttributes().get("state")); //NOI18N
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            
+            if (count[0] == 0)
+                writer.writeWarning("This location does not have any network equipment");
+            else
+                writer.endTable();
+        });
+        report.setStyleSheet(getStyleSheet());
+        report.setLogo(corporateLogo);
+        return report;
     }
 //    
 //    public RawReport buildServiceResourcesReport(String className, String serviceId) 
@@ -908,78 +929,62 @@ public class DefaultReports {
 //        return new RawReport("MPLS Service Detail", "Neotropic SAS", "1.1", MPLSDetailReportText);
 //    }
 //    
-    public RawReport buildLogicalConfigurationInterfacesReport(String logicalConfigurationClassName) 
+    public StreamedReport buildLogicalConfigurationInterfacesReport(String logicalConfigurationClassName) 
             throws MetadataObjectNotFoundException, BusinessObjectNotFoundException,
             InvalidArgumentException, ApplicationObjectNotFoundException, 
             NotAuthorizedException
     {
-        String title, DetailReportText = "", instance = "", vlan = "  "; 
-        
-        title = "Detail Report for all " + logicalConfigurationClassName + " instances";
-        DetailReportText = getHeader(title);
-        DetailReportText += "<body><table><tr><td><h1>" + title + "</h1></td><td align=\"center\"><img src=\"" + corporateLogo + "\"/></td></tr></table>\n";
-        
-        List<BusinessObjectLight> listOflogicalConfigurations = bem.getObjectsOfClassLight(logicalConfigurationClassName, null, -1, -1);
-        
-        for (BusinessObjectLight listOflogicalConfiguration : listOflogicalConfigurations) {
-            BusinessObject logicalConfigurationObject = bem.getObject(listOflogicalConfiguration.getClassName(), listOflogicalConfiguration.getId());
-            
-            HashMap<String, Object> attributes = logicalConfigurationObject.getAttributes();
-            List<BusinessObjectLight> ports = bem.getSpecialAttribute(listOflogicalConfiguration.getClassName(), listOflogicalConfiguration.getId(), RELATIONSHIP_IPAMPORTRELATEDTOINTERFACE);
-            
-            if (ports == null) 
-                DetailReportText += "<div class=\"error\">No information for" + listOflogicalConfiguration.getName() + " could be found</div>";
-            
+        return buildLogicalConfigurationInterfacesReport(logicalConfigurationClassName, ReportFormat.HTML);
+    }
+    
+    /**
+     * Builds a report with the ports and IP addresses related to all the instances of a logical configuration class. 
+     * The configurations are retrieved with their attributes in a single query, and their ports, VLANs, IP addresses 
+     * and port locations with one query per relationship, instead of one query per configuration or port.
+     * @param logicalConfigurationClassName The logical configuration class.
+     * @param format The output format.
+     * @return The report, rendered only when written.
+     */
+    public StreamedReport buildLogicalConfigurationInterfacesReport(String logicalConfigurationClassName, ReportFormat format) {
+        StreamedReport report = new StreamedReport("Detail Report for all " + logicalConfigurationClassName + " instances", 
+                "Neotropic SAS", "1.2", format, writer -> {
+            List<BusinessObject> logicalConfigurations = bem.getObjectsOfClass(logicalConfigurationClassName, 0);
+            List<String> logicalConfigurationIds = logicalConfigurations.stream().map(BusinessObject::getId).collect(Collectors.toList());
+            HashMap<String, List<BusinessObjectLight>> relatedPorts = bem.getSpecialAttribute(logicalConfigurationIds, RELATIONSHIP_IPAMPORTRELATEDTOINTERFACE);
+            HashMap<String, List<BusinessObjectLight>> relatedVlans = bem.getSpecialAttribute(logicalConfigurationIds, RELATIONSHIP_IPAMBELONGSTOVLAN);
+            List<String> portIds = relatedPorts.values().stream().flatMap(List::stream)
+                    .map(BusinessObjectLight::getId).distinct().collect(Collectors.toList());
+            HashMap<String, List<BusinessObjectLight>> portIpAddresses = bem.getSpecialAttribute(portIds, RELATIONSHIP_IPAMHASADDRESS);
+            HashMap<String, List<BusinessObjectLight>> portParents = bem.getParents(portIds);
             
-            else {
-                DetailReportText += "<table><tr><td class=\"generalInfoLabel\">Name</td><td class=\"generalInfoValue\"><b>" + logicalConfigurationObject.getName() + "[" + logicalConfigurationObject.getClassName() + "]</b></td>";
-                List<BusinessObjectLight> vlans = bem.getSpecialAttribute(listOflogicalConfiguration.getClassName(), listOflogicalConfiguration.getId(), RELATIONSHIP_IPAMBELONGSTOVLAN);
-                if (!vlans.isEmpty()){
-                    for (BusinessObjectLight vlanInstance : vlans) 
-                        vlan += vlanInstance.toString() + ", ";  
-                    DetailReportText +=  "<tr><td class=\"generalInfoLabel\">VLAN</td><td class=\"generalInfoValue\"><b>" + vlan.substring(0, vlan.length()-2) + "</b> </td></tr>";
-                }
-                DetailReportText +=  "<tr><td class=\"generalInfoLabel\">Creation date</td><td class=\"generalInfoValue\"><b>" + new Date((Long) attributes.get("creationDate")) + "</b> </td></tr></table>";
-            }
-
-            if (ports.isEmpty())
-                    instance = "<div class=\"error\">There is nothing related to " + listOflogicalConfiguration.toString() +"</div>";
-            else {
-                    instance = "<table><tr><th>Port / Device</th><th>IP Address</th><th>Device Location</th></tr>";
-
-                int i = 0;
-                for (BusinessObjectLight relatedPort : ports) {
-                    List<BusinessObjectLight> ipAddresses = bem.getSpecialAttribute(relatedPort.getClassName(), relatedPort.getId(), RELATIONSHIP_IPAMHASADDRESS);
-                    BusinessObject port = bem.getObject(relatedPort.getClassName(), relatedPort.getId());
-                    String location = "";
-                    if(port != null) {
-                        List<BusinessObjectLight> parents = bem.getParents(port.getClassName(), port.getId());
-                        location =  Util.formatLocation(parents);
-                    }
-
-                    String ips = "  ";
-                    for (BusinessObjectLight ipAddress : ipAddresses) 
-                        ips += ipAddress.getName() + ", ";
-                    
-                    
-                    instance += "<tr class=\"" + (i % 2 == 0 ? "even" : "odd")
-                            + "\"><td>" + relatedPort.getName() + " [" + relatedPort.getClassName()+"] </td>"
-                            + "<td>" + ips.substring(0, ips.length()-2) +"</td>"
-                            + "<td>" + location +"</td>";
+            for (int i = 0; i < logicalConfigurations.size(); i++) {
+                BusinessObject logicalConfiguration = logicalConfigurations.get(i);
+                if (i > 0)
+                    writer.writeSeparator();
+                
+                writer.writeProperty("Name", logicalConfiguration.getName() + "[" + logicalConfiguration.getClassName() + "]");
+                List<BusinessObjectLight> vlans = relatedVlans.get(logicalConfiguration.getId());
+                if (!vlans.isEmpty())
+                    writer.writeProperty("VLAN", vlans.stream().map(BusinessObjectLight::toString).collect(Collectors.joining(", "))); //NOI18N
+                Object creationDate = logicalConfiguration.getAttributes().get(Constants.PROPERTY_CREATION_DATE);
+                writer.writeProperty("Creation date", creationDate == null ? null : new Date((Long) creationDate).toString());
 
-                    i ++;
+                List<BusinessObjectLight> ports = relatedPorts.get(logicalConfiguration.getId());
+                if (ports.isEmpty())
+                    writer.writeError("There is nothing related to " + logicalConfiguration.toString());
+                else {
+                    writer.startTable("Port / Device", "IP Address", "Device Location");
+                    for (BusinessObjectLight relatedPort : ports)
+                        writer.writeRow(relatedPort.getName() + " [" + relatedPort.getClassName() + "]", 
+                                portIpAddresses.get(relatedPort.getId()).stream().map(BusinessObjectLight::getName).collect(Collectors.joining(", ")), //NOI18N
+                                Util.formatLocation(portParents.get(relatedPort.getId())));
+                    writer.endTable();
                 }
-                instance += "</table>";
             }
-            
-            DetailReportText += instance;
-            DetailReportText += "<hr>";
-        }
-        DetailReportText = DetailReportText.substring(0, DetailReportText.length()-4);
-        
-        DetailReportText += getFooter();
-        
-        return new RawReport("Logical Configuration", "Neotropic SAS", "1.1", DetailReportText);
+        });
+        report.setStyleSheet(getStyleSheet());
+        report.setLogo(corporateLogo);
+        return report;
     }
 //    
 //    public RawReport buildServicesReport(String serviceClassName, String serviceId) 
@@ -16,6 +16,12 @@
 package org.neotropic.kuwaiba.modules.optional.reports.html;
 
 import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.InventoryReport;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -61,6 +67,20 @@ public class HTMLReport extends InventoryReport {
 
     public String asHTML() {
         StringBuilder builder = new StringBuilder();
+        try {
+            writeHTML(builder);
+        } catch (IOException ex) { // A StringBuilder doesn't throw I/O exceptions
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Writes the document to the given output, component by component.
+     * @param builder The output.
+     * @throws IOException If the output could not be written.
+     */
+    private void writeHTML(Appendable builder) throws IOException {
         builder.append("<!DOCTYPE html><html lang=\"en\"><head><meta charset=\"utf-8\">"); //NOI18N
         
         if (embeddedStyleSheet != null) {
@@ -110,13 +130,24 @@ public class HTMLReport extends InventoryReport {
             builder.append(component.asHTML());
         
         builder.append("</body></html>"); //NOI18N
-        return builder.toString();
     }
     
     @Override
     public byte[] asByteArray() {
         return asHTML().getBytes(StandardCharsets.UTF_8);
     }
+    
+    /**
+     * Writes the document to the stream without building it in memory first.
+     * @param outputStream The output. It's not closed by this method.
+     * @throws IOException If the stream could not be written.
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 65536);
+        writeHTML(writer);
+        writer.flush();
+    }
 
     public String getEmbeddedStyleSheet() {
         return embeddedStyleSheet;
@@ -0,0 +1,136 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the EPL License, Version 1.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.modules.optional.reports.writers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a report as comma-separated values (RFC 4180). The general information is written as label-value 
+ * records, and the sections are separated by an empty line.
+ * @author agent {@literal <agent@local>}
+ */
+public class CSVReportWriter extends ReportWriter {
+    /**
+     * Size of the output buffer.
+     */
+    private static final int BUFFER_SIZE = 65536;
+    /**
+     * The record separator mandated by RFC 4180.
+     */
+    private static final String LINE_SEPARATOR = "\r\n"; //NOI18N
+    /**
+     * The output.
+     */
+    private final Writer writer;
+    /**
+     * If something has been written since the last section break.
+     */
+    private boolean sectionStarted;
+
+    public CSVReportWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void startReport(String title) throws IOException {
+        writeRecord(title);
+        endSection();
+    }
+
+    @Override
+    public void writeProperty(String label, String value) throws IOException {
+        writeRecord(label, value == null ? NOT_SET : value);
+    }
+
+    @Override
+    public void startTable(String... headers) throws IOException {
+        endSection();
+        writeRecord(headers);
+    }
+
+    @Override
+    public void writeRow(String... cells) throws IOException {
+        writeRecord(cells);
+    }
+
+    @Override
+    public void endTable() throws IOException {
+        endSection();
+    }
+
+    @Override
+    public void writeWarning(String message) throws IOException {
+        endSection();
+        writeRecord(message);
+    }
+
+    @Override
+    public void writeError(String message) throws IOException {
+        endSection();
+        writeRecord(message);
+    }
+
+    @Override
+    public void writeSeparator() throws IOException {
+        endSection();
+    }
+
+    @Override
+    public void endReport() throws IOException { }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+    
+    private void endSection() throws IOException {
+        if (sectionStarted) {
+            writer.write(LINE_SEPARATOR);
+            sectionStarted = false;
+        }
+    }
+    
+    private void writeRecord(String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0)
+                writer.write(',');
+            writeField(fields[i] == null ? NOT_SET : fields[i]);
+        }
+        writer.write(LINE_SEPARATOR);
+        sectionStarted = true;
+    }
+    
+    private void writeField(String field) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        
+        if (!quote)
+            writer.write(field);
+        else {
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\"")); //NOI18N
+            writer.write('"');
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the EPL License, Version 1.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.modules.optional.reports.writers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a report as an HTML document. The CSS classes used (<code>generalInfoLabel</code>, <code>even</code>, 
+ * <code>odd</code>, <code>warning</code>, <code>error</code> and <code>footer</code>) are the ones of the default reports.
+ * @author agent {@literal <agent@local>}
+ */
+public class HTMLReportWriter extends ReportWriter {
+    /**
+     * Size of the output buffer.
+     */
+    private static final int BUFFER_SIZE = 65536;
+    /**
+     * The output.
+     */
+    private final Writer writer;
+    /**
+     * The embedded style sheet, including the style tags. Can be null.
+     */
+    private final String styleSheet;
+    /**
+     * The logo displayed next to the title. Can be null.
+     */
+    private final String logo;
+    /**
+     * If the general information table is open.
+     */
+    private boolean inProperties;
+    /**
+     * Number of rows written in the current table, used to alternate their style.
+     */
+    private int rowCount;
+
+    public HTMLReportWriter(OutputStream outputStream, String styleSheet, String logo) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.styleSheet = styleSheet;
+        this.logo = logo;
+    }
+
+    @Override
+    public void startReport(String title) throws IOException {
+        writer.write("<!DOCTYPE html>\n<html lang=\"en\">\n  <head>\n    <meta charset=\"utf-8\">\n    <title>"); //NOI18N
+        writer.write(escape(title));
+        writer.write("</title>\n"); //NOI18N
+        if (styleSheet != null)
+            writer.write(styleSheet);
+        writer.write("  </head>\n  <body><table><tr><td><h1>"); //NOI18N
+        writer.write(escape(title));
+        writer.write("</h1></td>"); //NOI18N
+        if (logo != null) {
+            writer.write("<td align=\"center\"><img src=\""); //NOI18N
+            writer.write(escape(logo));
+            writer.write("\"/></td>"); //NOI18N
+        }
+        writer.write("</tr></table>\n"); //NOI18N
+    }
+
+    @Override
+    public void writeProperty(String label, String value) throws IOException {
+        if (!inProperties) {
+            writer.write("<table>"); //NOI18N
+            inProperties = true;
+        }
+        writer.write("<tr><td class=\"generalInfoLabel\">"); //NOI18N
+        writer.write(escape(label));
+        writer.write("</td><td class=\"generalInfoValue\">"); //NOI18N
+        writeCell(value);
+        writer.write("</td></tr>\n"); //NOI18N
+    }
+
+    @Override
+    public void startTable(String... headers) throws IOException {
+        endProperties();
+        rowCount = 0;
+        writer.write("<table><tr>"); //NOI18N
+        for (String header : headers) {
+            writer.write("<th>"); //NOI18N
+            writer.write(escape(header));
+            writer.write("</th>"); //NOI18N
+        }
+        writer.write("</tr>\n"); //NOI18N
+    }
+
+    @Override
+    public void writeRow(String... cells) throws IOException {
+        writer.write(rowCount++ % 2 == 0 ? "<tr class=\"even\">" : "<tr class=\"odd\">"); //NOI18N
+        for (String cell : cells) {
+            writer.write("<td>"); //NOI18N
+            writeCell(cell);
+            writer.write("</td>"); //NOI18N
+        }
+        writer.write("</tr>\n"); //NOI18N
+    }
+
+    @Override
+    public void endTable() throws IOException {
+        writer.write("</table>\n"); //NOI18N
+    }
+
+    @Override
+    public void writeWarning(String message) throws IOException {
+        writeMessage("warning", message); //NOI18N
+    }
+
+    @Override
+    public void writeError(String message) throws IOException {
+        writeMessage("error", message); //NOI18N
+    }
+
+    @Override
+    public void writeSeparator() throws IOException {
+        endProperties();
+        writer.write("<hr>\n"); //NOI18N
+    }
+
+    @Override
+    public void endReport() throws IOException {
+        endProperties();
+        writer.write("  <div class=\"footer\">This report is powered by <a href=\"http://www.kuwaiba.org\">Kuwaiba Open Network Inventory</a></div></body>\n</html>"); //NOI18N
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+    
+    private void writeMessage(String cssClass, String message) throws IOException {
+        endProperties();
+        writer.write("<div class=\""); //NOI18N
+        writer.write(cssClass);
+        writer.write("\">"); //NOI18N
+        writer.write(escape(message));
+        writer.write("</div>\n"); //NOI18N
+    }
+    
+    private void writeCell(String value) throws IOException {
+        if (value == null) {
+            writer.write("<span class=\"error\">"); //NOI18N
+            writer.write(NOT_SET);
+            writer.write("</span>"); //NOI18N
+        } else
+            writer.write(escape(value));
+    }
+    
+    private void endProperties() throws IOException {
+        if (inProperties) {
+            writer.write("</table>\n"); //NOI18N
+            inProperties = false;
+        }
+    }
+    
+    /**
+     * Escapes the characters with special meaning in HTML.
+     * @param text The text to be escaped.
+     * @return The escaped text.
+     */
+    public static String escape(String text) {
+        if (text == null)
+            return ""; //NOI18N
+        StringBuilder builder = null;
+        for (int i = 0; i < text.length(); i++) {
+            String replacement;
+            switch (text.charAt(i)) {
+                case '<':
+                    replacement = "&lt;"; //NOI18N
+                    break;
+                case '>':
+                    replacement = "&gt;"; //NOI18N
+                    break;
+                case '&':
+                    replacement = "&amp;"; //NOI18N
+                    break;
+                case '"':
+                    replacement = "&quot;"; //NOI18N
+                    break;
+                default:
+                    replacement = null;
+            }
+            if (replacement != null) {
+                if (builder == null)
+                    builder = new StringBuilder(text.length() + 16).append(text, 0, i);
+                builder.append(replacement);
+            } else if (builder != null)
+                builder.append(text.charAt(i));
+        }
+        return builder == null ? text : builder.toString();
+    }
+}
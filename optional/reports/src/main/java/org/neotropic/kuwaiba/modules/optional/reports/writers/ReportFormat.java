@@ -0,0 +1,50 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the EPL License, Version 1.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.modules.optional.reports.writers;
+
+import org.neotropic.kuwaiba.core.apis.persistence.util.MimeTypes;
+
+/**
+ * The formats a {@link StreamedReport} can be rendered to.
+ * @author agent {@literal <agent@local>}
+ */
+public enum ReportFormat {
+    HTML(MimeTypes.MIME_TYPE_HTML, "html"), //NOI18N
+    CSV(MimeTypes.MIME_TYPE_CSV, "csv"), //NOI18N
+    XLSX(MimeTypes.MIME_TYPE_XLSX, "xlsx"); //NOI18N
+    
+    /**
+     * The media type of the rendered report.
+     */
+    private final String contentType;
+    /**
+     * The usual extension of the files in this format.
+     */
+    private final String extension;
+
+    private ReportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
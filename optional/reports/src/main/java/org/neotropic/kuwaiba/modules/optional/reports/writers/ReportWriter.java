@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the EPL License, Version 1.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.modules.optional.reports.writers;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the sections of a report (general information, tables and messages) to a stream as they are produced, 
+ * so large reports don't have to be built in memory before being sent. The subclasses define the actual format. 
+ * The typical sequence is <code>startReport</code>, any number of properties, tables, messages and separators, 
+ * <code>endReport</code> and <code>close</code>.
+ * @author agent {@literal <agent@local>}
+ */
+public abstract class ReportWriter implements Closeable {
+    /**
+     * The text written in place of a cell without value.
+     */
+    public static final String NOT_SET = "Not Set";
+    
+    /**
+     * Writes the beginning of the report.
+     * @param title The title of the report.
+     * @throws IOException If the output could not be written.
+     */
+    public abstract void startReport(String title) throws IOException;
+    
+    /**
+     * Writes a label-value pair of the general information section. Consecutive properties are grouped together.
+     * @param label The label.
+     * @param value The value. If null, {@link #NOT_SET} will be written.
+     * @throws IOException If the output could not be written.
+     */
+    public abstract void writeProperty(String label, String value) throws IOException;
+    
+    /**
+     * Starts a table.
+     * @param headers The column headers.
+     * @throws IOException If the output could not be written.
+     */
+    public abstract void startTable(String... headers) throws IOException;
+    
+    /**
+     * Writes a row of the current table.
+     * @param cells The values of the cells. The null ones will be written as {@link #NOT_SET}.
+     * @throws IOException If the output could not be written.
+     */
+    public abstract void writeRow(String... cells) throws IOException;
+    
+    /**
+     * Ends the current table.
+     * @throws IOException If the output could not be written.
+     */
+    public abstract void endTable() throws IOException;
+    
+    /**
+     * Writes a warning message.
+     * @param message The message.
+     * @throws IOException If the output could not be written.
+     */
+    public abstract void writeWarning(String message) throws IOException;
+    
+    /**
+     * Writes an error message.
+     * @param message The message.
+     * @throws IOException If the output could not be written.
+     */
+    public abstract void writeError(String message) throws IOException;
+    
+    /**
+     * Writes a separator between two sections of the report.
+     * @throws IOException If the output could not be written.
+     */
+    public abstract void writeSeparator() throws IOException;
+    
+    /**
+     * Writes the end of the report.
+     * @throws IOException If the output could not be written.
+     */
+    public abstract void endReport() throws IOException;
+    
+    /**
+     * Flushes the pending output. The underlying stream is not closed, as it belongs to the caller.
+     * @throws IOException If the output could not be written.
+     */
+    @Override
+    public abstract void close() throws IOException;
+}
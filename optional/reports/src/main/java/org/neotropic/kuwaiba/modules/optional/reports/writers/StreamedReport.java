@@ -0,0 +1,141 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the EPL License, Version 1.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.modules.optional.reports.writers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import org.neotropic.kuwaiba.core.apis.persistence.application.reporting.InventoryReport;
+import org.neotropic.kuwaiba.core.apis.persistence.exceptions.InventoryException;
+
+/**
+ * A report whose contents are produced only when it's rendered, and written through a {@link ReportWriter} 
+ * as they are retrieved, instead of being concatenated in memory first.
+ * @author agent {@literal <agent@local>}
+ */
+public class StreamedReport extends InventoryReport {
+    /**
+     * The output format.
+     */
+    private final ReportFormat format;
+    /**
+     * Produces the contents of the report.
+     */
+    private final ReportContent content;
+    /**
+     * The style sheet embedded in the HTML output, including the style tags. Can be null.
+     */
+    private String styleSheet;
+    /**
+     * The logo displayed in the HTML output. Can be null.
+     */
+    private String logo;
+
+    public StreamedReport(String title, String author, String version, ReportFormat format, ReportContent content) {
+        super(title, author, version);
+        this.format = format;
+        this.content = content;
+    }
+
+    public ReportFormat getFormat() {
+        return format;
+    }
+
+    public String getStyleSheet() {
+        return styleSheet;
+    }
+
+    public void setStyleSheet(String styleSheet) {
+        this.styleSheet = styleSheet;
+    }
+
+    public String getLogo() {
+        return logo;
+    }
+
+    public void setLogo(String logo) {
+        this.logo = logo;
+    }
+
+    /**
+     * Creates a writer for the format of this report.
+     * @param outputStream The output.
+     * @return The writer.
+     */
+    public ReportWriter createWriter(OutputStream outputStream) {
+        switch (format) {
+            case CSV:
+                return new CSVReportWriter(outputStream);
+            case XLSX:
+                return new XLSXReportWriter(outputStream);
+            default:
+                return new HTMLReportWriter(outputStream, styleSheet, logo);
+        }
+    }
+
+    /**
+     * Produces the contents of the report and writes them to the stream. Since part of the report might have been 
+     * sent already, errors found while retrieving the contents are written at the end of the report.
+     * @param outputStream The output. It's not closed by this method.
+     * @throws IOException If the stream could not be written.
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        try (ReportWriter writer = createWriter(outputStream)) {
+            writer.startReport(title);
+            try {
+                content.write(writer);
+            } catch (InventoryException ex) {
+                writer.writeError(ex.getLocalizedMessage());
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            writer.endReport();
+        }
+    }
+
+    @Override
+    public byte[] asByteArray() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            writeTo(outputStream);
+        } catch (IOException ex) { // Should not happen, as everything is written in memory
+            throw new UncheckedIOException(ex);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public String getContentType() {
+        return format.getContentType();
+    }
+    
+    /**
+     * Produces the contents of a report.
+     */
+    @FunctionalInterface
+    public interface ReportContent {
+        /**
+         * Writes the sections of the report. The beginning and the end of the report are written by the caller.
+         * @param writer The writer. The I/O errors found in callbacks that can't throw checked exceptions should 
+         * be wrapped in an {@link UncheckedIOException}.
+         * @throws IOException If the output could not be written.
+         * @throws InventoryException If the contents could not be retrieved.
+         */
+        void write(ReportWriter writer) throws IOException, InventoryException;
+    }
+}
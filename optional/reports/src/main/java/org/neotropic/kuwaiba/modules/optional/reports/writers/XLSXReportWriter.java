@@ -0,0 +1,240 @@
+/*
+ *  Copyright 2010-2022 Neotropic SAS <contact@neotropic.co>.
+ *
+ *  Licensed under the EPL License, Version 1.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.neotropic.kuwaiba.modules.optional.reports.writers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a report as an Office Open XML workbook with a single worksheet. The rows are streamed into the 
+ * worksheet part as they are written, using inline strings, so no shared string table has to be kept in memory. 
+ * The rest of the package parts are written when the writer is closed.
+ * @author agent {@literal <agent@local>}
+ */
+public class XLSXReportWriter extends ReportWriter {
+    /**
+     * Size of the output buffer.
+     */
+    private static final int BUFFER_SIZE = 65536;
+    /**
+     * Index of the default cell style in the style sheet.
+     */
+    private static final int STYLE_DEFAULT = 0;
+    /**
+     * Index of the bold cell style (titles, headers and labels) in the style sheet.
+     */
+    private static final int STYLE_BOLD = 1;
+    /**
+     * Index of the red cell style (errors and missing values) in the style sheet.
+     */
+    private static final int STYLE_ERROR = 2;
+    /**
+     * Index of the orange cell style (warnings) in the style sheet.
+     */
+    private static final int STYLE_WARNING = 3;
+    /**
+     * The package.
+     */
+    private final ZipOutputStream zip;
+    /**
+     * The output of the current part.
+     */
+    private final Writer writer;
+    /**
+     * If the worksheet part has been started.
+     */
+    private boolean sheetStarted;
+    /**
+     * If the package has been completed.
+     */
+    private boolean closed;
+
+    public XLSXReportWriter(OutputStream outputStream) {
+        this.zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void startReport(String title) throws IOException {
+        startSheet();
+        writeStyledRow(STYLE_BOLD, title);
+        writeEmptyRow();
+    }
+
+    @Override
+    public void writeProperty(String label, String value) throws IOException {
+        startSheet();
+        writer.write("<row>"); //NOI18N
+        writeCell(STYLE_BOLD, label);
+        writeCell(value == null ? STYLE_ERROR : STYLE_DEFAULT, value == null ? NOT_SET : value);
+        writer.write("</row>"); //NOI18N
+    }
+
+    @Override
+    public void startTable(String... headers) throws IOException {
+        startSheet();
+        writeEmptyRow();
+        writeStyledRow(STYLE_BOLD, headers);
+    }
+
+    @Override
+    public void writeRow(String... cells) throws IOException {
+        startSheet();
+        writer.write("<row>"); //NOI18N
+        for (String cell : cells)
+            writeCell(cell == null ? STYLE_ERROR : STYLE_DEFAULT, cell == null ? NOT_SET : cell);
+        writer.write("</row>"); //NOI18N
+    }
+
+    @Override
+    public void endTable() throws IOException { }
+
+    @Override
+    public void writeWarning(String message) throws IOException {
+        startSheet();
+        writeStyledRow(STYLE_WARNING, message);
+    }
+
+    @Override
+    public void writeError(String message) throws IOException {
+        startSheet();
+        writeStyledRow(STYLE_ERROR, message);
+    }
+
+    @Override
+    public void writeSeparator() throws IOException {
+        startSheet();
+        writeEmptyRow();
+    }
+
+    @Override
+    public void endReport() throws IOException { }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        
+        startSheet();
+        writer.write("</sheetData></worksheet>"); //NOI18N
+        closeEntry();
+        
+        writeEntry("[Content_Types].xml", //NOI18N
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + //NOI18N
+                "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" + //NOI18N
+                "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" + //NOI18N
+                "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" + //NOI18N
+                "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" + //NOI18N
+                "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" + //NOI18N
+                "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>" + //NOI18N
+                "</Types>"); //NOI18N
+        writeEntry("_rels/.rels", //NOI18N
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + //NOI18N
+                "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" + //NOI18N
+                "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>" + //NOI18N
+                "</Relationships>"); //NOI18N
+        writeEntry("xl/workbook.xml", //NOI18N
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + //NOI18N
+                "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">" + //NOI18N
+                "<sheets><sheet name=\"Report\" sheetId=\"1\" r:id=\"rId1\"/></sheets>" + //NOI18N
+                "</workbook>"); //NOI18N
+        writeEntry("xl/_rels/workbook.xml.rels", //NOI18N
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + //NOI18N
+                "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" + //NOI18N
+                "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>" + //NOI18N
+                "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>" + //NOI18N
+                "</Relationships>"); //NOI18N
+        writeEntry("xl/styles.xml", //NOI18N
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + //NOI18N
+                "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">" + //NOI18N
+                "<fonts count=\"4\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>" + //NOI18N
+                "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font>" + //NOI18N
+                "<font><sz val=\"11\"/><color rgb=\"FFFF0000\"/><name val=\"Calibri\"/></font>" + //NOI18N
+                "<font><sz val=\"11\"/><color rgb=\"FFFFA500\"/><name val=\"Calibri\"/></font></fonts>" + //NOI18N
+                "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>" + //NOI18N
+                "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>" + //NOI18N
+                "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>" + //NOI18N
+                "<cellXfs count=\"4\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>" + //NOI18N
+                "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>" + //NOI18N
+                "<xf numFmtId=\"0\" fontId=\"2\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>" + //NOI18N
+                "<xf numFmtId=\"0\" fontId=\"3\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/></cellXfs>" + //NOI18N
+                "</styleSheet>"); //NOI18N
+        zip.finish();
+        zip.flush();
+    }
+    
+    private void startSheet() throws IOException {
+        if (sheetStarted)
+            return;
+        sheetStarted = true;
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml")); //NOI18N
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + //NOI18N
+                "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"); //NOI18N
+    }
+    
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write(content);
+        closeEntry();
+    }
+    
+    private void closeEntry() throws IOException {
+        writer.flush();
+        zip.closeEntry();
+    }
+    
+    private void writeEmptyRow() throws IOException {
+        writer.write("<row/>"); //NOI18N
+    }
+    
+    private void writeStyledRow(int style, String... cells) throws IOException {
+        writer.write("<row>"); //NOI18N
+        for (String cell : cells)
+            writeCell(style, cell == null ? NOT_SET : cell);
+        writer.write("</row>"); //NOI18N
+    }
+    
+    private void writeCell(int style, String value) throws IOException {
+        writer.write(style == STYLE_DEFAULT ? "<c t=\"inlineStr\"><is><t xml:space=\"preserve\">" //NOI18N
+                : "<c t=\"inlineStr\" s=\"" + style + "\"><is><t xml:space=\"preserve\">"); //NOI18N
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    writer.write("&lt;"); //NOI18N
+                    break;
+                case '>':
+                    writer.write("&gt;"); //NOI18N
+                    break;
+                case '&':
+                    writer.write("&amp;"); //NOI18N
+                    break;
+                default:
+                    // Control characters other than tabs and line breaks are not allowed in XML 1.0
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r')
+                        writer.write(c);
+            }
+        }
+        writer.write("</t></is></c>"); //NOI18N
+    }
+}
@@ -290,6 +290,9 @@ public class TopologyView extends AbstractView<Component> {
         QName qControlPoint = new QName("controlpoint"); //NOI18N
 
         try {
+            HashMap<String, BusinessObjectLight> viewObjects = getViewObjects(structure, bem);
+            List<String> missingObjects = new ArrayList();
+            boolean missingEndpoints = false;
             ByteArrayInputStream bais = new ByteArrayInputStream(structure);
             XMLStreamReader reader = inputFactory.createXMLStreamReader(bais);
 
@@ -318,9 +321,11 @@ public class TopologyView extends AbstractView<Component> {
                             case OBJECT_TYPE:
                                 String objectClass = reader.getAttributeValue(null, "class");
                                 objId = reader.getElementText();
-                                lol = bem.getObjectLight(objectClass, objId);
-                                String uri = StreamResourceRegistry.getURI(resourceFactory.getClassIcon(lol.getClassName())).toString();
-                                props.put("imageUrl", uri);
+                                lol = viewObjects.get(objId);
+                                if (lol == null)
+                                    missingObjects.add(String.format("%s [%s]", objId, objectClass)); //NOI18N
+                                else
+                                    props.put("imageUrl", StreamResourceRegistry.getURI(resourceFactory.getClassIcon(lol.getClassName())).toString());
                                 break;
                             case FREE_SHAPE: {
                                     String shape = reader.getAttributeValue(null, "shape");
@@ -356,7 +361,7 @@ public class TopologyView extends AbstractView<Component> {
                             props.put("x", x);
                             props.put("y", y);
                             addNode(lol, props);
-                        } else {
+                        } else if (!OBJECT_TYPE.equals(type)) {
                             new SimpleNotification(ts.getTranslatedString("module.general.messages.warning"), String.format(ts.getTranslatedString("module.topoman.object-not-found"), "", objId), 
                                 AbstractNotification.NotificationType.INFO, ts).open();
                         }
@@ -379,7 +384,11 @@ public class TopologyView extends AbstractView<Component> {
                              props.put("targetLabel", "");
                              isPolyline = true;
                         } else {
-                            edge = bem.getObjectLight(className, id);
+                            edge = viewObjects.get(id);
+                            if (edge == null) {
+                                missingObjects.add(String.format("%s [%s]", id, className)); //NOI18N
+                                continue;
+                            }
                             if (mem.isSubclassOf(Constants.CLASS_GENERICPHYSICALLINK, edge.getClassName())) {
                                  List<BusinessObjectLight> lstPortA =  bem.getSpecialAttribute(edge.getClassName(), edge.getId(), "endpointA");                   
                                  List<BusinessObjectLight> lstPortB =  bem.getSpecialAttribute(edge.getClassName(), edge.getId(), "endpointB");                             
@@ -415,13 +424,19 @@ public class TopologyView extends AbstractView<Component> {
                         
                         AbstractViewEdge viewEdge = addEdge(edge, endPointA, endPointB, props);
                         if (viewEdge == null)
-                            new SimpleNotification(ts.getTranslatedString("module.general.messages.warning"), 
-                                    ts.getTranslatedString("module.topoman.enpoint-not-found"), 
-                                        AbstractNotification.NotificationType.WARNING, ts).open();                        
+                            missingEndpoints = true;
                     }
                 }
             }
             reader.close();
+            if (!missingObjects.isEmpty())
+                new SimpleNotification(ts.getTranslatedString("module.general.messages.warning"), 
+                        String.format(ts.getTranslatedString("module.general.messages.objects-not-found"), String.join(", ", missingObjects)), 
+                            AbstractNotification.NotificationType.WARNING, ts).open();
+            if (missingEndpoints)
+                new SimpleNotification(ts.getTranslatedString("module.general.messages.warning"), 
+                        ts.getTranslatedString("module.topoman.enpoint-not-found"), 
+                            AbstractNotification.NotificationType.WARNING, ts).open();
             MxGraphNode dummyNode = new MxGraphNode();
             dummyNode.setGeometry(0, 0, 0, 0);
             dummyNode.setMovable(false);
@@ -581,7 +596,7 @@ public class TopologyView extends AbstractView<Component> {
             if (entry.getKey().getClassName().equals(FREE_SHAPE)) {
                 aNode.getProperties().put("shape", entry.getValue().getShape());
             }
-            this.viewMap.getNodes().add(aNode);
+            this.viewMap.addNode(aNode);
         }
 
         for (Map.Entry<BusinessObjectLight, MxGraphEdge> entry : mxgraphCanvas.getEdges().entrySet()) {
@@ -596,7 +611,7 @@ public class TopologyView extends AbstractView<Component> {
                 anEdge.getProperties().put(style, mapStyle.containsKey(style) ? mapStyle.get(style) : "");
             }
 
-            this.viewMap.getEdges().add(anEdge);
+            this.viewMap.addEdge(anEdge);
             this.viewMap.attachSourceNode(anEdge, new BusinessObjectViewNode(mxgraphCanvas.findSourceEdgeObject(entry.getKey())));
             this.viewMap.attachTargetNode(anEdge, new BusinessObjectViewNode(mxgraphCanvas.findTargetEdgeObject(entry.getKey())));
         }
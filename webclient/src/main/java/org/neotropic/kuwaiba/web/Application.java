@@ -16,6 +16,8 @@
 
 package org.neotropic.kuwaiba.web;
 
+import com.neotropic.kuwaiba.modules.commercial.ipam.IpamService;
+import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
 import com.neotropic.kuwaiba.modules.commercial.sdh.SdhModule;
 import java.util.Properties;
 import java.util.logging.Level;
@@ -74,14 +76,40 @@ public class Application extends SpringBootServletInitializer {
         private String processesPath;
         @Value("${aem.max-routes}")
         private String maxRoutes;
+        @Value("${aem.physical-path-max-depth}")
+        private String physicalPathMaxDepth;
+        @Value("${aem.physical-path-max-nodes}")
+        private String physicalPathMaxNodes;
         @Value("${aem.backgrounds-path}")
         private String backgroundsPath;
+        @Value("${aem.session-idle-timeout}")
+        private String sessionIdleTimeout;
+        @Value("${aem.audit-trail-async}")
+        private String auditTrailAsync;
+        @Value("${aem.audit-trail-queue-size}")
+        private String auditTrailQueueSize;
+        @Value("${aem.audit-trail-batch-size}")
+        private String auditTrailBatchSize;
+        @Value("${aem.audit-trail-max-wait}")
+        private String auditTrailMaxWait;
+        @Value("${aem.audit-trail-wal-path}")
+        private String auditTrailWalPath;
+        @Value("${aem.audit-trail-archive-after-days}")
+        private String auditTrailArchiveAfterDays;
+        @Value("${aem.audit-trail-archive-path}")
+        private String auditTrailArchivePath;
         
         // Business properties
         @Value("${bem.attachments-path}")
         private String attachmentsPath;
         @Value("${bem.max-attachment-size}")
         private String maxAttachmentSize;
+        @Value("${bem.attachments-compression}")
+        private String attachmentsCompression;
+        @Value("${bem.validator-evaluation-mode}")
+        private String validatorEvaluationMode;
+        @Value("${bem.bulk-creation-chunk-size}")
+        private String bulkCreationChunkSize;
         
         @Autowired
         private PersistenceService persistenceService;
@@ -93,6 +121,10 @@ public class Application extends SpringBootServletInitializer {
         private SdhModule modSdh;
         @Autowired
         private ProcessManagerService processManagerService;
+        @Autowired
+        private IpamService ipamService;
+        @Autowired
+        private OutsidePlantService outsidePlantService;
         
         @PostConstruct
         void init() {
@@ -124,12 +156,25 @@ public class Application extends SpringBootServletInitializer {
             applicationProperties.put("processEnginePath", processEnginePath);
             applicationProperties.put("processesPath", processesPath);
             applicationProperties.put("maxRoutes", maxRoutes);
+            applicationProperties.put("physicalPathMaxDepth", physicalPathMaxDepth);
+            applicationProperties.put("physicalPathMaxNodes", physicalPathMaxNodes);
             applicationProperties.put("backgroundsPath", backgroundsPath);
+            applicationProperties.put("sessionIdleTimeout", sessionIdleTimeout);
+            applicationProperties.put("auditTrailAsync", auditTrailAsync);
+            applicationProperties.put("auditTrailQueueSize", auditTrailQueueSize);
+            applicationProperties.put("auditTrailBatchSize", auditTrailBatchSize);
+            applicationProperties.put("auditTrailMaxWait", auditTrailMaxWait);
+            applicationProperties.put("auditTrailWalPath", auditTrailWalPath);
+            applicationProperties.put("auditTrailArchiveAfterDays", auditTrailArchiveAfterDays);
+            applicationProperties.put("auditTrailArchivePath", auditTrailArchivePath);
             persistenceService.setApplicationProperties(applicationProperties);
             
             Properties businessProperties = new Properties();
             businessProperties.put("attachmentsPath", attachmentsPath);
             businessProperties.put("maxAttachmentSize", maxAttachmentSize);
+            businessProperties.put("attachmentsCompression", attachmentsCompression);
+            businessProperties.put("validatorEvaluationMode", validatorEvaluationMode);
+            businessProperties.put("bulkCreationChunkSize", bulkCreationChunkSize);
             persistenceService.setBusinessProperties(businessProperties);
             
             try {
@@ -152,6 +197,18 @@ public class Application extends SpringBootServletInitializer {
                 Endpoint.publish(String.format("http://0.0.0.0:%s/kuwaiba/KuwaibaService", wsPort), ws);
                 Logger.getLogger(PersistenceService.class.getName()).log(Level.INFO, 
                     String.format("Web service initialized and running on port %s", wsPort));
+                // The IPAM subnet index is built in background, the IPAM operations requested in the meantime will wait for it
+                new Thread(() -> {
+                    try {
+                        ipamService.buildSubnetIndexes();
+                    } catch (Exception ex) {
+                        Logger.getLogger(IpamService.class.getName()).log(Level.SEVERE, 
+                            String.format("The IPAM subnet index could not be built: %s", ex.getLocalizedMessage()));
+                    }
+                }, "ipam-subnet-index").start(); //NOI18N
+                // The spatial index of the Outside Plant module is built by the Threading Service, the geographic 
+                // queries requested in the meantime read the locations from the database
+                outsidePlantService.buildSpatialIndex();
             } else
                 Logger.getLogger(PersistenceService.class.getName()).log(Level.SEVERE, 
                     "Web service could not be initialized because the Persistence Service is not running");
@@ -16,6 +16,7 @@
 
 package org.neotropic.kuwaiba.web.ui;
 
+import com.neotropic.kuwaiba.modules.commercial.ospman.OutsidePlantService;
 import com.neotropic.kuwaiba.modules.commercial.ospman.widgets.AllBuildingsMapWidget;
 import com.vaadin.flow.component.dependency.JavaScript;
 import com.vaadin.flow.component.dependency.NpmPackage;
@@ -63,6 +64,11 @@ public class HomeUI extends VerticalLayout implements HasDynamicTitle, AbstractU
      */
     @Autowired
     private MetadataEntityManager mem;
+    /**
+     * Reference to the Outside Plant Service.
+     */
+    @Autowired
+    private OutsidePlantService ospService;
 
     @Override
     public String getPageTitle() {
@@ -76,6 +82,6 @@ public class HomeUI extends VerticalLayout implements HasDynamicTitle, AbstractU
         setPadding(false);
         setSpacing(false);
         
-        add(new AllBuildingsMapWidget(aem, bem, mem, ts, resourceFactory));
+        add(new AllBuildingsMapWidget(aem, bem, mem, ts, resourceFactory, ospService));
     }
 }